@@ -115,6 +115,11 @@ public class CSVHelper extends DataTypeHelperImpl {
      */
     public static final String THRESHOLD_FIELD_REPLACEMENT = ".data.threshold.replacement";
     
+    /**
+     * Parameter to enable parsing records directly over their raw bytes, materializing only the fields that are needed. Defaults to false.
+     */
+    public static final String BYTE_PARSER_ENABLED = ".data.byte.parser.enabled";
+    
     /** Partial configuration key for specifying CSV fields that a record must have. */
     public static final String REQUIRED_FIELDS = ".data.fields.required";
     
@@ -129,6 +134,7 @@ public class CSVHelper extends DataTypeHelperImpl {
     private String separator = null;
     private boolean skipHeaderRow = false;
     private boolean processExtraFields = false;
+    private boolean byteParserEnabled = false;
     private Map<String,String> multiValuedFields = new HashMap<>();
     private Map<String,String> multiValuedFieldsBlacklist = new HashMap<>();
     private boolean hasMultiValuedFieldsBlacklist = false;
@@ -171,6 +177,8 @@ public class CSVHelper extends DataTypeHelperImpl {
         // Get the process extra fields property
         this.processExtraFields = config.getBoolean(this.getType().typeName() + PROCESS_EXTRA_FIELDS, false);
         
+        this.byteParserEnabled = config.getBoolean(this.getType().typeName() + BYTE_PARSER_ENABLED, false);
+        
         // Get the whitelist of event fields to keep.
         Collection<String> cw = config.getStringCollection(this.getType().typeName() + FIELD_WHITELIST);
         if (cw != null && !cw.isEmpty()) {
@@ -272,6 +280,10 @@ public class CSVHelper extends DataTypeHelperImpl {
         return processExtraFields;
     }
     
+    public boolean isByteParserEnabled() {
+        return byteParserEnabled;
+    }
+    
     public Map<String,String> getMultiValuedFields() {
         return multiValuedFields;
     }
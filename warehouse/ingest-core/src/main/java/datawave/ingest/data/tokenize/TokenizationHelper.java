@@ -135,6 +135,12 @@ public class TokenizationHelper {
     public static final String INTERFIELD_POSITION_INCREMENT = ".token.interfield.position.increment";
     private int interFieldPositionIncrement = 10;
     
+    public static final String TOKENIZER_PARALLEL_THREADS = ".tokenizer.parallel.threads";
+    private int parallelTokenizerThreads = 0;
+    
+    public static final String TOKENIZER_PARALLEL_MIN_LENGTH = ".tokenizer.parallel.min.length";
+    private int parallelTokenizerMinLength = 65536;
+    
     public static final String MAX_URL_DECODES = ".token.interfield.position.increment";
     private int maxUrlDecodes = 2;
     
@@ -159,6 +165,8 @@ public class TokenizationHelper {
         tokenizerTimeWarnThresholdMsec = conf.getLong(helper.getType().typeName() + TOKENIZER_TIME_WARN_MSEC, tokenizerTimeWarnThresholdMsec);
         tokenizerTimeErrorThresholdMsec = conf.getLong(helper.getType().typeName() + TOKENIZER_TIME_ERROR_MSEC, tokenizerTimeErrorThresholdMsec);
         interFieldPositionIncrement = conf.getInt(helper.getType().typeName() + INTERFIELD_POSITION_INCREMENT, interFieldPositionIncrement);
+        parallelTokenizerThreads = conf.getInt(helper.getType().typeName() + TOKENIZER_PARALLEL_THREADS, parallelTokenizerThreads);
+        parallelTokenizerMinLength = conf.getInt(helper.getType().typeName() + TOKENIZER_PARALLEL_MIN_LENGTH, parallelTokenizerMinLength);
         
         final String nameProp = helper.getType().typeName() + TOKENIZER_TIME_THRESHOLD_NAMES;
         final String threshProp = helper.getType().typeName() + TOKENIZER_TIME_THRESHOLDS_MSEC;
@@ -339,6 +347,28 @@ public class TokenizationHelper {
         this.interFieldPositionIncrement = interFieldPositionIncrement;
     }
     
+    /**
+     * @return the number of threads used to tokenize the large fields of an event concurrently, 0 if fields are only tokenized on the handler thread
+     */
+    public int getParallelTokenizerThreads() {
+        return parallelTokenizerThreads;
+    }
+    
+    public void setParallelTokenizerThreads(int parallelTokenizerThreads) {
+        this.parallelTokenizerThreads = parallelTokenizerThreads;
+    }
+    
+    /**
+     * @return the minimum length of a field for it to be tokenized concurrently with the other fields of its event
+     */
+    public int getParallelTokenizerMinLength() {
+        return parallelTokenizerMinLength;
+    }
+    
+    public void setParallelTokenizerMinLength(int parallelTokenizerMinLength) {
+        this.parallelTokenizerMinLength = parallelTokenizerMinLength;
+    }
+    
     public int getMaxUrlDecodes() {
         return maxUrlDecodes;
     }
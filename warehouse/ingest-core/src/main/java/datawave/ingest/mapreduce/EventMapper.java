@@ -26,6 +26,8 @@ import datawave.ingest.mapreduce.job.metrics.Metric;
 import datawave.ingest.mapreduce.job.metrics.MetricsConfiguration;
 import datawave.ingest.mapreduce.job.metrics.MetricsService;
 import datawave.ingest.mapreduce.job.metrics.ReusableMetricsLabels;
+import datawave.ingest.mapreduce.job.statsd.CounterRegistry;
+import datawave.ingest.mapreduce.job.statsd.CounterRegistry.BufferedCounter;
 import datawave.ingest.mapreduce.job.statsd.StatsDEnabledMapper;
 import datawave.ingest.mapreduce.job.writer.BulkContextWriter;
 import datawave.ingest.mapreduce.job.writer.ContextWriter;
@@ -59,6 +61,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -134,6 +137,14 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
      */
     protected Map<String,Long> dataTypeDiscardIntervalCache = new HashMap<>();
     
+    // counters updated per event, resolved once and accumulated locally until the counter registry is flushed
+    private BufferedCounter lineBytesTotal = null;
+    private BufferedCounter lineBytesMin = null;
+    private BufferedCounter lineBytesMax = null;
+    private BufferedCounter rowsCreated = null;
+    private Map<String,BufferedCounter> eventsProcessedCounters = new HashMap<>();
+    private Map<DataTypeHandler<K1>,BufferedCounter> handlerRowsCreatedCounters = new IdentityHashMap<>();
+    
     private FileSplit split = null;
     
     private long interval = 0l;
@@ -273,6 +284,12 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         
         getCounter(context, IngestInput.LINE_BYTES.toString(), "MIN").setValue(Long.MAX_VALUE);
         
+        CounterRegistry counterRegistry = getCounterRegistry();
+        lineBytesTotal = counterRegistry.getCounter(IngestInput.LINE_BYTES.toString(), "TOTAL");
+        lineBytesMin = counterRegistry.getCounter(IngestInput.LINE_BYTES.toString(), "MIN", CounterRegistry.Aggregation.MIN);
+        lineBytesMax = counterRegistry.getCounter(IngestInput.LINE_BYTES.toString(), "MAX", CounterRegistry.Aggregation.MAX);
+        rowsCreated = counterRegistry.getCounter(IngestOutput.ROWS_CREATED);
+        
         offset = 0;
         
         if (log.isInfoEnabled()) {
@@ -407,15 +424,9 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         byte[] rawData = value.getRawData();
         if (rawData != null) {
             long rawDataBytes = rawData.length;
-            getCounter(context, IngestInput.LINE_BYTES.toString(), "TOTAL").increment(rawDataBytes);
-            long minBytes = getCounter(context, IngestInput.LINE_BYTES.toString(), "MIN").getValue();
-            if (rawDataBytes < minBytes) {
-                getCounter(context, IngestInput.LINE_BYTES.toString(), "MIN").setValue(rawDataBytes);
-            }
-            long maxBytes = getCounter(context, IngestInput.LINE_BYTES.toString(), "MAX").getValue();
-            if (rawDataBytes > maxBytes) {
-                getCounter(context, IngestInput.LINE_BYTES.toString(), "MAX").setValue(rawDataBytes);
-            }
+            lineBytesTotal.increment(rawDataBytes);
+            lineBytesMin.update(rawDataBytes);
+            lineBytesMax.update(rawDataBytes);
         }
         
         // First lets clear this event from the error table if we are reprocessing a previously errored event
@@ -546,7 +557,15 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
             context.progress();
         }
         
-        getCounter(context, IngestOutput.EVENTS_PROCESSED.name(), value.getDataType().typeName().toUpperCase()).increment(1);
+        String typeName = value.getDataType().typeName();
+        BufferedCounter eventsProcessed = eventsProcessedCounters.get(typeName);
+        if (eventsProcessed == null) {
+            eventsProcessed = getCounterRegistry().getCounter(IngestOutput.EVENTS_PROCESSED.name(), typeName.toUpperCase());
+            eventsProcessedCounters.put(typeName, eventsProcessed);
+        }
+        eventsProcessed.increment(1);
+        
+        getCounterRegistry().flushIfDue(context);
         
         offset++;
         
@@ -638,6 +657,7 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
                 h.close(context);
         }
         typeMap.clear();
+        handlerRowsCreatedCounters.clear();
         
         // Add the counters from the standalone reporter to this context.
         Counters counters = reporter.getCounters();
@@ -842,8 +862,13 @@ public class EventMapper<K1,V1 extends RawRecordContainer,K2,V2> extends StatsDE
         
         // Update the counters
         if (count > 0) {
-            getCounter(context, IngestOutput.ROWS_CREATED.name(), handler.getClass().getSimpleName()).increment(count);
-            getCounter(context, IngestOutput.ROWS_CREATED).increment(count);
+            BufferedCounter handlerRowsCreated = handlerRowsCreatedCounters.get(handler);
+            if (handlerRowsCreated == null) {
+                handlerRowsCreated = getCounterRegistry().getCounter(IngestOutput.ROWS_CREATED.name(), handler.getClass().getSimpleName());
+                handlerRowsCreatedCounters.put(handler, handlerRowsCreated);
+            }
+            handlerRowsCreated.increment(count);
+            rowsCreated.increment(count);
         }
         
         if (handler.getMetadata() != null) {
@@ -149,7 +149,28 @@ public class ContentIndexCounters {
             
             val.addAndGet(value);
         } else {
-            group.put(counterName, new AtomicInteger(1));
+            group.put(counterName, new AtomicInteger(value));
+        }
+    }
+    
+    /**
+     * Adds the values of another set of counters, e.g. counters gathered while tokenizing on another thread, to these counters and sets the other counters'
+     * values to zero.
+     * 
+     * @param other
+     *            The counters to merge
+     * @param reporter
+     *            The current task's context
+     */
+    public void merge(ContentIndexCounters other, StatusReporter reporter) {
+        for (Entry<String,Map<String,AtomicInteger>> countEntry : other.counts.entrySet()) {
+            String groupName = countEntry.getKey();
+            for (Entry<String,AtomicInteger> groupEntry : countEntry.getValue().entrySet()) {
+                int value = groupEntry.getValue().getAndSet(0);
+                if (value > 0) {
+                    incrementValue(groupName, groupEntry.getKey(), value, reporter);
+                }
+            }
         }
     }
     
@@ -0,0 +1,396 @@
+package datawave.ingest.mapreduce.handler.shard.content;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import datawave.ingest.mapreduce.handler.shard.content.BoundedOffsetQueue.OffsetList;
+import datawave.ingest.protobuf.TermWeight;
+
+import com.google.protobuf.CodedOutputStream;
+
+/**
+ * A bounded {@link OffsetQueue} which accumulates the offsets of each term and zone in primitive int arrays, keyed by an open addressing hash table. Terms are
+ * looked up by their term and zone directly, so no intermediate token strings or {@link TermAndZone} instances are created per occurrence, and the per term
+ * arrays are retained across calls to {@link #clear()} to be reused by subsequent documents.
+ * <p>
+ * As with the {@link BoundedOffsetQueue}, once the total number of offsets exceeds the capacity the term with the fewest offsets is evicted and returned. The
+ * slots are kept in a min-heap by their number of offsets, so the term to evict is found without scanning the table.
+ */
+public class TermOffsetTable implements OffsetQueue<Integer> {
+    
+    /**
+     * Receives the offsets of each term in the table
+     */
+    public interface TermOffsetConsumer {
+        /**
+         * @param term
+         *            the term
+         * @param zone
+         *            the zone (field name)
+         * @param offsets
+         *            the offsets of the term, valid from 0 to count
+         * @param count
+         *            the number of offsets
+         */
+        void accept(String term, String zone, int[] offsets, int count) throws IOException, InterruptedException;
+    }
+    
+    private static final int INITIAL_OFFSETS = 4;
+    private static final float LOAD_FACTOR = 0.5f;
+    
+    private final int maxNumOffsets;
+    
+    private String[] terms;
+    private String[] zones;
+    private int[] hashes;
+    private int[][] offsets;
+    private int[] counts;
+    
+    // the occupied slots as a min-heap by count, and the position of each slot within the heap
+    private int[] heap;
+    private int[] heapIndex;
+    
+    private int numTerms = 0;
+    private int numOffsets = 0;
+    
+    public TermOffsetTable(int maxNumOffsets) {
+        this.maxNumOffsets = maxNumOffsets;
+        allocate(tableSizeFor(Math.max(16, maxNumOffsets / 10)));
+    }
+    
+    public int getCapacity() {
+        return maxNumOffsets;
+    }
+    
+    /**
+     * @return the number of offsets in the table
+     */
+    @Override
+    public int size() {
+        return numOffsets;
+    }
+    
+    /**
+     * @return the number of distinct terms in the table
+     */
+    public int getNumTerms() {
+        return numTerms;
+    }
+    
+    /**
+     * Add an offset for a term. If this addition pushes the table past its capacity, then the term with the fewest offsets is removed.
+     * 
+     * @param term
+     *            the term
+     * @param zone
+     *            the zone
+     * @param offset
+     *            the offset of this occurrence of the term
+     * @return the number of offsets removed due to overflow, 0 if the table is not full
+     */
+    public int addOffset(String term, String zone, int offset) {
+        put(term, zone, offset);
+        if (numOffsets > maxNumOffsets) {
+            int evicted = smallest();
+            int count = counts[evicted];
+            remove(evicted);
+            return count;
+        }
+        return 0;
+    }
+    
+    @Override
+    public OffsetList<Integer> addOffset(TermAndZone termAndZone, Integer offset) {
+        put(termAndZone.term, termAndZone.zone, offset);
+        if (numOffsets > maxNumOffsets) {
+            int evicted = smallest();
+            OffsetList<Integer> list = toOffsetList(evicted);
+            remove(evicted);
+            return list;
+        }
+        return null;
+    }
+    
+    @Override
+    public void clear() {
+        // retain the per term offset arrays for reuse
+        Arrays.fill(terms, null);
+        Arrays.fill(zones, null);
+        numTerms = 0;
+        numOffsets = 0;
+    }
+    
+    @Override
+    public boolean containsKey(TermAndZone termAndZone) {
+        return terms[find(termAndZone.term, termAndZone.zone, hash(termAndZone.term, termAndZone.zone))] != null;
+    }
+    
+    @Override
+    public List<Integer> getOffsets(TermAndZone termAndZone) {
+        int slot = find(termAndZone.term, termAndZone.zone, hash(termAndZone.term, termAndZone.zone));
+        return terms[slot] == null ? null : toList(slot);
+    }
+    
+    /**
+     * Visits each term in the table along with its offsets, without boxing them
+     * 
+     * @param consumer
+     *            the consumer of each term and its offsets
+     */
+    public void forEach(TermOffsetConsumer consumer) throws IOException, InterruptedException {
+        for (int slot = 0; slot < terms.length; slot++) {
+            if (terms[slot] != null) {
+                consumer.accept(terms[slot], zones[slot], offsets[slot], counts[slot]);
+            }
+        }
+    }
+    
+    @Override
+    public Iterable<OffsetList<Integer>> offsets() {
+        return () -> new Iterator<OffsetList<Integer>>() {
+            private int slot = advance(0);
+            
+            private int advance(int from) {
+                while (from < terms.length && terms[from] == null) {
+                    from++;
+                }
+                return from;
+            }
+            
+            @Override
+            public boolean hasNext() {
+                return slot < terms.length;
+            }
+            
+            @Override
+            public OffsetList<Integer> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                OffsetList<Integer> list = toOffsetList(slot);
+                slot = advance(slot + 1);
+                return list;
+            }
+        };
+    }
+    
+    /**
+     * Serializes offsets as a {@link TermWeight.Info}, equivalent to adding each offset to a {@link TermWeight.Info.Builder} and serializing the built message
+     * 
+     * @param offsets
+     *            the offsets
+     * @param count
+     *            the number of offsets
+     * @return the serialized term weight
+     */
+    public static byte[] toTermWeight(int[] offsets, int count) {
+        int size = 0;
+        int tagSize = CodedOutputStream.computeTagSize(TermWeight.Info.TERMOFFSET_FIELD_NUMBER);
+        for (int i = 0; i < count; i++) {
+            size += tagSize + CodedOutputStream.computeUInt32SizeNoTag(offsets[i]);
+        }
+        byte[] bytes = new byte[size];
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        try {
+            for (int i = 0; i < count; i++) {
+                output.writeUInt32(TermWeight.Info.TERMOFFSET_FIELD_NUMBER, offsets[i]);
+            }
+            output.checkNoSpaceLeft();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to serialize term offsets", e);
+        }
+        return bytes;
+    }
+    
+    private void put(String term, String zone, int offset) {
+        int hash = hash(term, zone);
+        int slot = find(term, zone, hash);
+        boolean added = (terms[slot] == null);
+        if (added) {
+            if ((numTerms + 1) > terms.length * LOAD_FACTOR) {
+                rehash(terms.length * 2);
+                slot = find(term, zone, hash);
+            }
+            terms[slot] = term;
+            zones[slot] = zone;
+            hashes[slot] = hash;
+            counts[slot] = 0;
+            if (offsets[slot] == null) {
+                offsets[slot] = new int[INITIAL_OFFSETS];
+            }
+        }
+        if (counts[slot] == offsets[slot].length) {
+            offsets[slot] = Arrays.copyOf(offsets[slot], offsets[slot].length * 2);
+        }
+        offsets[slot][counts[slot]++] = offset;
+        numOffsets++;
+        
+        if (added) {
+            heap[numTerms] = slot;
+            heapIndex[slot] = numTerms;
+            numTerms++;
+            siftUp(heapIndex[slot]);
+        } else {
+            siftDown(heapIndex[slot]);
+        }
+    }
+    
+    private OffsetList<Integer> toOffsetList(int slot) {
+        OffsetList<Integer> list = new OffsetList<>();
+        list.termAndZone = new TermAndZone(terms[slot], zones[slot]);
+        list.offsets = toList(slot);
+        return list;
+    }
+    
+    private List<Integer> toList(int slot) {
+        List<Integer> list = new ArrayList<>(counts[slot]);
+        for (int i = 0; i < counts[slot]; i++) {
+            list.add(offsets[slot][i]);
+        }
+        return list;
+    }
+    
+    /**
+     * @return the slot of the term with the fewest offsets, or -1 if the table is empty
+     */
+    private int smallest() {
+        return numTerms == 0 ? -1 : heap[0];
+    }
+    
+    private void siftUp(int index) {
+        int slot = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (counts[heap[parent]] <= counts[slot]) {
+                break;
+            }
+            setHeap(index, heap[parent]);
+            index = parent;
+        }
+        setHeap(index, slot);
+    }
+    
+    private void siftDown(int index) {
+        int slot = heap[index];
+        int half = numTerms >>> 1;
+        while (index < half) {
+            int child = (index << 1) + 1;
+            int right = child + 1;
+            if (right < numTerms && counts[heap[right]] < counts[heap[child]]) {
+                child = right;
+            }
+            if (counts[slot] <= counts[heap[child]]) {
+                break;
+            }
+            setHeap(index, heap[child]);
+            index = child;
+        }
+        setHeap(index, slot);
+    }
+    
+    private void setHeap(int index, int slot) {
+        heap[index] = slot;
+        heapIndex[slot] = index;
+    }
+    
+    private static int hash(String term, String zone) {
+        int h = term.hashCode() * 31 + zone.hashCode();
+        // spread the bits as the table size is a power of two
+        return h ^ (h >>> 16);
+    }
+    
+    /**
+     * @return the slot containing the term and zone, or the empty slot where it belongs
+     */
+    private int find(String term, String zone, int hash) {
+        int mask = terms.length - 1;
+        int slot = hash & mask;
+        while (terms[slot] != null) {
+            if (hashes[slot] == hash && terms[slot].equals(term) && zones[slot].equals(zone)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    /**
+     * Removes the term at a slot, shifting back any subsequent entries of its probe sequence to keep lookups correct without tombstones
+     */
+    private void remove(int slot) {
+        numOffsets -= counts[slot];
+        
+        // replace the slot within the heap by the last slot of the heap
+        int index = heapIndex[slot];
+        numTerms--;
+        if (index < numTerms) {
+            int last = heap[numTerms];
+            setHeap(index, last);
+            siftDown(index);
+            siftUp(heapIndex[last]);
+        }
+        
+        int mask = terms.length - 1;
+        int[] removedOffsets = offsets[slot];
+        int hole = slot;
+        int next = (slot + 1) & mask;
+        while (terms[next] != null) {
+            int home = hashes[next] & mask;
+            // move the entry into the hole if the hole lies cyclically between its home slot and its current slot
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                terms[hole] = terms[next];
+                zones[hole] = zones[next];
+                hashes[hole] = hashes[next];
+                offsets[hole] = offsets[next];
+                counts[hole] = counts[next];
+                setHeap(heapIndex[next], hole);
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        terms[hole] = null;
+        zones[hole] = null;
+        offsets[hole] = removedOffsets;
+        counts[hole] = 0;
+    }
+    
+    private void rehash(int newSize) {
+        String[] oldTerms = terms;
+        String[] oldZones = zones;
+        int[] oldHashes = hashes;
+        int[][] oldOffsets = offsets;
+        int[] oldCounts = counts;
+        int[] oldHeapIndex = heapIndex;
+        allocate(newSize);
+        for (int i = 0; i < oldTerms.length; i++) {
+            if (oldTerms[i] != null) {
+                int slot = find(oldTerms[i], oldZones[i], oldHashes[i]);
+                terms[slot] = oldTerms[i];
+                zones[slot] = oldZones[i];
+                hashes[slot] = oldHashes[i];
+                offsets[slot] = oldOffsets[i];
+                counts[slot] = oldCounts[i];
+                setHeap(oldHeapIndex[i], slot);
+            }
+        }
+    }
+    
+    private void allocate(int size) {
+        terms = new String[size];
+        zones = new String[size];
+        hashes = new int[size];
+        offsets = new int[size][];
+        counts = new int[size];
+        heap = new int[size];
+        heapIndex = new int[size];
+    }
+    
+    private static int tableSizeFor(int n) {
+        int size = Integer.highestOneBit(Math.max(2, n) - 1) << 1;
+        return Math.max(16, size);
+    }
+}
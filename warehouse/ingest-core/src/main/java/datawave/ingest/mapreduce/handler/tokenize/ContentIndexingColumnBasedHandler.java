@@ -2,11 +2,21 @@ package datawave.ingest.mapreduce.handler.tokenize;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import datawave.ingest.data.RawRecordContainer;
 import datawave.ingest.data.config.NormalizedContentInterface;
@@ -16,17 +26,16 @@ import datawave.ingest.data.config.ingest.TermFrequencyIngestHelperInterface;
 import datawave.ingest.data.tokenize.DefaultTokenSearch;
 import datawave.ingest.data.tokenize.TokenSearch;
 import datawave.ingest.data.tokenize.TokenizationHelper;
-import datawave.ingest.data.tokenize.TokenizationHelper.HeartBeatThread;
 import datawave.ingest.data.tokenize.TokenizationHelper.TokenizerTimeoutException;
 import datawave.ingest.data.tokenize.TruncateAttribute;
 import datawave.ingest.mapreduce.handler.ExtendedDataTypeHandler;
 import datawave.ingest.mapreduce.handler.shard.AbstractColumnBasedHandler;
 import datawave.ingest.mapreduce.handler.shard.ShardedDataTypeHandler;
-import datawave.ingest.mapreduce.handler.shard.content.BoundedOffsetQueue;
 import datawave.ingest.mapreduce.handler.shard.content.BoundedOffsetQueue.OffsetList;
 import datawave.ingest.mapreduce.handler.shard.content.ContentIndexCounters;
 import datawave.ingest.mapreduce.handler.shard.content.OffsetQueue;
 import datawave.ingest.mapreduce.handler.shard.content.TermAndZone;
+import datawave.ingest.mapreduce.handler.shard.content.TermOffsetTable;
 import datawave.ingest.mapreduce.job.BulkIngestKey;
 import datawave.ingest.protobuf.TermWeight;
 import datawave.ingest.util.BloomFilterUtil;
@@ -53,6 +62,7 @@ import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Content indexing column based handler. will provide content tokenization, which will include storing offsets, and the TERM_COUNT for that event.
@@ -63,6 +73,12 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
     
     private static final Logger log = Logger.getLogger(ContentIndexingColumnBasedHandler.class);
     
+    // the number of tokens between checks of the elapsed tokenization time
+    private static final int TIME_CHECK_INTERVAL = 64;
+    
+    // how often progress is reported while waiting for a field to be tokenized in the background
+    private static final long PROGRESS_INTERVAL_MSEC = 1000;
+    
     public abstract AbstractContentIngestHelper getContentIndexingDataTypeHelper();
     
     // helper
@@ -107,6 +123,11 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
     
     private int termPosition = 0;
     
+    protected Analyzer analyzer = null;
+    
+    // tokenizes large fields in the background when parallel tokenization is enabled
+    private ExecutorService tokenizerExecutor = null;
+    
     @Override
     public void setup(TaskAttemptContext context) {
         super.setup(context);
@@ -133,7 +154,15 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
         searchUtilReverse = TokenSearch.Factory.newInstance(DefaultTokenSearch.class.getCanonicalName(), tokenHelper.getStopWords(), true);
         tokenHelper.configureSearchUtil(searchUtilReverse);
         
-        tokenOffsetCache = new BoundedOffsetQueue<>(tokenHelper.getTokenOffsetCacheMaxSize());
+        tokenOffsetCache = new TermOffsetTable(tokenHelper.getTokenOffsetCacheMaxSize());
+        
+        // the analyzer is shared by all events, so that lucene reuses its tokenizer on each thread
+        analyzer = tokenHelper.getAnalyzer();
+        
+        if (tokenHelper.getParallelTokenizerThreads() > 0) {
+            tokenizerExecutor = Executors.newFixedThreadPool(tokenHelper.getParallelTokenizerThreads(),
+                            new ThreadFactoryBuilder().setNameFormat("content-tokenizer-%d").setDaemon(true).build());
+        }
         
         // Conditionally create an NGrams factory
         if (this.getBloomFiltersEnabled()) {
@@ -141,6 +170,19 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
         }
     }
     
+    @Override
+    public void close(TaskAttemptContext context) {
+        super.close(context);
+        if (tokenizerExecutor != null) {
+            tokenizerExecutor.shutdownNow();
+            tokenizerExecutor = null;
+        }
+        if (analyzer != null) {
+            analyzer.close();
+            analyzer = null;
+        }
+    }
+    
     @Override
     public Multimap<BulkIngestKey,Value> processBulk(KEYIN key, RawRecordContainer event, Multimap<String,NormalizedContentInterface> eventFields,
                     StatusReporter reporter) {
@@ -170,15 +212,26 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
         if (tokenOffsetCache != null) {
             int termCount = 0;
             try {
-                for (OffsetList<Integer> offsets : tokenOffsetCache.offsets()) {
-                    // no need to normalize as that was already done
-                    // upon insertion into the token offset cache
-                    NormalizedFieldAndValue nfv = new NormalizedFieldAndValue(offsets.termAndZone.zone, offsets.termAndZone.term);
-                    
-                    byte[] fieldVisibility = getVisibility(event, nfv);
-                    
-                    createTermFrequencyIndex(event, values, this.shardId, nfv, offsets.offsets, fieldVisibility);
-                    termCount++;
+                if (tokenOffsetCache instanceof TermOffsetTable) {
+                    // serialize the term weights directly from the offset arrays
+                    TermOffsetTable table = (TermOffsetTable) tokenOffsetCache;
+                    table.forEach((term, zone, offsets, count) -> {
+                        NormalizedFieldAndValue nfv = new NormalizedFieldAndValue(zone, term);
+                        byte[] fieldVisibility = getVisibility(event, nfv);
+                        createTermFrequencyIndex(event, values, this.shardId, nfv, new Value(TermOffsetTable.toTermWeight(offsets, count)), fieldVisibility);
+                    });
+                    termCount = table.getNumTerms();
+                } else {
+                    for (OffsetList<Integer> offsets : tokenOffsetCache.offsets()) {
+                        // no need to normalize as that was already done
+                        // upon insertion into the token offset cache
+                        NormalizedFieldAndValue nfv = new NormalizedFieldAndValue(offsets.termAndZone.zone, offsets.termAndZone.term);
+                        
+                        byte[] fieldVisibility = getVisibility(event, nfv);
+                        
+                        createTermFrequencyIndex(event, values, this.shardId, nfv, offsets.offsets, fieldVisibility);
+                        termCount++;
+                    }
                 }
                 
                 if (termCount > 0) {
@@ -245,13 +298,23 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
         index = HashMultimap.create();
         reverse = HashMultimap.create();
         
-        Analyzer analyzer = tokenHelper.getAnalyzer();
+        if (analyzer == null) {
+            analyzer = tokenHelper.getAnalyzer();
+        }
+        
+        // start tokenizing any large fields in the background, their tokens are merged below in field order
+        List<Future<TokenizedField>> tokenizedFields = null;
+        if (tokenizerExecutor != null) {
+            tokenizedFields = submitLargeFields(eventFields, createGlobalIndexTerms, createGlobalReverseIndexTerms);
+        }
         
         try {
             String lastFieldName = "";
+            int fieldIndex = -1;
             
             for (Entry<String,NormalizedContentInterface> e : eventFields.entries()) {
                 NormalizedContentInterface nci = e.getValue();
+                fieldIndex++;
                 
                 // Put the normalized field name and normalized value into the index
                 if (createGlobalIndexTerms) {
@@ -294,7 +357,12 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
                 
                 if (indexField || reverseIndexField) {
                     try {
-                        tokenizeField(analyzer, nci, indexField, reverseIndexField, reporter);
+                        Future<TokenizedField> tokenized = (tokenizedFields == null ? null : tokenizedFields.get(fieldIndex));
+                        if (tokenized != null) {
+                            mergeTokenizedField(awaitTokenizedField(tokenized, reporter), reporter);
+                        } else {
+                            tokenizeField(analyzer, nci, indexField, reverseIndexField, reporter);
+                        }
                     } catch (Exception ex) {
                         throw new RuntimeException(ex);
                     }
@@ -308,7 +376,14 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
                 }
             }
         } finally {
-            analyzer.close();
+            if (tokenizedFields != null) {
+                // stop any remaining background tokenization if this event failed
+                for (Future<TokenizedField> tokenized : tokenizedFields) {
+                    if (tokenized != null) {
+                        tokenized.cancel(true);
+                    }
+                }
+            }
         }
         
         validateIndexedFields(createGlobalIndexTerms, createGlobalReverseIndexTerms, reporter);
@@ -316,13 +391,103 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
         return fields;
     }
     
+    /**
+     * Submits the tokenization of each content indexed field that is at least {@link TokenizationHelper#getParallelTokenizerMinLength()} characters long to
+     * the tokenizer executor.
+     *
+     * @return the pending tokenization of each event field, in the order of the event fields' entries, with null for fields tokenized on the handler thread
+     */
+    protected List<Future<TokenizedField>> submitLargeFields(Multimap<String,NormalizedContentInterface> eventFields, boolean createGlobalIndexTerms,
+                    boolean createGlobalReverseIndexTerms) {
+        List<Future<TokenizedField>> tokenizedFields = new ArrayList<>(eventFields.size());
+        String lastFieldName = "";
+        boolean submitted = false;
+        
+        for (NormalizedContentInterface nci : eventFields.values()) {
+            String indexedFieldName = nci.getIndexedFieldName();
+            if (helper.isShardExcluded(indexedFieldName)) {
+                tokenizedFields.add(null);
+                continue;
+            }
+            
+            // the starting position of each field is determined as in getShardNamesAndValues
+            final int startPosition;
+            if (!lastFieldName.equals(indexedFieldName)) {
+                startPosition = 0;
+                lastFieldName = indexedFieldName;
+            } else {
+                startPosition = tokenHelper.getInterFieldPositionIncrement();
+            }
+            
+            final boolean indexField = createGlobalIndexTerms && contentHelper.isContentIndexField(indexedFieldName);
+            final boolean reverseIndexField = createGlobalReverseIndexTerms && contentHelper.isReverseContentIndexField(indexedFieldName);
+            String content = nci.getIndexedFieldValue();
+            
+            if ((indexField || reverseIndexField) && content != null && content.length() >= tokenHelper.getParallelTokenizerMinLength()) {
+                tokenizedFields.add(tokenizerExecutor.submit(() -> {
+                    TokenizedField tokenized = new TokenizedField(nci, startPosition, true);
+                    tokenize(analyzer, tokenized, indexField, reverseIndexField, null);
+                    return tokenized;
+                }));
+                submitted = true;
+            } else {
+                tokenizedFields.add(null);
+            }
+        }
+        
+        return submitted ? tokenizedFields : null;
+    }
+    
+    /**
+     * Waits for the background tokenization of a field, reporting progress while waiting
+     */
+    private TokenizedField awaitTokenizedField(Future<TokenizedField> tokenized, StatusReporter reporter) throws IOException, InterruptedException {
+        while (true) {
+            try {
+                return tokenized.get(PROGRESS_INTERVAL_MSEC, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (reporter != null) {
+                    reporter.progress();
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException("Failed to tokenize field", cause);
+            }
+        }
+    }
+    
+    /**
+     * Adds the tokens of a field which was tokenized in the background to the fields, index, reverse index and token offset cache, in the order in which
+     * they were produced.
+     */
+    protected void mergeTokenizedField(TokenizedField tokenized, StatusReporter reporter) {
+        for (NormalizedContentInterface newField : tokenized.indexed) {
+            index.put(tokenized.fieldName, newField);
+            fields.put(tokenized.fieldName, newField);
+        }
+        for (NormalizedContentInterface newField : tokenized.reversed) {
+            reverse.put(tokenized.fieldName, newField);
+        }
+        for (int i = 0; i < tokenized.numOffsets; i++) {
+            addTokenOffset(tokenized.terms[i], tokenized.fieldName, tokenized.positions[i], counters, reporter);
+        }
+        counters.merge(tokenized.counters, reporter);
+        termPosition = tokenized.position;
+        tokenizerTimeWarned = tokenized.timeWarned;
+    }
+    
     public boolean isTokenizerTimeWarned() {
         return tokenizerTimeWarned;
     }
     
     /**
      * Tokenize the specified field using the analyzer provided.
-     * 
+     *
      */
     protected void tokenizeField(final Analyzer a, final NormalizedContentInterface nci, boolean indexField, boolean reverseIndexField, StatusReporter reporter)
                     throws IOException, InterruptedException {
@@ -331,8 +496,25 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
             return;
         }
         
-        String indexedFieldName = nci.getIndexedFieldName();
-        String modifiedFieldName = indexedFieldName + tokenFieldNameSuffix;
+        TokenizedField tokenized = new TokenizedField(nci, termPosition, false);
+        try {
+            tokenize(a, tokenized, indexField, reverseIndexField, reporter);
+        } finally {
+            termPosition = tokenized.position;
+        }
+    }
+    
+    /**
+     * Tokenizes a field into the given output. Repeated occurrences of a token within the field reuse the synonyms and index entries created for its first
+     * occurrence, so that only its position is recorded.
+     */
+    private void tokenize(final Analyzer a, final TokenizedField out, boolean indexField, boolean reverseIndexField, StatusReporter reporter)
+                    throws IOException {
+        
+        final NormalizedContentInterface nci = out.nci;
+        final String indexedFieldName = nci.getIndexedFieldName();
+        final String modifiedFieldName = out.fieldName;
+        final ContentIndexCounters counters = out.counters;
         String content = nci.getIndexedFieldValue();
         
         TokenStream tokenizer = a.tokenStream(indexedFieldName, new StringReader(content));
@@ -344,44 +526,43 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
             final PositionIncrementAttribute posIncrAtt = tokenizer.getAttribute(PositionIncrementAttribute.class);
             final TruncateAttribute truncAtt = tokenizer.getAttribute(TruncateAttribute.class);
             
+            // the synonyms of each distinct token in this field
+            final Map<String,TokenSynonyms> seen = new HashMap<>();
+            
             // Track amount of time we've spent tokenizing this document,
             // at the least we will use this for metrics, we could also use
-            // this to halt indexing if we exceed a certain threshold
-            int heartBeatCount = HeartBeatThread.counter;
-            int tokenizerBeats = 0;
-            long start = System.currentTimeMillis();
+            // this to halt indexing if we exceed a certain threshold. The
+            // clock is only sampled every TIME_CHECK_INTERVAL tokens.
+            final long start = System.nanoTime();
+            int tokenCount = 0;
             
-            tokenizerTimeWarned = false;
+            out.setTimeWarned(false);
             
             while (true) {
-                if (heartBeatCount != HeartBeatThread.counter) {
-                    tokenizerBeats += HeartBeatThread.counter - heartBeatCount;
-                    heartBeatCount = HeartBeatThread.counter;
+                if (++tokenCount % TIME_CHECK_INTERVAL == 0) {
+                    long elapsedMsec = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
                     
                     // warn once on exceeding the warn threshold
-                    long elapsedEstimateMsec = tokenizerBeats * HeartBeatThread.INTERVAL;
-                    if (elapsedEstimateMsec > tokenHelper.getTokenizerTimeWarnThresholdMsec() && !tokenizerTimeWarned) {
-                        long realDelta = System.currentTimeMillis() - start;
+                    if (elapsedMsec > tokenHelper.getTokenizerTimeWarnThresholdMsec() && !out.timeWarned) {
                         counters.incrementValue(ContentIndexCounters.TOKENIZER_TIME_WARNINGS, 1, reporter);
                         log.warn("Tokenization of field " + modifiedFieldName + " has exceeded warning threshold "
-                                        + tokenHelper.getTokenizerTimeWarnThresholdMsec() + "ms (" + realDelta + "ms)");
-                        tokenizerTimeWarned = true;
+                                        + tokenHelper.getTokenizerTimeWarnThresholdMsec() + "ms (" + elapsedMsec + "ms)");
+                        out.setTimeWarned(true);
                     }
                     
                     // error when we exceed the error threshold
-                    if (elapsedEstimateMsec > tokenHelper.getTokenizerTimeErrorThresholdMsec()) {
-                        long realDelta = System.currentTimeMillis() - start;
+                    if (elapsedMsec > tokenHelper.getTokenizerTimeErrorThresholdMsec()) {
                         counters.incrementValue(ContentIndexCounters.TOKENIZER_TIME_ERRORS, 1, reporter);
                         throw new TokenizerTimeoutException("Tokenization of field " + modifiedFieldName + " has exceeded error threshold "
-                                        + tokenHelper.getTokenizerTimeErrorThresholdMsec() + "ms (" + realDelta + "ms), aborting");
+                                        + tokenHelper.getTokenizerTimeErrorThresholdMsec() + "ms (" + elapsedMsec + "ms), aborting");
                     }
+                    
+                    // getting the next token can take a long time depending on the compexity of the data...
+                    // so lets report progress to hadoop periodically
+                    if (reporter != null)
+                        reporter.progress();
                 }
                 
-                // getting the next token can take a long time depending on the compexity of the data...
-                // so lets report progress to hadoop on each round
-                if (reporter != null)
-                    reporter.progress();
-                
                 if (!tokenizer.incrementToken()) {
                     break; // eof
                 }
@@ -391,7 +572,7 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
                 String type = typeAtt.type();
                 
                 // term positions aren't reset between fields of the same name, see getShardNamesAndValues.
-                termPosition += posIncrAtt.getPositionIncrement();
+                out.position += posIncrAtt.getPositionIncrement();
                 
                 if (type.startsWith("<") && type.endsWith(">")) {
                     type = type.substring(1, type.length() - 1); // <FOO> => FOO without regex
@@ -447,76 +628,73 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
                     continue;
                 }
                 
+                // the index entries for a repeated token were created on its first occurrence, only its position needs to be recorded
+                TokenSynonyms synonyms = seen.get(token);
+                boolean repeated = (synonyms != null && synonyms.type.equals(typeAtt.type()));
+                if (!repeated) {
+                    synonyms = new TokenSynonyms(typeAtt.type());
+                    seen.put(token, synonyms);
+                }
+                
                 if (indexField) {
-                    NormalizedContentInterface newField;
-                    Collection<String> synonyms;
-                    
-                    if (tokenHelper.isSynonymGenerationEnabled()) {
-                        // Get the list of synonyms including the term itself
-                        // Zone is empty in this case.
-                        synonyms = searchUtil.getSynonyms(new String[] {token, ""}, typeAtt.type(), true);
-                    } else {
-                        synonyms = Collections.singletonList(token);
-                    }
-                    
-                    for (String s : synonyms) {
-                        newField = (NormalizedContentInterface) (nci.clone());
-                        newField.setFieldName(modifiedFieldName);
-                        // don't put tokens in the event.
-                        newField.setEventFieldValue(null);
-                        newField.setIndexedFieldValue(s);
-                        index.put(modifiedFieldName, newField);
-                        
-                        // add this token to the event fields so a
-                        // local fi\x00 key gets created
-                        // NOTE: we already assigned it to the
-                        // 'indexOnly' list so it won't show up in
-                        // the event
-                        fields.put(modifiedFieldName, newField);
+                    if (!repeated) {
+                        if (tokenHelper.isSynonymGenerationEnabled()) {
+                            // Get the list of synonyms including the term itself
+                            // Zone is empty in this case.
+                            synonyms.forward = toArray(searchUtil.getSynonyms(new String[] {token, ""}, typeAtt.type(), true));
+                        } else {
+                            synonyms.forward = new String[] {token};
+                        }
                         
-                        if (tokenOffsetCache != null) {
-                            tokenOffsetCache.addOffset(new TermAndZone(s, modifiedFieldName), termPosition);
+                        for (String s : synonyms.forward) {
+                            NormalizedContentInterface newField = (NormalizedContentInterface) (nci.clone());
+                            newField.setFieldName(modifiedFieldName);
+                            // don't put tokens in the event.
+                            newField.setEventFieldValue(null);
+                            newField.setIndexedFieldValue(s);
+                            
+                            // add this token to the event fields so a
+                            // local fi\x00 key gets created
+                            // NOTE: we already assigned it to the
+                            // 'indexOnly' list so it won't show up in
+                            // the event
+                            out.index(newField);
                         }
                     }
                     
-                    counters.incrementValue(ContentIndexCounters.SYNONYMS_PROCESSED_COUNTER, synonyms.size() - 1, reporter);
-                    if (tokenHelper.isVerboseTermIndexCounters()) {
-                        counters.incrementValue(ContentIndexCounters.SYNONYM_TYPE_GROUP_NAME, type + ContentIndexCounters.SYNONYMS_PROCESSED_TYPE_SUFFIX,
-                                        synonyms.size() - 1, reporter);
+                    for (String s : synonyms.forward) {
+                        out.offset(s, out.position, reporter);
                     }
+                    
+                    countSynonyms(counters, type, synonyms.forward.length, reporter);
                 }
                 
                 if (reverseIndexField) {
-                    String rToken = StringUtils.reverse(token);
-                    NormalizedContentInterface newField;
-                    Collection<String> synonyms;
-                    
-                    if (tokenHelper.isSynonymGenerationEnabled()) {
-                        synonyms = searchUtilReverse.getSynonyms(rToken, typeAtt.type(), true);
-                    } else {
-                        synonyms = Collections.singletonList(rToken);
-                    }
-                    
-                    for (String s : synonyms) {
-                        newField = (NormalizedContentInterface) (nci.clone());
-                        newField.setFieldName(modifiedFieldName);
-                        newField.setEventFieldValue(s);
-                        newField.setIndexedFieldValue(s);
-                        reverse.put(modifiedFieldName, newField);
+                    if (!repeated) {
+                        String rToken = StringUtils.reverse(token);
+                        if (tokenHelper.isSynonymGenerationEnabled()) {
+                            synonyms.reverse = toArray(searchUtilReverse.getSynonyms(rToken, typeAtt.type(), true));
+                        } else {
+                            synonyms.reverse = new String[] {rToken};
+                        }
                         
-                        // NOTE: We don't want fi\x00 keys for reverse
-                        // tokens
+                        for (String s : synonyms.reverse) {
+                            NormalizedContentInterface newField = (NormalizedContentInterface) (nci.clone());
+                            newField.setFieldName(modifiedFieldName);
+                            newField.setEventFieldValue(s);
+                            newField.setIndexedFieldValue(s);
+                            out.reverse(newField);
+                            
+                            // NOTE: We don't want fi\x00 keys for reverse
+                            // tokens
+                        }
                     }
                     
-                    counters.incrementValue(ContentIndexCounters.SYNONYMS_PROCESSED_COUNTER, synonyms.size() - 1, reporter);
-                    if (tokenHelper.isVerboseTermIndexCounters()) {
-                        counters.incrementValue(ContentIndexCounters.SYNONYM_TYPE_GROUP_NAME, type + ContentIndexCounters.SYNONYMS_PROCESSED_TYPE_SUFFIX,
-                                        synonyms.size() - 1, reporter);
-                    }
+                    countSynonyms(counters, type, synonyms.reverse.length, reporter);
                 }
             }
             
-            final long tokenizerDeltaMsec = tokenizerBeats * HeartBeatThread.INTERVAL;
+            final long tokenizerDeltaMsec = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
             final long[] tokenizerThresholds = tokenHelper.getTokenizerTimeThresholds();
             final String[] tokenizerThresholdNames = tokenHelper.getTokenizerTimeThresholdNames();
             boolean counted = false;
@@ -539,6 +717,128 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
         }
     }
     
+    private void countSynonyms(ContentIndexCounters counters, String type, int numSynonyms, StatusReporter reporter) {
+        counters.incrementValue(ContentIndexCounters.SYNONYMS_PROCESSED_COUNTER, numSynonyms - 1, reporter);
+        if (tokenHelper.isVerboseTermIndexCounters()) {
+            counters.incrementValue(ContentIndexCounters.SYNONYM_TYPE_GROUP_NAME, type + ContentIndexCounters.SYNONYMS_PROCESSED_TYPE_SUFFIX, numSynonyms - 1,
+                            reporter);
+        }
+    }
+    
+    private static String[] toArray(Collection<String> synonyms) {
+        return synonyms.toArray(new String[synonyms.size()]);
+    }
+    
+    /**
+     * Adds the position of a term to the token offset cache
+     */
+    protected void addTokenOffset(String term, String zone, int position, ContentIndexCounters counters, StatusReporter reporter) {
+        int overflowed = 0;
+        if (tokenOffsetCache instanceof TermOffsetTable) {
+            overflowed = ((TermOffsetTable) tokenOffsetCache).addOffset(term, zone, position);
+        } else if (tokenOffsetCache != null) {
+            OffsetList<Integer> overflow = tokenOffsetCache.addOffset(new TermAndZone(term, zone), position);
+            if (overflow != null) {
+                overflowed = overflow.size();
+            }
+        }
+        
+        if (overflowed > 0) {
+            counters.increment(ContentIndexCounters.TOKENIZER_OFFSET_CACHE_OVERFLOWS, reporter);
+            counters.incrementValue(ContentIndexCounters.TOKENIZER_OFFSET_CACHE_POSITIONS_OVERFLOWED, overflowed, reporter);
+        }
+    }
+    
+    /**
+     * The synonyms generated for the first occurrence of a token within a field
+     */
+    private static class TokenSynonyms {
+        final String type;
+        String[] forward;
+        String[] reverse;
+        
+        TokenSynonyms(String type) {
+            this.type = type;
+        }
+    }
+    
+    /**
+     * The tokens of a single field. When tokenizing on the handler thread the tokens are added directly to the fields, index, reverse index and token offset
+     * cache. When tokenizing in the background they are buffered, along with their counters, to be added by
+     * {@link #mergeTokenizedField(TokenizedField, StatusReporter)}.
+     */
+    protected class TokenizedField {
+        final NormalizedContentInterface nci;
+        final String fieldName;
+        final boolean buffered;
+        final ContentIndexCounters counters;
+        
+        final List<NormalizedContentInterface> indexed;
+        final List<NormalizedContentInterface> reversed;
+        String[] terms;
+        int[] positions;
+        int numOffsets = 0;
+        
+        int position;
+        boolean timeWarned = false;
+        
+        TokenizedField(NormalizedContentInterface nci, int startPosition, boolean buffered) {
+            this.nci = nci;
+            this.fieldName = nci.getIndexedFieldName() + tokenFieldNameSuffix;
+            this.position = startPosition;
+            this.buffered = buffered;
+            if (buffered) {
+                this.counters = new ContentIndexCounters();
+                this.indexed = new ArrayList<>();
+                this.reversed = new ArrayList<>();
+                this.terms = new String[64];
+                this.positions = new int[64];
+            } else {
+                this.counters = ContentIndexingColumnBasedHandler.this.counters;
+                this.indexed = Collections.emptyList();
+                this.reversed = Collections.emptyList();
+            }
+        }
+        
+        void index(NormalizedContentInterface newField) {
+            if (buffered) {
+                indexed.add(newField);
+            } else {
+                ContentIndexingColumnBasedHandler.this.index.put(fieldName, newField);
+                ContentIndexingColumnBasedHandler.this.fields.put(fieldName, newField);
+            }
+        }
+        
+        void reverse(NormalizedContentInterface newField) {
+            if (buffered) {
+                reversed.add(newField);
+            } else {
+                ContentIndexingColumnBasedHandler.this.reverse.put(fieldName, newField);
+            }
+        }
+        
+        void offset(String term, int termPosition, StatusReporter reporter) {
+            if (buffered) {
+                if (numOffsets == terms.length) {
+                    terms = Arrays.copyOf(terms, numOffsets * 2);
+                    positions = Arrays.copyOf(positions, numOffsets * 2);
+                }
+                terms[numOffsets] = term;
+                positions[numOffsets] = termPosition;
+                numOffsets++;
+            } else {
+                addTokenOffset(term, fieldName, termPosition, counters, reporter);
+            }
+        }
+        
+        void setTimeWarned(boolean timeWarned) {
+            this.timeWarned = timeWarned;
+            if (!buffered) {
+                tokenizerTimeWarned = timeWarned;
+            }
+        }
+    }
+    
     /**
      * Creates a Term Frequency index key in the "tf" column family.
      * 
@@ -558,7 +858,23 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
         for (Integer offset : offsets) {
             builder.addTermOffset(offset);
         }
-        Value value = new Value(builder.build().toByteArray());
+        createTermFrequencyIndex(event, values, shardId, nfv, new Value(builder.build().toByteArray()), visibility);
+    }
+    
+    /**
+     * Creates a Term Frequency index key in the "tf" column family, with an already serialized {@link TermWeight.Info} value.
+     * 
+     * @param event
+     * @param values
+     * @param shardId
+     * @param nfv
+     * @param value
+     * @param visibility
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    protected void createTermFrequencyIndex(RawRecordContainer event, Multimap<BulkIngestKey,Value> values, byte[] shardId, NormalizedFieldAndValue nfv,
+                    Value value, byte[] visibility) throws IOException, InterruptedException {
         
         StringBuilder colq = new StringBuilder(this.eventDataTypeName.length() + this.eventUid.length() + nfv.getIndexedFieldName().length()
                         + nfv.getIndexedFieldValue().length() + 3);
@@ -691,14 +1007,14 @@ public abstract class ContentIndexingColumnBasedHandler<KEYIN> extends AbstractC
                     
                     if (tokenOffsetCache != null) {
                         for (NormalizedContentInterface normalizedNci : normalizedValueFields) {
-                            tokenOffsetCache.addOffset(new TermAndZone(normalizedNci.getIndexedFieldValue(), indexedFieldName), position);
+                            addTokenOffset(normalizedNci.getIndexedFieldValue(), indexedFieldName, position, counters, reporter);
                         }
                     }
                 } else {
                     index.put(indexedFieldName, newField);
                     fields.put(indexedFieldName, newField);
                     if (tokenOffsetCache != null) {
-                        tokenOffsetCache.addOffset(new TermAndZone(trimmedToken, indexedFieldName), position);
+                        addTokenOffset(trimmedToken, indexedFieldName, position, counters, reporter);
                     }
                 }
                 position++;
@@ -0,0 +1,384 @@
+package datawave.ingest.mapreduce.job;
+
+import datawave.ingest.mapreduce.job.BulkImportStageStats.Stage;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Overlaps the stages of bringing bulk ingest job directories online so that a slow table import for one job does not hold up the HDFS work and cleanup of
+ * other jobs. Each job flows through three stages:
+ * <ol>
+ * <li>HDFS: the job directory is copied to the destination file system if needed</li>
+ * <li>IMPORT: the tables are imported in priority order, tables with the same priority concurrently. Imports from all jobs wait in one queue ordered by table
+ * priority and then by job submission order, and share one executor.</li>
+ * <li>CLEANUP: the job directory is verified and removed (or marked as failed)</li>
+ * </ol>
+ * The number of concurrent imports for a single table is limited by {@code maxImportsPerTable}, and the number of concurrent imports overall is limited by
+ * {@code maxConcurrentImports}, which the loader derives from the number of tablet servers. An import is only handed to the executor once it holds both
+ * permits, so an executor thread never waits on a busy table while imports for other tables are queued.
+ */
+public class BulkImportPipeline {
+    private static final Logger log = Logger.getLogger(BulkImportPipeline.class);
+    
+    /**
+     * The work done for a job at each stage of the pipeline
+     */
+    public interface JobHandler {
+        /**
+         * Prepare the job directory for import
+         * 
+         * @return the map files directory on the destination file system
+         */
+        Path prepare(Path srcJobDirectory) throws Exception;
+        
+        /**
+         * @return the table directories to import, keyed by table name, in table priority order
+         */
+        Map<String,Path> getTableDirectories(Path mapFilesDir) throws Exception;
+        
+        void importTable(Path mapFilesDir, String tableName, Path tableDir) throws Exception;
+        
+        void cleanup(Path mapFilesDir) throws Exception;
+        
+        /**
+         * Mark a job as failed
+         * 
+         * @param mapFilesDir
+         *            the map files directory, or null if the job failed before it was prepared
+         * @return true if the job was successfully marked as failed
+         */
+        boolean failed(Path srcJobDirectory, Path mapFilesDir);
+    }
+    
+    private final JobHandler handler;
+    private final Map<String,Integer> tablePriorities;
+    private final int maxJobsInFlight;
+    private final int maxImportsPerTable;
+    private final ExecutorService hdfsExecutor;
+    private final ExecutorService cleanupExecutor;
+    private final ThreadPoolExecutor importExecutor;
+    private final Semaphore importPermits;
+    private final Map<String,Semaphore> tablePermits = new ConcurrentHashMap<>();
+    // the imports waiting for their permits, in priority order
+    private final NavigableSet<PrioritizedImport> pendingImports = new TreeSet<>();
+    private final Map<String,AtomicInteger> tableImportsInFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger jobsInFlight = new AtomicInteger();
+    private final AtomicLong jobSequence = new AtomicLong();
+    private final AtomicInteger markFailures = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Path> completedJobs = new ConcurrentLinkedQueue<>();
+    private final BulkImportStageStats stats = new BulkImportStageStats();
+    
+    public BulkImportPipeline(JobHandler handler, Map<String,Integer> tablePriorities, int maxJobsInFlight, int numHdfsThreads, int numImportThreads,
+                    int maxImportsPerTable, int maxConcurrentImports) {
+        this.handler = handler;
+        this.tablePriorities = tablePriorities;
+        this.maxJobsInFlight = Math.max(1, maxJobsInFlight);
+        this.maxImportsPerTable = Math.max(1, maxImportsPerTable);
+        this.importPermits = new Semaphore(Math.max(1, maxConcurrentImports), true);
+        this.hdfsExecutor = Executors.newFixedThreadPool(Math.max(1, numHdfsThreads));
+        this.cleanupExecutor = Executors.newFixedThreadPool(Math.max(1, numHdfsThreads));
+        int importThreads = Math.max(1, numImportThreads);
+        this.importExecutor = new ThreadPoolExecutor(importThreads, importThreads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    }
+    
+    /**
+     * @return true if another job may be submitted without exceeding the maximum number of jobs in flight
+     */
+    public boolean hasCapacity() {
+        return jobsInFlight.get() < maxJobsInFlight;
+    }
+    
+    /**
+     * @return the number of jobs that may be submitted without exceeding the maximum number of jobs in flight
+     */
+    public int getRemainingCapacity() {
+        return Math.max(0, maxJobsInFlight - jobsInFlight.get());
+    }
+    
+    /**
+     * Submit a job directory that this process has already taken ownership of. The returned future completes once the job has been cleaned up or marked as
+     * failed.
+     */
+    public CompletableFuture<Void> submit(Path srcJobDirectory) {
+        final long sequence = jobSequence.getAndIncrement();
+        final long start = System.currentTimeMillis();
+        final Path[] mapFilesDir = new Path[1];
+        jobsInFlight.incrementAndGet();
+        stats.started(Stage.TOTAL);
+        log.info("Submitting " + srcJobDirectory + " to the bulk import pipeline");
+        
+        //@formatter:off
+        return CompletableFuture.supplyAsync(() -> timed(Stage.HDFS, () -> handler.prepare(srcJobDirectory)), hdfsExecutor)
+            .thenCompose(dir -> {
+                mapFilesDir[0] = dir;
+                return importTables(sequence, dir);
+            })
+            .thenApplyAsync(v -> timed(Stage.CLEANUP, () -> {
+                handler.cleanup(mapFilesDir[0]);
+                return null;
+            }), cleanupExecutor)
+            .handle((v, t) -> {
+                boolean failed = (t != null);
+                if (failed) {
+                    log.error("Failed to process " + srcJobDirectory, t);
+                    if (!handler.failed(srcJobDirectory, mapFilesDir[0])) {
+                        markFailures.incrementAndGet();
+                    }
+                } else {
+                    completedJobs.add(srcJobDirectory);
+                }
+                long duration = System.currentTimeMillis() - start;
+                stats.completed(Stage.TOTAL, duration, failed);
+                jobsInFlight.decrementAndGet();
+                log.info("Finished processing " + srcJobDirectory + (failed ? " with failures" : "") + ", duration (sec): " + (duration / 1000));
+                return null;
+            });
+        //@formatter:on
+    }
+    
+    /**
+     * Import the tables one priority group at a time, all tables within a group concurrently
+     */
+    private CompletableFuture<Void> importTables(long sequence, Path mapFilesDir) {
+        Map<String,Path> tableDirs;
+        try {
+            tableDirs = handler.getTableDirectories(mapFilesDir);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+        
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (List<Map.Entry<String,Path>> group : groupByPriority(tableDirs)) {
+            chain = chain.thenCompose(v -> {
+                List<CompletableFuture<Void>> imports = new ArrayList<>();
+                for (Map.Entry<String,Path> entry : group) {
+                    imports.add(scheduleImport(sequence, mapFilesDir, entry.getKey(), entry.getValue()));
+                }
+                return CompletableFuture.allOf(imports.toArray(new CompletableFuture[0]));
+            });
+        }
+        return chain;
+    }
+    
+    /**
+     * Split the (already priority ordered) table directories into groups of tables sharing the same priority
+     */
+    List<List<Map.Entry<String,Path>>> groupByPriority(Map<String,Path> tableDirs) {
+        List<List<Map.Entry<String,Path>>> groups = new ArrayList<>();
+        List<Map.Entry<String,Path>> group = null;
+        Integer priority = null;
+        for (Map.Entry<String,Path> entry : tableDirs.entrySet()) {
+            Integer newPriority = tablePriorities.get(entry.getKey());
+            if (group == null || !Objects.equals(priority, newPriority)) {
+                group = new ArrayList<>();
+                groups.add(group);
+                priority = newPriority;
+            }
+            group.add(entry);
+        }
+        return groups;
+    }
+    
+    private CompletableFuture<Void> scheduleImport(long sequence, Path mapFilesDir, String tableName, Path tableDir) {
+        PrioritizedImport task = new PrioritizedImport(tablePriorities.get(tableName), sequence, mapFilesDir, tableName, tableDir);
+        synchronized (pendingImports) {
+            pendingImports.add(task);
+        }
+        dispatchImports();
+        return task.future;
+    }
+    
+    /**
+     * Hand the pending imports to the import executor in priority order, skipping those whose table has no permit available, until no import permits remain
+     */
+    private void dispatchImports() {
+        synchronized (pendingImports) {
+            Iterator<PrioritizedImport> it = pendingImports.iterator();
+            while (it.hasNext() && importPermits.availablePermits() > 0) {
+                PrioritizedImport task = it.next();
+                Semaphore tablePermit = tablePermits.computeIfAbsent(task.tableName, k -> new Semaphore(maxImportsPerTable));
+                if (!tablePermit.tryAcquire()) {
+                    continue;
+                }
+                if (!importPermits.tryAcquire()) {
+                    tablePermit.release();
+                    break;
+                }
+                it.remove();
+                try {
+                    importExecutor.execute(task);
+                } catch (RuntimeException e) {
+                    task.releasePermits();
+                    task.future.completeExceptionally(e);
+                }
+            }
+        }
+    }
+    
+    private <T> T timed(Stage stage, StageWork<T> work) {
+        long start = System.currentTimeMillis();
+        boolean failed = true;
+        stats.started(stage);
+        try {
+            T result = work.call();
+            failed = false;
+            return result;
+        } catch (CompletionException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        } finally {
+            stats.completed(stage, System.currentTimeMillis() - start, failed);
+        }
+    }
+    
+    private interface StageWork<T> {
+        T call() throws Exception;
+    }
+    
+    /**
+     * A table import waiting for its permits. Lower priority values run first, and ties are broken by the order in which the jobs were submitted. The import
+     * holds a table permit and an import permit when it runs, and releases them when it is done.
+     */
+    private class PrioritizedImport implements Runnable, Comparable<PrioritizedImport> {
+        private final Integer priority;
+        private final long sequence;
+        private final Path mapFilesDir;
+        private final String tableName;
+        private final Path tableDir;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        
+        private PrioritizedImport(Integer priority, long sequence, Path mapFilesDir, String tableName, Path tableDir) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.mapFilesDir = mapFilesDir;
+            this.tableName = tableName;
+            this.tableDir = tableDir;
+        }
+        
+        @Override
+        public void run() {
+            AtomicInteger tableInFlight = tableImportsInFlight.computeIfAbsent(tableName, k -> new AtomicInteger());
+            try {
+                tableInFlight.incrementAndGet();
+                try {
+                    timed(Stage.IMPORT, () -> {
+                        handler.importTable(mapFilesDir, tableName, tableDir);
+                        return null;
+                    });
+                } finally {
+                    tableInFlight.decrementAndGet();
+                    releasePermits();
+                }
+                future.complete(null);
+            } catch (Throwable t) {
+                future.completeExceptionally(t instanceof CompletionException && t.getCause() != null ? t.getCause() : t);
+            } finally {
+                dispatchImports();
+            }
+        }
+        
+        private void releasePermits() {
+            importPermits.release();
+            tablePermits.get(tableName).release();
+        }
+        
+        @Override
+        public int compareTo(PrioritizedImport o) {
+            if (!Objects.equals(priority, o.priority)) {
+                if (priority == null) {
+                    return 1;
+                } else if (o.priority == null) {
+                    return -1;
+                }
+                return priority.compareTo(o.priority);
+            }
+            if (sequence != o.sequence) {
+                return Long.compare(sequence, o.sequence);
+            }
+            return tableName.compareTo(o.tableName);
+        }
+    }
+    
+    /**
+     * @return the job directories that completed successfully since the last call
+     */
+    public List<Path> drainCompleted() {
+        List<Path> completed = new ArrayList<>();
+        Path path;
+        while ((path = completedJobs.poll()) != null) {
+            completed.add(path);
+        }
+        return completed;
+    }
+    
+    /**
+     * @return the number of failed jobs that could not be marked as failed
+     */
+    public int getMarkFailures() {
+        return markFailures.get();
+    }
+    
+    public int getJobsInFlight() {
+        return jobsInFlight.get();
+    }
+    
+    public BulkImportStageStats getStats() {
+        return stats;
+    }
+    
+    /**
+     * @return a printable view of the stage latencies and the imports currently running per table
+     */
+    public String getStatus() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("jobsInFlight=").append(jobsInFlight.get()).append(", queuedImports=").append(getQueuedImports()).append('\n');
+        builder.append(stats);
+        for (Map.Entry<String,AtomicInteger> entry : tableImportsInFlight.entrySet()) {
+            if (entry.getValue().get() > 0) {
+                builder.append("importing ").append(entry.getKey()).append(": ").append(entry.getValue().get()).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+    
+    private int getQueuedImports() {
+        synchronized (pendingImports) {
+            return pendingImports.size() + importExecutor.getQueue().size();
+        }
+    }
+    
+    /**
+     * Wait for the jobs in flight to complete, and then shut down the executors. No jobs may be submitted after this is called.
+     */
+    public void shutdown() throws InterruptedException {
+        while (jobsInFlight.get() > 0) {
+            log.info("Waiting for " + jobsInFlight.get() + " jobs in the bulk import pipeline to complete");
+            Thread.sleep(1000);
+        }
+        hdfsExecutor.shutdown();
+        importExecutor.shutdown();
+        cleanupExecutor.shutdown();
+    }
+}
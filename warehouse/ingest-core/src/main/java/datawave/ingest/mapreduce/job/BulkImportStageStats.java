@@ -0,0 +1,94 @@
+package datawave.ingest.mapreduce.job;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live latency statistics for the stages of the {@link BulkImportPipeline}. Each stage tracks the number of jobs (or table imports) in flight, the number
+ * completed and failed, and the total, maximum and most recent durations. All updates are lock free so that the stats may be read at any time while the
+ * pipeline is running.
+ */
+public class BulkImportStageStats {
+    
+    public enum Stage {
+        /** distcp (if needed) of the job directory onto the destination file system */
+        HDFS,
+        /** a single table's bulk import, including the collapse of its directory */
+        IMPORT,
+        /** verification, marker file updates and removal of the job directory */
+        CLEANUP,
+        /** the entire job, from submission to the pipeline until cleanup completes */
+        TOTAL
+    }
+    
+    private final Map<Stage,StageStats> stats = new EnumMap<>(Stage.class);
+    
+    public BulkImportStageStats() {
+        for (Stage stage : Stage.values()) {
+            stats.put(stage, new StageStats());
+        }
+    }
+    
+    public void started(Stage stage) {
+        stats.get(stage).inFlight.incrementAndGet();
+    }
+    
+    public void completed(Stage stage, long durationMs, boolean failed) {
+        StageStats stageStats = stats.get(stage);
+        stageStats.inFlight.decrementAndGet();
+        stageStats.count.incrementAndGet();
+        if (failed) {
+            stageStats.failures.incrementAndGet();
+        }
+        stageStats.totalMs.addAndGet(durationMs);
+        stageStats.lastMs.set(durationMs);
+        stageStats.maxMs.accumulateAndGet(durationMs, Math::max);
+    }
+    
+    public long getInFlight(Stage stage) {
+        return stats.get(stage).inFlight.get();
+    }
+    
+    public long getCount(Stage stage) {
+        return stats.get(stage).count.get();
+    }
+    
+    public long getFailures(Stage stage) {
+        return stats.get(stage).failures.get();
+    }
+    
+    public long getMaxMs(Stage stage) {
+        return stats.get(stage).maxMs.get();
+    }
+    
+    public long getLastMs(Stage stage) {
+        return stats.get(stage).lastMs.get();
+    }
+    
+    public long getAverageMs(Stage stage) {
+        StageStats stageStats = stats.get(stage);
+        long count = stageStats.count.get();
+        return (count == 0 ? 0 : stageStats.totalMs.get() / count);
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Stage stage : Stage.values()) {
+            builder.append(stage).append(": inFlight=").append(getInFlight(stage)).append(", completed=").append(getCount(stage)).append(", failed=")
+                            .append(getFailures(stage)).append(", avgMs=").append(getAverageMs(stage)).append(", maxMs=").append(getMaxMs(stage))
+                            .append(", lastMs=").append(getLastMs(stage)).append('\n');
+        }
+        return builder.toString();
+    }
+    
+    private static class StageStats {
+        private final AtomicLong inFlight = new AtomicLong();
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong totalMs = new AtomicLong();
+        private final AtomicLong maxMs = new AtomicLong();
+        private final AtomicLong lastMs = new AtomicLong();
+    }
+}
@@ -19,6 +19,10 @@ public class BulkIngestCounters {
     private Map<Text,BulkIngestCounter> counters = new HashMap<>();
     private String shardedTableName;
     
+    // keys are typically written in runs for the same table, so cache the last lookup
+    private Text lastTableName = null;
+    private BulkIngestCounter lastCounter = null;
+    
     public BulkIngestCounters(Configuration conf) {
         shardedTableName = conf.get(ShardedDataTypeHandler.SHARD_TNAME, "");
     }
@@ -33,6 +37,7 @@ public class BulkIngestCounters {
         } else {
             counters.put(new Text(tableName), new TableNameCounter(tableName, deleteMode));
         }
+        lastTableName = null;
     }
     
     /**
@@ -44,7 +49,7 @@ public class BulkIngestCounters {
      *            Event).
      */
     public void incrementCounter(BulkIngestKey key) {
-        BulkIngestCounter counter = counters.get(key.getTableName());
+        BulkIngestCounter counter = getCounter(key.getTableName());
         if (counter != null)
             counter.incrementCounter(key);
     }
@@ -58,11 +63,20 @@ public class BulkIngestCounters {
      *            Event).
      */
     public void incrementCounter(BulkIngestKey key, int count) {
-        BulkIngestCounter counter = counters.get(key.getTableName());
+        BulkIngestCounter counter = getCounter(key.getTableName());
         if (counter != null)
             counter.incrementCounter(key, count);
     }
     
+    private BulkIngestCounter getCounter(Text tableName) {
+        if (lastTableName == null || !lastTableName.equals(tableName)) {
+            lastCounter = counters.get(tableName);
+            // copy the name as the key's text may be reused by the caller
+            lastTableName = new Text(tableName);
+        }
+        return lastCounter;
+    }
+    
     /**
      * Flush the counters out the the provided context
      * 
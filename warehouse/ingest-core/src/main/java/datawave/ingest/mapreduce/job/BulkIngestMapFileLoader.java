@@ -44,16 +44,19 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketAddress;
 import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Observer;
@@ -80,6 +83,10 @@ public final class BulkIngestMapFileLoader implements Runnable {
     private static int SHUTDOWN_PORT = 24111;
     private static boolean FIFO = true;
     private static boolean INGEST_METRICS = true;
+    private static boolean PIPELINED = false;
+    private static int MAX_JOBS_IN_FLIGHT = 4;
+    private static int MAX_IMPORTS_PER_TABLE = 2;
+    private static int MAX_IMPORTS_PER_TSERVER = 1;
     
     public static final String CLEANUP_FILE_MARKER = "job.cleanup";
     public static final String COMPLETE_FILE_MARKER = "job.complete";
@@ -103,6 +110,9 @@ public final class BulkIngestMapFileLoader implements Runnable {
     private volatile boolean running;
     private ExecutorService executor;
     private JobObservable jobObservable;
+    private BulkImportPipeline pipeline;
+    private long pipelineJobFailures = 0;
+    private long pipelinePausedUntil = 0;
     
     public static void main(String[] args) throws AccumuloSecurityException, IOException {
         
@@ -117,7 +127,8 @@ public final class BulkIngestMapFileLoader implements Runnable {
             log.error("usage: BulkIngestMapFileLoader hdfsWorkDir jobDirPattern instanceName zooKeepers username password "
                             + "[-sleepTime sleepTime] [-majcThreshold threshold] [-majcCheckInterval count] [-majcDelay majcDelay] "
                             + " [-seqFileHdfs seqFileSystemUri] [-srcHdfs srcFileSystemURI] [-destHdfs destFileSystemURI] [-jt jobTracker] "
-                            + "[-ingestMetricsDisabled] [-jobObservers jobObserverClasses] [-shutdownPort portNum] confFile [{confFile}]");
+                            + "[-ingestMetricsDisabled] [-jobObservers jobObserverClasses] [-shutdownPort portNum] "
+                            + "[-pipelined] [-maxJobsInFlight count] [-maxImportsPerTable count] [-maxImportsPerTserver count] confFile [{confFile}]");
             System.exit(-1);
         }
         
@@ -267,6 +278,42 @@ public final class BulkIngestMapFileLoader implements Runnable {
                         log.error("-shutdownPort must be followed a port number", e);
                         System.exit(-2);
                     }
+                } else if ("-maxJobsInFlight".equalsIgnoreCase(args[i])) {
+                    if (i + 2 > args.length) {
+                        log.error("-maxJobsInFlight must be followed by the maximum number of job directories in the bulk import pipeline");
+                        System.exit(-2);
+                    }
+                    try {
+                        MAX_JOBS_IN_FLIGHT = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException e) {
+                        log.error("-maxJobsInFlight must be followed by the maximum number of job directories in the bulk import pipeline", e);
+                        System.exit(-2);
+                    }
+                } else if ("-maxImportsPerTable".equalsIgnoreCase(args[i])) {
+                    if (i + 2 > args.length) {
+                        log.error("-maxImportsPerTable must be followed by the maximum number of concurrent bulk imports into a single table");
+                        System.exit(-2);
+                    }
+                    try {
+                        MAX_IMPORTS_PER_TABLE = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException e) {
+                        log.error("-maxImportsPerTable must be followed by the maximum number of concurrent bulk imports into a single table", e);
+                        System.exit(-2);
+                    }
+                } else if ("-maxImportsPerTserver".equalsIgnoreCase(args[i])) {
+                    if (i + 2 > args.length) {
+                        log.error("-maxImportsPerTserver must be followed by the number of concurrent bulk imports allowed per tablet server");
+                        System.exit(-2);
+                    }
+                    try {
+                        MAX_IMPORTS_PER_TSERVER = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException e) {
+                        log.error("-maxImportsPerTserver must be followed by the number of concurrent bulk imports allowed per tablet server", e);
+                        System.exit(-2);
+                    }
+                } else if ("-pipelined".equalsIgnoreCase(args[i])) {
+                    PIPELINED = true;
+                    log.info("Pipelined bulk import enabled");
                 } else if ("-ingestMetricsDisabled".equalsIgnoreCase(args[i])) {
                     INGEST_METRICS = false;
                     log.info("Ingest metrics disabled");
@@ -327,6 +374,10 @@ public final class BulkIngestMapFileLoader implements Runnable {
         log.info("Using " + jobtracker + " as the jobtracker");
         log.info("Using " + SHUTDOWN_PORT + " as the shutdown port");
         log.info("Using " + (FIFO ? "FIFO" : "LIFO") + " processing order");
+        if (PIPELINED) {
+            log.info("Pipelining a max of " + MAX_JOBS_IN_FLIGHT + " job directories");
+            log.info("Allowing " + MAX_IMPORTS_PER_TABLE + " concurrent imports per table and " + MAX_IMPORTS_PER_TSERVER + " per tablet server");
+        }
         
         for (String[] s : properties) {
             conf.set(s[0], s[1]);
@@ -355,6 +406,9 @@ public final class BulkIngestMapFileLoader implements Runnable {
         
         BulkIngestMapFileLoader processor = new BulkIngestMapFileLoader(workDir, jobDirPattern, instanceName, zooKeepers, user, new PasswordToken(passwordStr),
                         seqFileHdfs, srcHdfs, destHdfs, jobtracker, tablePriorities, conf, SHUTDOWN_PORT, numHdfsThreads, jobObservers);
+        if (PIPELINED) {
+            processor.enablePipeline(MAX_JOBS_IN_FLIGHT, numHdfsThreads, numBulkThreads, MAX_IMPORTS_PER_TABLE, MAX_IMPORTS_PER_TSERVER);
+        }
         Thread t = new Thread(processor, "map-file-watcher");
         t.start();
     }
@@ -416,6 +470,30 @@ public final class BulkIngestMapFileLoader implements Runnable {
         }
     }
     
+    /**
+     * Switches this loader to pipelined mode, where the HDFS work, bulk imports and cleanup of different job directories overlap. The total number of
+     * concurrent imports is bounded by {@code maxImportsPerTserver} times the number of tablet servers.
+     */
+    public void enablePipeline(int maxJobsInFlight, int numHdfsThreads, int numImportThreads, int maxImportsPerTable, int maxImportsPerTserver) {
+        int numTservers = 1;
+        try {
+            numTservers = Math.max(1, accumuloClient.instanceOperations().getTabletServers().size());
+        } catch (Exception e) {
+            log.warn("Unable to determine the number of tablet servers, assuming 1", e);
+        }
+        int maxConcurrentImports = numTservers * Math.max(1, maxImportsPerTserver);
+        log.info("Limiting the bulk import pipeline to " + maxConcurrentImports + " concurrent imports across " + numTservers + " tablet servers");
+        this.pipeline = new BulkImportPipeline(new PipelineJobHandler(), tablePriorities, maxJobsInFlight, numHdfsThreads,
+                        Math.min(numImportThreads, maxConcurrentImports), maxImportsPerTable, maxConcurrentImports);
+    }
+    
+    /**
+     * @return a printable view of the bulk import pipeline stage latencies
+     */
+    public String getStatus() {
+        return (pipeline == null ? "Pipelined bulk import is not enabled\n" : pipeline.getStatus());
+    }
+    
     @Override
     public void run() {
         log.info("Starting process to monitor map files.");
@@ -451,6 +529,13 @@ public final class BulkIngestMapFileLoader implements Runnable {
                         }
                         continue;
                     }
+                    if (pipeline != null) {
+                        if (feedPipeline(logMessages)) {
+                            lastOnlineTime = System.currentTimeMillis();
+                            lastLoadMessageTime = 0;
+                        }
+                        continue;
+                    }
                     List<Path> processedDirectories = new ArrayList<>();
                     if (nextJobIndex >= jobDirectories.length) {
                         jobDirectories = getJobDirectories(srcHdfs, new Path(workDir, jobDirPattern + '/' + COMPLETE_FILE_MARKER));
@@ -528,6 +613,18 @@ public final class BulkIngestMapFileLoader implements Runnable {
             }
             
         } finally {
+            if (pipeline != null) {
+                log.info("Shutting down bulk import pipeline");
+                try {
+                    pipeline.shutdown();
+                    List<Path> completed = pipeline.drainCompleted();
+                    if (!completed.isEmpty()) {
+                        writeStats(completed.toArray(new Path[completed.size()]));
+                    }
+                } catch (InterruptedException | IOException e) {
+                    log.warn("Error shutting down bulk import pipeline", e);
+                }
+            }
             log.info("Shutting down executor service");
             accumuloClient.close();
             executor.shutdown();
@@ -535,6 +632,94 @@ public final class BulkIngestMapFileLoader implements Runnable {
         log.info("Bulk map file loader shutting down.");
     }
     
+    /**
+     * Takes ownership of as many completed job directories as the pipeline has capacity for and hands them to the pipeline, then writes the stats for any
+     * directories the pipeline has finished with.
+     *
+     * @return true if any job directories were submitted to the pipeline
+     */
+    private boolean feedPipeline(boolean logMessages) throws IOException {
+        boolean submitted = false;
+        
+        // back off after a failed job, as the sequential loader does, rather than continuously taking and failing directories
+        long jobFailures = pipeline.getStats().getFailures(BulkImportStageStats.Stage.TOTAL);
+        if (jobFailures > pipelineJobFailures) {
+            pipelineJobFailures = jobFailures;
+            pipelinePausedUntil = System.currentTimeMillis() + FAILURE_SLEEP_TIME;
+            log.warn("A bulk import job failed. Pausing the bulk import pipeline for " + (FAILURE_SLEEP_TIME / 1000) + " seconds.");
+        }
+        
+        if (pipeline.hasCapacity() && System.currentTimeMillis() >= pipelinePausedUntil) {
+            // fetch enough directories to fill the pipeline
+            int maxDirectories = Math.max(MAX_DIRECTORIES, pipeline.getRemainingCapacity());
+            Path[] jobDirectories = getJobDirectories(srcHdfs, new Path(workDir, jobDirPattern + '/' + COMPLETE_FILE_MARKER), maxDirectories);
+            for (Path srcJobDirectory : jobDirectories) {
+                if (!running || !pipeline.hasCapacity())
+                    break;
+                if (takeOwnershipJobDirectory(srcJobDirectory)) {
+                    reporter.getCounter("MapFileLoader.StartTimes", srcJobDirectory.getName()).increment(System.currentTimeMillis());
+                    pipeline.submit(srcJobDirectory);
+                    submitted = true;
+                }
+            }
+        }
+        
+        List<Path> completed = pipeline.drainCompleted();
+        if (!completed.isEmpty()) {
+            writeStats(completed.toArray(new Path[completed.size()]));
+        }
+        
+        if (pipeline.getMarkFailures() >= 3) {
+            log.error("Too many failures updating marker files.  Exiting...");
+            shutdown();
+        }
+        
+        if (logMessages) {
+            log.info("Bulk import pipeline status:\n" + pipeline.getStatus());
+        }
+        return submitted;
+    }
+    
+    /**
+     * Runs the stages of the bulk import pipeline using this loader's existing processing steps
+     */
+    private class PipelineJobHandler implements BulkImportPipeline.JobHandler {
+        @Override
+        public Path prepare(Path srcJobDirectory) throws Exception {
+            log.info("Started processing " + srcJobDirectory);
+            return new Path(distCpDirectory(srcJobDirectory), "mapFiles");
+        }
+        
+        @Override
+        public Map<String,Path> getTableDirectories(Path mapFilesDir) throws IOException {
+            log.info("Bringing all mapFiles under " + mapFilesDir + " online.");
+            return BulkIngestMapFileLoader.this.getTableDirectories(mapFilesDir);
+        }
+        
+        @Override
+        public void importTable(Path mapFilesDir, String tableName, Path tableDir) throws Exception {
+            ImportRunnable importTask = new ImportRunnable(mapFilesDir, tableName, tableDir, accumuloClient);
+            importTask.run();
+            if (importTask.getException() != null) {
+                throw importTask.getException();
+            }
+        }
+        
+        @Override
+        public void cleanup(Path mapFilesDir) throws IOException {
+            verifyNothingLeftBehind(mapFilesDir);
+            cleanUpJobDirectory(mapFilesDir);
+        }
+        
+        @Override
+        public boolean failed(Path srcJobDirectory, Path mapFilesDir) {
+            if (mapFilesDir == null) {
+                return markJobDirectoryFailed(srcHdfs, srcJobDirectory);
+            }
+            return markJobDirectoryFailed(destHdfs, mapFilesDir.getParent());
+        }
+    }
+    
     protected void cleanJobDirectoriesOnStartup() throws IOException {
         Path[] cleanupDirectories = getJobDirectories(destHdfs, new Path(workDir, jobDirPattern + '/' + CLEANUP_FILE_MARKER));
         for (int i = 0; i < cleanupDirectories.length; i++) {
@@ -556,7 +741,7 @@ public final class BulkIngestMapFileLoader implements Runnable {
     
     /**
      * Listens for connections on {@code serverSocket}. Upon receipt of a connection, listens for a shutdown command which must be sent within 30 seconds. If
-     * the shutdown command is received, then the map file loader will shut down.
+     * the shutdown command is received, then the map file loader will shut down. A status command is answered with the current bulk import pipeline stats.
      */
     protected void listenForShutdownCommand(ServerSocket serverSocket) {
         log.info("Listening for shutdown commands on port " + serverSocket.getLocalPort());
@@ -570,9 +755,16 @@ public final class BulkIngestMapFileLoader implements Runnable {
                     InputStream is = s.getInputStream();
                     BufferedReader rdr = new BufferedReader(new InputStreamReader(is));
                     String line = rdr.readLine();
+                    if ("status".equalsIgnoreCase(line)) {
+                        OutputStream os = s.getOutputStream();
+                        os.write(getStatus().getBytes(StandardCharsets.UTF_8));
+                        os.flush();
+                    }
                     is.close();
                     s.close();
-                    if ("quit".equalsIgnoreCase(line) || "exit".equalsIgnoreCase(line) || "shutdown".equalsIgnoreCase(line)) {
+                    if ("status".equalsIgnoreCase(line)) {
+                        log.info("Sent status to " + remoteAddress);
+                    } else if ("quit".equalsIgnoreCase(line) || "exit".equalsIgnoreCase(line) || "shutdown".equalsIgnoreCase(line)) {
                         log.info("Shutdown command received.");
                         shutdown();
                         serverSocket.close();
@@ -593,7 +785,7 @@ public final class BulkIngestMapFileLoader implements Runnable {
         return (uri == null ? FileSystem.get(conf) : FileSystem.get(uri, conf));
     }
     
-    private Path distCpDirectory(Path jobDirectory) throws Exception {
+    Path distCpDirectory(Path jobDirectory) throws Exception {
         // if the src filesystem is not the same as our local file system, then move the files using distcp
         FileSystem src = getFileSystem(srcHdfs);
         FileSystem dest = getFileSystem(destHdfs);
@@ -700,6 +892,16 @@ public final class BulkIngestMapFileLoader implements Runnable {
      * @param pathPattern
      */
     private Path[] getJobDirectories(URI hdfs, Path pathPattern) throws IOException {
+        return getJobDirectories(hdfs, pathPattern, MAX_DIRECTORIES);
+    }
+    
+    /**
+     * Gets a list of at most {@code maxDirectories} job directories that are marked with pathPattern.
+     * 
+     * @param pathPattern
+     * @param maxDirectories
+     */
+    private Path[] getJobDirectories(URI hdfs, Path pathPattern, int maxDirectories) throws IOException {
         log.debug("Checking for completed job directories.");
         FileSystem fs = getFileSystem(hdfs);
         FileStatus[] files = fs.globStatus(pathPattern);
@@ -711,7 +913,7 @@ public final class BulkIngestMapFileLoader implements Runnable {
                 long m2 = o2.getModificationTime();
                 return order * ((m1 < m2) ? -1 : ((m1 > m2) ? 1 : 0));
             });
-            jobDirectories = new Path[Math.min(MAX_DIRECTORIES, files.length)];
+            jobDirectories = new Path[Math.min(maxDirectories, files.length)];
             for (int i = 0; i < jobDirectories.length; i++) {
                 jobDirectories[i] = files[i].getPath().getParent();
             }
@@ -729,6 +931,60 @@ public final class BulkIngestMapFileLoader implements Runnable {
     public void bringMapFilesOnline(Path mapFilesDir) throws IOException, AccumuloException, AccumuloSecurityException, TableNotFoundException {
         log.info("Bringing all mapFiles under " + mapFilesDir + " online.");
         
+        // now load the tables in the prioritized order, concurrently loading those with the same priority
+        Integer priority = null;
+        Stack<ImportRunnable> imports = new Stack<>();
+        for (Map.Entry<String,Path> entry : getTableDirectories(mapFilesDir).entrySet()) {
+            String tableName = entry.getKey();
+            Path tableDir = entry.getValue();
+            
+            Integer newPriority = tablePriorities.get(tableName);
+            if (!Objects.equal(priority, newPriority)) {
+                Exception e = null;
+                while (!imports.isEmpty()) {
+                    ImportRunnable importTask = imports.pop();
+                    try {
+                        importTask.waitForCompletion();
+                        if (e == null)
+                            e = importTask.getException();
+                    } catch (InterruptedException interrupted) {
+                        // this task was interrupted, wait for the others and then terminate
+                        if (e == null)
+                            e = interrupted;
+                    }
+                }
+                // if an exception occurred during processing, terminate
+                if (e != null)
+                    throw new IOException(e);
+                
+                priority = newPriority;
+            }
+            imports.push(startImport(mapFilesDir, tableName, tableDir, accumuloClient));
+        }
+        
+        Exception e = null;
+        while (!imports.isEmpty()) {
+            ImportRunnable importTask = imports.pop();
+            try {
+                importTask.waitForCompletion();
+                if (e == null)
+                    e = importTask.getException();
+            } catch (InterruptedException interrupted) {
+                // this task was interrupted, wait for the others and then terminate
+                if (e == null)
+                    e = interrupted;
+            }
+        }
+        // if an exception occurred during processing, terminate
+        if (e != null)
+            throw new IOException(e);
+    }
+    
+    /**
+     * Gets the table directories under {@code mapFilesDir} that correspond to accumulo tables, keyed by table name and sorted in priority order based on the
+     * configuration.
+     */
+    Map<String,Path> getTableDirectories(Path mapFilesDir) throws IOException {
         // By now the map files should be on the local filesystem
         FileSystem fs = getFileSystem(destHdfs);
         
@@ -754,10 +1010,7 @@ public final class BulkIngestMapFileLoader implements Runnable {
             }
         });
         
-        // now load the tables in the prioritized order, concurrently loading those with the same priority
-        Integer priority = null;
-        Stack<ImportRunnable> imports = new Stack<>();
-        Map<String,Path> tableNames = new HashMap<>();
+        Map<String,Path> tableNames = new LinkedHashMap<>();
         for (FileStatus stat : tableDirs) {
             Path tableDir = stat.getPath();
             String tableName = tableDir.getName();
@@ -777,47 +1030,8 @@ public final class BulkIngestMapFileLoader implements Runnable {
                 }
             }
             tableNames.put(tableName, tableDir);
-            
-            Integer newPriority = tablePriorities.get(stat.getPath().getName());
-            if (!Objects.equal(priority, newPriority)) {
-                Exception e = null;
-                while (!imports.isEmpty()) {
-                    ImportRunnable importTask = imports.pop();
-                    try {
-                        importTask.waitForCompletion();
-                        if (e == null)
-                            e = importTask.getException();
-                    } catch (InterruptedException interrupted) {
-                        // this task was interrupted, wait for the others and then terminate
-                        if (e == null)
-                            e = interrupted;
-                    }
-                }
-                // if an exception occurred during processing, terminate
-                if (e != null)
-                    throw new IOException(e);
-                
-                priority = tablePriorities.get(stat.getPath().getName());
-            }
-            imports.push(startImport(mapFilesDir, tableName, tableDir, accumuloClient));
-        }
-        
-        Exception e = null;
-        while (!imports.isEmpty()) {
-            ImportRunnable importTask = imports.pop();
-            try {
-                importTask.waitForCompletion();
-                if (e == null)
-                    e = importTask.getException();
-            } catch (InterruptedException interrupted) {
-                // this task was interrupted, wait for the others and then terminate
-                if (e == null)
-                    e = interrupted;
-            }
         }
-        // if an exception occurred during processing, terminate
-        if (e != null)
-            throw new IOException(e);
+        return tableNames;
     }
     
     public ImportRunnable startImport(Path mapFilesDir, String tableName, Path tableDir, AccumuloClient accumuloClient) {
@@ -0,0 +1,230 @@
+package datawave.ingest.mapreduce.job.statsd;
+
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A registry of counters which are updated at a high rate, e.g. once or more per event. Each counter is looked up by name once and then updated through a
+ * {@link BufferedCounter}, which accumulates the updates in a primitive field. The accumulated values are written to the task's counters by
+ * {@link #flush(TaskAttemptContext)}, which is called periodically via {@link #flushIfDue(TaskAttemptContext)} and at cleanup. As the counters are resolved
+ * through the {@link StatsDHelper}, StatsD receives one batched value per counter per flush rather than one value per update.
+ * <p>
+ * This class is not thread safe.
+ */
+public class CounterRegistry {
+    
+    public static final String FLUSH_INTERVAL_MSEC = "counter.registry.flush.interval.msec";
+    public static final long DEFAULT_FLUSH_INTERVAL_MSEC = 5000;
+    
+    /**
+     * How the updates of a counter are combined
+     */
+    public enum Aggregation {
+        /** the counter is incremented by the sum of the updates */
+        SUM,
+        /** the counter is set to the smallest update, if it is smaller than the counter's value */
+        MIN,
+        /** the counter is set to the largest update, if it is larger than the counter's value */
+        MAX
+    }
+    
+    /**
+     * A counter whose updates are accumulated locally until the registry is flushed
+     */
+    public static class BufferedCounter {
+        private final String group;
+        private final String name;
+        private final Enum<?> key;
+        private final Aggregation aggregation;
+        
+        private long value;
+        private boolean dirty = false;
+        private Counter counter = null;
+        
+        private BufferedCounter(String group, String name, Enum<?> key, Aggregation aggregation) {
+            this.group = group;
+            this.name = name;
+            this.key = key;
+            this.aggregation = aggregation;
+            reset();
+        }
+        
+        /**
+         * Increments a {@link Aggregation#SUM} counter
+         */
+        public void increment(long incr) {
+            value += incr;
+            dirty = true;
+        }
+        
+        /**
+         * Updates a {@link Aggregation#MIN} or {@link Aggregation#MAX} counter, or increments a {@link Aggregation#SUM} counter
+         */
+        public void update(long update) {
+            switch (aggregation) {
+                case MIN:
+                    if (update < value) {
+                        value = update;
+                        dirty = true;
+                    }
+                    break;
+                case MAX:
+                    if (update > value) {
+                        value = update;
+                        dirty = true;
+                    }
+                    break;
+                default:
+                    increment(update);
+            }
+        }
+        
+        /**
+         * @return the value accumulated since the last flush
+         */
+        public long getPendingValue() {
+            return value;
+        }
+        
+        public String getGroup() {
+            return group;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        private void reset() {
+            switch (aggregation) {
+                case MIN:
+                    value = Long.MAX_VALUE;
+                    break;
+                case MAX:
+                    value = Long.MIN_VALUE;
+                    break;
+                default:
+                    value = 0;
+            }
+            dirty = false;
+        }
+        
+        private void flush(StatsDHelper helper, TaskAttemptContext context) {
+            if (!dirty) {
+                return;
+            }
+            if (counter == null) {
+                counter = (key != null ? helper.getCounter(context, key) : helper.getCounter(context, group, name));
+            }
+            switch (aggregation) {
+                case MIN:
+                    if (value < counter.getValue()) {
+                        counter.setValue(value);
+                    }
+                    break;
+                case MAX:
+                    if (value > counter.getValue()) {
+                        counter.setValue(value);
+                    }
+                    break;
+                default:
+                    counter.increment(value);
+            }
+            reset();
+        }
+    }
+    
+    private final StatsDHelper helper;
+    private final long flushIntervalNanos;
+    
+    private final Map<String,Map<String,BufferedCounter>> namedCounters = new HashMap<>();
+    private final Map<Enum<?>,BufferedCounter> enumCounters = new HashMap<>();
+    private final List<BufferedCounter> counters = new ArrayList<>();
+    
+    // the context the buffered counters were resolved against
+    private TaskAttemptContext resolvedContext = null;
+    private long lastFlush = System.nanoTime();
+    
+    public CounterRegistry(StatsDHelper helper, long flushIntervalMsec) {
+        this.helper = helper;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMsec);
+    }
+    
+    /**
+     * @return the {@link Aggregation#SUM} counter for the group and name
+     */
+    public BufferedCounter getCounter(String group, String name) {
+        return getCounter(group, name, Aggregation.SUM);
+    }
+    
+    /**
+     * @return the counter for the group and name, created with the given aggregation if it has not yet been registered
+     */
+    public BufferedCounter getCounter(String group, String name, Aggregation aggregation) {
+        Map<String,BufferedCounter> groupCounters = namedCounters.get(group);
+        if (groupCounters == null) {
+            groupCounters = new HashMap<>();
+            namedCounters.put(group, groupCounters);
+        }
+        BufferedCounter counter = groupCounters.get(name);
+        if (counter == null) {
+            counter = new BufferedCounter(group, name, null, aggregation);
+            groupCounters.put(name, counter);
+            counters.add(counter);
+        }
+        return counter;
+    }
+    
+    /**
+     * @return the {@link Aggregation#SUM} counter for the enum
+     */
+    public BufferedCounter getCounter(Enum<?> counterName) {
+        BufferedCounter counter = enumCounters.get(counterName);
+        if (counter == null) {
+            counter = new BufferedCounter(counterName.getDeclaringClass().getName(), counterName.name(), counterName, Aggregation.SUM);
+            enumCounters.put(counterName, counter);
+            counters.add(counter);
+        }
+        return counter;
+    }
+    
+    /**
+     * Flushes the counters if the flush interval has elapsed since the last flush
+     * 
+     * @param context
+     *            the task context
+     * @return true if the counters were flushed
+     */
+    public boolean flushIfDue(TaskAttemptContext context) {
+        if (System.nanoTime() - lastFlush >= flushIntervalNanos) {
+            flush(context);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Writes the values accumulated by each counter to the task's counters
+     * 
+     * @param context
+     *            the task context
+     */
+    public void flush(TaskAttemptContext context) {
+        if (context != resolvedContext) {
+            // resolve the counters against the new context
+            for (BufferedCounter counter : counters) {
+                counter.counter = null;
+            }
+            resolvedContext = context;
+        }
+        for (BufferedCounter counter : counters) {
+            counter.flush(helper, context);
+        }
+        lastFlush = System.nanoTime();
+    }
+}
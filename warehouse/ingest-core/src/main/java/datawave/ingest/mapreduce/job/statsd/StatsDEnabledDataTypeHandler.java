@@ -15,6 +15,7 @@ public abstract class StatsDEnabledDataTypeHandler<KEYIN> extends StatsDHelper i
     
     @Override
     public void close(TaskAttemptContext context) {
+        flushCounters(context);
         super.close();
     }
 }
@@ -46,8 +46,17 @@ public class StatsDEnabledMapper<KEYIN,VALUEIN,KEYOUT,VALUEOUT> extends Mapper<K
         return helper.getCounter(context, counterName);
     }
     
+    /**
+     * Get the registry of buffered counters for counters updated per record. These are flushed periodically via {@link CounterRegistry#flushIfDue} and at
+     * cleanup.
+     */
+    public CounterRegistry getCounterRegistry() {
+        return helper.getCounterRegistry();
+    }
+    
     @Override
     protected void cleanup(Context context) throws IOException, InterruptedException {
+        helper.flushCounters(context);
         helper.close();
         super.cleanup(context);
     }
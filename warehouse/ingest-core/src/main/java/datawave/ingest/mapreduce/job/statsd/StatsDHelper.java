@@ -9,6 +9,8 @@ import org.apache.hadoop.mapreduce.TaskAttemptContext;
  */
 public class StatsDHelper {
     protected CounterStatsDClient statsd = null;
+    protected CounterRegistry counterRegistry = null;
+    protected long counterFlushInterval = CounterRegistry.DEFAULT_FLUSH_INTERVAL_MSEC;
     
     public void setup(TaskAttemptContext context) {
         setup(context.getConfiguration());
@@ -16,6 +18,7 @@ public class StatsDHelper {
     
     public void setup(Configuration conf) {
         statsd = new CounterToStatsDConfiguration(conf).getClient();
+        counterFlushInterval = conf.getLong(CounterRegistry.FLUSH_INTERVAL_MSEC, CounterRegistry.DEFAULT_FLUSH_INTERVAL_MSEC);
     }
     
     public CounterStatsDClient getClient() {
@@ -44,6 +47,25 @@ public class StatsDHelper {
         return getContext(context).getCounter(counterName);
     }
     
+    /**
+     * Get the registry of buffered counters, which are written through this helper when flushed
+     */
+    public CounterRegistry getCounterRegistry() {
+        if (counterRegistry == null) {
+            counterRegistry = new CounterRegistry(this, counterFlushInterval);
+        }
+        return counterRegistry;
+    }
+    
+    /**
+     * Write any values accumulated by the buffered counters. This must be called before {@link #close()} so that the values reach the statsd client.
+     */
+    public void flushCounters(TaskAttemptContext context) {
+        if (counterRegistry != null) {
+            counterRegistry.flush(context);
+        }
+    }
+    
     protected void close() {
         if (statsd != null) {
             statsd.close();
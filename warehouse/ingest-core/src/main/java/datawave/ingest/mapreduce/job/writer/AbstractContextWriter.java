@@ -122,6 +122,9 @@ public abstract class AbstractContextWriter<OK,OV> extends StatsDHelper implemen
         flush(cache, context);
         // cache.clear() can be fairly expensive, so let's let garbage collection do that
         cache = ArrayListMultimap.create();
+        if (counterRegistry != null) {
+            counterRegistry.flushIfDue(context);
+        }
     }
     
     /**
@@ -161,12 +164,13 @@ public abstract class AbstractContextWriter<OK,OV> extends StatsDHelper implemen
         commit(context);
         // also flush the counters at this point
         if (simpleClassName != null) {
-            getCounter(context, "ContextWriter", simpleClassName).increment(this.count);
+            getCounterRegistry().getCounter("ContextWriter", simpleClassName).increment(this.count);
             this.count = 0;
         }
         if (counters != null) {
             counters.flush(getContext(context));
         }
+        flushCounters(context);
         super.close();
     }
 }
@@ -164,8 +164,9 @@ public class TableCachingContextWriter extends AbstractContextWriter<BulkIngestK
         // now flush this tables cache if needed
         if (entries.size() >= tableCacheConf.get(key.getTableName())) {
             // register that we overran the cache for this table
-            getCounter(context, FLUSHED_BUFFER_TOTAL, key.getTableName().toString()).increment(entries.size());
-            getCounter(context, FLUSHED_BUFFER_COUNTER, key.getTableName().toString()).increment(1);
+            String tableName = key.getTableName().toString();
+            getCounterRegistry().getCounter(FLUSHED_BUFFER_TOTAL, tableName).increment(entries.size());
+            getCounterRegistry().getCounter(FLUSHED_BUFFER_COUNTER, tableName).increment(1);
             contextWriter.write(entries, context);
             aggregatedCache.remove(key.getTableName());
         }
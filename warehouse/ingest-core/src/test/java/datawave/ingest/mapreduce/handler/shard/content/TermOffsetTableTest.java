@@ -0,0 +1,111 @@
+package datawave.ingest.mapreduce.handler.shard.content;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import datawave.ingest.protobuf.TermWeight;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TermOffsetTableTest {
+    
+    @Test
+    public void testAddOffset() {
+        TermOffsetTable uut = new TermOffsetTable(20);
+        
+        for (int offset = 0; offset < uut.getCapacity(); offset++) {
+            TermAndZone taz = new TermAndZone(String.format("term-%d:zone-%d", offset, offset));
+            Assert.assertNull("AddOffset unexpectedly returned an offset list", uut.addOffset(taz, offset));
+        }
+        
+        TermAndZone taz = new TermAndZone(String.format("term-%d:zone-%d", 0, 0));
+        int count = uut.getCapacity() - 1;
+        for (int offset = 0; offset < count; offset++) {
+            BoundedOffsetQueue.OffsetList<Integer> ol = uut.addOffset(taz, (offset + uut.getCapacity()));
+            Assert.assertNotNull("AddOffset failed to return an offset list", ol);
+            Assert.assertEquals(1, ol.size());
+        }
+        
+        BoundedOffsetQueue.OffsetList<Integer> ol = uut.addOffset(taz, (2 * uut.getCapacity()));
+        Assert.assertNotNull("AddOffset failed to return an offset list", ol);
+        Assert.assertEquals("AddOffset returned a OffsetList with an unexpected number of offsets.", 21, ol.offsets.size());
+        Assert.assertEquals(taz, ol.termAndZone);
+        Assert.assertEquals("AddOffset failed to correctly update the number of elements in the Queue", 0, uut.size());
+        Assert.assertEquals(0, uut.getNumTerms());
+    }
+    
+    @Test
+    public void testEvictsSmallestTerm() {
+        Random random = new Random(42);
+        TermOffsetTable table = new TermOffsetTable(500);
+        
+        for (int document = 0; document < 3; document++) {
+            table.clear();
+            Map<TermAndZone,List<Integer>> expected = new HashMap<>();
+            // a skewed distribution of terms which overflows the capacity several times
+            for (int offset = 0; offset < 2000; offset++) {
+                int term = (int) Math.abs(random.nextGaussian() * 40);
+                TermAndZone taz = new TermAndZone("term" + term, "ZONE" + (term % 3));
+                expected.computeIfAbsent(taz, k -> new ArrayList<>()).add(offset);
+                
+                BoundedOffsetQueue.OffsetList<Integer> evicted = table.addOffset(taz, offset);
+                if (evicted != null) {
+                    Assert.assertEquals(expected.remove(evicted.termAndZone), evicted.offsets);
+                    for (List<Integer> remaining : expected.values()) {
+                        Assert.assertTrue("AddOffset did not evict the smallest term", evicted.size() <= remaining.size());
+                    }
+                }
+                Assert.assertTrue(table.size() <= table.getCapacity());
+            }
+            
+            Map<TermAndZone,List<Integer>> actual = new HashMap<>();
+            for (BoundedOffsetQueue.OffsetList<Integer> list : table.offsets()) {
+                actual.put(list.termAndZone, list.offsets);
+                Assert.assertEquals(list.offsets, table.getOffsets(list.termAndZone));
+                Assert.assertTrue(table.containsKey(list.termAndZone));
+            }
+            Assert.assertEquals(expected, actual);
+            Assert.assertEquals(expected.size(), table.getNumTerms());
+        }
+    }
+    
+    @Test
+    public void testClearReusesTable() throws Exception {
+        TermOffsetTable table = new TermOffsetTable(1000);
+        for (int i = 0; i < 100; i++) {
+            table.addOffset("term" + (i % 10), "ZONE", i);
+        }
+        Assert.assertEquals(10, table.getNumTerms());
+        table.clear();
+        Assert.assertEquals(0, table.size());
+        Assert.assertFalse(table.containsKey(new TermAndZone("term0", "ZONE")));
+        
+        table.addOffset("term0", "ZONE", 7);
+        table.addOffset("term0", "OTHER", 8);
+        Assert.assertEquals(Arrays.asList(7), table.getOffsets(new TermAndZone("term0", "ZONE")));
+        Assert.assertEquals(Arrays.asList(8), table.getOffsets(new TermAndZone("term0", "OTHER")));
+        
+        List<String> visited = new ArrayList<>();
+        table.forEach((term, zone, offsets, count) -> visited.add(term + ':' + zone + '=' + offsets[count - 1]));
+        visited.sort(null);
+        Assert.assertEquals(Arrays.asList("term0:OTHER=8", "term0:ZONE=7"), visited);
+    }
+    
+    @Test
+    public void testToTermWeight() throws Exception {
+        int[] offsets = {0, 1, 127, 128, 16384, Integer.MAX_VALUE, 5};
+        for (int count = 0; count <= offsets.length; count++) {
+            TermWeight.Info.Builder builder = TermWeight.Info.newBuilder();
+            for (int i = 0; i < count; i++) {
+                builder.addTermOffset(offsets[i]);
+            }
+            Assert.assertArrayEquals(builder.build().toByteArray(), TermOffsetTable.toTermWeight(offsets, count));
+            Assert.assertEquals(count, TermWeight.Info.parseFrom(TermOffsetTable.toTermWeight(offsets, count)).getTermOffsetCount());
+        }
+    }
+}
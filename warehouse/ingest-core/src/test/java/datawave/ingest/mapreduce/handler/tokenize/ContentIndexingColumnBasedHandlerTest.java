@@ -1,6 +1,7 @@
 package datawave.ingest.mapreduce.handler.tokenize;
 
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import datawave.data.hash.UID;
@@ -13,8 +14,11 @@ import datawave.ingest.data.config.NormalizedContentInterface;
 import datawave.ingest.data.config.NormalizedFieldAndValue;
 import datawave.ingest.data.config.ingest.BaseIngestHelper;
 import datawave.ingest.data.config.ingest.ContentBaseIngestHelper;
+import datawave.ingest.data.tokenize.TokenizationHelper;
 import datawave.ingest.input.reader.EventRecordReader;
+import datawave.ingest.mapreduce.handler.shard.content.ContentIndexCounters;
 import datawave.ingest.mapreduce.job.BulkIngestKey;
+import datawave.ingest.test.StandaloneStatusReporter;
 import datawave.policy.IngestPolicyEnforcer;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.PartialKey;
@@ -24,6 +28,9 @@ import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.CounterGroup;
+import org.apache.hadoop.mapreduce.StatusReporter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapred.TaskAttemptID;
 import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
@@ -38,6 +45,7 @@ import java.io.DataInput;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 
 public class ContentIndexingColumnBasedHandlerTest {
@@ -325,6 +333,78 @@ public class ContentIndexingColumnBasedHandlerTest {
                         listExpectedAlphanumTfValues, false);
     }
     
+    @Test
+    public void testParallelTokenizationMatchesSequentialTokenization() throws Exception {
+        
+        ctx.getConfiguration().set("test" + ContentBaseIngestHelper.TOKEN_INDEX_WHITELIST, "BODY,TITLE");
+        ctx.getConfiguration().set("test" + ContentBaseIngestHelper.TOKEN_REV_INDEX_WHITELIST, "BODY");
+        ctx.getConfiguration().setInt("test" + TokenizationHelper.TOKENIZER_PARALLEL_MIN_LENGTH, 40);
+        
+        TypeRegistry.reset();
+        TypeRegistry.getInstance(ctx.getConfiguration());
+        
+        setupMocks();
+        
+        // a mix of fields long enough to be tokenized in the background and short fields tokenized on the handler thread
+        Multimap<String,NormalizedContentInterface> eventFields = LinkedListMultimap.create();
+        eventFields.put("BODY", new NormalizedFieldAndValue("BODY", "the quick brown fox jumps over the lazy dog while the dog sleeps"));
+        eventFields.put("BODY", new NormalizedFieldAndValue("BODY", "a short body"));
+        eventFields.put("BODY", new NormalizedFieldAndValue("BODY", "the lazy dog wakes and the quick brown fox runs over the hill and away"));
+        eventFields.put("TITLE", new NormalizedFieldAndValue("TITLE", "fox and dog"));
+        eventFields.put("TITLE", new NormalizedFieldAndValue("TITLE", "the quick brown fox and the lazy dog, a story of the fox and the dog"));
+        
+        StandaloneStatusReporter sequentialReporter = new StandaloneStatusReporter();
+        Multimap<BulkIngestKey,Value> sequentialValues = HashMultimap.create();
+        TestContentIndexingColumnBasedHandler sequential = tokenizeEvent(eventFields, 0, sequentialValues, sequentialReporter);
+        
+        StandaloneStatusReporter parallelReporter = new StandaloneStatusReporter();
+        Multimap<BulkIngestKey,Value> parallelValues = HashMultimap.create();
+        TestContentIndexingColumnBasedHandler parallel = tokenizeEvent(eventFields, 2, parallelValues, parallelReporter);
+        
+        Assert.assertFalse(sequentialValues.isEmpty());
+        Assert.assertEquals(sequential.getFields(), parallel.getFields());
+        Assert.assertEquals(sequential.getIndex(), parallel.getIndex());
+        Assert.assertEquals(sequential.getReverse(), parallel.getReverse());
+        Assert.assertEquals(sequentialValues, parallelValues);
+        Assert.assertEquals(getCounts(sequentialReporter), getCounts(parallelReporter));
+    }
+    
+    private TestContentIndexingColumnBasedHandler tokenizeEvent(Multimap<String,NormalizedContentInterface> eventFields, int threads,
+                    Multimap<BulkIngestKey,Value> values, StatusReporter reporter) {
+        ctx.getConfiguration().setInt("test" + TokenizationHelper.TOKENIZER_PARALLEL_THREADS, threads);
+        
+        TestContentIndexingColumnBasedHandler handler = new TestContentIndexingColumnBasedHandler();
+        handler.setup(ctx);
+        try {
+            handler.getShardNamesAndValues(event, eventFields, true, true, reporter);
+            
+            handler.shardId = SHARD_ID.getBytes();
+            handler.eventDataTypeName = TEST_TYPE;
+            handler.eventUid = TEST_UUID;
+            handler.flushTokenOffsetCache(event, values);
+            handler.counters.flush(reporter);
+        } finally {
+            handler.close(ctx);
+        }
+        return handler;
+    }
+    
+    /**
+     * Get the counter values, except for the tokenizer times which depend on how long each run took
+     */
+    private Map<String,Long> getCounts(StandaloneStatusReporter reporter) {
+        Map<String,Long> counts = new HashMap<>();
+        for (CounterGroup group : reporter.getCounters()) {
+            if (group.getName().equals(ContentIndexCounters.TOKENIZER_TIME_GROUP_NAME)) {
+                continue;
+            }
+            for (Counter counter : group) {
+                counts.put(group.getName() + '/' + counter.getName(), counter.getValue());
+            }
+        }
+        return counts;
+    }
+    
     private boolean equalNciMaps(Multimap<String,NormalizedContentInterface> first, Multimap<String,NormalizedContentInterface> second) {
         Multimap<String,NormalizedContentInterface> firstToSecondDiff = Multimaps.filterEntries(first, e -> !second.containsEntry(e.getKey(), e.getValue()));
         Multimap<String,NormalizedContentInterface> secondToFirstDiff = Multimaps.filterEntries(first, e -> !second.containsEntry(e.getKey(), e.getValue()));
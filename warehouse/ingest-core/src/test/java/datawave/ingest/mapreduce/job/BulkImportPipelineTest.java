@@ -0,0 +1,201 @@
+package datawave.ingest.mapreduce.job;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import datawave.ingest.mapreduce.job.BulkImportStageStats.Stage;
+
+import org.apache.hadoop.fs.Path;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BulkImportPipelineTest {
+    
+    private Map<String,Integer> tablePriorities;
+    private BulkImportPipeline pipeline;
+    
+    @Before
+    public void setup() {
+        tablePriorities = new HashMap<>();
+        tablePriorities.put("shard", 10);
+        tablePriorities.put("shardIndex", 20);
+        tablePriorities.put("shardReverseIndex", 20);
+        tablePriorities.put("metadata", 30);
+    }
+    
+    @After
+    public void teardown() throws InterruptedException {
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+    
+    @Test
+    public void testGroupByPriority() {
+        pipeline = new BulkImportPipeline(new TestHandler(), tablePriorities, 1, 1, 1, 1, 1);
+        List<List<Map.Entry<String,Path>>> groups = pipeline.groupByPriority(tableDirs("shard", "shardIndex", "shardReverseIndex", "metadata", "other"));
+        Assert.assertEquals(4, groups.size());
+        Assert.assertEquals(1, groups.get(0).size());
+        Assert.assertEquals("shard", groups.get(0).get(0).getKey());
+        Assert.assertEquals(2, groups.get(1).size());
+        Assert.assertEquals("metadata", groups.get(2).get(0).getKey());
+        Assert.assertEquals("other", groups.get(3).get(0).getKey());
+    }
+    
+    @Test
+    public void testPriorityOrderWithinJob() throws Exception {
+        TestHandler handler = new TestHandler();
+        pipeline = new BulkImportPipeline(handler, tablePriorities, 1, 1, 4, 1, 4);
+        pipeline.submit(new Path("/job1")).get(30, TimeUnit.SECONDS);
+        
+        // all tables of a lower priority group must be imported before any table in a later group
+        Assert.assertEquals("shard", handler.imported.get(0));
+        Assert.assertTrue(handler.imported.subList(1, 3).containsAll(Arrays.asList("shardIndex", "shardReverseIndex")));
+        Assert.assertEquals("metadata", handler.imported.get(3));
+        Assert.assertEquals(Collections.singletonList(new Path("/job1/mapFiles")), handler.cleaned);
+        Assert.assertEquals(Collections.singletonList(new Path("/job1")), pipeline.drainCompleted());
+        Assert.assertEquals(4, pipeline.getStats().getCount(Stage.IMPORT));
+        Assert.assertEquals(1, pipeline.getStats().getCount(Stage.TOTAL));
+        Assert.assertEquals(0, pipeline.getStats().getFailures(Stage.TOTAL));
+    }
+    
+    @Test
+    public void testPerTableLimit() throws Exception {
+        TestHandler handler = new TestHandler();
+        handler.importDelayMs = 50;
+        pipeline = new BulkImportPipeline(handler, tablePriorities, 4, 4, 8, 1, 8);
+        List<CompletableFuture<Void>> jobs = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            jobs.add(pipeline.submit(new Path("/job" + i)));
+        }
+        for (CompletableFuture<Void> job : jobs) {
+            job.get(30, TimeUnit.SECONDS);
+        }
+        Assert.assertEquals(16, handler.imported.size());
+        Assert.assertEquals(1, handler.maxConcurrentPerTable);
+        Assert.assertEquals(4, pipeline.drainCompleted().size());
+    }
+    
+    @Test
+    public void testBusyTableDoesNotHoldImportThreads() throws Exception {
+        TestHandler handler = new TestHandler();
+        handler.blockingTable = "shard";
+        pipeline = new BulkImportPipeline(handler, tablePriorities, 4, 4, 2, 1, 2);
+        CompletableFuture<Void> job0 = pipeline.submit(new Path("/job0"));
+        handler.blocked.await(30, TimeUnit.SECONDS);
+        CompletableFuture<Void> job1 = pipeline.submit(new Path("/job1"));
+        long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (!pipeline.getStatus().contains("queuedImports=1") && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(pipeline.getStatus().contains("queuedImports=1"));
+        
+        // the second shard import waits for its table permit without an import thread, so another table can still be imported
+        pipeline.submit(new Path("/metadataOnly")).get(30, TimeUnit.SECONDS);
+        Assert.assertEquals(Collections.singletonList("metadata"), handler.imported);
+        Assert.assertFalse(job1.isDone());
+        
+        handler.unblock.countDown();
+        job0.get(30, TimeUnit.SECONDS);
+        job1.get(30, TimeUnit.SECONDS);
+        Assert.assertEquals(9, handler.imported.size());
+        Assert.assertEquals(1, handler.maxConcurrentPerTable);
+    }
+    
+    @Test
+    public void testFailedImportMarksJobFailed() throws Exception {
+        TestHandler handler = new TestHandler();
+        handler.failingTable = "shardIndex";
+        pipeline = new BulkImportPipeline(handler, tablePriorities, 1, 1, 4, 1, 4);
+        pipeline.submit(new Path("/job1")).get(30, TimeUnit.SECONDS);
+        
+        // the metadata table is never imported once an earlier priority group fails
+        Assert.assertFalse(handler.imported.contains("metadata"));
+        Assert.assertTrue(handler.cleaned.isEmpty());
+        Assert.assertEquals(Collections.singletonList(new Path("/job1/mapFiles")), handler.failed);
+        Assert.assertTrue(pipeline.drainCompleted().isEmpty());
+        Assert.assertEquals(1, pipeline.getStats().getFailures(Stage.TOTAL));
+        Assert.assertEquals(0, pipeline.getMarkFailures());
+    }
+    
+    private static Map<String,Path> tableDirs(String... tables) {
+        Map<String,Path> tableDirs = new LinkedHashMap<>();
+        for (String table : tables) {
+            tableDirs.put(table, new Path("/mapFiles/" + table));
+        }
+        return tableDirs;
+    }
+    
+    private static class TestHandler implements BulkImportPipeline.JobHandler {
+        private final List<String> imported = Collections.synchronizedList(new ArrayList<>());
+        private final List<Path> cleaned = Collections.synchronizedList(new ArrayList<>());
+        private final List<Path> failed = Collections.synchronizedList(new ArrayList<>());
+        private final Map<String,AtomicInteger> concurrentPerTable = new HashMap<>();
+        private volatile int maxConcurrentPerTable = 0;
+        private long importDelayMs = 0;
+        private String failingTable = null;
+        private String blockingTable = null;
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch unblock = new CountDownLatch(1);
+        
+        @Override
+        public Path prepare(Path srcJobDirectory) {
+            return new Path(srcJobDirectory, "mapFiles");
+        }
+        
+        @Override
+        public Map<String,Path> getTableDirectories(Path mapFilesDir) {
+            if (mapFilesDir.getParent().getName().equals("metadataOnly")) {
+                return tableDirs("metadata");
+            }
+            return tableDirs("shard", "shardIndex", "shardReverseIndex", "metadata");
+        }
+        
+        @Override
+        public void importTable(Path mapFilesDir, String tableName, Path tableDir) throws Exception {
+            AtomicInteger concurrent;
+            synchronized (concurrentPerTable) {
+                concurrent = concurrentPerTable.computeIfAbsent(tableName, k -> new AtomicInteger());
+            }
+            int current = concurrent.incrementAndGet();
+            synchronized (this) {
+                maxConcurrentPerTable = Math.max(maxConcurrentPerTable, current);
+            }
+            try {
+                Thread.sleep(importDelayMs);
+                if (tableName.equals(blockingTable)) {
+                    blocked.countDown();
+                    unblock.await(30, TimeUnit.SECONDS);
+                }
+                if (tableName.equals(failingTable)) {
+                    throw new Exception("Failed to import " + tableName);
+                }
+                imported.add(tableName);
+            } finally {
+                concurrent.decrementAndGet();
+            }
+        }
+        
+        @Override
+        public void cleanup(Path mapFilesDir) {
+            cleaned.add(mapFilesDir);
+        }
+        
+        @Override
+        public boolean failed(Path srcJobDirectory, Path mapFilesDir) {
+            failed.add(mapFilesDir);
+            return true;
+        }
+    }
+}
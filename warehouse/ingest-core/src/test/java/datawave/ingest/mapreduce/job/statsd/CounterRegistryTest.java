@@ -0,0 +1,112 @@
+package datawave.ingest.mapreduce.job.statsd;
+
+import datawave.ingest.mapreduce.job.statsd.CounterRegistry.Aggregation;
+import datawave.ingest.mapreduce.job.statsd.CounterRegistry.BufferedCounter;
+import datawave.ingest.test.StandaloneStatusReporter;
+import datawave.ingest.test.StandaloneTaskAttemptContext;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class CounterRegistryTest {
+    
+    @Test
+    public void testBufferedCounters() {
+        Configuration conf = new Configuration();
+        TaskAttemptContext context = new StandaloneTaskAttemptContext<>(conf, new StandaloneStatusReporter());
+        
+        StatsDHelper helper = new StatsDHelper();
+        helper.setup(conf);
+        Assert.assertNull(helper.getClient());
+        
+        CounterRegistry registry = helper.getCounterRegistry();
+        Assert.assertSame(registry, helper.getCounterRegistry());
+        
+        BufferedCounter total = registry.getCounter("LINE_BYTES", "TOTAL");
+        BufferedCounter min = registry.getCounter("LINE_BYTES", "MIN", Aggregation.MIN);
+        BufferedCounter max = registry.getCounter("LINE_BYTES", "MAX", Aggregation.MAX);
+        BufferedCounter events = registry.getCounter(StatsDEnabledClassesTest.TestCounters.COUNTER1);
+        Assert.assertSame(total, registry.getCounter("LINE_BYTES", "TOTAL"));
+        Assert.assertSame(events, registry.getCounter(StatsDEnabledClassesTest.TestCounters.COUNTER1));
+        
+        context.getCounter("LINE_BYTES", "MIN").setValue(Long.MAX_VALUE);
+        for (long bytes : new long[] {50, 10, 90, 30}) {
+            total.update(bytes);
+            min.update(bytes);
+            max.update(bytes);
+            events.increment(1);
+        }
+        
+        // nothing is written until the registry is flushed
+        Assert.assertEquals(0, context.getCounter("LINE_BYTES", "TOTAL").getValue());
+        Assert.assertEquals(0, context.getCounter(StatsDEnabledClassesTest.TestCounters.COUNTER1).getValue());
+        
+        helper.flushCounters(context);
+        Assert.assertEquals(180, context.getCounter("LINE_BYTES", "TOTAL").getValue());
+        Assert.assertEquals(10, context.getCounter("LINE_BYTES", "MIN").getValue());
+        Assert.assertEquals(90, context.getCounter("LINE_BYTES", "MAX").getValue());
+        Assert.assertEquals(4, context.getCounter(StatsDEnabledClassesTest.TestCounters.COUNTER1).getValue());
+        
+        // the min and max only replace the counter's value if they exceed it
+        total.increment(20);
+        min.update(40);
+        max.update(100);
+        helper.flushCounters(context);
+        Assert.assertEquals(200, context.getCounter("LINE_BYTES", "TOTAL").getValue());
+        Assert.assertEquals(10, context.getCounter("LINE_BYTES", "MIN").getValue());
+        Assert.assertEquals(100, context.getCounter("LINE_BYTES", "MAX").getValue());
+        
+        // flushing without updates leaves the counters unchanged
+        helper.flushCounters(context);
+        Assert.assertEquals(200, context.getCounter("LINE_BYTES", "TOTAL").getValue());
+        Assert.assertEquals(4, context.getCounter(StatsDEnabledClassesTest.TestCounters.COUNTER1).getValue());
+    }
+    
+    @Test
+    public void testFlushIfDue() {
+        Configuration conf = new Configuration();
+        TaskAttemptContext context = new StandaloneTaskAttemptContext<>(conf, new StandaloneStatusReporter());
+        
+        CounterRegistry registry = new CounterRegistry(new StatsDHelper(), 60000);
+        registry.getCounter("Group", "Counter").increment(5);
+        Assert.assertFalse(registry.flushIfDue(context));
+        Assert.assertEquals(0, context.getCounter("Group", "Counter").getValue());
+        
+        registry = new CounterRegistry(new StatsDHelper(), 0);
+        registry.getCounter("Group", "Counter").increment(5);
+        Assert.assertTrue(registry.flushIfDue(context));
+        Assert.assertEquals(5, context.getCounter("Group", "Counter").getValue());
+    }
+    
+    @Test
+    public void testStatsDReceivesBatchedValues() {
+        Configuration conf = new Configuration();
+        conf.set("statsd.host", "localhost");
+        conf.set("statsd.port", "8125");
+        conf.set("mapreduce.job.queuename", "queue1");
+        conf.set("mapreduce.job.name", "job1");
+        conf.set("statsd.live.counter.TestGroup", StatsDEnabledClassesTest.TestCounters.class.getName());
+        TaskAttemptContext context = new StandaloneTaskAttemptContext<>(conf, new StandaloneStatusReporter());
+        
+        StatsDHelper helper = new StatsDEnabledClassesTest.TestStatsDHelper();
+        helper.setup(conf);
+        CounterStatsDClientTest.TestCounterStatsDClient client = (CounterStatsDClientTest.TestCounterStatsDClient) (helper.getClient());
+        
+        BufferedCounter counter = helper.getCounterRegistry().getCounter(StatsDEnabledClassesTest.TestCounters.COUNTER1);
+        for (int i = 0; i < 10; i++) {
+            counter.increment(1);
+        }
+        Assert.assertTrue(client.messages.isEmpty());
+        
+        helper.flushCounters(context);
+        Assert.assertEquals(new ArrayList<>(Arrays.asList("count(TestGroup_COUNTER1,10)")), client.messages);
+        Assert.assertEquals(10, context.getCounter(StatsDEnabledClassesTest.TestCounters.COUNTER1).getValue());
+        
+        helper.close();
+        Assert.assertTrue(client.stopped);
+    }
+}
@@ -3,6 +3,7 @@ package datawave.ingest.csv.config.helper;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import datawave.data.type.Type;
+import datawave.ingest.csv.util.CSVByteParser;
 import datawave.ingest.data.RawRecordContainer;
 import datawave.ingest.data.config.CSVHelper;
 import datawave.ingest.data.config.NormalizedContentInterface;
@@ -11,12 +12,15 @@ import datawave.ingest.data.config.ingest.CSVIngestHelper;
 import datawave.ingest.data.config.ingest.EventFieldNormalizerHelper;
 import datawave.ingest.data.normalizer.SimpleGroupFieldNameParser;
 import datawave.ingest.metadata.id.MetadataIdParser;
+import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.text.StrMatcher;
 import org.apache.commons.lang.text.StrTokenizer;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.log4j.Logger;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -29,6 +33,10 @@ public class ExtendedCSVIngestHelper extends CSVIngestHelper {
     private EventFieldNormalizerHelper eventFieldNormalizerHelper = null;
     private SimpleGroupFieldNameParser groupNormalizer = new SimpleGroupFieldNameParser(true);
     
+    private CSVByteParser byteParser = null;
+    /** for each header column, whether its value is kept and therefore must be materialized by the byte parser */
+    private boolean[] materializedColumns = null;
+    
     @Override
     public void setup(Configuration config) {
         super.setup(config);
@@ -36,6 +44,33 @@ public class ExtendedCSVIngestHelper extends CSVIngestHelper {
         
         // lets use an event field normalization helper
         eventFieldNormalizerHelper = new EventFieldNormalizerHelper(config);
+        
+        if (this.helper.isByteParserEnabled()) {
+            byteParser = CSVByteParser.forSeparator(this.helper.getSeparator());
+            // mirror configureTokenizer, trimming is handled by skipping the leading whitespace of the record
+            byteParser.setTrimming(false);
+            materializedColumns = getMaterializedColumns();
+        }
+    }
+    
+    /**
+     * Determines which header columns must be materialized by the byte parser. A column is skipped if it is excluded by the field blacklist or whitelist, or if
+     * it is configured as an ignored field and would otherwise reach the event under its own name, i.e., it is not multivalued, grouped, aliased or the event
+     * id field.
+     */
+    protected boolean[] getMaterializedColumns() {
+        Set<String> ignoredFields = new HashSet<>(Arrays.asList(this.helper.getIgnoredFields()));
+        String[] header = this.helper.getHeader();
+        boolean[] materialized = new boolean[header.length];
+        for (int i = 0; i < header.length; i++) {
+            String fieldName = header[i];
+            String upperCaseFieldName = fieldName.toUpperCase();
+            boolean ignored = ignoredFields.contains(upperCaseFieldName) && !this.helper.isMultiValuedField(fieldName) && fieldName.indexOf('.') < 0
+                            && !upperCaseFieldName.equals(this.helper.getEventIdFieldName())
+                            && upperCaseFieldName.equals(aliaser.normalizeAndAlias(upperCaseFieldName));
+            materialized[i] = keepField(fieldName) && !ignored;
+        }
+        return materialized;
     }
     
     @Override
@@ -54,7 +89,12 @@ public class ExtendedCSVIngestHelper extends CSVIngestHelper {
     @Override
     public Multimap<String,NormalizedContentInterface> getEventFields(RawRecordContainer event) {
         // applying groupNormalizer for csv data
-        Multimap<String,NormalizedContentInterface> fields = super.getEventFields(event);
+        Multimap<String,NormalizedContentInterface> fields;
+        if (byteParser != null) {
+            fields = normalize(parseFields(event.getRawData()));
+        } else {
+            fields = super.getEventFields(event);
+        }
         
         // drop any field configured as such
         for (String field : this.helper.getIgnoredFields()) {
@@ -64,6 +104,49 @@ public class ExtendedCSVIngestHelper extends CSVIngestHelper {
         return fields;
     }
     
+    /**
+     * Byte level equivalent of tokenizing the record and calling {@link #processFields(HashMultimap, String[])}, where the values of columns that will not be
+     * kept are never materialized
+     *
+     * @param data
+     *            the raw record
+     * @return the fields of the record
+     */
+    protected HashMultimap<String,String> parseFields(byte[] data) {
+        HashMultimap<String,String> fields = HashMultimap.create();
+        
+        // trim the leading whitespace as preProcessRawData does
+        int offset = 0;
+        while (offset < data.length && (data[offset] & 0xff) <= 32) {
+            offset++;
+        }
+        
+        int fieldCount = byteParser.parse(data, offset, data.length - offset);
+        String[] header = this.helper.getHeader();
+        for (int i = 0; i < fieldCount; i++) {
+            if (i < header.length) {
+                if (materializedColumns[i]) {
+                    String fieldValue = byteParser.getField(i);
+                    if (fieldValue != null) {
+                        fieldValue = this.helper.clean(header[i], StringEscapeUtils.unescapeCsv(fieldValue));
+                        if (fieldValue != null) {
+                            processPreSplitField(fields, header[i], fieldValue);
+                        }
+                    }
+                }
+            } else if (this.helper.processExtraFields()) {
+                String fieldValue = byteParser.getField(i);
+                if (fieldValue != null) {
+                    fieldValue = StringEscapeUtils.unescapeCsv(fieldValue);
+                    processExtraField(fields, fieldValue);
+                }
+            } else {
+                break;
+            }
+        }
+        return fields;
+    }
+    
     @Override
     public Multimap<String,NormalizedContentInterface> normalize(Multimap<String,String> fields) {
         Multimap<String,NormalizedContentInterface> results = HashMultimap.create();
@@ -1,5 +1,6 @@
 package datawave.ingest.csv.mr.input;
 
+import datawave.ingest.csv.util.CSVByteParser;
 import datawave.ingest.data.RawRecordContainer;
 import datawave.ingest.data.config.CSVHelper;
 import datawave.data.hash.UID;
@@ -19,6 +20,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * RecordReader that reads events from "Comma"-Separated-Value formats. Here the "Comma" can be any separator.
@@ -45,6 +47,9 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
     /** Splits raw input records Strings according to the configured separator. */
     private StrTokenizer _tokenizer;
     
+    /** Splits raw input records directly over their bytes, used in place of the tokenizer when configured. */
+    private CSVByteParser byteParser;
+    
     /** Super class returns the position in bytes in the file as the key. This returns the record number. */
     @Override
     public LongWritable getCurrentKey() {
@@ -96,6 +101,9 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
         super.initializeEvent(conf);
         setCsvHelper((CSVHelper) helper);
         initializeTokenizer();
+        if (csvHelper.isByteParserEnabled()) {
+            byteParser = CSVByteParser.forSeparator(csvHelper.getSeparator());
+        }
     }
     
     public void initializeTokenizer() {
@@ -119,10 +127,21 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
         
         processedSize += value.getLength();
         
-        final String rawEventRecordStr = value.toString();
-        _tokenizer.reset(rawEventRecordStr);
-        
-        final String[] rawEventFields = _tokenizer.getTokenArray();
+        // with the byte parser, each field is only decoded as it is read below
+        final String[] rawEventFields;
+        final int rawFieldCount;
+        final byte[] rawData;
+        if (byteParser != null) {
+            rawEventFields = null;
+            rawFieldCount = byteParser.parse(value.getBytes(), 0, value.getLength());
+            rawData = Arrays.copyOf(value.getBytes(), value.getLength());
+        } else {
+            final String rawEventRecordStr = value.toString();
+            _tokenizer.reset(rawEventRecordStr);
+            rawEventFields = _tokenizer.getTokenArray();
+            rawFieldCount = rawEventFields.length;
+            rawData = rawEventRecordStr.getBytes();
+        }
         final String[] header = csvHelper.getHeader();
         
         // If the event date field name is not specified in the configuration, then set the event date to the file modification time.
@@ -130,12 +149,12 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
             event.setDate(fileModificationTime);
         
         // We still try to process the event record.
-        final int fields = Math.min(rawEventFields.length, header.length);
+        final int fields = Math.min(rawFieldCount, header.length);
         String field, fieldName;
         int i;
         
         for (i = 0; i < fields; i++) {
-            field = StringEscapeUtils.unescapeCsv(rawEventFields[i]);
+            field = StringEscapeUtils.unescapeCsv(getRawEventField(rawEventFields, i));
             fieldName = header[i];
             
             field = csvHelper.clean(fieldName, field);
@@ -144,9 +163,9 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
         }
         
         // Check to see if we have data beyond the header specification that should be processed. This is the case for the CSV logs
-        if (csvHelper.processExtraFields() && rawEventFields.length > header.length) {
-            while (i < rawEventFields.length) {
-                processExtraField(rawEventFields[i]);
+        if (csvHelper.processExtraFields() && rawFieldCount > header.length) {
+            while (i < rawFieldCount) {
+                processExtraField(getRawEventField(rawEventFields, i));
                 i++;
             }
         }
@@ -154,7 +173,7 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
         // decorate with additional data (used by overriding classes)
         decorateEvent();
         
-        event.setRawData(rawEventRecordStr.getBytes());
+        event.setRawData(rawData);
         
         // Check to see if we need to override the UID. The use case for this is that some of the hashes are "enrichment" and the same
         // values will be loaded over and over again. By default, the UID is calculated on the raw byte[]
@@ -167,17 +186,24 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
         
         enforcePolicy(event);
         
-        if (header.length > rawEventFields.length) {
+        if (header.length > rawFieldCount) {
             event.addError(RawDataErrorNames.NOT_ENOUGH_FIELDS);
-            log.error("More fields in header than in data. Header fields: {}, data fields: {}", header.length, rawEventFields.length);
-        } else if ((!csvHelper.processExtraFields()) && (header.length < rawEventFields.length)) {
+            log.error("More fields in header than in data. Header fields: {}, data fields: {}", header.length, rawFieldCount);
+        } else if ((!csvHelper.processExtraFields()) && (header.length < rawFieldCount)) {
             event.addError(RawDataErrorNames.TOO_MANY_FIELDS);
-            log.error("More fields in data than in header. Header fields: {}, data fields: {}", header.length, rawEventFields.length);
+            log.error("More fields in data than in header. Header fields: {}, data fields: {}", header.length, rawFieldCount);
         }
         
         return event;
     }
     
+    /**
+     * @return the tokenized field, or when the byte parser is in use the field decoded from the current record
+     */
+    private String getRawEventField(String[] rawEventFields, int index) {
+        return (rawEventFields != null) ? rawEventFields[index] : byteParser.getField(index);
+    }
+    
     /** Decorate the event with additional info post field processing but prior to event validation */
     protected void decorateEvent() { /* default is noop */}
     
@@ -287,6 +313,14 @@ public class CSVReaderBase extends LongLineEventRecordReader implements EventRec
         this._tokenizer = _tokenizer;
     }
     
+    public CSVByteParser getByteParser() {
+        return byteParser;
+    }
+    
+    public void setByteParser(CSVByteParser byteParser) {
+        this.byteParser = byteParser;
+    }
+    
     public CSVHelper getCsvHelper() {
         return csvHelper;
     }
@@ -0,0 +1,288 @@
+package datawave.ingest.csv.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Splits a delimited record directly over its raw UTF-8 bytes. A single pass over the record only records the bounds of each field, so that a field's value is
+ * decoded into a String only when it is requested via {@link #getField(int)}. Fields that are never requested, e.g. ignored or blacklisted columns, are never
+ * materialized.
+ * 
+ * <p>
+ * Tokenization follows the {@link org.apache.commons.lang.text.StrTokenizer} configurations previously used by the csv readers and ingest helpers, see
+ * {@link #forSeparator(String)}:
+ * <ul>
+ * <li>an empty field is returned as null</li>
+ * <li>when quoting is enabled, a field that begins with a quote may contain delimiters within quoted sections, and a doubled quote within a quoted section
+ * represents a single quote</li>
+ * <li>when trimming is enabled, whitespace (any byte &lt;= 32) is removed from the start and end of a field, outside of quoted sections</li>
+ * </ul>
+ * 
+ * <p>
+ * Instances reuse their internal buffers between records and are not thread safe.
+ */
+public class CSVByteParser {
+    
+    private static final byte QUOTE = '"';
+    private static final int INITIAL_FIELDS = 64;
+    
+    private final byte[] delimiter;
+    private final boolean quoting;
+    private boolean trimming;
+    
+    /** true for each byte value which must be examined when scanning for the end of a field */
+    private final boolean[] special = new boolean[256];
+    
+    private byte[] data;
+    private int fieldCount = 0;
+    private int[] starts = new int[INITIAL_FIELDS];
+    private int[] ends = new int[INITIAL_FIELDS];
+    private boolean[] quoted = new boolean[INITIAL_FIELDS];
+    
+    private byte[] workArea = new byte[256];
+    
+    /**
+     * @param delimiter
+     *            the field delimiter
+     * @param quoting
+     *            whether fields may be quoted using '"'
+     * @param trimming
+     *            whether whitespace is trimmed from the start and end of each field
+     */
+    public CSVByteParser(String delimiter, boolean quoting, boolean trimming) {
+        if (delimiter == null || delimiter.isEmpty()) {
+            throw new IllegalArgumentException("A delimiter is required");
+        }
+        this.delimiter = delimiter.getBytes(StandardCharsets.UTF_8);
+        this.quoting = quoting;
+        this.trimming = trimming;
+        special[this.delimiter[0] & 0xff] = true;
+        if (quoting) {
+            special[QUOTE & 0xff] = true;
+        }
+    }
+    
+    /**
+     * Creates a parser equivalent to the tokenizer the csv helpers create for the configured separator: "," uses the csv format and "\t" (configured as the
+     * two characters "\\t") uses the tsv format, both of which support quoting and trimming. Any other separator is used literally with neither.
+     * 
+     * @param separator
+     *            the configured separator
+     * @return a new parser
+     */
+    public static CSVByteParser forSeparator(String separator) {
+        if (separator.equals(",")) {
+            return new CSVByteParser(",", true, true);
+        } else if (separator.equals("\\t")) {
+            return new CSVByteParser("\t", true, true);
+        } else {
+            return new CSVByteParser(separator, false, false);
+        }
+    }
+    
+    public boolean isTrimming() {
+        return trimming;
+    }
+    
+    public void setTrimming(boolean trimming) {
+        this.trimming = trimming;
+    }
+    
+    /**
+     * Locates the fields within a record. The data is referenced, not copied, and must not be modified until the fields of interest have been retrieved.
+     * 
+     * @param data
+     *            the buffer containing the record
+     * @param offset
+     *            the start of the record within the buffer
+     * @param length
+     *            the length of the record
+     * @return the number of fields in the record
+     */
+    public int parse(byte[] data, int offset, int length) {
+        this.data = data;
+        this.fieldCount = 0;
+        
+        final int limit = offset + length;
+        int pos = offset;
+        while (pos < limit) {
+            // skip leading whitespace, unless it is the delimiter or a quote
+            if (trimming) {
+                while (pos < limit && (data[pos] & 0xff) <= ' ' && !isDelimiter(data, pos, limit)) {
+                    pos++;
+                }
+                if (pos == limit) {
+                    addField(pos, pos, false);
+                    break;
+                }
+            }
+            
+            int start = pos;
+            boolean isQuoted = quoting && data[pos] == QUOTE;
+            if (isQuoted) {
+                // every quote toggles the quoting state: a doubled quote within a quoted section toggles it twice
+                boolean inQuotes = true;
+                pos++;
+                while (pos < limit) {
+                    byte b = data[pos];
+                    if (b == QUOTE) {
+                        inQuotes = !inQuotes;
+                    } else if (!inQuotes && isDelimiter(data, pos, limit)) {
+                        break;
+                    }
+                    pos++;
+                }
+            } else {
+                while (pos < limit) {
+                    if (special[data[pos] & 0xff] && isDelimiter(data, pos, limit)) {
+                        break;
+                    }
+                    pos++;
+                }
+            }
+            addField(start, pos, isQuoted);
+            
+            if (pos < limit) {
+                pos += delimiter.length;
+                if (pos == limit) {
+                    // a trailing delimiter is followed by an empty field
+                    addField(pos, pos, false);
+                }
+            }
+        }
+        return fieldCount;
+    }
+    
+    public int getFieldCount() {
+        return fieldCount;
+    }
+    
+    /**
+     * @param index
+     *            the index of the field
+     * @return true if the field is empty once trimmed and unquoted, in which case {@link #getField(int)} returns null
+     */
+    public boolean isEmpty(int index) {
+        checkIndex(index);
+        if (quoted[index]) {
+            return decodeQuoted(index) == 0;
+        }
+        return trimmedEnd(index) == starts[index];
+    }
+    
+    /**
+     * Materializes the value of a field
+     * 
+     * @param index
+     *            the index of the field
+     * @return the value of the field, or null if it is empty
+     */
+    public String getField(int index) {
+        checkIndex(index);
+        if (quoted[index]) {
+            int length = decodeQuoted(index);
+            return length == 0 ? null : new String(workArea, 0, length, StandardCharsets.UTF_8);
+        }
+        int start = starts[index];
+        int end = trimmedEnd(index);
+        return end == start ? null : new String(data, start, end - start, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * @return all fields of the current record, materialized
+     */
+    public String[] getFields() {
+        String[] fields = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            fields[i] = getField(i);
+        }
+        return fields;
+    }
+    
+    private boolean isDelimiter(byte[] data, int pos, int limit) {
+        if (data[pos] != delimiter[0]) {
+            return false;
+        }
+        if (delimiter.length == 1) {
+            return true;
+        }
+        if (pos + delimiter.length > limit) {
+            return false;
+        }
+        for (int i = 1; i < delimiter.length; i++) {
+            if (data[pos + i] != delimiter[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void addField(int start, int end, boolean isQuoted) {
+        if (fieldCount == starts.length) {
+            int newLength = starts.length * 2;
+            starts = Arrays.copyOf(starts, newLength);
+            ends = Arrays.copyOf(ends, newLength);
+            quoted = Arrays.copyOf(quoted, newLength);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        quoted[fieldCount] = isQuoted;
+        fieldCount++;
+    }
+    
+    private int trimmedEnd(int index) {
+        int start = starts[index];
+        int end = ends[index];
+        if (trimming) {
+            while (end > start && (data[end - 1] & 0xff) <= ' ') {
+                end--;
+            }
+        }
+        return end;
+    }
+    
+    /**
+     * Unquotes a quoted field into the work area
+     * 
+     * @return the length of the unquoted value
+     */
+    private int decodeQuoted(int index) {
+        int start = starts[index];
+        int end = ends[index];
+        if (workArea.length < end - start) {
+            workArea = new byte[Math.max(end - start, workArea.length * 2)];
+        }
+        
+        int length = 0;
+        // the length of the value excluding any trailing whitespace outside of quotes
+        int trimmedLength = 0;
+        boolean inQuotes = false;
+        int pos = start;
+        while (pos < end) {
+            byte b = data[pos];
+            if (b == QUOTE) {
+                if (inQuotes && pos + 1 < end && data[pos + 1] == QUOTE) {
+                    workArea[length++] = QUOTE;
+                    trimmedLength = length;
+                    pos += 2;
+                    continue;
+                }
+                inQuotes = !inQuotes;
+            } else {
+                workArea[length++] = b;
+                if (inQuotes || !trimming || (b & 0xff) > ' ') {
+                    trimmedLength = length;
+                }
+            }
+            pos++;
+        }
+        return trimmedLength;
+    }
+    
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " of " + fieldCount);
+        }
+    }
+}
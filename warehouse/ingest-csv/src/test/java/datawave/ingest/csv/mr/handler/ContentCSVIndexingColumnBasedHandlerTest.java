@@ -13,6 +13,7 @@ import datawave.ingest.csv.config.helper.ExtendedCSVHelper;
 import datawave.ingest.csv.config.helper.ExtendedCSVIngestHelper;
 import datawave.ingest.data.RawRecordContainer;
 import datawave.ingest.data.TypeRegistry;
+import datawave.ingest.data.config.CSVHelper;
 import datawave.ingest.data.config.ingest.ContentBaseIngestHelper;
 import datawave.ingest.mapreduce.handler.edge.ProtobufEdgeDataTypeHandler;
 import datawave.ingest.mapreduce.handler.shard.ShardedDataTypeHandler;
@@ -111,10 +112,21 @@ public class ContentCSVIndexingColumnBasedHandlerTest {
     @Test
     public void testCsv01() throws Exception {
         log.debug("---testCsv01---");
+        processMyCsv(false);
+    }
+    
+    @Test
+    public void testCsv01ByteParser() throws Exception {
+        log.debug("---testCsv01ByteParser---");
+        processMyCsv(true);
+    }
+    
+    private void processMyCsv(boolean byteParserEnabled) throws Exception {
         conf.addResource(ClassLoader.getSystemResource("config/ingest/all-config.xml"));
         conf.addResource(ClassLoader.getSystemResource("config/ingest/csv-ingest-config.xml"));
         conf.addResource(ClassLoader.getSystemResource("config/ingest/edge-ingest-config.xml"));
         conf.addResource(ClassLoader.getSystemResource("config/ingest/metadata-config.xml"));
+        conf.setBoolean("mycsv" + CSVHelper.BYTE_PARSER_ENABLED, byteParserEnabled);
         TypeRegistry.getInstance(conf);
         ExtendedCSVHelper helper = new ExtendedCSVHelper();
         helper.setup(conf);
@@ -0,0 +1,130 @@
+package datawave.ingest.csv.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.lang.StringEscapeUtils;
+import org.apache.commons.lang.text.StrTokenizer;
+
+/**
+ * <p>
+ * Compares the throughput of tokenizing wide csv records with the {@link StrTokenizer}, as done by the csv record readers and ingest helpers, against the
+ * {@link CSVByteParser} when materializing every column and when materializing only a subset of the columns.
+ * 
+ * <p>
+ * Usage: {@code CSVByteParserBenchmark [numRecords] [numColumns] [materializedColumns] [iterations]}
+ */
+public class CSVByteParserBenchmark {
+    
+    public static void main(String[] args) {
+        int numRecords = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int numColumns = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        int materializedColumns = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        
+        List<byte[]> records = new ArrayList<>();
+        long totalBytes = 0;
+        Random random = new Random(42);
+        for (int i = 0; i < numRecords; i++) {
+            byte[] record = record(random, numColumns).getBytes(StandardCharsets.UTF_8);
+            records.add(record);
+            totalBytes += record.length;
+        }
+        System.out.println(numRecords + " records of " + numColumns + " columns, " + (totalBytes / 1024) + " KB");
+        
+        boolean[] materialized = new boolean[numColumns];
+        for (int i = 0; i < numColumns; i += Math.max(1, numColumns / Math.max(1, materializedColumns))) {
+            materialized[i] = true;
+        }
+        
+        CSVByteParser parser = CSVByteParser.forSeparator(",");
+        
+        // warm up each approach before measuring
+        runTokenizer(records);
+        runParser(parser, records, null);
+        runParser(parser, records, materialized);
+        
+        long tokenizerNanos = 0;
+        long parserNanos = 0;
+        long lazyParserNanos = 0;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            runTokenizer(records);
+            tokenizerNanos += System.nanoTime() - start;
+            
+            start = System.nanoTime();
+            runParser(parser, records, null);
+            parserNanos += System.nanoTime() - start;
+            
+            start = System.nanoTime();
+            runParser(parser, records, materialized);
+            lazyParserNanos += System.nanoTime() - start;
+        }
+        
+        long bytes = totalBytes * iterations;
+        System.out.println(String.format("StrTokenizer, all columns:         %8.1f MB/s", mbPerSec(bytes, tokenizerNanos)));
+        System.out.println(String.format("CSVByteParser, all columns:        %8.1f MB/s", mbPerSec(bytes, parserNanos)));
+        System.out.println(String.format("CSVByteParser, %4d of %4d columns: %8.1f MB/s", materializedColumns, numColumns, mbPerSec(bytes, lazyParserNanos)));
+    }
+    
+    private static long runTokenizer(List<byte[]> records) {
+        long chars = 0;
+        StrTokenizer tokenizer = StrTokenizer.getCSVInstance();
+        tokenizer.setIgnoreEmptyTokens(false);
+        tokenizer.setEmptyTokenAsNull(true);
+        for (byte[] record : records) {
+            tokenizer.reset(new String(record, StandardCharsets.UTF_8));
+            for (String field : tokenizer.getTokenArray()) {
+                if (field != null) {
+                    chars += StringEscapeUtils.unescapeCsv(field).length();
+                }
+            }
+        }
+        return chars;
+    }
+    
+    private static long runParser(CSVByteParser parser, List<byte[]> records, boolean[] materialized) {
+        long chars = 0;
+        for (byte[] record : records) {
+            int fieldCount = parser.parse(record, 0, record.length);
+            for (int i = 0; i < fieldCount; i++) {
+                if (materialized == null || (i < materialized.length && materialized[i])) {
+                    String field = parser.getField(i);
+                    if (field != null) {
+                        chars += StringEscapeUtils.unescapeCsv(field).length();
+                    }
+                }
+            }
+        }
+        return chars;
+    }
+    
+    private static double mbPerSec(long bytes, long nanos) {
+        return (bytes / (1024.0 * 1024.0)) / (nanos / 1.0e9);
+    }
+    
+    private static String record(Random random, int numColumns) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < numColumns; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            switch (random.nextInt(5)) {
+                case 0:
+                    // empty column
+                    break;
+                case 1:
+                    builder.append(random.nextInt(1000000));
+                    break;
+                case 2:
+                    builder.append('"').append("value, with \"\"quotes\"\" ").append(random.nextInt(1000)).append('"');
+                    break;
+                default:
+                    builder.append(Long.toHexString(random.nextLong()));
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,94 @@
+package datawave.ingest.csv.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.apache.commons.lang.text.StrMatcher;
+import org.apache.commons.lang.text.StrTokenizer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CSVByteParserTest {
+    
+    @Test
+    public void testSimpleFields() {
+        CSVByteParser parser = CSVByteParser.forSeparator(",");
+        Assert.assertEquals(4, parse(parser, "a, b ,,d"));
+        Assert.assertEquals("a", parser.getField(0));
+        Assert.assertEquals("b", parser.getField(1));
+        Assert.assertNull(parser.getField(2));
+        Assert.assertTrue(parser.isEmpty(2));
+        Assert.assertEquals("d", parser.getField(3));
+    }
+    
+    @Test
+    public void testQuotedFields() {
+        CSVByteParser parser = CSVByteParser.forSeparator(",");
+        Assert.assertEquals(3, parse(parser, "\"a,b\",\"say \"\"hi\"\"\", \" padded \" "));
+        Assert.assertEquals("a,b", parser.getField(0));
+        Assert.assertEquals("say \"hi\"", parser.getField(1));
+        Assert.assertEquals(" padded ", parser.getField(2));
+    }
+    
+    @Test
+    public void testTrailingDelimiter() {
+        CSVByteParser parser = CSVByteParser.forSeparator(",");
+        Assert.assertEquals(3, parse(parser, "a,b,"));
+        Assert.assertNull(parser.getField(2));
+    }
+    
+    @Test
+    public void testMultiByteSeparatorAndCharacters() {
+        CSVByteParser parser = CSVByteParser.forSeparator("||");
+        Assert.assertEquals(3, parse(parser, "café||\"x\"|| über"));
+        Assert.assertEquals("café", parser.getField(0));
+        // quoting and trimming are only supported by the csv and tsv formats
+        Assert.assertEquals("\"x\"", parser.getField(1));
+        Assert.assertEquals(" über", parser.getField(2));
+    }
+    
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testFieldOutOfRange() {
+        CSVByteParser parser = CSVByteParser.forSeparator(",");
+        parse(parser, "a,b");
+        parser.getField(2);
+    }
+    
+    @Test
+    public void testMatchesStrTokenizer() {
+        Random random = new Random(1234);
+        String alphabet = "ab ,\t\"|é";
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder record = new StringBuilder();
+            int length = random.nextInt(20);
+            for (int j = 0; j < length; j++) {
+                record.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String line = record.toString();
+            
+            assertMatches(line, StrTokenizer.getCSVInstance(), CSVByteParser.forSeparator(","));
+            assertMatches(line, StrTokenizer.getTSVInstance(), CSVByteParser.forSeparator("\\t"));
+            assertMatches(line, new StrTokenizer(line, "|"), CSVByteParser.forSeparator("|"));
+            
+            // the extended csv ingest helper disables trimming
+            CSVByteParser untrimmed = CSVByteParser.forSeparator(",");
+            untrimmed.setTrimming(false);
+            assertMatches(line, StrTokenizer.getCSVInstance().setTrimmerMatcher(StrMatcher.noneMatcher()), untrimmed);
+        }
+    }
+    
+    private static void assertMatches(String line, StrTokenizer tokenizer, CSVByteParser parser) {
+        tokenizer.setIgnoreEmptyTokens(false);
+        tokenizer.setEmptyTokenAsNull(true);
+        tokenizer.reset(line);
+        String[] expected = tokenizer.getTokenArray();
+        
+        parse(parser, line);
+        Assert.assertArrayEquals("Mismatch parsing [" + line + "]", expected, parser.getFields());
+    }
+    
+    private static int parse(CSVByteParser parser, String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return parser.parse(bytes, 0, bytes.length);
+    }
+}
@@ -21,17 +21,20 @@ public class JsonDataTypeHelper extends CSVHelper {
         
         String COLUMN_VISIBILITY_FIELD = ".data.category.marking.visibility.field";
         String FLATTENER_MODE = ".data.json.flattener.mode";
+        String FLATTENER_STREAMING = ".data.json.flattener.streaming";
         
     }
     
     protected String columnVisibilityField = null;
     protected FlattenMode jsonObjectFlattenMode = FlattenMode.NORMAL;
+    protected boolean streamingFlattenerEnabled = false;
     
     @Override
     public void setup(Configuration config) throws IllegalArgumentException {
         super.setup(config);
         this.setJsonObjectFlattenModeByName(config.get(this.getType().typeName() + Properties.FLATTENER_MODE, FlattenMode.NORMAL.name()));
         this.setColumnVisibilityField(config.get(this.getType().typeName() + Properties.COLUMN_VISIBILITY_FIELD));
+        this.setStreamingFlattenerEnabled(config.getBoolean(this.getType().typeName() + Properties.FLATTENER_STREAMING, false));
     }
     
     public String getColumnVisibilityField() {
@@ -54,6 +57,20 @@ public class JsonDataTypeHelper extends CSVHelper {
         this.jsonObjectFlattenMode = mode;
     }
     
+    /**
+     * When true, records are flattened directly from the json token stream via {@link JsonObjectFlattener#flatten(com.google.gson.stream.JsonReader,
+     * com.google.common.collect.Multimap)}, rather than being parsed into a tree and then flattened
+     *
+     * @return true if streaming flattening is enabled
+     */
+    public boolean isStreamingFlattenerEnabled() {
+        return streamingFlattenerEnabled;
+    }
+    
+    public void setStreamingFlattenerEnabled(boolean streamingFlattenerEnabled) {
+        this.streamingFlattenerEnabled = streamingFlattenerEnabled;
+    }
+    
     public JsonObjectFlattener newFlattener() {
         
         // Set flattener's whitelist and blacklist according to current state of the helper
@@ -4,6 +4,7 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 import datawave.ingest.data.RawRecordContainer;
 import datawave.ingest.data.config.NormalizedContentInterface;
 import datawave.ingest.data.config.NormalizedFieldAndValue;
@@ -13,6 +14,9 @@ import datawave.ingest.json.util.JsonObjectFlattener;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.log4j.Logger;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.Map;
 
 /**
@@ -43,11 +47,22 @@ public class JsonIngestHelper extends ContentBaseIngestHelper {
         }
         
         HashMultimap<String,String> fields = HashMultimap.create();
-        String jsonString = new String(event.getRawData());
         
-        JsonParser parser = new JsonParser();
-        JsonElement jsonElement = parser.parse(jsonString);
-        flattener.flatten(jsonElement.getAsJsonObject(), fields);
+        if (helper.isStreamingFlattenerEnabled()) {
+            // Flatten straight from the raw bytes, without building the json tree
+            try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(event.getRawData())))) {
+                reader.setLenient(true);
+                flattener.flatten(reader, fields);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Unable to parse json for event " + event.getId(), e);
+            }
+        } else {
+            String jsonString = new String(event.getRawData());
+            
+            JsonParser parser = new JsonParser();
+            JsonElement jsonElement = parser.parse(jsonString);
+            flattener.flatten(jsonElement.getAsJsonObject(), fields);
+        }
         
         return normalizeMap(getGroupNormalizedMap(fields));
     }
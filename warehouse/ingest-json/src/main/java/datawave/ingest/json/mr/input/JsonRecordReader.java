@@ -1,5 +1,6 @@
 package datawave.ingest.json.mr.input;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -23,6 +24,7 @@ import datawave.ingest.input.reader.AbstractEventRecordReader;
 import datawave.ingest.json.config.helper.JsonDataTypeHelper;
 import datawave.ingest.json.config.helper.JsonIngestFlattener;
 import datawave.ingest.json.util.JsonObjectFlattener;
+import datawave.ingest.json.util.JsonObjectScanner;
 import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.commons.collections4.IteratorUtils;
 import org.apache.commons.io.input.CountingInputStream;
@@ -52,6 +54,10 @@ import org.apache.log4j.Logger;
  * </blockquote>
  *
  * <p>
+ * If {@link JsonDataTypeHelper#isStreamingFlattenerEnabled()}, records are located with a {@link JsonObjectScanner} and flattened straight from their raw
+ * bytes, so that no json tree is built for them. In that case the raw bytes of each record are used as-is for the event's raw data.
+ *
+ * <p>
  * For custom parsing requirements, extend this class and override the 'parseCurrentValue' method to suit your needs.
  */
 public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
@@ -77,10 +83,16 @@ public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
     protected boolean parseHeaderOnly = true;
     protected JsonDataTypeHelper jsonHelper = null;
     protected JsonObjectFlattener jsonFlattener = null;
+    protected boolean streaming = false;
+    protected JsonObjectScanner scanner;
+    protected byte[] currentRecord;
+    private boolean parseObjectOverridden = false;
     
     @Override
     public void close() throws IOException {
-        reader.close();
+        if (reader != null) {
+            reader.close();
+        }
         countingInputStream.close();
     }
     
@@ -92,8 +104,22 @@ public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
     
     @Override
     public BytesWritable getCurrentValue() {
-        if (currentJsonObj != null) {
-            return new BytesWritable(currentJsonObj.toString().getBytes());
+        byte[] rawData = getCurrentRawData();
+        if (rawData != null) {
+            return new BytesWritable(rawData);
+        } else {
+            return null;
+        }
+    }
+    
+    /**
+     * @return the raw bytes of the current record, or null if there is no current record
+     */
+    protected byte[] getCurrentRawData() {
+        if (streaming) {
+            return currentRecord;
+        } else if (currentJsonObj != null) {
+            return currentJsonObj.toString().getBytes();
         } else {
             return null;
         }
@@ -133,23 +159,26 @@ public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
         
         String normURI = fileURI.getScheme() + "://" + fileURI.getPath();
         
-        setupReader(is);
-        
-        if (logger.isInfoEnabled()) {
-            logger.info("Reading Json records from " + normURI + " via " + is.getClass().getName());
-        }
-        
         jsonHelper = (JsonDataTypeHelper) createHelper(context.getConfiguration());
         this.parseHeaderOnly = !jsonHelper.processExtraFields();
+        this.streaming = jsonHelper.isStreamingFlattenerEnabled();
+        this.parseObjectOverridden = isParseObjectOverridden();
         jsonFlattener = jsonHelper.newFlattener();
         
+        setupReader(is);
+        
         if (logger.isInfoEnabled()) {
-            logger.info("Json flattener mode: " + jsonFlattener.getFlattenMode().name());
+            logger.info("Reading Json records from " + normURI + " via " + is.getClass().getName());
+            logger.info("Json flattener mode: " + jsonFlattener.getFlattenMode().name() + (streaming ? " (streaming)" : ""));
         }
     }
     
     protected void setupReader(InputStream is) {
         countingInputStream = new CountingInputStream(is);
+        if (streaming) {
+            scanner = new JsonObjectScanner(countingInputStream);
+            return;
+        }
         reader = new JsonReader(new InputStreamReader(countingInputStream));
         reader.setLenient(true);
         setupIterator(reader);
@@ -172,6 +201,34 @@ public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
         jsonFlattener.flatten(jsonObject, currentValue);
     }
     
+    /**
+     * Streaming counterpart to {@link #parseCurrentValue(JsonObject)}, invoked with a reader positioned at the start of the current record. If a subclass
+     * overrides {@link #parseCurrentValue(JsonObject)} but not this method, then the record is parsed into a {@link JsonObject} and handed to that override,
+     * so that custom parsing is never bypassed by enabling the streaming flattener.
+     */
+    protected void parseCurrentValue(JsonReader recordReader) throws IOException {
+        if (parseObjectOverridden) {
+            parseCurrentValue(new JsonParser().parse(recordReader).getAsJsonObject());
+        } else {
+            jsonFlattener.flatten(recordReader, currentValue);
+        }
+    }
+    
+    /**
+     * @return true if the class, or any superclass below this one, declares its own {@link #parseCurrentValue(JsonObject)}
+     */
+    private boolean isParseObjectOverridden() {
+        for (Class<?> clazz = getClass(); clazz != JsonRecordReader.class; clazz = clazz.getSuperclass()) {
+            try {
+                clazz.getDeclaredMethod("parseCurrentValue", JsonObject.class);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // keep looking
+            }
+        }
+        return false;
+    }
+    
     @Override
     public boolean nextKeyValue() throws IOException {
         
@@ -180,6 +237,10 @@ public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
         currentValue.clear();
         counter++;
         
+        if (streaming) {
+            return nextStreamingKeyValue();
+        }
+        
         if (!jsonIterator.hasNext()) {
             /*
              * Note that for streaming purposes we support files containing multiple distinct json objects concatenated together, where each object will
@@ -210,6 +271,21 @@ public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
         return false;
     }
     
+    private boolean nextStreamingKeyValue() throws IOException {
+        if (!scanner.next()) {
+            currentRecord = null;
+            return false;
+        }
+        
+        currentRecord = scanner.getRecord();
+        try (JsonReader recordReader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(currentRecord)))) {
+            recordReader.setLenient(true);
+            parseCurrentValue(recordReader);
+        }
+        pos = countingInputStream.getCount();
+        return true;
+    }
+    
     @Override
     public RawRecordContainer getEvent() {
         super.getEvent();
@@ -228,7 +304,7 @@ public class JsonRecordReader extends AbstractEventRecordReader<BytesWritable> {
         
         decorateEvent();
         
-        event.setRawData(currentJsonObj.toString().getBytes());
+        event.setRawData(getCurrentRawData());
         
         if (0 == event.getDate()) {
             event.setDate(System.currentTimeMillis());
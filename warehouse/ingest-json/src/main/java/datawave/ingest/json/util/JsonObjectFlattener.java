@@ -2,7 +2,10 @@ package datawave.ingest.json.util;
 
 import com.google.common.collect.Multimap;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 
+import java.io.IOException;
 import java.util.Set;
 
 /**
@@ -97,6 +100,26 @@ public interface JsonObjectFlattener {
      */
     void flatten(JsonObject object, Multimap<String,String> map) throws IllegalStateException, NullPointerException;
     
+    /**
+     * <p>
+     * Flattens the next json object from the specified reader. Implementations should consume the object's tokens directly rather than materializing a
+     * {@link JsonObject} tree first. The default implementation simply parses the object and delegates to {@link #flatten(JsonObject, Multimap)}
+     *
+     * @param reader
+     *            {@link JsonReader} positioned at the beginning of a json object
+     * @param map
+     *            {@link com.google.common.collect.Multimap} instance to receive the flattened keys and associated values
+     * @throws IOException
+     *             if the reader fails or the json is malformed
+     * @throws IllegalStateException
+     *             if {@link FlattenMode#GROUPED} is used and {@link Builder#pathDelimiter} is found to exist already within a json property name
+     * @throws NullPointerException
+     *             if map is null
+     */
+    default void flatten(JsonReader reader, Multimap<String,String> map) throws IOException, IllegalStateException, NullPointerException {
+        flatten(new JsonParser().parse(reader).getAsJsonObject(), map);
+    }
+    
     /**
      * <p>
      * Allows clients to specify custom normalization behavior per their needs to affect the final presentation of flattened keys and their values to the
@@ -1,16 +1,24 @@
 package datawave.ingest.json.util;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ForwardingMap;
+import com.google.common.collect.ForwardingMultimap;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -39,6 +47,7 @@ public class JsonObjectFlattenerImpl implements JsonObjectFlattener {
     protected final Set<String> mapKeyBlacklist;
     protected final String occurrenceDelimiter;
     protected final boolean addArrayIndexToFieldName;
+    private final ThreadLocal<FlattenJournal> journals = ThreadLocal.withInitial(FlattenJournal::new);
     
     protected JsonObjectFlattenerImpl(Builder builder) {
         this.pathDelimiter = builder.pathDelimiter;
@@ -100,6 +109,25 @@ public class JsonObjectFlattenerImpl implements JsonObjectFlattener {
         addKeysToMap("", object, map, occurrenceCounts);
     }
     
+    /**
+     * Flattens the next json object from the reader token by token, applying the same {@link FlattenMode} semantics as {@link #flatten(JsonObject, Multimap)}
+     * without building the intermediate tree. A property name repeated within the same object keeps only its last value, just as it does in the tree.
+     */
+    @Override
+    public void flatten(JsonReader reader, Multimap<String,String> map) throws IOException, IllegalStateException, NullPointerException {
+        Preconditions.checkNotNull(map, "'map' argument cannot be null");
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            throw new IllegalStateException("Expected a json object but found " + reader.peek());
+        }
+        FlattenJournal journal = journals.get();
+        journal.reset(map, this.flattenMode == FlattenMode.GROUPED || this.flattenMode == FlattenMode.GROUPED_AND_NORMAL);
+        try {
+            addKeysToMap("", reader, journal);
+        } finally {
+            journal.clear();
+        }
+    }
+    
     @Override
     public FlattenMode getFlattenMode() {
         return this.flattenMode;
@@ -160,6 +188,237 @@ public class JsonObjectFlattenerImpl implements JsonObjectFlattener {
         }
     }
     
+    /**
+     * Streaming counterpart to {@link #addKeysToMap(String, JsonElement, Multimap, Map)}, which consumes exactly one json value from the reader
+     */
+    protected void addKeysToMap(String currentPath, JsonReader reader, FlattenJournal journal) throws IOException {
+        
+        Multimap<String,String> map = journal.map;
+        Map<String,Integer> occurrenceCounts = journal.occurrenceCounts;
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            // Don't add nulls
+            reader.nextNull();
+            
+        } else if (token == JsonToken.BEGIN_OBJECT) {
+            
+            switch (this.flattenMode) {
+                case SIMPLE:
+                    if (!currentPath.isEmpty()) {
+                        // No recursion in simple mode
+                        reader.skipValue();
+                        return;
+                    }
+                    break;
+                case GROUPED:
+                case GROUPED_AND_NORMAL:
+                    if (!currentPath.isEmpty()) {
+                        // Append occurrence delimiter + ordinal suffix
+                        currentPath = currentPath + this.occurrenceDelimiter + incrementCount(currentPath, occurrenceCounts);
+                    }
+                    break;
+            }
+            
+            String pathPrefix = currentPath.isEmpty() ? currentPath : currentPath + this.pathDelimiter;
+            FlattenJournal.Members members = journal.enterObject();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                
+                // a JsonObject keeps only the last value of a repeated name, so drop whatever the earlier values added
+                journal.undo(members, name);
+                int putStart = journal.putKeys.size();
+                int countStart = journal.counts.size();
+                addKeysToMap(pathPrefix + this.nameNormalizer.normalizeElementName(name, currentPath), reader, journal);
+                members.mark(name, putStart, countStart, journal.putKeys.size(), journal.counts.size());
+            }
+            reader.endObject();
+            journal.exitObject();
+            
+        } else if (token == JsonToken.BEGIN_ARRAY) {
+            
+            reader.beginArray();
+            for (int i = 0; reader.hasNext(); i++) {
+                JsonToken elementToken = reader.peek();
+                if (isPrimitive(elementToken)) {
+                    mapPut(currentPath, nextPrimitive(reader, elementToken), map, occurrenceCounts);
+                } else {
+                    
+                    if (this.addArrayIndexToFieldName) {
+                        addKeysToMap(currentPath + this.pathDelimiter + i, reader, journal);
+                    } else {
+                        addKeysToMap(currentPath, reader, journal);
+                    }
+                }
+            }
+            reader.endArray();
+            
+        } else if (isPrimitive(token)) {
+            
+            mapPut(currentPath, nextPrimitive(reader, token), map, occurrenceCounts);
+        } else {
+            reader.skipValue();
+        }
+    }
+    
+    /**
+     * Records the entries and occurrence counts added while streaming a json object, so that the earlier values of a repeated property name can be dropped.
+     * The map entries and counts added for a property are only ever touched by that property, as their paths start with its name. A journal is reused from
+     * one record to the next, so its buffers are only ever grown and cleared rather than allocated per entry.
+     */
+    protected static class FlattenJournal {
+        private final ArrayList<String> putKeys = new ArrayList<>();
+        private final ArrayList<String> putValues = new ArrayList<>();
+        private final ArrayList<String> counts = new ArrayList<>();
+        private final Map<String,Integer> ownCounts = new HashMap<>();
+        private final List<Members> members = new ArrayList<>();
+        private int depth = 0;
+        private Multimap<String,String> delegateMap;
+        private final Multimap<String,String> map;
+        private final Map<String,Integer> countsMap;
+        private Map<String,Integer> occurrenceCounts;
+        
+        protected FlattenJournal() {
+            this.map = new ForwardingMultimap<String,String>() {
+                @Override
+                protected Multimap<String,String> delegate() {
+                    return delegateMap;
+                }
+                
+                @Override
+                public boolean put(String key, String value) {
+                    // entries that were already present belong to someone else
+                    boolean changed = delegateMap.put(key, value);
+                    if (changed) {
+                        putKeys.add(key);
+                        putValues.add(value);
+                    }
+                    return changed;
+                }
+            };
+            this.countsMap = new ForwardingMap<String,Integer>() {
+                @Override
+                protected Map<String,Integer> delegate() {
+                    return ownCounts;
+                }
+                
+                @Override
+                public Integer put(String key, Integer value) {
+                    if (!ownCounts.containsKey(key)) {
+                        counts.add(key);
+                    }
+                    return ownCounts.put(key, value);
+                }
+            };
+        }
+        
+        /**
+         * Prepare the journal to flatten a record into the specified map
+         */
+        private void reset(Multimap<String,String> delegateMap, boolean countOccurrences) {
+            clear();
+            this.delegateMap = delegateMap;
+            this.occurrenceCounts = countOccurrences ? countsMap : null;
+        }
+        
+        /**
+         * Drop everything recorded for the last record, including the reference to its map
+         */
+        private void clear() {
+            putKeys.clear();
+            putValues.clear();
+            counts.clear();
+            ownCounts.clear();
+            for (int i = 0; i < depth && i < members.size(); i++) {
+                members.get(i).clear();
+            }
+            depth = 0;
+            delegateMap = null;
+            occurrenceCounts = null;
+        }
+        
+        /**
+         * @return the (cleared) member marks for an object at the next depth
+         */
+        private Members enterObject() {
+            if (depth == members.size()) {
+                members.add(new Members());
+            }
+            return members.get(depth++);
+        }
+        
+        private void exitObject() {
+            members.get(--depth).clear();
+        }
+        
+        /**
+         * Remove the entries and counts added for an earlier value of the named member, if there was one
+         */
+        private void undo(Members objectMembers, String name) {
+            Integer slot = objectMembers.slots.get(name);
+            if (slot == null) {
+                return;
+            }
+            int offset = slot * 4;
+            int[] marks = objectMembers.marks;
+            for (int i = marks[offset]; i < marks[offset + 2]; i++) {
+                String key = putKeys.set(i, null);
+                if (key != null) {
+                    delegateMap.remove(key, putValues.set(i, null));
+                }
+            }
+            for (int i = marks[offset + 1]; i < marks[offset + 3]; i++) {
+                String key = counts.set(i, null);
+                if (key != null) {
+                    ownCounts.remove(key);
+                }
+            }
+        }
+        
+        /**
+         * The marks of the members read so far within a single json object, each being the put and count ranges that member added
+         */
+        private static class Members {
+            private final Map<String,Integer> slots = new HashMap<>();
+            private int[] marks = new int[32];
+            
+            private void mark(String name, int putStart, int countStart, int putEnd, int countEnd) {
+                Integer slot = slots.get(name);
+                if (slot == null) {
+                    slot = slots.size();
+                    slots.put(name, slot);
+                }
+                int offset = slot * 4;
+                if (offset + 4 > marks.length) {
+                    marks = Arrays.copyOf(marks, marks.length * 2);
+                }
+                marks[offset] = putStart;
+                marks[offset + 1] = countStart;
+                marks[offset + 2] = putEnd;
+                marks[offset + 3] = countEnd;
+            }
+            
+            private void clear() {
+                slots.clear();
+            }
+        }
+    }
+    
+    private static boolean isPrimitive(JsonToken token) {
+        return token == JsonToken.STRING || token == JsonToken.NUMBER || token == JsonToken.BOOLEAN;
+    }
+    
+    /**
+     * Reads a primitive value as a string, consistent with {@link JsonPrimitive#getAsString()}
+     */
+    private static String nextPrimitive(JsonReader reader, JsonToken token) throws IOException {
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(reader.nextBoolean());
+        }
+        // numbers are returned exactly as they appear in the source, just as they are by the lazily parsed number within JsonPrimitive
+        return reader.nextString();
+    }
+    
     protected String defaultNormalizeJsonElementName(String name) {
         switch (this.flattenMode) {
             case GROUPED:
@@ -0,0 +1,136 @@
+package datawave.ingest.json.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Splits a stream of json into its top-level objects without parsing them. The stream may contain a single object, an array of objects, or many objects simply
+ * concatenated together, i.e., the same layouts supported by {@link datawave.ingest.json.mr.input.JsonRecordReader}.
+ * 
+ * <p>
+ * Only structural characters outside of string literals are examined, so each record is located with a single pass over its raw bytes. The bytes of the
+ * current record are made available as-is via {@link #getRecord()}, suitable for streaming into a {@link JsonObjectFlattener} and for use as the raw data of an
+ * event.
+ */
+public class JsonObjectScanner {
+    
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    
+    private final InputStream in;
+    private final byte[] buffer;
+    private int bufferPos = 0;
+    private int bufferLimit = 0;
+    private long position = 0;
+    
+    private byte[] record = new byte[DEFAULT_BUFFER_SIZE];
+    private int recordLength = 0;
+    
+    public JsonObjectScanner(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+    
+    public JsonObjectScanner(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+    }
+    
+    /**
+     * Advances to the next top-level json object
+     * 
+     * @return true if an object was found, false if the end of the stream was reached
+     * @throws IOException
+     *             if the stream contains something other than objects at the top level, or ends within an object
+     */
+    public boolean next() throws IOException {
+        recordLength = 0;
+        
+        // skip to the start of the next object
+        int b;
+        while (true) {
+            b = read();
+            if (b < 0) {
+                return false;
+            } else if (b == '{') {
+                break;
+            } else if (!(b == ',' || b == '[' || b == ']' || Character.isWhitespace(b))) {
+                throw new IOException("Expected a json object but found '" + (char) b + "' at position " + (position - 1));
+            }
+        }
+        
+        append((byte) b);
+        int depth = 1;
+        boolean inString = false;
+        boolean escaped = false;
+        while (depth > 0) {
+            b = read();
+            if (b < 0) {
+                throw new IOException("Unexpected end of stream within a json object at position " + position);
+            }
+            append((byte) b);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    inString = false;
+                }
+            } else if (b == '"') {
+                inString = true;
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * @return a copy of the raw bytes of the current object
+     */
+    public byte[] getRecord() {
+        return Arrays.copyOf(record, recordLength);
+    }
+    
+    /**
+     * @return the internal buffer holding the raw bytes of the current object, valid from offset 0 to {@link #getRecordLength()} until the next call to
+     *         {@link #next()}
+     */
+    public byte[] getRecordBuffer() {
+        return record;
+    }
+    
+    public int getRecordLength() {
+        return recordLength;
+    }
+    
+    /**
+     * @return the number of bytes consumed from the stream so far
+     */
+    public long getPosition() {
+        return position;
+    }
+    
+    private int read() throws IOException {
+        if (bufferPos == bufferLimit) {
+            bufferLimit = in.read(buffer, 0, buffer.length);
+            bufferPos = 0;
+            if (bufferLimit <= 0) {
+                bufferLimit = 0;
+                return -1;
+            }
+        }
+        position++;
+        return buffer[bufferPos++] & 0xff;
+    }
+    
+    private void append(byte b) {
+        if (recordLength == record.length) {
+            record = Arrays.copyOf(record, record.length * 2);
+        }
+        record[recordLength++] = b;
+    }
+}
@@ -7,6 +7,8 @@ import datawave.ingest.data.RawRecordContainer;
 import datawave.ingest.data.TypeRegistry;
 
 import datawave.ingest.json.util.JsonObjectFlattener.FlattenMode;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 
@@ -22,6 +24,14 @@ import org.junit.Test;
 public class JsonRecordReaderTest {
     
     protected JsonRecordReader init(boolean parseHeaderOnly, FlattenMode mode) throws Exception {
+        return init(parseHeaderOnly, mode, false);
+    }
+    
+    protected JsonRecordReader init(boolean parseHeaderOnly, FlattenMode mode, boolean streaming) throws Exception {
+        return init(parseHeaderOnly, mode, streaming, new JsonRecordReader());
+    }
+    
+    protected JsonRecordReader init(boolean parseHeaderOnly, FlattenMode mode, boolean streaming, JsonRecordReader reader) throws Exception {
         
         Configuration conf = null;
         TaskAttemptContext ctx = null;
@@ -34,6 +44,7 @@ public class JsonRecordReaderTest {
         
         conf.set("myjson.data.json.flattener.mode", mode.name());
         conf.set("myjson.data.process.extra.fields", String.valueOf(!parseHeaderOnly));
+        conf.set("myjson.data.json.flattener.streaming", String.valueOf(streaming));
         
         URL data = JsonRecordReaderTest.class.getResource("/input/my.json");
         Assert.assertNotNull(data);
@@ -46,7 +57,6 @@ public class JsonRecordReaderTest {
         split = new FileSplit(p, 0, dataFile.length(), null);
         ctx = new TaskAttemptContextImpl(conf, new TaskAttemptID());
         
-        JsonRecordReader reader = new JsonRecordReader();
         reader.initialize(split, ctx);
         return reader;
     }
@@ -230,4 +240,51 @@ public class JsonRecordReaderTest {
         
         reader.close();
     }
+    
+    @Test
+    public void testStreamingMatchesTree() throws Exception {
+        JsonParser parser = new JsonParser();
+        for (FlattenMode mode : FlattenMode.values()) {
+            JsonRecordReader treeReader = init(false, mode, false);
+            JsonRecordReader streamingReader = init(false, mode, true);
+            treeReader.setInputDate(System.currentTimeMillis());
+            streamingReader.setInputDate(System.currentTimeMillis());
+            
+            int records = 0;
+            while (treeReader.nextKeyValue()) {
+                Assert.assertTrue(streamingReader.nextKeyValue());
+                Assert.assertNotNull(streamingReader.getEvent());
+                // the streaming reader keeps the original bytes of each record rather than re-serializing it
+                Assert.assertEquals(parser.parse(new String(treeReader.getCurrentValue().copyBytes())),
+                                parser.parse(new String(streamingReader.getCurrentValue().copyBytes())));
+                Assert.assertEquals(mode.name(), treeReader.getCurrentFields(), streamingReader.getCurrentFields());
+                records++;
+            }
+            Assert.assertFalse(streamingReader.nextKeyValue());
+            Assert.assertEquals(5, records);
+            
+            treeReader.close();
+            streamingReader.close();
+        }
+    }
+    
+    @Test
+    public void testStreamingHonorsParseCurrentValueOverride() throws Exception {
+        JsonRecordReader reader = init(false, FlattenMode.NORMAL, true, new JsonRecordReader() {
+            @Override
+            protected void parseCurrentValue(JsonObject jsonObject) {
+                super.parseCurrentValue(jsonObject);
+                currentValue.put("CUSTOM_FIELD", "custom");
+            }
+        });
+        reader.setInputDate(System.currentTimeMillis());
+        
+        int records = 0;
+        while (reader.nextKeyValue()) {
+            Assert.assertEquals(1, reader.getCurrentFields().get("CUSTOM_FIELD").size());
+            records++;
+        }
+        Assert.assertEquals(5, records);
+        reader.close();
+    }
 }
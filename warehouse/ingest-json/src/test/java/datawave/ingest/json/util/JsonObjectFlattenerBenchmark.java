@@ -0,0 +1,125 @@
+package datawave.ingest.json.util;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import datawave.ingest.json.util.JsonObjectFlattener.FlattenMode;
+
+/**
+ * <p>
+ * Compares the tree-based {@link JsonObjectFlattener#flatten(com.google.gson.JsonObject, Multimap)} path, as used by default in the json record reader and
+ * ingest helper, against the streaming {@link JsonObjectFlattener#flatten(JsonReader, Multimap)} path on generated, deeply nested records.
+ * 
+ * <p>
+ * Usage: {@code JsonObjectFlattenerBenchmark [numRecords] [iterations]}
+ */
+public class JsonObjectFlattenerBenchmark {
+    
+    public static void main(String[] args) throws IOException {
+        int numRecords = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        
+        List<byte[]> records = new ArrayList<>();
+        long totalBytes = 0;
+        Random random = new Random(42);
+        for (int i = 0; i < numRecords; i++) {
+            StringBuilder builder = new StringBuilder();
+            nestedObject(builder, random, 0);
+            byte[] record = builder.toString().getBytes();
+            records.add(record);
+            totalBytes += record.length;
+        }
+        System.out.println(numRecords + " records, " + (totalBytes / 1024) + " KB");
+        
+        for (FlattenMode mode : FlattenMode.values()) {
+            JsonObjectFlattener flattener = new JsonObjectFlattenerImpl.Builder().flattenMode(mode).addArrayIndexToFieldName(false).build();
+            // warm up both paths before measuring
+            runTree(flattener, records);
+            runStreaming(flattener, records);
+            
+            long treeNanos = 0;
+            long streamingNanos = 0;
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                runTree(flattener, records);
+                treeNanos += System.nanoTime() - start;
+                start = System.nanoTime();
+                runStreaming(flattener, records);
+                streamingNanos += System.nanoTime() - start;
+            }
+            System.out.println(String.format("%-18s tree: %8.1f MB/s   streaming: %8.1f MB/s", mode, mbPerSec(totalBytes * iterations, treeNanos),
+                            mbPerSec(totalBytes * iterations, streamingNanos)));
+        }
+    }
+    
+    private static long runTree(JsonObjectFlattener flattener, List<byte[]> records) {
+        long values = 0;
+        JsonParser parser = new JsonParser();
+        for (byte[] record : records) {
+            Multimap<String,String> fields = HashMultimap.create();
+            flattener.flatten(parser.parse(new String(record)).getAsJsonObject(), fields);
+            values += fields.size();
+        }
+        return values;
+    }
+    
+    private static long runStreaming(JsonObjectFlattener flattener, List<byte[]> records) throws IOException {
+        long values = 0;
+        for (byte[] record : records) {
+            Multimap<String,String> fields = HashMultimap.create();
+            try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(record)))) {
+                reader.setLenient(true);
+                flattener.flatten(reader, fields);
+            }
+            values += fields.size();
+        }
+        return values;
+    }
+    
+    private static double mbPerSec(long bytes, long nanos) {
+        return (bytes / (1024.0 * 1024.0)) / (nanos / 1.0e9);
+    }
+    
+    private static void nestedObject(StringBuilder builder, Random random, int depth) {
+        builder.append('{');
+        int numFields = 3 + random.nextInt(4);
+        for (int i = 0; i < numFields; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("\"field").append(i).append("\":");
+            int type = depth < 3 ? random.nextInt(4) : random.nextInt(2);
+            switch (type) {
+                case 0:
+                    builder.append('"').append(Long.toHexString(random.nextLong())).append(' ').append(Long.toHexString(random.nextLong())).append('"');
+                    break;
+                case 1:
+                    builder.append(random.nextInt(100000));
+                    break;
+                case 2:
+                    nestedObject(builder, random, depth + 1);
+                    break;
+                default:
+                    builder.append('[');
+                    int numElements = 1 + random.nextInt(2);
+                    for (int j = 0; j < numElements; j++) {
+                        if (j > 0) {
+                            builder.append(',');
+                        }
+                        nestedObject(builder, random, depth + 1);
+                    }
+                    builder.append(']');
+            }
+        }
+        builder.append('}');
+    }
+}
@@ -1,22 +1,31 @@
 package datawave.ingest.json.util;
 
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.TreeMultimap;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.StringReader;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 
 import datawave.ingest.json.util.JsonObjectFlattener.FlattenMode;
 
@@ -266,6 +275,92 @@ public class JsonObjectFlattenerImplTest {
         }
     }
     
+    @Test
+    public void testStreamingFlattenMatchesTree() throws Exception {
+        // tvmaze-api.json holds many concatenated records
+        List<String> records = new ArrayList<>();
+        records.add(json);
+        byte[] tvmaze = Files.readAllBytes(Paths.get(JsonObjectFlattenerImplTest.class.getResource("/input/tvmaze-api.json").toURI()));
+        JsonObjectScanner scanner = new JsonObjectScanner(new ByteArrayInputStream(tvmaze));
+        while (scanner.next()) {
+            records.add(new String(scanner.getRecord(), StandardCharsets.UTF_8));
+        }
+        Assert.assertTrue(records.size() > 2);
+        
+        for (FlattenMode mode : FlattenMode.values()) {
+            for (boolean addArrayIndex : new boolean[] {true, false}) {
+                JsonObjectFlattener flattener = new JsonObjectFlattenerImpl.Builder().flattenMode(mode).occurrenceInGroupDelimiter("#")
+                                .addArrayIndexToFieldName(addArrayIndex).mapKeyValueNormalizer(noOpNormalizer).build();
+                for (String record : records) {
+                    Multimap<String,String> expected = flattener.flatten(new JsonParser().parse(record).getAsJsonObject());
+                    Multimap<String,String> actual = HashMultimap.create();
+                    flattener.flatten(new JsonReader(new StringReader(record)), actual);
+                    Assert.assertEquals("Mismatch for mode " + mode + ", addArrayIndex " + addArrayIndex, expected, actual);
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testStreamingFlattenKeepsLastValueOfRepeatedName() throws Exception {
+        String record = "{\"a\": \"1\", \"b\": {\"c\": \"2\", \"c\": [\"3\", \"4\"]}, \"a\": \"5\", \"arr\": [{\"x\": \"1\"}, {\"x\": \"1\", \"x\": \"2\"}],"
+                        + " \"d\": {\"e\": {\"f\": \"6\"}}, \"g\": \"7\", \"d\": {\"e\": \"8\"}, \"a\": \"9\"}";
+        
+        for (FlattenMode mode : FlattenMode.values()) {
+            for (boolean addArrayIndex : new boolean[] {true, false}) {
+                JsonObjectFlattener flattener = new JsonObjectFlattenerImpl.Builder().flattenMode(mode).occurrenceInGroupDelimiter("#")
+                                .addArrayIndexToFieldName(addArrayIndex).mapKeyValueNormalizer(noOpNormalizer).build();
+                Multimap<String,String> expected = flattener.flatten(new JsonParser().parse(record).getAsJsonObject());
+                Multimap<String,String> actual = HashMultimap.create();
+                flattener.flatten(new JsonReader(new StringReader(record)), actual);
+                Assert.assertEquals("Mismatch for mode " + mode + ", addArrayIndex " + addArrayIndex, expected, actual);
+                Assert.assertEquals(Collections.singleton("9"), actual.get("a"));
+            }
+        }
+    }
+    
+    @Test
+    public void testStreamingFlattenSkipsNestedObjectsInSIMPLE() throws Exception {
+        JsonObjectFlattener flattener = new JsonObjectFlattenerImpl.Builder().flattenMode(FlattenMode.SIMPLE).mapKeyValueNormalizer(noOpNormalizer).build();
+        
+        Multimap<String,String> fieldMap = HashMultimap.create();
+        JsonReader reader = new JsonReader(new StringReader(json + "{\"next\": 1}"));
+        reader.setLenient(true);
+        flattener.flatten(reader, fieldMap);
+        
+        Assert.assertEquals(4, fieldMap.keySet().size());
+        Assert.assertEquals(6, fieldMap.values().size());
+        Assert.assertEquals(3, fieldMap.get("rootarray").size());
+        
+        // the reader must be left positioned at the following object
+        Assert.assertEquals(JsonToken.BEGIN_OBJECT, reader.peek());
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void testStreamingGroupingContextWithBadJson() throws Exception {
+        JsonObjectFlattener flattener = new JsonObjectFlattenerImpl.Builder().flattenMode(FlattenMode.GROUPED).occurrenceInGroupDelimiter("#").build();
+        flattener.flatten(new JsonReader(new StringReader("{\"illegal.key.format\": \"value\"}")), HashMultimap.create());
+    }
+    
+    @Test
+    public void testStreamingFlattenerRecoversAfterBadJson() throws Exception {
+        JsonObjectFlattener flattener = new JsonObjectFlattenerImpl.Builder().flattenMode(FlattenMode.GROUPED).occurrenceInGroupDelimiter("#")
+                        .mapKeyValueNormalizer(noOpNormalizer).build();
+        try {
+            flattener.flatten(new JsonReader(new StringReader("{\"a\": {\"b\": {\"illegal.key.format\": \"value\"}}}")), HashMultimap.create());
+            Assert.fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        
+        // the journal reused by the next record must not carry anything over from the failed one
+        String record = "{\"a\": {\"b\": \"1\"}, \"a\": {\"b\": \"2\"}}";
+        Multimap<String,String> expected = flattener.flatten(new JsonParser().parse(record).getAsJsonObject());
+        Multimap<String,String> actual = HashMultimap.create();
+        flattener.flatten(new JsonReader(new StringReader(record)), actual);
+        Assert.assertEquals(expected, actual);
+    }
+    
     private void printMap(Multimap<String,String> fieldMap) {
         TreeMultimap<String,String> sorted = TreeMultimap.create(fieldMap);
         for (String key : sorted.keySet()) {
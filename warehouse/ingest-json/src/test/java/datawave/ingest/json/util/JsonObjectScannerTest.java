@@ -0,0 +1,78 @@
+package datawave.ingest.json.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class JsonObjectScannerTest {
+    
+    private static JsonObjectScanner scanner(String json, int bufferSize) {
+        return new JsonObjectScanner(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), bufferSize);
+    }
+    
+    private static String record(JsonObjectScanner scanner) {
+        return new String(scanner.getRecord(), StandardCharsets.UTF_8);
+    }
+    
+    @Test
+    public void testConcatenatedObjects() throws IOException {
+        JsonObjectScanner scanner = scanner("{\"a\": 1}\n{\"b\": {\"c\": [1, 2]}}  {\"d\": \"e\"}", 4);
+        Assert.assertTrue(scanner.next());
+        Assert.assertEquals("{\"a\": 1}", record(scanner));
+        Assert.assertTrue(scanner.next());
+        Assert.assertEquals("{\"b\": {\"c\": [1, 2]}}", record(scanner));
+        Assert.assertTrue(scanner.next());
+        Assert.assertEquals("{\"d\": \"e\"}", record(scanner));
+        Assert.assertFalse(scanner.next());
+    }
+    
+    @Test
+    public void testArrayOfObjects() throws IOException {
+        JsonObjectScanner scanner = scanner("[ {\"a\": [{}]}, {\"b\": 2} ]", 1024);
+        Assert.assertTrue(scanner.next());
+        Assert.assertEquals("{\"a\": [{}]}", record(scanner));
+        Assert.assertTrue(scanner.next());
+        Assert.assertEquals("{\"b\": 2}", record(scanner));
+        Assert.assertFalse(scanner.next());
+    }
+    
+    @Test
+    public void testStructuralCharactersWithinStrings() throws IOException {
+        String json = "{\"a\": \"}{][\", \"b\\\"}\": \"\\\\\", \"\u00e9\": \"\u00fc}\"}";
+        JsonObjectScanner scanner = scanner(json + "{}", 3);
+        Assert.assertTrue(scanner.next());
+        Assert.assertEquals(json, record(scanner));
+        Assert.assertTrue(scanner.next());
+        Assert.assertEquals("{}", record(scanner));
+        Assert.assertFalse(scanner.next());
+        Assert.assertEquals(json.getBytes(StandardCharsets.UTF_8).length + 2, scanner.getPosition());
+    }
+    
+    @Test
+    public void testLargeRecordGrowsBuffer() throws IOException {
+        StringBuilder builder = new StringBuilder("{\"values\": [");
+        for (int i = 0; i < 100000; i++) {
+            builder.append(i > 0 ? "," : "").append('"').append(i).append('"');
+        }
+        builder.append("]}");
+        JsonObjectScanner scanner = scanner(builder.toString(), 1024);
+        Assert.assertTrue(scanner.next());
+        Assert.assertEquals(builder.toString(), record(scanner));
+        Assert.assertFalse(scanner.next());
+    }
+    
+    @Test(expected = IOException.class)
+    public void testTruncatedObject() throws IOException {
+        JsonObjectScanner scanner = scanner("{\"a\": {\"b\": 1}", 1024);
+        scanner.next();
+    }
+    
+    @Test(expected = IOException.class)
+    public void testNonObjectAtTopLevel() throws IOException {
+        JsonObjectScanner scanner = scanner("[1, 2]", 1024);
+        scanner.next();
+    }
+}
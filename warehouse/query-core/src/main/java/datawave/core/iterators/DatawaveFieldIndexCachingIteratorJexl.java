@@ -2,12 +2,15 @@ package datawave.core.iterators;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Multimap;
 import datawave.core.iterators.querylock.QueryLock;
 import datawave.query.Constants;
 import datawave.query.composite.CompositeMetadata;
 import datawave.query.composite.CompositeSeeker.FieldIndexCompositeSeeker;
 import datawave.query.iterator.CachingIterator;
+import datawave.query.iterator.filter.FieldIndexKeyDataTypeFilter;
 import datawave.query.exceptions.DatawaveIvaratorMaxResultsException;
 import datawave.query.iterator.ivarator.IvaratorCacheDir;
 import datawave.query.iterator.profile.QuerySpan;
@@ -27,6 +30,7 @@ import org.apache.accumulo.core.iterators.IterationInterruptedException;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.WrappingIterator;
+import org.apache.accumulo.core.security.Authorizations;
 import org.apache.commons.pool.impl.GenericObjectPool;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
@@ -47,6 +51,7 @@ import java.util.Random;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
@@ -85,6 +90,7 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         private int hdfsBackedSetBufferSize = 10000;
         private int maxOpenFiles = 100;
         private int numRetries = 2;
+        private long sharedResultsMaxKeys = 0;
         private FileSortedSet.PersistOptions persistOptions = new FileSortedSet.PersistOptions();
         private boolean sortedUIDs = true;
         protected QuerySpanCollector querySpanCollector = null;
@@ -174,6 +180,11 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
             return self();
         }
         
+        public B withSharedResultsMaxKeys(long sharedResultsMaxKeys) {
+            this.sharedResultsMaxKeys = sharedResultsMaxKeys;
+            return self();
+        }
+        
         public B withPersistOptions(FileSortedSet.PersistOptions persistOptions) {
             this.persistOptions = persistOptions;
             return self();
@@ -237,6 +248,8 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     public static final String NULL_BYTE = Constants.NULL_BYTE_STRING;
     public static final String ONE_BYTE = "\u0001";
     public static final PartialKey DEFAULT_RETURN_KEY_TYPE = PartialKey.ROW_COLFAM;
+    // the max time to wait for another query to fill a shared set before filling it ourselves
+    public static final long SHARED_RESULTS_MAX_WAIT = 1000L * 60 * 5;
     // This iterator should have no seek column families. This is because all filtering is done by the bounding FI ranges,
     // the timefilter, and the datatype filters.
     // We do not want the underlying iterators to filter keys so that we can check the bounds in this iterator as quickly
@@ -349,6 +362,11 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
     // The max number of results that can be returned from this iterator.
     private final long maxResults;
     
+    // The max number of results which may be shared with other queries on this tablet server. 0 disables sharing.
+    private final long sharedResultsMaxKeys;
+    // our reference to the shared results of the current row, if any
+    private IvaratorResultRegistry.Handle sharedResults = null;
+    
     protected CompositeMetadata compositeMetadata;
     protected FieldIndexCompositeSeeker compositeSeeker;
     protected int compositeSeekThreshold;
@@ -379,6 +397,7 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         this.hdfsBackedSetBufferSize = 10000;
         this.maxOpenFiles = 100;
         this.numRetries = 2;
+        this.sharedResultsMaxKeys = 0;
         this.maxRangeSplit = 11;
         this.maxResults = -1;
         this.persistOptions = new FileSortedSet.PersistOptions();
@@ -431,6 +450,7 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         this.hdfsBackedSetBufferSize = builder.hdfsBackedSetBufferSize;
         this.maxOpenFiles = builder.maxOpenFiles;
         this.numRetries = builder.numRetries;
+        this.sharedResultsMaxKeys = builder.sharedResultsMaxKeys;
         this.persistOptions = builder.persistOptions;
         this.maxRangeSplit = builder.maxRangeSplit;
         
@@ -473,6 +493,7 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         this.hdfsBackedSetBufferSize = other.hdfsBackedSetBufferSize;
         this.maxOpenFiles = other.maxOpenFiles;
         this.numRetries = other.numRetries;
+        this.sharedResultsMaxKeys = other.sharedResultsMaxKeys;
         this.persistOptions = other.persistOptions;
         
         this.set = other.set;
@@ -863,46 +884,60 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
             return;
         }
         
-        // for each range, fork off a runnable
-        List<Future<?>> futures = new ArrayList<>(boundingFiRanges.size());
-        if (log.isDebugEnabled()) {
-            log.debug("Processing " + boundingFiRanges + " for " + this);
-        }
-        
-        TotalResults totalResults = new TotalResults(maxResults);
-        
-        for (Range range : boundingFiRanges) {
-            if (log.isTraceEnabled()) {
-                log.trace("range -> " + range);
-            }
-            futures.add(fillSet(range, totalResults));
+        // if another query on this tablet server has filled (or is filling) the same set, then use its results
+        if (joinSharedResults(sourceRow)) {
+            moveToNextRow();
+            return;
         }
         
         boolean failed = false;
         Exception exception = null;
         Object result = null;
         
-        // wait for all of the threads to complete
-        for (Future<?> future : futures) {
-            checkTiming();
+        try {
+            // for each range, fork off a runnable
+            List<Future<?>> futures = new ArrayList<>(boundingFiRanges.size());
+            if (log.isDebugEnabled()) {
+                log.debug("Processing " + boundingFiRanges + " for " + this);
+            }
             
-            if (failed || this.setControl.isCancelledQuery()) {
-                future.cancel(false);
-            } else {
-                try {
-                    result = future.get();
-                } catch (Exception e) {
-                    exception = e;
-                    result = e;
-                }
-                if (result != null) {
-                    failed = true;
-                    this.setControl.setCancelled();
+            TotalResults totalResults = new TotalResults(maxResults);
+            
+            for (Range range : boundingFiRanges) {
+                if (log.isTraceEnabled()) {
+                    log.trace("range -> " + range);
                 }
+                futures.add(fillSet(range, totalResults));
             }
-            if (this.setControl.isCancelledQuery()) {
-                break;
+            
+            // wait for all of the threads to complete
+            for (Future<?> future : futures) {
+                checkTiming();
+                
+                if (failed || this.setControl.isCancelledQuery()) {
+                    future.cancel(false);
+                } else {
+                    try {
+                        result = future.get();
+                    } catch (Exception e) {
+                        exception = e;
+                        result = e;
+                    }
+                    if (result != null) {
+                        failed = true;
+                        this.setControl.setCancelled();
+                    }
+                }
+                if (this.setControl.isCancelledQuery()) {
+                    break;
+                }
             }
+            
+            // let any queries waiting on this set know the outcome
+            publishSharedResults();
+        } finally {
+            // if the fill threw, then release any queries waiting on this set so that they fill their own
+            abandonSharedResults();
         }
         
         if (failed) {
@@ -914,6 +949,138 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
         moveToNextRow();
     }
     
+    /**
+     * Register the set for the specified row with the {@link IvaratorResultRegistry}. If another ivarator already owns the same set, then wait for its results
+     * and use them instead of filling the set.
+     * 
+     * @param row
+     * @return true if the keys were taken from shared results
+     */
+    private boolean joinSharedResults(String row) {
+        String sharedKey = getSharedResultsKey(row);
+        if (sharedKey == null) {
+            return false;
+        }
+        
+        this.sharedResults = IvaratorResultRegistry.getInstance().acquire(sharedKey);
+        if (this.sharedResults.isOwner()) {
+            return false;
+        }
+        
+        long maxWaitTime = System.currentTimeMillis() + SHARED_RESULTS_MAX_WAIT;
+        try {
+            while (!this.sharedResults.await(1, TimeUnit.SECONDS)) {
+                checkTiming();
+                if (this.setControl.isCancelledQuery()) {
+                    // leave the keys empty, we are done
+                    return true;
+                }
+                if (System.currentTimeMillis() > maxWaitTime) {
+                    // the owner may be stuck, so stop everyone from waiting on it
+                    log.warn("Waited more than " + SHARED_RESULTS_MAX_WAIT + "ms for shared ivarator results, filling the set instead: " + this);
+                    this.sharedResults.abandon();
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IterationInterruptedException("Interrupted while waiting for shared ivarator results");
+        }
+        
+        SortedSet<Key> results = this.sharedResults.getResults();
+        if (results == null) {
+            // the owner could not share its results, so fill the set ourselves
+            this.sharedResults.close();
+            this.sharedResults = null;
+            return false;
+        }
+        
+        if (log.isDebugEnabled()) {
+            log.debug("Using " + results.size() + " shared results for " + this);
+        }
+        // the set created for this row is not needed
+        this.set = null;
+        this.threadSafeSet = results;
+        this.keys = new CachingIterator<>(results.iterator());
+        return true;
+    }
+    
+    /**
+     * Publish the filled set to any ivarators which joined it. Sets which were persisted or which are larger than the configured max are not shared, as the
+     * persisted files belong to this query's cache dirs.
+     */
+    private void publishSharedResults() {
+        if (this.sharedResults != null && this.sharedResults.isOwner()) {
+            SortedSet<Key> results = null;
+            if (!this.setControl.isCancelledQuery() && this.set != null && !this.set.hasPersistedData() && this.set.size() <= sharedResultsMaxKeys) {
+                results = ImmutableSortedSet.copyOf(this.set);
+            }
+            this.sharedResults.publish(results);
+        }
+    }
+    
+    /**
+     * Abandon the set if it was not published, as when filling it failed
+     */
+    private void abandonSharedResults() {
+        if (this.sharedResults != null && this.sharedResults.isOwner() && !this.sharedResults.isDone()) {
+            this.sharedResults.publish(null);
+        }
+    }
+    
+    /**
+     * Get the key under which the set for the specified row is shared with other ivarators on this tablet server. This includes everything which determines
+     * the contents of the set.
+     * 
+     * @param row
+     * @return the key, or null if the set cannot be shared
+     */
+    protected String getSharedResultsKey(String row) {
+        if (sharedResultsMaxKeys <= 0 || this.setControl.isCancelledQuery()) {
+            return null;
+        }
+        
+        String matchCriteria = getSharedMatchCriteria();
+        if (matchCriteria == null) {
+            return null;
+        }
+        
+        // only filters which are fully described by their string representation may be shared
+        if (datatypeFilter != null && !Predicates.alwaysTrue().equals(datatypeFilter) && datatypeFilter.getClass() != FieldIndexKeyDataTypeFilter.class) {
+            return null;
+        }
+        if (timeFilter != null && timeFilter.getClass() != TimeFilter.class) {
+            return null;
+        }
+        
+        Authorizations auths = null;
+        try {
+            auths = (initEnv == null ? null : initEnv.getAuthorizations());
+        } catch (UnsupportedOperationException e) {
+            // not running within a scan
+        }
+        if (auths == null) {
+            return null;
+        }
+        
+        StringBuilder builder = new StringBuilder();
+        builder.append(getClass().getName()).append(" row=").append(row).append(", fName=").append(fieldName).append(", fValue=").append(fieldValue)
+                        .append(", ").append(matchCriteria).append(", negated=").append(negated).append(", returnKeyType=").append(returnKeyType)
+                        .append(", maxResults=").append(maxResults).append(", ranges=").append(boundingFiRanges).append(", seeked=").append(lastRangeSeeked)
+                        .append(", datatypeFilter=").append(datatypeFilter).append(", timeFilter=").append(timeFilter).append(", auths=").append(auths);
+        return builder.toString();
+    }
+    
+    /**
+     * Describe the criteria used by {@link #matches(Key)} beyond the field name, field value, and negation. Implementations whose criteria cannot be fully
+     * described should return null, in which case their results are never shared.
+     * 
+     * @return the criteria, or null if the results cannot be shared
+     */
+    protected String getSharedMatchCriteria() {
+        return null;
+    }
+    
     private void getNextUnsortedKey() throws IOException {
         this.keys = null;
         
@@ -1221,6 +1388,10 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
      * @throws IOException
      */
     protected void clearRowBasedHdfsBackedSet() throws IOException {
+        if (this.sharedResults != null) {
+            this.sharedResults.close();
+            this.sharedResults = null;
+        }
         this.keys = null;
         this.currentRow = null;
         this.set = null;
@@ -115,6 +115,11 @@ public class DatawaveFieldIndexRangeIteratorJexl extends DatawaveFieldIndexCachi
         return builder.toString();
     }
     
+    @Override
+    protected String getSharedMatchCriteria() {
+        return "lowerInclusive=" + lowerInclusive + ", upperBound=" + upperBound + ", upperInclusive=" + upperInclusive + ", subRanges=" + subRanges;
+    }
+    
     @Override
     protected List<Range> buildBoundingFiRanges(Text rowId, Text fiName, Text fieldValue) {
         if (ANY_FINAME.equals(fiName)) {
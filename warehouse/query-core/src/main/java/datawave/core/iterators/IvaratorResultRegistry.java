@@ -0,0 +1,178 @@
+package datawave.core.iterators;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.log4j.Logger;
+
+/**
+ * A tablet server local registry of ivarator results. The first ivarator to register a key owns the fill of that key's results, and any ivarator which
+ * registers the same key while the owner is filling or while the results are still referenced will join it instead of scanning the field index again. The
+ * results are dropped when the last reference to them is closed.
+ */
+public class IvaratorResultRegistry {
+    private static final Logger log = Logger.getLogger(IvaratorResultRegistry.class);
+    
+    private static final IvaratorResultRegistry instance = new IvaratorResultRegistry();
+    
+    private final Map<String,Entry> entries = new HashMap<>();
+    
+    public static IvaratorResultRegistry getInstance() {
+        return instance;
+    }
+    
+    /**
+     * Register interest in the results for a key
+     * 
+     * @param key
+     *            a key which uniquely identifies the results
+     * @return a handle which must be closed when the results are no longer needed
+     */
+    public synchronized Handle acquire(String key) {
+        Entry entry = entries.get(key);
+        boolean owner = (entry == null);
+        if (owner) {
+            entry = new Entry(key);
+            entries.put(key, entry);
+        } else if (log.isDebugEnabled()) {
+            log.debug("Joining shared ivarator results for " + key);
+        }
+        entry.references++;
+        return new Handle(entry, owner);
+    }
+    
+    /**
+     * @return the number of keys currently registered
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    private synchronized void release(Entry entry) {
+        entry.references--;
+        if (entry.references == 0 && entries.get(entry.key) == entry) {
+            entries.remove(entry.key);
+        }
+    }
+    
+    private synchronized void abandon(Entry entry) {
+        // later registrations must not join results which will never come
+        if (entries.get(entry.key) == entry) {
+            entries.remove(entry.key);
+        }
+        entry.results.complete(null);
+    }
+    
+    private static class Entry {
+        private final String key;
+        private final CompletableFuture<SortedSet<Key>> results = new CompletableFuture<>();
+        private int references = 0;
+        
+        private Entry(String key) {
+            this.key = key;
+        }
+    }
+    
+    /**
+     * A reference to the results of a key. The owner of the key is expected to publish the results, everyone else waits for them.
+     */
+    public class Handle implements AutoCloseable {
+        private final Entry entry;
+        private final boolean owner;
+        private boolean closed = false;
+        
+        private Handle(Entry entry, boolean owner) {
+            this.entry = entry;
+            this.owner = owner;
+        }
+        
+        /**
+         * @return true if this handle is expected to fill and publish the results
+         */
+        public boolean isOwner() {
+            return owner;
+        }
+        
+        /**
+         * @return true if the results have been published or abandoned
+         */
+        public boolean isDone() {
+            return entry.results.isDone();
+        }
+        
+        /**
+         * Publish the results of the key. This may only be called by the owner.
+         * 
+         * @param results
+         *            the results, which must not be modified afterwards, or null if the results cannot be shared
+         */
+        public void publish(SortedSet<Key> results) {
+            if (!owner) {
+                throw new IllegalStateException("Only the owner may publish the results for " + entry.key);
+            }
+            if (results == null) {
+                abandon();
+            } else {
+                entry.results.complete(results);
+            }
+        }
+        
+        /**
+         * Abandon the results, so that the handles waiting for them are released and later registrations do not join them. Any handle may abandon the
+         * results, such as one which has waited too long for the owner.
+         */
+        public void abandon() {
+            IvaratorResultRegistry.this.abandon(entry);
+        }
+        
+        /**
+         * Wait for the results to be published or abandoned
+         * 
+         * @param timeout
+         *            the max time to wait
+         * @param unit
+         *            the unit of the timeout
+         * @return true if the results were published or abandoned, false if the timeout elapsed first
+         * @throws InterruptedException
+         *             if interrupted while waiting
+         */
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            try {
+                entry.results.get(timeout, unit);
+                return true;
+            } catch (TimeoutException e) {
+                return false;
+            } catch (ExecutionException e) {
+                // the results are never completed exceptionally
+                throw new IllegalStateException(e);
+            }
+        }
+        
+        /**
+         * @return the published results, or null if they are not done or were abandoned
+         */
+        public SortedSet<Key> getResults() {
+            return entry.results.getNow(null);
+        }
+        
+        /**
+         * Release this reference. If the owner has not published the results yet, then they are abandoned.
+         */
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                if (owner && !entry.results.isDone()) {
+                    abandon();
+                }
+                release(entry);
+            }
+        }
+    }
+}
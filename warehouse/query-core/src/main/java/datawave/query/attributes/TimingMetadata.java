@@ -4,7 +4,7 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
- * Holds timing information for query iterator next, source, seek, and yield counts.
+ * Holds timing information for query iterator next, source, seek, yield, term frequency, event field skip, and TLD fetch counts.
  */
 public class TimingMetadata extends Metadata {
     
@@ -12,6 +12,12 @@ public class TimingMetadata extends Metadata {
     private static final String SOURCE_COUNT = "SOURCE_COUNT";
     private static final String SEEK_COUNT = "SEEK_COUNT";
     private static final String YIELD_COUNT = "YIELD_COUNT";
+    private static final String TERM_FREQUENCY_KEY_COUNT = "TERM_FREQUENCY_KEY_COUNT";
+    private static final String TERM_FREQUENCY_DECODE_COUNT = "TERM_FREQUENCY_DECODE_COUNT";
+    private static final String SKIPPED_EVENT_KEY_COUNT = "SKIPPED_EVENT_KEY_COUNT";
+    private static final String SKIP_SEEK_COUNT = "SKIP_SEEK_COUNT";
+    private static final String TLD_PARALLEL_FETCH_COUNT = "TLD_PARALLEL_FETCH_COUNT";
+    private static final String TLD_CHILD_RANGE_COUNT = "TLD_CHILD_RANGE_COUNT";
     private static final String STAGE_TIMERS = "STAGE_TIMERS";
     private static final String HOST = "HOST";
     
@@ -68,6 +74,84 @@ public class TimingMetadata extends Metadata {
         put(YIELD_COUNT, new Numeric(yieldCount, this.getMetadata(), this.isToKeep()));
     }
     
+    public long getTermFrequencyKeyCount() {
+        Numeric numericValue = (Numeric) get(TERM_FREQUENCY_KEY_COUNT);
+        if (numericValue != null) {
+            return ((Number) numericValue.getData()).longValue();
+        } else {
+            return 0L;
+        }
+    }
+    
+    public void setTermFrequencyKeyCount(long termFrequencyKeyCount) {
+        put(TERM_FREQUENCY_KEY_COUNT, new Numeric(termFrequencyKeyCount, this.getMetadata(), this.isToKeep()));
+    }
+    
+    public long getTermFrequencyDecodeCount() {
+        Numeric numericValue = (Numeric) get(TERM_FREQUENCY_DECODE_COUNT);
+        if (numericValue != null) {
+            return ((Number) numericValue.getData()).longValue();
+        } else {
+            return 0L;
+        }
+    }
+    
+    public void setTermFrequencyDecodeCount(long termFrequencyDecodeCount) {
+        put(TERM_FREQUENCY_DECODE_COUNT, new Numeric(termFrequencyDecodeCount, this.getMetadata(), this.isToKeep()));
+    }
+    
+    public long getSkippedEventKeyCount() {
+        Numeric numericValue = (Numeric) get(SKIPPED_EVENT_KEY_COUNT);
+        if (numericValue != null) {
+            return ((Number) numericValue.getData()).longValue();
+        } else {
+            return 0L;
+        }
+    }
+    
+    public void setSkippedEventKeyCount(long skippedEventKeyCount) {
+        put(SKIPPED_EVENT_KEY_COUNT, new Numeric(skippedEventKeyCount, this.getMetadata(), this.isToKeep()));
+    }
+    
+    public long getSkipSeekCount() {
+        Numeric numericValue = (Numeric) get(SKIP_SEEK_COUNT);
+        if (numericValue != null) {
+            return ((Number) numericValue.getData()).longValue();
+        } else {
+            return 0L;
+        }
+    }
+    
+    public void setSkipSeekCount(long skipSeekCount) {
+        put(SKIP_SEEK_COUNT, new Numeric(skipSeekCount, this.getMetadata(), this.isToKeep()));
+    }
+    
+    public long getTldParallelFetchCount() {
+        Numeric numericValue = (Numeric) get(TLD_PARALLEL_FETCH_COUNT);
+        if (numericValue != null) {
+            return ((Number) numericValue.getData()).longValue();
+        } else {
+            return 0L;
+        }
+    }
+    
+    public void setTldParallelFetchCount(long tldParallelFetchCount) {
+        put(TLD_PARALLEL_FETCH_COUNT, new Numeric(tldParallelFetchCount, this.getMetadata(), this.isToKeep()));
+    }
+    
+    public long getTldChildRangeCount() {
+        Numeric numericValue = (Numeric) get(TLD_CHILD_RANGE_COUNT);
+        if (numericValue != null) {
+            return ((Number) numericValue.getData()).longValue();
+        } else {
+            return 0L;
+        }
+    }
+    
+    public void setTldChildRangeCount(long tldChildRangeCount) {
+        put(TLD_CHILD_RANGE_COUNT, new Numeric(tldChildRangeCount, this.getMetadata(), this.isToKeep()));
+    }
+    
     public void addStageTimer(String stageName, Numeric elapsed) {
         Metadata stageTimers = (Metadata) get(STAGE_TIMERS);
         if (stageTimers == null) {
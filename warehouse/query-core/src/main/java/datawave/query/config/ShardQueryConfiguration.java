@@ -19,6 +19,7 @@ import datawave.query.function.DocumentPermutation;
 import datawave.query.iterator.QueryIterator;
 import datawave.query.jexl.JexlASTHelper;
 import datawave.query.model.QueryModel;
+import datawave.query.planner.AdaptiveThresholdSelector;
 import datawave.query.tables.ShardQueryLogic;
 import datawave.query.tld.TLDQueryIterator;
 import datawave.query.util.QueryStopwatch;
@@ -269,6 +270,38 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
      * By default enable field index only evaluation (aggregation of document post evaluation)
      */
     private boolean allowFieldIndexEvaluation = true;
+    /**
+     * By default the query is interpreted for every document evaluated, instead of being compiled once
+     */
+    private boolean compiledEvaluation = false;
+    /**
+     * By default the term frequency offsets of a document are deserialized before any content function is evaluated
+     */
+    private boolean lazyTermFrequencies = false;
+    /**
+     * By default the includes of a field index intersection are joined in the order of the query
+     */
+    private boolean fieldIndexCardinalityOrdering = false;
+    /**
+     * By default field index trees are merged key by key rather than evaluated with bitmaps
+     */
+    private long bitmapIntersectionMaxKeys = 0L;
+    /**
+     * By default every field of an event is fetched, rather than only the query and projected fields with seeks past the others
+     */
+    private int eventFieldSeekThreshold = -1;
+    /**
+     * By default the children of a top level document are fetched sequentially, rather than over several ranges at once
+     */
+    private int tldChildFetchParallelism = 1;
+    /**
+     * By default the configured expansion and ivarator thresholds are used for every field, rather than scaled per field using the index stats
+     */
+    private boolean adaptiveThresholds = false;
+    /**
+     * The per field threshold scales selected by the planner when adaptive thresholds are enabled
+     */
+    private Map<String,Double> adaptiveThresholdScales = Collections.emptyMap();
     /**
      * By default enable using term frequency instead of field index when possible for value lookup
      */
@@ -303,6 +336,10 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
     private int maxFieldIndexRangeSplit = 11;
     private int ivaratorMaxOpenFiles = 100;
     private int ivaratorNumRetries = 2;
+    /**
+     * The max number of results which an ivarator may share with identical ivarators of other queries on the same tablet server. 0 disables sharing.
+     */
+    private long ivaratorSharedResultsMaxKeys = 0L;
     private boolean ivaratorPersistVerify = true;
     private int ivaratorPersistVerifyCount = 100;
     private int maxIvaratorSources = 33;
@@ -474,6 +511,14 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setContainsIndexOnlyTerms(other.isContainsIndexOnlyTerms());
         this.setContainsCompositeTerms(other.isContainsCompositeTerms());
         this.setAllowFieldIndexEvaluation(other.isAllowFieldIndexEvaluation());
+        this.setCompiledEvaluation(other.isCompiledEvaluation());
+        this.setLazyTermFrequencies(other.isLazyTermFrequencies());
+        this.setFieldIndexCardinalityOrdering(other.isFieldIndexCardinalityOrdering());
+        this.setBitmapIntersectionMaxKeys(other.getBitmapIntersectionMaxKeys());
+        this.setEventFieldSeekThreshold(other.getEventFieldSeekThreshold());
+        this.setTldChildFetchParallelism(other.getTldChildFetchParallelism());
+        this.setAdaptiveThresholds(other.isAdaptiveThresholds());
+        this.setAdaptiveThresholdScales(other.getAdaptiveThresholdScales());
         this.setAllowTermFrequencyLookup(other.isAllowTermFrequencyLookup());
         this.setExpandUnfieldedNegations(other.isExpandUnfieldedNegations());
         this.setReturnType(other.getReturnType());
@@ -502,6 +547,7 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setMaxFieldIndexRangeSplit(other.getMaxFieldIndexRangeSplit());
         this.setIvaratorMaxOpenFiles(other.getIvaratorMaxOpenFiles());
         this.setIvaratorNumRetries(other.getIvaratorNumRetries());
+        this.setIvaratorSharedResultsMaxKeys(other.getIvaratorSharedResultsMaxKeys());
         this.setIvaratorPersistVerify(other.isIvaratorPersistVerify());
         this.setIvaratorPersistVerifyCount(other.getIvaratorPersistVerifyCount());
         this.setMaxIvaratorSources(other.getMaxIvaratorSources());
@@ -1260,6 +1306,14 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.ivaratorNumRetries = ivaratorNumRetries;
     }
     
+    public long getIvaratorSharedResultsMaxKeys() {
+        return ivaratorSharedResultsMaxKeys;
+    }
+    
+    public void setIvaratorSharedResultsMaxKeys(long ivaratorSharedResultsMaxKeys) {
+        this.ivaratorSharedResultsMaxKeys = ivaratorSharedResultsMaxKeys;
+    }
+    
     public boolean isIvaratorPersistVerify() {
         return ivaratorPersistVerify;
     }
@@ -1698,6 +1752,118 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.allowFieldIndexEvaluation = allowFieldIndexEvaluation;
     }
     
+    public boolean isCompiledEvaluation() {
+        return compiledEvaluation;
+    }
+    
+    public void setCompiledEvaluation(boolean compiledEvaluation) {
+        this.compiledEvaluation = compiledEvaluation;
+    }
+    
+    public boolean isLazyTermFrequencies() {
+        return lazyTermFrequencies;
+    }
+    
+    public void setLazyTermFrequencies(boolean lazyTermFrequencies) {
+        this.lazyTermFrequencies = lazyTermFrequencies;
+    }
+    
+    public boolean isFieldIndexCardinalityOrdering() {
+        return fieldIndexCardinalityOrdering;
+    }
+    
+    public void setFieldIndexCardinalityOrdering(boolean fieldIndexCardinalityOrdering) {
+        this.fieldIndexCardinalityOrdering = fieldIndexCardinalityOrdering;
+    }
+    
+    public long getBitmapIntersectionMaxKeys() {
+        return bitmapIntersectionMaxKeys;
+    }
+    
+    public void setBitmapIntersectionMaxKeys(long bitmapIntersectionMaxKeys) {
+        this.bitmapIntersectionMaxKeys = bitmapIntersectionMaxKeys;
+    }
+    
+    public int getEventFieldSeekThreshold() {
+        return eventFieldSeekThreshold;
+    }
+    
+    public void setEventFieldSeekThreshold(int eventFieldSeekThreshold) {
+        this.eventFieldSeekThreshold = eventFieldSeekThreshold;
+    }
+    
+    public int getTldChildFetchParallelism() {
+        return tldChildFetchParallelism;
+    }
+    
+    public void setTldChildFetchParallelism(int tldChildFetchParallelism) {
+        this.tldChildFetchParallelism = tldChildFetchParallelism;
+    }
+    
+    public boolean isAdaptiveThresholds() {
+        return adaptiveThresholds;
+    }
+    
+    public void setAdaptiveThresholds(boolean adaptiveThresholds) {
+        this.adaptiveThresholds = adaptiveThresholds;
+    }
+    
+    public Map<String,Double> getAdaptiveThresholdScales() {
+        return adaptiveThresholdScales;
+    }
+    
+    public void setAdaptiveThresholdScales(Map<String,Double> adaptiveThresholdScales) {
+        this.adaptiveThresholdScales = Collections.unmodifiableMap(new HashMap<>(adaptiveThresholdScales));
+    }
+    
+    /**
+     * @param field
+     * @return the max value expansion threshold for the field, scaled if an adaptive threshold was selected for it
+     */
+    public int getMaxValueExpansionThreshold(String field) {
+        return AdaptiveThresholdSelector.scale(maxValueExpansionThreshold, adaptiveThresholdScales.get(field));
+    }
+    
+    /**
+     * @param field
+     * @return the max OR expansion threshold for the field, scaled if an adaptive threshold was selected for it
+     */
+    public int getMaxOrExpansionThreshold(String field) {
+        return AdaptiveThresholdSelector.scale(maxOrExpansionThreshold, adaptiveThresholdScales.get(field));
+    }
+    
+    /**
+     * @param field
+     * @return the ivarator scan persist threshold for the field, scaled if an adaptive threshold was selected for it
+     */
+    public long getIvaratorCacheScanPersistThreshold(String field) {
+        return AdaptiveThresholdSelector.scale(ivaratorCacheScanPersistThreshold, adaptiveThresholdScales.get(field));
+    }
+    
+    /**
+     * @return the max value expansion threshold of each field with an adaptive threshold
+     */
+    @JsonIgnore
+    public Map<String,Integer> getFieldMaxValueExpansionThresholds() {
+        Map<String,Integer> thresholds = new HashMap<>();
+        for (String field : adaptiveThresholdScales.keySet()) {
+            thresholds.put(field, getMaxValueExpansionThreshold(field));
+        }
+        return thresholds;
+    }
+    
+    /**
+     * @return the ivarator scan persist threshold of each field with an adaptive threshold
+     */
+    @JsonIgnore
+    public Map<String,Long> getFieldIvaratorCacheScanPersistThresholds() {
+        Map<String,Long> thresholds = new HashMap<>();
+        for (String field : adaptiveThresholdScales.keySet()) {
+            thresholds.put(field, getIvaratorCacheScanPersistThreshold(field));
+        }
+        return thresholds;
+    }
+    
     public boolean isAllowTermFrequencyLookup() {
         return allowTermFrequencyLookup;
     }
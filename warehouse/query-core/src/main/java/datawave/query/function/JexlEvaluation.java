@@ -2,6 +2,7 @@ package datawave.query.function;
 
 import datawave.query.attributes.Attributes;
 import datawave.query.jexl.ArithmeticJexlEngines;
+import datawave.query.jexl.CompiledJexlScript;
 import datawave.query.jexl.DefaultArithmetic;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.security.ColumnVisibility;
@@ -33,11 +34,28 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
      */
     protected Script script;
     
+    /**
+     * The query compiled into evaluators, or null if the script is interpreted
+     */
+    protected CompiledJexlScript compiledScript;
+    
     public JexlEvaluation(String query) {
         this(query, new DefaultArithmetic());
     }
     
     public JexlEvaluation(String query, JexlArithmetic arithmetic) {
+        this(query, arithmetic, false);
+    }
+    
+    /**
+     * @param query
+     *            the query
+     * @param arithmetic
+     *            the arithmetic with which the query is evaluated
+     * @param compiled
+     *            whether to compile the query once instead of interpreting it for every document
+     */
+    public JexlEvaluation(String query, JexlArithmetic arithmetic, boolean compiled) {
         this.query = query;
         this.arithmetic = arithmetic;
         
@@ -46,12 +64,20 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
         
         // Evaluate the JexlContext against the Script
         this.script = this.engine.createScript(this.query);
+        
+        if (compiled) {
+            this.compiledScript = CompiledJexlScript.compile(this.engine, this.query);
+        }
     }
     
     public JexlArithmetic getArithmetic() {
         return arithmetic;
     }
     
+    public boolean isCompiled() {
+        return compiledScript != null;
+    }
+    
     public DatawaveJexlEngine getEngine() {
         return engine;
     }
@@ -67,7 +93,7 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
     @Override
     public boolean apply(Tuple3<Key,Document,DatawaveJexlContext> input) {
         
-        Object o = script.execute(input.third());
+        Object o = compiledScript != null ? compiledScript.execute(input.third()) : script.execute(input.third());
         
         if (log.isTraceEnabled()) {
             log.trace("Evaluation of " + query + " against " + input.third() + " returned " + o);
@@ -18,6 +18,7 @@ import datawave.query.attributes.Document;
 import datawave.query.exceptions.DatawaveFatalQueryException;
 import datawave.query.iterator.QueryOptions;
 import datawave.query.iterator.aggregation.DocumentData;
+import datawave.query.iterator.profile.QuerySpan;
 import datawave.query.predicate.EventDataQueryFilter;
 import datawave.query.util.Tuple3;
 import datawave.webservice.query.exception.DatawaveErrorCode;
@@ -58,10 +59,12 @@ public class KeyToDocumentData implements Function<Entry<Key,Document>,Entry<Doc
     
     protected Equality equality;
     
-    private EventDataQueryFilter filter;
+    protected EventDataQueryFilter filter;
     
     private boolean includeParent = false;
     
+    protected QuerySpan querySpan = null;
+    
     public KeyToDocumentData(SortedKeyValueIterator<Key,Value> source) {
         this(source, new PrefixEquality(PartialKey.ROW_COLFAM), false, false);
     }
@@ -99,6 +102,14 @@ public class KeyToDocumentData implements Function<Entry<Key,Document>,Entry<Doc
         }
     }
     
+    /**
+     * @param querySpan
+     *            the span to which the number of event keys skipped by the filter is reported, may be null
+     */
+    public void setQuerySpan(QuerySpan querySpan) {
+        this.querySpan = querySpan;
+    }
+    
     /**
      * Append hierarchy fields, including parent and descendant counts, based on the specified range and key
      * 
@@ -161,7 +172,7 @@ public class KeyToDocumentData implements Function<Entry<Key,Document>,Entry<Doc
      * @return
      */
     public List<Entry<Key,Value>> collectDocumentAttributes(final Key documentStartKey, final Set<Key> docKeys, final Range keyRange) throws IOException {
-        return collectAttributesForDocumentKey(documentStartKey, source, equality, filter, docKeys, keyRange);
+        return collectAttributesForDocumentKey(documentStartKey, source, equality, filter, docKeys, keyRange, querySpan);
     }
     
     /**
@@ -174,8 +185,8 @@ public class KeyToDocumentData implements Function<Entry<Key,Document>,Entry<Doc
      *            the Range used to initialize source with seek()
      * @return the attributes
      */
-    private static List<Entry<Key,Value>> collectAttributesForDocumentKey(Key documentStartKey, SortedKeyValueIterator<Key,Value> source, Equality equality,
-                    EventDataQueryFilter filter, Set<Key> docKeys, Range keyRange) throws IOException {
+    protected static List<Entry<Key,Value>> collectAttributesForDocumentKey(Key documentStartKey, SortedKeyValueIterator<Key,Value> source, Equality equality,
+                    EventDataQueryFilter filter, Set<Key> docKeys, Range keyRange, QuerySpan querySpan) throws IOException {
         
         // setup the document key we are filtering for on the EventDataQueryFilter
         if (filter != null) {
@@ -188,6 +199,8 @@ public class KeyToDocumentData implements Function<Entry<Key,Document>,Entry<Doc
         } else {
             documentAttributes = new ArrayList<>(256);
             WeakReference<Key> docAttrKey = new WeakReference<>(source.getTopKey());
+            long skippedKeys = 0;
+            long skipSeeks = 0;
             
             while (docAttrKey != null) {
                 boolean seeked = false;
@@ -199,6 +212,7 @@ public class KeyToDocumentData implements Function<Entry<Key,Document>,Entry<Doc
                     if (filter == null || filter.apply(Maps.immutableEntry(docAttrKey.get(), StringUtils.EMPTY))) {
                         documentAttributes.add(Maps.immutableEntry(docAttrKey.get(), source.getTopValue()));
                     } else if (filter != null) {
+                        skippedKeys++;
                         Key limitKey = filter.transform(docAttrKey.get());
                         if (limitKey != null) {
                             documentAttributes.add(Maps.immutableEntry(limitKey, EMPTY_VALUE));
@@ -208,6 +222,7 @@ public class KeyToDocumentData implements Function<Entry<Key,Document>,Entry<Doc
                         if (seekRange != null) {
                             source.seek(seekRange, columnFamilies, inclusive);
                             seeked = true;
+                            skipSeeks++;
                         }
                     }
                 }
@@ -224,6 +239,11 @@ public class KeyToDocumentData implements Function<Entry<Key,Document>,Entry<Doc
                 }
                 
             }
+            
+            if (querySpan != null && (skippedKeys > 0 || skipSeeks > 0)) {
+                querySpan.skippedEventKeys(skippedKeys);
+                querySpan.skipSeeks(skipSeeks);
+            }
         }
         
         return documentAttributes;
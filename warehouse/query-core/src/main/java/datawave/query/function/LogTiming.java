@@ -57,6 +57,12 @@ public class LogTiming implements Function<Entry<Key,Document>,Entry<Key,Documen
                 } else {
                     timingMetadata.setYieldCount(0L);
                 }
+                timingMetadata.setTermFrequencyKeyCount(querySpan.getTermFrequencyKeyCount());
+                timingMetadata.setTermFrequencyDecodeCount(querySpan.getTermFrequencyDecodeCount());
+                timingMetadata.setSkippedEventKeyCount(querySpan.getSkippedEventKeyCount());
+                timingMetadata.setSkipSeekCount(querySpan.getSkipSeekCount());
+                timingMetadata.setTldParallelFetchCount(querySpan.getTldParallelFetchCount());
+                timingMetadata.setTldChildRangeCount(querySpan.getTldChildRangeCount());
                 
                 long totalStageTimers = querySpan.getStageTimerTotal();
                 // do not report timers that are less than 5% of the total
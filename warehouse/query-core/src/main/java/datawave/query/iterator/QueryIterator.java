@@ -39,8 +39,10 @@ import datawave.query.function.deserializer.KryoDocumentDeserializer;
 import datawave.query.function.serializer.KryoDocumentSerializer;
 import datawave.query.function.serializer.ToStringDocumentSerializer;
 import datawave.query.function.serializer.WritableDocumentSerializer;
+import datawave.query.index.lookup.TupleToRange;
 import datawave.query.iterator.aggregation.DocumentData;
 import datawave.query.iterator.ivarator.IvaratorCacheDirConfig;
+import datawave.query.iterator.logic.BitmapIterator;
 import datawave.query.iterator.pipeline.PipelineFactory;
 import datawave.query.iterator.pipeline.PipelineIterator;
 import datawave.query.iterator.profile.EvaluationTrackingFunction;
@@ -65,6 +67,8 @@ import datawave.query.jexl.visitors.SatisfactionVisitor;
 import datawave.query.jexl.visitors.VariableNameVisitor;
 import datawave.query.postprocessing.tf.TFFactory;
 import datawave.query.predicate.EmptyDocumentFilter;
+import datawave.query.predicate.EventDataQueryFieldFilter;
+import datawave.query.predicate.EventDataQueryFilter;
 import datawave.query.statsd.QueryStatsDClient;
 import datawave.query.tracking.ActiveQuery;
 import datawave.query.tracking.ActiveQueryLog;
@@ -78,6 +82,7 @@ import datawave.query.util.Tuple3;
 import datawave.query.util.TupleToEntry;
 import datawave.query.util.TypeMetadata;
 import datawave.util.StringUtils;
+import datawave.util.UniversalSet;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
@@ -114,6 +119,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -246,7 +252,7 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
         // Parse the query
         try {
             this.script = JexlASTHelper.parseJexlQuery(this.getQuery());
-            this.myEvaluationFunction = new JexlEvaluation(this.getQuery(), arithmetic);
+            this.myEvaluationFunction = new JexlEvaluation(this.getQuery(), arithmetic, isCompiledEvaluation());
             
         } catch (Exception e) {
             throw new IOException("Could not parse the JEXL query: '" + this.getQuery() + "'", e);
@@ -861,8 +867,7 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
                 }
             };
         } else {
-            docMapper = new KeyToDocumentData(deepSourceCopy, myEnvironment, documentOptions, super.equality, getEvaluationFilter(),
-                            this.includeHierarchyFields, this.includeHierarchyFields);
+            docMapper = getKeyToDocumentData(deepSourceCopy, trackingSpan);
         }
         
         Iterator<Entry<DocumentData,Document>> sourceIterator = Iterators.transform(documentSpecificSource, from -> {
@@ -904,7 +909,7 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
         
         if (gatherTimingDetails()) {
             documents = new EvaluationTrackingIterator(QuerySpan.Stage.DocumentEvaluation, trackingSpan, getEvaluation(documentSpecificSource, deepSourceCopy,
-                            documents, compositeMetadata, typeMetadataWithNonIndexed, columnFamilies, inclusive));
+                            documents, compositeMetadata, typeMetadataWithNonIndexed, columnFamilies, inclusive, trackingSpan));
         } else {
             documents = getEvaluation(documentSpecificSource, deepSourceCopy, documents, compositeMetadata, typeMetadataWithNonIndexed, columnFamilies,
                             inclusive);
@@ -1003,6 +1008,12 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
     protected Iterator<Entry<Key,Document>> getEvaluation(NestedQueryIterator<Key> documentSource, SortedKeyValueIterator<Key,Value> sourceDeepCopy,
                     Iterator<Entry<Key,Document>> documents, CompositeMetadata compositeMetadata, TypeMetadata typeMetadataForEval,
                     Collection<ByteSequence> columnFamilies, boolean inclusive) {
+        return getEvaluation(documentSource, sourceDeepCopy, documents, compositeMetadata, typeMetadataForEval, columnFamilies, inclusive, null);
+    }
+    
+    protected Iterator<Entry<Key,Document>> getEvaluation(NestedQueryIterator<Key> documentSource, SortedKeyValueIterator<Key,Value> sourceDeepCopy,
+                    Iterator<Entry<Key,Document>> documents, CompositeMetadata compositeMetadata, TypeMetadata typeMetadataForEval,
+                    Collection<ByteSequence> columnFamilies, boolean inclusive, QuerySpan trackingSpan) {
         // Filter the Documents by testing them against the JEXL query
         if (!this.disableEvaluation) {
             
@@ -1027,7 +1038,8 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
                 
                 Function<Tuple2<Key,Document>,Tuple3<Key,Document,Map<String,Object>>> tfFunction;
                 tfFunction = TFFactory.getFunction(getScript(documentSource), getContentExpansionFields(), getTermFrequencyFields(), this.getTypeMetadata(),
-                                super.equality, getEvaluationFilter(), sourceDeepCopy.deepCopy(myEnvironment), tfIndexOnlyFields);
+                                super.equality, getEvaluationFilter(), sourceDeepCopy.deepCopy(myEnvironment), tfIndexOnlyFields, isLazyTermFrequencies(),
+                                trackingSpan);
                 
                 itrWithContext = TraceIterators.transform(tupleItr, tfFunction, "Term Frequency Lookup");
             } else {
@@ -1080,16 +1092,16 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
     protected JexlEvaluation getJexlEvaluation(NestedQueryIterator<Key> documentSource) {
         
         if (null == documentSource) {
-            return new JexlEvaluation(query, getArithmetic());
+            return new JexlEvaluation(query, getArithmetic(), isCompiledEvaluation());
         }
         JexlEvaluation jexlEvaluationFunction = null;
         NestedQuery<Key> nestedQuery = documentSource.getNestedQuery();
         if (null == nestedQuery) {
-            jexlEvaluationFunction = new JexlEvaluation(query, getArithmetic());
+            jexlEvaluationFunction = new JexlEvaluation(query, getArithmetic(), isCompiledEvaluation());
         } else {
             jexlEvaluationFunction = nestedQuery.getEvaluation();
             if (null == jexlEvaluationFunction) {
-                return new JexlEvaluation(query, getArithmetic());
+                return new JexlEvaluation(query, getArithmetic(), isCompiledEvaluation());
             }
         }
         return jexlEvaluationFunction;
@@ -1104,6 +1116,47 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
         return myArithmetic;
     }
     
+    /**
+     * Create the function which fetches the event keys of a document
+     *
+     * @param deepSourceCopy
+     *            the source to fetch from
+     * @param trackingSpan
+     *            the span to report to, may be null
+     * @return the function
+     */
+    protected KeyToDocumentData getKeyToDocumentData(SortedKeyValueIterator<Key,Value> deepSourceCopy, QuerySpan trackingSpan) {
+        KeyToDocumentData keyToDocumentData = new KeyToDocumentData(deepSourceCopy, this.myEnvironment, this.documentOptions, super.equality,
+                        getDocumentFetchFilter(), this.includeHierarchyFields, this.includeHierarchyFields);
+        keyToDocumentData.setQuerySpan(trackingSpan);
+        return keyToDocumentData;
+    }
+    
+    /**
+     * Get the filter used to fetch the event keys of a document. This is the evaluation filter if there is one. Otherwise, if the results are projected onto a
+     * whitelist and an event field seek threshold is set, only the fields needed to evaluate, transform and return the document are fetched.
+     *
+     * @return the filter, or null to fetch every event key
+     */
+    protected EventDataQueryFilter getDocumentFetchFilter() {
+        EventDataQueryFilter filter = getEvaluationFilter();
+        if (filter != null || script == null || eventFieldSeekThreshold < 0 || !projectResults || !useWhiteListedFields
+                        || whiteListedFields instanceof UniversalSet) {
+            return filter;
+        }
+        
+        Set<String> fields = new HashSet<>(whiteListedFields);
+        fields.addAll(getGroupFields());
+        fields.addAll(getUniqueFields());
+        // composite fields are built from their components
+        if (compositeMetadata != null) {
+            for (Multimap<String,String> compositeFieldMap : compositeMetadata.getCompositeFieldMapByType().values()) {
+                fields.addAll(compositeFieldMap.values());
+            }
+        }
+        return new EventDataQueryFieldFilter(script, getNonEventFields(), fields, eventFieldSeekThreshold);
+    }
+    
     protected ASTJexlScript getScript(NestedQueryIterator<Key> documentSource) {
         if (null == documentSource) {
             return script;
@@ -1127,8 +1180,7 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
             log.trace("mapDocument " + fieldIndexSatisfiesQuery);
         }
         if (fieldIndexSatisfiesQuery) {
-            final KeyToDocumentData docMapper = new KeyToDocumentData(deepSourceCopy, this.myEnvironment, this.documentOptions, super.equality,
-                            getEvaluationFilter(), this.includeHierarchyFields, this.includeHierarchyFields);
+            final KeyToDocumentData docMapper = getKeyToDocumentData(deepSourceCopy, trackingSpan);
             Iterator<Tuple2<Key,Document>> mappedDocuments = Iterators.transform(
                             documents,
                             new GetDocument(docMapper, new Aggregation(this.getTimeFilter(), typeMetadataWithNonIndexed, compositeMetadata, this
@@ -1383,6 +1435,10 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
             
             sourceIter = visitor.root();
             
+            if (sourceIter != null && getBitmapIntersectionMaxKeys() > 0 && BitmapIterator.isSupported(sourceIter)) {
+                sourceIter = new BitmapIterator<>(sourceIter, getBitmapIntersectionMaxKeys());
+            }
+            
             if (visitor.isQueryFullySatisfied()) {
                 this.fieldIndexSatisfiesQuery = true;
             }
@@ -1450,10 +1506,12 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
                 .setHdfsFileCompressionCodec(this.getHdfsFileCompressionCodec())
                 .setIvaratorCacheBufferSize(this.getIvaratorCacheBufferSize())
                 .setIvaratorCacheScanPersistThreshold(this.getIvaratorCacheScanPersistThreshold())
+                .setIvaratorCacheScanPersistFieldThresholds(this.getIvaratorCacheScanPersistFieldThresholds())
                 .setIvaratorCacheScanTimeout(this.getIvaratorCacheScanTimeout())
                 .setMaxRangeSplit(this.getMaxIndexRangeSplit())
                 .setIvaratorMaxOpenFiles(this.getIvaratorMaxOpenFiles())
                 .setIvaratorNumRetries(this.getIvaratorNumRetries())
+                .setIvaratorSharedResultsMaxKeys(this.getIvaratorSharedResultsMaxKeys())
                 .setIvaratorPersistOptions(this.getIvaratorPersistOptions())
                 .setUnsortedIvaratorSource(this.sourceForDeepCopies)
                 .setIvaratorSourcePool(createIvaratorSourcePool(this.maxIvaratorSources))
@@ -1470,11 +1528,28 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
                 .setIndexOnlyFields(this.getAllIndexOnlyFields())
                 .setAllowTermFrequencyLookup(this.allowTermFrequencyLookup)
                 .setCompositeMetadata(compositeMetadata)
-                .setExceededOrEvaluationCache(exceededOrEvaluationCache);
+                .setExceededOrEvaluationCache(exceededOrEvaluationCache)
+                .setCardinalityShard(getCardinalityShard(documentRange));
         // @formatter:on
         // TODO: .setStatsPort(this.statsdHostAndPort);
     }
     
+    /**
+     * Get the shard whose field index counts order the includes of the field index intersections. They are only ordered for a range over a single shard, as
+     * the counts say nothing of the keys within a document or of the keys of other shards in a day range.
+     *
+     * @param documentRange
+     *            the document specific range, or null
+     * @return the row of the shard, or null if the includes are left in the order of the query
+     */
+    protected Text getCardinalityShard(Range documentRange) {
+        if (!isFieldIndexCardinalityOrdering() || documentRange != null || range == null || range.getStartKey() == null) {
+            return null;
+        }
+        Text row = range.getStartKey().getRow();
+        return TupleToRange.isShardRange(row.toString()) ? row : null;
+    }
+    
     protected GenericObjectPool<SortedKeyValueIterator<Key,Value>> createIvaratorSourcePool(int maxIvaratorSources) {
         return new GenericObjectPool<>(createIvaratorSourceFactory(this), createIvaratorSourcePoolConfig(maxIvaratorSources));
     }
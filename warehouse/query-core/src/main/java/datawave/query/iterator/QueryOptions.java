@@ -190,6 +190,18 @@ public class QueryOptions implements OptionDescriber {
     
     public static final String ALLOW_TERM_FREQUENCY_LOOKUP = "allow.term.frequency.lookup";
     
+    public static final String COMPILED_EVALUATION = "compiled.evaluation";
+    
+    public static final String LAZY_TERM_FREQUENCIES = "lazy.term.frequencies";
+    
+    public static final String FIELD_INDEX_CARDINALITY_ORDERING = "field.index.cardinality.ordering";
+    
+    public static final String BITMAP_INTERSECTION_MAX_KEYS = "bitmap.intersection.max.keys";
+    
+    public static final String EVENT_FIELD_SEEK_THRESHOLD = "event.field.seek.threshold";
+    
+    public static final String TLD_CHILD_FETCH_PARALLELISM = "tld.child.fetch.parallelism";
+    
     public static final String HDFS_SITE_CONFIG_URLS = "hdfs.site.config.urls";
     
     public static final String HDFS_FILE_COMPRESSION_CODEC = "hdfs.file.compression.codec";
@@ -202,6 +214,8 @@ public class QueryOptions implements OptionDescriber {
     
     public static final String IVARATOR_SCAN_PERSIST_THRESHOLD = "ivarator.scan.persist.threshold";
     
+    public static final String IVARATOR_SCAN_PERSIST_FIELD_THRESHOLDS = "ivarator.scan.persist.field.thresholds";
+    
     public static final String IVARATOR_SCAN_TIMEOUT = "ivarator.scan.timeout";
     
     public static final String QUERY_MAPPING_COMPRESS = "query.mapping.compress";
@@ -212,6 +226,8 @@ public class QueryOptions implements OptionDescriber {
     
     public static final String IVARATOR_NUM_RETRIES = "ivarator.num.retries";
     
+    public static final String IVARATOR_SHARED_RESULTS_MAX_KEYS = "ivarator.shared.results.max.keys";
+    
     public static final String IVARATOR_PERSIST_VERIFY = "ivarator.persist.verify";
     
     public static final String IVARATOR_PERSIST_VERIFY_COUNT = "ivarator.persist.verify.count";
@@ -318,6 +334,18 @@ public class QueryOptions implements OptionDescriber {
     
     protected boolean allowTermFrequencyLookup = true;
     
+    protected boolean compiledEvaluation = false;
+    
+    protected boolean lazyTermFrequencies = false;
+    
+    protected boolean fieldIndexCardinalityOrdering = false;
+    
+    protected long bitmapIntersectionMaxKeys = 0L;
+    
+    protected int eventFieldSeekThreshold = -1;
+    
+    protected int tldChildFetchParallelism = 1;
+    
     protected String hdfsSiteConfigURLs = null;
     protected String hdfsFileCompressionCodec = null;
     protected FileSystemCache fsCache = null;
@@ -326,12 +354,14 @@ public class QueryOptions implements OptionDescriber {
     
     protected List<IvaratorCacheDirConfig> ivaratorCacheDirConfigs = Collections.emptyList();
     protected long ivaratorCacheScanPersistThreshold = 100000L;
+    protected Map<String,Long> ivaratorCacheScanPersistFieldThresholds = Collections.emptyMap();
     protected long ivaratorCacheScanTimeout = 1000L * 60 * 60;
     protected int ivaratorCacheBufferSize = 10000;
     
     protected int maxIndexRangeSplit = 11;
     protected int ivaratorMaxOpenFiles = 100;
     protected int ivaratorNumRetries = 2;
+    protected long ivaratorSharedResultsMaxKeys = 0;
     protected FileSortedSet.PersistOptions ivaratorPersistOptions = new FileSortedSet.PersistOptions();
     
     protected int maxIvaratorSources = 33;
@@ -451,6 +481,7 @@ public class QueryOptions implements OptionDescriber {
         this.hdfsSiteConfigURLs = other.hdfsSiteConfigURLs;
         this.ivaratorCacheBufferSize = other.ivaratorCacheBufferSize;
         this.ivaratorCacheScanPersistThreshold = other.ivaratorCacheScanPersistThreshold;
+        this.ivaratorCacheScanPersistFieldThresholds = other.ivaratorCacheScanPersistFieldThresholds;
         this.ivaratorCacheScanTimeout = other.ivaratorCacheScanTimeout;
         this.hdfsFileCompressionCodec = other.hdfsFileCompressionCodec;
         this.maxIndexRangeSplit = other.maxIndexRangeSplit;
@@ -761,6 +792,54 @@ public class QueryOptions implements OptionDescriber {
         this.allowFieldIndexEvaluation = allowFieldIndexEvaluation;
     }
     
+    public boolean isCompiledEvaluation() {
+        return compiledEvaluation;
+    }
+    
+    public void setCompiledEvaluation(boolean compiledEvaluation) {
+        this.compiledEvaluation = compiledEvaluation;
+    }
+    
+    public boolean isLazyTermFrequencies() {
+        return lazyTermFrequencies;
+    }
+    
+    public void setLazyTermFrequencies(boolean lazyTermFrequencies) {
+        this.lazyTermFrequencies = lazyTermFrequencies;
+    }
+    
+    public boolean isFieldIndexCardinalityOrdering() {
+        return fieldIndexCardinalityOrdering;
+    }
+    
+    public void setFieldIndexCardinalityOrdering(boolean fieldIndexCardinalityOrdering) {
+        this.fieldIndexCardinalityOrdering = fieldIndexCardinalityOrdering;
+    }
+    
+    public long getBitmapIntersectionMaxKeys() {
+        return bitmapIntersectionMaxKeys;
+    }
+    
+    public void setBitmapIntersectionMaxKeys(long bitmapIntersectionMaxKeys) {
+        this.bitmapIntersectionMaxKeys = bitmapIntersectionMaxKeys;
+    }
+    
+    public int getEventFieldSeekThreshold() {
+        return eventFieldSeekThreshold;
+    }
+    
+    public void setEventFieldSeekThreshold(int eventFieldSeekThreshold) {
+        this.eventFieldSeekThreshold = eventFieldSeekThreshold;
+    }
+    
+    public int getTldChildFetchParallelism() {
+        return tldChildFetchParallelism;
+    }
+    
+    public void setTldChildFetchParallelism(int tldChildFetchParallelism) {
+        this.tldChildFetchParallelism = tldChildFetchParallelism;
+    }
+    
     public boolean isAllowTermFrequencyLookup() {
         return allowTermFrequencyLookup;
     }
@@ -830,6 +909,14 @@ public class QueryOptions implements OptionDescriber {
         this.ivaratorCacheScanPersistThreshold = ivaratorCacheScanPersistThreshold;
     }
     
+    public Map<String,Long> getIvaratorCacheScanPersistFieldThresholds() {
+        return ivaratorCacheScanPersistFieldThresholds;
+    }
+    
+    public void setIvaratorCacheScanPersistFieldThresholds(Map<String,Long> ivaratorCacheScanPersistFieldThresholds) {
+        this.ivaratorCacheScanPersistFieldThresholds = ivaratorCacheScanPersistFieldThresholds;
+    }
+    
     public long getIvaratorCacheScanTimeout() {
         return ivaratorCacheScanTimeout;
     }
@@ -862,6 +949,14 @@ public class QueryOptions implements OptionDescriber {
         this.ivaratorNumRetries = ivaratorNumRetries;
     }
     
+    public long getIvaratorSharedResultsMaxKeys() {
+        return ivaratorSharedResultsMaxKeys;
+    }
+    
+    public void setIvaratorSharedResultsMaxKeys(long ivaratorSharedResultsMaxKeys) {
+        this.ivaratorSharedResultsMaxKeys = ivaratorSharedResultsMaxKeys;
+    }
+    
     public FileSortedSet.PersistOptions getIvaratorPersistOptions() {
         return ivaratorPersistOptions;
     }
@@ -1031,7 +1126,16 @@ public class QueryOptions implements OptionDescriber {
         options.put(ALLOW_FIELD_INDEX_EVALUATION,
                         "Allow the evaluation to occur purely on values pulled from the field index for queries only accessing indexed fields (default is true)");
         options.put(ALLOW_TERM_FREQUENCY_LOOKUP, "Allow the evaluation to use the term frequencies in lieu of the field index when appropriate");
+        options.put(COMPILED_EVALUATION, "Compile the query once instead of interpreting it for every document evaluated (default is false)");
         options.put(TERM_FREQUENCIES_REQUIRED, "Does the query require gathering term frequencies");
+        options.put(LAZY_TERM_FREQUENCIES, "Only deserialize the term frequency offsets of a term when a content function needs them (default is false)");
+        options.put(FIELD_INDEX_CARDINALITY_ORDERING, "Join the includes of a field index intersection in order of their cached counts in the shard (default is false)");
+        options.put(BITMAP_INTERSECTION_MAX_KEYS,
+                        "Evaluate the field index tree with bitmaps when a range holds at most this many field index keys.  Default is 0, which disables bitmaps.");
+        options.put(EVENT_FIELD_SEEK_THRESHOLD,
+                        "When projecting onto a whitelist, only fetch the query and projected fields of an event, seeking past other fields after nexting over this many of them.  Default is -1, which fetches every field.");
+        options.put(TLD_CHILD_FETCH_PARALLELISM,
+                        "Fetch the children of a top level document over up to this many ranges at once on the evaluation thread pool.  Default is 1, which fetches them sequentially.");
         options.put(TERM_FREQUENCY_FIELDS, "comma-delimited list of fields that contain term frequencies");
         options.put(CONTENT_EXPANSION_FIELDS, "comma-delimited list of fields used for content function expansions");
         options.put(HDFS_SITE_CONFIG_URLS, "URLs (comma delimited) of where to find the hadoop hdfs and core site configuration files");
@@ -1041,6 +1145,8 @@ public class QueryOptions implements OptionDescriber {
         options.put(IVARATOR_CACHE_BUFFER_SIZE, "The size of the hdfs cache buffer size (items held in memory before dumping to hdfs).  Default is 10000.");
         options.put(IVARATOR_SCAN_PERSIST_THRESHOLD,
                         "The number of underlying field index keys scanned before the hdfs cache buffer is forced to persist).  Default is 100000.");
+        options.put(IVARATOR_SCAN_PERSIST_FIELD_THRESHOLDS,
+                        "Per field overrides of the ivarator scan persist threshold, as field:threshold entries separated by semicolons.  Set by the planner when adaptive thresholds are enabled.");
         options.put(IVARATOR_SCAN_TIMEOUT, "The time after which the hdfs cache buffer is forced to persist.  Default is 60 minutes.");
         options.put(MAX_INDEX_RANGE_SPLIT,
                         "The maximum number of ranges to split a field index scan (ivarator) range into for multithreading.  Note the thread pool size is controlled via an accumulo property.");
@@ -1048,6 +1154,8 @@ public class QueryOptions implements OptionDescriber {
                         "The maximum number of files that can be opened at one time during a merge sort.  If more that this number of files are created, then compactions will occur");
         options.put(IVARATOR_NUM_RETRIES,
                         "The number of times an ivarator should attempt to persist a sorted set to a given ivarator cache directory.  We will use the specified number of retries for each of the configured ivarator cache directories.");
+        options.put(IVARATOR_SHARED_RESULTS_MAX_KEYS,
+                        "The maximum number of results of a regex or range ivarator which may be shared with identical ivarators of other queries on the same tablet server.  0 disables sharing.");
         options.put(MAX_IVARATOR_SOURCES,
                         " The maximum number of sources to use for ivarators across all ivarated terms within the query.  Note the thread pool size is controlled via an accumulo property.");
         options.put(YIELD_THRESHOLD_MS,
@@ -1392,6 +1500,30 @@ public class QueryOptions implements OptionDescriber {
             this.setAllowFieldIndexEvaluation(Boolean.parseBoolean(options.get(ALLOW_FIELD_INDEX_EVALUATION)));
         }
         
+        if (options.containsKey(COMPILED_EVALUATION)) {
+            this.setCompiledEvaluation(Boolean.parseBoolean(options.get(COMPILED_EVALUATION)));
+        }
+        
+        if (options.containsKey(LAZY_TERM_FREQUENCIES)) {
+            this.setLazyTermFrequencies(Boolean.parseBoolean(options.get(LAZY_TERM_FREQUENCIES)));
+        }
+        
+        if (options.containsKey(FIELD_INDEX_CARDINALITY_ORDERING)) {
+            this.setFieldIndexCardinalityOrdering(Boolean.parseBoolean(options.get(FIELD_INDEX_CARDINALITY_ORDERING)));
+        }
+        
+        if (options.containsKey(BITMAP_INTERSECTION_MAX_KEYS)) {
+            this.setBitmapIntersectionMaxKeys(Long.parseLong(options.get(BITMAP_INTERSECTION_MAX_KEYS)));
+        }
+        
+        if (options.containsKey(EVENT_FIELD_SEEK_THRESHOLD)) {
+            this.setEventFieldSeekThreshold(Integer.parseInt(options.get(EVENT_FIELD_SEEK_THRESHOLD)));
+        }
+        
+        if (options.containsKey(TLD_CHILD_FETCH_PARALLELISM)) {
+            this.setTldChildFetchParallelism(Integer.parseInt(options.get(TLD_CHILD_FETCH_PARALLELISM)));
+        }
+        
         if (options.containsKey(ALLOW_TERM_FREQUENCY_LOOKUP)) {
             this.setAllowTermFrequencyLookup(Boolean.parseBoolean(options.get(ALLOW_TERM_FREQUENCY_LOOKUP)));
         }
@@ -1424,6 +1556,10 @@ public class QueryOptions implements OptionDescriber {
             this.setIvaratorCacheScanPersistThreshold(Long.parseLong(options.get(IVARATOR_SCAN_PERSIST_THRESHOLD)));
         }
         
+        if (options.containsKey(IVARATOR_SCAN_PERSIST_FIELD_THRESHOLDS)) {
+            this.setIvaratorCacheScanPersistFieldThresholds(buildFieldThresholdMap(options.get(IVARATOR_SCAN_PERSIST_FIELD_THRESHOLDS)));
+        }
+        
         if (options.containsKey(IVARATOR_SCAN_TIMEOUT)) {
             this.setIvaratorCacheScanTimeout(Long.parseLong(options.get(IVARATOR_SCAN_TIMEOUT)));
         }
@@ -1440,6 +1576,10 @@ public class QueryOptions implements OptionDescriber {
             this.setIvaratorNumRetries(Integer.parseInt(options.get(IVARATOR_NUM_RETRIES)));
         }
         
+        if (options.containsKey(IVARATOR_SHARED_RESULTS_MAX_KEYS)) {
+            this.setIvaratorSharedResultsMaxKeys(Long.parseLong(options.get(IVARATOR_SHARED_RESULTS_MAX_KEYS)));
+        }
+        
         if (options.containsKey(IVARATOR_PERSIST_VERIFY)) {
             boolean verify = Boolean.parseBoolean(options.get(IVARATOR_PERSIST_VERIFY));
             FileSortedSet.PersistOptions persistOptions = getIvaratorPersistOptions();
@@ -1735,6 +1875,44 @@ public class QueryOptions implements OptionDescriber {
         return new String(Base64.encodeBase64(byteStream.toByteArray()));
     }
     
+    /**
+     * Build a String-ified version of a map of field thresholds to serialize to this SKVI.
+     *
+     * @param thresholds
+     * @return
+     */
+    public static String buildFieldThresholdString(Map<String,Long> thresholds) {
+        StringBuilder sb = new StringBuilder();
+        for (Entry<String,Long> entry : thresholds.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(';');
+            }
+            sb.append(entry.getKey()).append(':').append(entry.getValue());
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Restore a map of field thresholds from a String-ified representation
+     *
+     * @param data
+     * @return
+     */
+    public static Map<String,Long> buildFieldThresholdMap(String data) {
+        Map<String,Long> thresholds = new HashMap<>();
+        if (org.apache.commons.lang3.StringUtils.isNotBlank(data)) {
+            for (String entry : StringUtils.split(data, ';')) {
+                String[] entrySplits = StringUtils.split(entry, ':');
+                if (2 != entrySplits.length) {
+                    log.warn("Skipping unparseable field threshold entry: '" + entry + "', from '" + data + "'");
+                } else {
+                    thresholds.put(entrySplits[0], Long.parseLong(entrySplits[1]));
+                }
+            }
+        }
+        return thresholds;
+    }
+    
     public static String buildFieldStringFromSet(Collection<String> fields) {
         StringBuilder sb = new StringBuilder();
         for (String field : fields) {
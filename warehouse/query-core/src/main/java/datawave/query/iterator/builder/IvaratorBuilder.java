@@ -33,6 +33,7 @@ public abstract class IvaratorBuilder extends IndexIteratorBuilder {
     protected int ivaratorMaxOpenFiles = 100;
     protected long maxIvaratorResults = -1;
     protected int ivaratorNumRetries = 2;
+    protected long ivaratorSharedResultsMaxKeys = 0;
     protected FileSortedSet.PersistOptions ivaratorPersistOptions = new FileSortedSet.PersistOptions();
     protected boolean collectTimingDetails = false;
     protected QuerySpanCollector querySpanCollector = null;
@@ -137,6 +138,14 @@ public abstract class IvaratorBuilder extends IndexIteratorBuilder {
         this.ivaratorNumRetries = ivaratorNumRetries;
     }
     
+    public long getIvaratorSharedResultsMaxKeys() {
+        return ivaratorSharedResultsMaxKeys;
+    }
+    
+    public void setIvaratorSharedResultsMaxKeys(long ivaratorSharedResultsMaxKeys) {
+        this.ivaratorSharedResultsMaxKeys = ivaratorSharedResultsMaxKeys;
+    }
+    
     public FileSortedSet.PersistOptions getIvaratorPersistOptions() {
         return ivaratorPersistOptions;
     }
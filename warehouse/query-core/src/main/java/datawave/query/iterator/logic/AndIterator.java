@@ -16,6 +16,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -24,6 +25,10 @@ import java.util.SortedSet;
 
 /**
  * Performs a merge join of the child iterators. It is expected that all child iterators return values in sorted order.
+ * <p>
+ * When the number of keys of the includes in the shard is known (see {@link #setCardinalities(Map)}), the includes are seeked and initialized in order of
+ * that cardinality, and when several includes have to be advanced together the one with the fewest keys is advanced first so that its position becomes the
+ * target of the denser includes.
  */
 public class AndIterator<T extends Comparable<T>> implements NestedIterator<T>, SeekableIterator {
     // temporary stores of uninitialized streams of iterators
@@ -40,6 +45,9 @@ public class AndIterator<T extends Comparable<T>> implements NestedIterator<T>,
     private Document prevDocument, document;
     private T evaluationContext;
     
+    // the number of keys of the includes in the shard, which decides the order in which iterators at the same key are advanced
+    private final Map<NestedIterator<T>,Long> cardinalities = new IdentityHashMap<>();
+    
     private static final Logger log = Logger.getLogger(AndIterator.class);
     
     public AndIterator(Iterable<NestedIterator<T>> sources) {
@@ -73,6 +81,23 @@ public class AndIterator<T extends Comparable<T>> implements NestedIterator<T>,
         }
     }
     
+    /**
+     * Set the number of keys of the includes in the shard, and order the includes by them. This is expected to be called before the first seek.
+     *
+     * @param cardinalities
+     *            the number of keys of the includes, where an include without a count, or with a negative count, is treated as the densest
+     */
+    public void setCardinalities(Map<NestedIterator<T>,Long> cardinalities) {
+        this.cardinalities.clear();
+        for (NestedIterator<T> include : includes) {
+            Long cardinality = cardinalities.get(include);
+            if (cardinality != null && cardinality >= 0) {
+                this.cardinalities.put(include, cardinality);
+            }
+        }
+        includes.sort(byCardinality());
+    }
+    
     public void initialize() {
         Comparator<T> keyComp = Util.keyComparator();
         // nestedIteratorComparator will keep a deterministic ordering, unlike hashCodeComparator
@@ -351,7 +376,7 @@ public class AndIterator<T extends Comparable<T>> implements NestedIterator<T>,
     protected TreeMultimap<T,NestedIterator<T>> advanceIterators(T key) {
         T highest = null;
         transforms.remove(key);
-        for (NestedIterator<T> itr : includeHeads.removeAll(key)) {
+        for (NestedIterator<T> itr : byCardinality(includeHeads.removeAll(key))) {
             T next;
             try {
                 // if there is already a known highest go straight there instead of next
@@ -397,7 +422,7 @@ public class AndIterator<T extends Comparable<T>> implements NestedIterator<T>,
      */
     protected TreeMultimap<T,NestedIterator<T>> moveIterators(T key, T to) {
         transforms.remove(key);
-        for (NestedIterator<T> itr : includeHeads.removeAll(key)) {
+        for (NestedIterator<T> itr : byCardinality(includeHeads.removeAll(key))) {
             T next = itr.move(to);
             if (next == null) {
                 return Util.getEmpty();
@@ -445,6 +470,27 @@ public class AndIterator<T extends Comparable<T>> implements NestedIterator<T>,
         return includeHeads;
     }
     
+    /**
+     * Order iterators that sit at the same key so that the one with the fewest keys is advanced first. The sort is stable, so ties, and iterators without a
+     * count, keep the order of the heads.
+     *
+     * @param iterators
+     *            the iterators to advance
+     * @return the iterators, fewest keys first
+     */
+    private Collection<NestedIterator<T>> byCardinality(Collection<NestedIterator<T>> iterators) {
+        if (iterators.size() < 2 || cardinalities.isEmpty()) {
+            return iterators;
+        }
+        List<NestedIterator<T>> ordered = new ArrayList<>(iterators);
+        ordered.sort(byCardinality());
+        return ordered;
+    }
+    
+    private Comparator<NestedIterator<T>> byCardinality() {
+        return Comparator.comparingLong(itr -> cardinalities.getOrDefault(itr, Long.MAX_VALUE));
+    }
+    
     /**
      * Creates a sorted mapping of values to iterators.
      *
@@ -492,6 +538,22 @@ public class AndIterator<T extends Comparable<T>> implements NestedIterator<T>,
         return prevDocument;
     }
     
+    List<NestedIterator<T>> getIncludes() {
+        return includes;
+    }
+    
+    List<NestedIterator<T>> getExcludes() {
+        return excludes;
+    }
+    
+    List<NestedIterator<T>> getContextIncludes() {
+        return contextIncludes;
+    }
+    
+    List<NestedIterator<T>> getContextExcludes() {
+        return contextExcludes;
+    }
+    
     /**
      * As long as there is at least one sourced included no context is required
      * 
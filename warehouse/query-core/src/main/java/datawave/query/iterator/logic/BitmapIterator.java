@@ -0,0 +1,494 @@
+package datawave.query.iterator.logic;
+
+import datawave.query.attributes.Document;
+import datawave.query.iterator.NestedIterator;
+import datawave.query.iterator.SeekableIterator;
+import datawave.query.iterator.Util;
+import datawave.query.iterator.Util.Transformer;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evaluates a tree of {@link AndIterator}s and {@link OrIterator}s by materializing the document ids of every leaf rather than merging the leaves key by key.
+ * The document ids of all of the leaves are collected into a sorted dictionary for the seeked range, each leaf becomes a bitmap over that dictionary, and the
+ * boolean expression is computed with bitmap operations. The surviving documents are then returned in order, with the keys and documents of the leaves which
+ * included them, exactly as the tree would have returned them.
+ * <p>
+ * Materializing every leaf costs memory proportional to the number of field index keys in the range, so once more than the maximum number of keys has been
+ * read the leaves are re-seeked and the tree is used as it would have been. As with the {@link AndIterator}, every <code>seek</code> must be followed by
+ * <code>initialize</code>.
+ * 
+ * @param <T>
+ */
+public class BitmapIterator<T extends Comparable<T>> implements NestedIterator<T>, SeekableIterator {
+    private static final Logger log = Logger.getLogger(BitmapIterator.class);
+    
+    // the fallbacks are summarized at info at most once per interval, as there may be one for every range of a query
+    private static final long FALLBACK_REPORT_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    private static final AtomicLong fallbacks = new AtomicLong();
+    private static final AtomicLong lastFallbackReport = new AtomicLong(System.currentTimeMillis());
+    
+    private final NestedIterator<T> tree;
+    private final long maxKeys;
+    
+    // every leaf of the tree, and the leaves which are not beneath an exclude and hence contribute keys and documents
+    private final Map<NestedIterator<T>,Leaf<T>> leaves = new IdentityHashMap<>();
+    private final List<Leaf<T>> includeLeaves = new ArrayList<>();
+    
+    private final Comparator<T> keyComp = Util.keyComparator();
+    private final Transformer<T> transformer = Util.keyTransformer();
+    
+    private Range range;
+    private Collection<ByteSequence> columnFamilies;
+    private boolean inclusive;
+    
+    private boolean initialized = false;
+    private boolean fallback = false;
+    
+    private List<T> dictionary;
+    private BitSet result;
+    private int cursor;
+    
+    private T prev;
+    private T next;
+    private Document prevDocument, document;
+    private T evaluationContext;
+    
+    /**
+     * @param tree
+     *            a tree for which {@link #isSupported(NestedIterator)} is true
+     * @param maxKeys
+     *            the maximum number of keys to materialize before falling back to the tree
+     */
+    public BitmapIterator(NestedIterator<T> tree, long maxKeys) {
+        if (!isSupported(tree)) {
+            throw new IllegalArgumentException("Cannot evaluate " + tree + " with bitmaps");
+        }
+        this.tree = tree;
+        this.maxKeys = maxKeys;
+        collectLeaves(tree, true);
+    }
+    
+    /**
+     * Count a fallback, and log the number of fallbacks since the last report if the report is due
+     *
+     * @param maxKeys
+     *            the maximum number of keys of the iterator which fell back
+     */
+    private static void reportFallback(long maxKeys) {
+        fallbacks.incrementAndGet();
+        long now = System.currentTimeMillis();
+        long last = lastFallbackReport.get();
+        if (now - last >= FALLBACK_REPORT_INTERVAL && lastFallbackReport.compareAndSet(last, now)) {
+            log.info("Discarded the keys materialized for " + fallbacks.getAndSet(0) + " ranges in the last " + TimeUnit.MILLISECONDS.toSeconds(now - last)
+                            + " seconds as they held more than the maximum of " + maxKeys + " keys, merging the iterators instead");
+        }
+    }
+    
+    /**
+     * Determine whether a tree can be evaluated with bitmaps. The root must be an {@link AndIterator} or an {@link OrIterator}, no node may require context,
+     * and every leaf must be seekable so it can be re-seeked if the tree is used after all.
+     * 
+     * @param tree
+     *            the root of the tree
+     * @return true if the tree can be evaluated with bitmaps
+     */
+    public static boolean isSupported(NestedIterator<?> tree) {
+        return (tree instanceof AndIterator || tree instanceof OrIterator) && isSupportedNode(tree);
+    }
+    
+    private static boolean isSupportedNode(NestedIterator<?> node) {
+        if (node instanceof AndIterator) {
+            AndIterator<?> and = (AndIterator<?>) node;
+            if (and.getIncludes().isEmpty() || !and.getContextIncludes().isEmpty() || !and.getContextExcludes().isEmpty()) {
+                return false;
+            }
+            return and.getIncludes().stream().allMatch(BitmapIterator::isSupportedNode)
+                            && and.getExcludes().stream().allMatch(BitmapIterator::isSupportedNode);
+        } else if (node instanceof OrIterator) {
+            OrIterator<?> or = (OrIterator<?>) node;
+            if (or.getIncludes().isEmpty() || !or.getContextIncludes().isEmpty() || !or.getContextExcludes().isEmpty()) {
+                return false;
+            }
+            return or.getIncludes().stream().allMatch(BitmapIterator::isSupportedNode);
+        } else {
+            Collection<?> children = node.children();
+            return (children == null || children.isEmpty()) && node instanceof SeekableIterator && !node.isContextRequired();
+        }
+    }
+    
+    private void collectLeaves(NestedIterator<T> node, boolean include) {
+        if (node instanceof AndIterator) {
+            AndIterator<T> and = (AndIterator<T>) node;
+            and.getIncludes().forEach(child -> collectLeaves(child, include));
+            and.getExcludes().forEach(child -> collectLeaves(child, false));
+        } else if (node instanceof OrIterator) {
+            ((OrIterator<T>) node).getIncludes().forEach(child -> collectLeaves(child, include));
+        } else {
+            Leaf<T> leaf = leaves.computeIfAbsent(node, Leaf::new);
+            if (include && !includeLeaves.contains(leaf)) {
+                includeLeaves.add(leaf);
+            }
+        }
+    }
+    
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+        this.range = range;
+        this.columnFamilies = columnFamilies;
+        this.inclusive = inclusive;
+        
+        clear();
+        initialized = false;
+        fallback = false;
+        
+        for (NestedIterator<T> leaf : leaves.keySet()) {
+            ((SeekableIterator) leaf).seek(range, columnFamilies, inclusive);
+        }
+    }
+    
+    /**
+     * Materialize the leaves and compute the documents which satisfy the tree, or fall back to the tree if there are too many keys
+     */
+    @Override
+    public void initialize() {
+        clear();
+        initialized = true;
+        fallback = false;
+        
+        long keys = 0;
+        for (Leaf<T> leaf : leaves.values()) {
+            NestedIterator<T> itr = leaf.iterator;
+            itr.initialize();
+            while (itr.hasNext()) {
+                if (++keys > maxKeys) {
+                    fallback();
+                    return;
+                }
+                T key = itr.next();
+                leaf.add(key, transformer.transform(key), itr.document());
+            }
+        }
+        
+        buildDictionary(keys);
+        result = evaluate(tree);
+        
+        if (log.isDebugEnabled()) {
+            log.debug("Materialized " + keys + " keys over " + dictionary.size() + " documents, " + result.cardinality() + " of which satisfy " + tree);
+        }
+        
+        advance();
+    }
+    
+    /**
+     * Sort the document ids of all of the leaves into a dictionary and map each leaf onto it. Each leaf is already sorted, so the sort merges runs.
+     */
+    private void buildDictionary(long keys) {
+        List<T> docIds = new ArrayList<>((int) keys);
+        for (Leaf<T> leaf : leaves.values()) {
+            docIds.addAll(leaf.docIds);
+        }
+        docIds.sort(keyComp);
+        
+        dictionary = new ArrayList<>(docIds.size());
+        for (T docId : docIds) {
+            if (dictionary.isEmpty() || keyComp.compare(dictionary.get(dictionary.size() - 1), docId) != 0) {
+                dictionary.add(docId);
+            }
+        }
+        
+        for (Leaf<T> leaf : leaves.values()) {
+            leaf.map(dictionary, keyComp);
+        }
+    }
+    
+    private BitSet evaluate(NestedIterator<T> node) {
+        if (node instanceof AndIterator) {
+            AndIterator<T> and = (AndIterator<T>) node;
+            BitSet bits = null;
+            for (NestedIterator<T> include : and.getIncludes()) {
+                if (bits == null) {
+                    bits = evaluate(include);
+                } else {
+                    bits.and(evaluate(include));
+                }
+            }
+            for (NestedIterator<T> exclude : and.getExcludes()) {
+                bits.andNot(evaluate(exclude));
+            }
+            return bits;
+        } else if (node instanceof OrIterator) {
+            BitSet bits = new BitSet(dictionary.size());
+            for (NestedIterator<T> include : ((OrIterator<T>) node).getIncludes()) {
+                bits.or(evaluate(include));
+            }
+            return bits;
+        } else {
+            return (BitSet) leaves.get(node).bits.clone();
+        }
+    }
+    
+    /**
+     * Re-seek the leaves and use the tree instead. The leaves expose no estimate of their keys, so the keys read before the limit was reached are discarded.
+     * Each fallback is logged at debug, and the number of them is logged at info once a minute so that a maximum too low for the queries can be seen and
+     * raised.
+     */
+    private void fallback() {
+        if (log.isDebugEnabled()) {
+            log.debug("Discarding the " + maxKeys + " keys materialized for " + tree + " as there are more to materialize, merging the iterators instead");
+        }
+        reportFallback(maxKeys);
+        
+        clear();
+        fallback = true;
+        try {
+            if (tree instanceof SeekableIterator) {
+                ((SeekableIterator) tree).seek(range, columnFamilies, inclusive);
+            } else {
+                for (NestedIterator<T> leaf : leaves.keySet()) {
+                    ((SeekableIterator) leaf).seek(range, columnFamilies, inclusive);
+                }
+            }
+        } catch (IOException e) {
+            log.error(e);
+            // throw the exception up the stack....
+            throw new RuntimeException(e);
+        }
+        
+        if (evaluationContext != null) {
+            tree.setContext(evaluationContext);
+        }
+        tree.initialize();
+    }
+    
+    private void clear() {
+        for (Leaf<T> leaf : leaves.values()) {
+            leaf.clear();
+        }
+        dictionary = null;
+        result = null;
+        cursor = 0;
+        prev = next = null;
+        prevDocument = document = null;
+    }
+    
+    /**
+     * Find the next surviving document at or after the cursor and set next/document for the next call
+     */
+    private void advance() {
+        next = null;
+        document = null;
+        
+        int id;
+        if (evaluationContext == null) {
+            id = result.nextSetBit(cursor);
+        } else {
+            // with a context the only candidate is the context itself
+            id = find(evaluationContext);
+            if (id < cursor || id >= dictionary.size() || !result.get(id)) {
+                id = -1;
+            } else if (keyComp.compare(dictionary.get(id), transformer.transform(evaluationContext)) != 0) {
+                id = -1;
+            }
+        }
+        
+        if (id < 0) {
+            cursor = dictionary.size();
+            return;
+        }
+        cursor = id + 1;
+        
+        document = new Document();
+        for (Leaf<T> leaf : includeLeaves) {
+            if (leaf.bits.get(id)) {
+                int index = leaf.seek(id);
+                if (next == null) {
+                    next = leaf.keys.get(index);
+                }
+                Document leafDocument = leaf.documents.get(index);
+                if (leafDocument != null) {
+                    document.putAll(leafDocument.getDictionary().entrySet().iterator(), false);
+                }
+            }
+        }
+    }
+    
+    /**
+     * @return the index of the first document id in the dictionary at or after the key
+     */
+    private int find(T key) {
+        int index = Collections.binarySearch(dictionary, transformer.transform(key), keyComp);
+        return index < 0 ? -index - 1 : index;
+    }
+    
+    @Override
+    public boolean hasNext() {
+        if (!initialized) {
+            throw new IllegalStateException("initialize() was never called");
+        }
+        if (fallback) {
+            return tree.hasNext();
+        }
+        
+        return next != null;
+    }
+    
+    @Override
+    public T next() {
+        if (!initialized) {
+            throw new IllegalStateException("initialize() was never called");
+        }
+        if (fallback) {
+            return tree.next();
+        }
+        
+        prev = next;
+        prevDocument = document;
+        if (next != null) {
+            advance();
+        }
+        return prev;
+    }
+    
+    @Override
+    public T move(T minimum) {
+        if (!initialized) {
+            throw new IllegalStateException("initialize() was never called");
+        }
+        if (fallback) {
+            return tree.move(minimum);
+        }
+        
+        if (prev != null && prev.compareTo(minimum) >= 0) {
+            throw new IllegalStateException("Tried to call move when already at or beyond move point: topkey=" + prev + ", movekey=" + minimum);
+        }
+        
+        // test if the cached next is already beyond the minimum
+        if (next != null && next.compareTo(minimum) >= 0) {
+            return next();
+        }
+        
+        cursor = Math.max(cursor, find(minimum));
+        advance();
+        return next();
+    }
+    
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("This iterator does not support remove.");
+    }
+    
+    @Override
+    public Collection<NestedIterator<T>> leaves() {
+        // treat this node as a leaf so that seek passes through it
+        return Collections.singletonList(this);
+    }
+    
+    @Override
+    public Collection<NestedIterator<T>> children() {
+        return Collections.singletonList(tree);
+    }
+    
+    @Override
+    public Document document() {
+        return fallback ? tree.document() : prevDocument;
+    }
+    
+    @Override
+    public boolean isContextRequired() {
+        return false;
+    }
+    
+    @Override
+    public void setContext(T context) {
+        this.evaluationContext = context;
+        if (fallback) {
+            tree.setContext(context);
+        }
+    }
+    
+    @Override
+    public void setEnvironment(IteratorEnvironment env) {
+        tree.setEnvironment(env);
+    }
+    
+    @Override
+    public String toString() {
+        return "BitmapIterator: " + tree;
+    }
+    
+    /**
+     * The keys, document ids and documents materialized from a leaf, and the leaf's bitmap over the dictionary
+     */
+    private static class Leaf<T> {
+        private final NestedIterator<T> iterator;
+        private final List<T> keys = new ArrayList<>();
+        private List<T> docIds = new ArrayList<>();
+        // documents are only kept when they are not empty
+        private final List<Document> documents = new ArrayList<>();
+        
+        private int[] ids;
+        private BitSet bits;
+        private int cursor;
+        
+        Leaf(NestedIterator<T> iterator) {
+            this.iterator = iterator;
+        }
+        
+        void add(T key, T docId, Document document) {
+            keys.add(key);
+            docIds.add(docId);
+            documents.add(document == null || document.size() == 0 ? null : document);
+        }
+        
+        /**
+         * Map the document ids of this leaf onto the dictionary, after which the document ids themselves are no longer needed
+         */
+        void map(List<T> dictionary, Comparator<T> keyComp) {
+            ids = new int[docIds.size()];
+            bits = new BitSet(dictionary.size());
+            int id = 0;
+            for (int i = 0; i < ids.length; i++) {
+                while (keyComp.compare(dictionary.get(id), docIds.get(i)) < 0) {
+                    id++;
+                }
+                ids[i] = id;
+                bits.set(id);
+            }
+            docIds = null;
+        }
+        
+        /**
+         * @return the index of the first key of this leaf with the document id, which must be at or after the previous id sought
+         */
+        int seek(int id) {
+            while (ids[cursor] < id) {
+                cursor++;
+            }
+            return cursor;
+        }
+        
+        void clear() {
+            keys.clear();
+            docIds = new ArrayList<>();
+            documents.clear();
+            ids = null;
+            bits = null;
+            cursor = 0;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package datawave.query.iterator.logic;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import datawave.query.Constants;
+import datawave.query.iterators.FieldIndexCountingIterator;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cache of the number of field index keys for a field and value in a shard, shared by all of the queries on a tablet server. A count is made with a
+ * {@link FieldIndexCountingIterator} the first time a query asks for it.
+ * <p>
+ * The counts only decide the order in which an {@link AndIterator} joins its includes, so a count made before further data was ingested into the shard can
+ * slow a query down but can not change its results.
+ */
+public class FieldIndexCardinalityCache {
+    private static final Logger log = Logger.getLogger(FieldIndexCardinalityCache.class);
+    
+    /**
+     * The count returned when a field and value could not be counted
+     */
+    public static final long UNKNOWN = -1L;
+    
+    // count every key, whatever its timestamp
+    private static final String START_TIME = "19700101000000";
+    private static final String STOP_TIME = "99991231235959";
+    
+    private static final Cache<String,Long> counts = CacheBuilder.newBuilder().maximumSize(100000).concurrencyLevel(100).expireAfterWrite(1, TimeUnit.HOURS)
+                    .build();
+    
+    private FieldIndexCardinalityCache() {}
+    
+    /**
+     * Get the number of field index keys for a field and value in a shard, counting them if they have not been counted yet
+     *
+     * @param source
+     *            the source of the shard, which is deep copied to count the keys
+     * @param env
+     *            the iterator environment
+     * @param shard
+     *            the row of the shard
+     * @param field
+     *            the field
+     * @param value
+     *            the normalized value
+     * @return the number of keys, or {@link #UNKNOWN} if they could not be counted
+     */
+    public static long getCount(SortedKeyValueIterator<Key,Value> source, IteratorEnvironment env, Text shard, String field, String value) {
+        // the counting iterator takes a list of values, so a value containing the separator can not be counted
+        if (field.contains(FieldIndexCountingIterator.SEP) || value.contains(FieldIndexCountingIterator.SEP)) {
+            return UNKNOWN;
+        }
+        
+        String key = shard + Constants.NULL + field + Constants.NULL + value;
+        try {
+            return counts.get(key, () -> count(source.deepCopy(env), env, shard, field, value));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            log.warn("Could not count " + field + ":" + value + " in " + shard, e);
+            return UNKNOWN;
+        }
+    }
+    
+    private static long count(SortedKeyValueIterator<Key,Value> source, IteratorEnvironment env, Text shard, String field, String value) throws IOException {
+        Map<String,String> options = new HashMap<>();
+        options.put(FieldIndexCountingIterator.START_TIME, START_TIME);
+        options.put(FieldIndexCountingIterator.STOP_TIME, STOP_TIME);
+        options.put(FieldIndexCountingIterator.FIELD_NAMES, field);
+        options.put(FieldIndexCountingIterator.FIELD_VALUES, value);
+        
+        FieldIndexCountingIterator counter = new FieldIndexCountingIterator();
+        counter.init(source, options, env);
+        
+        Text columnFamily = new Text(Constants.FIELD_INDEX_PREFIX + field);
+        Key start = new Key(shard, columnFamily, new Text(value + Constants.NULL));
+        Key end = new Key(shard, columnFamily, new Text(value + Constants.ONE_BYTE));
+        counter.seek(new Range(start, true, end, false), Collections.emptyList(), false);
+        
+        long count = 0;
+        while (counter.hasTop()) {
+            count += Long.parseLong(counter.getTopValue().toString());
+            counter.next();
+        }
+        return count;
+    }
+}
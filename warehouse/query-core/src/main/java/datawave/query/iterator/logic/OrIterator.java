@@ -329,6 +329,18 @@ public class OrIterator<T extends Comparable<T>> implements NestedIterator<T> {
         return sb.toString();
     }
     
+    List<NestedIterator<T>> getIncludes() {
+        return includes;
+    }
+    
+    List<NestedIterator<T>> getContextIncludes() {
+        return contextIncludes;
+    }
+    
+    List<NestedIterator<T>> getContextExcludes() {
+        return contextExcludes;
+    }
+    
     /**
      * If there are contextIncludes or contextExcludes this iterator requires context
      * 
@@ -51,6 +51,36 @@ public class MultiThreadedQuerySpan extends QuerySpan {
         return getThreadSpecificQuerySpan().getYield();
     }
     
+    @Override
+    public long getTermFrequencyKeyCount() {
+        return getThreadSpecificQuerySpan().getTermFrequencyKeyCount();
+    }
+    
+    @Override
+    public long getTermFrequencyDecodeCount() {
+        return getThreadSpecificQuerySpan().getTermFrequencyDecodeCount();
+    }
+    
+    @Override
+    public long getSkippedEventKeyCount() {
+        return getThreadSpecificQuerySpan().getSkippedEventKeyCount();
+    }
+    
+    @Override
+    public long getSkipSeekCount() {
+        return getThreadSpecificQuerySpan().getSkipSeekCount();
+    }
+    
+    @Override
+    public long getTldParallelFetchCount() {
+        return getThreadSpecificQuerySpan().getTldParallelFetchCount();
+    }
+    
+    @Override
+    public long getTldChildRangeCount() {
+        return getThreadSpecificQuerySpan().getTldChildRangeCount();
+    }
+    
     @Override
     public synchronized void next() {
         getThreadSpecificQuerySpan().next();
@@ -66,6 +96,36 @@ public class MultiThreadedQuerySpan extends QuerySpan {
         getThreadSpecificQuerySpan().yield();
     }
     
+    @Override
+    public synchronized void termFrequencyKeys(long count) {
+        getThreadSpecificQuerySpan().termFrequencyKeys(count);
+    }
+    
+    @Override
+    public synchronized void termFrequencyDecodes(long count) {
+        getThreadSpecificQuerySpan().termFrequencyDecodes(count);
+    }
+    
+    @Override
+    public synchronized void skippedEventKeys(long count) {
+        getThreadSpecificQuerySpan().skippedEventKeys(count);
+    }
+    
+    @Override
+    public synchronized void skipSeeks(long count) {
+        getThreadSpecificQuerySpan().skipSeeks(count);
+    }
+    
+    @Override
+    public synchronized void tldParallelFetches(long count) {
+        getThreadSpecificQuerySpan().tldParallelFetches(count);
+    }
+    
+    @Override
+    public synchronized void tldChildRanges(long count) {
+        getThreadSpecificQuerySpan().tldChildRanges(count);
+    }
+    
     @Override
     public void reset() {
         super.reset();
@@ -107,6 +167,36 @@ public class MultiThreadedQuerySpan extends QuerySpan {
         getThreadSpecificQuerySpan().setYield(yield);
     }
     
+    @Override
+    public void setTermFrequencyKeys(long termFrequencyKeys) {
+        getThreadSpecificQuerySpan().setTermFrequencyKeys(termFrequencyKeys);
+    }
+    
+    @Override
+    public void setTermFrequencyDecodes(long termFrequencyDecodes) {
+        getThreadSpecificQuerySpan().setTermFrequencyDecodes(termFrequencyDecodes);
+    }
+    
+    @Override
+    public void setSkippedEventKeys(long skippedEventKeys) {
+        getThreadSpecificQuerySpan().setSkippedEventKeys(skippedEventKeys);
+    }
+    
+    @Override
+    public void setSkipSeeks(long skipSeeks) {
+        getThreadSpecificQuerySpan().setSkipSeeks(skipSeeks);
+    }
+    
+    @Override
+    public void setTldParallelFetches(long tldParallelFetches) {
+        getThreadSpecificQuerySpan().setTldParallelFetches(tldParallelFetches);
+    }
+    
+    @Override
+    public void setTldChildRanges(long tldChildRanges) {
+        getThreadSpecificQuerySpan().setTldChildRanges(tldChildRanges);
+    }
+    
     @Override
     public void setSourceCount(long sourceCount) {
         getThreadSpecificQuerySpan().setSourceCount(sourceCount);
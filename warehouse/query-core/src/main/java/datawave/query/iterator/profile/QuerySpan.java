@@ -30,6 +30,18 @@ public class QuerySpan {
     
     protected boolean yield = false;
     
+    protected long termFrequencyKeys = 0;
+    
+    protected long termFrequencyDecodes = 0;
+    
+    protected long skippedEventKeys = 0;
+    
+    protected long skipSeeks = 0;
+    
+    protected long tldParallelFetches = 0;
+    
+    protected long tldChildRanges = 0;
+    
     private Map<String,Long> stageTimers = new LinkedHashMap<>();
     
     private long stageTimerTotal = 0;
@@ -96,6 +108,72 @@ public class QuerySpan {
         return seekCount;
     }
     
+    /**
+     * @return the number of term frequency keys read to build the term offset maps for content functions
+     */
+    public long getTermFrequencyKeyCount() {
+        long termFrequencyKeyCount = termFrequencyKeys;
+        for (QuerySpan subSpan : sources) {
+            termFrequencyKeyCount += subSpan.getTermFrequencyKeyCount();
+        }
+        return termFrequencyKeyCount;
+    }
+    
+    /**
+     * @return the number of term frequency values deserialized into offsets for content functions
+     */
+    public long getTermFrequencyDecodeCount() {
+        long termFrequencyDecodeCount = termFrequencyDecodes;
+        for (QuerySpan subSpan : sources) {
+            termFrequencyDecodeCount += subSpan.getTermFrequencyDecodeCount();
+        }
+        return termFrequencyDecodeCount;
+    }
+    
+    /**
+     * @return the number of event keys read and rejected by the evaluation filter while fetching documents
+     */
+    public long getSkippedEventKeyCount() {
+        long skippedEventKeyCount = skippedEventKeys;
+        for (QuerySpan subSpan : sources) {
+            skippedEventKeyCount += subSpan.getSkippedEventKeyCount();
+        }
+        return skippedEventKeyCount;
+    }
+    
+    /**
+     * @return the number of seeks past rejected event keys requested by the evaluation filter while fetching documents
+     */
+    public long getSkipSeekCount() {
+        long skipSeekCount = skipSeeks;
+        for (QuerySpan subSpan : sources) {
+            skipSeekCount += subSpan.getSkipSeekCount();
+        }
+        return skipSeekCount;
+    }
+    
+    /**
+     * @return the number of top level documents whose children were fetched in parallel
+     */
+    public long getTldParallelFetchCount() {
+        long tldParallelFetchCount = tldParallelFetches;
+        for (QuerySpan subSpan : sources) {
+            tldParallelFetchCount += subSpan.getTldParallelFetchCount();
+        }
+        return tldParallelFetchCount;
+    }
+    
+    /**
+     * @return the number of child ranges fetched for the top level documents fetched in parallel
+     */
+    public long getTldChildRangeCount() {
+        long tldChildRangeCount = tldChildRanges;
+        for (QuerySpan subSpan : sources) {
+            tldChildRangeCount += subSpan.getTldChildRangeCount();
+        }
+        return tldChildRangeCount;
+    }
+    
     public boolean getYield() {
         if (yield) {
             return true;
@@ -111,7 +189,10 @@ public class QuerySpan {
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append(super.toString()).append(" sources:").append(getSourceCount()).append(" next:").append(getNextCount()).append(" seek:")
-                        .append(getSeekCount()).append(" yield:").append(getYield());
+                        .append(getSeekCount()).append(" yield:").append(getYield()).append(" tfKeys:").append(getTermFrequencyKeyCount())
+                        .append(" tfDecodes:").append(getTermFrequencyDecodeCount()).append(" skippedKeys:").append(getSkippedEventKeyCount())
+                        .append(" skipSeeks:").append(getSkipSeekCount()).append(" tldParallel:").append(getTldParallelFetchCount())
+                        .append(" tldChildRanges:").append(getTldChildRangeCount());
         return sb.toString();
     }
     
@@ -156,6 +237,30 @@ public class QuerySpan {
         }
     }
     
+    public synchronized void termFrequencyKeys(long count) {
+        termFrequencyKeys += count;
+    }
+    
+    public synchronized void termFrequencyDecodes(long count) {
+        termFrequencyDecodes += count;
+    }
+    
+    public synchronized void skippedEventKeys(long count) {
+        skippedEventKeys += count;
+    }
+    
+    public synchronized void skipSeeks(long count) {
+        skipSeeks += count;
+    }
+    
+    public synchronized void tldParallelFetches(long count) {
+        tldParallelFetches += count;
+    }
+    
+    public synchronized void tldChildRanges(long count) {
+        tldChildRanges += count;
+    }
+    
     public void reset() {
         for (QuerySpan source : sources) {
             source.reset();
@@ -164,6 +269,12 @@ public class QuerySpan {
         next = 0;
         seek = 0;
         yield = false;
+        termFrequencyKeys = 0;
+        termFrequencyDecodes = 0;
+        skippedEventKeys = 0;
+        skipSeeks = 0;
+        tldParallelFetches = 0;
+        tldChildRanges = 0;
         stageTimerTotal = 0;
         stageTimers.clear();
     }
@@ -177,7 +288,9 @@ public class QuerySpan {
     }
     
     public boolean hasEntries() {
-        if (this.getSeekCount() > 0 || this.getNextCount() > 0 || this.getYield() || this.getSourceCount() > 0 || !this.stageTimers.isEmpty()) {
+        if (this.getSeekCount() > 0 || this.getNextCount() > 0 || this.getYield() || this.getSourceCount() > 0 || this.getTermFrequencyKeyCount() > 0
+                        || this.getTermFrequencyDecodeCount() > 0 || this.getSkippedEventKeyCount() > 0 || this.getSkipSeekCount() > 0
+                        || this.getTldParallelFetchCount() > 0 || this.getTldChildRangeCount() > 0 || !this.stageTimers.isEmpty()) {
             return true;
         } else {
             return false;
@@ -208,6 +321,30 @@ public class QuerySpan {
         this.yield = yield;
     }
     
+    public void setTermFrequencyKeys(long termFrequencyKeys) {
+        this.termFrequencyKeys = termFrequencyKeys;
+    }
+    
+    public void setTermFrequencyDecodes(long termFrequencyDecodes) {
+        this.termFrequencyDecodes = termFrequencyDecodes;
+    }
+    
+    public void setSkippedEventKeys(long skippedEventKeys) {
+        this.skippedEventKeys = skippedEventKeys;
+    }
+    
+    public void setSkipSeeks(long skipSeeks) {
+        this.skipSeeks = skipSeeks;
+    }
+    
+    public void setTldParallelFetches(long tldParallelFetches) {
+        this.tldParallelFetches = tldParallelFetches;
+    }
+    
+    public void setTldChildRanges(long tldChildRanges) {
+        this.tldChildRanges = tldChildRanges;
+    }
+    
     public void setSourceCount(long sourceCount) {
         this.sourceCount = sourceCount;
     }
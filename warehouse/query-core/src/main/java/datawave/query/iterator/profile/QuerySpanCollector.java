@@ -12,6 +12,12 @@ public class QuerySpanCollector {
     private AtomicLong nextCount = new AtomicLong();
     private AtomicBoolean yield = new AtomicBoolean();
     private AtomicLong sourceCount = new AtomicLong();
+    private AtomicLong termFrequencyKeyCount = new AtomicLong();
+    private AtomicLong termFrequencyDecodeCount = new AtomicLong();
+    private AtomicLong skippedEventKeyCount = new AtomicLong();
+    private AtomicLong skipSeekCount = new AtomicLong();
+    private AtomicLong tldParallelFetchCount = new AtomicLong();
+    private AtomicLong tldChildRangeCount = new AtomicLong();
     private Map<String,Long> stageTimers = new LinkedHashMap<>();
     private Logger log = Logger.getLogger(QuerySpan.class);
     
@@ -23,6 +29,12 @@ public class QuerySpanCollector {
                 nextCount.addAndGet(querySpan.getNextCount());
                 yield.set(querySpan.getYield());
                 sourceCount.addAndGet(querySpan.getSourceCount());
+                termFrequencyKeyCount.addAndGet(querySpan.getTermFrequencyKeyCount());
+                termFrequencyDecodeCount.addAndGet(querySpan.getTermFrequencyDecodeCount());
+                skippedEventKeyCount.addAndGet(querySpan.getSkippedEventKeyCount());
+                skipSeekCount.addAndGet(querySpan.getSkipSeekCount());
+                tldParallelFetchCount.addAndGet(querySpan.getTldParallelFetchCount());
+                tldChildRangeCount.addAndGet(querySpan.getTldChildRangeCount());
                 Map<String,Long> timers = querySpan.getStageTimers();
                 for (Map.Entry<String,Long> entry : timers.entrySet()) {
                     String k = entry.getKey();
@@ -51,6 +63,12 @@ public class QuerySpanCollector {
                 combinedQuerySpan.setSeek(this.seekCount.getAndSet(0));
                 combinedQuerySpan.setYield(this.yield.getAndSet(false));
                 combinedQuerySpan.setSourceCount(this.sourceCount.getAndSet(0));
+                combinedQuerySpan.setTermFrequencyKeys(this.termFrequencyKeyCount.getAndSet(0));
+                combinedQuerySpan.setTermFrequencyDecodes(this.termFrequencyDecodeCount.getAndSet(0));
+                combinedQuerySpan.setSkippedEventKeys(this.skippedEventKeyCount.getAndSet(0));
+                combinedQuerySpan.setSkipSeeks(this.skipSeekCount.getAndSet(0));
+                combinedQuerySpan.setTldParallelFetches(this.tldParallelFetchCount.getAndSet(0));
+                combinedQuerySpan.setTldChildRanges(this.tldChildRangeCount.getAndSet(0));
                 combinedQuerySpan.setStageTimers(this.stageTimers);
                 this.stageTimers.clear();
             }
@@ -60,6 +78,8 @@ public class QuerySpanCollector {
     
     public boolean hasEntries() {
         if (this.seekCount.intValue() > 0 || this.nextCount.intValue() > 0 || this.yield.get() || this.sourceCount.intValue() > 0
+                        || this.termFrequencyKeyCount.intValue() > 0 || this.termFrequencyDecodeCount.intValue() > 0 || this.skippedEventKeyCount.intValue() > 0
+                        || this.skipSeekCount.intValue() > 0 || this.tldParallelFetchCount.intValue() > 0 || this.tldChildRangeCount.intValue() > 0
                         || !this.stageTimers.isEmpty()) {
             return true;
         } else {
@@ -85,7 +105,9 @@ public class QuerySpanCollector {
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append(super.toString()).append(" seek:").append(seekCount).append(" next:").append(nextCount).append(" yield:").append(yield).append(" sources:")
-                        .append(sourceCount);
+                        .append(sourceCount).append(" tfKeys:").append(termFrequencyKeyCount).append(" tfDecodes:").append(termFrequencyDecodeCount)
+                        .append(" skippedKeys:").append(skippedEventKeyCount).append(" skipSeeks:").append(skipSeekCount).append(" tldParallel:")
+                        .append(tldParallelFetchCount).append(" tldChildRanges:").append(tldChildRangeCount);
         return sb.toString();
     }
     
@@ -118,6 +140,30 @@ public class QuerySpanCollector {
         return sourceCount.longValue();
     }
     
+    public long getTermFrequencyKeyCount() {
+        return termFrequencyKeyCount.longValue();
+    }
+    
+    public long getTermFrequencyDecodeCount() {
+        return termFrequencyDecodeCount.longValue();
+    }
+    
+    public long getSkippedEventKeyCount() {
+        return skippedEventKeyCount.longValue();
+    }
+    
+    public long getSkipSeekCount() {
+        return skipSeekCount.longValue();
+    }
+    
+    public long getTldParallelFetchCount() {
+        return tldParallelFetchCount.longValue();
+    }
+    
+    public long getTldChildRangeCount() {
+        return tldChildRangeCount.longValue();
+    }
+    
     public Map<String,Long> getStageTimers() {
         return Collections.unmodifiableMap(stageTimers);
     }
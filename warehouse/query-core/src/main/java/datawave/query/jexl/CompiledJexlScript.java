@@ -0,0 +1,564 @@
+package datawave.query.jexl;
+
+import datawave.query.attributes.ValueTuple;
+import datawave.query.collections.FunctionalSet;
+import datawave.query.jexl.nodes.ExceededOrThresholdMarkerJexlNode;
+import datawave.query.jexl.visitors.JexlStringBuildingVisitor;
+import datawave.query.util.regex.MultiRegexMatcher;
+import org.apache.commons.jexl2.JexlArithmetic;
+import org.apache.commons.jexl2.JexlContext;
+import org.apache.commons.jexl2.JexlException;
+import org.apache.commons.jexl2.MapContext;
+import org.apache.commons.jexl2.parser.ASTAndNode;
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTERNode;
+import org.apache.commons.jexl2.parser.ASTGENode;
+import org.apache.commons.jexl2.parser.ASTGTNode;
+import org.apache.commons.jexl2.parser.ASTIdentifier;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.ASTLENode;
+import org.apache.commons.jexl2.parser.ASTLTNode;
+import org.apache.commons.jexl2.parser.ASTNENode;
+import org.apache.commons.jexl2.parser.ASTNRNode;
+import org.apache.commons.jexl2.parser.ASTNotNode;
+import org.apache.commons.jexl2.parser.ASTNumberLiteral;
+import org.apache.commons.jexl2.parser.ASTOrNode;
+import org.apache.commons.jexl2.parser.ASTReference;
+import org.apache.commons.jexl2.parser.ASTReferenceExpression;
+import org.apache.commons.jexl2.parser.ASTStringLiteral;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A query compiled once into a tree of evaluators, which evaluates documents without walking the query with a {@link DatawaveInterpreter} for each one.
+ * <p>
+ * The fields referenced by the query are resolved to slots which are looked up in the context at most once per document, and each distinct equality or regex
+ * term is evaluated at most once per document (as the interpreter does with its map of results keyed by the string of each node, without building those
+ * strings for every document). The conjunctions, disjunctions, negations and comparisons are evaluated exactly as the {@link DatawaveInterpreter} evaluates
+ * them, with the same {@link JexlArithmetic}, so the results and the hits recorded by a {@link HitListArithmetic} are the same as those of the interpreted
+ * script. The parts of the query which are not compiled (functions, bounded ranges, ExceededOrThreshold markers, and anything else) are evaluated by a
+ * {@link DatawaveInterpreter} over the same context.
+ * <p>
+ * The values of a field compared against several regexes in a disjunction are matched against all of those regexes at once with a {@link MultiRegexMatcher},
+ * and the regexes which no value matches are not evaluated further.
+ * <p>
+ * A compiled script is immutable and may be shared, the state of an evaluation is kept per call to {@link #execute(JexlContext)}.
+ */
+public class CompiledJexlScript {
+    private static final Logger log = Logger.getLogger(CompiledJexlScript.class);
+    
+    // marks a field which has not been looked up in the context yet
+    private static final Object UNRESOLVED = new Object();
+    
+    private final DatawaveJexlEngine engine;
+    private final JexlArithmetic arithmetic;
+    private final Evaluator root;
+    
+    private final Map<String,Integer> fieldSlots = new HashMap<>();
+    private final Map<String,Integer> termSlots = new HashMap<>();
+    private int interpretedNodes = 0;
+    private int regexGroupCount = 0;
+    
+    /**
+     * Compiles a query
+     * 
+     * @param engine
+     *            the engine, and the arithmetic, with which the query would otherwise be interpreted
+     * @param query
+     *            the query
+     * @return the compiled query
+     */
+    public static CompiledJexlScript compile(DatawaveJexlEngine engine, String query) {
+        return new CompiledJexlScript(engine, engine.parse(query));
+    }
+    
+    private CompiledJexlScript(DatawaveJexlEngine engine, ASTJexlScript script) {
+        this.engine = engine;
+        this.arithmetic = engine.getArithmetic();
+        this.root = compile(script);
+        
+        if (log.isDebugEnabled()) {
+            log.debug("Compiled query with " + fieldSlots.size() + " fields, " + termSlots.size() + " distinct terms and " + interpretedNodes
+                            + " interpreted nodes");
+        }
+    }
+    
+    /**
+     * Evaluates the query against a context
+     * 
+     * @param context
+     *            the context
+     * @return the result of the query, as the interpreted script would have returned it
+     */
+    public Object execute(JexlContext context) {
+        return root.evaluate(new Frame(context));
+    }
+    
+    public int getFieldCount() {
+        return fieldSlots.size();
+    }
+    
+    /**
+     * @return the number of groups of regexes against the same field which are matched at once
+     */
+    public int getRegexGroupCount() {
+        return regexGroupCount;
+    }
+    
+    /**
+     * @return the number of subtrees of the query which are evaluated by the interpreter
+     */
+    public int getInterpretedNodeCount() {
+        return interpretedNodes;
+    }
+    
+    private Evaluator compile(JexlNode node) {
+        if (node instanceof ASTJexlScript) {
+            return compileScript(node);
+        } else if ((node instanceof ASTReference || node instanceof ASTAndNode) && ExceededOrThresholdMarkerJexlNode.instanceOf(node)) {
+            return interpreted(node);
+        } else if (node instanceof ASTReference && node.jjtGetNumChildren() == 1 && node.jjtGetChild(0) instanceof ASTIdentifier) {
+            return field(node, node.jjtGetChild(0).image);
+        } else if (node instanceof ASTIdentifier && node.jjtGetParent() instanceof ASTReference) {
+            return field(node, node.image);
+        } else if ((node instanceof ASTReference || node instanceof ASTReferenceExpression) && node.jjtGetNumChildren() == 1) {
+            return compile(node.jjtGetChild(0));
+        } else if (node instanceof ASTStringLiteral || node instanceof ASTNumberLiteral) {
+            return constant(node);
+        } else if (node instanceof ASTAndNode) {
+            return compileAnd((ASTAndNode) node);
+        } else if (node instanceof ASTOrNode) {
+            return compileOr((ASTOrNode) node);
+        } else if (node instanceof ASTNotNode && node.jjtGetNumChildren() == 1) {
+            Evaluator child = compile(node.jjtGetChild(0));
+            return frame -> arithmetic.toBoolean(child.evaluate(frame)) ? Boolean.FALSE : Boolean.TRUE;
+        } else if (node instanceof ASTEQNode) {
+            return term(node, compileComparison(node, "== error", arithmetic::equals));
+        } else if (node instanceof ASTNENode) {
+            return compileComparison(node, "!= error", (left, right) -> !arithmetic.equals(left, right));
+        } else if (node instanceof ASTLTNode) {
+            return compileComparison(node, "< error", arithmetic::lessThan);
+        } else if (node instanceof ASTLENode) {
+            return compileComparison(node, "<= error", arithmetic::lessThanOrEqual);
+        } else if (node instanceof ASTGTNode) {
+            return compileComparison(node, "> error", arithmetic::greaterThan);
+        } else if (node instanceof ASTGENode) {
+            return compileComparison(node, ">= error", arithmetic::greaterThanOrEqual);
+        } else if (node instanceof ASTERNode && isStringLiteral(node.jjtGetChild(1))) {
+            // the interpreter only treats the right hand side as a pattern when it is a string
+            return term(node, compileComparison(node, "=~ error", arithmetic::matches));
+        } else if (node instanceof ASTNRNode && isStringLiteral(node.jjtGetChild(1))) {
+            return compileComparison(node, "!~ error", (left, right) -> !arithmetic.matches(left, right));
+        } else {
+            return interpreted(node);
+        }
+    }
+    
+    private Evaluator compileScript(JexlNode node) {
+        Evaluator[] children = compileChildren(node);
+        return frame -> {
+            Object result = null;
+            for (Evaluator child : children) {
+                result = child.evaluate(frame);
+            }
+            return result;
+        };
+    }
+    
+    private Evaluator[] compileChildren(JexlNode node) {
+        Evaluator[] children = new Evaluator[node.jjtGetNumChildren()];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = compile(node.jjtGetChild(i));
+        }
+        return children;
+    }
+    
+    private static boolean isStringLiteral(JexlNode node) {
+        return JexlASTHelper.dereference(node) instanceof ASTStringLiteral;
+    }
+    
+    /**
+     * A field, looked up in the context the first time it is used for a document
+     */
+    private Evaluator field(JexlNode node, String name) {
+        final int slot = fieldSlots.computeIfAbsent(name, k -> fieldSlots.size());
+        final boolean strict = engine.isStrict();
+        return frame -> {
+            Object value = frame.fields[slot];
+            if (value == UNRESOLVED) {
+                value = frame.context.get(name);
+                frame.fields[slot] = value;
+            }
+            if (value == null && strict) {
+                // let the interpreter decide whether an unknown variable is an error
+                return frame.interpret(node);
+            }
+            return value;
+        };
+    }
+    
+    private Evaluator constant(JexlNode node) {
+        final Object value = engine.createInterpreter(new MapContext()).interpret(node);
+        return frame -> value;
+    }
+    
+    private Evaluator interpreted(JexlNode node) {
+        interpretedNodes++;
+        return frame -> frame.interpret(node);
+    }
+    
+    /**
+     * A term whose result is kept for the rest of the evaluation of a document, for the other terms with the same string
+     */
+    private Evaluator term(JexlNode node, Evaluator evaluator) {
+        String nodeString = JexlStringBuildingVisitor.buildQueryWithoutParse(node);
+        final int slot = termSlots.computeIfAbsent(nodeString, k -> termSlots.size());
+        return frame -> {
+            Object result = frame.terms[slot];
+            if (result == null) {
+                result = evaluator.evaluate(frame);
+                frame.terms[slot] = result;
+            }
+            return result;
+        };
+    }
+    
+    private Evaluator compileComparison(JexlNode node, String error, Comparison comparison) {
+        if (node.jjtGetNumChildren() != 2) {
+            return interpreted(node);
+        }
+        Evaluator left = compile(node.jjtGetChild(0));
+        Evaluator right = compile(node.jjtGetChild(1));
+        return frame -> {
+            Object leftValue = left.evaluate(frame);
+            Object rightValue = right.evaluate(frame);
+            try {
+                return comparison.compare(leftValue, rightValue) ? Boolean.TRUE : Boolean.FALSE;
+            } catch (ArithmeticException xrt) {
+                throw new JexlException(node, error, xrt);
+            }
+        };
+    }
+    
+    /**
+     * Compiles a conjunction as {@link DatawaveInterpreter#visit(ASTAndNode, Object)} evaluates it
+     */
+    private Evaluator compileAnd(ASTAndNode node) {
+        // ranges are reinterpreted as a function by the interpreter
+        if (node.jjtGetNumChildren() != 2 || JexlASTHelper.findRange().getRange(node) != null) {
+            return interpreted(node);
+        }
+        
+        Evaluator leftChild = compile(node.jjtGetChild(0));
+        Evaluator rightChild = compile(node.jjtGetChild(1));
+        return frame -> {
+            FunctionalSet leftFunctionalSet = null;
+            FunctionalSet rightFunctionalSet = null;
+            Object left = leftChild.evaluate(frame);
+            if (left == null)
+                left = FunctionalSet.empty();
+            if (left instanceof Collection == false) {
+                try {
+                    if (!arithmetic.toBoolean(left)) {
+                        return Boolean.FALSE;
+                    }
+                } catch (RuntimeException xrt) {
+                    throw new JexlException(node.jjtGetChild(0), "boolean coercion error", xrt);
+                }
+            } else {
+                leftFunctionalSet = new FunctionalSet();
+                leftFunctionalSet.addAll((Collection) left);
+            }
+            Object right = rightChild.evaluate(frame);
+            if (right == null)
+                right = FunctionalSet.empty();
+            if (right instanceof Collection == false) {
+                try {
+                    if (!arithmetic.toBoolean(right)) {
+                        return Boolean.FALSE;
+                    }
+                } catch (ArithmeticException xrt) {
+                    throw new JexlException(node.jjtGetChild(1), "boolean coercion error", xrt);
+                }
+            } else {
+                rightFunctionalSet = new FunctionalSet();
+                rightFunctionalSet.addAll((Collection) right);
+            }
+            // return union of left and right iff they are both non-null & non-empty
+            if (leftFunctionalSet != null && rightFunctionalSet != null) {
+                if (!leftFunctionalSet.isEmpty() && !rightFunctionalSet.isEmpty()) {
+                    FunctionalSet functionalSet = new FunctionalSet(leftFunctionalSet);
+                    functionalSet.addAll(rightFunctionalSet);
+                    return functionalSet;
+                } else {
+                    return Boolean.FALSE;
+                }
+            } else {
+                return toBoolean(left) && toBoolean(right);
+            }
+        };
+    }
+    
+    /**
+     * Compiles a disjunction, flattened, as {@link DatawaveInterpreter#visit(ASTOrNode, Object)} evaluates it
+     */
+    private Evaluator compileOr(ASTOrNode node) {
+        List<JexlNode> children = new ArrayList<>();
+        Deque<JexlNode> stack = new ArrayDeque<>();
+        stack.push(node);
+        
+        boolean allIdentifiers = true;
+        while (!stack.isEmpty()) {
+            JexlNode current = stack.pop();
+            if (current instanceof ASTOrNode) {
+                for (int i = current.jjtGetNumChildren() - 1; i >= 0; i--) {
+                    stack.push(JexlASTHelper.dereference(current.jjtGetChild(i)));
+                }
+            } else {
+                children.add(current);
+                allIdentifiers &= current instanceof ASTIdentifier;
+            }
+        }
+        
+        // a disjunction of identifiers is likely within a function, where every value must be aggregated
+        if (allIdentifiers) {
+            return interpreted(node);
+        }
+        
+        Map<JexlNode,RegexGroup> regexGroups = groupRegexes(children);
+        Evaluator[] evaluators = new Evaluator[children.size()];
+        for (int i = 0; i < evaluators.length; i++) {
+            JexlNode child = children.get(i);
+            RegexGroup group = regexGroups.get(child);
+            evaluators[i] = group == null ? compile(child) : group.compileRegex(child);
+        }
+        return frame -> {
+            Object result = null;
+            for (int i = 0; i < evaluators.length && !arithmetic.toBoolean(result); i++) {
+                result = interpretOr(evaluators[i].evaluate(frame), result);
+            }
+            return result;
+        };
+    }
+    
+    /**
+     * Groups the regexes against the same field in a disjunction, so that the values of the field are matched against all of them at once
+     * 
+     * @return the group of each regex which is in a group
+     */
+    private Map<JexlNode,RegexGroup> groupRegexes(List<JexlNode> children) {
+        Map<JexlNode,RegexGroup> groups = new IdentityHashMap<>();
+        // the values matched by any other arithmetic are not known
+        if (arithmetic.getClass() != HitListArithmetic.class && arithmetic.getClass() != DefaultArithmetic.class) {
+            return groups;
+        }
+        
+        Map<String,List<JexlNode>> regexesByField = new LinkedHashMap<>();
+        for (JexlNode child : children) {
+            if (child instanceof ASTERNode && child.jjtGetNumChildren() == 2 && isStringLiteral(child.jjtGetChild(1))) {
+                JexlNode identifier = JexlASTHelper.dereference(child.jjtGetChild(0));
+                if (identifier instanceof ASTIdentifier) {
+                    regexesByField.computeIfAbsent(identifier.image, k -> new ArrayList<>()).add(child);
+                }
+            }
+        }
+        
+        for (List<JexlNode> regexes : regexesByField.values()) {
+            if (regexes.size() > 1) {
+                try {
+                    RegexGroup group = new RegexGroup(regexes);
+                    for (JexlNode regex : regexes) {
+                        groups.put(regex, group);
+                    }
+                } catch (PatternSyntaxException e) {
+                    // the regexes are evaluated separately, which will fail as the interpreter would
+                }
+            }
+        }
+        return groups;
+    }
+    
+    /**
+     * @see DatawaveInterpreter#interpretOr(Object, Object)
+     */
+    private Object interpretOr(Object left, Object right) {
+        FunctionalSet leftFunctionalSet = null;
+        FunctionalSet rightFunctionalSet = null;
+        if (left == null)
+            left = FunctionalSet.empty();
+        if (!(left instanceof Collection)) {
+            try {
+                if (arithmetic.toBoolean(left)) {
+                    return Boolean.TRUE;
+                }
+            } catch (ArithmeticException xrt) {
+                throw new RuntimeException(left.toString() + " boolean coercion error", xrt);
+            }
+        } else {
+            leftFunctionalSet = new FunctionalSet();
+            leftFunctionalSet.addAll((Collection) left);
+        }
+        if (right == null)
+            right = FunctionalSet.empty();
+        if (!(right instanceof Collection)) {
+            try {
+                if (arithmetic.toBoolean(right)) {
+                    return Boolean.TRUE;
+                }
+            } catch (ArithmeticException xrt) {
+                throw new RuntimeException(right.toString() + " boolean coercion error", xrt);
+            }
+        } else {
+            rightFunctionalSet = new FunctionalSet();
+            rightFunctionalSet.addAll((Collection) right);
+        }
+        if (leftFunctionalSet != null && rightFunctionalSet != null) {
+            FunctionalSet functionalSet = new FunctionalSet(leftFunctionalSet);
+            functionalSet.addAll(rightFunctionalSet);
+            return functionalSet;
+        } else if (leftFunctionalSet != null) {
+            return leftFunctionalSet;
+        } else if (rightFunctionalSet != null) {
+            return rightFunctionalSet;
+        } else {
+            return toBoolean(left) || toBoolean(right);
+        }
+    }
+    
+    // this handles the case where one side is a boolean and the other is a collection
+    private boolean toBoolean(Object value) {
+        if (value instanceof Collection) {
+            return !((Collection) value).isEmpty();
+        }
+        return arithmetic.toBoolean(value);
+    }
+    
+    /**
+     * Regexes against the same field, whose values are matched against all of the regexes at once the first time one of them is evaluated for a document. A
+     * regex which no value matches evaluates to false without calling the arithmetic, the others are evaluated by the arithmetic as usual so that it records
+     * the same hits.
+     */
+    private class RegexGroup {
+        private final int slot;
+        private final Evaluator field;
+        private final MultiRegexMatcher matcher;
+        private final Map<JexlNode,Integer> ids = new IdentityHashMap<>();
+        
+        private RegexGroup(List<JexlNode> regexes) {
+            List<String> patterns = new ArrayList<>();
+            for (JexlNode regex : regexes) {
+                ids.put(regex, patterns.size());
+                patterns.add(String.valueOf(engine.createInterpreter(new MapContext()).interpret(regex.jjtGetChild(1))));
+            }
+            this.matcher = JexlPatternCache.getMatcher(patterns);
+            this.field = CompiledJexlScript.this.compile(regexes.get(0).jjtGetChild(0));
+            this.slot = regexGroupCount++;
+        }
+        
+        private Evaluator compileRegex(JexlNode regex) {
+            final int id = ids.get(regex);
+            final Evaluator evaluator = CompiledJexlScript.this.compile(regex);
+            return frame -> getMatches(frame).get(id) ? evaluator.evaluate(frame) : Boolean.FALSE;
+        }
+        
+        private BitSet getMatches(Frame frame) {
+            BitSet matches = frame.regexGroups[slot];
+            if (matches == null) {
+                matches = new BitSet(matcher.size());
+                if (!match(field.evaluate(frame), matches)) {
+                    // let the arithmetic evaluate every regex
+                    matches.set(0, matcher.size());
+                }
+                frame.regexGroups[slot] = matches;
+            }
+            return matches;
+        }
+        
+        /**
+         * Matches the values which the arithmetic would match against the regexes
+         * 
+         * @return false if the values could not be matched as the arithmetic would match them
+         */
+        private boolean match(Object value, BitSet matches) {
+            if (value == null) {
+                return true;
+            } else if (value instanceof Set) {
+                for (Object element : (Set<?>) value) {
+                    if (element == null || element instanceof Collection || !matchValue(element, matches)) {
+                        return false;
+                    }
+                }
+                return true;
+            } else if (value instanceof Collection) {
+                return false;
+            } else {
+                return matchValue(value, matches);
+            }
+        }
+        
+        private boolean matchValue(Object value, BitSet matches) {
+            // the HitListArithmetic matches the normalized values, the DefaultArithmetic matches both
+            Object normalized = ValueTuple.getNormalizedValue(value);
+            Object original = ValueTuple.getValue(value);
+            if (normalized == null || original == null) {
+                return false;
+            }
+            matcher.match(normalized.toString(), matches);
+            if (original != normalized) {
+                matcher.match(original.toString(), matches);
+            }
+            return true;
+        }
+    }
+    
+    @FunctionalInterface
+    private interface Evaluator {
+        Object evaluate(Frame frame);
+    }
+    
+    @FunctionalInterface
+    private interface Comparison {
+        boolean compare(Object left, Object right);
+    }
+    
+    /**
+     * The state of the evaluation of one document
+     */
+    private class Frame {
+        private final JexlContext context;
+        private final Object[] fields;
+        private final Object[] terms;
+        private final BitSet[] regexGroups;
+        private DatawaveInterpreter interpreter;
+        
+        private Frame(JexlContext context) {
+            this.context = context;
+            this.fields = new Object[fieldSlots.size()];
+            Arrays.fill(fields, UNRESOLVED);
+            this.terms = new Object[termSlots.size()];
+            this.regexGroups = new BitSet[regexGroupCount];
+        }
+        
+        private Object interpret(JexlNode node) {
+            // one interpreter per document, so that it keeps the results of the functions it evaluated as a script would
+            if (interpreter == null) {
+                interpreter = engine.createInterpreter(context);
+            }
+            return interpreter.interpret(node);
+        }
+    }
+}
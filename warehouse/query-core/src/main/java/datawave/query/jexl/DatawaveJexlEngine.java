@@ -34,6 +34,17 @@ public class DatawaveJexlEngine extends JexlEngine {
         return new DatawaveInterpreter(this, context, strictFlag, silentFlag);
     }
     
+    /**
+     * Creates an interpreter with the strictness and silence of this engine
+     * 
+     * @param context
+     *            the context of the interpreter
+     * @return the interpreter
+     */
+    public DatawaveInterpreter createInterpreter(JexlContext context) {
+        return (DatawaveInterpreter) createInterpreter(context, isStrict(), isSilent());
+    }
+    
     public ASTJexlScript parse(CharSequence expression) {
         return super.parse(expression, null, null);
     }
@@ -1,17 +1,23 @@
 package datawave.query.jexl;
 
+import java.util.List;
 import java.util.regex.Pattern;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import datawave.query.util.regex.MultiRegexMatcher;
 
 /**
  * 
  */
 public class JexlPatternCache {
     
+    private static final int FLAGS = Pattern.CASE_INSENSITIVE | Pattern.MULTILINE;
+    
     private static Cache<String,Pattern> PATTERN_CACHE = CacheBuilder.newBuilder().maximumSize(10000l).initialCapacity(100).concurrencyLevel(10).build();
     
+    private static Cache<List<String>,MultiRegexMatcher> MATCHER_CACHE = CacheBuilder.newBuilder().maximumSize(1000l).concurrencyLevel(10).build();
+    
     /**
      * Returns a cached Pattern
      * 
@@ -24,9 +30,28 @@ public class JexlPatternCache {
             return pattern;
         }
         
-        pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+        pattern = Pattern.compile(regex, FLAGS);
         PATTERN_CACHE.put(regex, pattern);
         
         return pattern;
     }
+    
+    /**
+     * Returns a cached matcher of several regexes, which matches a value against all of them at once with the same flags as the cached Patterns
+     * 
+     * @param regexes
+     *            the regexes, whose positions in the list are their ids
+     * @return the matcher
+     */
+    public static MultiRegexMatcher getMatcher(List<String> regexes) {
+        MultiRegexMatcher matcher = MATCHER_CACHE.getIfPresent(regexes);
+        if (null != matcher) {
+            return matcher;
+        }
+        
+        matcher = new MultiRegexMatcher(regexes, FLAGS);
+        MATCHER_CACHE.put(matcher.getRegexes(), matcher);
+        
+        return matcher;
+    }
 }
@@ -1,7 +1,7 @@
 package datawave.query.jexl.functions;
 
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -12,7 +12,6 @@ import org.apache.log4j.Logger;
 
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.ListMultimap;
-import com.google.common.collect.Lists;
 
 /**
  * An abstract class to for the ordered and unordered content evaluators.
@@ -64,12 +63,26 @@ public abstract class ContentFunctionEvaluator {
     }
     
     /**
-     * Evaluate the function based on the list of offset lists. The lists are expected to be ordered, and there is one offset list per term.
+     * Evaluate the function based on the decoded positions. There is one set of positions per term.
+     * 
+     * @param positions
+     * @return true if the positions satisfy the function
+     */
+    protected abstract boolean evaluate(TermPositions[] positions);
+    
+    /**
+     * Evaluate the function based on the list of offset lists. There is one offset list per term.
      * 
      * @param offsets
-     * @return List of offset matching the query, often just the first match for efficiency
+     * @return true if the offsets satisfy the function
      */
-    protected abstract boolean evaluate(List<List<TermWeightPosition>> offsets);
+    protected boolean evaluate(List<List<TermWeightPosition>> offsets) {
+        TermPositions[] positions = new TermPositions[offsets.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = TermPositions.decode(offsets.get(i), maxScore);
+        }
+        return evaluate(positions);
+    }
     
     /**
      * Validate and initialize this class. This will validate the arguments and setup other members.
@@ -97,6 +110,11 @@ public abstract class ContentFunctionEvaluator {
             return false;
         }
         
+        // when the offsets are deserialized on demand, fail before deserializing any of them if the terms never occur in the same event
+        if (termOffsetMap instanceof LazyTermFrequencyMap && !hasCommonEventId((LazyTermFrequencyMap) termOffsetMap)) {
+            return false;
+        }
+        
         // generate an intersection of event ids that cover all of the terms
         for (String term : terms) {
             if (term == null) {
@@ -116,7 +134,7 @@ public abstract class ContentFunctionEvaluator {
                 
                 return false;
             }
-            if (tfList.fetchOffsets().isEmpty()) {
+            if (tfList.isEmpty()) {
                 if (log.isTraceEnabled()) {
                     log.trace("Failing process() because of an empty offset list for " + term);
                 }
@@ -142,6 +160,45 @@ public abstract class ContentFunctionEvaluator {
         return true;
     }
     
+    /**
+     * Intersect the event ids of the terms, rarest term first, without deserializing any offsets. When the entries of the terms are read on demand the
+     * intersection stops reading at the first term which shares no event id with the rarer terms.
+     * 
+     * @param lazyMap
+     *            the term offset map
+     * @return true if all of the terms occur in at least one common event
+     */
+    private boolean hasCommonEventId(LazyTermFrequencyMap lazyMap) {
+        for (String term : terms) {
+            if (term == null) {
+                // leave the failure to be logged by initialize()
+                return true;
+            }
+        }
+        
+        String[] rarestFirst = terms.clone();
+        Arrays.sort(rarestFirst, Comparator.comparingLong(lazyMap::estimatedSize));
+        
+        Set<String> commonEventIds = null;
+        for (String term : rarestFirst) {
+            if (commonEventIds == null) {
+                commonEventIds = new HashSet<>(lazyMap.eventIds(term));
+            } else {
+                commonEventIds.retainAll(lazyMap.eventIds(term));
+            }
+            
+            if (commonEventIds.isEmpty()) {
+                if (log.isTraceEnabled()) {
+                    log.trace("Failing process() because " + term + " shares no event id with the rarer terms");
+                }
+                
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
     /**
      * Evaluate whether there is an unordered set of terms that are within the defined distance.
      * 
@@ -151,7 +208,7 @@ public abstract class ContentFunctionEvaluator {
         if (computable()) {
             // now for each event, lets process the terms
             for (String eventId : eventIds) {
-                ListMultimap<String,List<TermWeightPosition>> offsetsByField = LinkedListMultimap.create();
+                ListMultimap<String,TermPositions> offsetsByField = LinkedListMultimap.create();
                 for (String term : terms) {
                     TermFrequencyList tfList = termOffsetMap.get(term);
                     
@@ -159,15 +216,13 @@ public abstract class ContentFunctionEvaluator {
                     // and group the lists together
                     for (String field : tfList.fields()) {
                         TermFrequencyList.Zone zone = new TermFrequencyList.Zone(field, true, eventId);
-                        Collection<TermWeightPosition> offsets = tfList.fetchOffsets().get(zone);
                         // if no offsets, but we are explicitly looking for this field (i.e. not unfielded), then check for a non-content expansion zone
-                        if (offsets.isEmpty() && (fields != null && fields.contains(field))) {
+                        if (!tfList.hasOffsets(zone) && (fields != null && fields.contains(field))) {
                             zone = new TermFrequencyList.Zone(field, false, eventId);
-                            offsets = tfList.fetchOffsets().get(zone);
                         }
                         // not all field/event pairs will have offsets
-                        if (offsets != null && !offsets.isEmpty()) {
-                            offsetsByField.put(field, Lists.newArrayList(offsets));
+                        if (tfList.hasOffsets(zone)) {
+                            offsetsByField.put(field, tfList.getPositions(zone, maxScore));
                         }
                     }
                 }
@@ -180,7 +235,7 @@ public abstract class ContentFunctionEvaluator {
                 
                 // Iterate over each collection of offsets (grouped by field) and try to find one that satisfies the phrase/adjacency
                 for (String field : offsetsByField.keySet()) {
-                    List<List<TermWeightPosition>> offsets = offsetsByField.get(field);
+                    List<TermPositions> offsets = offsetsByField.get(field);
                     if (offsets == null || offsets.isEmpty()) {
                         continue;
                     }
@@ -210,7 +265,7 @@ public abstract class ContentFunctionEvaluator {
                     }
                     
                     // evaluate the offsets
-                    if (evaluate(offsets)) {
+                    if (evaluate(offsets.toArray(new TermPositions[0]))) {
                         if (log.isTraceEnabled()) {
                             log.trace(logPrefix + " satisfied the content function");
                         }
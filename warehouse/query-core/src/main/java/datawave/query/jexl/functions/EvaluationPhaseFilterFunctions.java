@@ -1,18 +1,22 @@
 package datawave.query.jexl.functions;
 
 import com.google.common.base.CharMatcher;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import datawave.data.type.Type;
 import datawave.query.attributes.ValueTuple;
 import datawave.query.jexl.JexlPatternCache;
 import datawave.query.collections.FunctionalSet;
+import datawave.query.util.regex.MultiRegexMatcher;
 import org.apache.log4j.Logger;
 
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
@@ -36,6 +40,11 @@ public class EvaluationPhaseFilterFunctions {
     public static final String EVAL_PHASE_FUNCTION_NAMESPACE = "filter";
     public static final String CASE_SENSITIVE_EXPRESSION = ".*\\(\\?[idmsux]*-[dmsux]*i[idmsux]*\\).*";
     
+    private static final Pattern CASE_SENSITIVE_PATTERN = Pattern.compile(CASE_SENSITIVE_EXPRESSION);
+    
+    // whether each regex turns off the case insensitivity, determined once per regex instead of on every evaluation
+    private static final Cache<String,Boolean> CASE_SENSITIVE_CACHE = CacheBuilder.newBuilder().maximumSize(10000l).concurrencyLevel(10).build();
+    
     protected static final Logger log = Logger.getLogger(EvaluationPhaseFilterFunctions.class);
     
     public static boolean occurrence(Iterable<?> fieldValues, String operator, int count) {
@@ -199,13 +208,40 @@ public class EvaluationPhaseFilterFunctions {
         // next arg is the field name
         Object fieldValue = args[1];
         // the rest of the args are the possible matches
+        List<String> regexes = new ArrayList<>();
         for (int i = 2; i < args.length; i++) {
-            String regex = args[i].toString();
-            if (fieldValue instanceof Iterable) {
-                // cast as Iterable in order to call the right includeRegex method
-                matches.addAll(includeRegex((Iterable) fieldValue, regex));
-            } else {
-                matches.addAll(includeRegex(fieldValue, regex));
+            regexes.add(args[i].toString());
+        }
+        
+        List<Object> values = new ArrayList<>();
+        if (fieldValue instanceof Iterable) {
+            for (Object value : (Iterable<?>) fieldValue) {
+                if (null != value) {
+                    values.add(value);
+                }
+            }
+        } else if (null != fieldValue) {
+            values.add(fieldValue);
+        }
+        
+        // take the first value matching each regex, as includeRegex would. A value is matched against all of the regexes at once, but only when a regex
+        // is first checked against it, so the values after the count is reached are never matched
+        MultiRegexMatcher matcher = JexlPatternCache.getMatcher(regexes);
+        BitSet[] valueMatches = new BitSet[values.size()];
+        BitSet[] normalizedMatches = new BitSet[values.size()];
+        for (int i = 0; i < regexes.size(); i++) {
+            boolean caseSensitiveExpression = isCaseSensitive(regexes.get(i));
+            for (int j = 0; j < values.size(); j++) {
+                if (null == valueMatches[j]) {
+                    valueMatches[j] = matcher.match(ValueTuple.getStringValue(values.get(j)));
+                }
+                if (!valueMatches[j].get(i) && !caseSensitiveExpression && null == normalizedMatches[j]) {
+                    normalizedMatches[j] = matcher.match(ValueTuple.getNormalizedStringValue(values.get(j)));
+                }
+                if (valueMatches[j].get(i) || (!caseSensitiveExpression && normalizedMatches[j].get(i))) {
+                    matches.add(getHitTerm(values.get(j)));
+                    break;
+                }
             }
             if (matches.size() >= count) {
                 break;
@@ -217,12 +253,26 @@ public class EvaluationPhaseFilterFunctions {
         return FunctionalSet.unmodifiableSet(matches);
     }
     
+    /**
+     * @param regex
+     *            a regex
+     * @return true if the regex turns off the case insensitivity with which the regexes are matched, in which case only the un-normalized values are matched
+     */
+    public static boolean isCaseSensitive(String regex) {
+        Boolean caseSensitive = CASE_SENSITIVE_CACHE.getIfPresent(regex);
+        if (null == caseSensitive) {
+            caseSensitive = CASE_SENSITIVE_PATTERN.matcher(regex).matches();
+            CASE_SENSITIVE_CACHE.put(regex, caseSensitive);
+        }
+        return caseSensitive;
+    }
+    
     // Evaluate a regex. Note this is being done against the un-normalized value unless the regex is not case sensitive.
     public static FunctionalSet<ValueTuple> includeRegex(Object fieldValue, String regex) {
         FunctionalSet<ValueTuple> matches = FunctionalSet.emptySet();
         if (fieldValue != null
                         && (JexlPatternCache.getPattern(regex).matcher(ValueTuple.getStringValue(fieldValue)).matches() || (JexlPatternCache.getPattern(regex)
-                                        .matcher(ValueTuple.getNormalizedStringValue(fieldValue)).matches() && !regex.matches(CASE_SENSITIVE_EXPRESSION)))) {
+                                        .matcher(ValueTuple.getNormalizedStringValue(fieldValue)).matches() && !isCaseSensitive(regex)))) {
             matches = FunctionalSet.singleton(getHitTerm(fieldValue));
         }
         return matches;
@@ -239,7 +289,7 @@ public class EvaluationPhaseFilterFunctions {
         }
         
         final Pattern pattern = JexlPatternCache.getPattern(regex);
-        final boolean caseSensitiveExpression = regex.matches(CASE_SENSITIVE_EXPRESSION);
+        final boolean caseSensitiveExpression = isCaseSensitive(regex);
         
         Matcher m = null;
         for (Object value : values) {
@@ -282,7 +332,7 @@ public class EvaluationPhaseFilterFunctions {
         }
         
         final Pattern pattern = JexlPatternCache.getPattern(regex);
-        final boolean caseSensitiveExpression = regex.matches(CASE_SENSITIVE_EXPRESSION);
+        final boolean caseSensitiveExpression = isCaseSensitive(regex);
         
         Matcher m = null;
         for (Object value : values) {
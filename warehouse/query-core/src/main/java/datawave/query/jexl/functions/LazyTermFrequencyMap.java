@@ -0,0 +1,229 @@
+package datawave.query.jexl.functions;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import datawave.ingest.protobuf.TermWeight;
+import datawave.query.iterator.profile.QuerySpan;
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.Maps;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+/**
+ * A term offset map which holds the serialized term frequency values of a document and only deserializes the offsets of a term when a content function asks
+ * for that term. The zones (and hence the event ids) of each term are known without deserializing, which lets the content functions reject a document before
+ * any offsets are decoded.
+ * <p>
+ * With a {@link TermFetcher} the entries of a term are not read until the term is first asked for, so a content function which fails on its rarest terms never
+ * reads the entries of the others.
+ */
+public class LazyTermFrequencyMap extends AbstractMap<String,TermFrequencyList> {
+    private static final Logger log = Logger.getLogger(LazyTermFrequencyMap.class);
+    
+    private final Map<String,List<Entry<TermFrequencyList.Zone,byte[]>>> encoded = new HashMap<>();
+    private final Map<String,TermFrequencyList> decoded = new HashMap<>();
+    private final QuerySpan querySpan;
+    private final Set<String> unfetched;
+    private final TermFetcher fetcher;
+    
+    /**
+     * Reads the term frequency entries of a single term
+     */
+    public interface TermFetcher {
+        /**
+         * @param term
+         *            the term
+         * @param map
+         *            the map to which each entry of the term is {@link LazyTermFrequencyMap#add added}
+         * @throws IOException
+         *             if the entries could not be read
+         */
+        void fetch(String term, LazyTermFrequencyMap map) throws IOException;
+        
+        /**
+         * @param term
+         *            the term
+         * @return an estimate of the serialized size of the term's entries, used to read the rarest terms first
+         */
+        long estimatedSize(String term);
+    }
+    
+    /**
+     * @param querySpan
+     *            the span to which the number of decoded values is reported, may be null
+     */
+    public LazyTermFrequencyMap(QuerySpan querySpan) {
+        this(querySpan, Collections.emptySet(), null);
+    }
+    
+    /**
+     * @param querySpan
+     *            the span to which the number of decoded values is reported, may be null
+     * @param terms
+     *            the terms whose entries are read by the fetcher when first asked for
+     * @param fetcher
+     *            reads the entries of a term
+     */
+    public LazyTermFrequencyMap(QuerySpan querySpan, Collection<String> terms, TermFetcher fetcher) {
+        this.querySpan = querySpan;
+        this.unfetched = new HashSet<>(terms);
+        this.fetcher = fetcher;
+    }
+    
+    private void fetch(Object term) {
+        if (!unfetched.isEmpty() && unfetched.remove(term)) {
+            try {
+                fetcher.fetch((String) term, this);
+            } catch (IOException e) {
+                log.error("Could not read the term frequencies for: " + term, e);
+            }
+        }
+    }
+    
+    private void fetchAll() {
+        for (String term : new ArrayList<>(unfetched)) {
+            fetch(term);
+        }
+    }
+    
+    /**
+     * Add the serialized term weight info of a term in a zone
+     * 
+     * @param term
+     *            the term
+     * @param zone
+     *            the zone (field and event id) of the term frequency entry
+     * @param termWeightInfo
+     *            the serialized term weight info, which must not be modified afterwards
+     */
+    public void add(String term, TermFrequencyList.Zone zone, byte[] termWeightInfo) {
+        encoded.computeIfAbsent(term, k -> new ArrayList<>()).add(Maps.immutableEntry(zone, termWeightInfo));
+        decoded.remove(term);
+    }
+    
+    /**
+     * Get the event ids in which a term occurs, without deserializing its offsets
+     * 
+     * @param term
+     *            the term
+     * @return the event ids, empty if the term does not occur
+     */
+    public Set<String> eventIds(String term) {
+        fetch(term);
+        List<Entry<TermFrequencyList.Zone,byte[]>> entries = encoded.get(term);
+        if (entries == null) {
+            return Collections.emptySet();
+        }
+        Set<String> eventIds = new HashSet<>();
+        for (Entry<TermFrequencyList.Zone,byte[]> entry : entries) {
+            eventIds.add(entry.getKey().getEventId());
+        }
+        return eventIds;
+    }
+    
+    /**
+     * Get the serialized size of a term's offsets, which is proportional to the number of times the term occurs
+     * 
+     * @param term
+     *            the term
+     * @return the number of serialized bytes, 0 if the term does not occur
+     */
+    public int encodedSize(String term) {
+        fetch(term);
+        int size = 0;
+        List<Entry<TermFrequencyList.Zone,byte[]>> entries = encoded.get(term);
+        if (entries != null) {
+            for (Entry<TermFrequencyList.Zone,byte[]> entry : entries) {
+                size += entry.getValue().length;
+            }
+        }
+        return size;
+    }
+    
+    /**
+     * Get the serialized size of a term's offsets if they have been read, otherwise the fetcher's estimate of it
+     * 
+     * @param term
+     *            the term
+     * @return the actual or estimated number of serialized bytes
+     */
+    public long estimatedSize(String term) {
+        if (unfetched.contains(term)) {
+            return fetcher.estimatedSize(term);
+        }
+        return encodedSize(term);
+    }
+    
+    @Override
+    public TermFrequencyList get(Object term) {
+        TermFrequencyList tfList = decoded.get(term);
+        if (tfList == null) {
+            fetch(term);
+            List<Entry<TermFrequencyList.Zone,byte[]>> entries = encoded.get(term);
+            if (entries == null) {
+                return null;
+            }
+            
+            tfList = new TermFrequencyList();
+            try {
+                for (Entry<TermFrequencyList.Zone,byte[]> entry : entries) {
+                    tfList.addOffsets(entry.getKey(), TermWeight.Info.parseFrom(entry.getValue()));
+                }
+            } catch (InvalidProtocolBufferException e) {
+                // drop the term, as the eager population does, so that every content function fails on it
+                log.error("Could not deserialize TermWeight protocol buffer for: " + term);
+                encoded.remove(term);
+                return null;
+            }
+            
+            if (querySpan != null) {
+                querySpan.termFrequencyDecodes(entries.size());
+            }
+            decoded.put((String) term, tfList);
+        }
+        return tfList;
+    }
+    
+    @Override
+    public boolean containsKey(Object term) {
+        fetch(term);
+        return encoded.containsKey(term);
+    }
+    
+    @Override
+    public Set<String> keySet() {
+        fetchAll();
+        return Collections.unmodifiableSet(encoded.keySet());
+    }
+    
+    @Override
+    public int size() {
+        fetchAll();
+        return encoded.size();
+    }
+    
+    /**
+     * Reads and deserializes every term, so it should only be used by consumers other than the content functions
+     */
+    @Override
+    public Set<Entry<String,TermFrequencyList>> entrySet() {
+        fetchAll();
+        Set<Entry<String,TermFrequencyList>> entries = new HashSet<>();
+        for (String term : new ArrayList<>(encoded.keySet())) {
+            TermFrequencyList tfList = get(term);
+            if (tfList != null) {
+                entries.add(Maps.immutableEntry(term, tfList));
+            }
+        }
+        return Collections.unmodifiableSet(entries);
+    }
+}
@@ -2,18 +2,25 @@ package datawave.query.jexl.functions;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
+import datawave.ingest.protobuf.TermWeight;
 import datawave.ingest.protobuf.TermWeightPosition;
 import org.apache.accumulo.core.data.Key;
 
 import com.google.common.base.Predicate;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.TreeMultimap;
+import com.google.protobuf.InvalidProtocolBufferException;
 
 /**
  * Represents a List of offsets represented as TermWeightPositions, corresponding to word positions, in a given field, for a term. This is intended to be used
@@ -95,8 +102,39 @@ public class TermFrequencyList {
         return eventId.toString();
     }
     
+    /**
+     * Decode the offsets of a serialized {@link TermWeight.Info} for a zone
+     * 
+     * @param zone
+     *            the zone (field and event id) of the term frequency entry
+     * @param termWeightInfo
+     *            the serialized term weight info, i.e. the value of the term frequency entry
+     * @return the offsets keyed by the zone
+     * @throws InvalidProtocolBufferException
+     *             if the value is not a term weight info
+     */
+    public static TreeMultimap<Zone,TermWeightPosition> decodeOffsets(Zone zone, byte[] termWeightInfo) throws InvalidProtocolBufferException {
+        TermWeight.Info twInfo = TermWeight.Info.parseFrom(termWeightInfo);
+        
+        TreeMultimap<Zone,TermWeightPosition> offsets = TreeMultimap.create();
+        TermWeightPosition.Builder position = new TermWeightPosition.Builder();
+        for (int i = 0; i < twInfo.getTermOffsetCount(); i++) {
+            position.setTermWeightOffsetInfo(twInfo, i);
+            offsets.put(zone, position.build());
+            position.reset();
+        }
+        return offsets;
+    }
+    
     protected final TreeMultimap<Zone,TermWeightPosition> offsetsPerField;
     
+    // term weight infos which have not been decoded into offsetsPerField, so that the content functions can decode them directly into TermPositions
+    private final Map<Zone,List<TermWeight.Info>> infosPerField = new TreeMap<>();
+    
+    public TermFrequencyList() {
+        this.offsetsPerField = TreeMultimap.create();
+    }
+    
     public TermFrequencyList(TreeMultimap<Zone,TermWeightPosition> offsetsByField) {
         checkNotNull(offsetsByField);
         
@@ -121,8 +159,8 @@ public class TermFrequencyList {
     
     public static TermFrequencyList merge(TermFrequencyList list1, TermFrequencyList list2) {
         TreeMultimap<Zone,TermWeightPosition> offsetsPerField = TreeMultimap.create();
-        offsetsPerField.putAll(list1.offsetsPerField);
-        offsetsPerField.putAll(list2.offsetsPerField);
+        offsetsPerField.putAll(list1.fetchOffsets());
+        offsetsPerField.putAll(list2.fetchOffsets());
         return new TermFrequencyList(offsetsPerField);
     }
     
@@ -130,9 +168,28 @@ public class TermFrequencyList {
         checkNotNull(field);
         checkNotNull(offsets);
         
+        // the infos added earlier must keep their precedence over these offsets when positions at the same offsets are dropped
+        decodeInfos();
         this.offsetsPerField.putAll(field, offsets);
     }
     
+    /**
+     * Add the offsets of a term weight info, which are only decoded into {@link TermWeightPosition}s if they are fetched as such
+     * 
+     * @param field
+     *            the zone of the term weight info
+     * @param info
+     *            the term weight info
+     */
+    public void addOffsets(Zone field, TermWeight.Info info) {
+        checkNotNull(field);
+        checkNotNull(info);
+        
+        if (info.getTermOffsetCount() > 0) {
+            this.infosPerField.computeIfAbsent(field, k -> new ArrayList<>()).add(info);
+        }
+    }
+    
     public void addOffsets(Entry<Zone,Iterable<TermWeightPosition>> offsetForField) {
         checkNotNull(offsetForField);
         
@@ -161,6 +218,7 @@ public class TermFrequencyList {
      * @return
      */
     public TreeMultimap<Zone,TermWeightPosition> fetchOffsets() {
+        decodeInfos();
         return this.offsetsPerField;
     }
     
@@ -173,18 +231,66 @@ public class TermFrequencyList {
     public TreeMultimap<Zone,TermWeightPosition> fetchOffsets(Set<Zone> fields) {
         checkNotNull(fields);
         
-        return (TreeMultimap<Zone,TermWeightPosition>) Multimaps.filterKeys(this.offsetsPerField, new FieldFilterPredicate(fields));
+        return (TreeMultimap<Zone,TermWeightPosition>) Multimaps.filterKeys(fetchOffsets(), new FieldFilterPredicate(fields));
+    }
+    
+    /**
+     * Get the positions in a zone for the content functions. The offsets of a zone which were added as a single term weight info are decoded directly into the
+     * positions.
+     * 
+     * @param field
+     *            the zone
+     * @param maxScore
+     *            the largest term weight score to keep
+     * @return the positions, empty if there are none in the zone
+     */
+    public TermPositions getPositions(Zone field, int maxScore) {
+        List<TermWeight.Info> infos = this.infosPerField.get(field);
+        if (infos != null && infos.size() == 1 && !this.offsetsPerField.containsKey(field)) {
+            return TermPositions.decode(infos.get(0), maxScore);
+        }
+        return TermPositions.decode(fetchOffsets().get(field), maxScore);
+    }
+    
+    /**
+     * @param field
+     *            the zone
+     * @return true if there are offsets in the zone
+     */
+    public boolean hasOffsets(Zone field) {
+        return this.infosPerField.containsKey(field) || this.offsetsPerField.containsKey(field);
+    }
+    
+    public boolean isEmpty() {
+        return this.infosPerField.isEmpty() && this.offsetsPerField.isEmpty();
+    }
+    
+    private void decodeInfos() {
+        if (this.infosPerField.isEmpty()) {
+            return;
+        }
+        TermWeightPosition.Builder position = new TermWeightPosition.Builder();
+        for (Entry<Zone,List<TermWeight.Info>> entry : this.infosPerField.entrySet()) {
+            for (TermWeight.Info info : entry.getValue()) {
+                for (int i = 0; i < info.getTermOffsetCount(); i++) {
+                    position.setTermWeightOffsetInfo(info, i);
+                    this.offsetsPerField.put(entry.getKey(), position.build());
+                    position.reset();
+                }
+            }
+        }
+        this.infosPerField.clear();
     }
     
     /**
      * Let clients ask what fields we are currently tracking.
      */
     public Set<String> fields() {
-        if (this.offsetsPerField.isEmpty()) {
+        if (isEmpty()) {
             return Collections.emptySet();
         } else {
             Set<String> fields = new HashSet<>();
-            for (Zone zone : this.offsetsPerField.keySet()) {
+            for (Zone zone : zones()) {
                 fields.add(zone.getZone());
             }
             return fields;
@@ -195,11 +301,11 @@ public class TermFrequencyList {
      * Let clients ask what event ids we are currently tracking.
      */
     public Set<String> eventIds() {
-        if (this.offsetsPerField.isEmpty()) {
+        if (isEmpty()) {
             return Collections.emptySet();
         } else {
             Set<String> eventIds = new HashSet<>();
-            for (Zone zone : this.offsetsPerField.keySet()) {
+            for (Zone zone : zones()) {
                 eventIds.add(zone.getEventId());
             }
             return eventIds;
@@ -210,17 +316,22 @@ public class TermFrequencyList {
      * Let clients ask what zones we are currently tracking.
      */
     public Set<Zone> zones() {
-        return this.offsetsPerField.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(this.offsetsPerField.keySet());
+        if (this.infosPerField.isEmpty()) {
+            return this.offsetsPerField.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(this.offsetsPerField.keySet());
+        }
+        Set<Zone> zones = new TreeSet<>(this.infosPerField.keySet());
+        zones.addAll(this.offsetsPerField.keySet());
+        return Collections.unmodifiableSet(zones);
     }
     
     @Override
     public String toString() {
-        return this.offsetsPerField.toString();
+        return fetchOffsets().toString();
     }
     
     @Override
     public int hashCode() {
-        return this.offsetsPerField.hashCode();
+        return fetchOffsets().hashCode();
     }
     
     @Override
@@ -228,7 +339,7 @@ public class TermFrequencyList {
         if (o instanceof TermFrequencyList) {
             TermFrequencyList other = (TermFrequencyList) o;
             
-            return this.offsetsPerField.equals(other.offsetsPerField);
+            return fetchOffsets().equals(other.fetchOffsets());
         }
         
         return false;
@@ -0,0 +1,395 @@
+package datawave.query.jexl.functions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import datawave.ingest.protobuf.TermWeight;
+import datawave.ingest.protobuf.TermWeightPosition;
+
+/**
+ * <p>
+ * The positions of a single term within a single zone, decoded from {@link TermWeightPosition}s into parallel primitive arrays. The arrays are sorted in
+ * {@link TermWeightPosition} order, i.e. by low offset and then by offset, so the content functions can be evaluated with galloping searches over the arrays
+ * rather than by building and sorting a position object per term occurrence for every event.
+ * </p>
+ * 
+ * <ul>
+ * <li>{@link #isOrderedMatch(TermPositions[], String[], int)} backs content:phrase()</li>
+ * <li>{@link #isUnorderedMatch(TermPositions[], String[], int)} backs content:within() and content:adjacent()</li>
+ * </ul>
+ */
+public class TermPositions {
+    
+    private static final TermPositions EMPTY = new TermPositions(new int[0], new int[0], new boolean[0], 0);
+    
+    private final int[] lowOffsets;
+    private final int[] offsets;
+    private final boolean[] zeroOffsetMatch;
+    private final int size;
+    private final int maxSkip;
+    
+    private TermPositions(int[] lowOffsets, int[] offsets, boolean[] zeroOffsetMatch, int size) {
+        this.lowOffsets = lowOffsets;
+        this.offsets = offsets;
+        this.zeroOffsetMatch = zeroOffsetMatch;
+        this.size = size;
+        
+        int maxSkip = 0;
+        for (int i = 0; i < size; i++) {
+            maxSkip = Math.max(maxSkip, offsets[i] - lowOffsets[i]);
+        }
+        this.maxSkip = maxSkip;
+    }
+    
+    /**
+     * Decode a collection of positions, dropping those with a score greater than the max score.
+     * 
+     * @param positions
+     *            the positions of a term, normally already sorted as they come from a {@link TermFrequencyList}
+     * @param maxScore
+     *            the largest term weight score to keep
+     * @return the decoded positions
+     */
+    public static TermPositions decode(Collection<TermWeightPosition> positions, int maxScore) {
+        if (positions == null || positions.isEmpty()) {
+            return EMPTY;
+        }
+        
+        int[] lowOffsets = new int[positions.size()];
+        int[] offsets = new int[positions.size()];
+        boolean[] zeroOffsetMatch = new boolean[positions.size()];
+        int size = 0;
+        boolean sorted = true;
+        for (TermWeightPosition position : positions) {
+            if (position.getScore() > maxScore) {
+                continue;
+            }
+            
+            lowOffsets[size] = position.getLowOffset();
+            offsets[size] = position.getOffset();
+            zeroOffsetMatch[size] = position.getZeroOffsetMatch();
+            if (size > 0 && (lowOffsets[size] < lowOffsets[size - 1] || (lowOffsets[size] == lowOffsets[size - 1] && offsets[size] < offsets[size - 1]))) {
+                sorted = false;
+            }
+            size++;
+        }
+        
+        if (!sorted) {
+            List<TermWeightPosition> copy = new ArrayList<>(positions);
+            Collections.sort(copy);
+            return decode(copy, maxScore);
+        }
+        
+        return new TermPositions(lowOffsets, offsets, zeroOffsetMatch, size);
+    }
+    
+    /**
+     * Decode the offsets of a term weight info directly into the arrays, dropping those with a score greater than the max score. The positions are sorted, and
+     * a position at the same offsets as an earlier one is dropped as a {@link TermFrequencyList} would drop it, without creating a {@link TermWeightPosition}
+     * for each offset.
+     * 
+     * @param info
+     *            the term weight info of a term in a zone
+     * @param maxScore
+     *            the largest term weight score to keep
+     * @return the decoded positions
+     */
+    public static TermPositions decode(TermWeight.Info info, int maxScore) {
+        int count = info.getTermOffsetCount();
+        if (count == 0) {
+            return EMPTY;
+        }
+        
+        // the skips and scores are only used when there is one for each offset, as in TermWeightPosition.Builder
+        boolean hasPrevSkips = info.getPrevSkipsCount() == count;
+        boolean hasScores = info.getScoreCount() == count;
+        int[] lowOffsets = new int[count];
+        int[] offsets = new int[count];
+        int[] scores = new int[count];
+        boolean sorted = true;
+        for (int i = 0; i < count; i++) {
+            offsets[i] = info.getTermOffset(i);
+            int prevSkips = hasPrevSkips ? info.getPrevSkips(i) : TermWeightPosition.DEFAULT_PREV_SKIPS;
+            lowOffsets[i] = prevSkips >= 0 ? offsets[i] - prevSkips : offsets[i];
+            scores[i] = hasScores ? info.getScore(i) : TermWeightPosition.DEFAULT_SCORE;
+            if (i > 0 && compare(lowOffsets[i], offsets[i], lowOffsets[i - 1], offsets[i - 1]) <= 0) {
+                sorted = false;
+            }
+        }
+        
+        // the sort is stable, so the first of several positions at the same offsets is kept
+        Integer[] order = null;
+        if (!sorted) {
+            order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (i, j) -> compare(lowOffsets[i], offsets[i], lowOffsets[j], offsets[j]));
+        }
+        
+        int[] keptLowOffsets = new int[count];
+        int[] keptOffsets = new int[count];
+        int size = 0;
+        int previous = -1;
+        for (int i = 0; i < count; i++) {
+            int index = (order == null) ? i : order[i];
+            boolean duplicate = previous >= 0 && compare(lowOffsets[index], offsets[index], lowOffsets[previous], offsets[previous]) == 0;
+            previous = index;
+            if (duplicate || scores[index] > maxScore) {
+                continue;
+            }
+            keptLowOffsets[size] = lowOffsets[index];
+            keptOffsets[size] = offsets[index];
+            size++;
+        }
+        
+        boolean[] zeroOffsetMatch = new boolean[size];
+        Arrays.fill(zeroOffsetMatch, info.getZeroOffsetMatch());
+        return new TermPositions(keptLowOffsets, keptOffsets, zeroOffsetMatch, size);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * Find the first index in [from, size) whose low offset is at least the key, galloping forward from the from index. Successive calls with increasing keys
+     * therefore cost a logarithm of the distance moved rather than of the array length.
+     * 
+     * @param from
+     *            the first index to consider
+     * @param key
+     *            the low offset to find
+     * @return the first index with a low offset of at least key, or size if there is none
+     */
+    int seek(int from, int key) {
+        if (from >= size || lowOffsets[from] >= key) {
+            return from;
+        }
+        
+        // gallop until the key is bracketed by (low, high]
+        int low = from;
+        int step = 1;
+        int high = from + step;
+        while (high < size && lowOffsets[high] < key) {
+            low = high;
+            step <<= 1;
+            high = from + step;
+        }
+        if (high > size) {
+            high = size;
+        }
+        
+        // then binary search within the bracket
+        while (low + 1 < high) {
+            int mid = (low + high) >>> 1;
+            if (lowOffsets[mid] < key) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return high;
+    }
+    
+    /**
+     * Whether two positions may not match because they share an offset and at least one of them disallows a zero offset match.
+     */
+    private boolean isZeroOffset(int index, TermPositions other, int otherIndex) {
+        return (!zeroOffsetMatch[index] || !other.zeroOffsetMatch[otherIndex]) && offsets[index] == other.offsets[otherIndex];
+    }
+    
+    /**
+     * Whether a position of the next term in a phrase is within the distance of a position of this term, allowing for the skips of both positions.
+     */
+    private boolean isWithin(int index, TermPositions next, int nextIndex, int distance) {
+        return !isZeroOffset(index, next, nextIndex) && lowOffsets[index] <= next.offsets[nextIndex]
+                        && next.lowOffsets[nextIndex] <= offsets[index] + distance;
+    }
+    
+    /**
+     * Determine whether there is a position for each term, in the order of the terms, where each position is within the distance of the position of the term
+     * before it. This walks the terms once, carrying forward which positions of the current term can end a match of the terms so far, and returns as soon as a
+     * position of the last term is reached.
+     * 
+     * @param positions
+     *            the positions of each term, parallel to the terms
+     * @param terms
+     *            the terms of the phrase
+     * @param distance
+     *            the maximum distance between adjacent terms
+     * @return true if the phrase is found
+     */
+    public static boolean isOrderedMatch(TermPositions[] positions, String[] terms, int distance) {
+        if (terms.length < 2 || positions.length < terms.length) {
+            return false;
+        }
+        for (int i = 0; i < terms.length; i++) {
+            if (positions[i].isEmpty()) {
+                return false;
+            }
+        }
+        
+        TermPositions previous = positions[0];
+        boolean[] reachable = new boolean[previous.size];
+        Arrays.fill(reachable, true);
+        for (int i = 1; i < terms.length; i++) {
+            TermPositions next = positions[i];
+            boolean last = (i == terms.length - 1);
+            boolean sameTerm = terms[i - 1].equals(terms[i]);
+            boolean[] nextReachable = last ? null : new boolean[next.size];
+            boolean found = false;
+            
+            // a previous position can only precede this one if its low offset is within the distance plus its own skips
+            int from = 0;
+            for (int j = 0; j < next.size; j++) {
+                from = previous.seek(from, next.lowOffsets[j] - distance - previous.maxSkip);
+                for (int k = from; k < previous.size && previous.lowOffsets[k] <= next.offsets[j]; k++) {
+                    if (!reachable[k] || !previous.isWithin(k, next, j, distance)) {
+                        continue;
+                    }
+                    // the same term at the same position cannot fill two places in the phrase
+                    if (sameTerm && previous.lowOffsets[k] == next.lowOffsets[j] && previous.offsets[k] == next.offsets[j]) {
+                        continue;
+                    }
+                    
+                    if (last) {
+                        return true;
+                    }
+                    nextReachable[j] = true;
+                    found = true;
+                    break;
+                }
+            }
+            
+            if (!found) {
+                return false;
+            }
+            previous = next;
+            reachable = nextReachable;
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Determine whether there is a position for each term, in any order, such that the highest low offset is within the distance of the lowest offset. A term
+     * repeated in the terms must be matched by distinct positions. This advances a cursor through the lowest of the current positions until the window closes
+     * or a term runs out of positions.
+     * 
+     * @param positions
+     *            the positions of each term, parallel to the terms
+     * @param terms
+     *            the terms to find
+     * @param distance
+     *            the maximum distance across all of the terms
+     * @return true if the terms are found within the distance
+     */
+    public static boolean isUnorderedMatch(TermPositions[] positions, String[] terms, int distance) {
+        if (terms.length < 2 || positions.length < terms.length) {
+            return false;
+        }
+        
+        // repeated terms share the positions of their first occurrence and a cursor through them
+        Map<String,Integer> lists = new HashMap<>();
+        int[] list = new int[terms.length];
+        int[] cursors = new int[terms.length];
+        
+        // the current position of each term and the largest offset remaining to it
+        int[] current = new int[terms.length];
+        int[] maxOffsets = new int[terms.length];
+        int maxLowOffset = Integer.MIN_VALUE;
+        int maxOffset = Integer.MIN_VALUE;
+        for (int i = 0; i < terms.length; i++) {
+            Integer index = lists.get(terms[i]);
+            if (index == null) {
+                index = i;
+                lists.put(terms[i], index);
+            }
+            list[i] = index;
+            
+            TermPositions termPositions = positions[index];
+            int cursor = cursors[index]++;
+            if (cursor >= termPositions.size) {
+                return false;
+            }
+            current[i] = cursor;
+            maxOffsets[i] = Integer.MIN_VALUE;
+            for (int j = cursor; j < termPositions.size; j++) {
+                maxOffsets[i] = Math.max(maxOffsets[i], termPositions.offsets[j]);
+            }
+            
+            if (compare(termPositions.lowOffsets[cursor], termPositions.offsets[cursor], maxLowOffset, maxOffset) > 0) {
+                maxLowOffset = termPositions.lowOffsets[cursor];
+                maxOffset = termPositions.offsets[cursor];
+            }
+        }
+        
+        while (true) {
+            int min = 0;
+            for (int i = 1; i < terms.length; i++) {
+                TermPositions termPositions = positions[list[i]];
+                TermPositions minPositions = positions[list[min]];
+                if (compare(termPositions.lowOffsets[current[i]], termPositions.offsets[current[i]], minPositions.lowOffsets[current[min]],
+                                minPositions.offsets[current[min]]) < 0) {
+                    min = i;
+                }
+            }
+            TermPositions minPositions = positions[list[min]];
+            
+            if (maxLowOffset - minPositions.offsets[current[min]] <= distance) {
+                return true;
+            }
+            
+            // if the highest low offset is beyond the distance of every remaining position of this term, there is no way to satisfy
+            if (maxLowOffset - maxOffsets[min] > distance) {
+                return false;
+            }
+            
+            int cursor = cursors[list[min]]++;
+            if (cursor >= minPositions.size) {
+                return false;
+            }
+            current[min] = cursor;
+            if (compare(minPositions.lowOffsets[cursor], minPositions.offsets[cursor], maxLowOffset, maxOffset) > 0) {
+                maxLowOffset = minPositions.lowOffsets[cursor];
+                maxOffset = minPositions.offsets[cursor];
+            }
+        }
+    }
+    
+    /**
+     * Compare two positions the way {@link TermWeightPosition#compareTo(TermWeightPosition)} does.
+     */
+    private static int compare(int lowOffset, int offset, int otherLowOffset, int otherOffset) {
+        int result = Integer.compare(lowOffset, otherLowOffset);
+        if (result != 0) {
+            return result;
+        }
+        return Integer.compare(offset, otherOffset);
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(offsets[i]);
+            if (lowOffsets[i] != offsets[i]) {
+                sb.append('-').append(offsets[i] - lowOffsets[i]);
+            }
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -6,7 +6,8 @@ import datawave.query.tables.ScannerFactory;
 public class EmptyIndexLookup extends IndexLookup {
     @Override
     public IndexLookupMap lookup(ShardQueryConfiguration config, ScannerFactory scannerFactory, long lookupTimer) {
-        return new IndexLookupMap(config.getMaxUnfieldedExpansionThreshold(), config.getMaxValueExpansionThreshold());
+        return new IndexLookupMap(config.getMaxUnfieldedExpansionThreshold(), config.getMaxValueExpansionThreshold(),
+                        config.getFieldMaxValueExpansionThresholds());
     }
     
 }
@@ -73,7 +73,8 @@ public class FieldNameLookup extends IndexLookup {
             return fieldToTerms;
         }
         
-        fieldToTerms = new IndexLookupMap(config.getMaxUnfieldedExpansionThreshold(), config.getMaxValueExpansionThreshold());
+        fieldToTerms = new IndexLookupMap(config.getMaxUnfieldedExpansionThreshold(), config.getMaxValueExpansionThreshold(),
+                        config.getFieldMaxValueExpansionThresholds());
         
         final Text holder = new Text();
         
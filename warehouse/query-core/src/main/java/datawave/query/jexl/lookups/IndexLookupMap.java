@@ -17,12 +17,26 @@ public class IndexLookupMap implements Map<String,ValueSet>, Serializable {
     private boolean exceededKeyThreshold = false;
     private int keyThreshold = -1;
     private int valueThreshold = -1;
+    private Map<String,Integer> keyValueThresholds = new HashMap<>();
     
     public IndexLookupMap(int keyThreshold, int valueThreshold) {
         this.keyThreshold = keyThreshold;
         this.valueThreshold = valueThreshold;
     }
     
+    /**
+     * @param keyThreshold
+     *            the max number of keys
+     * @param valueThreshold
+     *            the max number of values per key
+     * @param keyValueThresholds
+     *            the max number of values of specific keys, overriding the valueThreshold
+     */
+    public IndexLookupMap(int keyThreshold, int valueThreshold, Map<String,Integer> keyValueThresholds) {
+        this(keyThreshold, valueThreshold);
+        this.keyValueThresholds.putAll(keyValueThresholds);
+    }
+    
     public boolean isKeyThresholdExceeded() {
         return this.exceededKeyThreshold;
     }
@@ -57,7 +71,7 @@ public class IndexLookupMap implements Map<String,ValueSet>, Serializable {
             return false;
         }
         if (!index.containsKey(key)) {
-            index.put(key, new ValueSet(valueThreshold));
+            index.put(key, new ValueSet(getValueThreshold(key)));
         }
         return index.get(key).add(value);
     }
@@ -85,7 +99,7 @@ public class IndexLookupMap implements Map<String,ValueSet>, Serializable {
     public boolean putAll(String key, Collection<String> values) {
         testExceeded(key);
         if (!index.containsKey(key)) {
-            index.put(key, new ValueSet(valueThreshold));
+            index.put(key, new ValueSet(getValueThreshold(key)));
         }
         return index.get(key).addAll(values);
     }
@@ -140,6 +154,10 @@ public class IndexLookupMap implements Map<String,ValueSet>, Serializable {
         return builder.toString();
     }
     
+    private int getValueThreshold(String key) {
+        return keyValueThresholds.getOrDefault(key, valueThreshold);
+    }
+    
     private void testExceeded(String key) {
         
         if (keyThreshold > 0 && !exceededKeyThreshold && !index.containsKey(key) && (size() + 1 > keyThreshold)) {
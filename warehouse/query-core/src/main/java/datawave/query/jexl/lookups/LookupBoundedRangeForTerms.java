@@ -57,7 +57,8 @@ public class LookupBoundedRangeForTerms extends IndexLookup {
         // build the start and end range for the scanner
         // Key for global index is Row-> Normalized FieldValue, CF-> FieldName,
         // CQ->shard_id\x00datatype
-        IndexLookupMap fieldToUniqueTerms = new IndexLookupMap(config.getMaxUnfieldedExpansionThreshold(), config.getMaxValueExpansionThreshold());
+        IndexLookupMap fieldToUniqueTerms = new IndexLookupMap(config.getMaxUnfieldedExpansionThreshold(), config.getMaxValueExpansionThreshold(),
+                        config.getFieldMaxValueExpansionThresholds());
         
         IteratorSetting fairnessIterator = null;
         if (maxLookup > 0) {
@@ -64,7 +64,8 @@ public class LookupTermsFromRegex extends RegexIndexLookup {
     
     @Override
     public IndexLookupMap lookup(ShardQueryConfiguration config, ScannerFactory scannerFactory, long maxLookupConfigured) {
-        IndexLookupMap fieldsToValues = new IndexLookupMap(config.getMaxUnfieldedExpansionThreshold(), config.getMaxValueExpansionThreshold());
+        IndexLookupMap fieldsToValues = new IndexLookupMap(config.getMaxUnfieldedExpansionThreshold(), config.getMaxValueExpansionThreshold(),
+                        config.getFieldMaxValueExpansionThresholds());
         fieldsToValues.setPatterns(patterns);
         
         Multimap<String,Range> forwardMap = ArrayListMultimap.create(), reverseMap = ArrayListMultimap.create();
@@ -18,6 +18,8 @@ import datawave.query.attributes.ValueTuple;
 import datawave.query.composite.CompositeMetadata;
 import datawave.query.exceptions.DatawaveFatalQueryException;
 import datawave.query.iterator.NestedIterator;
+import datawave.query.iterator.logic.AndIterator;
+import datawave.query.iterator.logic.FieldIndexCardinalityCache;
 import datawave.query.iterator.logic.OrIterator;
 import datawave.query.jexl.functions.EventFieldAggregator;
 import datawave.query.jexl.functions.JexlFunctionArgumentDescriptorFactory;
@@ -107,6 +109,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -147,12 +150,14 @@ public class IteratorBuildingVisitor extends BaseVisitor {
     protected String scanId;
     protected String ivaratorCacheSubDirPrefix = "";
     protected long ivaratorCacheScanPersistThreshold = 100000L;
+    protected Map<String,Long> ivaratorCacheScanPersistFieldThresholds = Collections.emptyMap();
     protected long ivaratorCacheScanTimeout = 1000L * 60 * 60;
     protected int ivaratorCacheBufferSize = 10000;
     protected int maxRangeSplit = 11;
     protected int ivaratorMaxOpenFiles = 100;
     protected long maxIvaratorResults = -1;
     protected int ivaratorNumRetries = 2;
+    protected long ivaratorSharedResultsMaxKeys = 0;
     protected FileSortedSet.PersistOptions ivaratorPersistOptions = new FileSortedSet.PersistOptions();
     protected SortedKeyValueIterator<Key,Value> unsortedIvaratorSource = null;
     protected int ivaratorCount = 0;
@@ -171,6 +176,11 @@ public class IteratorBuildingVisitor extends BaseVisitor {
     
     protected Range rangeLimiter;
     
+    // the shard whose field index counts order the includes of the AndIterators, if they are ordered
+    protected Text cardinalityShard = null;
+    @SuppressWarnings("rawtypes")
+    protected Map<NestedIterator,Long> cardinalities = new IdentityHashMap<>();
+    
     // should the UIDs be sorted. If so, then ivarators will be used. Otherwise it is determined that
     // each leaf of the tree can return unsorted UIDs (i.e. no intersections are required). In this
     // case the keys will be modified to include enough context to restart at the correct place.
@@ -356,12 +366,15 @@ public class IteratorBuildingVisitor extends BaseVisitor {
                 // Make this AndIterator the root node
                 if (!andItr.includes().isEmpty()) {
                     root = andItr.build();
+                    orderByCardinality(root, andItr.includes());
                 }
             } else {
                 // Otherwise, add this AndIterator to its parent
                 AbstractIteratorBuilder parent = (AbstractIteratorBuilder) data;
                 if (!andItr.includes().isEmpty()) {
-                    parent.addInclude(andItr.build());
+                    NestedIterator<Key> and = andItr.build();
+                    orderByCardinality(and, andItr.includes());
+                    parent.addInclude(and);
                 }
             }
             
@@ -516,7 +529,9 @@ public class IteratorBuildingVisitor extends BaseVisitor {
                 // Otherwise, add this OrIterator to its parent
                 AbstractIteratorBuilder parent = (AbstractIteratorBuilder) data;
                 if (!orItr.includes().isEmpty()) {
-                    parent.addInclude(orItr.build());
+                    NestedIterator<Key> or = orItr.build();
+                    recordUnionCardinality(or, orItr.includes());
+                    parent.addInclude(or);
                 }
                 if (log.isTraceEnabled()) {
                     log.trace("ASTOrNode visit: pretty formatting of:\nparent.includes:" + formatIncludesOrExcludes(orItr.includes()) + "\nparent.excludes:"
@@ -701,7 +716,11 @@ public class IteratorBuildingVisitor extends BaseVisitor {
             final boolean notExcluded = !excludeReferences.contains(builder.getField());
             
             if (isNew && inclusionReference && notExcluded) {
-                iterators.addInclude(builder.build());
+                NestedIterator<Key> include = builder.build();
+                if (!isNegation) {
+                    recordCardinality(include, builder.getField(), builder.getValue());
+                }
+                iterators.addInclude(include);
             } else {
                 if (isQueryFullySatisfied == true) {
                     log.warn("Determined that isQueryFullySatisfied should be false, but it was not preset to false in the SatisfactionVisitor");
@@ -712,6 +731,77 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         return null;
     }
     
+    /**
+     * Record the number of field index keys in the shard of an include, when the includes of the AndIterators are ordered by them
+     *
+     * @param include
+     *            the include built for the field and value
+     * @param field
+     *            the field
+     * @param value
+     *            the value
+     */
+    protected void recordCardinality(NestedIterator<Key> include, String field, String value) {
+        if (null != cardinalityShard && !limitLookup) {
+            long count = FieldIndexCardinalityCache.getCount(source, env, cardinalityShard, field, value);
+            if (count != FieldIndexCardinalityCache.UNKNOWN) {
+                cardinalities.put(include, count);
+            }
+        }
+    }
+    
+    /**
+     * Order the includes of an AndIterator by their number of keys in the shard. The AndIterator can not have more keys than its sparsest include, so that
+     * count is recorded for it in turn.
+     *
+     * @param and
+     *            the built AndIterator
+     * @param includes
+     *            the includes of the AndIterator
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    protected void orderByCardinality(NestedIterator<Key> and, List<NestedIterator> includes) {
+        if (cardinalities.isEmpty() || !(and instanceof AndIterator)) {
+            return;
+        }
+        ((AndIterator) and).setCardinalities(cardinalities);
+        
+        Long min = null;
+        for (NestedIterator include : includes) {
+            Long count = cardinalities.get(include);
+            if (count != null && (min == null || count < min)) {
+                min = count;
+            }
+        }
+        if (min != null) {
+            cardinalities.put(and, min);
+        }
+    }
+    
+    /**
+     * Record the number of keys in the shard of an OrIterator as the sum of those of its includes, if all of them are known
+     *
+     * @param or
+     *            the built OrIterator
+     * @param includes
+     *            the includes of the OrIterator
+     */
+    @SuppressWarnings("rawtypes")
+    protected void recordUnionCardinality(NestedIterator<Key> or, List<NestedIterator> includes) {
+        if (cardinalities.isEmpty()) {
+            return;
+        }
+        long sum = 0;
+        for (NestedIterator include : includes) {
+            Long count = cardinalities.get(include);
+            if (count == null) {
+                return;
+            }
+            sum += count;
+        }
+        cardinalities.put(or, sum);
+    }
+    
     protected TimeFilter getTimeFilter(ASTEQNode node) {
         final String identifier = JexlASTHelper.getIdentifier(node);
         if (limitLookup && !limitOverride && !fieldsToAggregate.contains(identifier)) {
@@ -1387,12 +1477,14 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         builder.setHdfsFileCompressionCodec(hdfsFileCompressionCodec);
         builder.setQueryLock(queryLock);
         builder.setIvaratorCacheBufferSize(ivaratorCacheBufferSize);
-        builder.setIvaratorCacheScanPersistThreshold(ivaratorCacheScanPersistThreshold);
+        builder.setIvaratorCacheScanPersistThreshold(
+                        ivaratorCacheScanPersistFieldThresholds.getOrDefault(builder.getField(), ivaratorCacheScanPersistThreshold));
         builder.setIvaratorCacheScanTimeout(ivaratorCacheScanTimeout);
         builder.setMaxRangeSplit(maxRangeSplit);
         builder.setIvaratorMaxOpenFiles(ivaratorMaxOpenFiles);
         builder.setMaxIvaratorResults(maxIvaratorResults);
         builder.setIvaratorNumRetries(ivaratorNumRetries);
+        builder.setIvaratorSharedResultsMaxKeys(ivaratorSharedResultsMaxKeys);
         builder.setIvaratorPersistOptions(ivaratorPersistOptions);
         builder.setCollectTimingDetails(collectTimingDetails);
         builder.setQuerySpanCollector(querySpanCollector);
@@ -1440,6 +1532,18 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         return setRange(documentRange).setLimitLookup(true);
     }
     
+    /**
+     * Order the includes of the AndIterators by their number of field index keys in a shard
+     *
+     * @param cardinalityShard
+     *            the row of the shard, or null to keep the includes in the order of the query
+     * @return this visitor
+     */
+    public IteratorBuildingVisitor setCardinalityShard(Text cardinalityShard) {
+        this.cardinalityShard = cardinalityShard;
+        return this;
+    }
+    
     /**
      * Limits the number of source counts.
      * 
@@ -1604,6 +1708,11 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         return this;
     }
     
+    public IteratorBuildingVisitor setIvaratorCacheScanPersistFieldThresholds(Map<String,Long> ivaratorCacheScanPersistFieldThresholds) {
+        this.ivaratorCacheScanPersistFieldThresholds = ivaratorCacheScanPersistFieldThresholds;
+        return this;
+    }
+    
     public IteratorBuildingVisitor setIvaratorCacheScanTimeout(long ivaratorCacheScanTimeout) {
         this.ivaratorCacheScanTimeout = ivaratorCacheScanTimeout;
         return this;
@@ -1629,6 +1738,11 @@ public class IteratorBuildingVisitor extends BaseVisitor {
         return this;
     }
     
+    public IteratorBuildingVisitor setIvaratorSharedResultsMaxKeys(long ivaratorSharedResultsMaxKeys) {
+        this.ivaratorSharedResultsMaxKeys = ivaratorSharedResultsMaxKeys;
+        return this;
+    }
+    
     public IteratorBuildingVisitor setIvaratorPersistOptions(FileSortedSet.PersistOptions persistOptions) {
         this.ivaratorPersistOptions = persistOptions;
         return this;
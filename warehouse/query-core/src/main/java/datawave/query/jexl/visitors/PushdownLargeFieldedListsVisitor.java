@@ -129,7 +129,7 @@ public class PushdownLargeFieldedListsVisitor extends RebuildingVisitor {
                     !Constants.ANY_FIELD.equals(field) &&
                     !Constants.NO_FIELD.equals(field) &&
                     (eqNodes.size() >= config.getMaxOrExpansionFstThreshold() ||
-                            eqNodes.size() >= config.getMaxOrExpansionThreshold() ||
+                            eqNodes.size() >= config.getMaxOrExpansionThreshold(field) ||
                             rangeNodes.size() >= config.getMaxOrRangeThreshold()
                     ) &&
                     isIndexed(field)) {
@@ -151,7 +151,7 @@ public class PushdownLargeFieldedListsVisitor extends RebuildingVisitor {
                         URI fstPath = createFst(values);
                         markers.add(ExceededOrThresholdMarkerJexlNode.createFromFstURI(field, fstPath));
                         eqNodes = null;
-                    } else if (eqNodes.size() >= config.getMaxOrExpansionThreshold()) {
+                    } else if (eqNodes.size() >= config.getMaxOrExpansionThreshold(field)) {
                         markers.add(ExceededOrThresholdMarkerJexlNode.createFromValues(field, values));
                         eqNodes = null;
                     }
@@ -233,6 +233,12 @@ public class ContentQueryMetricsIngestHelper extends CSVIngestHelper implements
             fields.put("NEXT_COUNT", Long.toString(updatedQueryMetric.getNextCount()));
             fields.put("SEEK_COUNT", Long.toString(updatedQueryMetric.getSeekCount()));
             fields.put("YIELD_COUNT", Long.toString(updatedQueryMetric.getYieldCount()));
+            fields.put("TF_KEY_COUNT", Long.toString(updatedQueryMetric.getTermFrequencyKeyCount()));
+            fields.put("TF_DECODE_COUNT", Long.toString(updatedQueryMetric.getTermFrequencyDecodeCount()));
+            fields.put("SKIPPED_EVENT_KEY_COUNT", Long.toString(updatedQueryMetric.getSkippedEventKeyCount()));
+            fields.put("SKIP_SEEK_COUNT", Long.toString(updatedQueryMetric.getSkipSeekCount()));
+            fields.put("TLD_PARALLEL_FETCH_COUNT", Long.toString(updatedQueryMetric.getTldParallelFetchCount()));
+            fields.put("TLD_CHILD_RANGE_COUNT", Long.toString(updatedQueryMetric.getTldChildRangeCount()));
             fields.put("DOC_RANGES", Long.toString(updatedQueryMetric.getDocRanges()));
             fields.put("FI_RANGES", Long.toString(updatedQueryMetric.getFiRanges()));
             Set<Prediction> predictions = updatedQueryMetric.getPredictions();
@@ -332,6 +338,24 @@ public class ContentQueryMetricsIngestHelper extends CSVIngestHelper implements
             if (updatedQueryMetric.getYieldCount() != storedQueryMetric.getYieldCount()) {
                 fields.put("YIELD_COUNT", Long.toString(storedQueryMetric.getYieldCount()));
             }
+            if (updatedQueryMetric.getTermFrequencyKeyCount() != storedQueryMetric.getTermFrequencyKeyCount()) {
+                fields.put("TF_KEY_COUNT", Long.toString(storedQueryMetric.getTermFrequencyKeyCount()));
+            }
+            if (updatedQueryMetric.getTermFrequencyDecodeCount() != storedQueryMetric.getTermFrequencyDecodeCount()) {
+                fields.put("TF_DECODE_COUNT", Long.toString(storedQueryMetric.getTermFrequencyDecodeCount()));
+            }
+            if (updatedQueryMetric.getSkippedEventKeyCount() != storedQueryMetric.getSkippedEventKeyCount()) {
+                fields.put("SKIPPED_EVENT_KEY_COUNT", Long.toString(storedQueryMetric.getSkippedEventKeyCount()));
+            }
+            if (updatedQueryMetric.getSkipSeekCount() != storedQueryMetric.getSkipSeekCount()) {
+                fields.put("SKIP_SEEK_COUNT", Long.toString(storedQueryMetric.getSkipSeekCount()));
+            }
+            if (updatedQueryMetric.getTldParallelFetchCount() != storedQueryMetric.getTldParallelFetchCount()) {
+                fields.put("TLD_PARALLEL_FETCH_COUNT", Long.toString(storedQueryMetric.getTldParallelFetchCount()));
+            }
+            if (updatedQueryMetric.getTldChildRangeCount() != storedQueryMetric.getTldChildRangeCount()) {
+                fields.put("TLD_CHILD_RANGE_COUNT", Long.toString(storedQueryMetric.getTldChildRangeCount()));
+            }
             if (updatedQueryMetric.getDocRanges() != storedQueryMetric.getDocRanges()) {
                 fields.put("DOC_RANGES", Long.toString(storedQueryMetric.getDocRanges()));
             }
@@ -790,6 +790,30 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
                     m.setYieldCount(Long.parseLong(fieldValue));
                 }
                 
+                else if (fieldName.equals("TF_KEY_COUNT")) {
+                    m.setTermFrequencyKeyCount(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("TF_DECODE_COUNT")) {
+                    m.setTermFrequencyDecodeCount(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("SKIPPED_EVENT_KEY_COUNT")) {
+                    m.setSkippedEventKeyCount(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("SKIP_SEEK_COUNT")) {
+                    m.setSkipSeekCount(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("TLD_PARALLEL_FETCH_COUNT")) {
+                    m.setTldParallelFetchCount(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("TLD_CHILD_RANGE_COUNT")) {
+                    m.setTldChildRangeCount(Long.parseLong(fieldValue));
+                }
+                
                 else if (fieldName.equals("DOC_RANGES")) {
                     m.setDocRanges(Long.parseLong(fieldValue));
                 }
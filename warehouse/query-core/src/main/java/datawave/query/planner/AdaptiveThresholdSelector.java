@@ -0,0 +1,109 @@
+package datawave.query.planner;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.index.stats.IndexStatsClient;
+import org.apache.log4j.Logger;
+
+/**
+ * Selects a per field scale for the value expansion, OR expansion and ivarator scan persist thresholds from the index stats of the query fields. The index
+ * stats weight of a field is the ratio of its unique values to its total values over the query date range.
+ * <p>
+ * A field with a high weight (e.g. an identifier) expands a regex or range into many sparse values, so its thresholds are lowered to hand it to an ivarator
+ * before building a large OR tree. A field with a low weight expands into a few dense values, so its thresholds are raised to keep it in the index iterators
+ * and to avoid persisting ivarator results which are cheap to recompute.
+ */
+public class AdaptiveThresholdSelector {
+    private static final Logger log = Logger.getLogger(AdaptiveThresholdSelector.class);
+    
+    // the weight at which the configured thresholds are used as is
+    public static final double REFERENCE_WEIGHT = 0.1;
+    public static final double MIN_SCALE = 0.25;
+    public static final double MAX_SCALE = 4.0;
+    
+    private final IndexStatsClient stats;
+    
+    public AdaptiveThresholdSelector(IndexStatsClient stats) {
+        this.stats = stats;
+    }
+    
+    /**
+     * Select the threshold scales for the specified fields. Fields without index stats are left out and keep the configured thresholds.
+     * 
+     * @param fields
+     *            the indexed query fields
+     * @param config
+     *            the configuration providing the datatypes and date range
+     * @return the scale for each field which has index stats
+     */
+    public Map<String,Double> selectScales(Set<String> fields, ShardQueryConfiguration config) {
+        Map<String,Double> scales = new TreeMap<>();
+        if (fields.isEmpty()) {
+            return scales;
+        }
+        
+        Map<String,Double> weights = stats.safeGetStat(fields, config.getDatatypeFilter(), config.getBeginDate(), config.getEndDate());
+        for (String field : fields) {
+            Double weight = weights.get(field);
+            if (weight != null && !weight.equals(IndexStatsClient.DEFAULT_VALUE) && !weight.isNaN()) {
+                double scale = getScale(weight);
+                if (log.isDebugEnabled()) {
+                    log.debug("Selected threshold scale " + scale + " for " + field + " with weight " + weight);
+                }
+                scales.put(field, scale);
+            }
+        }
+        return scales;
+    }
+    
+    /**
+     * Get the threshold scale for an index stats weight
+     * 
+     * @param weight
+     *            the ratio of unique values to total values
+     * @return the scale, between {@link #MIN_SCALE} and {@link #MAX_SCALE}
+     */
+    public static double getScale(double weight) {
+        if (weight <= 0) {
+            return MAX_SCALE;
+        }
+        return Math.max(MIN_SCALE, Math.min(MAX_SCALE, REFERENCE_WEIGHT / weight));
+    }
+    
+    /**
+     * Apply a scale to a threshold. Disabled thresholds (0 or less, or the max value) are not scaled.
+     * 
+     * @param threshold
+     *            the configured threshold
+     * @param scale
+     *            the scale, may be null if the field has none
+     * @return the scaled threshold, at least 1
+     */
+    public static int scale(int threshold, Double scale) {
+        return (int) scale(threshold, scale, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Apply a scale to a threshold. Disabled thresholds (0 or less, or the max value) are not scaled.
+     * 
+     * @param threshold
+     *            the configured threshold
+     * @param scale
+     *            the scale, may be null if the field has none
+     * @return the scaled threshold, at least 1
+     */
+    public static long scale(long threshold, Double scale) {
+        return scale(threshold, scale, Long.MAX_VALUE);
+    }
+    
+    private static long scale(long threshold, Double scale, long max) {
+        if (scale == null || threshold <= 0 || threshold >= max) {
+            return threshold;
+        }
+        double scaled = Math.rint(threshold * scale);
+        return scaled >= max ? max : Math.max(1L, (long) scaled);
+    }
+}
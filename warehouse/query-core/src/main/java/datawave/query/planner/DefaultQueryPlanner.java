@@ -29,6 +29,7 @@ import datawave.query.exceptions.InvalidQueryException;
 import datawave.query.exceptions.NoResultsException;
 import datawave.query.function.JexlEvaluation;
 import datawave.query.index.lookup.IndexStream.StreamContext;
+import datawave.query.index.stats.IndexStatsClient;
 import datawave.query.index.lookup.RangeStream;
 import datawave.query.iterator.CloseableListIterable;
 import datawave.query.iterator.QueryIterator;
@@ -114,6 +115,7 @@ import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.security.Authorizations;
 import org.apache.commons.jexl2.parser.ASTJexlScript;
 import org.apache.commons.jexl2.parser.JexlNode;
 import org.apache.commons.jexl2.parser.ParseException;
@@ -186,6 +188,17 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
      */
     protected boolean cacheDataTypes = false;
     
+    /**
+     * Reuses the planned structure of queries which differ only in the values compared against, see {@link QueryPlanCache}
+     */
+    protected boolean cacheQueryPlans = false;
+    
+    /**
+     * The cached plan of the current query, either the one it was planned from or the one it was added to the cache as. Null when the query's plan is not
+     * cached.
+     */
+    protected QueryPlanCache.Plan queryPlan = null;
+    
     /**
      * Overrides behavior with doc specific ranges
      */
@@ -292,6 +305,7 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         this(other.maxRangesPerQueryPiece, other.limitScanners);
         setRangeStreamClass(other.getRangeStreamClass());
         setCacheDataTypes(other.getCacheDataTypes());
+        setCacheQueryPlans(other.getCacheQueryPlans());
         setDisableAnyFieldLookup(other.disableAnyFieldLookup);
         setDisableBoundedLookup(other.disableBoundedLookup);
         setDisableCompositeFields(other.disableCompositeFields);
@@ -655,116 +669,41 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
             stopwatch.stop();
         }
         
-        // groom the query so that any nodes with the literal on the left and the identifier on
-        // the right will be re-ordered to simplify subsequent processing
-        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - fix not null intent");
-        queryTree = JexlASTHelper.InvertNodeVisitor.invertSwappedNodes(queryTree);
-        if (log.isDebugEnabled()) {
-            logQuery(queryTree, "Query after inverting swapped nodes:");
-        }
-        stopwatch.stop();
-        
-        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - fix not null intent");
-        
-        try {
-            queryTree = IsNotNullIntentVisitor.fixNotNullIntent(queryTree);
-        } catch (Exception e1) {
-            throw new DatawaveQueryException("Something bad happened", e1);
-        }
-        if (log.isDebugEnabled()) {
-            logQuery(queryTree, "Query afterfixing not null intent:");
-        }
-        
-        stopwatch.stop();
-        
-        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - include date filters");
-        
-        try {
-            queryTree = addDateFilters(queryTree, scannerFactory, metadataHelper, dateIndexHelper, config, settings);
-        } catch (TableNotFoundException e1) {
-            throw new DatawaveQueryException("Unable to resolve date index", e1);
-        }
-        if (log.isDebugEnabled()) {
-            logQuery(queryTree, "Query after adding date filters:");
-        }
-        
-        stopwatch.stop();
-        
-        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - cap date range");
-        
-        // note this must be called after we do the date adjustements per the query date type in addDateFilters
-        capDateRange(config);
-        
-        stopwatch.stop();
-        
-        // Find unmarked bounded ranges
-        if (UnmarkedBoundedRangeDetectionVisitor.findUnmarkedBoundedRanges(queryTree)) {
-            throw new DatawaveFatalQueryException("Found incorrectly marked bounded ranges");
-        }
-        
-        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - flatten");
-        
-        // flatten the tree
-        queryTree = TreeFlatteningRebuildingVisitor.flatten(queryTree);
-        
-        if (log.isDebugEnabled()) {
-            logQuery(queryTree, "Query after initial flatten:");
-        }
-        
-        stopwatch.stop();
-        
-        validateQuerySize("initial parse", queryTree, config);
-        
-        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - initial re-write");
-        
-        queryTree = applyRules(queryTree, scannerFactory, metadataHelper, config);
-        
-        if (log.isDebugEnabled()) {
-            logQuery(queryTree, "Query after applying pushdown rules:");
-        }
-        
-        stopwatch.stop();
-        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Restructure negative numbers");
-        
-        queryTree = FixNegativeNumbersVisitor.fix(queryTree);
-        
-        if (log.isDebugEnabled()) {
-            logQuery(queryTree, "Query after restructuring negative numbers:");
-        }
-        
-        stopwatch.stop();
-        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Uppercase all field names");
-        
-        // Ensure that all ASTIdentifier nodes (field names) are upper-case, as
-        // this
-        // is enforced at ingest time
-        CaseSensitivityVisitor.upperCaseIdentifiers(config, metadataHelper, queryTree);
-        
-        if (log.isDebugEnabled()) {
-            logQuery(queryTree, "Query after uppercase'ing field names:");
+        // the structure of a query which differs from a previously planned one only in the values compared against is taken from the cache, the
+        // values are not needed until the index is consulted
+        QueryPlanCache.Template template = null;
+        String planKey = null;
+        QueryPlanCache.Plan plan = null;
+        queryPlan = null;
+        if (cacheQueryPlans && getDateType(config, settings).equals(config.getDefaultDateTypeName())) {
+            template = QueryPlanCache.createTemplate(queryTree);
+            if (template != null) {
+                planKey = getQueryPlanKey(config, template);
+                plan = QueryPlanCache.getPlan(planKey);
+            }
         }
+        long planningStart = System.currentTimeMillis();
         
-        stopwatch.stop();
-        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Rewrite negated equality operators.");
-        
-        RewriteNegationsVisitor.rewrite(queryTree);
-        if (log.isDebugEnabled()) {
-            logQuery(queryTree, "Query after rewriting negated equality operators:");
+        if (plan == null) {
+            queryTree = planQueryStructure(scannerFactory, metadataHelper, dateIndexHelper, config, queryTree, settings);
+        } else {
+            stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Apply cached query plan (saved ~" + plan.getPlanningMillis() + "ms)");
+            capDateRange(config);
+            queryTree = plan.getQueryTree();
+            queryPlan = plan;
+            stopwatch.stop();
         }
         
-        stopwatch.stop();
         stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Apply query model");
         
-        QueryModel queryModel = null;
-        QueryModelProvider queryModelProvider = this.queryModelProviderFactory.createQueryModelProvider();
-        if (queryModelProvider instanceof MetadataHelperQueryModelProvider) {
-            ((MetadataHelperQueryModelProvider) queryModelProvider).setMetadataHelper(metadataHelper);
-            ((MetadataHelperQueryModelProvider) queryModelProvider).setConfig(config);
-        }
-        queryModel = queryModelProvider.getQueryModel();
+        QueryModel queryModel = getQueryModel(metadataHelper, config);
         
         if (null != queryModel) {
-            queryTree = applyQueryModel(metadataHelper, config, stopwatch, queryTree, queryModel);
+            if (plan == null) {
+                queryTree = applyQueryModel(metadataHelper, config, stopwatch, queryTree, queryModel);
+            } else {
+                applyQueryModelToParameters(config, queryModel);
+            }
         }
         
         if (log.isDebugEnabled()) {
@@ -773,34 +712,22 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         
         stopwatch.stop();
         
-        // Enforce unique terms within an AND or OR expression.
-        if (config.getEnforceUniqueTermsWithinExpressions()) {
-            stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Enforce unique terms within AND and OR expressions");
-            queryTree = UniqueExpressionTermsVisitor.enforce(queryTree);
-            if (log.isDebugEnabled()) {
-                logQuery(queryTree, "Query after duplicate terms removed from AND and OR expressions:");
+        if (plan == null) {
+            queryTree = enforceUniqueTerms(queryTree, config);
+            if (planKey != null) {
+                queryPlan = new QueryPlanCache.Plan(queryTree, System.currentTimeMillis() - planningStart);
+                QueryPlanCache.putPlan(planKey, queryPlan);
             }
-            stopwatch.stop();
         }
         
-        // Enforce unique AND'd terms within OR expressions.
-        if (config.getEnforceUniqueConjunctionsWithinExpression()) {
-            stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Enforce unique AND'd terms within OR expressions");
-            queryTree = ConjunctionEliminationVisitor.optimize(queryTree);
+        if (template != null) {
+            queryTree = template.bind(queryTree);
             if (log.isDebugEnabled()) {
-                logQuery(queryTree, "Query after duplicate AND'd terms remove from OR expressions.");
+                logQuery(queryTree, "Query after binding the values to the query plan:");
             }
-            stopwatch.stop();
-        }
-        
-        // Enforce unique OR'd terms within AND expressions.
-        if (config.getEnforceUniqueDisjunctionsWithinExpression()) {
-            stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Enforce unique OR'd terms within AND expressions");
-            queryTree = DisjunctionEliminationVisitor.optimize(queryTree);
-            if (log.isDebugEnabled()) {
-                logQuery(queryTree, "Query after duplicate OR'd terms remove from AND expressions.");
+            if (plan != null) {
+                validateQuerySize("cached plan", queryTree, config);
             }
-            stopwatch.stop();
         }
         
         Set<String> indexOnlyFields;
@@ -1123,6 +1050,25 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         }
         
         stopwatch.stop();
+        
+        if (config.isAdaptiveThresholds()) {
+            if (queryPlan != null && queryPlan.getAdaptiveThresholdScales() != null) {
+                stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Restore adaptive thresholds from cached query plan "
+                                + queryPlan.getAdaptiveThresholdScales());
+                
+                config.setAdaptiveThresholdScales(queryPlan.getAdaptiveThresholdScales());
+            } else {
+                stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Select adaptive thresholds");
+                
+                selectAdaptiveThresholds(config, queryTree);
+                if (queryPlan != null) {
+                    queryPlan.setAdaptiveThresholdScales(config.getAdaptiveThresholdScales());
+                }
+            }
+            
+            stopwatch.stop();
+        }
+        
         stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Fix unindexed numerics");
         
         queryTree = FixUnindexedNumericTerms.fixNumerics(config, queryTree);
@@ -1429,10 +1375,227 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         }
     }
     
-    // Overwrite projection and blacklist properties if the query model is
-    // being used
-    protected ASTJexlScript applyQueryModel(MetadataHelper metadataHelper, ShardQueryConfiguration config, TraceStopwatch stopwatch, ASTJexlScript queryTree,
-                    QueryModel queryModel) {
+    /**
+     * Select the per field scales of the expansion and ivarator thresholds of the indexed query fields from the index stats. The scales are kept in the
+     * configuration as part of the query plan, from where the expansions and the ivarator options pick them up. When the query's plan is cached the scales
+     * are also kept with the cached plan, and later queries with the same plan reuse them without consulting the index stats again.
+     * 
+     * @param config
+     * @param queryTree
+     */
+    protected void selectAdaptiveThresholds(ShardQueryConfiguration config, ASTJexlScript queryTree) {
+        if (null == config.getIndexStatsTableName() || null == config.getIndexedFields()) {
+            return;
+        }
+        
+        Set<String> fields = new HashSet<>();
+        for (String identifier : JexlASTHelper.getIdentifierNames(queryTree)) {
+            fields.add(JexlASTHelper.deconstructIdentifier(identifier));
+        }
+        fields.retainAll(config.getIndexedFields());
+        
+        AdaptiveThresholdSelector selector = new AdaptiveThresholdSelector(new IndexStatsClient(config.getClient(), config.getIndexStatsTableName()));
+        config.setAdaptiveThresholdScales(selector.selectScales(fields, config));
+        
+        if (!config.getAdaptiveThresholdScales().isEmpty()) {
+            log.info("Selected adaptive threshold scales: " + config.getAdaptiveThresholdScales());
+        }
+    }
+    
+    /**
+     * Runs the planning stages which do not depend on the global index, and which only change the query tree. The query model is applied separately as it
+     * also changes the configuration.
+     */
+    protected ASTJexlScript planQueryStructure(ScannerFactory scannerFactory, MetadataHelper metadataHelper, DateIndexHelper dateIndexHelper,
+                    ShardQueryConfiguration config, ASTJexlScript queryTree, Query settings) throws DatawaveQueryException {
+        final QueryStopwatch timers = config.getTimers();
+        TraceStopwatch stopwatch;
+        
+        // groom the query so that any nodes with the literal on the left and the identifier on
+        // the right will be re-ordered to simplify subsequent processing
+        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - fix not null intent");
+        queryTree = JexlASTHelper.InvertNodeVisitor.invertSwappedNodes(queryTree);
+        if (log.isDebugEnabled()) {
+            logQuery(queryTree, "Query after inverting swapped nodes:");
+        }
+        stopwatch.stop();
+        
+        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - fix not null intent");
+        
+        try {
+            queryTree = IsNotNullIntentVisitor.fixNotNullIntent(queryTree);
+        } catch (Exception e1) {
+            throw new DatawaveQueryException("Something bad happened", e1);
+        }
+        if (log.isDebugEnabled()) {
+            logQuery(queryTree, "Query afterfixing not null intent:");
+        }
+        
+        stopwatch.stop();
+        
+        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - include date filters");
+        
+        try {
+            queryTree = addDateFilters(queryTree, scannerFactory, metadataHelper, dateIndexHelper, config, settings);
+        } catch (TableNotFoundException e1) {
+            throw new DatawaveQueryException("Unable to resolve date index", e1);
+        }
+        if (log.isDebugEnabled()) {
+            logQuery(queryTree, "Query after adding date filters:");
+        }
+        
+        stopwatch.stop();
+        
+        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - cap date range");
+        
+        // note this must be called after we do the date adjustements per the query date type in addDateFilters
+        capDateRange(config);
+        
+        stopwatch.stop();
+        
+        // Find unmarked bounded ranges
+        if (UnmarkedBoundedRangeDetectionVisitor.findUnmarkedBoundedRanges(queryTree)) {
+            throw new DatawaveFatalQueryException("Found incorrectly marked bounded ranges");
+        }
+        
+        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - flatten");
+        
+        // flatten the tree
+        queryTree = TreeFlatteningRebuildingVisitor.flatten(queryTree);
+        
+        if (log.isDebugEnabled()) {
+            logQuery(queryTree, "Query after initial flatten:");
+        }
+        
+        stopwatch.stop();
+        
+        validateQuerySize("initial parse", queryTree, config);
+        
+        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - initial re-write");
+        
+        queryTree = applyRules(queryTree, scannerFactory, metadataHelper, config);
+        
+        if (log.isDebugEnabled()) {
+            logQuery(queryTree, "Query after applying pushdown rules:");
+        }
+        
+        stopwatch.stop();
+        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Restructure negative numbers");
+        
+        queryTree = FixNegativeNumbersVisitor.fix(queryTree);
+        
+        if (log.isDebugEnabled()) {
+            logQuery(queryTree, "Query after restructuring negative numbers:");
+        }
+        
+        stopwatch.stop();
+        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Uppercase all field names");
+        
+        // Ensure that all ASTIdentifier nodes (field names) are upper-case, as
+        // this
+        // is enforced at ingest time
+        CaseSensitivityVisitor.upperCaseIdentifiers(config, metadataHelper, queryTree);
+        
+        if (log.isDebugEnabled()) {
+            logQuery(queryTree, "Query after uppercase'ing field names:");
+        }
+        
+        stopwatch.stop();
+        stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Rewrite negated equality operators.");
+        
+        RewriteNegationsVisitor.rewrite(queryTree);
+        if (log.isDebugEnabled()) {
+            logQuery(queryTree, "Query after rewriting negated equality operators:");
+        }
+        
+        stopwatch.stop();
+        
+        return queryTree;
+    }
+    
+    protected QueryModel getQueryModel(MetadataHelper metadataHelper, ShardQueryConfiguration config) {
+        QueryModelProvider queryModelProvider = this.queryModelProviderFactory.createQueryModelProvider();
+        if (queryModelProvider instanceof MetadataHelperQueryModelProvider) {
+            ((MetadataHelperQueryModelProvider) queryModelProvider).setMetadataHelper(metadataHelper);
+            ((MetadataHelperQueryModelProvider) queryModelProvider).setConfig(config);
+        }
+        return queryModelProvider.getQueryModel();
+    }
+    
+    protected ASTJexlScript enforceUniqueTerms(ASTJexlScript queryTree, ShardQueryConfiguration config) {
+        final QueryStopwatch timers = config.getTimers();
+        TraceStopwatch stopwatch;
+        
+        // Enforce unique terms within an AND or OR expression.
+        if (config.getEnforceUniqueTermsWithinExpressions()) {
+            stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Enforce unique terms within AND and OR expressions");
+            queryTree = UniqueExpressionTermsVisitor.enforce(queryTree);
+            if (log.isDebugEnabled()) {
+                logQuery(queryTree, "Query after duplicate terms removed from AND and OR expressions:");
+            }
+            stopwatch.stop();
+        }
+        
+        // Enforce unique AND'd terms within OR expressions.
+        if (config.getEnforceUniqueConjunctionsWithinExpression()) {
+            stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Enforce unique AND'd terms within OR expressions");
+            queryTree = ConjunctionEliminationVisitor.optimize(queryTree);
+            if (log.isDebugEnabled()) {
+                logQuery(queryTree, "Query after duplicate AND'd terms remove from OR expressions.");
+            }
+            stopwatch.stop();
+        }
+        
+        // Enforce unique OR'd terms within AND expressions.
+        if (config.getEnforceUniqueDisjunctionsWithinExpression()) {
+            stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Enforce unique OR'd terms within AND expressions");
+            queryTree = DisjunctionEliminationVisitor.optimize(queryTree);
+            if (log.isDebugEnabled()) {
+                logQuery(queryTree, "Query after duplicate OR'd terms remove from AND expressions.");
+            }
+            stopwatch.stop();
+        }
+        
+        return queryTree;
+    }
+    
+    /**
+     * The key of the cached plan of a query, which includes everything the planning stages before the global index lookups depend on
+     */
+    protected String getQueryPlanKey(ShardQueryConfiguration config, QueryPlanCache.Template template) {
+        List<String> auths = new ArrayList<>();
+        if (config.getAuthorizations() != null) {
+            for (Authorizations authorizations : config.getAuthorizations()) {
+                auths.add(authorizations.toString());
+            }
+            Collections.sort(auths);
+        }
+        List<String> ruleClasses = new ArrayList<>();
+        for (PushDownRule rule : rules) {
+            ruleClasses.add(rule.getClass().getName());
+        }
+        StringBuilder key = new StringBuilder();
+        key.append(getClass().getName()).append('\n');
+        key.append(config.getMetadataTableName()).append(':').append(QueryPlanCache.getMetadataVersion(config.getMetadataTableName())).append('\n');
+        key.append(auths).append('\n');
+        key.append(new TreeSet<>(config.getDatatypeFilter())).append('\n');
+        key.append(config.getModelTableName()).append(':').append(config.getModelName()).append('\n');
+        key.append(new TreeSet<>(config.getUnevaluatedFields())).append('\n');
+        key.append(config.getEnforceUniqueTermsWithinExpressions()).append(config.getEnforceUniqueConjunctionsWithinExpression())
+                        .append(config.getEnforceUniqueDisjunctionsWithinExpression()).append('\n');
+        key.append(ruleClasses).append('\n');
+        key.append(config.isAdaptiveThresholds()).append(':').append(config.getIndexStatsTableName()).append(':')
+                        .append(config.getMaxValueExpansionThreshold()).append(':').append(config.getMaxOrExpansionThreshold()).append(':')
+                        .append(config.getIvaratorCacheScanPersistThreshold()).append('\n');
+        key.append(queryModelProviderFactory == null ? "" : queryModelProviderFactory.getClass().getName()).append('\n');
+        key.append(template.getNormalizedQuery());
+        return key.toString();
+    }
+    
+    /**
+     * Remaps the fields of the query parameters (projection, grouping, etc.) using the query model
+     */
+    protected void applyQueryModelToParameters(ShardQueryConfiguration config, QueryModel queryModel) {
         // generate the inverse of the reverse mapping; {display field name
         // => db field name}
         // a reverse mapping is always many to one, therefore the inverted
@@ -1485,6 +1648,13 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
             }
             config.setLimitFields(Sets.newHashSet(limitFields));
         }
+    }
+    
+    // Overwrite projection and blacklist properties if the query model is
+    // being used
+    protected ASTJexlScript applyQueryModel(MetadataHelper metadataHelper, ShardQueryConfiguration config, TraceStopwatch stopwatch, ASTJexlScript queryTree,
+                    QueryModel queryModel) {
+        applyQueryModelToParameters(config, queryModel);
         
         Set<String> dataTypes = config.getDatatypeFilter();
         Set<String> allFields = null;
@@ -1599,6 +1769,21 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         }
     }
     
+    /**
+     * @return the date type of the query's date range, which is the default date type unless another is requested
+     */
+    protected String getDateType(ShardQueryConfiguration config, Query settings) {
+        String dateType = config.getDefaultDateTypeName();
+        Parameter dateTypeParameter = settings.findParameter(QueryParameters.DATE_RANGE_TYPE);
+        if (dateTypeParameter != null && dateTypeParameter.getParameterValue() != null) {
+            String parm = dateTypeParameter.getParameterValue().trim();
+            if (!parm.isEmpty()) {
+                dateType = parm.toUpperCase();
+            }
+        }
+        return dateType;
+    }
+    
     /**
      * Adding date filters if the query parameters specify that the dates are to be other than the default
      *
@@ -1612,14 +1797,7 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
     public ASTJexlScript addDateFilters(ASTJexlScript queryTree, ScannerFactory scannerFactory, MetadataHelper metadataHelper, DateIndexHelper dateIndexHelper,
                     ShardQueryConfiguration config, Query settings) throws TableNotFoundException, DatawaveQueryException {
         String defaultDateType = config.getDefaultDateTypeName();
-        String dateType = defaultDateType;
-        Parameter dateTypeParameter = settings.findParameter(QueryParameters.DATE_RANGE_TYPE);
-        if (dateTypeParameter != null && dateTypeParameter.getParameterValue() != null) {
-            String parm = dateTypeParameter.getParameterValue().trim();
-            if (!parm.isEmpty()) {
-                dateType = parm.toUpperCase();
-            }
-        }
+        String dateType = getDateType(config, settings);
         
         // if we are using something other than the default of EVENT date
         // time, then we need to modify the query
@@ -1796,12 +1974,17 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
                         }
                         addOption(cfg, QueryOptions.IVARATOR_CACHE_BUFFER_SIZE, Integer.toString(config.getIvaratorCacheBufferSize()), false);
                         addOption(cfg, QueryOptions.IVARATOR_SCAN_PERSIST_THRESHOLD, Long.toString(config.getIvaratorCacheScanPersistThreshold()), false);
+                        if (!config.getAdaptiveThresholdScales().isEmpty()) {
+                            addOption(cfg, QueryOptions.IVARATOR_SCAN_PERSIST_FIELD_THRESHOLDS,
+                                            QueryOptions.buildFieldThresholdString(config.getFieldIvaratorCacheScanPersistThresholds()), false);
+                        }
                         addOption(cfg, QueryOptions.IVARATOR_SCAN_TIMEOUT, Long.toString(config.getIvaratorCacheScanTimeout()), false);
                         addOption(cfg, QueryOptions.COLLECT_TIMING_DETAILS, Boolean.toString(config.getCollectTimingDetails()), false);
                         addOption(cfg, QueryOptions.MAX_INDEX_RANGE_SPLIT, Integer.toString(config.getMaxFieldIndexRangeSplit()), false);
                         addOption(cfg, QueryOptions.MAX_IVARATOR_OPEN_FILES, Integer.toString(config.getIvaratorMaxOpenFiles()), false);
                         addOption(cfg, QueryOptions.MAX_IVARATOR_RESULTS, Long.toString(config.getMaxIvaratorResults()), false);
                         addOption(cfg, QueryOptions.IVARATOR_NUM_RETRIES, Integer.toString(config.getIvaratorNumRetries()), false);
+                        addOption(cfg, QueryOptions.IVARATOR_SHARED_RESULTS_MAX_KEYS, Long.toString(config.getIvaratorSharedResultsMaxKeys()), false);
                         addOption(cfg, QueryOptions.IVARATOR_PERSIST_VERIFY, Boolean.toString(config.isIvaratorPersistVerify()), false);
                         addOption(cfg, QueryOptions.IVARATOR_PERSIST_VERIFY_COUNT, Integer.toString(config.getIvaratorPersistVerifyCount()), false);
                         addOption(cfg, QueryOptions.MAX_EVALUATION_PIPELINES, Integer.toString(config.getMaxEvaluationPipelines()), false);
@@ -2069,6 +2252,12 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         addOption(cfg, QueryOptions.CONTAINS_COMPOSITE_TERMS, Boolean.toString(config.isContainsCompositeTerms()), false);
         addOption(cfg, QueryOptions.ALLOW_FIELD_INDEX_EVALUATION, Boolean.toString(config.isAllowFieldIndexEvaluation()), false);
         addOption(cfg, QueryOptions.ALLOW_TERM_FREQUENCY_LOOKUP, Boolean.toString(config.isAllowTermFrequencyLookup()), false);
+        addOption(cfg, QueryOptions.COMPILED_EVALUATION, Boolean.toString(config.isCompiledEvaluation()), false);
+        addOption(cfg, QueryOptions.LAZY_TERM_FREQUENCIES, Boolean.toString(config.isLazyTermFrequencies()), false);
+        addOption(cfg, QueryOptions.FIELD_INDEX_CARDINALITY_ORDERING, Boolean.toString(config.isFieldIndexCardinalityOrdering()), false);
+        addOption(cfg, QueryOptions.BITMAP_INTERSECTION_MAX_KEYS, Long.toString(config.getBitmapIntersectionMaxKeys()), false);
+        addOption(cfg, QueryOptions.EVENT_FIELD_SEEK_THRESHOLD, Integer.toString(config.getEventFieldSeekThreshold()), false);
+        addOption(cfg, QueryOptions.TLD_CHILD_FETCH_PARALLELISM, Integer.toString(config.getTldChildFetchParallelism()), false);
         addOption(cfg, QueryOptions.COMPRESS_SERVER_SIDE_RESULTS, Boolean.toString(config.isCompressServerSideResults()), false);
     }
     
@@ -2277,6 +2466,14 @@ public class DefaultQueryPlanner extends QueryPlanner implements Cloneable {
         this.cacheDataTypes = cacheDataTypes;
     }
     
+    public boolean getCacheQueryPlans() {
+        return cacheQueryPlans;
+    }
+    
+    public void setCacheQueryPlans(boolean cacheQueryPlans) {
+        this.cacheQueryPlans = cacheQueryPlans;
+    }
+    
     private Multimap<String,String> invertMultimap(Map<String,String> multi) {
         Multimap<String,String> inverse = HashMultimap.create();
         for (Entry<String,String> entry : multi.entrySet()) {
@@ -0,0 +1,231 @@
+package datawave.query.planner;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import datawave.query.jexl.visitors.JexlStringBuildingVisitor;
+import datawave.query.jexl.visitors.RebuildingVisitor;
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTGENode;
+import org.apache.commons.jexl2.parser.ASTGTNode;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.ASTLENode;
+import org.apache.commons.jexl2.parser.ASTLTNode;
+import org.apache.commons.jexl2.parser.ASTNENode;
+import org.apache.commons.jexl2.parser.ASTReference;
+import org.apache.commons.jexl2.parser.ASTReferenceExpression;
+import org.apache.commons.jexl2.parser.ASTStringLiteral;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.commons.jexl2.parser.JexlNodes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A cache of the structure of planned queries, shared by all of the query planners. The planning stages which do not depend on the global index (model
+ * expansion, flattening, the pushdown rules, and the other rewrites) do not depend on the values compared against either, so a query which differs from a
+ * previously planned one only in those values can reuse the planned structure.
+ * <p>
+ * The values of the comparisons in a query are replaced with placeholders before it is planned, and the placeholders are replaced with the values of each query
+ * which reuses the plan. Equal values share a placeholder, so that the planning stages which compare terms see the same equalities for every query using a
+ * plan.
+ */
+public class QueryPlanCache {
+    
+    // a private use character which will not appear in a query, so that the placeholders can not be confused with a value
+    private static final char PLACEHOLDER_MARK = '\uE000';
+    private static final Pattern PLACEHOLDER = Pattern.compile(PLACEHOLDER_MARK + "(\\d+)" + PLACEHOLDER_MARK);
+    
+    private static final Cache<String,Plan> plans = CacheBuilder.newBuilder().maximumSize(1000).concurrencyLevel(100).expireAfterAccess(24, TimeUnit.HOURS)
+                    .build();
+    
+    private static final Map<String,AtomicLong> metadataVersions = new ConcurrentHashMap<>();
+    
+    private QueryPlanCache() {}
+    
+    /**
+     * Records that the contents of a metadata table changed, so that the plans made with its previous contents (for example with a previous query model) are
+     * no longer used.
+     * 
+     * @param metadataTableName
+     *            the name of the metadata table
+     */
+    public static void metadataChanged(String metadataTableName) {
+        getVersion(metadataTableName).incrementAndGet();
+    }
+    
+    /**
+     * @param metadataTableName
+     *            the name of the metadata table
+     * @return the number of times the contents of the metadata table changed
+     */
+    public static long getMetadataVersion(String metadataTableName) {
+        return getVersion(metadataTableName).get();
+    }
+    
+    private static AtomicLong getVersion(String metadataTableName) {
+        return metadataVersions.computeIfAbsent(String.valueOf(metadataTableName), k -> new AtomicLong());
+    }
+    
+    public static Plan getPlan(String key) {
+        return plans.getIfPresent(key);
+    }
+    
+    public static void putPlan(String key, Plan plan) {
+        plans.put(key, plan);
+    }
+    
+    public static void clear() {
+        plans.invalidateAll();
+    }
+    
+    public static long size() {
+        return plans.size();
+    }
+    
+    /**
+     * Replaces the values of the comparisons in a query with placeholders
+     * 
+     * @param queryTree
+     *            the parsed query, which is modified
+     * @return the template of the query, or null if the query can not be planned from a template
+     */
+    public static Template createTemplate(ASTJexlScript queryTree) {
+        List<ASTStringLiteral> literals = new ArrayList<>();
+        if (!collectLiterals(queryTree, literals)) {
+            return null;
+        }
+        
+        List<String> values = new ArrayList<>();
+        Map<String,Integer> placeholders = new HashMap<>();
+        for (ASTStringLiteral literal : literals) {
+            Integer placeholder = placeholders.get(literal.image);
+            if (placeholder == null) {
+                placeholder = values.size();
+                placeholders.put(literal.image, placeholder);
+                values.add(literal.image);
+            }
+            JexlNodes.setLiteral(literal, PLACEHOLDER_MARK + String.valueOf(placeholder) + PLACEHOLDER_MARK);
+        }
+        return new Template(JexlStringBuildingVisitor.buildQueryWithoutParse(queryTree), values);
+    }
+    
+    private static boolean collectLiterals(JexlNode node, List<ASTStringLiteral> literals) {
+        if (node.image != null && node.image.indexOf(PLACEHOLDER_MARK) >= 0) {
+            return false;
+        }
+        if (node instanceof ASTStringLiteral && isComparedValue(node)) {
+            literals.add((ASTStringLiteral) node);
+        }
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            if (!collectLiterals(node.jjtGetChild(i), literals)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean isComparedValue(JexlNode literal) {
+        JexlNode parent = literal.jjtGetParent();
+        while (parent instanceof ASTReference || parent instanceof ASTReferenceExpression) {
+            parent = parent.jjtGetParent();
+        }
+        // regular expressions are kept, as their patterns determine how they are planned
+        return parent instanceof ASTEQNode || parent instanceof ASTNENode || parent instanceof ASTLTNode || parent instanceof ASTLENode
+                        || parent instanceof ASTGTNode || parent instanceof ASTGENode;
+    }
+    
+    /**
+     * A query with the values of its comparisons replaced by placeholders
+     */
+    public static class Template {
+        private final String normalizedQuery;
+        private final List<String> values;
+        
+        private Template(String normalizedQuery, List<String> values) {
+            this.normalizedQuery = normalizedQuery;
+            this.values = Collections.unmodifiableList(values);
+        }
+        
+        /**
+         * @return the query with placeholders, which is the same for all of the queries which differ only in the values compared against
+         */
+        public String getNormalizedQuery() {
+            return normalizedQuery;
+        }
+        
+        public List<String> getValues() {
+            return values;
+        }
+        
+        /**
+         * Replaces the placeholders in a planned query with the values of this query
+         * 
+         * @param queryTree
+         *            the planned query, which is modified
+         * @return the planned query
+         */
+        public ASTJexlScript bind(ASTJexlScript queryTree) {
+            bind((JexlNode) queryTree);
+            return queryTree;
+        }
+        
+        private void bind(JexlNode node) {
+            if (node.image != null && node.image.indexOf(PLACEHOLDER_MARK) >= 0) {
+                Matcher matcher = PLACEHOLDER.matcher(node.image);
+                StringBuffer image = new StringBuffer();
+                while (matcher.find()) {
+                    matcher.appendReplacement(image, Matcher.quoteReplacement(values.get(Integer.parseInt(matcher.group(1)))));
+                }
+                matcher.appendTail(image);
+                node.image = image.toString();
+            }
+            for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+                bind(node.jjtGetChild(i));
+            }
+        }
+    }
+    
+    /**
+     * The planned structure of a query template, the time it took to plan it, and the adaptive threshold scales selected for it
+     */
+    public static class Plan {
+        private final ASTJexlScript queryTree;
+        private final long planningMillis;
+        private volatile Map<String,Double> adaptiveThresholdScales = null;
+        
+        public Plan(ASTJexlScript queryTree, long planningMillis) {
+            this.queryTree = (ASTJexlScript) RebuildingVisitor.copy(queryTree);
+            this.planningMillis = planningMillis;
+        }
+        
+        /**
+         * @return a copy of the planned query, with placeholders for the values
+         */
+        public ASTJexlScript getQueryTree() {
+            return (ASTJexlScript) RebuildingVisitor.copy(queryTree);
+        }
+        
+        public long getPlanningMillis() {
+            return planningMillis;
+        }
+        
+        /**
+         * @return the adaptive threshold scales selected for the plan, or null if none have been selected yet
+         */
+        public Map<String,Double> getAdaptiveThresholdScales() {
+            return adaptiveThresholdScales;
+        }
+        
+        public void setAdaptiveThresholdScales(Map<String,Double> adaptiveThresholdScales) {
+            this.adaptiveThresholdScales = Collections.unmodifiableMap(new HashMap<>(adaptiveThresholdScales));
+        }
+    }
+}
@@ -16,6 +16,7 @@ import com.google.common.collect.Multimap;
 
 import datawave.data.type.Type;
 import datawave.query.attributes.Document;
+import datawave.query.iterator.profile.QuerySpan;
 import datawave.query.predicate.EventDataQueryFilter;
 import datawave.query.util.Tuple2;
 import datawave.query.util.Tuple3;
@@ -27,6 +28,14 @@ public class TFFactory {
     public static com.google.common.base.Function<Tuple2<Key,Document>,Tuple3<Key,Document,Map<String,Object>>> getFunction(ASTJexlScript query,
                     Set<String> contentExpansionFields, Set<String> termFrequencyFields, TypeMetadata typeMetadata, Equality equality,
                     EventDataQueryFilter evaluationFilter, SortedKeyValueIterator<Key,Value> sourceCopy, Set<String> tfIndexOnlyFields) {
+        return getFunction(query, contentExpansionFields, termFrequencyFields, typeMetadata, equality, evaluationFilter, sourceCopy, tfIndexOnlyFields, false,
+                        null);
+    }
+    
+    public static com.google.common.base.Function<Tuple2<Key,Document>,Tuple3<Key,Document,Map<String,Object>>> getFunction(ASTJexlScript query,
+                    Set<String> contentExpansionFields, Set<String> termFrequencyFields, TypeMetadata typeMetadata, Equality equality,
+                    EventDataQueryFilter evaluationFilter, SortedKeyValueIterator<Key,Value> sourceCopy, Set<String> tfIndexOnlyFields,
+                    boolean lazyTermFrequencies, QuerySpan querySpan) {
         
         Multimap<String,Class<? extends Type<?>>> fieldMappings = LinkedListMultimap.create();
         for (Entry<String,String> dataType : typeMetadata.fold().entries()) {
@@ -40,7 +49,8 @@ public class TFFactory {
             
         }
         
-        return getFunction(query, contentExpansionFields, termFrequencyFields, fieldMappings, equality, evaluationFilter, sourceCopy, tfIndexOnlyFields);
+        return getFunction(query, contentExpansionFields, termFrequencyFields, fieldMappings, equality, evaluationFilter, sourceCopy, tfIndexOnlyFields,
+                        lazyTermFrequencies, querySpan);
     }
     
     /**
@@ -54,6 +64,26 @@ public class TFFactory {
     public static com.google.common.base.Function<Tuple2<Key,Document>,Tuple3<Key,Document,Map<String,Object>>> getFunction(ASTJexlScript query,
                     Set<String> contentExpansionFields, Set<String> termFrequencyFields, Multimap<String,Class<? extends Type<?>>> dataTypes,
                     Equality equality, EventDataQueryFilter evaluationFilter, SortedKeyValueIterator<Key,Value> sourceDeepCopy, Set<String> tfIndexOnlyFields) {
+        return getFunction(query, contentExpansionFields, termFrequencyFields, dataTypes, equality, evaluationFilter, sourceDeepCopy, tfIndexOnlyFields, false,
+                        null);
+    }
+    
+    /**
+     * Factory method for creating the TF function used for generating the map context.
+     * 
+     * @param query
+     * @param dataTypes
+     * @param sourceDeepCopy
+     * @param lazyTermFrequencies
+     *            if true the term frequency offsets are only deserialized when a content function needs them
+     * @param querySpan
+     *            the span to which the term frequency key counts are reported, may be null
+     * @return
+     */
+    public static com.google.common.base.Function<Tuple2<Key,Document>,Tuple3<Key,Document,Map<String,Object>>> getFunction(ASTJexlScript query,
+                    Set<String> contentExpansionFields, Set<String> termFrequencyFields, Multimap<String,Class<? extends Type<?>>> dataTypes,
+                    Equality equality, EventDataQueryFilter evaluationFilter, SortedKeyValueIterator<Key,Value> sourceDeepCopy, Set<String> tfIndexOnlyFields,
+                    boolean lazyTermFrequencies, QuerySpan querySpan) {
         
         Multimap<String,String> termFrequencyFieldValues = TermOffsetPopulator.getTermFrequencyFieldValues(query, contentExpansionFields, termFrequencyFields,
                         dataTypes);
@@ -61,8 +91,8 @@ public class TFFactory {
         if (termFrequencyFieldValues.isEmpty()) {
             return new EmptyTermFrequencyFunction();
         } else {
-            return new TermOffsetFunction(new TermOffsetPopulator(termFrequencyFieldValues, contentExpansionFields, evaluationFilter, sourceDeepCopy),
-                            tfIndexOnlyFields);
+            return new TermOffsetFunction(new TermOffsetPopulator(termFrequencyFieldValues, contentExpansionFields, evaluationFilter, sourceDeepCopy,
+                            lazyTermFrequencies, tfIndexOnlyFields, querySpan), tfIndexOnlyFields);
         }
     }
 }
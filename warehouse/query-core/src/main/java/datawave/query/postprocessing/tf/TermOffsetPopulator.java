@@ -2,6 +2,7 @@ package datawave.query.postprocessing.tf;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -15,7 +16,8 @@ import datawave.core.iterators.TermFrequencyIterator;
 import datawave.data.type.NoOpType;
 import datawave.data.type.Type;
 import datawave.ingest.protobuf.TermWeight;
-import datawave.ingest.protobuf.TermWeightPosition;
+import datawave.query.iterator.profile.QuerySpan;
+import datawave.query.jexl.functions.LazyTermFrequencyMap;
 import datawave.query.jexl.functions.TermFrequencyList;
 import datawave.query.predicate.EventDataQueryFilter;
 import datawave.query.Constants;
@@ -40,7 +42,6 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.Sets;
-import com.google.common.collect.TreeMultimap;
 import com.google.protobuf.InvalidProtocolBufferException;
 
 public class TermOffsetPopulator {
@@ -61,13 +62,35 @@ public class TermOffsetPopulator {
     private SortedKeyValueIterator<Key,Value> source;
     private Document document;
     private Set<String> contentExpansionFields;
+    private boolean lazy;
+    private Set<String> tfIndexOnlyFields;
+    private QuerySpan querySpan;
+    // the serialized bytes and documents read for each term when seeking per term, from which the rarest terms are estimated
+    private Map<String,long[]> termSizes = new HashMap<>();
     
     public TermOffsetPopulator(Multimap<String,String> termFrequencyFieldValues, Set<String> contentExpansionFields, EventDataQueryFilter evaluationFilter,
                     SortedKeyValueIterator<Key,Value> source) {
+        this(termFrequencyFieldValues, contentExpansionFields, evaluationFilter, source, false, Collections.emptySet(), null);
+    }
+    
+    /**
+     * @param lazy
+     *            if true the term frequency values are only deserialized when a content function asks for their term, see {@link LazyTermFrequencyMap}
+     * @param tfIndexOnlyFields
+     *            the index only term frequency fields, whose values are only added to the document from the term frequencies. When lazy and none of them
+     *            are searched the term frequencies of each term are only read when a content function asks for the term
+     * @param querySpan
+     *            the span to which the number of term frequency keys read and values deserialized are reported, may be null
+     */
+    public TermOffsetPopulator(Multimap<String,String> termFrequencyFieldValues, Set<String> contentExpansionFields, EventDataQueryFilter evaluationFilter,
+                    SortedKeyValueIterator<Key,Value> source, boolean lazy, Set<String> tfIndexOnlyFields, QuerySpan querySpan) {
         this.termFrequencyFieldValues = termFrequencyFieldValues;
         this.contentExpansionFields = contentExpansionFields;
         this.source = source;
         this.evaluationFilter = evaluationFilter;
+        this.lazy = lazy;
+        this.tfIndexOnlyFields = tfIndexOnlyFields;
+        this.querySpan = querySpan;
     }
     
     public Document document() {
@@ -147,21 +170,34 @@ public class TermOffsetPopulator {
     public Map<String,Object> getContextMap(Key docKey, Set<Key> keys, Set<String> fields) {
         document = new Document();
         
-        TermFrequencyIterator tfSource;
+        Multimap<String,String> tfFVs;
         // Do not prune if no fields exist or if the tf fields would prune to nothing. TODO skip tf entirely if this would prune to zero
         if (fields == null || fields.isEmpty() || fields.size() == termFrequencyFieldValues.keySet().size()) {
-            tfSource = new TermFrequencyIterator(termFrequencyFieldValues, keys);
+            tfFVs = termFrequencyFieldValues;
         } else {
             // There are fields to remove, reduce the search space and continue
-            Multimap<String,String> tfFVs = HashMultimap.create(termFrequencyFieldValues);
+            tfFVs = HashMultimap.create(termFrequencyFieldValues);
             fields.forEach(tfFVs::removeAll);
-            tfSource = new TermFrequencyIterator(tfFVs, keys);
             
             if (tfFVs.size() == 0) {
                 log.error("Created a TFIter with no field values. Orig fields: " + termFrequencyFieldValues.keySet() + " fields to remove: " + fields);
             }
         }
         
+        // set the document context on the filter
+        if (evaluationFilter != null) {
+            evaluationFilter.startNewDocument(docKey);
+        }
+        
+        Map<String,Object> map = new HashMap<>();
+        if (lazy && Collections.disjoint(tfFVs.keySet(), tfIndexOnlyFields)) {
+            // no field needs the content attributes, so seek the term frequencies of a term only when a content function asks for it
+            LazyTermFrequencyMap.TermFetcher fetcher = new SeekingTermFetcher(tfFVs, keys);
+            map.put(Constants.TERM_OFFSET_MAP_JEXL_VARIABLE_NAME, new LazyTermFrequencyMap(querySpan, new HashSet<>(tfFVs.values()), fetcher));
+            return map;
+        }
+        
+        TermFrequencyIterator tfSource = new TermFrequencyIterator(tfFVs, keys);
         Range range = getRange(keys);
         try {
             tfSource.init(source, null, null);
@@ -170,14 +206,12 @@ public class TermOffsetPopulator {
             log.error("Seek to the range failed: " + range, e);
         }
         
-        // set the document context on the filter
-        if (evaluationFilter != null) {
-            evaluationFilter.startNewDocument(docKey);
-        }
-        
         Map<String,TermFrequencyList> termOffsetMap = Maps.newHashMap();
+        LazyTermFrequencyMap lazyTermOffsetMap = lazy ? new LazyTermFrequencyMap(querySpan) : null;
+        long keysRead = 0;
         
         while (tfSource.hasTop()) {
+            keysRead++;
             Key key = tfSource.getTopKey();
             FieldValue fv = FieldValue.getFieldValue(key);
             
@@ -192,36 +226,31 @@ public class TermOffsetPopulator {
             
             this.document.put(fv.getField(), attr);
             
-            TreeMultimap<TermFrequencyList.Zone,TermWeightPosition> offsets = TreeMultimap.create();
-            try {
-                TermWeight.Info twInfo = TermWeight.Info.parseFrom(tfSource.getTopValue().get());
-                
-                // if no content expansion fields then assume every field is permitted for unfielded content functions
-                TermFrequencyList.Zone twZone = new TermFrequencyList.Zone(fv.getField(),
-                                (contentExpansionFields == null || contentExpansionFields.isEmpty() || contentExpansionFields.contains(fv.getField())),
-                                TermFrequencyList.getEventId(key));
-                
-                TermWeightPosition.Builder position = new TermWeightPosition.Builder();
-                for (int i = 0; i < twInfo.getTermOffsetCount(); i++) {
-                    position.setTermWeightOffsetInfo(twInfo, i);
-                    offsets.put(twZone, position.build());
-                    position.reset();
-                }
-                
-            } catch (InvalidProtocolBufferException e) {
-                log.error("Could not deserialize TermWeight protocol buffer for: " + source.getTopKey());
-                
-                return null;
-            }
+            TermFrequencyList.Zone twZone = getZone(fv, key);
             
-            // First time looking up this term in a field
-            TermFrequencyList tfl = termOffsetMap.get(fv.getValue());
-            if (null == tfl) {
-                termOffsetMap.put(fv.getValue(), new TermFrequencyList(offsets));
+            if (lazy) {
+                // defer deserializing until a content function asks for this term
+                byte[] value = tfSource.getTopValue().get();
+                lazyTermOffsetMap.add(fv.getValue(), twZone, Arrays.copyOf(value, value.length));
             } else {
+                TermWeight.Info offsets;
+                try {
+                    offsets = TermWeight.Info.parseFrom(tfSource.getTopValue().get());
+                } catch (InvalidProtocolBufferException e) {
+                    log.error("Could not deserialize TermWeight protocol buffer for: " + source.getTopKey());
+                    countTermFrequencies(keysRead);
+                    return null;
+                }
+                
+                // First time looking up this term in a field
+                TermFrequencyList tfl = termOffsetMap.get(fv.getValue());
+                if (null == tfl) {
+                    tfl = new TermFrequencyList();
+                    termOffsetMap.put(fv.getValue(), tfl);
+                }
                 // Merge in the offsets for the current field+term with all previous
                 // offsets from other fields in the same term
-                tfl.addOffsets(offsets);
+                tfl.addOffsets(twZone, offsets);
             }
             
             try {
@@ -232,13 +261,81 @@ public class TermOffsetPopulator {
             }
         }
         
+        countTermFrequencies(keysRead);
+        
         // Load the actual map into map that will be put into the JexlContext
-        Map<String,Object> map = new HashMap<>();
-        map.put(Constants.TERM_OFFSET_MAP_JEXL_VARIABLE_NAME, termOffsetMap);
+        map.put(Constants.TERM_OFFSET_MAP_JEXL_VARIABLE_NAME, lazy ? lazyTermOffsetMap : termOffsetMap);
         
         return map;
     }
     
+    private void countTermFrequencies(long keysRead) {
+        if (querySpan != null) {
+            querySpan.termFrequencyKeys(keysRead);
+            if (!lazy) {
+                querySpan.termFrequencyDecodes(keysRead);
+            }
+        }
+    }
+    
+    // if no content expansion fields then assume every field is permitted for unfielded content functions
+    private TermFrequencyList.Zone getZone(FieldValue fv, Key key) {
+        boolean contentExpansionField = contentExpansionFields == null || contentExpansionFields.isEmpty() || contentExpansionFields.contains(fv.getField());
+        return new TermFrequencyList.Zone(fv.getField(), contentExpansionField, TermFrequencyList.getEventId(key));
+    }
+    
+    /**
+     * Seeks the term frequencies of a single term in the fields searched for it, within the range of the document's keys
+     */
+    private class SeekingTermFetcher implements LazyTermFrequencyMap.TermFetcher {
+        private final Multimap<String,String> tfFVs;
+        private final Set<Key> keys;
+        
+        SeekingTermFetcher(Multimap<String,String> tfFVs, Set<Key> keys) {
+            this.tfFVs = tfFVs;
+            this.keys = keys;
+        }
+        
+        @Override
+        public void fetch(String term, LazyTermFrequencyMap map) throws IOException {
+            Multimap<String,String> termFVs = HashMultimap.create();
+            for (Entry<String,String> fieldValue : tfFVs.entries()) {
+                if (fieldValue.getValue().equals(term)) {
+                    termFVs.put(fieldValue.getKey(), term);
+                }
+            }
+            
+            TermFrequencyIterator tfSource = new TermFrequencyIterator(termFVs, keys);
+            tfSource.init(source, null, null);
+            tfSource.seek(getRange(keys), null, false);
+            
+            long keysRead = 0;
+            long bytesRead = 0;
+            while (tfSource.hasTop()) {
+                keysRead++;
+                Key key = tfSource.getTopKey();
+                byte[] value = tfSource.getTopValue().get();
+                bytesRead += value.length;
+                map.add(term, getZone(FieldValue.getFieldValue(key), key), Arrays.copyOf(value, value.length));
+                tfSource.next();
+            }
+            
+            long[] size = termSizes.computeIfAbsent(term, k -> new long[2]);
+            size[0] += bytesRead;
+            size[1]++;
+            if (querySpan != null) {
+                querySpan.termFrequencyKeys(keysRead);
+            }
+        }
+        
+        @Override
+        public long estimatedSize(String term) {
+            // the average size over the documents read so far, and terms not read yet first to learn their size
+            long[] size = termSizes.get(term);
+            return size == null ? 0 : size[0] / size[1];
+        }
+    }
+    
     public static boolean isContentFunctionTerm(String functionName) {
         return phraseFunctions.contains(functionName);
     }
@@ -406,7 +503,7 @@ public class TermOffsetPopulator {
         /**
          * A distance between this field value and another. Here we want a distance that correlates with the number of keys between here and there for the same.
          * Essentially we want the inverse of the number of bytes that match. document.
-         *
+         * 
          * @param fv
          * @return a distance between here and there (negative means there is before here)
          */
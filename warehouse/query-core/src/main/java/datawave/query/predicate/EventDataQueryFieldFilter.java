@@ -19,6 +19,13 @@ import java.util.Set;
 public class EventDataQueryFieldFilter extends KeyProjection implements EventDataQueryFilter {
     private Set<String> nonEventFields;
     
+    // null unless seeking past the fields which are not kept
+    private FieldSeekPlan seekPlan = null;
+    
+    // the last rejected key and its field
+    private Key lastMiss = null;
+    private String lastMissField = null;
+    
     public EventDataQueryFieldFilter() {
         super();
         // empty white list and black list
@@ -30,6 +37,9 @@ public class EventDataQueryFieldFilter extends KeyProjection implements EventDat
         if (other.document != null) {
             document = new Key(other.document);
         }
+        if (other.seekPlan != null) {
+            this.seekPlan = new FieldSeekPlan(other.seekPlan);
+        }
     }
     
     /**
@@ -40,12 +50,36 @@ public class EventDataQueryFieldFilter extends KeyProjection implements EventDat
     public EventDataQueryFieldFilter(ASTJexlScript script, Set<String> nonEventFields) {
         this.nonEventFields = nonEventFields;
         
+        initializeWhitelist(getQueryFields(script));
+    }
+    
+    /**
+     * Initialize the query field filter with all of the fields required to evaluate this query and the fields projected onto the results. Keys of any other
+     * field are skipped, seeking past them once more than maxNextCount of them are seen in a row.
+     * 
+     * @param script
+     * @param nonEventFields
+     * @param projectedFields
+     *            the fields returned with the results
+     * @param maxNextCount
+     *            the max number of rejected keys to next over before seeking, see {@link FieldSeekPlan}
+     */
+    public EventDataQueryFieldFilter(ASTJexlScript script, Set<String> nonEventFields, Set<String> projectedFields, int maxNextCount) {
+        this.nonEventFields = nonEventFields;
+        
+        Set<String> fields = getQueryFields(script);
+        fields.addAll(projectedFields);
+        initializeWhitelist(fields);
+        
+        this.seekPlan = new FieldSeekPlan(fields, maxNextCount);
+    }
+    
+    private static Set<String> getQueryFields(ASTJexlScript script) {
         Set<String> queryFields = Sets.newHashSet();
         for (ASTIdentifier identifier : JexlASTHelper.getIdentifiers(script)) {
             queryFields.add(JexlASTHelper.deconstructIdentifier(identifier));
         }
-        
-        initializeWhitelist(queryFields);
+        return queryFields;
     }
     
     protected Key document = null;
@@ -53,6 +87,34 @@ public class EventDataQueryFieldFilter extends KeyProjection implements EventDat
     @Override
     public void startNewDocument(Key document) {
         this.document = document;
+        if (seekPlan != null) {
+            seekPlan.startNewDocument();
+        }
+    }
+    
+    @Override
+    public boolean apply(Map.Entry<Key,String> input) {
+        if (seekPlan == null) {
+            return super.apply(input);
+        }
+        
+        final DatawaveKey parser = new DatawaveKey(input.getKey());
+        final String fieldName = parser.getFieldName();
+        if (projection.apply(JexlASTHelper.removeGroupingContext(fieldName))) {
+            seekPlan.hit();
+            return true;
+        }
+        
+        seekPlan.miss(parser.getDataType(), fieldName);
+        lastMiss = input.getKey();
+        lastMissField = fieldName;
+        return false;
+    }
+    
+    @Override
+    public boolean peek(Map.Entry<Key,String> input) {
+        // do not update the seek plan
+        return super.apply(input);
     }
     
     /*
@@ -81,7 +143,7 @@ public class EventDataQueryFieldFilter extends KeyProjection implements EventDat
     }
     
     /**
-     * Not yet implemented for this filter. Not guaranteed to be called
+     * Seek to the next kept field once the next budget of the {@link FieldSeekPlan} is exhausted. Not guaranteed to be called
      *
      * @param current
      *            the current key at the top of the source iterator
@@ -89,18 +151,21 @@ public class EventDataQueryFieldFilter extends KeyProjection implements EventDat
      *            the current range endKey
      * @param endKeyInclusive
      *            the endKeyInclusive flag from the current range
-     * @return
+     * @return the range to seek, or null if the source should be nexted instead
      */
     @Override
     public Range getSeekRange(Key current, Key endKey, boolean endKeyInclusive) {
-        // not yet implemented
-        return null;
+        if (seekPlan == null) {
+            return null;
+        }
+        
+        String fieldName = current.equals(lastMiss) ? lastMissField : new DatawaveKey(current).getFieldName();
+        return seekPlan.getSeekRange(current, fieldName, endKey, endKeyInclusive);
     }
     
     @Override
     public int getMaxNextCount() {
-        // not yet implemented
-        return -1;
+        return seekPlan == null ? -1 : seekPlan.getMaxNextCount();
     }
     
     @Override
@@ -0,0 +1,141 @@
+package datawave.query.predicate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import datawave.query.Constants;
+import datawave.query.jexl.JexlASTHelper;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
+import org.apache.accumulo.core.data.Range;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Decides when a filter over the event keys of a document should seek past the fields it rejects instead of calling next on them. The wanted fields are kept
+ * sorted by the column qualifier prefixes their keys start with, so a rejected key seeks directly to the next prefix which may hold a wanted key, or to the end
+ * of the document when there is none.
+ * <p>
+ * The number of rejected keys to next over before seeking is learned per datatype and field which starts a run of rejected keys. The first time a run is seen
+ * it is nexted over up to the max next count. If it ends on a wanted key within that budget later runs are nexted over as well, otherwise later runs seek as
+ * soon as they start. Events of a datatype tend to share a field layout, so a few documents are enough to learn it.
+ */
+public class FieldSeekPlan {
+    
+    private final NavigableSet<String> prefixes;
+    
+    private final int maxNextCount;
+    
+    // datatype and field which start runs too long to next over
+    private final Set<String> seekOnMiss;
+    
+    // track the current run of rejected keys
+    private String runStart = null;
+    private int runLength = 0;
+    
+    /**
+     * @param fields
+     *            the fields to keep
+     * @param maxNextCount
+     *            the max number of rejected keys to next over before seeking, or -1 to never seek
+     */
+    public FieldSeekPlan(Collection<String> fields, int maxNextCount) {
+        NavigableSet<String> prefixes = new TreeSet<>();
+        for (String field : fields) {
+            // grouped keys sort after the ungrouped keys of the field and possibly after other fields
+            prefixes.add(field);
+            prefixes.add(field + JexlASTHelper.GROUPING_CHARACTER_SEPARATOR);
+        }
+        this.prefixes = Collections.unmodifiableNavigableSet(prefixes);
+        this.maxNextCount = maxNextCount;
+        this.seekOnMiss = new HashSet<>();
+    }
+    
+    public FieldSeekPlan(FieldSeekPlan other) {
+        this.prefixes = other.prefixes;
+        this.maxNextCount = other.maxNextCount;
+        this.seekOnMiss = new HashSet<>(other.seekOnMiss);
+        this.runStart = other.runStart;
+        this.runLength = other.runLength;
+    }
+    
+    public int getMaxNextCount() {
+        return maxNextCount;
+    }
+    
+    public void startNewDocument() {
+        runStart = null;
+        runLength = 0;
+    }
+    
+    /**
+     * Record that a key was kept, ending the current run of rejected keys
+     */
+    public void hit() {
+        runStart = null;
+        runLength = 0;
+    }
+    
+    /**
+     * Record that a key was rejected
+     * 
+     * @param datatype
+     *            the datatype of the key
+     * @param field
+     *            the field of the key, including any grouping context
+     */
+    public void miss(String datatype, String field) {
+        if (runStart == null) {
+            runStart = datatype + Constants.NULL_BYTE_STRING + field;
+        }
+        runLength++;
+    }
+    
+    /**
+     * Get the range to seek to after a rejected key, if the next budget of the current run is exhausted
+     * 
+     * @param current
+     *            the rejected key
+     * @param field
+     *            the field of the rejected key, including any grouping context
+     * @param endKey
+     *            the current range endKey
+     * @param endKeyInclusive
+     *            the endKeyInclusive flag from the current range
+     * @return the range to seek, or null if the source should be nexted instead
+     */
+    public Range getSeekRange(Key current, String field, Key endKey, boolean endKeyInclusive) {
+        if (maxNextCount < 0 || runStart == null) {
+            return null;
+        }
+        
+        if (!seekOnMiss.contains(runStart)) {
+            if (runLength < maxNextCount) {
+                return null;
+            }
+            seekOnMiss.add(runStart);
+        }
+        
+        // a seek starts a new run
+        runStart = null;
+        runLength = 0;
+        
+        String next = prefixes.higher(field);
+        if (next == null) {
+            return endKey == null ? null : getEmptyRange(endKey);
+        }
+        
+        Key startKey = new Key(current.getRow(), current.getColumnFamily(), new Text(next));
+        if (endKey == null || startKey.compareTo(endKey) < 0) {
+            return new Range(startKey, true, endKey, endKeyInclusive);
+        }
+        return getEmptyRange(endKey);
+    }
+    
+    private Range getEmptyRange(Key end) {
+        return new Range(end, false, end.followingKey(PartialKey.ROW_COLFAM_COLQUAL_COLVIS_TIME), false);
+    }
+}
@@ -1652,6 +1652,14 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         getConfig().setIvaratorNumRetries(ivaratorNumRetries);
     }
     
+    public long getIvaratorSharedResultsMaxKeys() {
+        return getConfig().getIvaratorSharedResultsMaxKeys();
+    }
+    
+    public void setIvaratorSharedResultsMaxKeys(long ivaratorSharedResultsMaxKeys) {
+        getConfig().setIvaratorSharedResultsMaxKeys(ivaratorSharedResultsMaxKeys);
+    }
+    
     public boolean isIvaratorPersistVerify() {
         return getConfig().isIvaratorPersistVerify();
     }
@@ -2010,6 +2018,62 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         getConfig().setAllowFieldIndexEvaluation(allowFieldIndexEvaluation);
     }
     
+    public boolean isCompiledEvaluation() {
+        return getConfig().isCompiledEvaluation();
+    }
+    
+    public void setCompiledEvaluation(boolean compiledEvaluation) {
+        getConfig().setCompiledEvaluation(compiledEvaluation);
+    }
+    
+    public boolean isLazyTermFrequencies() {
+        return getConfig().isLazyTermFrequencies();
+    }
+    
+    public void setLazyTermFrequencies(boolean lazyTermFrequencies) {
+        getConfig().setLazyTermFrequencies(lazyTermFrequencies);
+    }
+    
+    public boolean isFieldIndexCardinalityOrdering() {
+        return getConfig().isFieldIndexCardinalityOrdering();
+    }
+    
+    public void setFieldIndexCardinalityOrdering(boolean fieldIndexCardinalityOrdering) {
+        getConfig().setFieldIndexCardinalityOrdering(fieldIndexCardinalityOrdering);
+    }
+    
+    public long getBitmapIntersectionMaxKeys() {
+        return getConfig().getBitmapIntersectionMaxKeys();
+    }
+    
+    public void setBitmapIntersectionMaxKeys(long bitmapIntersectionMaxKeys) {
+        getConfig().setBitmapIntersectionMaxKeys(bitmapIntersectionMaxKeys);
+    }
+    
+    public int getEventFieldSeekThreshold() {
+        return getConfig().getEventFieldSeekThreshold();
+    }
+    
+    public void setEventFieldSeekThreshold(int eventFieldSeekThreshold) {
+        getConfig().setEventFieldSeekThreshold(eventFieldSeekThreshold);
+    }
+    
+    public int getTldChildFetchParallelism() {
+        return getConfig().getTldChildFetchParallelism();
+    }
+    
+    public void setTldChildFetchParallelism(int tldChildFetchParallelism) {
+        getConfig().setTldChildFetchParallelism(tldChildFetchParallelism);
+    }
+    
+    public boolean isAdaptiveThresholds() {
+        return getConfig().isAdaptiveThresholds();
+    }
+    
+    public void setAdaptiveThresholds(boolean adaptiveThresholds) {
+        getConfig().setAdaptiveThresholds(adaptiveThresholds);
+    }
+    
     public boolean isAllowTermFrequencyLookup() {
         return getConfig().isAllowTermFrequencyLookup();
     }
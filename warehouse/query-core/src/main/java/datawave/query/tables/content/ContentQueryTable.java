@@ -1,12 +1,18 @@
 package datawave.query.tables.content;
 
 import com.google.common.collect.Lists;
+import datawave.data.type.Type;
 import datawave.ingest.mapreduce.handler.ExtendedDataTypeHandler;
+import datawave.ingest.protobuf.Uid;
 import datawave.query.QueryParameters;
 import datawave.query.config.ContentQueryConfiguration;
 import datawave.query.Constants;
 import datawave.query.tables.ScannerFactory;
 import datawave.query.transformer.ContentQueryTransformer;
+import datawave.query.util.MetadataHelper;
+import datawave.query.util.MetadataHelperFactory;
+import datawave.util.TableName;
+import datawave.util.time.DateHelper;
 import datawave.webservice.common.connection.AccumuloConnectionFactory;
 import datawave.webservice.query.Query;
 import datawave.webservice.query.QueryImpl.Parameter;
@@ -14,6 +20,7 @@ import datawave.webservice.query.configuration.GenericQueryConfiguration;
 import datawave.webservice.query.exception.QueryException;
 import datawave.webservice.query.logic.BaseQueryLogic;
 import datawave.webservice.query.logic.QueryLogicTransformer;
+import com.google.protobuf.InvalidProtocolBufferException;
 import org.apache.accumulo.core.client.AccumuloClient;
 import org.apache.accumulo.core.client.BatchScanner;
 import org.apache.accumulo.core.client.IteratorSetting;
@@ -27,8 +34,12 @@ import org.apache.accumulo.core.security.Authorizations;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
@@ -46,15 +57,25 @@ import java.util.TreeSet;
  * 
  * The optional parameter content.view.name can be used to retrieve an alternate view of the document, assuming one is stored with that name. The optional
  * parameter content.view.all can be used to retrieve all documents for the parent and children Both optional parameters can be used together
+ * <p>
+ * Documents may also be identified by a UUID field and value, in which case the query term is of the form <code>FIELD:value</code>. All of the UUID terms are
+ * resolved to their shard id, datatype and UID with a single pass over the shard index, so that a bulk lookup of many UUIDs does not need to plan and page
+ * through a full shard query before fetching the documents. Each value is normalized by the types of its field, and only the shards between the query's begin
+ * and end dates are searched. A query whose UUIDs are not found returns no documents.
  */
 public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
     
     private static final Logger log = Logger.getLogger(ContentQueryTable.class);
     
+    private static final String DOCUMENT_FIELD = "DOCUMENT";
+    
     private static final String PARENT_ONLY = "\1";
     private static final String ALL = "\u10FFFF";
     
     private int queryThreads = 100;
+    private String indexTableName = TableName.SHARD_INDEX;
+    private String metadataTableName = TableName.METADATA;
+    private MetadataHelperFactory metadataHelperFactory;
     private ScannerFactory scannerFactory;
     private String viewName = null;
     
@@ -64,6 +85,10 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
     
     public ContentQueryTable(final ContentQueryTable contentQueryTable) {
         super(contentQueryTable);
+        this.queryThreads = contentQueryTable.queryThreads;
+        this.indexTableName = contentQueryTable.indexTableName;
+        this.metadataTableName = contentQueryTable.metadataTableName;
+        this.metadataHelperFactory = contentQueryTable.metadataHelperFactory;
     }
     
     /**
@@ -111,7 +136,7 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
         }
         
         // Configure ranges
-        final Collection<Range> ranges = this.createRanges(settings, end);
+        final Collection<Range> ranges = this.createRanges(client, settings, auths, end);
         config.setRanges(ranges);
         
         return config;
@@ -129,6 +154,12 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
         
         final ContentQueryConfiguration config = (ContentQueryConfiguration) genericConfig;
         
+        // UUIDs which were not found leave nothing to scan
+        if (config.getRanges().isEmpty()) {
+            this.iterator = Collections.emptyIterator();
+            return;
+        }
+        
         try {
             final BatchScanner scanner = this.scannerFactory
                             .newScanner(config.getTableName(), config.getAuthorizations(), this.queryThreads, config.getQuery());
@@ -151,16 +182,24 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
     /*
      * Create an ordered collection of Ranges for scanning
      * 
+     * @param client the client used to load the types of UUID fields
+     * 
      * @param settings the query
      * 
+     * @param auths the authorizations used to resolve UUID terms
+     * 
      * @param endKeyTerminator a string appended to each Range's end key indicating whether or not to include child content
      * 
-     * @return one or more Ranges
+     * @return the Ranges, which are empty only if none of the UUID terms were found
      */
-    private Collection<Range> createRanges(final Query settings, final String endKeyTerminator) {
+    private Collection<Range> createRanges(final AccumuloClient client, final Query settings, final Set<Authorizations> auths, final String endKeyTerminator)
+                    throws TableNotFoundException, InvalidProtocolBufferException, InstantiationException, IllegalAccessException {
         // Initialize the returned collection of ordered ranges
         final Set<Range> ranges = new TreeSet<>();
         
+        // UUID field/value pairs to be resolved through the shard index
+        final List<String[]> uuidTerms = new ArrayList<>();
+        
         // Get the query
         final String query = settings.getQuery().trim();
         
@@ -188,9 +227,11 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
                     value = term;
                 }
                 
-                // Validate the value
+                // Validate the value, where any field other than DOCUMENT is a UUID field
                 final String[] parts = value.split("/");
-                if (parts.length != 3) {
+                if (parts.length != 3 && fieldSeparation > 0 && !DOCUMENT_FIELD.equalsIgnoreCase(term.substring(0, fieldSeparation))) {
+                    uuidTerms.add(new String[] {term.substring(0, fieldSeparation).toUpperCase(), value});
+                } else if (parts.length != 3) {
                     throw new IllegalArgumentException("Query does not specify all needed parts: " + settings.getQuery()
                                     + ". Each space-delimited term should be of the form 'DOCUMENT:shardId/datatype/eventUID'.");
                 }
@@ -204,19 +245,17 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
                     log.debug("Received pieces: " + shardId + ", " + datatype + ", " + uid);
                     
                     // Create and add a Range
-                    final String cf = ExtendedDataTypeHandler.FULL_CONTENT_COLUMN_FAMILY;
-                    final String cq = datatype + Constants.NULL_BYTE_STRING + uid;
-                    final Key startKey = new Key(shardId, cf, cq + Constants.NULL_BYTE_STRING);
-                    final Key endKey = new Key(shardId, cf, cq + endKeyTerminator);
-                    final Range r = new Range(startKey, true, endKey, false);
-                    ranges.add(r);
-                    
-                    log.debug("Adding range: " + r);
+                    ranges.add(this.createContentRange(shardId, datatype, uid, endKeyTerminator));
                 }
             }
         }
         
-        if (ranges.isEmpty()) {
+        if (!uuidTerms.isEmpty()) {
+            this.addUUIDRanges(client, settings, auths, uuidTerms, endKeyTerminator, ranges);
+            if (ranges.isEmpty()) {
+                log.debug("No documents found for the UUIDs in query: " + settings.getQuery());
+            }
+        } else if (ranges.isEmpty()) {
             throw new IllegalArgumentException("Query does not specify all needed parts: " + settings.getQuery()
                             + ". At least one term required of the form 'DOCUMENT:shardId/datatype/eventUID'.");
         }
@@ -224,6 +263,144 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
         return ranges;
     }
     
+    private Range createContentRange(final String shardId, final String datatype, final String uid, final String endKeyTerminator) {
+        final String cf = ExtendedDataTypeHandler.FULL_CONTENT_COLUMN_FAMILY;
+        final String cq = datatype + Constants.NULL_BYTE_STRING + uid;
+        final Key startKey = new Key(shardId, cf, cq + Constants.NULL_BYTE_STRING);
+        final Key endKey = new Key(shardId, cf, cq + endKeyTerminator);
+        final Range r = new Range(startKey, true, endKey, false);
+        
+        log.debug("Adding range: " + r);
+        return r;
+    }
+    
+    /*
+     * Resolve UUID terms to content Ranges with a single sorted pass over the shard index. Where the index did not keep the UIDs for a shard, they are read
+     * from the shard's field index in a second pass.
+     * 
+     * @param client the client used to load the types of UUID fields
+     * 
+     * @param settings the query, whose begin and end dates bound the shards searched
+     * 
+     * @param auths the authorizations
+     * 
+     * @param uuidTerms the UUID field and value of each term
+     * 
+     * @param endKeyTerminator a string appended to each Range's end key indicating whether or not to include child content
+     * 
+     * @param ranges the content Ranges, to which the resolved documents are added
+     */
+    private void addUUIDRanges(final AccumuloClient client, final Query settings, final Set<Authorizations> auths, final List<String[]> uuidTerms,
+                    final String endKeyTerminator, final Set<Range> ranges) throws TableNotFoundException, InvalidProtocolBufferException,
+                    InstantiationException, IllegalAccessException {
+        final MetadataHelper metadataHelper = (null == this.metadataHelperFactory) ? null
+                        : this.metadataHelperFactory.createMetadataHelper(client, this.metadataTableName, auths);
+        
+        final Set<Range> indexRanges = new TreeSet<>();
+        for (final String[] uuidTerm : uuidTerms) {
+            for (final String value : this.normalizeUUID(metadataHelper, uuidTerm[0], uuidTerm[1])) {
+                indexRanges.add(this.createIndexRange(uuidTerm[0], value, settings.getBeginDate(), settings.getEndDate()));
+            }
+        }
+        
+        final Set<Range> fieldIndexRanges = new TreeSet<>();
+        final BatchScanner indexScanner = this.scannerFactory.newScanner(this.indexTableName, auths, this.queryThreads, settings);
+        try {
+            indexScanner.setRanges(indexRanges);
+            for (final Entry<Key,Value> entry : indexScanner) {
+                final Key key = entry.getKey();
+                final String cq = key.getColumnQualifier().toString();
+                final int separator = cq.indexOf(Constants.NULL_BYTE_STRING);
+                if (separator < 0) {
+                    continue;
+                }
+                final String shardId = cq.substring(0, separator);
+                final String datatype = cq.substring(separator + 1);
+                
+                final Uid.List uids = Uid.List.parseFrom(entry.getValue().get());
+                if (uids.getIGNORE()) {
+                    final String cf = Constants.FIELD_INDEX_PREFIX + key.getColumnFamily();
+                    final String prefix = key.getRow() + Constants.NULL_BYTE_STRING + datatype + Constants.NULL_BYTE_STRING;
+                    fieldIndexRanges.add(new Range(new Key(shardId, cf, prefix), true, new Key(shardId, cf, prefix + Constants.MAX_UNICODE_STRING), false));
+                } else {
+                    for (final String uid : uids.getUIDList()) {
+                        ranges.add(this.createContentRange(shardId, datatype, uid, endKeyTerminator));
+                    }
+                }
+            }
+        } finally {
+            this.scannerFactory.close(indexScanner);
+        }
+        
+        if (!fieldIndexRanges.isEmpty()) {
+            final BatchScanner fieldIndexScanner = this.scannerFactory.newScanner(this.getTableName(), auths, this.queryThreads, settings);
+            try {
+                fieldIndexScanner.setRanges(fieldIndexRanges);
+                for (final Entry<Key,Value> entry : fieldIndexScanner) {
+                    // the field index column qualifier is value\0datatype\0uid
+                    final String cq = entry.getKey().getColumnQualifier().toString();
+                    final int uidSeparator = cq.lastIndexOf(Constants.NULL_BYTE_STRING);
+                    final int datatypeSeparator = cq.lastIndexOf(Constants.NULL_BYTE_STRING, uidSeparator - 1);
+                    final String datatype = cq.substring(datatypeSeparator + 1, uidSeparator);
+                    final String uid = cq.substring(uidSeparator + 1);
+                    ranges.add(this.createContentRange(entry.getKey().getRow().toString(), datatype, uid, endKeyTerminator));
+                }
+            } finally {
+                this.scannerFactory.close(fieldIndexScanner);
+            }
+        }
+    }
+    
+    /*
+     * Normalize a UUID value with each of the types of its field, as the shard index holds the normalized values. The value is used as given if the field has
+     * no types or no metadata helper factory is configured.
+     * 
+     * @param metadataHelper the helper used to load the types of the field, or null
+     * 
+     * @param field the UUID field
+     * 
+     * @param value the UUID value
+     * 
+     * @return the normalized values
+     */
+    private Set<String> normalizeUUID(final MetadataHelper metadataHelper, final String field, final String value) throws TableNotFoundException,
+                    InstantiationException, IllegalAccessException {
+        final Set<String> normalizedValues = new HashSet<>();
+        if (null != metadataHelper) {
+            for (final Type<?> type : metadataHelper.getDatatypesForField(field)) {
+                try {
+                    normalizedValues.add(type.normalize(value));
+                } catch (Exception e) {
+                    log.debug(type + " failed to normalize value: " + value);
+                }
+            }
+        }
+        if (normalizedValues.isEmpty()) {
+            normalizedValues.add(value);
+        }
+        return normalizedValues;
+    }
+    
+    /*
+     * Create a shard index Range for a UUID value, limited to the shards between the begin and end dates. The column qualifier of an index entry starts with
+     * its shard id, which starts with the shard date.
+     * 
+     * @param field the UUID field
+     * 
+     * @param value the normalized UUID value
+     * 
+     * @param beginDate the begin date, or null to search from the first shard
+     * 
+     * @param endDate the end date, or null to search to the last shard
+     * 
+     * @return the index Range
+     */
+    private Range createIndexRange(final String field, final String value, final Date beginDate, final Date endDate) {
+        final String begin = (null == beginDate) ? "" : DateHelper.format(beginDate);
+        final String end = (null == endDate) ? Constants.MAX_UNICODE_STRING : DateHelper.format(endDate) + Constants.MAX_UNICODE_STRING;
+        return new Range(new Key(value, field, begin), true, new Key(value, field, end), false);
+    }
+    
     @Override
     public AccumuloConnectionFactory.Priority getConnectionPriority() {
         return AccumuloConnectionFactory.Priority.NORMAL;
@@ -243,6 +420,30 @@ public class ContentQueryTable extends BaseQueryLogic<Entry<Key,Value>> {
         return this.queryThreads;
     }
     
+    public String getIndexTableName() {
+        return this.indexTableName;
+    }
+    
+    public void setIndexTableName(String indexTableName) {
+        this.indexTableName = indexTableName;
+    }
+    
+    public String getMetadataTableName() {
+        return this.metadataTableName;
+    }
+    
+    public void setMetadataTableName(String metadataTableName) {
+        this.metadataTableName = metadataTableName;
+    }
+    
+    public MetadataHelperFactory getMetadataHelperFactory() {
+        return this.metadataHelperFactory;
+    }
+    
+    public void setMetadataHelperFactory(MetadataHelperFactory metadataHelperFactory) {
+        this.metadataHelperFactory = metadataHelperFactory;
+    }
+    
     @Override
     public Set<String> getOptionalQueryParameters() {
         Set<String> params = new TreeSet<>();
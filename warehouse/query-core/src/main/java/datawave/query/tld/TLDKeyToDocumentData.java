@@ -0,0 +1,304 @@
+package datawave.query.tld;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import datawave.core.iterators.IteratorThreadPoolManager;
+import datawave.query.function.Equality;
+import datawave.query.function.KeyToDocumentData;
+import datawave.query.iterator.profile.QuerySpan;
+import datawave.query.predicate.EventDataQueryFilter;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Logger;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Fetches the keys of a top level document and its children over several ranges at once. The children of a top level document are split into ranges with an
+ * equal share of its direct children, and each range after the first is fetched from its own deep copy of the source on the evaluation thread pool while the
+ * calling thread fetches the first range. The attributes are merged in key order, so the result matches a sequential fetch.
+ * <p>
+ * Direct child ids are numbered from 1, so the highest child id is found with a few seeks for single children and the split ids are taken from the child ids
+ * in key (lexicographic) order. A document whose child ids are not numbered is fetched sequentially.
+ * <p>
+ * Any range which has not been started by the pool when the calling thread needs it is fetched by the calling thread, so a busy pool (including one whose
+ * threads are all running document pipelines waiting on their own fetches) delays a fetch instead of deadlocking it.
+ */
+public class TLDKeyToDocumentData extends KeyToDocumentData {
+    
+    private static final Logger log = Logger.getLogger(TLDKeyToDocumentData.class);
+    
+    private static final char CHILD_SEPARATOR = '.';
+    
+    // bounds the doubling search for the highest child id
+    private static final long MAX_CHILD_ID = 1L << 40;
+    
+    private final IteratorEnvironment env;
+    
+    // the max number of ranges to split the children into
+    private final int parallelism;
+    
+    // the source for each range, the first being the source of this function
+    private final List<SortedKeyValueIterator<Key,Value>> sources = new ArrayList<>();
+    
+    public TLDKeyToDocumentData(final SortedKeyValueIterator<Key,Value> source, final IteratorEnvironment env, final Map<String,String> options,
+                    final Equality equality, final EventDataQueryFilter filter, boolean includeChildCount, boolean includeParent, int parallelism) {
+        super(source, env, options, equality, filter, includeChildCount, includeParent);
+        this.env = env;
+        this.parallelism = parallelism;
+        this.sources.add(source);
+    }
+    
+    @Override
+    public List<Entry<Key,Value>> collectDocumentAttributes(final Key documentStartKey, final Set<Key> docKeys, final Range keyRange) throws IOException {
+        if (parallelism < 2) {
+            return super.collectDocumentAttributes(documentStartKey, docKeys, keyRange);
+        }
+        
+        List<Range> ranges = getChildRanges(documentStartKey, keyRange, getSplitIds(getMaxChildId(documentStartKey, keyRange), parallelism));
+        if (ranges.size() < 2) {
+            // finding the children moved the source
+            source.seek(keyRange, columnFamilies, inclusive);
+            return super.collectDocumentAttributes(documentStartKey, docKeys, keyRange);
+        }
+        
+        // deep copy the sources and clone the filter on the calling thread
+        List<ChildFetch> fetches = new ArrayList<>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            if (sources.size() <= i) {
+                sources.add(source.deepCopy(env));
+            }
+            fetches.add(new ChildFetch(documentStartKey, sources.get(i), equality, filter == null ? null : filter.clone(), ranges.get(i)));
+        }
+        
+        List<Future<?>> futures = new ArrayList<>(fetches.size());
+        for (int i = 1; i < fetches.size(); i++) {
+            ChildFetch fetch = fetches.get(i);
+            futures.add(IteratorThreadPoolManager.executeEvaluation(fetch, fetch.toString(), env));
+        }
+        
+        fetches.get(0).run();
+        for (int i = 1; i < fetches.size(); i++) {
+            // fetch any range the pool has not started yet rather than waiting on it
+            fetches.get(i).run();
+            try {
+                Uninterruptibles.getUninterruptibly(futures.get(i - 1));
+            } catch (ExecutionException e) {
+                fetches.get(i).failed(e.getCause());
+            }
+        }
+        
+        List<Entry<Key,Value>> documentAttributes = new ArrayList<>(256);
+        long skippedKeys = 0;
+        long skipSeeks = 0;
+        for (ChildFetch fetch : fetches) {
+            if (fetch.error instanceof IOException) {
+                throw (IOException) fetch.error;
+            } else if (fetch.error instanceof RuntimeException) {
+                throw (RuntimeException) fetch.error;
+            } else if (fetch.error != null) {
+                throw new IOException("Unable to fetch " + fetch.range, fetch.error);
+            }
+            documentAttributes.addAll(fetch.attributes);
+            docKeys.addAll(fetch.docKeys);
+            skippedKeys += fetch.span.getSkippedEventKeyCount();
+            skipSeeks += fetch.span.getSkipSeekCount();
+        }
+        
+        if (querySpan != null) {
+            querySpan.tldParallelFetches(1);
+            querySpan.tldChildRanges(fetches.size());
+            if (skippedKeys > 0 || skipSeeks > 0) {
+                querySpan.skippedEventKeys(skippedKeys);
+                querySpan.skipSeeks(skipSeeks);
+            }
+        }
+        
+        return documentAttributes;
+    }
+    
+    /**
+     * Split the range of a top level document into ranges over its children. The first range holds the top level document itself.
+     * 
+     * @param documentStartKey
+     *            the start key of the top level document
+     * @param keyRange
+     *            the range of the top level document and its children
+     * @param splitIds
+     *            the child ids at which to split, in key order
+     * @return the ranges in key order, covering the key range
+     */
+    public static List<Range> getChildRanges(Key documentStartKey, Range keyRange, long[] splitIds) {
+        List<Range> ranges = new ArrayList<>();
+        Key start = keyRange.getStartKey();
+        boolean startInclusive = keyRange.isStartKeyInclusive();
+        String childPrefix = documentStartKey.getColumnFamily().toString() + CHILD_SEPARATOR;
+        for (long id : splitIds) {
+            Key split = new Key(documentStartKey.getRow(), new Text(childPrefix + id));
+            if (keyRange.beforeStartKey(split) || keyRange.afterEndKey(split) || (start != null && split.compareTo(start) <= 0)) {
+                continue;
+            }
+            ranges.add(new Range(start, startInclusive, split, false));
+            start = split;
+            startInclusive = true;
+        }
+        ranges.add(new Range(start, startInclusive, keyRange.getEndKey(), keyRange.isEndKeyInclusive()));
+        return ranges;
+    }
+    
+    /**
+     * Find the highest direct child id of a top level document, presuming the ids are numbered from 1 without gaps. The id is found by doubling and then
+     * bisecting, seeking the source for a single child each time.
+     * 
+     * @param documentStartKey
+     *            the start key of the top level document
+     * @param keyRange
+     *            the range of the top level document and its children
+     * @return the highest child id, or 0 if the document has no numbered children
+     */
+    private long getMaxChildId(Key documentStartKey, Range keyRange) throws IOException {
+        String childPrefix = documentStartKey.getColumnFamily().toString() + CHILD_SEPARATOR;
+        if (!hasChild(documentStartKey, keyRange, childPrefix, 1)) {
+            return 0;
+        }
+        
+        long low = 1;
+        long high = 2;
+        while (high <= MAX_CHILD_ID && hasChild(documentStartKey, keyRange, childPrefix, high)) {
+            low = high;
+            high *= 2;
+        }
+        while (high - low > 1) {
+            long mid = (low + high) >>> 1;
+            if (hasChild(documentStartKey, keyRange, childPrefix, mid)) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    private boolean hasChild(Key documentStartKey, Range keyRange, String childPrefix, long id) throws IOException {
+        Key start = new Key(documentStartKey.getRow(), new Text(childPrefix + id));
+        Key end = new Key(documentStartKey.getRow(), new Text(childPrefix + id + '\0'));
+        if (keyRange.afterEndKey(start)) {
+            return false;
+        }
+        source.seek(new Range(start, true, end, false), columnFamilies, inclusive);
+        return source.hasTop();
+    }
+    
+    /**
+     * Get the child ids at which to split the children of a top level document so that each range holds an equal share of the direct children. The children
+     * are in key order, so the split for the jth of n ranges is the (j * maxChildId / n + 1)th of the ids 1 through maxChildId in lexicographic order.
+     * 
+     * @param maxChildId
+     *            the highest direct child id
+     * @param parallelism
+     *            the max number of ranges
+     * @return the split ids in key order, so there are at most maxChildId ranges
+     */
+    public static long[] getSplitIds(long maxChildId, int parallelism) {
+        int ranges = (int) Math.min(parallelism, maxChildId);
+        if (ranges < 2) {
+            return new long[0];
+        }
+        long[] splits = new long[ranges - 1];
+        for (int j = 1; j < ranges; j++) {
+            splits[j - 1] = getLexicographicId(maxChildId, j * maxChildId / ranges + 1);
+        }
+        return splits;
+    }
+    
+    /**
+     * @return the kth (from 1) of the ids 1 through maxId in lexicographic order
+     */
+    private static long getLexicographicId(long maxId, long k) {
+        long id = 1;
+        k--;
+        while (k > 0) {
+            // count the ids beneath the id in the decimal tree, which sort before the next id
+            long count = 0;
+            for (long first = id, last = id + 1; first <= maxId; first *= 10, last *= 10) {
+                count += Math.min(maxId + 1, last) - first;
+            }
+            if (count <= k) {
+                id++;
+                k -= count;
+            } else {
+                id *= 10;
+                k--;
+            }
+        }
+        return id;
+    }
+    
+    /**
+     * Fetches the keys of one range of a top level document. Run at most once, by either the pool or the calling thread.
+     */
+    private static class ChildFetch implements Runnable {
+        private final Key documentStartKey;
+        private final SortedKeyValueIterator<Key,Value> source;
+        private final Equality equality;
+        private final EventDataQueryFilter filter;
+        private final Range range;
+        private final AtomicBoolean claimed = new AtomicBoolean(false);
+        
+        // the pool threads do not report to the span of the calling thread, so collect to a local span
+        private final QuerySpan span = new QuerySpan(null);
+        private final Set<Key> docKeys = new HashSet<>();
+        private List<Entry<Key,Value>> attributes;
+        private volatile Throwable error;
+        
+        ChildFetch(Key documentStartKey, SortedKeyValueIterator<Key,Value> source, Equality equality, EventDataQueryFilter filter, Range range) {
+            this.documentStartKey = documentStartKey;
+            this.source = source;
+            this.equality = equality;
+            this.filter = filter;
+            this.range = range;
+        }
+        
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                source.seek(range, columnFamilies, inclusive);
+                if (source.hasTop()) {
+                    attributes = collectAttributesForDocumentKey(documentStartKey, source, equality, filter, docKeys, range, span);
+                } else {
+                    attributes = new ArrayList<>();
+                }
+            } catch (Throwable t) {
+                log.debug("Unable to fetch " + range, t);
+                error = t;
+            }
+        }
+        
+        void failed(Throwable t) {
+            if (error == null) {
+                error = t;
+            }
+        }
+        
+        @Override
+        public String toString() {
+            return "TLD child fetch " + range;
+        }
+    }
+}
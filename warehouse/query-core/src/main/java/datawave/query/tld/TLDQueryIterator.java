@@ -4,11 +4,13 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import datawave.query.attributes.Document;
 import datawave.query.data.parsers.DatawaveKey;
+import datawave.query.function.KeyToDocumentData;
 import datawave.query.function.TLDEquality;
 import datawave.query.iterator.NestedIterator;
 import datawave.query.iterator.QueryIterator;
 import datawave.query.iterator.SourcedOptions;
 import datawave.query.iterator.logic.IndexIterator;
+import datawave.query.iterator.profile.QuerySpan;
 import datawave.query.jexl.visitors.IteratorBuildingVisitor;
 import datawave.query.planner.SeekingQueryPlanner;
 import datawave.query.predicate.ChainableEventDataQueryFilter;
@@ -183,6 +185,18 @@ public class TLDQueryIterator extends QueryIterator {
         return this.evaluationFilter != null ? evaluationFilter.clone() : null;
     }
     
+    @Override
+    protected KeyToDocumentData getKeyToDocumentData(SortedKeyValueIterator<Key,Value> deepSourceCopy, QuerySpan trackingSpan) {
+        // the pre evaluation field limits are counted across the whole top level document, so they require a sequential fetch
+        if (tldChildFetchParallelism < 2 || (limitFieldsPreQueryEvaluation && !limitFieldsMap.isEmpty())) {
+            return super.getKeyToDocumentData(deepSourceCopy, trackingSpan);
+        }
+        KeyToDocumentData keyToDocumentData = new TLDKeyToDocumentData(deepSourceCopy, this.myEnvironment, this.documentOptions, super.equality,
+                        getDocumentFetchFilter(), this.includeHierarchyFields, this.includeHierarchyFields, tldChildFetchParallelism);
+        keyToDocumentData.setQuerySpan(trackingSpan);
+        return keyToDocumentData;
+    }
+    
     @Override
     protected NestedIterator<Key> getEventDataNestedIterator(SortedKeyValueIterator<Key,Value> source) {
         return new TLDEventDataScanNestedIterator(source, getEventEntryKeyDataTypeFilter());
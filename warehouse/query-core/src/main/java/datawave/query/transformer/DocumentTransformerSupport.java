@@ -71,6 +71,12 @@ public abstract class DocumentTransformerSupport<I,O> extends EventQueryTransfor
     private long nextCount = 0;
     private long seekCount = 0;
     private long yieldCount = 0L;
+    private long termFrequencyKeyCount = 0L;
+    private long termFrequencyDecodeCount = 0L;
+    private long skippedEventKeyCount = 0L;
+    private long skipSeekCount = 0L;
+    private long tldParallelFetchCount = 0L;
+    private long tldChildRangeCount = 0L;
     private long docRanges = 0;
     private long fiRanges = 0;
     private boolean logTimingDetails = false;
@@ -219,11 +225,23 @@ public abstract class DocumentTransformerSupport<I,O> extends EventQueryTransfor
             long currentNextCount = timingMetadata.getNextCount();
             long currentSeekCount = timingMetadata.getSeekCount();
             long currentYieldCount = timingMetadata.getYieldCount();
+            long currentTermFrequencyKeyCount = timingMetadata.getTermFrequencyKeyCount();
+            long currentTermFrequencyDecodeCount = timingMetadata.getTermFrequencyDecodeCount();
+            long currentSkippedEventKeyCount = timingMetadata.getSkippedEventKeyCount();
+            long currentSkipSeekCount = timingMetadata.getSkipSeekCount();
+            long currentTldParallelFetchCount = timingMetadata.getTldParallelFetchCount();
+            long currentTldChildRangeCount = timingMetadata.getTldChildRangeCount();
             String host = timingMetadata.getHost();
             sourceCount += currentSourceCount;
             nextCount += currentNextCount;
             seekCount += currentSeekCount;
             yieldCount += currentYieldCount;
+            termFrequencyKeyCount += currentTermFrequencyKeyCount;
+            termFrequencyDecodeCount += currentTermFrequencyDecodeCount;
+            skippedEventKeyCount += currentSkippedEventKeyCount;
+            skipSeekCount += currentSkipSeekCount;
+            tldParallelFetchCount += currentTldParallelFetchCount;
+            tldChildRangeCount += currentTldChildRangeCount;
             Map<String,Long> stageTimers = timingMetadata.getStageTimers();
             if (stageTimers.containsKey(QuerySpan.Stage.DocumentSpecificTree.toString())) {
                 docRanges++;
@@ -237,6 +255,9 @@ public abstract class DocumentTransformerSupport<I,O> extends EventQueryTransfor
                                 .append(stageTimers);
                 sb.append(" sourceCount:").append(currentSourceCount).append(" nextCount:").append(currentNextCount).append(" seekCount:")
                                 .append(currentSeekCount).append(" yieldCount:").append(currentYieldCount);
+                sb.append(" tfKeyCount:").append(currentTermFrequencyKeyCount).append(" tfDecodeCount:").append(currentTermFrequencyDecodeCount);
+                sb.append(" skippedKeys:").append(currentSkippedEventKeyCount).append(" skipSeeks:").append(currentSkipSeekCount);
+                sb.append(" tldParallel:").append(currentTldParallelFetchCount).append(" tldChildRanges:").append(currentTldChildRangeCount);
                 if (log.isTraceEnabled()) {
                     log.trace(sb.toString());
                 } else {
@@ -258,6 +279,12 @@ public abstract class DocumentTransformerSupport<I,O> extends EventQueryTransfor
             metric.setNextCount(nextCount);
             metric.setSeekCount(seekCount);
             metric.setYieldCount(yieldCount);
+            metric.setTermFrequencyKeyCount(termFrequencyKeyCount);
+            metric.setTermFrequencyDecodeCount(termFrequencyDecodeCount);
+            metric.setSkippedEventKeyCount(skippedEventKeyCount);
+            metric.setSkipSeekCount(skipSeekCount);
+            metric.setTldParallelFetchCount(tldParallelFetchCount);
+            metric.setTldChildRangeCount(tldChildRangeCount);
             metric.setDocRanges(docRanges);
             metric.setFiRanges(fiRanges);
         }
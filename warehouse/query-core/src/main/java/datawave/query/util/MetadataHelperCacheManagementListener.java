@@ -2,6 +2,7 @@ package datawave.query.util;
 
 import java.util.ArrayList;
 
+import datawave.query.planner.QueryPlanCache;
 import datawave.webservice.common.cache.SharedCacheCoordinator;
 
 import org.apache.curator.framework.CuratorFramework;
@@ -70,6 +71,7 @@ public class MetadataHelperCacheManagementListener {
                     }
                     if (!watcher.checkCounter(metadataTableName, newCount)) {
                         log.debug("will evictCaches for " + metadataTableName);
+                        QueryPlanCache.metadataChanged(metadataTableName);
                         metadataCacheManager.evictCaches();
                     } else {
                         log.debug("did not evictCaches for " + metadataTableName);
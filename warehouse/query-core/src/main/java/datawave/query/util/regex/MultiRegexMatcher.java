@@ -0,0 +1,741 @@
+package datawave.query.util.regex;
+
+import org.apache.lucene.util.IntsRef;
+import org.apache.lucene.util.automaton.Automata;
+import org.apache.lucene.util.automaton.Automaton;
+import org.apache.lucene.util.automaton.CharacterRunAutomaton;
+import org.apache.lucene.util.automaton.Operations;
+import org.apache.lucene.util.automaton.TooComplexToDeterminizeException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * This class can be used to match a value against many regexes at once. The regexes are translated into automata, and a single DFA is built from the subsets
+ * of their states, with each of its states tagged with the ids (the positions in the list of regexes) of the regexes which accept there. A value is therefore
+ * matched against all of the translated regexes with a single pass over its characters, which stops as soon as none of them can match, and the ids of the
+ * regexes which match it are read from the state in which the pass ends. If that DFA would have more than {@link #MAX_DETERMINIZED_STATES} states, each
+ * automaton is run separately instead.
+ * <p>
+ * Only the common subset of the java regex syntax is translated (literals, escapes, character classes, groups, alternations and quantifiers). A regex using
+ * anything else (inline flags, back references, look arounds, ...) is matched with its {@link Pattern}, as is any regex whose automaton would be too large. A
+ * regex with zero width assertions (^, $, \b, ...) is translated without them, which makes its automaton accept more than the regex does, so the values it
+ * accepts are confirmed with the {@link Pattern}.
+ */
+public class MultiRegexMatcher {
+    
+    public static final int MAX_DETERMINIZED_STATES = 10000;
+    
+    // the largest repetition count which is translated
+    private static final int MAX_REPETITIONS = 100;
+    
+    private static final int SUPPORTED_FLAGS = Pattern.CASE_INSENSITIVE | Pattern.MULTILINE;
+    
+    private final List<String> regexes;
+    private final Pattern[] patterns;
+    private final CharacterRunAutomaton[] automata;
+    private final boolean[] exact;
+    private final BitSet untranslated = new BitSet();
+    
+    // the tagged DFA, whose character classes start at the classStarts and whose transitions to the dead state are -1
+    private int[] classStarts;
+    private final int[] asciiClasses = new int[128];
+    private int[] transitions;
+    private BitSet[] accepted;
+    
+    /**
+     * @param regexes
+     *            the regexes, whose positions in the list are their ids
+     * @param flags
+     *            the {@link Pattern} flags with which the regexes are matched
+     * @throws java.util.regex.PatternSyntaxException
+     *             if one of the regexes is not valid
+     */
+    public MultiRegexMatcher(List<String> regexes, int flags) {
+        this.regexes = Collections.unmodifiableList(new ArrayList<>(regexes));
+        this.patterns = new Pattern[regexes.size()];
+        this.automata = new CharacterRunAutomaton[regexes.size()];
+        this.exact = new boolean[regexes.size()];
+        
+        for (int id = 0; id < patterns.length; id++) {
+            String regex = this.regexes.get(id);
+            patterns[id] = Pattern.compile(regex, flags);
+            
+            if ((flags & ~SUPPORTED_FLAGS) == 0) {
+                Translator translator = new Translator(regex, (flags & Pattern.CASE_INSENSITIVE) != 0);
+                try {
+                    Automaton automaton = translator.translate();
+                    automata[id] = new CharacterRunAutomaton(automaton, MAX_DETERMINIZED_STATES);
+                    exact[id] = translator.exact;
+                } catch (UnsupportedRegexException | TooComplexToDeterminizeException e) {
+                    // matched with the pattern
+                }
+            }
+            if (automata[id] == null) {
+                untranslated.set(id);
+            }
+        }
+        
+        if (untranslated.cardinality() < patterns.length) {
+            determinize();
+        }
+    }
+    
+    /**
+     * Builds the tagged DFA with a subset construction over the automata of the translated regexes. Each of its states is the combination of the states which
+     * each automaton is in after reading the same characters, where -1 is the dead state of an automaton.
+     */
+    private void determinize() {
+        int[] ids = new int[patterns.length - untranslated.cardinality()];
+        TreeSet<Integer> starts = new TreeSet<>();
+        starts.add(0);
+        for (int id = 0, i = 0; id < automata.length; id++) {
+            if (automata[id] != null) {
+                ids[i++] = id;
+                for (int start : automata[id].getCharIntervals()) {
+                    starts.add(start);
+                }
+            }
+        }
+        // every character in a class leads each automaton to the same state
+        int[] classStarts = starts.stream().mapToInt(Integer::intValue).toArray();
+        
+        Map<IntsRef,Integer> stateNumbers = new HashMap<>();
+        List<int[]> states = new ArrayList<>();
+        int[] initial = new int[ids.length];
+        stateNumbers.put(new IntsRef(initial, 0, initial.length), 0);
+        states.add(initial);
+        
+        int[] transitions = new int[classStarts.length];
+        for (int number = 0; number < states.size(); number++) {
+            int[] state = states.get(number);
+            for (int c = 0; c < classStarts.length; c++) {
+                int[] next = new int[ids.length];
+                boolean live = false;
+                for (int i = 0; i < ids.length; i++) {
+                    next[i] = state[i] < 0 ? -1 : automata[ids[i]].step(state[i], classStarts[c]);
+                    live |= next[i] >= 0;
+                }
+                int target = -1;
+                if (live) {
+                    IntsRef key = new IntsRef(next, 0, next.length);
+                    Integer existing = stateNumbers.get(key);
+                    if (existing == null) {
+                        if (states.size() >= MAX_DETERMINIZED_STATES) {
+                            // each automaton is run separately
+                            return;
+                        }
+                        existing = states.size();
+                        stateNumbers.put(key, existing);
+                        states.add(next);
+                    }
+                    target = existing;
+                }
+                int index = number * classStarts.length + c;
+                if (index >= transitions.length) {
+                    transitions = Arrays.copyOf(transitions, transitions.length * 2);
+                }
+                transitions[index] = target;
+            }
+        }
+        
+        BitSet[] accepted = new BitSet[states.size()];
+        for (int number = 0; number < states.size(); number++) {
+            int[] state = states.get(number);
+            for (int i = 0; i < ids.length; i++) {
+                if (state[i] >= 0 && automata[ids[i]].isAccept(state[i])) {
+                    if (accepted[number] == null) {
+                        accepted[number] = new BitSet(patterns.length);
+                    }
+                    accepted[number].set(ids[i]);
+                }
+            }
+        }
+        
+        this.classStarts = classStarts;
+        for (int c = 0; c < asciiClasses.length; c++) {
+            asciiClasses[c] = charClass(classStarts, c);
+        }
+        this.transitions = Arrays.copyOf(transitions, states.size() * classStarts.length);
+        this.accepted = accepted;
+    }
+    
+    public int size() {
+        return regexes.size();
+    }
+    
+    public List<String> getRegexes() {
+        return regexes;
+    }
+    
+    public Pattern getPattern(int id) {
+        return patterns[id];
+    }
+    
+    /**
+     * @param id
+     *            the id of a regex
+     * @return true if the regex is matched with an automaton, false if it is matched with its {@link Pattern}
+     */
+    public boolean isTranslated(int id) {
+        return automata[id] != null;
+    }
+    
+    /**
+     * @return true if the translated regexes are matched with a single tagged DFA, false if each of their automata is run separately
+     */
+    public boolean hasUnion() {
+        return transitions != null;
+    }
+    
+    /**
+     * Determine which of the regexes match a value
+     * 
+     * @param value
+     *            the value
+     * @return the ids of the regexes which match the whole value
+     */
+    public BitSet match(String value) {
+        BitSet ids = new BitSet(patterns.length);
+        match(value, ids);
+        return ids;
+    }
+    
+    /**
+     * Determine which of the regexes match a value
+     * 
+     * @param value
+     *            the value
+     * @param ids
+     *            the set to which the ids of the regexes which match the whole value are added
+     */
+    public void match(String value, BitSet ids) {
+        if (transitions != null) {
+            int state = 0;
+            for (int i = 0; i < value.length() && state >= 0;) {
+                int c = value.codePointAt(i);
+                state = transitions[state * classStarts.length + charClass(c)];
+                i += Character.charCount(c);
+            }
+            if (state >= 0 && accepted[state] != null) {
+                BitSet accepts = accepted[state];
+                for (int id = accepts.nextSetBit(0); id >= 0; id = accepts.nextSetBit(id + 1)) {
+                    if (exact[id] || patterns[id].matcher(value).matches()) {
+                        ids.set(id);
+                    }
+                }
+            }
+        } else {
+            for (int id = 0; id < automata.length; id++) {
+                if (automata[id] != null && automata[id].run(value) && (exact[id] || patterns[id].matcher(value).matches())) {
+                    ids.set(id);
+                }
+            }
+        }
+        for (int id = untranslated.nextSetBit(0); id >= 0; id = untranslated.nextSetBit(id + 1)) {
+            if (patterns[id].matcher(value).matches()) {
+                ids.set(id);
+            }
+        }
+    }
+    
+    private int charClass(int c) {
+        return c < asciiClasses.length ? asciiClasses[c] : charClass(classStarts, c);
+    }
+    
+    private static int charClass(int[] classStarts, int c) {
+        int index = Arrays.binarySearch(classStarts, c);
+        return index >= 0 ? index : -index - 2;
+    }
+    
+    private static class UnsupportedRegexException extends Exception {
+        private static final long serialVersionUID = 1L;
+        
+        UnsupportedRegexException(String message) {
+            super(message);
+        }
+    }
+    
+    /**
+     * A set of code points, as sorted and disjoint ranges
+     */
+    private static class CharSet {
+        private static final int MAX_CODE_POINT = Character.MAX_CODE_POINT;
+        
+        private List<int[]> ranges = new ArrayList<>();
+        
+        CharSet add(int min, int max) {
+            ranges.add(new int[] {min, max});
+            return this;
+        }
+        
+        CharSet addAll(CharSet other) {
+            ranges.addAll(other.ranges);
+            return this;
+        }
+        
+        boolean contains(int c) {
+            for (int[] range : ranges) {
+                if (range[0] <= c && c <= range[1]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        /**
+         * Adds the other case of the US-ASCII letters in this set, as the java regex case insensitive matching does
+         */
+        CharSet foldCase() {
+            for (int c = 'A'; c <= 'Z'; c++) {
+                int lower = Character.toLowerCase(c);
+                boolean upperIncluded = contains(c);
+                boolean lowerIncluded = contains(lower);
+                if (upperIncluded && !lowerIncluded) {
+                    add(lower, lower);
+                } else if (lowerIncluded && !upperIncluded) {
+                    add(c, c);
+                }
+            }
+            return this;
+        }
+        
+        CharSet normalize() {
+            ranges.sort(Comparator.comparingInt(range -> range[0]));
+            List<int[]> merged = new ArrayList<>();
+            for (int[] range : ranges) {
+                int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+                if (last != null && range[0] <= last[1] + 1) {
+                    last[1] = Math.max(last[1], range[1]);
+                } else {
+                    merged.add(new int[] {range[0], range[1]});
+                }
+            }
+            ranges = merged;
+            return this;
+        }
+        
+        CharSet complement() {
+            normalize();
+            CharSet complement = new CharSet();
+            int next = 0;
+            for (int[] range : ranges) {
+                if (range[0] > next) {
+                    complement.add(next, range[0] - 1);
+                }
+                next = range[1] + 1;
+            }
+            if (next <= MAX_CODE_POINT) {
+                complement.add(next, MAX_CODE_POINT);
+            }
+            return complement;
+        }
+        
+        Automaton toAutomaton() {
+            normalize();
+            Automaton automaton = new Automaton();
+            int start = automaton.createState();
+            int end = automaton.createState();
+            automaton.setAccept(end, true);
+            for (int[] range : ranges) {
+                automaton.addTransition(start, end, range[0], range[1]);
+            }
+            automaton.finishState();
+            return automaton;
+        }
+    }
+    
+    /**
+     * Translates a java regex into an automaton which accepts the same values when matched against a whole value
+     */
+    private static class Translator {
+        private final String regex;
+        private final boolean caseInsensitive;
+        private int pos = 0;
+        
+        // false if the automaton accepts more than the regex does
+        private boolean exact = true;
+        
+        Translator(String regex, boolean caseInsensitive) {
+            this.regex = regex;
+            this.caseInsensitive = caseInsensitive;
+        }
+        
+        Automaton translate() throws UnsupportedRegexException {
+            Automaton automaton = alternation();
+            if (pos < regex.length()) {
+                throw new UnsupportedRegexException("Unexpected " + regex.charAt(pos) + " at " + pos);
+            }
+            return automaton;
+        }
+        
+        private boolean more() {
+            return pos < regex.length();
+        }
+        
+        private int peek() {
+            return regex.codePointAt(pos);
+        }
+        
+        private int next() {
+            int c = regex.codePointAt(pos);
+            pos += Character.charCount(c);
+            return c;
+        }
+        
+        private Automaton alternation() throws UnsupportedRegexException {
+            List<Automaton> alternatives = new ArrayList<>();
+            alternatives.add(sequence());
+            while (more() && peek() == '|') {
+                next();
+                alternatives.add(sequence());
+            }
+            return alternatives.size() == 1 ? alternatives.get(0) : Operations.union(alternatives);
+        }
+        
+        private Automaton sequence() throws UnsupportedRegexException {
+            List<Automaton> atoms = new ArrayList<>();
+            while (more() && peek() != '|' && peek() != ')') {
+                atoms.add(quantified(atom()));
+            }
+            if (atoms.isEmpty()) {
+                return Automata.makeEmptyString();
+            }
+            return atoms.size() == 1 ? atoms.get(0) : Operations.concatenate(atoms);
+        }
+        
+        private Automaton atom() throws UnsupportedRegexException {
+            int c = next();
+            switch (c) {
+                case '(':
+                    return group();
+                case '[':
+                    return charClass().toAutomaton();
+                case '.':
+                    // without DOTALL the dot does not match line terminators
+                    return lineTerminators().complement().toAutomaton();
+                case '^':
+                case '$':
+                    exact = false;
+                    return Automata.makeEmptyString();
+                case '\\':
+                    return escape();
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    throw new UnsupportedRegexException("Dangling " + (char) c);
+                default:
+                    return literal(c);
+            }
+        }
+        
+        private Automaton literal(int c) {
+            return caseInsensitive ? new CharSet().add(c, c).foldCase().toAutomaton() : Automata.makeChar(c);
+        }
+        
+        private Automaton group() throws UnsupportedRegexException {
+            if (more() && peek() == '?') {
+                next();
+                int kind = more() ? next() : -1;
+                if (kind == '<' && more() && Character.isLetter(peek())) {
+                    // a named capturing group
+                    while (more() && peek() != '>') {
+                        next();
+                    }
+                    if (!more()) {
+                        throw new UnsupportedRegexException("Unterminated group name");
+                    }
+                    next();
+                } else if (kind != ':') {
+                    throw new UnsupportedRegexException("Unsupported group construct");
+                }
+            }
+            Automaton automaton = alternation();
+            if (!more() || next() != ')') {
+                throw new UnsupportedRegexException("Unclosed group");
+            }
+            return automaton;
+        }
+        
+        private Automaton escape() throws UnsupportedRegexException {
+            if (!more()) {
+                throw new UnsupportedRegexException("Trailing escape");
+            }
+            int c = peek();
+            switch (c) {
+                case 'b':
+                case 'B':
+                case 'A':
+                case 'G':
+                case 'Z':
+                case 'z':
+                    next();
+                    exact = false;
+                    return Automata.makeEmptyString();
+                case 'Q':
+                    next();
+                    int end = regex.indexOf("\\E", pos);
+                    String quoted = regex.substring(pos, end < 0 ? regex.length() : end);
+                    pos = end < 0 ? regex.length() : end + 2;
+                    List<Automaton> literals = new ArrayList<>();
+                    quoted.codePoints().forEach(q -> literals.add(literal(q)));
+                    return literals.isEmpty() ? Automata.makeEmptyString() : Operations.concatenate(literals);
+                default:
+                    CharSet chars = escapedChars();
+                    if (caseInsensitive) {
+                        chars.foldCase();
+                    }
+                    return chars.toAutomaton();
+            }
+        }
+        
+        /**
+         * Reads an escape which stands for a character or a predefined character class
+         */
+        private CharSet escapedChars() throws UnsupportedRegexException {
+            if (!more()) {
+                throw new UnsupportedRegexException("Trailing escape");
+            }
+            int c = next();
+            switch (c) {
+                case 'd':
+                    return digits();
+                case 'D':
+                    return digits().complement();
+                case 'w':
+                    return wordChars();
+                case 'W':
+                    return wordChars().complement();
+                case 's':
+                    return whitespace();
+                case 'S':
+                    return whitespace().complement();
+                case 't':
+                    return single('\t');
+                case 'n':
+                    return single('\n');
+                case 'r':
+                    return single('\r');
+                case 'f':
+                    return single('\f');
+                case 'a':
+                    return single('\u0007');
+                case 'e':
+                    return single('\u001B');
+                case '0':
+                    return single(octal());
+                case 'x':
+                    return single(hex());
+                case 'u':
+                    return single(hex(4));
+                default:
+                    if (Character.isLetterOrDigit(c)) {
+                        // back references, unicode classes, control characters, ...
+                        throw new UnsupportedRegexException("Unsupported escape \\" + new String(Character.toChars(c)));
+                    }
+                    return single(c);
+            }
+        }
+        
+        private int octal() throws UnsupportedRegexException {
+            int value = 0;
+            int digits = 0;
+            while (more() && digits < 3 && peek() >= '0' && peek() <= '7' && (value * 8 + (peek() - '0')) <= 0377) {
+                value = value * 8 + (next() - '0');
+                digits++;
+            }
+            if (digits == 0) {
+                throw new UnsupportedRegexException("Illegal octal escape");
+            }
+            return value;
+        }
+        
+        private int hex() throws UnsupportedRegexException {
+            if (more() && peek() == '{') {
+                int end = regex.indexOf('}', pos);
+                if (end < 0) {
+                    throw new UnsupportedRegexException("Unclosed hex escape");
+                }
+                String digits = regex.substring(pos + 1, end);
+                pos = end + 1;
+                try {
+                    return Integer.parseInt(digits, 16);
+                } catch (NumberFormatException e) {
+                    throw new UnsupportedRegexException("Illegal hex escape");
+                }
+            }
+            return hex(2);
+        }
+        
+        private int hex(int length) throws UnsupportedRegexException {
+            if (pos + length > regex.length()) {
+                throw new UnsupportedRegexException("Illegal hex escape");
+            }
+            String digits = regex.substring(pos, pos + length);
+            pos += length;
+            try {
+                return Integer.parseInt(digits, 16);
+            } catch (NumberFormatException e) {
+                throw new UnsupportedRegexException("Illegal hex escape");
+            }
+        }
+        
+        private CharSet charClass() throws UnsupportedRegexException {
+            boolean negated = false;
+            if (more() && peek() == '^') {
+                next();
+                negated = true;
+            }
+            CharSet chars = new CharSet();
+            boolean first = true;
+            while (true) {
+                if (!more()) {
+                    throw new UnsupportedRegexException("Unclosed character class");
+                }
+                int c = next();
+                if (c == ']' && !first) {
+                    break;
+                } else if (c == '[' || c == ']' || (c == '&' && more() && peek() == '&')) {
+                    // unions and intersections of classes
+                    throw new UnsupportedRegexException("Unsupported character class");
+                }
+                first = false;
+                
+                CharSet item;
+                if (c == '\\') {
+                    item = escapedChars();
+                } else {
+                    item = single(c);
+                }
+                
+                if (more() && peek() == '-' && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+                    next();
+                    int min = singleChar(item);
+                    int max = next();
+                    if (max == '\\') {
+                        max = singleChar(escapedChars());
+                    } else if (max == '[') {
+                        throw new UnsupportedRegexException("Unsupported character class");
+                    }
+                    if (max < min) {
+                        throw new UnsupportedRegexException("Illegal character range");
+                    }
+                    item = new CharSet().add(min, max);
+                }
+                chars.addAll(item);
+            }
+            if (caseInsensitive) {
+                chars.foldCase();
+            }
+            return negated ? chars.complement() : chars;
+        }
+        
+        private int singleChar(CharSet chars) throws UnsupportedRegexException {
+            chars.normalize();
+            if (chars.ranges.size() != 1 || chars.ranges.get(0)[0] != chars.ranges.get(0)[1]) {
+                throw new UnsupportedRegexException("Illegal character range");
+            }
+            return chars.ranges.get(0)[0];
+        }
+        
+        private Automaton quantified(Automaton atom) throws UnsupportedRegexException {
+            if (!more()) {
+                return atom;
+            }
+            Automaton automaton;
+            switch (peek()) {
+                case '*':
+                    next();
+                    automaton = Operations.repeat(atom);
+                    break;
+                case '+':
+                    next();
+                    automaton = Operations.repeat(atom, 1);
+                    break;
+                case '?':
+                    next();
+                    automaton = Operations.optional(atom);
+                    break;
+                case '{':
+                    next();
+                    automaton = repetition(atom);
+                    break;
+                default:
+                    return atom;
+            }
+            if (more() && peek() == '?') {
+                // a reluctant quantifier accepts the same values when matching a whole value
+                next();
+            } else if (more() && peek() == '+') {
+                // a possessive quantifier may reject values which the greedy one accepts
+                next();
+                exact = false;
+            }
+            return automaton;
+        }
+        
+        private Automaton repetition(Automaton atom) throws UnsupportedRegexException {
+            int end = regex.indexOf('}', pos);
+            if (end < 0) {
+                throw new UnsupportedRegexException("Unclosed repetition");
+            }
+            String spec = regex.substring(pos, end);
+            pos = end + 1;
+            try {
+                int comma = spec.indexOf(',');
+                if (comma < 0) {
+                    int count = repetitions(spec);
+                    return Operations.repeat(atom, count, count);
+                }
+                int min = repetitions(spec.substring(0, comma));
+                if (comma == spec.length() - 1) {
+                    return Operations.repeat(atom, min);
+                }
+                int max = repetitions(spec.substring(comma + 1));
+                if (max < min) {
+                    throw new UnsupportedRegexException("Illegal repetition range");
+                }
+                return Operations.repeat(atom, min, max);
+            } catch (NumberFormatException e) {
+                throw new UnsupportedRegexException("Illegal repetition");
+            }
+        }
+        
+        private int repetitions(String count) throws UnsupportedRegexException {
+            int value = Integer.parseInt(count);
+            if (value < 0 || value > MAX_REPETITIONS) {
+                throw new UnsupportedRegexException("Too many repetitions");
+            }
+            return value;
+        }
+        
+        private static CharSet single(int c) {
+            return new CharSet().add(c, c);
+        }
+        
+        private static CharSet digits() {
+            return new CharSet().add('0', '9');
+        }
+        
+        private static CharSet wordChars() {
+            return new CharSet().add('a', 'z').add('A', 'Z').add('_', '_').add('0', '9');
+        }
+        
+        private static CharSet whitespace() {
+            return new CharSet().add(' ', ' ').add('\t', '\r');
+        }
+        
+        private static CharSet lineTerminators() {
+            return new CharSet().add('\n', '\n').add('\r', '\r').add('\u0085', '\u0085').add('\u2028', '\u2029');
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package datawave.core.iterators;
+
+import com.google.common.collect.ImmutableSortedSet;
+import org.apache.accumulo.core.data.Key;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.SortedSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class IvaratorResultRegistryTest {
+    
+    private final IvaratorResultRegistry registry = new IvaratorResultRegistry();
+    
+    @Test
+    public void testJoinPublishedResults() throws InterruptedException {
+        SortedSet<Key> results = ImmutableSortedSet.of(new Key("row", "type\0uid1"), new Key("row", "type\0uid2"));
+        
+        IvaratorResultRegistry.Handle owner = registry.acquire("key");
+        IvaratorResultRegistry.Handle joiner = registry.acquire("key");
+        Assert.assertTrue(owner.isOwner());
+        Assert.assertFalse(joiner.isOwner());
+        Assert.assertFalse(joiner.await(10, TimeUnit.MILLISECONDS));
+        
+        owner.publish(results);
+        Assert.assertTrue(joiner.await(10, TimeUnit.MILLISECONDS));
+        Assert.assertSame(results, joiner.getResults());
+        
+        // the results stay available while referenced
+        owner.close();
+        IvaratorResultRegistry.Handle late = registry.acquire("key");
+        Assert.assertFalse(late.isOwner());
+        Assert.assertSame(results, late.getResults());
+        
+        joiner.close();
+        late.close();
+        Assert.assertEquals(0, registry.size());
+        Assert.assertTrue(registry.acquire("key").isOwner());
+    }
+    
+    @Test
+    public void testAbandonedResults() throws InterruptedException {
+        IvaratorResultRegistry.Handle owner = registry.acquire("key");
+        IvaratorResultRegistry.Handle joiner = registry.acquire("key");
+        
+        // closing before publishing releases the waiting handles
+        owner.close();
+        Assert.assertTrue(joiner.await(10, TimeUnit.MILLISECONDS));
+        Assert.assertNull(joiner.getResults());
+        
+        // later handles do not join the abandoned results
+        IvaratorResultRegistry.Handle next = registry.acquire("key");
+        Assert.assertTrue(next.isOwner());
+        
+        // releasing the abandoned handle leaves the new owner registered
+        joiner.close();
+        joiner.close();
+        Assert.assertEquals(1, registry.size());
+        next.close();
+        Assert.assertEquals(0, registry.size());
+    }
+    
+    @Test
+    public void testOwnerThrows() throws InterruptedException {
+        IvaratorResultRegistry.Handle owner = registry.acquire("key");
+        IvaratorResultRegistry.Handle joiner = registry.acquire("key");
+        
+        // fill as the ivarator does, abandoning the results in a finally block
+        CompletableFuture<Void> fill = CompletableFuture.runAsync(() -> {
+            try {
+                throw new IllegalStateException("fill failed");
+            } finally {
+                if (!owner.isDone()) {
+                    owner.publish(null);
+                }
+            }
+        });
+        try {
+            fill.get();
+            Assert.fail("Expected the fill to fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        
+        // the joiner is released without results, and the next registration owns the key
+        Assert.assertTrue(joiner.await(10, TimeUnit.MILLISECONDS));
+        Assert.assertNull(joiner.getResults());
+        IvaratorResultRegistry.Handle next = registry.acquire("key");
+        Assert.assertTrue(next.isOwner());
+        
+        owner.close();
+        joiner.close();
+        next.close();
+        Assert.assertEquals(0, registry.size());
+    }
+    
+    @Test
+    public void testJoinerAbandonsStuckOwner() throws InterruptedException {
+        IvaratorResultRegistry.Handle owner = registry.acquire("key");
+        IvaratorResultRegistry.Handle joiner = registry.acquire("key");
+        IvaratorResultRegistry.Handle other = registry.acquire("key");
+        Assert.assertFalse(joiner.await(10, TimeUnit.MILLISECONDS));
+        
+        // a joiner which gives up on the owner releases the other joiners
+        joiner.abandon();
+        Assert.assertTrue(other.await(10, TimeUnit.MILLISECONDS));
+        Assert.assertNull(other.getResults());
+        Assert.assertTrue(registry.acquire("key").isOwner());
+        
+        // results published by the owner afterwards are not shared
+        owner.publish(ImmutableSortedSet.of(new Key("row", "type\0uid1")));
+        Assert.assertNull(other.getResults());
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void testOnlyOwnerPublishes() {
+        registry.acquire("key");
+        registry.acquire("key").publish(ImmutableSortedSet.of());
+    }
+}
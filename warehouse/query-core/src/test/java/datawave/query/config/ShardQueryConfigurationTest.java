@@ -146,6 +146,12 @@ public class ShardQueryConfigurationTest {
         Assert.assertFalse(config.isContainsIndexOnlyTerms());
         Assert.assertFalse(config.isContainsCompositeTerms());
         Assert.assertTrue(config.isAllowFieldIndexEvaluation());
+        Assert.assertFalse(config.isCompiledEvaluation());
+        Assert.assertFalse(config.isLazyTermFrequencies());
+        Assert.assertFalse(config.isFieldIndexCardinalityOrdering());
+        Assert.assertEquals(0L, config.getBitmapIntersectionMaxKeys());
+        Assert.assertEquals(-1, config.getEventFieldSeekThreshold());
+        Assert.assertEquals(1, config.getTldChildFetchParallelism());
         Assert.assertTrue(config.isAllowTermFrequencyLookup());
         Assert.assertEquals(DocumentSerialization.DEFAULT_RETURN_TYPE, config.getReturnType());
         Assert.assertEquals(10000, config.getEventPerDayThreshold());
@@ -165,6 +171,9 @@ public class ShardQueryConfigurationTest {
         Assert.assertNull(config.getZookeeperConfig());
         Assert.assertTrue(config.getIvaratorCacheDirConfigs().isEmpty());
         Assert.assertEquals(2, config.getIvaratorNumRetries());
+        Assert.assertEquals(0L, config.getIvaratorSharedResultsMaxKeys());
+        Assert.assertFalse(config.isAdaptiveThresholds());
+        Assert.assertTrue(config.getAdaptiveThresholdScales().isEmpty());
         Assert.assertEquals(100, config.getIvaratorPersistVerifyCount());
         Assert.assertEquals(true, config.isIvaratorPersistVerify());
         Assert.assertNull(config.getIvaratorFstHdfsBaseURIs());
@@ -5,9 +5,12 @@ import datawave.query.iterator.NestedIterator;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
@@ -424,6 +427,36 @@ public class AndIteratorTest {
         assertHits(iterator, "c", "z");
     }
     
+    // the include with the fewest keys should lead, so the dense include is only ever moved to the sparse include's keys
+    @Test
+    public void testSelectiveIncludeLeads() {
+        List<String> dense = new ArrayList<>();
+        List<String> sparse = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            dense.add(String.format("%04d", i));
+            if (i % 100 == 50) {
+                sparse.add(String.format("%04d", i));
+            }
+        }
+        
+        CountingItr<String> denseItr = new CountingItr<>(dense);
+        CountingItr<String> sparseItr = new CountingItr<>(sparse);
+        Set<NestedIterator<String>> includes = new HashSet<>();
+        includes.add(denseItr);
+        includes.add(sparseItr);
+        
+        Map<NestedIterator<String>,Long> cardinalities = new HashMap<>();
+        cardinalities.put(denseItr, (long) dense.size());
+        cardinalities.put(sparseItr, (long) sparse.size());
+        
+        AndIterator<String> iterator = new AndIterator<>(includes);
+        iterator.setCardinalities(cardinalities);
+        assertEquals(sparseItr, iterator.getIncludes().get(0));
+        assertHits(iterator, sparse);
+        // only the initial next when the iterator is initialized
+        assertEquals(1, denseItr.nextCalls);
+    }
+    
     private void assertHits(NestedIterator<String> iter, String... hits) {
         List<String> listHits = Lists.newArrayList(hits);
         assertHits(iter, listHits);
@@ -444,6 +477,36 @@ public class AndIteratorTest {
         assertNull(iter.next());
     }
     
+    /**
+     * Counts the calls to next made on the iterator from outside, excluding the calls made by move
+     */
+    private static class CountingItr<K extends Comparable<K>> extends NegationFilterTest.Itr<K> {
+        private int nextCalls;
+        private boolean moving;
+        
+        CountingItr(Iterable<K> it) {
+            super(it);
+        }
+        
+        @Override
+        public K next() {
+            if (!moving) {
+                nextCalls++;
+            }
+            return super.next();
+        }
+        
+        @Override
+        public K move(K minimum) {
+            moving = true;
+            try {
+                return super.move(minimum);
+            } finally {
+                moving = false;
+            }
+        }
+    }
+    
     private NegationFilterTest.Itr<String> getIter(String... elements) {
         List<String> list = Lists.newArrayList(elements);
         return getIter(list, false);
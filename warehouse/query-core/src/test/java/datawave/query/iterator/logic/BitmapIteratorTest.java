@@ -0,0 +1,176 @@
+package datawave.query.iterator.logic;
+
+import com.google.common.collect.Lists;
+import datawave.query.attributes.Document;
+import datawave.query.iterator.NestedIterator;
+import datawave.query.iterator.SeekableIterator;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Range;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BitmapIteratorTest {
+    
+    // A && (B || C) && !D
+    private NestedIterator<String> tree() {
+        List<NestedIterator<String>> ors = Lists.newArrayList(getIter("b", "d", "f", "h"), getIter("c", "e", "h", "j"));
+        List<NestedIterator<String>> includes = Lists.newArrayList(getIter("a", "b", "c", "e", "f", "g", "h", "j"), new OrIterator<>(ors));
+        List<NestedIterator<String>> excludes = Collections.singletonList(getIter("e", "g"));
+        return new AndIterator<>(includes, excludes);
+    }
+    
+    @Test
+    public void testMatchesTree() throws IOException {
+        List<String> expected = Lists.newArrayList("b", "c", "f", "h", "j");
+        assertEquals(expected, hits(seek(tree())));
+        assertEquals(expected, hits(seek(new BitmapIterator<>(tree(), 100))));
+    }
+    
+    @Test
+    public void testFallback() throws IOException {
+        // too many keys to materialize, so the tree is used
+        assertEquals(Lists.newArrayList("b", "c", "f", "h", "j"), hits(seek(new BitmapIterator<>(tree(), 5))));
+    }
+    
+    @Test
+    public void testReseek() throws IOException {
+        BitmapIterator<String> iterator = new BitmapIterator<>(tree(), 100);
+        assertEquals(Lists.newArrayList("b", "c", "f", "h", "j"), hits(seek(iterator)));
+        assertEquals(Lists.newArrayList("b", "c", "f", "h", "j"), hits(seek(iterator)));
+    }
+    
+    @Test
+    public void testMove() throws IOException {
+        BitmapIterator<String> iterator = seek(new BitmapIterator<>(tree(), 100));
+        iterator.initialize();
+        assertEquals("b", iterator.next());
+        assertEquals("f", iterator.move("d"));
+        assertEquals("h", iterator.move("g"));
+        assertEquals("j", iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+    
+    @Test
+    public void testContext() throws IOException {
+        BitmapIterator<String> iterator = seek(new BitmapIterator<>(tree(), 100));
+        iterator.setContext("f");
+        iterator.initialize();
+        assertEquals("f", iterator.next());
+        assertFalse(iterator.hasNext());
+        
+        iterator = seek(new BitmapIterator<>(tree(), 100));
+        iterator.setContext("e");
+        iterator.initialize();
+        assertFalse(iterator.hasNext());
+        assertNull(iterator.next());
+    }
+    
+    @Test
+    public void testSupported() {
+        assertTrue(BitmapIterator.isSupported(tree()));
+        assertFalse(BitmapIterator.isSupported(getIter("a")));
+        
+        // a negation without includes requires context
+        List<NestedIterator<String>> excludes = Collections.singletonList(getIter("a"));
+        NestedIterator<String> negation = new AndIterator<>(Collections.emptyList(), excludes);
+        assertFalse(BitmapIterator.isSupported(new AndIterator<>(Lists.newArrayList(getIter("a"), negation))));
+        
+        List<NestedIterator<String>> includes = Lists.newArrayList(getIter("a"), new NegationFilterTest.Itr<>(Collections.singleton("a")));
+        assertFalse(BitmapIterator.isSupported(new AndIterator<>(includes)));
+    }
+    
+    private <I extends NestedIterator<String>> I seek(I iterator) throws IOException {
+        ((SeekableIterator) iterator).seek(new Range(), Collections.emptyList(), false);
+        return iterator;
+    }
+    
+    private List<String> hits(NestedIterator<String> iterator) {
+        iterator.initialize();
+        List<String> hits = new ArrayList<>();
+        while (iterator.hasNext()) {
+            hits.add(iterator.next());
+        }
+        return hits;
+    }
+    
+    private NestedIterator<String> getIter(String... elements) {
+        return new SeekableItr(Lists.newArrayList(elements));
+    }
+    
+    /**
+     * A leaf which restarts from its first element whenever it is seeked
+     */
+    private static class SeekableItr implements NestedIterator<String>, SeekableIterator {
+        private final List<String> elements;
+        private Iterator<String> iterator = Collections.emptyIterator();
+        
+        SeekableItr(List<String> elements) {
+            this.elements = elements;
+        }
+        
+        @Override
+        public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) {
+            iterator = elements.iterator();
+        }
+        
+        @Override
+        public void initialize() {}
+        
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+        
+        @Override
+        public String next() {
+            return iterator.next();
+        }
+        
+        @Override
+        public String move(String minimum) {
+            while (iterator.hasNext()) {
+                String next = iterator.next();
+                if (next.compareTo(minimum) >= 0) {
+                    return next;
+                }
+            }
+            return null;
+        }
+        
+        @Override
+        public Collection<NestedIterator<String>> leaves() {
+            return Collections.singletonList(this);
+        }
+        
+        @Override
+        public Collection<NestedIterator<String>> children() {
+            return Collections.emptyList();
+        }
+        
+        @Override
+        public Document document() {
+            return new Document();
+        }
+        
+        @Override
+        public boolean isContextRequired() {
+            return false;
+        }
+        
+        @Override
+        public void setContext(String context) {
+            // no-op
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package datawave.query.jexl;
+
+import datawave.data.type.LcNoDiacriticsType;
+import datawave.data.type.NumberType;
+import datawave.data.type.Type;
+import datawave.query.attributes.TypeAttribute;
+import datawave.query.attributes.ValueTuple;
+import datawave.query.collections.FunctionalSet;
+import org.apache.accumulo.core.data.Key;
+import org.apache.commons.jexl2.Script;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class CompiledJexlScriptTest {
+    
+    private static final String[] QUERIES = {"FOO == 'alpha'", "FOO == 'gamma'", "FOO == 'alpha' && BAR == 'xray'", "FOO == 'gamma' || BAR == 'xray'",
+            "FOO == 'alpha' && !(BAR == 'yankee')", "!(FOO == 'alpha')", "FOO =~ 'be.*' || BAR !~ 'x.*'", "FOO == 'alpha' && FOO == 'alpha'",
+            "FOO != 'alpha' || BAR == 'yankee'", "NUM > 5 && NUM < 20", "NUM >= 5 && BAR != 'yankee'", "NUM < 5 || FOO == 'beta'",
+            "filter:includeRegex(FOO, 'al.*') && BAR == 'xray'", "(FOO == 'alpha' || FOO == 'beta') && (BAR == 'xray' || MISSING == 'a')",
+            "MISSING == 'a' || FOO == 'beta'", "MISSING != 'a' && FOO == 'beta'", "((_Bounded_ = true) && (NUM >= 5 && NUM <= 20)) && FOO == 'beta'",
+            "FOO =~ 'x.*' || FOO =~ 'be.*' || BAR =~ 'q.*' || FOO =~ 'al.*'", "FOO =~ 'x.*' || FOO =~ 'y.*' || BAR == 'xray'",
+            "FOO =~ 'x.*' || NUM =~ '1.*' || FOO !~ 'y.*'"};
+    
+    private static ValueTuple makeValueTuple(String field, Type<?> type, String value) {
+        type.setDelegateFromString(value);
+        TypeAttribute<?> typeAttribute = new TypeAttribute<>(type, new Key(), true);
+        return new ValueTuple(field, type, type.getNormalizedValue(), typeAttribute);
+    }
+    
+    private static DatawaveJexlContext createContext() {
+        DatawaveJexlContext context = new DatawaveJexlContext();
+        context.set("FOO", new FunctionalSet<>(Arrays.asList(makeValueTuple("FOO.1", new LcNoDiacriticsType(), "alpha"),
+                        makeValueTuple("FOO.2", new LcNoDiacriticsType(), "beta"))));
+        context.set("BAR", makeValueTuple("BAR", new LcNoDiacriticsType(), "xray"));
+        context.set("NUM", makeValueTuple("NUM", new NumberType(), "10"));
+        return context;
+    }
+    
+    @Test
+    public void testCompiledMatchesInterpreted() {
+        for (String query : QUERIES) {
+            HitListArithmetic interpretedArithmetic = new HitListArithmetic();
+            Script script = ArithmeticJexlEngines.getEngine(interpretedArithmetic).createScript(query);
+            boolean interpreted = ArithmeticJexlEngines.isMatched(script.execute(createContext()));
+            
+            HitListArithmetic compiledArithmetic = new HitListArithmetic();
+            CompiledJexlScript compiledScript = CompiledJexlScript.compile(ArithmeticJexlEngines.getEngine(compiledArithmetic), query);
+            boolean compiled = ArithmeticJexlEngines.isMatched(compiledScript.execute(createContext()));
+            
+            Assert.assertEquals(query, interpreted, compiled);
+            Assert.assertEquals(query, interpretedArithmetic.getHitSet(), compiledArithmetic.getHitSet());
+        }
+    }
+    
+    @Test
+    public void testCompiledSubtrees() {
+        CompiledJexlScript compiledScript = CompiledJexlScript.compile(ArithmeticJexlEngines.getEngine(new DefaultArithmetic()),
+                        "(FOO == 'alpha' || FOO == 'beta') && !(BAR =~ 'x.*') && NUM != '5'");
+        Assert.assertEquals(3, compiledScript.getFieldCount());
+        Assert.assertEquals(0, compiledScript.getInterpretedNodeCount());
+        
+        compiledScript = CompiledJexlScript.compile(ArithmeticJexlEngines.getEngine(new DefaultArithmetic()),
+                        "filter:includeRegex(FOO, 'al.*') && (NUM > 5 && NUM < 20)");
+        Assert.assertEquals(2, compiledScript.getInterpretedNodeCount());
+        
+        compiledScript = CompiledJexlScript.compile(ArithmeticJexlEngines.getEngine(new DefaultArithmetic()),
+                        "FOO =~ 'x.*' || FOO =~ 'be.*' || BAR =~ 'q.*' || (FOO =~ 'al.*' || BAR =~ 'z.*')");
+        Assert.assertEquals(2, compiledScript.getRegexGroupCount());
+    }
+}
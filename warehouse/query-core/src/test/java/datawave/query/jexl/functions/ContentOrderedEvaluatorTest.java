@@ -283,6 +283,66 @@ public class ContentOrderedEvaluatorTest {
         Assert.assertTrue(evaluator.evaluate(offsets));
     }
     
+    /**
+     * The tree traversal which evaluated phrases before {@link TermPositions#isOrderedMatch(TermPositions[], String[], int)} found a phrase in each of these
+     * documents, although there is no chain of positions within the distance of each other
+     */
+    @Test
+    public void evaluate_previousFalsePositivesTest() {
+        // 'a' at 0 only reaches 'b' at 1, which does not reach 'c' at 6
+        List<List<TermWeightPosition>> offsets = new ArrayList<>();
+        offsets.add(asList(0));
+        offsets.add(asList(1, 4, 7));
+        offsets.add(asList(6));
+        
+        evaluator = new WrappedContentOrderedEvaluator(null, 3, new HashMap<>(), "a", "b", "c");
+        
+        // formerly true
+        Assert.assertFalse(evaluator.evaluate(offsets));
+        
+        // 'a' at 4 only reaches 'b' at 6, which reaches neither 'c' at 1 nor at 9
+        offsets = new ArrayList<>();
+        offsets.add(asList(4, 11));
+        offsets.add(asList(6, 8));
+        offsets.add(asList(1, 9));
+        
+        evaluator = new WrappedContentOrderedEvaluator(null, 2, new HashMap<>(), "a", "b", "c");
+        
+        // formerly true
+        Assert.assertFalse(evaluator.evaluate(offsets));
+    }
+    
+    /**
+     * The tree traversal which evaluated phrases before {@link TermPositions#isOrderedMatch(TermPositions[], String[], int)} missed the phrase in each of these
+     * documents
+     */
+    @Test
+    public void evaluate_previousFalseNegativesTest() {
+        // 5->6->8->10
+        List<List<TermWeightPosition>> offsets = new ArrayList<>();
+        offsets.add(asList(5));
+        offsets.add(asList(3, 5, 6, 9));
+        offsets.add(asList(5, 8));
+        offsets.add(asList(3, 10, 11));
+        
+        evaluator = new WrappedContentOrderedEvaluator(null, 2, new HashMap<>(), "a", "b", "c", "d");
+        
+        // formerly false
+        Assert.assertTrue(evaluator.evaluate(offsets));
+        
+        // 0->3->4->5
+        offsets = new ArrayList<>();
+        offsets.add(asList(0));
+        offsets.add(asList(0, 3, 8, 13));
+        offsets.add(asList(0, 4, 8, 10));
+        offsets.add(asList(5));
+        
+        evaluator = new WrappedContentOrderedEvaluator(null, 3, new HashMap<>(), "a", "b", "c", "d");
+        
+        // formerly false
+        Assert.assertTrue(evaluator.evaluate(offsets));
+    }
+    
     private static class WrappedContentOrderedEvaluator extends ContentOrderedEvaluator {
         public WrappedContentOrderedEvaluator(Set<String> fields, int distance, Map<String,TermFrequencyList> termOffsetMap, String... terms) {
             super(fields, distance, Float.MIN_VALUE, termOffsetMap, terms);
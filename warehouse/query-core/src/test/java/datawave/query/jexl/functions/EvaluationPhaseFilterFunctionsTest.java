@@ -60,6 +60,22 @@ public class EvaluationPhaseFilterFunctionsTest {
                         makeValueTuple("STOOGE.3,GROUCHO,groucho")),
                 "MOE", "LARRY", "JOE", "SHEMP", "CURLEY JOE"
         ).size() == 0);
+        
+        // a case sensitive regex is only matched against the un-normalized values
+        Assert.assertTrue(EvaluationPhaseFilterFunctions.matchesAtLeastCountOf(
+                2,
+                Lists.newArrayList(
+                        makeValueTuple("STOOGE.1,MOE,moe"),
+                        makeValueTuple("STOOGE.2,Larry,larry")),
+                "(?-i)moe", "(?-i)Larry", "m.*"
+        ).size() == 2);
+        Assert.assertTrue(EvaluationPhaseFilterFunctions.matchesAtLeastCountOf(
+                2,
+                Lists.newArrayList(
+                        makeValueTuple("STOOGE.1,MOE,moe"),
+                        makeValueTuple("STOOGE.2,Larry,larry")),
+                "(?-i)moe", "(?-i)larry"
+        ).size() == 0);
         // @formatter:on
     }
     
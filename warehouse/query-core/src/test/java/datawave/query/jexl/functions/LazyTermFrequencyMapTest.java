@@ -0,0 +1,126 @@
+package datawave.query.jexl.functions;
+
+import datawave.ingest.protobuf.TermWeight;
+import datawave.query.iterator.profile.QuerySpan;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class LazyTermFrequencyMapTest {
+    
+    private static final String EVENT_ID = "shard\0type\0uid";
+    private static final String OTHER_EVENT_ID = "shard\0type\0other";
+    
+    private QuerySpan querySpan;
+    private LazyTermFrequencyMap termOffsetMap;
+    
+    @Before
+    public void setup() {
+        querySpan = new QuerySpan(null);
+        termOffsetMap = new LazyTermFrequencyMap(querySpan);
+    }
+    
+    private void add(String term, String eventId, Integer... offsets) {
+        add(termOffsetMap, term, eventId, offsets);
+    }
+    
+    private static void add(LazyTermFrequencyMap map, String term, String eventId, Integer... offsets) {
+        TermWeight.Info info = TermWeight.Info.newBuilder().addAllTermOffset(Arrays.asList(offsets)).setZeroOffsetMatch(true).build();
+        map.add(term, new TermFrequencyList.Zone("BODY", true, eventId), info.toByteArray());
+    }
+    
+    @Test
+    public void testDecodeOnDemand() {
+        add("quick", EVENT_ID, 1, 10);
+        add("brown", EVENT_ID, 2);
+        add("brown", OTHER_EVENT_ID, 7);
+        
+        Assert.assertTrue(termOffsetMap.containsKey("brown"));
+        Assert.assertEquals(Collections.singleton(EVENT_ID), termOffsetMap.eventIds("quick"));
+        Assert.assertTrue(termOffsetMap.encodedSize("quick") > 0);
+        Assert.assertEquals(0, querySpan.getTermFrequencyDecodeCount());
+        
+        TermFrequencyList brown = termOffsetMap.get("brown");
+        Assert.assertEquals(2, brown.eventIds().size());
+        Assert.assertEquals(2, querySpan.getTermFrequencyDecodeCount());
+        
+        // decoded once
+        Assert.assertSame(brown, termOffsetMap.get("brown"));
+        Assert.assertEquals(2, querySpan.getTermFrequencyDecodeCount());
+        Assert.assertNull(termOffsetMap.get("fox"));
+    }
+    
+    @Test
+    public void testPhrase() {
+        add("quick", EVENT_ID, 1, 10);
+        add("brown", EVENT_ID, 2);
+        Assert.assertTrue(ContentFunctions.phrase(termOffsetMap, "quick", "brown"));
+        Assert.assertEquals(2, querySpan.getTermFrequencyDecodeCount());
+    }
+    
+    @Test
+    public void testNoCommonEventIsNotDecoded() {
+        add("quick", EVENT_ID, 1, 10);
+        add("brown", OTHER_EVENT_ID, 2);
+        add("fox", EVENT_ID, 3);
+        Assert.assertFalse(ContentFunctions.phrase(termOffsetMap, "quick", "brown", "fox"));
+        Assert.assertFalse(ContentFunctions.within(2, termOffsetMap, "quick", "fox", "dog"));
+        Assert.assertEquals(0, querySpan.getTermFrequencyDecodeCount());
+    }
+    
+    @Test
+    public void testCorruptTermIsDropped() {
+        add("quick", EVENT_ID, 1, 10);
+        termOffsetMap.add("brown", new TermFrequencyList.Zone("BODY", true, EVENT_ID), new byte[] {(byte) 0xff});
+        Assert.assertFalse(ContentFunctions.phrase(termOffsetMap, "quick", "brown"));
+        Assert.assertNull(termOffsetMap.get("brown"));
+        Assert.assertFalse(termOffsetMap.containsKey("brown"));
+        Assert.assertEquals(Collections.singleton("quick"), termOffsetMap.keySet());
+    }
+    
+    @Test
+    public void testFetchOnDemand() {
+        List<String> fetched = new ArrayList<>();
+        Map<String,Long> sizes = new HashMap<>();
+        sizes.put("quick", 100L);
+        sizes.put("brown", 10L);
+        sizes.put("fox", 50L);
+        LazyTermFrequencyMap map = new LazyTermFrequencyMap(querySpan, Arrays.asList("quick", "brown", "fox", "dog"), new LazyTermFrequencyMap.TermFetcher() {
+            @Override
+            public void fetch(String term, LazyTermFrequencyMap termMap) {
+                fetched.add(term);
+                if (term.equals("quick")) {
+                    add(termMap, term, EVENT_ID, 1);
+                } else if (term.equals("brown")) {
+                    add(termMap, term, OTHER_EVENT_ID, 2);
+                } else if (term.equals("fox")) {
+                    add(termMap, term, EVENT_ID, 2);
+                }
+            }
+            
+            @Override
+            public long estimatedSize(String term) {
+                return sizes.getOrDefault(term, 0L);
+            }
+        });
+        
+        // the rarest term is read first, and the other terms are not read once it shares no event with the next rarest
+        Assert.assertFalse(ContentFunctions.phrase(map, "quick", "brown", "fox"));
+        Assert.assertEquals(Arrays.asList("brown", "fox"), fetched);
+        Assert.assertEquals(0, querySpan.getTermFrequencyDecodeCount());
+        
+        // each term is read once
+        Assert.assertTrue(ContentFunctions.phrase(map, "quick", "fox"));
+        Assert.assertEquals(Arrays.asList("brown", "fox", "quick"), fetched);
+        Assert.assertFalse(map.containsKey("dog"));
+        Assert.assertEquals(3, map.size());
+        Assert.assertEquals(Arrays.asList("brown", "fox", "quick", "dog"), fetched);
+    }
+}
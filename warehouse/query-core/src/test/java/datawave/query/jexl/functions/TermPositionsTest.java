@@ -0,0 +1,100 @@
+package datawave.query.jexl.functions;
+
+import datawave.ingest.protobuf.TermWeight;
+import datawave.ingest.protobuf.TermWeightPosition;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TermPositionsTest {
+    
+    private static final int MAX_SCORE = TermWeightPosition.positionScoreToTermWeightScore(Float.NEGATIVE_INFINITY);
+    
+    private TermPositions positions(int... offsets) {
+        List<TermWeightPosition> list = new ArrayList<>();
+        for (int offset : offsets) {
+            list.add(new TermWeightPosition.Builder().setOffset(offset).build());
+        }
+        return TermPositions.decode(list, MAX_SCORE);
+    }
+    
+    @Test
+    public void testDecode() {
+        List<TermWeightPosition> list = Arrays.asList(new TermWeightPosition.Builder().setOffset(9).setScore(5).build(),
+                        new TermWeightPosition.Builder().setOffset(4).setPrevSkips(2).setScore(1).build(),
+                        new TermWeightPosition.Builder().setOffset(3).setScore(1).build());
+        
+        Assert.assertEquals("[4-2, 3, 9]", TermPositions.decode(list, MAX_SCORE).toString());
+        Assert.assertEquals("[4-2, 3]", TermPositions.decode(list, 1).toString());
+        Assert.assertTrue(TermPositions.decode(list, 0).isEmpty());
+    }
+    
+    @Test
+    public void testDecodeInfo() throws Exception {
+        // unsorted, with two positions at the same offsets of which the first is kept
+        TermWeight.Info info = TermWeight.Info.newBuilder().addTermOffset(9).addTermOffset(4).addTermOffset(3).addTermOffset(4).addPrevSkips(0)
+                        .addPrevSkips(2).addPrevSkips(0).addPrevSkips(2).addScore(5).addScore(1).addScore(1).addScore(0).setZeroOffsetMatch(false).build();
+        TermFrequencyList.Zone zone = new TermFrequencyList.Zone("BODY", true, "shard\u0000datatype\u0000uid");
+        for (int maxScore : new int[] {MAX_SCORE, 1, 0}) {
+            TermPositions fromInfo = TermPositions.decode(info, maxScore);
+            TermPositions fromPositions = TermPositions.decode(TermFrequencyList.decodeOffsets(zone, info.toByteArray()).get(zone), maxScore);
+            Assert.assertEquals(fromPositions.toString(), fromInfo.toString());
+        }
+        Assert.assertEquals("[4-2, 3, 9]", TermPositions.decode(info, MAX_SCORE).toString());
+        Assert.assertEquals("[4-2, 3]", TermPositions.decode(info, 1).toString());
+        Assert.assertTrue(TermPositions.decode(info, 0).isEmpty());
+        
+        // the skips and scores are ignored unless there is one for each offset
+        info = TermWeight.Info.newBuilder().addTermOffset(4).addTermOffset(8).addPrevSkips(2).addScore(5).build();
+        Assert.assertEquals("[4, 8]", TermPositions.decode(info, 0).toString());
+        
+        // positions at the same offset only match if both allow a zero offset match
+        String[] terms = {"a", "b"};
+        Assert.assertTrue(TermPositions.isOrderedMatch(new TermPositions[] {positions(4), TermPositions.decode(info, MAX_SCORE)}, terms, 1));
+        info = info.toBuilder().setZeroOffsetMatch(false).build();
+        Assert.assertFalse(TermPositions.isOrderedMatch(new TermPositions[] {positions(4), TermPositions.decode(info, MAX_SCORE)}, terms, 1));
+    }
+    
+    @Test
+    public void testSeek() {
+        TermPositions positions = positions(1, 3, 5, 7, 9, 11, 13, 15, 17);
+        Assert.assertEquals(0, positions.seek(0, 0));
+        Assert.assertEquals(2, positions.seek(0, 5));
+        Assert.assertEquals(3, positions.seek(0, 6));
+        Assert.assertEquals(8, positions.seek(3, 17));
+        Assert.assertEquals(9, positions.seek(3, 18));
+        Assert.assertEquals(5, positions.seek(5, 2));
+    }
+    
+    @Test
+    public void testOrderedMatch() {
+        String[] terms = {"b", "a", "d", "c"};
+        // b:6 a:7 d:7 c:10 is only found by carrying every reachable position forward
+        Assert.assertTrue(TermPositions.isOrderedMatch(
+                        new TermPositions[] {positions(6, 10, 11, 14), positions(0, 7), positions(7), positions(0, 2, 5, 6, 10)}, terms, 4));
+        
+        terms = new String[] {"c", "a", "b"};
+        Assert.assertFalse(TermPositions.isOrderedMatch(new TermPositions[] {positions(3, 12), positions(0, 4, 5, 9, 11), positions(1, 3, 10, 11, 12)},
+                        terms, 4));
+        
+        // the same term at the same position cannot fill both places in the phrase
+        terms = new String[] {"a", "a"};
+        Assert.assertFalse(TermPositions.isOrderedMatch(new TermPositions[] {positions(5), positions(5)}, terms, 1));
+        Assert.assertTrue(TermPositions.isOrderedMatch(new TermPositions[] {positions(5, 6), positions(5, 6)}, terms, 1));
+    }
+    
+    @Test
+    public void testUnorderedMatch() {
+        String[] terms = {"a", "b", "c"};
+        Assert.assertTrue(TermPositions.isUnorderedMatch(new TermPositions[] {positions(1, 20), positions(8, 22), positions(21)}, terms, 2));
+        Assert.assertFalse(TermPositions.isUnorderedMatch(new TermPositions[] {positions(1, 20), positions(8, 23), positions(21)}, terms, 2));
+        
+        // a repeated term needs a distinct position for each occurrence
+        terms = new String[] {"a", "b", "a"};
+        Assert.assertFalse(TermPositions.isUnorderedMatch(new TermPositions[] {positions(3), positions(4), positions(3)}, terms, 3));
+        Assert.assertTrue(TermPositions.isUnorderedMatch(new TermPositions[] {positions(3, 6), positions(4), positions(3, 6)}, terms, 3));
+    }
+}
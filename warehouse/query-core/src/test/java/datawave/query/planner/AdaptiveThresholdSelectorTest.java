@@ -0,0 +1,58 @@
+package datawave.query.planner;
+
+import com.google.common.collect.ImmutableMap;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.jexl.lookups.IndexLookupMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveThresholdSelectorTest {
+    
+    @Test
+    public void testScale() {
+        Assert.assertEquals(1.0, AdaptiveThresholdSelector.getScale(AdaptiveThresholdSelector.REFERENCE_WEIGHT), 0.0001);
+        Assert.assertEquals(2.0, AdaptiveThresholdSelector.getScale(0.05), 0.0001);
+        
+        // the scale is bounded
+        Assert.assertEquals(AdaptiveThresholdSelector.MIN_SCALE, AdaptiveThresholdSelector.getScale(1.0), 0.0001);
+        Assert.assertEquals(AdaptiveThresholdSelector.MAX_SCALE, AdaptiveThresholdSelector.getScale(0.0001), 0.0001);
+        Assert.assertEquals(AdaptiveThresholdSelector.MAX_SCALE, AdaptiveThresholdSelector.getScale(0.0), 0.0001);
+    }
+    
+    @Test
+    public void testScaleThreshold() {
+        Assert.assertEquals(500, AdaptiveThresholdSelector.scale(500, null));
+        Assert.assertEquals(125, AdaptiveThresholdSelector.scale(500, 0.25));
+        Assert.assertEquals(1, AdaptiveThresholdSelector.scale(2, 0.25));
+        Assert.assertEquals(400000L, AdaptiveThresholdSelector.scale(100000L, 4.0));
+        
+        // disabled thresholds are left alone
+        Assert.assertEquals(-1, AdaptiveThresholdSelector.scale(-1, 4.0));
+        Assert.assertEquals(Integer.MAX_VALUE, AdaptiveThresholdSelector.scale(Integer.MAX_VALUE, 0.25));
+        Assert.assertEquals(Integer.MAX_VALUE, AdaptiveThresholdSelector.scale(Integer.MAX_VALUE - 1, 4.0));
+    }
+    
+    @Test
+    public void testConfiguredFieldThresholds() {
+        ShardQueryConfiguration config = new ShardQueryConfiguration();
+        config.setMaxValueExpansionThreshold(100);
+        config.setMaxOrExpansionThreshold(500);
+        config.setIvaratorCacheScanPersistThreshold(100000L);
+        config.setAdaptiveThresholdScales(ImmutableMap.of("UUID", 0.25, "COLOR", 4.0));
+        
+        Assert.assertEquals(25, config.getMaxValueExpansionThreshold("UUID"));
+        Assert.assertEquals(2000, config.getMaxOrExpansionThreshold("COLOR"));
+        Assert.assertEquals(500, config.getMaxOrExpansionThreshold("OTHER"));
+        Assert.assertEquals(400000L, config.getIvaratorCacheScanPersistThreshold("COLOR"));
+        Assert.assertEquals(ImmutableMap.of("UUID", 25000L, "COLOR", 400000L), config.getFieldIvaratorCacheScanPersistThresholds());
+        
+        // the value expansions honor the per field thresholds
+        IndexLookupMap lookupMap = new IndexLookupMap(-1, config.getMaxValueExpansionThreshold(), config.getFieldMaxValueExpansionThresholds());
+        for (int i = 0; i < 30; i++) {
+            lookupMap.put("UUID", "value" + i);
+            lookupMap.put("OTHER", "value" + i);
+        }
+        Assert.assertTrue(lookupMap.get("UUID").isThresholdExceeded());
+        Assert.assertFalse(lookupMap.get("OTHER").isThresholdExceeded());
+    }
+}
@@ -0,0 +1,87 @@
+package datawave.query.planner;
+
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.jexl.visitors.JexlStringBuildingVisitor;
+import datawave.query.jexl.visitors.TreeFlatteningRebuildingVisitor;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.ParseException;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class QueryPlanCacheTest {
+    
+    @Test
+    public void testQueriesDifferingOnlyInValuesShareATemplate() throws ParseException {
+        QueryPlanCache.Template first = template("FOO == 'a' && (BAR == 'b' || BAZ == 'a')");
+        QueryPlanCache.Template second = template("FOO == 'x' && (BAR == 'y' || BAZ == 'x')");
+        assertEquals(first.getNormalizedQuery(), second.getNormalizedQuery());
+        assertEquals(Arrays.asList("a", "b"), first.getValues());
+        assertEquals(Arrays.asList("x", "y"), second.getValues());
+    }
+    
+    @Test
+    public void testEqualValuesShareAPlaceholder() throws ParseException {
+        // the planning stages which remove duplicate terms must see the same equalities for every query using a plan
+        assertNotEquals(template("FOO == 'a' || FOO == 'a'").getNormalizedQuery(), template("FOO == 'a' || FOO == 'b'").getNormalizedQuery());
+    }
+    
+    @Test
+    public void testRegularExpressionsAreKept() throws ParseException {
+        assertNotEquals(template("FOO =~ 'a.*'").getNormalizedQuery(), template("FOO =~ 'b.*'").getNormalizedQuery());
+        assertNotEquals(template("FOO == 'a' && filter:includeRegex(BAR, 'a.*')").getNormalizedQuery(),
+                        template("FOO == 'a' && filter:includeRegex(BAR, 'b.*')").getNormalizedQuery());
+        assertEquals(template("FOO == 1").getNormalizedQuery(), "FOO == 1");
+    }
+    
+    @Test
+    public void testBindPlannedQuery() throws ParseException {
+        ASTJexlScript queryTree = JexlASTHelper.parseJexlQuery("FOO == 'a' && (BAR == 'b' && BAZ < 'a')");
+        QueryPlanCache.Template template = QueryPlanCache.createTemplate(queryTree);
+        QueryPlanCache.Plan plan = new QueryPlanCache.Plan(TreeFlatteningRebuildingVisitor.flatten(queryTree), 10L);
+        
+        ASTJexlScript other = JexlASTHelper.parseJexlQuery("FOO == 'x$1' && (BAR == 'y\\\\' && BAZ < 'x$1')");
+        QueryPlanCache.Template otherTemplate = QueryPlanCache.createTemplate(other);
+        assertEquals(template.getNormalizedQuery(), otherTemplate.getNormalizedQuery());
+        
+        assertEquals("FOO == 'x$1' && BAR == 'y\\\\' && BAZ < 'x$1'", JexlStringBuildingVisitor.buildQuery(otherTemplate.bind(plan.getQueryTree())));
+        // the cached plan is not changed by binding
+        assertEquals("FOO == 'a' && BAR == 'b' && BAZ < 'a'", JexlStringBuildingVisitor.buildQuery(template.bind(plan.getQueryTree())));
+        assertEquals(10L, plan.getPlanningMillis());
+    }
+    
+    @Test
+    public void testAdaptiveThresholdScalesAreKeptWithThePlan() throws ParseException {
+        QueryPlanCache.Plan plan = new QueryPlanCache.Plan(JexlASTHelper.parseJexlQuery("FOO == 'a'"), 10L);
+        assertNull(plan.getAdaptiveThresholdScales());
+        
+        Map<String,Double> scales = new HashMap<>();
+        scales.put("FOO", 0.5);
+        plan.setAdaptiveThresholdScales(scales);
+        scales.put("BAR", 2.0);
+        assertEquals(Collections.singletonMap("FOO", 0.5), plan.getAdaptiveThresholdScales());
+    }
+    
+    @Test
+    public void testQueryContainingPlaceholderMarkIsNotCached() throws ParseException {
+        assertNull(QueryPlanCache.createTemplate(JexlASTHelper.parseJexlQuery("FOO == '\uE0000\uE000'")));
+    }
+    
+    @Test
+    public void testMetadataVersion() {
+        long version = QueryPlanCache.getMetadataVersion("QueryPlanCacheTestMetadata");
+        QueryPlanCache.metadataChanged("QueryPlanCacheTestMetadata");
+        assertEquals(version + 1, QueryPlanCache.getMetadataVersion("QueryPlanCacheTestMetadata"));
+    }
+    
+    private static QueryPlanCache.Template template(String query) throws ParseException {
+        return QueryPlanCache.createTemplate(JexlASTHelper.parseJexlQuery(query));
+    }
+}
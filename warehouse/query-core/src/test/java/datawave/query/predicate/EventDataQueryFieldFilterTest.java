@@ -0,0 +1,104 @@
+package datawave.query.predicate;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import datawave.query.Constants;
+import datawave.query.jexl.JexlASTHelper;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
+import org.apache.accumulo.core.data.Range;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.ParseException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class EventDataQueryFieldFilterTest {
+    
+    private static final String[] FIELDS = {"AAA", "BAR", "BAZ1", "BAZ2", "BAZ3", "BAZ4", "FOO", "FOO.1", "ZZZ1", "ZZZ2", "ZZZ3"};
+    
+    private int seeks;
+    
+    @Test
+    public void testSeekPastUnwantedFields() throws ParseException {
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery("FOO == 'a'");
+        EventDataQueryFieldFilter filter = new EventDataQueryFieldFilter(script, Collections.emptySet(), Sets.newHashSet("BAR"), 2);
+        
+        // the first document nexts over a short run and seeks past the longer runs
+        assertEquals(Lists.newArrayList("BAR", "FOO", "FOO.1"), fetch(filter, "uid1"));
+        assertEquals(2, seeks);
+        
+        // later documents seek as soon as one of the longer runs starts
+        assertEquals(Lists.newArrayList("BAR", "FOO", "FOO.1"), fetch(filter, "uid2"));
+        assertEquals(2, seeks);
+        
+        // the learned plan is kept by clones
+        assertEquals(Lists.newArrayList("BAR", "FOO", "FOO.1"), fetch(filter.clone(), "uid3"));
+        assertEquals(2, seeks);
+    }
+    
+    @Test
+    public void testNoSeekWithoutThreshold() throws ParseException {
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery("FOO == 'a'");
+        EventDataQueryFieldFilter filter = new EventDataQueryFieldFilter(script, Collections.emptySet());
+        assertEquals(Lists.newArrayList("FOO", "FOO.1"), fetch(filter, "uid1"));
+        assertEquals(0, seeks);
+        assertEquals(-1, filter.getMaxNextCount());
+    }
+    
+    @Test
+    public void testSeekToGroupedKeys() {
+        FieldSeekPlan plan = new FieldSeekPlan(Collections.singleton("A"), 0);
+        Key key = new Key("row", "dt\0uid", "A-B\0value");
+        plan.miss("dt", "A-B");
+        
+        // grouped keys of A sort after A-B
+        Range range = plan.getSeekRange(key, "A-B", key.followingKey(PartialKey.ROW_COLFAM), false);
+        assertEquals(new Key("row", "dt\0uid", "A."), range.getStartKey());
+        
+        // nothing to keep after the grouped keys of A
+        plan.miss("dt", "A.1");
+        range = plan.getSeekRange(key, "B", key.followingKey(PartialKey.ROW_COLFAM), false);
+        assertEquals(key.followingKey(PartialKey.ROW_COLFAM), range.getStartKey());
+        assertFalse(range.isStartKeyInclusive());
+    }
+    
+    /**
+     * Fetch a document the way KeyToDocumentData does, nexting over or seeking past the rejected keys
+     */
+    private List<String> fetch(EventDataQueryFilter filter, String uid) {
+        TreeSet<Key> keys = new TreeSet<>();
+        for (String field : FIELDS) {
+            keys.add(new Key("row", "dt\0" + uid, field + Constants.NULL_BYTE_STRING + "a"));
+        }
+        Key start = new Key("row", "dt\0" + uid);
+        Range keyRange = new Range(start, true, start.followingKey(PartialKey.ROW_COLFAM), false);
+        
+        seeks = 0;
+        filter.startNewDocument(start);
+        List<String> fields = new ArrayList<>();
+        Key key = keys.first();
+        while (key != null) {
+            if (filter.apply(Maps.immutableEntry(key, ""))) {
+                String cq = key.getColumnQualifier().toString();
+                fields.add(cq.substring(0, cq.indexOf('\0')));
+            } else {
+                Range seekRange = filter.getSeekRange(key, keyRange.getEndKey(), keyRange.isEndKeyInclusive());
+                if (seekRange != null) {
+                    seeks++;
+                    key = seekRange.isStartKeyInclusive() ? keys.ceiling(seekRange.getStartKey()) : keys.higher(seekRange.getStartKey());
+                    continue;
+                }
+            }
+            key = keys.higher(key);
+        }
+        return fields;
+    }
+}
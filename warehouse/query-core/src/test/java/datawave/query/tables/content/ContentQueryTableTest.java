@@ -0,0 +1,152 @@
+package datawave.query.tables.content;
+
+import datawave.accumulo.inmemory.InMemoryAccumuloClient;
+import datawave.accumulo.inmemory.InMemoryInstance;
+import datawave.data.ColumnFamilyConstants;
+import datawave.data.type.LcNoDiacriticsType;
+import datawave.ingest.mapreduce.handler.ExtendedDataTypeHandler;
+import datawave.ingest.protobuf.Uid;
+import datawave.query.util.MetadataHelperFactory;
+import datawave.util.TableName;
+import datawave.util.time.DateHelper;
+import datawave.webservice.query.QueryImpl;
+import datawave.webservice.query.configuration.GenericQueryConfiguration;
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.hadoop.io.Text;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ContentQueryTableTest {
+    
+    private static final String DATATYPE = "datatype";
+    private static final String UUID_FIELD = "UUID";
+    private static final Set<Authorizations> AUTHS = Collections.singleton(new Authorizations());
+    
+    private static AccumuloClient client;
+    
+    private ContentQueryTable logic;
+    
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        client = new InMemoryAccumuloClient("root", new InMemoryInstance(ContentQueryTableTest.class.getName()));
+        client.tableOperations().create(TableName.SHARD);
+        client.tableOperations().create(TableName.SHARD_INDEX);
+        client.tableOperations().create(TableName.METADATA);
+        
+        try (BatchWriter bw = client.createBatchWriter(TableName.METADATA, new BatchWriterConfig())) {
+            // the UUID field is indexed with a lower case normalizer
+            Mutation m = new Mutation(UUID_FIELD);
+            m.put(ColumnFamilyConstants.COLF_T, new Text(DATATYPE + '\u0000' + LcNoDiacriticsType.class.getName()), new Value());
+            m.put(ColumnFamilyConstants.COLF_I, new Text(DATATYPE), new Value());
+            bw.addMutation(m);
+        }
+        
+        try (BatchWriter bw = client.createBatchWriter(TableName.SHARD_INDEX, new BatchWriterConfig())) {
+            bw.addMutation(indexEntry("abc-123", "20190314_0", "uid1"));
+            bw.addMutation(indexEntry("def-456", "20190320_0", "uid2"));
+        }
+        
+        try (BatchWriter bw = client.createBatchWriter(TableName.SHARD, new BatchWriterConfig())) {
+            bw.addMutation(content("20190314_0", "uid1"));
+            bw.addMutation(content("20190320_0", "uid2"));
+        }
+    }
+    
+    @Before
+    public void setup() {
+        logic = new ContentQueryTable();
+        logic.setTableName(TableName.SHARD);
+        logic.setIndexTableName(TableName.SHARD_INDEX);
+        logic.setMetadataTableName(TableName.METADATA);
+        logic.setMetadataHelperFactory(new MetadataHelperFactory());
+    }
+    
+    @Test
+    public void testDocumentLookup() throws Exception {
+        assertEquals(Collections.singleton("uid1"), lookup("DOCUMENT:20190314_0/" + DATATYPE + "/uid1", "20190301", "20190331"));
+    }
+    
+    @Test
+    public void testUUIDLookupIsNormalized() throws Exception {
+        // the value is found with the field's normalizer rather than as given
+        assertEquals(Collections.singleton("uid1"), lookup("UUID:ABC-123", "20190301", "20190331"));
+        assertEquals(new TreeSet<>(Arrays.asList("uid1", "uid2")), lookup("uuid:abc-123 UUID:DEF-456", "20190301", "20190331"));
+    }
+    
+    @Test
+    public void testUUIDLookupIsLimitedToDateRange() throws Exception {
+        assertEquals(Collections.singleton("uid1"), lookup("UUID:abc-123 UUID:def-456", "20190301", "20190315"));
+        assertEquals(Collections.singleton("uid2"), lookup("UUID:abc-123 UUID:def-456", "20190320", "20190331"));
+    }
+    
+    @Test
+    public void testUUIDNotFound() throws Exception {
+        assertTrue(lookup("UUID:ghi-789", "20190301", "20190331").isEmpty());
+        assertTrue(lookup("UUID:abc-123", "20190401", "20190430").isEmpty());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidDocumentTerm() throws Exception {
+        lookup("20190314_0/" + DATATYPE, "20190301", "20190331");
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedDocumentTermIsNotAUUID() throws Exception {
+        // a DOCUMENT term missing its uid is rejected rather than looked up as a UUID
+        lookup("DOCUMENT:20190314_0/" + DATATYPE + " UUID:abc-123", "20190301", "20190331");
+    }
+    
+    private Set<String> lookup(String query, String beginDate, String endDate) throws Exception {
+        QueryImpl settings = new QueryImpl();
+        settings.setQuery(query);
+        settings.setBeginDate(DateHelper.parse(beginDate));
+        settings.setEndDate(DateHelper.parse(endDate));
+        
+        GenericQueryConfiguration config = logic.initialize(client, settings, AUTHS);
+        logic.setupQuery(config);
+        
+        Set<String> uids = new TreeSet<>();
+        try {
+            Iterator<Entry<Key,Value>> iterator = logic.iterator();
+            while (iterator.hasNext()) {
+                // the content column qualifier is datatype\0uid\0view
+                String[] cq = iterator.next().getKey().getColumnQualifier().toString().split("\u0000");
+                uids.add(cq[1]);
+            }
+        } finally {
+            logic.close();
+        }
+        return uids;
+    }
+    
+    private static Mutation indexEntry(String value, String shard, String uid) {
+        Uid.List uids = Uid.List.newBuilder().addUID(uid).setCOUNT(1).setIGNORE(false).build();
+        Mutation m = new Mutation(value);
+        m.put(new Text(UUID_FIELD), new Text(shard + '\u0000' + DATATYPE), new Value(uids.toByteArray()));
+        return m;
+    }
+    
+    private static Mutation content(String shard, String uid) {
+        Text cq = new Text(DATATYPE + '\u0000' + uid + '\u0000' + "CONTENT");
+        Mutation m = new Mutation(shard);
+        m.put(new Text(ExtendedDataTypeHandler.FULL_CONTENT_COLUMN_FAMILY), cq, new Value(uid.getBytes()));
+        return m;
+    }
+}
@@ -95,6 +95,8 @@ public abstract class AbstractFunctionalQuery implements QueryLogicTestHarness.T
     
     protected static final String VALUE_THRESHOLD_JEXL_NODE = ExceededValueThresholdMarkerJexlNode.label();
     protected static final String FILTER_EXCLUDE_REGEX = "filter:excludeRegex";
+    // the system property set by the compiled-evaluation profile, which runs the queries compiled rather than interpreted
+    protected static final String COMPILED_EVALUATION_PROPERTY = "datawave.query.compiled.evaluation";
     
     private static final Logger log = Logger.getLogger(AbstractFunctionalQuery.class);
     
@@ -162,6 +164,7 @@ public abstract class AbstractFunctionalQuery implements QueryLogicTestHarness.T
         
         this.logic.setFullTableScanEnabled(false);
         this.logic.setIncludeDataTypeAsField(true);
+        this.logic.setCompiledEvaluation(Boolean.getBoolean(COMPILED_EVALUATION_PROPERTY));
         
         this.logic.setDateIndexHelperFactory(new DateIndexHelperFactory());
         this.logic.setMarkingFunctions(new Default());
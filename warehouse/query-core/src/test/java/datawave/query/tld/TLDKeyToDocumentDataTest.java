@@ -0,0 +1,136 @@
+package datawave.query.tld;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import datawave.query.function.TLDEquality;
+import datawave.query.iterator.profile.QuerySpan;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TLDKeyToDocumentDataTest {
+    
+    private static final String SHARD = "20190314_0";
+    private static final String ROOT = "datatype\u0000p1.p2.p3";
+    
+    @Test
+    public void testSplitIds() {
+        assertArrayEquals(new long[0], TLDKeyToDocumentData.getSplitIds(120, 1));
+        assertArrayEquals(new long[0], TLDKeyToDocumentData.getSplitIds(1, 4));
+        assertArrayEquals(new long[] {2}, TLDKeyToDocumentData.getSplitIds(2, 4));
+        assertArrayEquals(new long[] {5}, TLDKeyToDocumentData.getSplitIds(9, 2));
+        assertArrayEquals(new long[] {12, 4, 7}, TLDKeyToDocumentData.getSplitIds(12, 4));
+        
+        // each range holds an equal share of the child ids in key order
+        for (int maxChildId = 1; maxChildId <= 300; maxChildId++) {
+            List<String> ids = new ArrayList<>();
+            for (int id = 1; id <= maxChildId; id++) {
+                ids.add(Integer.toString(id));
+            }
+            Collections.sort(ids);
+            for (int parallelism = 2; parallelism <= 6; parallelism++) {
+                long[] splits = TLDKeyToDocumentData.getSplitIds(maxChildId, parallelism);
+                assertEquals(Math.min(parallelism, maxChildId) - 1, splits.length);
+                for (int j = 0; j < splits.length; j++) {
+                    assertEquals((j + 1) * maxChildId / (splits.length + 1), ids.indexOf(Long.toString(splits[j])));
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testChildRanges() {
+        Key start = new Key(SHARD, ROOT);
+        Range keyRange = new Range(start, true, new Key(SHARD, ROOT + '\uffff'), false);
+        List<Range> ranges = TLDKeyToDocumentData.getChildRanges(start, keyRange, new long[] {3});
+        
+        assertEquals(2, ranges.size());
+        assertEquals(start, ranges.get(0).getStartKey());
+        assertEquals(new Key(SHARD, ROOT + ".3"), ranges.get(0).getEndKey());
+        assertFalse(ranges.get(0).isEndKeyInclusive());
+        assertEquals(new Key(SHARD, ROOT + ".3"), ranges.get(1).getStartKey());
+        assertTrue(ranges.get(1).isStartKeyInclusive());
+        assertEquals(keyRange.getEndKey(), ranges.get(1).getEndKey());
+        
+        // splits outside of the key range are dropped
+        Range childRange = new Range(new Key(SHARD, ROOT + ".5"), true, keyRange.getEndKey(), false);
+        ranges = TLDKeyToDocumentData.getChildRanges(start, childRange, new long[] {2, 3, 6});
+        assertEquals(2, ranges.size());
+        assertEquals(childRange.getStartKey(), ranges.get(0).getStartKey());
+        assertEquals(new Key(SHARD, ROOT + ".6"), ranges.get(1).getStartKey());
+        
+        ranges = TLDKeyToDocumentData.getChildRanges(start, childRange, new long[] {2, 3});
+        assertEquals(Collections.singletonList(childRange), ranges);
+    }
+    
+    @Test
+    public void testParallelFetchMatchesSequentialFetch() throws Exception {
+        SortedMap<Key,Value> data = new TreeMap<>();
+        addDocument(data, ROOT);
+        for (int i = 1; i <= 120; i++) {
+            addDocument(data, ROOT + '.' + i);
+            addDocument(data, ROOT + '.' + i + ".1");
+        }
+        // the next top level document is not fetched
+        addDocument(data, "datatype\u0000p1.p2.p4");
+        
+        Range keyRange = new Range(new Key(SHARD, ROOT), true, new Key(SHARD, ROOT + '\uffff'), false);
+        
+        QuerySpan span = new QuerySpan(null);
+        Set<Key> docKeys = new HashSet<>();
+        List<Map.Entry<Key,Value>> attributes = fetch(data, 4, keyRange, docKeys, span);
+        assertEquals(4, span.getTldChildRangeCount());
+        
+        Set<Key> expectedDocKeys = new HashSet<>();
+        List<Map.Entry<Key,Value>> expected = fetch(data, 1, keyRange, expectedDocKeys, null);
+        
+        assertEquals(482, expected.size());
+        assertEquals(241, expectedDocKeys.size());
+        assertEquals(keys(expected), keys(attributes));
+        assertEquals(expectedDocKeys, docKeys);
+        
+        // a document with a single child is fetched sequentially
+        keyRange = new Range(new Key(SHARD, ROOT + ".100"), true, new Key(SHARD, ROOT + ".100" + '\uffff'), false);
+        span = new QuerySpan(null);
+        docKeys = new HashSet<>();
+        attributes = fetch(data, 4, keyRange, docKeys, span);
+        assertEquals(0, span.getTldChildRangeCount());
+        assertEquals(4, attributes.size());
+    }
+    
+    private static List<Map.Entry<Key,Value>> fetch(SortedMap<Key,Value> data, int parallelism, Range keyRange, Set<Key> docKeys, QuerySpan span)
+                    throws Exception {
+        SortedMapIterator source = new SortedMapIterator(data);
+        source.seek(keyRange, Collections.emptySet(), false);
+        TLDKeyToDocumentData function = new TLDKeyToDocumentData(source, null, null, new TLDEquality(), null, false, false, parallelism);
+        function.setQuerySpan(span);
+        return function.collectDocumentAttributes(keyRange.getStartKey(), docKeys, keyRange);
+    }
+    
+    private static void addDocument(SortedMap<Key,Value> data, String cf) {
+        data.put(new Key(SHARD, cf, "FIELD_A\u0000value"), new Value());
+        data.put(new Key(SHARD, cf, "FIELD_B\u0000value"), new Value());
+    }
+    
+    private static List<Key> keys(List<Map.Entry<Key,Value>> attributes) {
+        List<Key> keys = new ArrayList<>();
+        for (Map.Entry<Key,Value> attribute : attributes) {
+            keys.add(attribute.getKey());
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,71 @@
+package datawave.query.util.regex;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+public class MultiRegexMatcherTest {
+    private static final List<String> REGEXES = Arrays.asList("abc", "a.*c", "(?i)ABC", "[a-f]+x?", "[^a-c]+", "\\d{2,3}", "\\w+\\s\\w+", "x|y|zz", "^ab$",
+                    "a\\.b", "\\Qa.b\\E", "(ab)+", "(?:ab|cd){1,3}", "A.B", "[A-C]z", "\\x41\\u0062", "a*?b", "a++b", ".*", "", "(a|)b", "[\\d-]+", "[-a]",
+                    "a[^\\n]b", "(?-i)abc", "\\bab\\b", "(?<n>ab)c", "a{2}", "[A-Za-z_]+\\d*", "fo+ba[rz]", "(a)\\1");
+    
+    @Test
+    public void testTranslation() {
+        MultiRegexMatcher matcher = new MultiRegexMatcher(REGEXES, Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+        Assert.assertTrue(matcher.hasUnion());
+        for (int id = 0; id < REGEXES.size(); id++) {
+            String regex = REGEXES.get(id);
+            Assert.assertEquals(regex, !regex.startsWith("(?i)") && !regex.startsWith("(?-i)") && !regex.contains("\\1"), matcher.isTranslated(id));
+        }
+        
+        // other flags are not translated
+        matcher = new MultiRegexMatcher(REGEXES, Pattern.DOTALL);
+        Assert.assertFalse(matcher.isTranslated(0));
+    }
+    
+    @Test
+    public void testMatchesAsPatterns() {
+        String alphabet = "abcdefABCxyz.-_ 0123\n\u00e9\u2028";
+        Random random = new Random(42);
+        for (int flags : new int[] {Pattern.CASE_INSENSITIVE | Pattern.MULTILINE, 0}) {
+            MultiRegexMatcher matcher = new MultiRegexMatcher(REGEXES, flags);
+            for (int i = 0; i < 20000; i++) {
+                StringBuilder value = new StringBuilder();
+                int length = random.nextInt(7);
+                for (int j = 0; j < length; j++) {
+                    value.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+                BitSet matches = matcher.match(value.toString());
+                for (int id = 0; id < REGEXES.size(); id++) {
+                    Assert.assertEquals(REGEXES.get(id) + " against " + value, Pattern.compile(REGEXES.get(id), flags).matcher(value).matches(),
+                                    matches.get(id));
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testMatchIds() {
+        MultiRegexMatcher matcher = new MultiRegexMatcher(Arrays.asList("foo.*", "bar", ".*bar", "baz"), Pattern.CASE_INSENSITIVE);
+        Assert.assertEquals(BitSet.valueOf(new long[] {0b0110}), matcher.match("BAR"));
+        Assert.assertEquals(BitSet.valueOf(new long[] {0b0101}), matcher.match("foobar"));
+        Assert.assertTrue(matcher.match("qux").isEmpty());
+    }
+    
+    @Test
+    public void testTooManyStates() {
+        // each regex is translated, but the DFA for both would have too many states
+        MultiRegexMatcher matcher = new MultiRegexMatcher(Arrays.asList(".*a.{12}", ".*b.{12}"), 0);
+        Assert.assertTrue(matcher.isTranslated(0));
+        Assert.assertTrue(matcher.isTranslated(1));
+        Assert.assertFalse(matcher.hasUnion());
+        Assert.assertEquals(BitSet.valueOf(new long[] {0b01}), matcher.match("xaxxxxxxxxxxxx"));
+        Assert.assertEquals(BitSet.valueOf(new long[] {0b10}), matcher.match("abxxxxxxxxxxxx"));
+        Assert.assertTrue(matcher.match("xxxxxxxxxxxxxx").isEmpty());
+    }
+}
@@ -8,14 +8,11 @@ import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.security.Principal;
-import java.sql.BatchUpdateException;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLSyntaxErrorException;
 import java.sql.Statement;
-import java.sql.Types;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -29,7 +26,14 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
@@ -179,14 +183,11 @@ import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.security.Principal;
-import java.sql.BatchUpdateException;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLSyntaxErrorException;
 import java.sql.Statement;
-import java.sql.Types;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -200,6 +201,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
 
 /**
@@ -298,11 +300,14 @@ public class CachedResultsBean {
     protected static final String COMMA = ",";
     protected static final String TABLE = "$table";
     protected static final String FIELD = "field";
+    protected static final int MAX_FIELDS = 900;
     
     private static final String IMPORT_FILE = "replication_scripts/import.sh";
     
     private static Map<String,RunningQuery> loadingQueryMap = Collections.synchronizedMap(new HashMap<>());
     private static Set<String> loadingQueries = Collections.synchronizedSet(new HashSet<>());
+    private static Map<String,CachedResultsLoader> loaders = new ConcurrentHashMap<>();
+    private static ThreadPoolExecutor loaderExecutor = null;
     private URL importFileUrl = null;
     private CachedResultsParameters cp = new CachedResultsParameters();
     
@@ -326,6 +331,14 @@ public class CachedResultsBean {
         CachedRunningQuery.setDatasource(ds);
         CachedRunningQuery.setQueryFactory(queryFactory);
         CachedRunningQuery.setResponseObjectFactory(responseObjectFactory);
+        synchronized (CachedRunningQuery.class) {
+            String columnarDir = cachedResultsConfiguration.getColumnarDir();
+            if (columnarDir != null && CachedRunningQuery.getColumnarStore() == null) {
+                CachedRunningQuery.setColumnarStore(new ColumnarResultsStore(new File(columnarDir), cachedResultsConfiguration.getColumnarDaysToLive(),
+                                cachedResultsConfiguration.getColumnarMaxOpen()));
+                log.info("Storing cached results in " + columnarDir);
+            }
+        }
         
         String template = null;
         try (Connection con = ds.getConnection(); Statement s = con.createStatement()) {
@@ -337,63 +350,36 @@ public class CachedResultsBean {
         }
     }
     
-    protected void loadBatch(PreparedStatement ps, String owner, String queryId, String logicName, Map<String,Integer> fieldMap, CacheableQueryRow cqo,
-                    int maxFieldSize) throws SQLException {
-        
-        // Maintain a list of the columns that are populated so
-        // that we can
-        // set the others to null.
-        HashSet<Integer> populatedColumns = new HashSet<>();
-        // Done capturing all the fields in the event, insert
-        // into database.
-        ps.clearParameters(); // not sure we need this
-        
-        // Each entry is a different visibility.
-        ps.setString(1, owner);
-        ps.setString(2, queryId);
-        ps.setString(3, logicName);
-        ps.setString(4, cqo.getDataType());
-        ps.setString(5, cqo.getEventId());
-        ps.setString(6, cqo.getRow());
-        ps.setString(7, cqo.getColFam());
-        ps.setString(8, MarkingFunctions.Encoding.toString(new TreeMap<>(cqo.getMarkings())));
-        for (Entry<String,String> e : cqo.getColumnValues().entrySet()) {
-            
-            String columnName = e.getKey();
-            String columnValue = e.getValue();
-            // Get the field number from the fieldMap.
-            Integer columnNumber = fieldMap.get(columnName);
-            if (columnNumber == null) {
-                columnNumber = CacheableQueryRow.getFixedColumnSet().size() + fieldMap.size() + 1;
-                fieldMap.put(columnName, columnNumber);
-            }
-            
-            if (columnValue.length() > maxFieldSize) {
-                columnValue = columnValue.substring(0, maxFieldSize) + "<truncated>";
-                ps.setString(columnNumber, columnValue);
-            } else {
-                ps.setString(columnNumber, columnValue);
-            }
-            populatedColumns.add(columnNumber);
-            if (log.isTraceEnabled()) {
-                log.trace("Set parameter: " + columnNumber + " with field name: " + columnName + " to value: " + columnValue);
+    protected String[] createRow(String owner, String queryId, String logicName, Map<String,Integer> fieldMap, CacheableQueryRow cqo) {
+        
+        // Get the field numbers from the fieldMap, adding any new fields
+        int fixedColumns = CacheableQueryRow.getFixedColumnSet().size();
+        for (String columnName : cqo.getColumnValues().keySet()) {
+            if (!fieldMap.containsKey(columnName)) {
+                fieldMap.put(columnName, fixedColumns + fieldMap.size() + 1);
             }
         }
         
-        ps.setString(9, cqo.getColumnSecurityMarkingString(fieldMap));
-        ps.setString(10, cqo.getColumnTimestampString(fieldMap));
-        
-        // Need to set all of the remaining parameters to
-        // NULL
-        int startCol = CacheableQueryRow.getFixedColumnSet().size() + 1;
-        int maxCol = CacheableQueryRow.getFixedColumnSet().size() + 901;
-        for (int i = startCol; i < maxCol; i++) {
-            if (!populatedColumns.contains(i)) {
-                ps.setNull(i, Types.VARCHAR);
+        // Columns which are not populated are null
+        String[] row = new String[fixedColumns + fieldMap.size()];
+        row[0] = owner;
+        row[1] = queryId;
+        row[2] = logicName;
+        row[3] = cqo.getDataType();
+        row[4] = cqo.getEventId();
+        row[5] = cqo.getRow();
+        row[6] = cqo.getColFam();
+        row[7] = MarkingFunctions.Encoding.toString(new TreeMap<>(cqo.getMarkings()));
+        row[8] = cqo.getColumnSecurityMarkingString(fieldMap);
+        row[9] = cqo.getColumnTimestampString(fieldMap);
+        for (Entry<String,String> e : cqo.getColumnValues().entrySet()) {
+            int columnNumber = fieldMap.get(e.getKey());
+            row[columnNumber - 1] = e.getValue();
+            if (log.isTraceEnabled()) {
+                log.trace("Set parameter: " + columnNumber + " with field name: " + e.getKey() + " to value: " + e.getValue());
             }
         }
-        ps.addBatch();
-        
+        return row;
     }
     
     protected GenericResponse<String> load(@Required("queryId") String queryId, String alias, String nameBase) {
@@ -420,7 +406,8 @@ public class CachedResultsBean {
         String tableName = "t" + nameBase;
         String viewName = "v" + nameBase;
         Connection con = null;
-        PreparedStatement ps = null;
+        CachedResultsLoader loader = null;
+        ColumnarResultsStore.Writer columnarWriter = null;
         boolean tableCreated = false;
         boolean viewCreated = false;
         CachedRunningQuery crq = null;
@@ -568,10 +555,6 @@ public class CachedResultsBean {
                 s.execute(createTable);
                 s.close();
                 tableCreated = true;
-                // Parse the PreparedStatement
-                String insert = cachedResultsConfiguration.getParameters().get("INSERT");
-                insert = insert.replace(TABLE, tableName);
-                ps = con.prepareStatement(insert);
             } catch (SQLException sqle) {
                 throw new QueryException(DatawaveErrorCode.CACHED_RESULTS_TABLE_CREATE_ERROR, sqle);
             }
@@ -589,7 +572,31 @@ public class CachedResultsBean {
                 span = Trace.startSpan("cachedresults:load", traceInfo);
             }
             
-            int rowsWritten = 0;
+            // The rows are written by a pool of loaders so that paging through the query is not held up by the database
+            String insert = cachedResultsConfiguration.getParameters().get("INSERT").replace(TABLE, tableName);
+            String bulkLoad = null;
+            if (cachedResultsConfiguration.isBulkLoad()) {
+                bulkLoad = cachedResultsConfiguration.getParameters().get("BULK_LOAD_STATEMENT").replace(TABLE, tableName);
+            }
+            loader = new CachedResultsLoader(ds, getLoaderExecutor(cachedResultsConfiguration.getLoaderPoolSize()), insert, bulkLoad,
+                            CacheableQueryRow.getFixedColumnSet(), MAX_FIELDS, cachedResultsConfiguration.getLoaderThreads(), rowsPerBatch);
+            CachedResultsBean.loaders.put(viewName, loader);
+            try {
+                loader.start();
+            } catch (SQLException e) {
+                throw toLoadException(e);
+            }
+            
+            // The rows are also stored locally by column, if enabled, so that paging and sorting does not need to go to the database
+            ColumnarResultsStore columnarStore = CachedRunningQuery.getColumnarStore();
+            if (columnarStore != null) {
+                try {
+                    columnarWriter = columnarStore.create(viewName, CacheableQueryRow.getFixedColumnSet());
+                } catch (IOException e) {
+                    log.warn("Unable to store cached results " + viewName + " by column", e);
+                }
+            }
+            
             boolean go = true;
             while (go) {
                 
@@ -612,69 +619,25 @@ public class CachedResultsBean {
                     break;
                 }
                 
-                int maxLength = 0;
                 for (Object o : results.getResults()) {
                     
                     List<CacheableQueryRow> cacheableQueryRowList = cacheableLogic.writeToCache(o);
                     
                     for (CacheableQueryRow cacheableQueryObject : cacheableQueryRowList) {
-                        
-                        Collection<String> values = ((CacheableQueryRow) cacheableQueryObject).getColumnValues().values();
-                        int maxValueLength = 0;
-                        for (String s : values) {
-                            if (s.length() > maxValueLength) {
-                                maxValueLength = s.length();
-                            }
-                        }
-                        
-                        boolean dataWritten = false;
-                        // If a successful maxLength has been determined, then don't change it.
-                        if (maxLength == 0)
-                            maxLength = maxValueLength + 1;
-                        else if (maxValueLength > maxLength) {
-                            maxLength = maxValueLength;
-                        }
-                        
-                        int attempt = 0;
-                        SQLException loadBatchException = null; // exception;
-                        while (dataWritten == false && attempt < 10) {
-                            try {
-                                loadBatch(ps, owner, queryId, logic.getLogicName(), fieldMap, cacheableQueryObject, maxLength);
-                                dataWritten = true;
-                                rowsWritten++;
-                            } catch (SQLException e) {
-                                loadBatchException = e;
-                                String msg = e.getMessage();
-                                if (msg.startsWith("Table") && msg.endsWith("doesn't exist")) {
-                                    throw new QueryException(DatawaveErrorCode.CACHE_TABLE_MISSING, MessageFormat.format("message: {0}", msg));
-                                } else {
-                                    log.info("Caught other SQLException:" + msg + " writing batch with maxLength:" + maxLength);
-                                    maxLength = maxLength / 2;
-                                }
-                            }
-                            attempt++;
-                        }
-                        
-                        if (dataWritten == false) {
-                            String message = (loadBatchException == null) ? "unknown" : loadBatchException.getMessage();
-                            
-                            log.error("Batch write FAILED - last exception = " + message + "record = " + cacheableQueryObject.getColumnValues().entrySet(),
-                                            loadBatchException);
-                        } else if (rowsWritten >= rowsPerBatch) {
-                            persistBatch(ps);
-                            ps.clearBatch();
-                            rowsWritten = 0;
-                        }
+                        String[] row = createRow(owner, queryId, logic.getLogicName(), fieldMap, cacheableQueryObject);
+                        loadRow(loader, row);
+                        columnarWriter = storeRow(columnarWriter, viewName, row);
                     }
                 }
             } // End of inserts into table
             
-            // commit the last batch
-            if (rowsWritten > 0) {
-                persistBatch(ps);
-                ps.clearBatch();
-                rowsWritten = 0;
+            // wait for the loaders to write the remaining rows
+            try {
+                loader.finish();
+            } catch (SQLException e) {
+                throw toLoadException(e);
             }
+            log.info("Cached results " + viewName + ": " + loader.getStatusMessage());
             
             // Dump the fieldMap for debugging
             if (log.isTraceEnabled()) {
@@ -685,6 +648,15 @@ public class CachedResultsBean {
             
             // Create the view of the table
             viewCreated = createView(tableName, viewName, con, viewCreated, fieldMap);
+            if (columnarWriter != null) {
+                try {
+                    columnarWriter.close(fieldMap);
+                } catch (IOException e) {
+                    log.warn("Unable to store cached results " + viewName + " by column", e);
+                    columnarWriter.abort();
+                }
+                columnarWriter = null;
+            }
             
             // create the CachedRunningQuery and store it under the originalQueryName, but do not activate it
             crq = new CachedRunningQuery(q, logic, viewName, alias, owner, viewName, cachedResultsConfiguration.getDefaultPageSize(), queryId,
@@ -774,6 +746,9 @@ public class CachedResultsBean {
                     DbUtils.closeQuietly(s);
                 }
             }
+            if (CachedRunningQuery.getColumnarStore() != null) {
+                CachedRunningQuery.getColumnarStore().remove(viewName);
+            }
             if (t instanceof Error && (t instanceof TokenMgrError) == false) {
                 throw (Error) t;
             }
@@ -789,7 +764,14 @@ public class CachedResultsBean {
             }
             throw new DatawaveWebApplicationException(t, response, statusCode);
         } finally {
-            DbUtils.closeQuietly(con, ps, null);
+            if (loader != null) {
+                loader.cancel();
+                CachedResultsBean.loaders.remove(viewName);
+            }
+            if (columnarWriter != null) {
+                columnarWriter.abort();
+            }
+            DbUtils.closeQuietly(con);
             if (queryLockedException == false) {
                 CachedResultsBean.loadingQueryMap.remove(queryId);
                 CachedResultsBean.loadingQueries.remove(queryId);
@@ -831,6 +813,62 @@ public class CachedResultsBean {
         }
     }
     
+    /**
+     * Returns the executor shared by the workers of all cached results loads, growing it to the requested pool size if it is smaller. The loads do not use the
+     * container's managed executor, which is shared with running queries, and the number of workers running or waiting for a thread is bounded by the pool
+     * size.
+     */
+    private static synchronized ExecutorService getLoaderExecutor(int poolSize) {
+        if (loaderExecutor == null) {
+            ThreadFactory threadFactory = new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+                
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "CachedResultsLoader-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            };
+            loaderExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(poolSize), threadFactory);
+            loaderExecutor.allowCoreThreadTimeOut(true);
+        } else if (poolSize > loaderExecutor.getMaximumPoolSize()) {
+            loaderExecutor.setMaximumPoolSize(poolSize);
+            loaderExecutor.setCorePoolSize(poolSize);
+        }
+        return loaderExecutor;
+    }
+    
+    private void loadRow(CachedResultsLoader loader, String[] row) throws QueryException, InterruptedException {
+        try {
+            loader.add(row);
+        } catch (SQLException e) {
+            throw toLoadException(e);
+        }
+    }
+    
+    private ColumnarResultsStore.Writer storeRow(ColumnarResultsStore.Writer columnarWriter, String viewName, String[] row) {
+        if (columnarWriter != null) {
+            try {
+                columnarWriter.add(row);
+            } catch (IOException e) {
+                // the view is still paged through the database
+                log.warn("Unable to store cached results " + viewName + " by column", e);
+                columnarWriter.abort();
+                return null;
+            }
+        }
+        return columnarWriter;
+    }
+    
+    private QueryException toLoadException(SQLException e) {
+        String msg = e.getMessage();
+        if (msg != null && msg.startsWith("Table") && msg.endsWith("doesn't exist")) {
+            return new QueryException(DatawaveErrorCode.CACHE_TABLE_MISSING, MessageFormat.format("message: {0}", msg));
+        }
+        return new QueryException(DatawaveErrorCode.CACHED_RESULTS_IMPORT_ERROR, e);
+    }
+    
     /**
      * Returns status of the requested cached result
      *
@@ -899,6 +937,12 @@ public class CachedResultsBean {
             response.addMessage(crq.getStatusMessage());
         }
         
+        // report the progress of a load running in this server
+        CachedResultsLoader loader = CachedResultsBean.loaders.get(crq.getView());
+        if (status == CachedRunningQuery.Status.LOADING && loader != null) {
+            response.addMessage(loader.getStatusMessage());
+        }
+        
         return response;
     }
     
@@ -920,37 +964,6 @@ public class CachedResultsBean {
         return dn;
     }
     
-    protected void persistBatch(PreparedStatement ps) throws SQLException {
-        int[] batchResults = null;
-        try {
-            batchResults = ps.executeBatch();
-            int failCount = 0;
-            for (int i = 0; i < batchResults.length; i++) {
-                if (batchResults[i] == Statement.EXECUTE_FAILED) {
-                    failCount++;
-                }
-            }
-            
-            if (failCount > 0) {
-                StringBuilder b = new StringBuilder();
-                for (int i = 0; i < batchResults.length; i++) {
-                    if (batchResults[i] == Statement.EXECUTE_FAILED) {
-                        b.append(i).append(" ");
-                    }
-                }
-                log.warn("Batch failed to perform " + failCount + " updates, indexes: " + b);
-            } else if (log.isDebugEnabled()) {
-                log.debug("Successfully persisted batch of size: " + batchResults.length + " total " + failCount + " failures");
-            }
-        } catch (BatchUpdateException be) {
-            log.warn("Caught BatchUpdateException, one or more batch update have failed: " + be.getMessage(), be);
-            throw be;
-        } catch (SQLException sqle) {
-            log.error("Error committing last batch", sqle);
-            throw sqle;
-        }
-    }
-    
     /**
      * Loads the results of the defined query, specified by query id, into a store that allows SQL queries to be run against it. This allows caller to sort and
      * group by attributes
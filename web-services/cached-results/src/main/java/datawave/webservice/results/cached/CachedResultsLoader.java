@@ -0,0 +1,398 @@
+package datawave.webservice.results.cached;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Loads rows into a cached results table. The thread paging through the query adds rows, which are handed off in batches to a pool of workers that each write
+ * to the table over their own connection, so that paging through the query is not held up by the database. When a bulk load statement is configured, each
+ * batch is streamed to the database as delimited text (e.g. MySQL's LOAD DATA LOCAL INFILE), otherwise the batch is written with a batched insert.
+ * <p>
+ * A row is an array of column values in the order of the columns of the insert statement. Trailing columns which are not in the array are null, and a row
+ * with more columns than the insert statement fails the load.
+ */
+public class CachedResultsLoader {
+    
+    private static final Logger log = Logger.getLogger(CachedResultsLoader.class);
+    
+    /**
+     * Replaced in the bulk load statement with the list of columns in the delimited text
+     */
+    public static final String COLUMNS = "$columns";
+    
+    private static final String FIELD = "field";
+    private static final String NULL = "\\N";
+    private static final String SET_INPUT_STREAM = "setLocalInfileInputStream";
+    private static final String GET_UNDERLYING_STATEMENT = "getUnderlyingStatement";
+    
+    // tells a worker that there are no more batches
+    private static final List<String[]> END = new ArrayList<>(0);
+    
+    private final DataSource ds;
+    private final ExecutorService executor;
+    private final String insert;
+    private final String bulkLoad;
+    private final List<String> fixedColumns;
+    private final int maxColumns;
+    private final int threads;
+    private final int rowsPerBatch;
+    private final BlockingQueue<List<String[]>> batches;
+    private final List<Future<Void>> workers = new ArrayList<>();
+    private final AtomicLong rowsLoaded = new AtomicLong();
+    private final AtomicBoolean bulkLoadSupported = new AtomicBoolean(true);
+    private volatile SQLException failure = null;
+    private volatile long startTime = 0;
+    private volatile long finishTime = 0;
+    private List<String[]> batch = null;
+    
+    /**
+     * @param ds
+     *            the data source from which each worker gets its connection
+     * @param executor
+     *            the executor on which the workers are run
+     * @param insert
+     *            the insert statement for the table, with a parameter for each of the columns
+     * @param bulkLoad
+     *            the bulk load statement for the table, or null to write batches with the insert statement
+     * @param fixedColumns
+     *            the names of the fixed columns, which precede the field columns
+     * @param maxFields
+     *            the number of field columns in the insert statement
+     * @param threads
+     *            the number of workers
+     * @param rowsPerBatch
+     *            the number of rows written at a time by a worker
+     */
+    public CachedResultsLoader(DataSource ds, ExecutorService executor, String insert, String bulkLoad, Collection<String> fixedColumns, int maxFields,
+                    int threads, int rowsPerBatch) {
+        this.ds = ds;
+        this.executor = executor;
+        this.insert = insert;
+        this.bulkLoad = (bulkLoad == null || bulkLoad.isEmpty()) ? null : bulkLoad;
+        this.fixedColumns = new ArrayList<>(fixedColumns);
+        this.maxColumns = fixedColumns.size() + maxFields;
+        this.threads = Math.max(1, threads);
+        this.rowsPerBatch = Math.max(1, rowsPerBatch);
+        this.batches = new ArrayBlockingQueue<>(this.threads * 2);
+    }
+    
+    /**
+     * Starts the workers. If the executor rejects some of the workers, the load continues with the workers it accepted.
+     * 
+     * @throws SQLException
+     *             if the executor rejected all of the workers
+     */
+    public void start() throws SQLException {
+        startTime = System.currentTimeMillis();
+        for (int i = 0; i < threads; i++) {
+            try {
+                workers.add(executor.submit(this::work));
+            } catch (RejectedExecutionException e) {
+                if (workers.isEmpty()) {
+                    throw new SQLException("Too many cached results loads are running", e);
+                }
+                log.warn("Started " + workers.size() + " of " + threads + " cached results loaders, too many cached results loads are running");
+                break;
+            }
+        }
+    }
+    
+    /**
+     * Adds a row, waiting if the workers have fallen behind
+     * 
+     * @param row
+     *            the column values
+     * @throws SQLException
+     *             if a worker has failed, or the row has more columns than the insert statement
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    public void add(String[] row) throws SQLException, InterruptedException {
+        if (row.length > maxColumns) {
+            String message = "Unable to load a row with " + (row.length - fixedColumns.size()) + " fields, the cached results table has "
+                            + (maxColumns - fixedColumns.size()) + " fields";
+            log.error(message);
+            throw new SQLException(message);
+        }
+        if (batch == null) {
+            batch = new ArrayList<>(rowsPerBatch);
+        }
+        batch.add(row);
+        if (batch.size() >= rowsPerBatch) {
+            enqueue(batch);
+            batch = null;
+        }
+    }
+    
+    /**
+     * Writes the remaining rows and waits for the workers to finish
+     * 
+     * @throws SQLException
+     *             if a worker failed
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    public void finish() throws SQLException, InterruptedException {
+        if (batch != null && !batch.isEmpty()) {
+            enqueue(batch);
+            batch = null;
+        }
+        for (int i = 0; i < workers.size(); i++) {
+            enqueue(END);
+        }
+        for (Future<Void> worker : workers) {
+            try {
+                worker.get();
+            } catch (ExecutionException e) {
+                checkFailure();
+                throw new SQLException(e.getCause());
+            }
+        }
+        finishTime = System.currentTimeMillis();
+    }
+    
+    /**
+     * Discards any rows which have not been written and stops the workers. Has no effect once the load has finished.
+     */
+    public void cancel() {
+        batches.clear();
+        for (Future<Void> worker : workers) {
+            worker.cancel(true);
+        }
+    }
+    
+    public long getRowsLoaded() {
+        return rowsLoaded.get();
+    }
+    
+    public long getRowsPerSecond() {
+        long end = (finishTime == 0) ? System.currentTimeMillis() : finishTime;
+        long elapsed = Math.max(1, end - startTime);
+        return (rowsLoaded.get() * 1000) / elapsed;
+    }
+    
+    public String getStatusMessage() {
+        return "Loaded " + getRowsLoaded() + " rows (" + getRowsPerSecond() + " rows/sec)";
+    }
+    
+    private void enqueue(List<String[]> rows) throws SQLException, InterruptedException {
+        checkFailure();
+        while (!batches.offer(rows, 1, TimeUnit.SECONDS)) {
+            checkFailure();
+        }
+    }
+    
+    private void checkFailure() throws SQLException {
+        if (failure != null) {
+            throw failure;
+        }
+        boolean running = false;
+        for (Future<Void> worker : workers) {
+            running |= !worker.isDone();
+        }
+        if (!running) {
+            throw new SQLException("No cached results loaders are running");
+        }
+    }
+    
+    private Void work() throws Exception {
+        PreparedStatement ps = null;
+        Statement s = null;
+        try (Connection con = ds.getConnection()) {
+            List<String[]> rows;
+            while ((rows = batches.take()) != END) {
+                boolean written = false;
+                if (bulkLoad != null && bulkLoadSupported.get()) {
+                    if (s == null) {
+                        s = con.createStatement();
+                    }
+                    written = writeBulk(s, rows);
+                }
+                if (!written) {
+                    if (ps == null) {
+                        ps = con.prepareStatement(insert);
+                    }
+                    writeBatch(ps, rows);
+                }
+                rowsLoaded.addAndGet(rows.size());
+            }
+        } catch (SQLException e) {
+            failure = e;
+            throw e;
+        } finally {
+            close(s);
+            close(ps);
+        }
+        return null;
+    }
+    
+    private void writeBatch(PreparedStatement ps, List<String[]> rows) throws SQLException {
+        for (String[] row : rows) {
+            for (int i = 0; i < maxColumns; i++) {
+                if (i < row.length && row[i] != null) {
+                    ps.setString(i + 1, row[i]);
+                } else {
+                    ps.setNull(i + 1, Types.VARCHAR);
+                }
+            }
+            ps.addBatch();
+        }
+        int[] batchResults = ps.executeBatch();
+        ps.clearBatch();
+        int failCount = 0;
+        for (int result : batchResults) {
+            if (result == Statement.EXECUTE_FAILED) {
+                failCount++;
+            }
+        }
+        if (failCount > 0) {
+            log.warn("Batch failed to perform " + failCount + " of " + batchResults.length + " updates");
+        } else if (log.isDebugEnabled()) {
+            log.debug("Successfully persisted batch of size: " + batchResults.length);
+        }
+    }
+    
+    private boolean writeBulk(Statement s, List<String[]> rows) throws SQLException {
+        int columns = 0;
+        for (String[] row : rows) {
+            columns = Math.max(columns, row.length);
+        }
+        if (!setInputStream(s, new ByteArrayInputStream(toDelimitedText(rows, columns)))) {
+            if (bulkLoadSupported.getAndSet(false)) {
+                log.warn("The cached results driver does not support streaming a bulk load, falling back to batched inserts");
+            }
+            return false;
+        }
+        s.execute(bulkLoad.replace(COLUMNS, getColumnList(columns)));
+        if (log.isDebugEnabled()) {
+            log.debug("Successfully bulk loaded batch of size: " + rows.size());
+        }
+        return true;
+    }
+    
+    String getColumnList(int columns) {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < columns; i++) {
+            if (i > 0) {
+                b.append(", ");
+            }
+            b.append(i < fixedColumns.size() ? fixedColumns.get(i) : FIELD + (i - fixedColumns.size()));
+        }
+        return b.toString();
+    }
+    
+    /**
+     * Formats rows as comma separated, double quoted values with backslash escapes and \N for nulls, one row per line
+     * 
+     * @param rows
+     *            the rows
+     * @param columns
+     *            the number of columns in each line
+     * @return the UTF-8 encoded text
+     */
+    static byte[] toDelimitedText(List<String[]> rows, int columns) {
+        StringBuilder b = new StringBuilder();
+        for (String[] row : rows) {
+            for (int i = 0; i < columns; i++) {
+                if (i > 0) {
+                    b.append(',');
+                }
+                String value = (i < row.length) ? row[i] : null;
+                if (value == null) {
+                    b.append(NULL);
+                    continue;
+                }
+                b.append('"');
+                for (int j = 0; j < value.length(); j++) {
+                    char c = value.charAt(j);
+                    switch (c) {
+                        case '"':
+                        case '\\':
+                            b.append('\\').append(c);
+                            break;
+                        case '\n':
+                            b.append("\\n");
+                            break;
+                        case '\r':
+                            b.append("\\r");
+                            break;
+                        case '\0':
+                            b.append("\\0");
+                            break;
+                        default:
+                            b.append(c);
+                    }
+                }
+                b.append('"');
+            }
+            b.append('\n');
+        }
+        return b.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Sets the stream read by the next bulk load on the statement, unwrapping the statement if it has been wrapped by the container's connection pool
+     * 
+     * @return false if the driver does not support streaming a bulk load
+     */
+    private static boolean setInputStream(Statement s, InputStream in) throws SQLException {
+        Object statement = s;
+        while (statement != null) {
+            try {
+                Method method = statement.getClass().getMethod(SET_INPUT_STREAM, InputStream.class);
+                method.invoke(statement, in);
+                return true;
+            } catch (NoSuchMethodException e) {
+                statement = getUnderlyingStatement(statement);
+            } catch (InvocationTargetException e) {
+                throw new SQLException(e.getCause());
+            } catch (ReflectiveOperationException e) {
+                throw new SQLException(e);
+            }
+        }
+        return false;
+    }
+    
+    private static Object getUnderlyingStatement(Object statement) {
+        try {
+            Object underlying = statement.getClass().getMethod(GET_UNDERLYING_STATEMENT).invoke(statement);
+            return (underlying == statement) ? null : underlying;
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+    
+    private static void close(Statement s) {
+        if (s != null) {
+            try {
+                s.close();
+            } catch (SQLException e) {
+                log.debug("Error closing statement", e);
+            }
+        }
+    }
+}
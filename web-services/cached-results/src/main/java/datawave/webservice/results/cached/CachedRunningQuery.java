@@ -49,6 +49,7 @@ public class CachedRunningQuery extends AbstractRunningQuery {
     private static Logger log = Logger.getLogger(CachedRunningQuery.class);
     
     private static DataSource datasource = null;
+    private static ColumnarResultsStore columnarStore = null;
     
     private static final long serialVersionUID = 1L;
     
@@ -56,6 +57,11 @@ public class CachedRunningQuery extends AbstractRunningQuery {
     private transient Connection connection = null;
     private transient CachedRowSet crs = null;
     private transient Statement statement = null;
+    // the rows selected from the columnar store, used instead of the crs when the query can be evaluated over the stored columns
+    private transient ColumnarResults.Selection selection = null;
+    // the selection in the default order, used by getRows when the query has no order and selected once per query
+    private transient ColumnarResults.Selection defaultOrderSelection = null;
+    private transient int selectionPage = 0;
     
     private transient CacheableLogic cacheableLogic = null;
     private transient QueryLogic<?> queryLogic = null;
@@ -542,7 +548,7 @@ public class CachedRunningQuery extends AbstractRunningQuery {
     }
     
     public boolean isActivated() {
-        if (this.connection != null && this.statement != null && this.crs != null) {
+        if (this.connection != null && this.statement != null && (this.crs != null || this.selection != null)) {
             return true;
         } else {
             return false;
@@ -604,6 +610,19 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         this.sqlQuery = this.generateSql(this.view, this.fields, this.conditions, this.grouping, this.order, this.user, this.connection);
         this.getMetric().setQuery(sqlQuery);
         
+        this.selection = selectColumnar(this.order);
+        this.defaultOrderSelection = null;
+        if (this.selection != null) {
+            this.crs = null;
+            this.totalRows = this.selection.size();
+            this.selectionPage = 0;
+            this.currentRow = position.BEFORE_FIRST;
+            if (log.isTraceEnabled()) {
+                log.trace("Selected " + this.totalRows + " rows of " + this.view + " from the columnar store");
+            }
+            return;
+        }
+        
         this.crs = RowSetProvider.newFactory().createCachedRowSet();
         this.crs.setCommand(this.sqlQuery);
         
@@ -633,6 +652,22 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         this.currentRow = position.BEFORE_FIRST;
     }
     
+    /**
+     * Selects the rows of the query from the columnar store
+     * 
+     * @param order
+     *            the order of the rows
+     * @return the selection, or null if the view is not in the store or the query can not be evaluated over the stored columns
+     */
+    private ColumnarResults.Selection selectColumnar(String order) {
+        ColumnarResultsStore store = CachedRunningQuery.columnarStore;
+        ColumnarResults results = (store == null) ? null : store.open(this.view);
+        if (results == null) {
+            return null;
+        }
+        return results.select(this.fields, this.conditions, this.grouping, order, this.user);
+    }
+    
     public String getUser() {
         return this.user;
     }
@@ -659,6 +694,25 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         ResultsPage resultList;
         int pagesize = (rowEnd - rowBegin) + 1;
         
+        if (this.selection != null) {
+            ColumnarResults.Selection rows = this.selection;
+            if (StringUtils.isBlank(this.order)) {
+                if (this.defaultOrderSelection == null) {
+                    this.defaultOrderSelection = selectColumnar(DEFAULT_ORDER_BY.replace(" ORDER BY ", ""));
+                }
+                rows = this.defaultOrderSelection;
+            }
+            if (rows != null) {
+                try (CachedRowSet crs = rows.getRows(rowBegin - 1, pagesize)) {
+                    resultList = convert(crs, pageByteTrigger);
+                }
+                long now = System.currentTimeMillis();
+                this.getMetric().addPageTime(resultList.getResults().size(), (now - pageStartTime), pageStartTime, now);
+                updateTimestamp();
+                return resultList;
+            }
+        }
+        
         try (PreparedStatement ps = connection.prepareStatement(query.toString()); CachedRowSet crs = RowSetProvider.newFactory().createCachedRowSet()) {
             log.debug("Get Rows query: " + query);
             
@@ -680,6 +734,15 @@ public class CachedRunningQuery extends AbstractRunningQuery {
     
     private boolean nextPageOfResults() {
         
+        if (this.selection != null) {
+            if (currentRow == position.BEFORE_FIRST) {
+                this.selectionPage = 0;
+            } else {
+                this.selectionPage = Math.min(this.selectionPage + 1, getSelectionPages());
+            }
+            return this.selectionPage < getSelectionPages();
+        }
+        
         boolean hasRows = false;
         if (this.totalRows > 0) {
             if (currentRow == position.BEFORE_FIRST) {
@@ -702,6 +765,11 @@ public class CachedRunningQuery extends AbstractRunningQuery {
     
     private boolean previousPageOfResults() {
         
+        if (this.selection != null) {
+            this.selectionPage = Math.max(this.selectionPage - 1, -1);
+            return this.selectionPage >= 0 && this.selectionPage < getSelectionPages();
+        }
+        
         boolean hasRows = false;
         if (this.totalRows > 0) {
             try {
@@ -736,7 +804,7 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         
         ResultsPage resultList = new ResultsPage();
         if (nextPageOfResults()) {
-            resultList = convert(this.crs, pageByteTrigger);
+            resultList = convert(getCurrentPage(), pageByteTrigger);
         }
         
         if (!resultList.getResults().isEmpty()) {
@@ -774,7 +842,7 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         
         ResultsPage resultList = new ResultsPage();
         if (previousPageOfResults()) {
-            resultList = convert(this.crs, pageByteTrigger);
+            resultList = convert(getCurrentPage(), pageByteTrigger);
         }
         
         if (!resultList.getResults().isEmpty()) {
@@ -793,6 +861,17 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         return resultList;
     }
     
+    private int getSelectionPages() {
+        return (int) Math.ceil((double) this.selection.size() / this.pagesize);
+    }
+    
+    private CachedRowSet getCurrentPage() throws SQLException {
+        if (this.selection != null) {
+            return this.selection.getRows(this.selectionPage * this.pagesize, this.pagesize);
+        }
+        return this.crs;
+    }
+    
     @Override
     public long getLastPageNumber() {
         return this.lastPageNumber;
@@ -867,6 +946,8 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         this.connection = null;
         this.statement = null;
         this.crs = null;
+        this.selection = null;
+        this.defaultOrderSelection = null;
     }
     
     public Connection getConnection() {
@@ -1216,6 +1297,14 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         return crq;
     }
     
+    public static ColumnarResultsStore getColumnarStore() {
+        return CachedRunningQuery.columnarStore;
+    }
+    
+    public static void setColumnarStore(ColumnarResultsStore columnarStore) {
+        CachedRunningQuery.columnarStore = columnarStore;
+    }
+    
     public static void setDatasource(DataSource datasource) {
         CachedRunningQuery.datasource = datasource;
     }
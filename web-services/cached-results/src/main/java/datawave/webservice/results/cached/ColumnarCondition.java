@@ -0,0 +1,429 @@
+package datawave.webservice.results.cached;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A condition of a cached results query evaluated over the columns of {@link ColumnarResults}. The supported conditions are comparisons of a column with a
+ * literal ({@code =, !=, <>, <, <=, >, >=}), {@code [NOT] LIKE}, {@code IS [NOT] NULL} and {@code [NOT] IN}, combined with {@code AND}, {@code OR}, {@code NOT}
+ * and parentheses. Conditions are evaluated with SQL's three valued logic, where null is unknown. Any other condition is rejected with an
+ * {@link IllegalArgumentException} so that the query is run by the database instead.
+ */
+public abstract class ColumnarCondition {
+    
+    private static final List<String> OPERATORS = Arrays.asList("=", "!=", "<>", "<", "<=", ">", ">=");
+    private static final Pattern NUMBER = Pattern.compile("^\\s*[-+]?(\\d+\\.?\\d*|\\.\\d+)([eE][-+]?\\d+)?");
+    
+    /**
+     * @param row
+     *            the row
+     * @return whether the row matches the condition, or null if it is unknown
+     */
+    public abstract Boolean evaluate(int row);
+    
+    /**
+     * Parses a condition
+     * 
+     * @param conditions
+     *            the conditions of a cached results query
+     * @param results
+     *            the view whose columns are referenced by the conditions
+     * @return the condition
+     * @throws IllegalArgumentException
+     *             if the conditions are not supported
+     */
+    public static ColumnarCondition parse(String conditions, ColumnarResults results) {
+        Parser parser = new Parser(tokenize(conditions), results);
+        ColumnarCondition condition = parser.parseOr();
+        if (parser.hasNext()) {
+            throw new IllegalArgumentException("Unexpected " + parser.peek().text);
+        }
+        return condition;
+    }
+    
+    private enum Type {
+        IDENTIFIER, QUOTED_IDENTIFIER, STRING, NUMBER, OPERATOR, LPAREN, RPAREN, COMMA
+    }
+    
+    private static class Token {
+        private final Type type;
+        private final String text;
+        
+        private Token(Type type, String text) {
+            this.type = type;
+            this.text = text;
+        }
+        
+        private boolean is(String keyword) {
+            return type == Type.IDENTIFIER && text.equalsIgnoreCase(keyword);
+        }
+    }
+    
+    private static List<Token> tokenize(String conditions) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < conditions.length()) {
+            char c = conditions.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(' || c == ')' || c == ',') {
+                tokens.add(new Token(c == '(' ? Type.LPAREN : (c == ')' ? Type.RPAREN : Type.COMMA), String.valueOf(c)));
+                i++;
+            } else if (c == '\'' || c == '"' || c == '`') {
+                StringBuilder value = new StringBuilder();
+                i++;
+                while (true) {
+                    if (i >= conditions.length()) {
+                        throw new IllegalArgumentException("Unterminated quote");
+                    }
+                    char next = conditions.charAt(i++);
+                    if (next == c) {
+                        // a doubled quote is a quote
+                        if (i < conditions.length() && conditions.charAt(i) == c) {
+                            value.append(c);
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else if (next == '\\' && c != '`' && i < conditions.length()) {
+                        value.append(unescape(conditions.charAt(i++)));
+                    } else {
+                        value.append(next);
+                    }
+                }
+                tokens.add(new Token(c == '`' ? Type.QUOTED_IDENTIFIER : Type.STRING, value.toString()));
+            } else if ("=<>!".indexOf(c) >= 0) {
+                int start = i++;
+                if (i < conditions.length() && "=>".indexOf(conditions.charAt(i)) >= 0) {
+                    i++;
+                }
+                String operator = conditions.substring(start, i);
+                if (!OPERATORS.contains(operator)) {
+                    throw new IllegalArgumentException("Unsupported operator " + operator);
+                }
+                tokens.add(new Token(Type.OPERATOR, operator));
+            } else if (Character.isDigit(c) || c == '.' || ((c == '-' || c == '+') && isDigit(conditions, i + 1))) {
+                Matcher matcher = NUMBER.matcher(conditions.substring(i));
+                if (!matcher.find()) {
+                    throw new IllegalArgumentException("Invalid number");
+                }
+                tokens.add(new Token(Type.NUMBER, matcher.group()));
+                i += matcher.end();
+            } else if (Character.isLetter(c) || c == '_') {
+                int start = i;
+                while (i < conditions.length() && isIdentifierPart(conditions.charAt(i))) {
+                    i++;
+                }
+                tokens.add(new Token(Type.IDENTIFIER, conditions.substring(start, i)));
+            } else {
+                throw new IllegalArgumentException("Unsupported character " + c);
+            }
+        }
+        return tokens;
+    }
+    
+    private static boolean isDigit(String conditions, int i) {
+        return i < conditions.length() && Character.isDigit(conditions.charAt(i));
+    }
+    
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.';
+    }
+    
+    private static char unescape(char c) {
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case '0':
+                return '\0';
+            default:
+                return c;
+        }
+    }
+    
+    private static class Parser {
+        private final List<Token> tokens;
+        private final ColumnarResults results;
+        private int next = 0;
+        
+        private Parser(List<Token> tokens, ColumnarResults results) {
+            this.tokens = tokens;
+            this.results = results;
+        }
+        
+        private boolean hasNext() {
+            return next < tokens.size();
+        }
+        
+        private Token peek() {
+            if (!hasNext()) {
+                throw new IllegalArgumentException("Unexpected end of conditions");
+            }
+            return tokens.get(next);
+        }
+        
+        private Token take() {
+            Token token = peek();
+            next++;
+            return token;
+        }
+        
+        private boolean accept(String keyword) {
+            if (hasNext() && peek().is(keyword)) {
+                next++;
+                return true;
+            }
+            return false;
+        }
+        
+        private void expect(Type type) {
+            if (take().type != type) {
+                throw new IllegalArgumentException("Expected " + type);
+            }
+        }
+        
+        private ColumnarCondition parseOr() {
+            List<ColumnarCondition> conditions = new ArrayList<>();
+            conditions.add(parseAnd());
+            while (accept("OR")) {
+                conditions.add(parseAnd());
+            }
+            return conditions.size() == 1 ? conditions.get(0) : new Or(conditions);
+        }
+        
+        private ColumnarCondition parseAnd() {
+            List<ColumnarCondition> conditions = new ArrayList<>();
+            conditions.add(parseNot());
+            while (accept("AND")) {
+                conditions.add(parseNot());
+            }
+            return conditions.size() == 1 ? conditions.get(0) : new And(conditions);
+        }
+        
+        private ColumnarCondition parseNot() {
+            if (accept("NOT")) {
+                return new Not(parseNot());
+            }
+            if (peek().type == Type.LPAREN) {
+                take();
+                ColumnarCondition condition = parseOr();
+                expect(Type.RPAREN);
+                return condition;
+            }
+            return parseComparison();
+        }
+        
+        private ColumnarCondition parseComparison() {
+            Token column = take();
+            if (column.type != Type.IDENTIFIER && column.type != Type.QUOTED_IDENTIFIER) {
+                throw new IllegalArgumentException("Expected a column but found " + column.text);
+            }
+            int position = results.getPosition(column.text);
+            if (position < 0) {
+                throw new IllegalArgumentException("Unknown column " + column.text);
+            }
+            String[] values = results.getColumn(position);
+            
+            if (accept("IS")) {
+                boolean not = accept("NOT");
+                if (!accept("NULL")) {
+                    throw new IllegalArgumentException("Expected NULL");
+                }
+                return new IsNull(values, not);
+            }
+            boolean not = accept("NOT");
+            if (accept("LIKE")) {
+                Token pattern = take();
+                if (pattern.type != Type.STRING) {
+                    throw new IllegalArgumentException("Expected a pattern");
+                }
+                ColumnarCondition like = new Like(values, pattern.text);
+                return not ? new Not(like) : like;
+            }
+            if (accept("IN")) {
+                expect(Type.LPAREN);
+                List<ColumnarCondition> equals = new ArrayList<>();
+                equals.add(new Compare(values, "=", parseLiteral()));
+                while (hasNext() && peek().type == Type.COMMA) {
+                    take();
+                    equals.add(new Compare(values, "=", parseLiteral()));
+                }
+                expect(Type.RPAREN);
+                ColumnarCondition in = new Or(equals);
+                return not ? new Not(in) : in;
+            }
+            if (not) {
+                throw new IllegalArgumentException("Expected LIKE or IN");
+            }
+            Token operator = take();
+            if (operator.type != Type.OPERATOR) {
+                throw new IllegalArgumentException("Expected an operator but found " + operator.text);
+            }
+            return new Compare(values, operator.text, parseLiteral());
+        }
+        
+        private Token parseLiteral() {
+            Token literal = take();
+            if (literal.type != Type.STRING && literal.type != Type.NUMBER) {
+                throw new IllegalArgumentException("Expected a literal but found " + literal.text);
+            }
+            return literal;
+        }
+    }
+    
+    private static class And extends ColumnarCondition {
+        private final List<ColumnarCondition> conditions;
+        
+        private And(List<ColumnarCondition> conditions) {
+            this.conditions = conditions;
+        }
+        
+        @Override
+        public Boolean evaluate(int row) {
+            Boolean result = Boolean.TRUE;
+            for (ColumnarCondition condition : conditions) {
+                Boolean value = condition.evaluate(row);
+                if (Boolean.FALSE.equals(value)) {
+                    return Boolean.FALSE;
+                } else if (value == null) {
+                    result = null;
+                }
+            }
+            return result;
+        }
+    }
+    
+    private static class Or extends ColumnarCondition {
+        private final List<ColumnarCondition> conditions;
+        
+        private Or(List<ColumnarCondition> conditions) {
+            this.conditions = conditions;
+        }
+        
+        @Override
+        public Boolean evaluate(int row) {
+            Boolean result = Boolean.FALSE;
+            for (ColumnarCondition condition : conditions) {
+                Boolean value = condition.evaluate(row);
+                if (Boolean.TRUE.equals(value)) {
+                    return Boolean.TRUE;
+                } else if (value == null) {
+                    result = null;
+                }
+            }
+            return result;
+        }
+    }
+    
+    private static class Not extends ColumnarCondition {
+        private final ColumnarCondition condition;
+        
+        private Not(ColumnarCondition condition) {
+            this.condition = condition;
+        }
+        
+        @Override
+        public Boolean evaluate(int row) {
+            Boolean value = condition.evaluate(row);
+            return (value == null) ? null : !value;
+        }
+    }
+    
+    private static class IsNull extends ColumnarCondition {
+        private final String[] values;
+        private final boolean not;
+        
+        private IsNull(String[] values, boolean not) {
+            this.values = values;
+            this.not = not;
+        }
+        
+        @Override
+        public Boolean evaluate(int row) {
+            return (values[row] == null) != not;
+        }
+    }
+    
+    private static class Like extends ColumnarCondition {
+        private final String[] values;
+        private final Pattern pattern;
+        
+        private Like(String[] values, String like) {
+            this.values = values;
+            StringBuilder regex = new StringBuilder();
+            for (int i = 0; i < like.length(); i++) {
+                char c = like.charAt(i);
+                if (c == '%') {
+                    regex.append(".*");
+                } else if (c == '_') {
+                    regex.append('.');
+                } else if (c == '\\' && i + 1 < like.length()) {
+                    regex.append(Pattern.quote(String.valueOf(like.charAt(++i))));
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            this.pattern = Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.DOTALL);
+        }
+        
+        @Override
+        public Boolean evaluate(int row) {
+            String value = values[row];
+            return (value == null) ? null : pattern.matcher(value).matches();
+        }
+    }
+    
+    private static class Compare extends ColumnarCondition {
+        private final String[] values;
+        private final String operator;
+        private final String literal;
+        private final Double number;
+        
+        private Compare(String[] values, String operator, Token literal) {
+            this.values = values;
+            this.operator = operator;
+            this.literal = literal.text;
+            // a column compared with a number is compared numerically
+            this.number = (literal.type == Type.NUMBER) ? Double.valueOf(literal.text) : null;
+        }
+        
+        @Override
+        public Boolean evaluate(int row) {
+            String value = values[row];
+            if (value == null) {
+                return null;
+            }
+            int compare = (number == null) ? ColumnarResults.compare(value, literal) : Double.compare(toNumber(value), number);
+            switch (operator) {
+                case "=":
+                    return compare == 0;
+                case "!=":
+                case "<>":
+                    return compare != 0;
+                case "<":
+                    return compare < 0;
+                case "<=":
+                    return compare <= 0;
+                case ">":
+                    return compare > 0;
+                case ">=":
+                    return compare >= 0;
+                default:
+                    throw new IllegalArgumentException("Unsupported operator " + operator);
+            }
+        }
+        
+        // as with MySQL, the leading number of a value, or 0 if it does not start with a number
+        private static double toNumber(String value) {
+            Matcher matcher = NUMBER.matcher(value);
+            return matcher.find() ? Double.parseDouble(matcher.group().trim()) : 0;
+        }
+    }
+}
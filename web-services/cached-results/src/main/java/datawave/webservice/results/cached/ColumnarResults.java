@@ -0,0 +1,380 @@
+package datawave.webservice.results.cached;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * A view of cached results stored by the {@link ColumnarResultsStore}. Columns are read from disk the first time they are used, and the sort index of a column,
+ * which holds the rank of each row's value, is built the first time the view is ordered by that column and saved alongside it.
+ * <p>
+ * A selection supports the subset of the SQL accepted by {@link CachedRunningQuery} that can be evaluated over the columns: a projection of columns, the
+ * conditions supported by {@link ColumnarCondition}, and ordering by columns. Values are compared as MySQL compares them with its default collation, that is
+ * case insensitively, with nulls first.
+ */
+public class ColumnarResults {
+    
+    private static final Logger log = Logger.getLogger(ColumnarResults.class);
+    
+    private static final String USER_COLUMN = "_user_";
+    private static final String DESC = "DESC";
+    private static final String ASC = "ASC";
+    // the number of distinct values of a column which share a single instance
+    private static final int MAX_DICTIONARY_SIZE = 1 << 16;
+    
+    private final File dir;
+    private final int rows;
+    private final int fixedColumns;
+    private final List<String> names = new ArrayList<>();
+    private final Map<String,Integer> positions = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final List<Integer> files = new ArrayList<>();
+    private final String[][] columns;
+    private final int[][] ranks;
+    
+    ColumnarResults(File dir) throws IOException {
+        this.dir = dir;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(new File(dir, ColumnarResultsStore.COLUMNS_FILE)),
+                        StandardCharsets.UTF_8))) {
+            // the number of rows and the number of fixed columns, followed by the file and name of each column
+            String[] header = in.readLine().split("\t");
+            this.rows = Integer.parseInt(header[0]);
+            this.fixedColumns = Integer.parseInt(header[1]);
+            String line;
+            while ((line = in.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                files.add(Integer.parseInt(line.substring(0, tab)));
+                positions.put(line.substring(tab + 1), names.size());
+                names.add(line.substring(tab + 1));
+            }
+        }
+        this.columns = new String[names.size()][];
+        this.ranks = new int[names.size()][];
+    }
+    
+    public int size() {
+        return rows;
+    }
+    
+    public List<String> getColumnNames() {
+        return Collections.unmodifiableList(names);
+    }
+    
+    /**
+     * @param name
+     *            a column name
+     * @return the position of the column in the view, or -1 if there is no such column
+     */
+    public int getPosition(String name) {
+        Integer position = positions.get(name);
+        return (position == null) ? -1 : position;
+    }
+    
+    /**
+     * Gets the values of a column, reading it if it is not already in memory
+     * 
+     * @param position
+     *            the position of the column in the view
+     * @return the value of each row
+     */
+    public synchronized String[] getColumn(int position) {
+        if (columns[position] == null) {
+            File file = new File(dir, files.get(position) + ColumnarResultsStore.COLUMN_FILE_SUFFIX);
+            String[] values = new String[rows];
+            if (file.isFile()) {
+                Map<String,String> dictionary = new HashMap<>();
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+                    for (int row = 0; row < rows; row++) {
+                        int length = in.readInt();
+                        if (length != ColumnarResultsStore.NULL_LENGTH) {
+                            byte[] bytes = new byte[length];
+                            in.readFully(bytes);
+                            String value = new String(bytes, StandardCharsets.UTF_8);
+                            String shared = dictionary.get(value);
+                            if (shared != null) {
+                                value = shared;
+                            } else if (dictionary.size() < MAX_DICTIONARY_SIZE) {
+                                dictionary.put(value, value);
+                            }
+                            values[row] = value;
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException("Unable to read cached results column " + file, e);
+                }
+            }
+            columns[position] = values;
+        }
+        return columns[position];
+    }
+    
+    /**
+     * Gets the sort index of a column, reading or building it if it is not already in memory
+     * 
+     * @param position
+     *            the position of the column in the view
+     * @return the rank of the value of each row, where equal values have equal ranks and nulls rank first
+     */
+    public synchronized int[] getRanks(int position) {
+        if (ranks[position] == null) {
+            File file = new File(dir, files.get(position) + ColumnarResultsStore.RANK_FILE_SUFFIX);
+            if (file.isFile()) {
+                try {
+                    ranks[position] = readRanks(file);
+                } catch (IOException e) {
+                    log.warn("Unable to read cached results sort index " + file + ", rebuilding it", e);
+                }
+            }
+            if (ranks[position] == null) {
+                ranks[position] = buildRanks(getColumn(position));
+                try {
+                    writeRanks(file, ranks[position]);
+                } catch (IOException e) {
+                    log.warn("Unable to save cached results sort index " + file, e);
+                }
+            }
+        }
+        return ranks[position];
+    }
+    
+    /**
+     * Selects rows from the view
+     * 
+     * @return the selection, or null if the fields, conditions, grouping or order can not be evaluated over the columns
+     */
+    public Selection select(String fields, String conditions, String grouping, String order, String user) {
+        if (StringUtils.isNotBlank(grouping)) {
+            return null;
+        }
+        try {
+            int[] projection = getProjection(fields);
+            ColumnarCondition condition = StringUtils.isBlank(conditions) ? null : ColumnarCondition.parse(conditions, this);
+            List<int[]> sortRanks = new ArrayList<>();
+            List<Boolean> descending = new ArrayList<>();
+            if (StringUtils.isNotBlank(order)) {
+                for (String key : StringUtils.split(order, ',')) {
+                    String[] parts = StringUtils.split(key.replace("`", "").trim());
+                    boolean knownDirection = parts.length == 2 && (parts[1].equalsIgnoreCase(ASC) || parts[1].equalsIgnoreCase(DESC));
+                    if (key.contains("(") || parts.length == 0 || parts.length > 2 || (parts.length == 2 && !knownDirection)) {
+                        return null;
+                    }
+                    int position = getPosition(parts[0]);
+                    if (position < 0) {
+                        return null;
+                    }
+                    sortRanks.add(getRanks(position));
+                    descending.add(parts.length == 2 && parts[1].equalsIgnoreCase(DESC));
+                }
+            }
+            
+            String[] users = getColumn(getPosition(USER_COLUMN));
+            int[] selected = new int[rows];
+            int count = 0;
+            for (int row = 0; row < rows; row++) {
+                if (user.equals(users[row]) && (condition == null || Boolean.TRUE.equals(condition.evaluate(row)))) {
+                    selected[count++] = row;
+                }
+            }
+            selected = Arrays.copyOf(selected, count);
+            if (!sortRanks.isEmpty()) {
+                selected = sort(selected, sortRanks, descending);
+            }
+            return new Selection(selected, projection);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            log.debug("Unable to evaluate cached results query over the stored columns: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    private int[] getProjection(String fields) {
+        List<Integer> projection = new ArrayList<>();
+        Set<String> requested = new LinkedHashSet<>();
+        if (StringUtils.isNotBlank(fields)) {
+            for (String field : StringUtils.split(fields, ',')) {
+                if (field.contains("(")) {
+                    throw new IllegalArgumentException("Functions are not supported");
+                }
+                requested.add(field.replace("`", "").trim());
+            }
+        }
+        if (requested.isEmpty() || requested.remove("*")) {
+            for (int i = 0; i < names.size(); i++) {
+                projection.add(i);
+            }
+        } else {
+            // the fixed columns are always selected
+            for (int i = 0; i < fixedColumns; i++) {
+                projection.add(i);
+                requested.remove(names.get(i));
+            }
+        }
+        for (String field : requested) {
+            int position = getPosition(field);
+            if (position < 0) {
+                throw new IllegalArgumentException("Unknown field " + field);
+            }
+            projection.add(position);
+        }
+        int[] positions = new int[projection.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = projection.get(i);
+        }
+        return positions;
+    }
+    
+    private static int[] sort(int[] selected, final List<int[]> sortRanks, final List<Boolean> descending) {
+        Integer[] sorted = new Integer[selected.length];
+        for (int i = 0; i < selected.length; i++) {
+            sorted[i] = selected[i];
+        }
+        Arrays.sort(sorted, (a, b) -> {
+            for (int k = 0; k < sortRanks.size(); k++) {
+                int[] rank = sortRanks.get(k);
+                int compare = Integer.compare(rank[a], rank[b]);
+                if (compare != 0) {
+                    return descending.get(k) ? -compare : compare;
+                }
+            }
+            return Integer.compare(a, b);
+        });
+        int[] result = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            result[i] = sorted[i];
+        }
+        return result;
+    }
+    
+    static int[] buildRanks(final String[] values) {
+        Integer[] sorted = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, (a, b) -> compare(values[a], values[b]));
+        int[] rank = new int[values.length];
+        int current = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i > 0 && compare(values[sorted[i - 1]], values[sorted[i]]) != 0) {
+                current++;
+            }
+            rank[sorted[i]] = current;
+        }
+        return rank;
+    }
+    
+    static int compare(String a, String b) {
+        if (a == null || b == null) {
+            return (a == null) ? ((b == null) ? 0 : -1) : 1;
+        }
+        return String.CASE_INSENSITIVE_ORDER.compare(a, b);
+    }
+    
+    private int[] readRanks(File file) throws IOException {
+        int[] rank = new int[rows];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+            for (int row = 0; row < rows; row++) {
+                rank[row] = in.readInt();
+            }
+        }
+        return rank;
+    }
+    
+    private static void writeRanks(File file, int[] rank) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tmp))))) {
+            for (int value : rank) {
+                out.writeInt(value);
+            }
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Unable to rename " + tmp + " to " + file);
+        }
+    }
+    
+    /**
+     * The rows selected from the view, in order
+     */
+    public class Selection {
+        
+        private final int[] selected;
+        private final int[] projection;
+        
+        private Selection(int[] selected, int[] projection) {
+            this.selected = selected;
+            this.projection = projection;
+        }
+        
+        public int size() {
+            return selected.length;
+        }
+        
+        /**
+         * Gets a page of the selected rows
+         * 
+         * @param start
+         *            the index of the first row, starting from 0
+         * @param count
+         *            the maximum number of rows
+         * @return the projected columns of the rows
+         * @throws SQLException
+         *             if the row set can not be populated
+         */
+        public CachedRowSet getRows(int start, int count) throws SQLException {
+            RowSetMetaDataImpl metadata = new RowSetMetaDataImpl();
+            metadata.setColumnCount(projection.length);
+            String[][] values = new String[projection.length][];
+            for (int i = 0; i < projection.length; i++) {
+                metadata.setColumnName(i + 1, names.get(projection[i]));
+                metadata.setColumnLabel(i + 1, names.get(projection[i]));
+                metadata.setColumnType(i + 1, Types.VARCHAR);
+                metadata.setNullable(i + 1, RowSetMetaDataImpl.columnNullable);
+                values[i] = getColumn(projection[i]);
+            }
+            
+            CachedRowSet crs = RowSetProvider.newFactory().createCachedRowSet();
+            crs.setMetaData(metadata);
+            int end = Math.min(selected.length, Math.max(0, start) + count);
+            for (int i = Math.max(0, start); i < end; i++) {
+                crs.moveToInsertRow();
+                for (int c = 0; c < projection.length; c++) {
+                    String value = values[c][selected[i]];
+                    if (value == null) {
+                        crs.updateNull(c + 1);
+                    } else {
+                        crs.updateString(c + 1, value);
+                    }
+                }
+                crs.insertRow();
+            }
+            crs.moveToCurrentRow();
+            crs.beforeFirst();
+            return crs;
+        }
+    }
+}
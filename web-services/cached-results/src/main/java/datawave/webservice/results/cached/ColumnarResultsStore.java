@@ -0,0 +1,297 @@
+package datawave.webservice.results.cached;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Stores cached results on local disk as one compressed file per column, so that paging and sorting a cached result does not need to go to the database. A
+ * view is written by a {@link Writer} while it is loaded, and opened as {@link ColumnarResults} when it is paged through. Views which are not in the store (for
+ * example because they were loaded by another server) are paged through the database as before.
+ */
+public class ColumnarResultsStore {
+    
+    private static final Logger log = Logger.getLogger(ColumnarResultsStore.class);
+    
+    static final String COLUMNS_FILE = "columns";
+    static final String COLUMN_FILE_SUFFIX = ".gz";
+    static final String RANK_FILE_SUFFIX = ".rank.gz";
+    static final int NULL_LENGTH = -1;
+    
+    private static final String TMP_SUFFIX = ".tmp";
+    // the number of bytes buffered across all of the columns of a writer before they are spilled to disk
+    private static final int SPILL_BYTES = 8 * 1024 * 1024;
+    
+    private final File dir;
+    private final long timeToLive;
+    private final Map<String,ColumnarResults> open;
+    
+    /**
+     * @param dir
+     *            the directory under which each view is stored
+     * @param daysToLive
+     *            the number of days after which a stored view is removed
+     * @param maxOpen
+     *            the number of views kept open in memory
+     */
+    public ColumnarResultsStore(File dir, int daysToLive, final int maxOpen) {
+        this.dir = dir;
+        this.timeToLive = TimeUnit.DAYS.toMillis(daysToLive);
+        this.open = new LinkedHashMap<String,ColumnarResults>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String,ColumnarResults> eldest) {
+                return size() > maxOpen;
+            }
+        };
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IllegalArgumentException("Unable to create cached results directory " + dir);
+        }
+    }
+    
+    /**
+     * Creates a writer for a view, removing any expired views
+     * 
+     * @param view
+     *            the name of the view
+     * @param fixedColumns
+     *            the names of the fixed columns, which precede the field columns
+     * @return the writer
+     * @throws IOException
+     *             if the view can not be created
+     */
+    public Writer create(String view, Collection<String> fixedColumns) throws IOException {
+        CachedResultsParameters.validate(view);
+        removeExpired();
+        remove(view);
+        File tmp = new File(dir, view + TMP_SUFFIX);
+        delete(tmp);
+        if (!tmp.mkdirs()) {
+            throw new IOException("Unable to create " + tmp);
+        }
+        return new Writer(view, tmp, fixedColumns);
+    }
+    
+    /**
+     * Opens a view
+     * 
+     * @param view
+     *            the name of the view
+     * @return the view, or null if it is not in the store
+     */
+    public ColumnarResults open(String view) {
+        if (view == null || !CachedResultsParameters.VALID_NAME_PATTERN.matcher(view).matches()) {
+            return null;
+        }
+        synchronized (open) {
+            ColumnarResults results = open.get(view);
+            if (results == null) {
+                File viewDir = new File(dir, view);
+                if (!new File(viewDir, COLUMNS_FILE).isFile()) {
+                    return null;
+                }
+                try {
+                    results = new ColumnarResults(viewDir);
+                } catch (IOException e) {
+                    log.warn("Unable to open cached results " + viewDir + ", using the database", e);
+                    return null;
+                }
+                open.put(view, results);
+            }
+            return results;
+        }
+    }
+    
+    /**
+     * Removes a view
+     * 
+     * @param view
+     *            the name of the view
+     */
+    public void remove(String view) {
+        synchronized (open) {
+            open.remove(view);
+        }
+        delete(new File(dir, view));
+    }
+    
+    private void removeExpired() {
+        long expired = System.currentTimeMillis() - timeToLive;
+        File[] views = dir.listFiles();
+        if (views != null) {
+            for (File view : views) {
+                if (view.isDirectory() && view.lastModified() < expired) {
+                    log.debug("Removing expired cached results " + view);
+                    remove(view.getName());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Writes the rows of a view. Each column is buffered in memory and appended to a temporary file when the buffers fill, and the columns are compressed one
+     * at a time when the writer is closed so that a wide view does not need a compressor per column.
+     */
+    public class Writer {
+        
+        private final String view;
+        private final File tmp;
+        private final Collection<String> fixedColumns;
+        private final List<ByteArrayOutputStream> buffers = new ArrayList<>();
+        private int rows = 0;
+        private long buffered = 0;
+        
+        private Writer(String view, File tmp, Collection<String> fixedColumns) {
+            this.view = view;
+            this.tmp = tmp;
+            this.fixedColumns = fixedColumns;
+        }
+        
+        /**
+         * Adds a row
+         * 
+         * @param row
+         *            the column values, in table column order
+         * @throws IOException
+         *             if the columns can not be spilled to disk
+         */
+        public void add(String[] row) throws IOException {
+            while (buffers.size() < row.length) {
+                // a new column is null in the rows which preceded it
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(buffer);
+                for (int i = 0; i < rows; i++) {
+                    out.writeInt(NULL_LENGTH);
+                }
+                buffers.add(buffer);
+                buffered += buffer.size();
+            }
+            for (int i = 0; i < buffers.size(); i++) {
+                String value = (i < row.length) ? row[i] : null;
+                buffered += write(new DataOutputStream(buffers.get(i)), value);
+            }
+            rows++;
+            if (buffered >= SPILL_BYTES) {
+                spill();
+            }
+        }
+        
+        /**
+         * Compresses the columns and makes the view available
+         * 
+         * @param fieldMap
+         *            the table column number of each field, in the order of the columns of the view
+         * @throws IOException
+         *             if the view can not be written
+         */
+        public void close(Map<String,Integer> fieldMap) throws IOException {
+            spill();
+            for (int i = 0; i < buffers.size(); i++) {
+                File raw = getRawFile(i);
+                try (InputStream in = new BufferedInputStream(new FileInputStream(raw));
+                                OutputStream out = new GZIPOutputStream(new FileOutputStream(new File(tmp, i + COLUMN_FILE_SUFFIX)))) {
+                    byte[] buffer = new byte[64 * 1024];
+                    int read;
+                    while ((read = in.read(buffer)) >= 0) {
+                        out.write(buffer, 0, read);
+                    }
+                }
+                Files.delete(raw.toPath());
+            }
+            
+            // the fixed columns followed by the fields, each with the index of its column file
+            List<String> columns = new ArrayList<>();
+            int index = 0;
+            for (String fixedColumn : fixedColumns) {
+                columns.add(index++ + "\t" + fixedColumn);
+            }
+            for (Map.Entry<String,Integer> e : fieldMap.entrySet()) {
+                columns.add((e.getValue() - 1) + "\t" + e.getKey());
+            }
+            writeColumns(new File(tmp, COLUMNS_FILE), rows + "\t" + fixedColumns.size(), columns);
+            
+            File viewDir = new File(dir, view);
+            delete(viewDir);
+            Files.move(tmp.toPath(), viewDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Stored " + rows + " rows of cached results " + view + " in " + viewDir);
+        }
+        
+        /**
+         * Discards the view
+         */
+        public void abort() {
+            buffers.clear();
+            delete(tmp);
+        }
+        
+        private void spill() throws IOException {
+            for (int i = 0; i < buffers.size(); i++) {
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(getRawFile(i), true))) {
+                    buffers.get(i).writeTo(out);
+                }
+                buffers.get(i).reset();
+            }
+            buffered = 0;
+        }
+        
+        private File getRawFile(int column) {
+            return new File(tmp, column + TMP_SUFFIX);
+        }
+    }
+    
+    private static int write(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return 4;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        return 4 + bytes.length;
+    }
+    
+    private static void delete(File file) {
+        if (!file.exists()) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(file.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            log.warn("Unable to delete " + file, e);
+        }
+    }
+    
+    private static void writeColumns(File file, String header, Collection<String> columns) throws IOException {
+        try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            out.write(header);
+            out.newLine();
+            for (String column : columns) {
+                out.write(column);
+                out.newLine();
+            }
+        }
+    }
+}
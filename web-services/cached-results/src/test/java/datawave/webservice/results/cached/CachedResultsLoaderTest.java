@@ -0,0 +1,281 @@
+package datawave.webservice.results.cached;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CachedResultsLoaderTest {
+    
+    private static final List<String> FIXED_COLUMNS = Arrays.asList("_user_", "_queryId_");
+    
+    /**
+     * The statement of a driver which supports streaming a bulk load
+     */
+    public interface LocalInfileStatement extends Statement {
+        void setLocalInfileInputStream(InputStream stream);
+    }
+    
+    /**
+     * Stands in for the cached results database, recording the rows written by each connection
+     */
+    private static class TestDatabase {
+        private final boolean localInfile;
+        private final List<List<String>> rows = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+        private final Map<Thread,Boolean> connectionThreads = new ConcurrentHashMap<>();
+        private final AtomicInteger connections = new AtomicInteger();
+        private volatile String failure = null;
+        
+        TestDatabase(boolean localInfile) {
+            this.localInfile = localInfile;
+        }
+        
+        DataSource getDataSource() {
+            return proxy(DataSource.class, (proxy, method, args) -> {
+                if (method.getName().equals("getConnection")) {
+                    connections.incrementAndGet();
+                    connectionThreads.put(Thread.currentThread(), true);
+                    return getConnection();
+                }
+                return null;
+            });
+        }
+        
+        private Connection getConnection() {
+            return proxy(Connection.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "prepareStatement":
+                        statements.add((String) args[0]);
+                        return getPreparedStatement();
+                    case "createStatement":
+                        return localInfile ? proxy(LocalInfileStatement.class, getStatementHandler()) : proxy(Statement.class, getStatementHandler());
+                    default:
+                        return null;
+                }
+            });
+        }
+        
+        private PreparedStatement getPreparedStatement() {
+            List<List<String>> batch = new ArrayList<>();
+            List<String> row = new ArrayList<>();
+            return proxy(PreparedStatement.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "setString":
+                        row.add((String) args[1]);
+                        return null;
+                    case "setNull":
+                        row.add(null);
+                        return null;
+                    case "addBatch":
+                        batch.add(new ArrayList<>(row));
+                        row.clear();
+                        return null;
+                    case "executeBatch":
+                        checkFailure();
+                        rows.addAll(batch);
+                        int[] results = new int[batch.size()];
+                        batch.clear();
+                        return results;
+                    default:
+                        return null;
+                }
+            });
+        }
+        
+        private InvocationHandler getStatementHandler() {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            return (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "setLocalInfileInputStream":
+                        stream.reset();
+                        byte[] buffer = new byte[1024];
+                        int read;
+                        while ((read = ((InputStream) args[0]).read(buffer)) >= 0) {
+                            stream.write(buffer, 0, read);
+                        }
+                        return null;
+                    case "execute":
+                        checkFailure();
+                        statements.add((String) args[0]);
+                        for (String line : new String(stream.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+                            rows.add(Arrays.asList(line.split(",")));
+                        }
+                        return false;
+                    default:
+                        return null;
+                }
+            };
+        }
+        
+        private void checkFailure() throws SQLException {
+            if (failure != null) {
+                throw new SQLException(failure);
+            }
+        }
+        
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+            return (T) Proxy.newProxyInstance(CachedResultsLoaderTest.class.getClassLoader(), new Class[] {type}, handler);
+        }
+    }
+    
+    private ExecutorService executor;
+    
+    @Before
+    public void setup() {
+        executor = Executors.newCachedThreadPool();
+    }
+    
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    public void testParallelBatchInsert() throws Exception {
+        TestDatabase database = new TestDatabase(false);
+        CachedResultsLoader loader = new CachedResultsLoader(database.getDataSource(), executor, "INSERT", null, FIXED_COLUMNS, 2, 3, 5);
+        loader.start();
+        for (int i = 0; i < 100; i++) {
+            loader.add(new String[] {"user", "query" + i, "value" + i});
+        }
+        loader.finish();
+        
+        Assert.assertEquals(100, loader.getRowsLoaded());
+        Assert.assertEquals(100, database.rows.size());
+        Assert.assertEquals(3, database.connections.get());
+        Assert.assertEquals(3, database.connectionThreads.size());
+        Assert.assertFalse(database.connectionThreads.containsKey(Thread.currentThread()));
+        // the columns which are not in a row are null
+        for (List<String> row : database.rows) {
+            Assert.assertEquals(4, row.size());
+            Assert.assertTrue(row.get(2).startsWith("value"));
+            Assert.assertNull(row.get(3));
+        }
+        Assert.assertTrue(loader.getStatusMessage().startsWith("Loaded 100 rows ("));
+    }
+    
+    @Test
+    public void testBulkLoad() throws Exception {
+        TestDatabase database = new TestDatabase(true);
+        CachedResultsLoader loader = new CachedResultsLoader(database.getDataSource(), executor, "INSERT", "LOAD ($columns)", FIXED_COLUMNS, 2, 1, 10);
+        loader.start();
+        loader.add(new String[] {"user", "query", "value"});
+        loader.add(new String[] {"user", "query"});
+        loader.finish();
+        
+        Assert.assertEquals(Collections.singletonList("LOAD (_user_, _queryId_, field0)"), database.statements);
+        Assert.assertEquals(Arrays.asList(Arrays.asList("\"user\"", "\"query\"", "\"value\""), Arrays.asList("\"user\"", "\"query\"", "\\N")), database.rows);
+    }
+    
+    @Test
+    public void testBulkLoadFallsBackToBatchInsert() throws Exception {
+        TestDatabase database = new TestDatabase(false);
+        CachedResultsLoader loader = new CachedResultsLoader(database.getDataSource(), executor, "INSERT", "LOAD ($columns)", FIXED_COLUMNS, 2, 2, 10);
+        loader.start();
+        for (int i = 0; i < 50; i++) {
+            loader.add(new String[] {"user", "query" + i});
+        }
+        loader.finish();
+        
+        Assert.assertEquals(50, database.rows.size());
+        Assert.assertTrue(database.statements.stream().allMatch("INSERT"::equals));
+    }
+    
+    @Test
+    public void testWorkerFailure() throws Exception {
+        TestDatabase database = new TestDatabase(false);
+        database.failure = "Table 'cache.tabc' doesn't exist";
+        CachedResultsLoader loader = new CachedResultsLoader(database.getDataSource(), executor, "INSERT", null, FIXED_COLUMNS, 2, 2, 1);
+        loader.start();
+        try {
+            for (int i = 0; i < 1000; i++) {
+                loader.add(new String[] {"user", "query" + i});
+            }
+            loader.finish();
+            Assert.fail("Expected the failure of the workers to be reported");
+        } catch (SQLException e) {
+            Assert.assertEquals(database.failure, e.getMessage());
+        }
+    }
+    
+    @Test
+    public void testTooManyFields() throws Exception {
+        TestDatabase database = new TestDatabase(false);
+        CachedResultsLoader loader = new CachedResultsLoader(database.getDataSource(), executor, "INSERT", null, FIXED_COLUMNS, 2, 1, 10);
+        loader.start();
+        loader.add(new String[] {"user", "query", "value0", "value1"});
+        try {
+            // the columns beyond the table are not dropped
+            loader.add(new String[] {"user", "query", "value0", "value1", "value2"});
+            Assert.fail("Expected a row with too many fields to fail the load");
+        } catch (SQLException e) {
+            Assert.assertEquals("Unable to load a row with 3 fields, the cached results table has 2 fields", e.getMessage());
+        } finally {
+            loader.cancel();
+        }
+    }
+    
+    @Test
+    public void testBoundedExecutor() throws Exception {
+        TestDatabase database = new TestDatabase(false);
+        ThreadPoolExecutor bounded = new ThreadPoolExecutor(2, 2, 60L, TimeUnit.SECONDS, new SynchronousQueue<>());
+        try {
+            // the load continues with the workers which the executor accepts
+            CachedResultsLoader loader = new CachedResultsLoader(database.getDataSource(), bounded, "INSERT", null, FIXED_COLUMNS, 2, 3, 5);
+            loader.start();
+            
+            // and a load which gets no workers fails
+            CachedResultsLoader rejected = new CachedResultsLoader(database.getDataSource(), bounded, "INSERT", null, FIXED_COLUMNS, 2, 1, 5);
+            try {
+                rejected.start();
+                Assert.fail("Expected a load without workers to fail");
+            } catch (SQLException e) {
+                Assert.assertEquals("Too many cached results loads are running", e.getMessage());
+            }
+            
+            for (int i = 0; i < 100; i++) {
+                loader.add(new String[] {"user", "query" + i});
+            }
+            loader.finish();
+            Assert.assertEquals(100, database.rows.size());
+            Assert.assertEquals(2, database.connections.get());
+        } finally {
+            bounded.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testDelimitedText() {
+        List<String[]> rows = new ArrayList<>();
+        rows.add(new String[] {"a\"b", "c\\d", "e\nf"});
+        rows.add(new String[] {null, "g"});
+        String text = new String(CachedResultsLoader.toDelimitedText(rows, 3), StandardCharsets.UTF_8);
+        Assert.assertEquals("\"a\\\"b\",\"c\\\\d\",\"e\\nf\"\n\\N,\"g\",\\N\n", text);
+    }
+}
@@ -0,0 +1,151 @@
+package datawave.webservice.results.cached;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.rowset.CachedRowSet;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ColumnarResultsTest {
+    
+    private static final List<String> FIXED_COLUMNS = Arrays.asList("_user_", "_eventId_");
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    private ColumnarResultsStore store;
+    
+    @Before
+    public void setup() throws Exception {
+        store = new ColumnarResultsStore(temporaryFolder.newFolder(), 1, 2);
+        ColumnarResultsStore.Writer writer = store.create("v1", FIXED_COLUMNS);
+        // the fields are added to the table as they are seen, so the first rows do not have the later columns
+        writer.add(new String[] {"user", "event1", "Bob"});
+        writer.add(new String[] {"user", "event2", "alice", "30"});
+        writer.add(new String[] {"other", "event3", "carol", "40"});
+        writer.add(new String[] {"user", "event4", "dave", "5", "x"});
+        writer.add(new String[] {"user", "event5", null, "100"});
+        Map<String,Integer> fieldMap = new LinkedHashMap<>();
+        fieldMap.put("AGE", 4);
+        fieldMap.put("NAME", 3);
+        fieldMap.put("OTHER", 5);
+        writer.close(fieldMap);
+    }
+    
+    @Test
+    public void testSelectAll() throws Exception {
+        ColumnarResults results = store.open("v1");
+        Assert.assertEquals(5, results.size());
+        Assert.assertEquals(Arrays.asList("_user_", "_eventId_", "AGE", "NAME", "OTHER"), results.getColumnNames());
+        
+        ColumnarResults.Selection selection = results.select("*", null, null, null, "user");
+        Assert.assertEquals(4, selection.size());
+        List<List<String>> rows = getRows(selection.getRows(0, 10));
+        Assert.assertEquals(Arrays.asList("user", "event1", null, "Bob", null), rows.get(0));
+        Assert.assertEquals(Arrays.asList("user", "event4", "5", "dave", "x"), rows.get(2));
+    }
+    
+    @Test
+    public void testProjectionAndPaging() throws Exception {
+        ColumnarResults.Selection selection = store.open("v1").select("`NAME`", null, null, null, "user");
+        Assert.assertEquals(Arrays.asList(Arrays.asList("user", "event2", "alice"), Arrays.asList("user", "event4", "dave")),
+                        getRows(selection.getRows(1, 2)));
+        Assert.assertTrue(getRows(selection.getRows(4, 2)).isEmpty());
+    }
+    
+    @Test
+    public void testOrder() throws Exception {
+        ColumnarResults results = store.open("v1");
+        // case insensitive, with nulls first
+        Assert.assertEquals(Arrays.asList("event5", "event2", "event1", "event4"), getEventIds(results.select("NAME", null, null, "NAME", "user")));
+        Assert.assertEquals(Arrays.asList("event4", "event1", "event2", "event5"), getEventIds(results.select("NAME", null, null, "NAME DESC", "user")));
+        // the columns are strings, as they are in the view
+        Assert.assertEquals(Arrays.asList("event1", "event5", "event2", "event4"), getEventIds(results.select("*", null, null, "OTHER, AGE", "user")));
+    }
+    
+    @Test
+    public void testConditions() throws Exception {
+        ColumnarResults results = store.open("v1");
+        // numeric comparison with a number
+        Assert.assertEquals(Arrays.asList("event2", "event5"), getEventIds(results.select("*", "AGE >= 10", null, null, "user")));
+        // string comparison with a string
+        Assert.assertEquals(Arrays.asList("event2", "event4", "event5"), getEventIds(results.select("*", "AGE >= '10' AND AGE < '6'", null, null, "user")));
+        Assert.assertEquals(Arrays.asList("event1"), getEventIds(results.select("*", "NAME = 'bob'", null, null, "user")));
+        Assert.assertEquals(Arrays.asList("event2", "event4"), getEventIds(results.select("*", "NAME LIKE '%a%' OR NAME IS NULL AND AGE < 0", null, null,
+                        "user")));
+        Assert.assertEquals(Arrays.asList("event1", "event2"), getEventIds(results.select("*", "`NAME` IN ('Bob', \"alice\")", null, null, "user")));
+        // null is unknown, so it does not match either way
+        Assert.assertEquals(Arrays.asList("event1", "event4"), getEventIds(results.select("*", "NOT (NAME NOT LIKE '_o_' AND AGE > 10)", null, null,
+                        "user")));
+        Assert.assertEquals(Arrays.asList("event5"), getEventIds(results.select("*", "NAME IS NULL", null, null, "user")));
+        Assert.assertEquals(Arrays.asList("event1", "event2", "event4"), getEventIds(results.select("*", "NAME IS NOT NULL", null, null, "user")));
+    }
+    
+    @Test
+    public void testUnsupportedQueries() throws Exception {
+        ColumnarResults results = store.open("v1");
+        Assert.assertNull(results.select("COUNT(NAME)", null, null, null, "user"));
+        Assert.assertNull(results.select("*", null, "NAME", null, "user"));
+        Assert.assertNull(results.select("*", "LOWER(NAME) = 'bob'", null, null, "user"));
+        Assert.assertNull(results.select("*", "NAME = AGE", null, null, "user"));
+        Assert.assertNull(results.select("*", "UNKNOWN = 1", null, null, "user"));
+        Assert.assertNull(results.select("*", null, null, "UPPER(NAME)", "user"));
+        Assert.assertNull(results.select("UNKNOWN", null, null, null, "user"));
+    }
+    
+    @Test
+    public void testSortIndexIsSaved() throws Exception {
+        File dir = temporaryFolder.newFolder();
+        ColumnarResultsStore store = new ColumnarResultsStore(dir, 1, 1);
+        ColumnarResultsStore.Writer writer = store.create("v2", FIXED_COLUMNS);
+        writer.add(new String[] {"user", "b"});
+        writer.add(new String[] {"user", "a"});
+        writer.close(new LinkedHashMap<>());
+        
+        Assert.assertArrayEquals(new int[] {1, 0}, store.open("v2").getRanks(1));
+        Assert.assertTrue(new File(dir, "v2/1" + ColumnarResultsStore.RANK_FILE_SUFFIX).isFile());
+        Assert.assertArrayEquals(new int[] {1, 0}, new ColumnarResults(new File(dir, "v2")).getRanks(1));
+        
+        store.remove("v2");
+        Assert.assertNull(store.open("v2"));
+        Assert.assertFalse(new File(dir, "v2").exists());
+    }
+    
+    @Test
+    public void testAbort() throws Exception {
+        ColumnarResultsStore.Writer writer = store.create("v3", FIXED_COLUMNS);
+        writer.add(new String[] {"user", "a"});
+        writer.abort();
+        Assert.assertNull(store.open("v3"));
+        Assert.assertNull(store.open("v4"));
+    }
+    
+    private static List<String> getEventIds(ColumnarResults.Selection selection) throws Exception {
+        List<String> eventIds = new ArrayList<>();
+        for (List<String> row : getRows(selection.getRows(0, selection.size()))) {
+            eventIds.add(row.get(1));
+        }
+        return eventIds;
+    }
+    
+    private static List<List<String>> getRows(CachedRowSet crs) throws Exception {
+        List<List<String>> rows = new ArrayList<>();
+        while (crs.next()) {
+            List<String> row = new ArrayList<>();
+            for (int i = 1; i <= crs.getMetaData().getColumnCount(); i++) {
+                row.add(crs.getString(i));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
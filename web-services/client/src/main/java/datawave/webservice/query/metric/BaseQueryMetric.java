@@ -573,6 +573,18 @@ public abstract class BaseQueryMetric implements HasMarkings, Serializable {
     @XmlElement
     protected long yieldCount = 0L;
     @XmlElement
+    protected long termFrequencyKeyCount = 0L;
+    @XmlElement
+    protected long termFrequencyDecodeCount = 0L;
+    @XmlElement
+    protected long skippedEventKeyCount = 0L;
+    @XmlElement
+    protected long skipSeekCount = 0L;
+    @XmlElement
+    protected long tldParallelFetchCount = 0L;
+    @XmlElement
+    protected long tldChildRangeCount = 0L;
+    @XmlElement
     protected long docRanges = 0;
     @XmlElement
     protected long fiRanges = 0;
@@ -750,6 +762,54 @@ public abstract class BaseQueryMetric implements HasMarkings, Serializable {
         this.yieldCount = yieldCount;
     }
     
+    public long getTermFrequencyKeyCount() {
+        return termFrequencyKeyCount;
+    }
+    
+    public void setTermFrequencyKeyCount(long termFrequencyKeyCount) {
+        this.termFrequencyKeyCount = termFrequencyKeyCount;
+    }
+    
+    public long getTermFrequencyDecodeCount() {
+        return termFrequencyDecodeCount;
+    }
+    
+    public void setTermFrequencyDecodeCount(long termFrequencyDecodeCount) {
+        this.termFrequencyDecodeCount = termFrequencyDecodeCount;
+    }
+    
+    public long getSkippedEventKeyCount() {
+        return skippedEventKeyCount;
+    }
+    
+    public void setSkippedEventKeyCount(long skippedEventKeyCount) {
+        this.skippedEventKeyCount = skippedEventKeyCount;
+    }
+    
+    public long getSkipSeekCount() {
+        return skipSeekCount;
+    }
+    
+    public void setSkipSeekCount(long skipSeekCount) {
+        this.skipSeekCount = skipSeekCount;
+    }
+    
+    public long getTldParallelFetchCount() {
+        return tldParallelFetchCount;
+    }
+    
+    public void setTldParallelFetchCount(long tldParallelFetchCount) {
+        this.tldParallelFetchCount = tldParallelFetchCount;
+    }
+    
+    public long getTldChildRangeCount() {
+        return tldChildRangeCount;
+    }
+    
+    public void setTldChildRangeCount(long tldChildRangeCount) {
+        this.tldChildRangeCount = tldChildRangeCount;
+    }
+    
     public long getDocRanges() {
         return docRanges;
     }
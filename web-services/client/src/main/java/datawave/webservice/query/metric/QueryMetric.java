@@ -94,6 +94,12 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
         this.nextCount = other.nextCount;
         this.seekCount = other.seekCount;
         this.yieldCount = other.yieldCount;
+        this.termFrequencyKeyCount = other.termFrequencyKeyCount;
+        this.termFrequencyDecodeCount = other.termFrequencyDecodeCount;
+        this.skippedEventKeyCount = other.skippedEventKeyCount;
+        this.skipSeekCount = other.skipSeekCount;
+        this.tldParallelFetchCount = other.tldParallelFetchCount;
+        this.tldChildRangeCount = other.tldChildRangeCount;
         this.docRanges = other.docRanges;
         this.fiRanges = other.fiRanges;
         this.plan = other.plan;
@@ -120,7 +126,9 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
                         .append(this.getErrorMessage()).append(this.getCreateCallTime()).append(this.getErrorCode()).append(this.getQueryName())
                         .append(this.getParameters()).append(this.getSourceCount()).append(this.getNextCount()).append(this.getSeekCount())
                         .append(this.getYieldCount()).append(this.getDocRanges()).append(this.getFiRanges()).append(this.getPlan()).append(this.getLoginTime())
-                        .append(this.getPredictions()).toHashCode();
+                        .append(this.getPredictions()).append(this.getTermFrequencyKeyCount()).append(this.getTermFrequencyDecodeCount())
+                        .append(this.getSkippedEventKeyCount()).append(this.getSkipSeekCount()).append(this.getTldParallelFetchCount())
+                        .append(this.getTldChildRangeCount()).toHashCode();
     }
     
     @Override
@@ -148,7 +156,11 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
                             .append(this.getYieldCount(), other.getYieldCount()).append(this.getDocRanges(), other.getDocRanges())
                             .append(this.getFiRanges(), other.getFiRanges()).append(this.getPlan(), other.getPlan())
                             .append(this.getLoginTime(), other.getLoginTime()).append(this.getPredictions(), other.getPredictions())
-                            .append(this.getMarkings(), other.getMarkings()).isEquals();
+                            .append(this.getMarkings(), other.getMarkings()).append(this.getTermFrequencyKeyCount(), other.getTermFrequencyKeyCount())
+                            .append(this.getTermFrequencyDecodeCount(), other.getTermFrequencyDecodeCount())
+                            .append(this.getSkippedEventKeyCount(), other.getSkippedEventKeyCount()).append(this.getSkipSeekCount(), other.getSkipSeekCount())
+                            .append(this.getTldParallelFetchCount(), other.getTldParallelFetchCount())
+                            .append(this.getTldChildRangeCount(), other.getTldChildRangeCount()).isEquals();
         } else {
             return false;
         }
@@ -184,6 +196,12 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
         buf.append(" NextCount: ").append(this.getNextCount());
         buf.append(" Seek Count: ").append(this.getSeekCount());
         buf.append(" Yield Count: ").append(this.getYieldCount());
+        buf.append(" TF Key Count: ").append(this.getTermFrequencyKeyCount());
+        buf.append(" TF Decode Count: ").append(this.getTermFrequencyDecodeCount());
+        buf.append(" Skipped Event Key Count: ").append(this.getSkippedEventKeyCount());
+        buf.append(" Skip Seek Count: ").append(this.getSkipSeekCount());
+        buf.append(" TLD Parallel Fetch Count: ").append(this.getTldParallelFetchCount());
+        buf.append(" TLD Child Range Count: ").append(this.getTldChildRangeCount());
         buf.append(" Doc Ranges: ").append(this.getDocRanges());
         buf.append(" FI Ranges: ").append(this.getFiRanges());
         buf.append(" Login Time: ").append(this.getLoginTime());
@@ -370,6 +388,13 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
                     }
                 }
             }
+            
+            output.writeInt64(37, message.termFrequencyKeyCount, false);
+            output.writeInt64(38, message.termFrequencyDecodeCount, false);
+            output.writeInt64(39, message.skippedEventKeyCount, false);
+            output.writeInt64(40, message.skipSeekCount, false);
+            output.writeInt64(41, message.tldParallelFetchCount, false);
+            output.writeInt64(42, message.tldChildRangeCount, false);
         }
         
         public void mergeFrom(Input input, QueryMetric message) throws IOException {
@@ -502,6 +527,24 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
                         }
                         message.predictions.add(input.mergeObject(null, Prediction.getSchema()));
                         break;
+                    case 37:
+                        message.termFrequencyKeyCount = input.readInt64();
+                        break;
+                    case 38:
+                        message.termFrequencyDecodeCount = input.readInt64();
+                        break;
+                    case 39:
+                        message.skippedEventKeyCount = input.readInt64();
+                        break;
+                    case 40:
+                        message.skipSeekCount = input.readInt64();
+                        break;
+                    case 41:
+                        message.tldParallelFetchCount = input.readInt64();
+                        break;
+                    case 42:
+                        message.tldChildRangeCount = input.readInt64();
+                        break;
                     default:
                         input.handleUnknownField(number, this);
                         break;
@@ -584,6 +627,18 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
                     return "loginTime";
                 case 36:
                     return "predictions";
+                case 37:
+                    return "termFrequencyKeyCount";
+                case 38:
+                    return "termFrequencyDecodeCount";
+                case 39:
+                    return "skippedEventKeyCount";
+                case 40:
+                    return "skipSeekCount";
+                case 41:
+                    return "tldParallelFetchCount";
+                case 42:
+                    return "tldChildRangeCount";
                 default:
                     return null;
             }
@@ -633,6 +688,12 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
             fieldMap.put("plan", 34);
             fieldMap.put("loginTime", 35);
             fieldMap.put("predictions", 36);
+            fieldMap.put("termFrequencyKeyCount", 37);
+            fieldMap.put("termFrequencyDecodeCount", 38);
+            fieldMap.put("skippedEventKeyCount", 39);
+            fieldMap.put("skipSeekCount", 40);
+            fieldMap.put("tldParallelFetchCount", 41);
+            fieldMap.put("tldChildRangeCount", 42);
         }
     };
     
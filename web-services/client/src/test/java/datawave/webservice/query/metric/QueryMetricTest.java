@@ -97,6 +97,12 @@ public class QueryMetricTest {
         queryMetric.setQueryType(this.getClass());
         queryMetric.setQueryType("queryType");
         queryMetric.setSetupTime(0);
+        queryMetric.setSkippedEventKeyCount(7);
+        queryMetric.setSkipSeekCount(11);
+        queryMetric.setTermFrequencyDecodeCount(3);
+        queryMetric.setTermFrequencyKeyCount(5);
+        queryMetric.setTldChildRangeCount(17);
+        queryMetric.setTldParallelFetchCount(13);
         queryMetric.setUser("user");
         queryMetric.setUserDN("userDN");
         
@@ -126,6 +132,12 @@ public class QueryMetricTest {
         assertEquals("queryLogic", queryMetric.getQueryLogic());
         assertEquals("queryType", queryMetric.getQueryType());
         assertEquals(0, queryMetric.getSetupTime());
+        assertEquals(7, queryMetric.getSkippedEventKeyCount());
+        assertEquals(11, queryMetric.getSkipSeekCount());
+        assertEquals(3, queryMetric.getTermFrequencyDecodeCount());
+        assertEquals(5, queryMetric.getTermFrequencyKeyCount());
+        assertEquals(17, queryMetric.getTldChildRangeCount());
+        assertEquals(13, queryMetric.getTldParallelFetchCount());
         assertEquals("user", queryMetric.getUser());
         assertEquals("userDN", queryMetric.getUserDN());
     }
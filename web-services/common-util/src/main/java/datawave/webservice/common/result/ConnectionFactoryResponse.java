@@ -89,7 +89,9 @@ public class ConnectionFactoryResponse extends BaseResponse implements HtmlProvi
         builder.append("<h2>").append("Connection Pools").append("</h2>");
         builder.append("<br/>");
         builder.append("<table class=\"connectionPools\">");
-        builder.append("<tr><th>Pool Name</th><th>Priority</th><th>Num Active</th><th>Max Active</th><th>Num Idle</th><th>Max Idle</th><th>Num Waiting</th></tr>");
+        builder.append("<tr><th>Pool Name</th><th>Priority</th><th>Num Active</th><th>Max Active</th><th>Num Idle</th><th>Max Idle</th><th>Num Waiting</th>");
+        builder.append("<th>Borrowed</th><th>Avg Borrow ms</th><th>Max Borrow ms</th><th>Borrow Timeouts</th>");
+        builder.append("<th>Admission Queued</th><th>Admission Waiting</th></tr>");
         
         Set<ConnectionPool> poolSet = new TreeSet<>();
         poolSet.addAll(connectionPools);
@@ -103,6 +105,12 @@ public class ConnectionFactoryResponse extends BaseResponse implements HtmlProvi
             builder.append("<td>").append(f.getNumIdle()).append("</td>");
             builder.append("<td>").append(f.getMaxIdle()).append("</td>");
             builder.append("<td>").append(f.getNumWaiting()).append("</td>");
+            builder.append("<td>").append(f.getBorrowCount()).append("</td>");
+            builder.append("<td>").append(f.getAverageBorrowMillis()).append("</td>");
+            builder.append("<td>").append(f.getMaxBorrowMillis()).append("</td>");
+            builder.append("<td>").append(f.getBorrowTimeouts()).append("</td>");
+            builder.append("<td>").append(f.getAdmissionQueued()).append("</td>");
+            builder.append("<td>").append(f.getAdmissionWaiting()).append("</td>");
             builder.append("</tr>");
         }
         builder.append("</table>");
@@ -44,6 +44,24 @@ public class ConnectionPool implements Serializable, Comparable<ConnectionPool>
     @XmlElement(name = "NumWaiting")
     private Integer numWaiting = null;
     
+    @XmlElement(name = "BorrowCount")
+    private Long borrowCount = null;
+    
+    @XmlElement(name = "AverageBorrowMillis")
+    private Long averageBorrowMillis = null;
+    
+    @XmlElement(name = "MaxBorrowMillis")
+    private Long maxBorrowMillis = null;
+    
+    @XmlElement(name = "BorrowTimeouts")
+    private Long borrowTimeouts = null;
+    
+    @XmlElement(name = "AdmissionQueued")
+    private Long admissionQueued = null;
+    
+    @XmlElement(name = "AdmissionWaiting")
+    private Integer admissionWaiting = null;
+    
     @XmlElementWrapper(name = "ConnectionRequests")
     @XmlElement(name = "Connection")
     private List<Connection> connectionRequests = null;
@@ -88,6 +106,54 @@ public class ConnectionPool implements Serializable, Comparable<ConnectionPool>
         this.numWaiting = numWaiting;
     }
     
+    public Long getBorrowCount() {
+        return borrowCount;
+    }
+    
+    public void setBorrowCount(Long borrowCount) {
+        this.borrowCount = borrowCount;
+    }
+    
+    public Long getAverageBorrowMillis() {
+        return averageBorrowMillis;
+    }
+    
+    public void setAverageBorrowMillis(Long averageBorrowMillis) {
+        this.averageBorrowMillis = averageBorrowMillis;
+    }
+    
+    public Long getMaxBorrowMillis() {
+        return maxBorrowMillis;
+    }
+    
+    public void setMaxBorrowMillis(Long maxBorrowMillis) {
+        this.maxBorrowMillis = maxBorrowMillis;
+    }
+    
+    public Long getBorrowTimeouts() {
+        return borrowTimeouts;
+    }
+    
+    public void setBorrowTimeouts(Long borrowTimeouts) {
+        this.borrowTimeouts = borrowTimeouts;
+    }
+    
+    public Long getAdmissionQueued() {
+        return admissionQueued;
+    }
+    
+    public void setAdmissionQueued(Long admissionQueued) {
+        this.admissionQueued = admissionQueued;
+    }
+    
+    public Integer getAdmissionWaiting() {
+        return admissionWaiting;
+    }
+    
+    public void setAdmissionWaiting(Integer admissionWaiting) {
+        this.admissionWaiting = admissionWaiting;
+    }
+    
     public List<Connection> getConnectionRequests() {
         return connectionRequests;
     }
@@ -35,6 +35,12 @@ public class TableCache implements Serializable {
     @XmlAttribute
     private Boolean currentlyRefreshing = null;
     
+    @XmlAttribute
+    private Boolean incrementalRefresh = null;
+    
+    @XmlAttribute
+    private Date lastRowRefresh = null;
+    
     public String getTableName() {
         return tableName;
     }
@@ -63,6 +69,14 @@ public class TableCache implements Serializable {
         return currentlyRefreshing;
     }
     
+    public Boolean getIncrementalRefresh() {
+        return incrementalRefresh;
+    }
+    
+    public Date getLastRowRefresh() {
+        return lastRowRefresh;
+    }
+    
     public void setTableName(String tableName) {
         this.tableName = tableName;
     }
@@ -91,4 +105,12 @@ public class TableCache implements Serializable {
         this.currentlyRefreshing = currentlyRefreshing;
     }
     
+    public void setIncrementalRefresh(Boolean incrementalRefresh) {
+        this.incrementalRefresh = incrementalRefresh;
+    }
+    
+    public void setLastRowRefresh(Date lastRowRefresh) {
+        this.lastRowRefresh = lastRowRefresh;
+    }
+    
 }
@@ -45,4 +45,33 @@ public class CachedResultsConfiguration {
     public int getRowsPerBatch() {
         return Integer.parseInt(getParameters().get("ROWS_PER_BATCH"));
     }
+    
+    public int getLoaderThreads() {
+        String loaderThreads = getParameters().get("LOADER_THREADS");
+        return (loaderThreads == null) ? 1 : Integer.parseInt(loaderThreads);
+    }
+    
+    public String getColumnarDir() {
+        String columnarDir = getParameters().get("COLUMNAR_DIR");
+        return (columnarDir == null || columnarDir.trim().isEmpty()) ? null : columnarDir.trim();
+    }
+    
+    public int getColumnarDaysToLive() {
+        String daysToLive = getParameters().get("COLUMNAR_DAYS_TO_LIVE");
+        return (daysToLive == null) ? 1 : Integer.parseInt(daysToLive);
+    }
+    
+    public int getColumnarMaxOpen() {
+        String maxOpen = getParameters().get("COLUMNAR_MAX_OPEN");
+        return (maxOpen == null) ? 10 : Integer.parseInt(maxOpen);
+    }
+    
+    public int getLoaderPoolSize() {
+        String loaderPoolSize = getParameters().get("LOADER_POOL_SIZE");
+        return (loaderPoolSize == null) ? 16 : Integer.parseInt(loaderPoolSize);
+    }
+    
+    public boolean isBulkLoad() {
+        return Boolean.parseBoolean(getParameters().get("BULK_LOAD")) && getParameters().get("BULK_LOAD_STATEMENT") != null;
+    }
 }
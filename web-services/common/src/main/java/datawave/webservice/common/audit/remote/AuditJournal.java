@@ -0,0 +1,589 @@
+package datawave.webservice.common.audit.remote;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * A write-ahead journal of audit records stored in memory-mapped segment files. Records are appended and acknowledged without waiting on the remote audit
+ * service, read back in order by a shipper, and discarded once the shipper commits them. The committed position is checkpointed to disk, so every record which
+ * was not committed before a restart is read again after it, giving at-least-once delivery.
+ * <p>
+ * Each record is written as its length, a CRC32 of its data, the time it was appended and then its data. The length is written last, so a record which was only
+ * partially written when the process died reads as the end of the journal.
+ * <p>
+ * A record which can never be delivered is moved to a dead letter file in the journal directory, so that it does not block the records behind it. Each dead
+ * letter is written as the time it was dead lettered, the reason, the time the record was appended and then the record's data.
+ */
+public class AuditJournal implements Closeable {
+    
+    private static final Logger log = LoggerFactory.getLogger(AuditJournal.class);
+    
+    private static final String SEGMENT_PREFIX = "audit-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String DEAD_LETTER_FILE = "dead-letter";
+    
+    // length, crc and timestamp
+    private static final int HEADER_SIZE = 4 + 4 + 8;
+    
+    /**
+     * A position in the journal: a segment and an offset within it
+     */
+    public static class Position {
+        private final long segment;
+        private final int offset;
+        
+        private Position(long segment, int offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+        
+        @Override
+        public String toString() {
+            return segment + ":" + offset;
+        }
+    }
+    
+    /**
+     * A record read from the journal
+     */
+    public static class Record {
+        private final byte[] data;
+        private final long timestamp;
+        // the position following this record
+        private final Position next;
+        
+        private Record(byte[] data, long timestamp, Position next) {
+            this.data = data;
+            this.timestamp = timestamp;
+            this.next = next;
+        }
+        
+        public byte[] getData() {
+            return data;
+        }
+        
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+    
+    private static class Segment {
+        private final long id;
+        private final File file;
+        private final MappedByteBuffer buffer;
+        // the offset where the next record will be written
+        private int end = 0;
+        
+        private Segment(long id, File file, int size) throws IOException {
+            this.id = id;
+            this.file = file;
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                // a new file is zero filled, which reads as the end of the segment
+                if (raf.length() < size) {
+                    raf.setLength(size);
+                }
+                // the mapping remains valid once the file is closed
+                this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+        }
+        
+        private void close() {
+            buffer.force();
+        }
+    }
+    
+    private final File directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final boolean sync;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    
+    private final TreeMap<Long,Segment> segments = new TreeMap<>();
+    private Segment writeSegment;
+    private Position readPosition;
+    private Position committedPosition;
+    private boolean closed = false;
+    
+    // the number of records which have been appended but not committed, and the time the oldest of them was appended
+    private long pendingRecords = 0;
+    private long oldestPendingTimestamp = 0;
+    private long appendedRecords = 0;
+    private long committedRecords = 0;
+    private long deadLetteredRecords = 0;
+    
+    /**
+     * Opens the journal in a directory, recovering any records which were not committed
+     * 
+     * @param directory
+     *            the directory holding the segment files
+     * @param segmentSize
+     *            the size of each segment file in bytes, which bounds the size of a record
+     * @param maxSegments
+     *            the maximum number of segment files, after which appends block until records are committed
+     * @param sync
+     *            whether to force each record to disk as it is appended, rather than relying on the operating system to write out the mapped pages
+     */
+    public AuditJournal(File directory, int segmentSize, int maxSegments, boolean sync) throws IOException {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size must be larger than " + HEADER_SIZE + " bytes");
+        }
+        if (maxSegments < 2) {
+            throw new IllegalArgumentException("At least two segments are required");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.sync = sync;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create audit journal directory " + directory);
+        }
+        recover();
+    }
+    
+    private void recover() throws IOException {
+        committedPosition = readCheckpoint();
+        
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        List<Long> ids = new ArrayList<>();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                try {
+                    ids.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring unexpected file {} in the audit journal directory", file);
+                }
+            }
+        }
+        Collections.sort(ids);
+        
+        for (long id : ids) {
+            File file = segmentFile(id);
+            if (committedPosition != null && id < committedPosition.segment) {
+                // every record in this segment was committed
+                Files.deleteIfExists(file.toPath());
+                continue;
+            }
+            Segment segment = new Segment(id, file, segmentSize);
+            segment.end = scanEnd(segment);
+            segments.put(id, segment);
+        }
+        
+        if (committedPosition == null) {
+            committedPosition = new Position(segments.isEmpty() ? 0 : segments.firstKey(), 0);
+        }
+        if (segments.isEmpty()) {
+            segments.put(committedPosition.segment, new Segment(committedPosition.segment, segmentFile(committedPosition.segment), segmentSize));
+        }
+        writeSegment = segments.lastEntry().getValue();
+        readPosition = committedPosition;
+        
+        // count the records which were not committed before the restart
+        Position position = committedPosition;
+        Record record;
+        while ((record = readRecord(position)) != null) {
+            if (pendingRecords == 0) {
+                oldestPendingTimestamp = record.timestamp;
+            }
+            pendingRecords++;
+            position = record.next;
+        }
+        if (pendingRecords > 0) {
+            log.info("Recovered {} uncommitted audit records from {}", pendingRecords, directory);
+        }
+    }
+    
+    /**
+     * @return the offset following the last valid record in the segment
+     */
+    private int scanEnd(Segment segment) {
+        int offset = 0;
+        while (offset + HEADER_SIZE <= segmentSize) {
+            int length = segment.buffer.getInt(offset);
+            if (length <= 0 || offset + HEADER_SIZE + length > segmentSize || !checksumMatches(segment, offset, length)) {
+                break;
+            }
+            offset += HEADER_SIZE + length;
+        }
+        return offset;
+    }
+    
+    private boolean checksumMatches(Segment segment, int offset, int length) {
+        return segment.buffer.getInt(offset + 4) == checksum(segment.buffer, offset + HEADER_SIZE, length);
+    }
+    
+    private static int checksum(ByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        ByteBuffer data = buffer.duplicate();
+        data.position(offset);
+        data.limit(offset + length);
+        crc.update(data);
+        return (int) crc.getValue();
+    }
+    
+    /**
+     * Appends a record to the journal. If the journal is full this waits for records to be committed, up to the timeout.
+     * 
+     * @param data
+     *            the record
+     * @param timeout
+     *            the maximum time to wait for space in the journal
+     * @param unit
+     *            the unit of the timeout
+     * @throws IOException
+     *             if the journal is closed, is still full after the timeout, or a new segment could not be created
+     * @throws InterruptedException
+     *             if interrupted while waiting for space in the journal
+     */
+    public void append(byte[] data, long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        if (data.length == 0 || HEADER_SIZE + data.length > segmentSize) {
+            throw new IllegalArgumentException("Audit record of " + data.length + " bytes can not be written to journal segments of " + segmentSize + " bytes");
+        }
+        long remaining = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            checkOpen();
+            if (writeSegment.end + HEADER_SIZE + data.length > segmentSize) {
+                while (segments.size() >= maxSegments) {
+                    checkOpen();
+                    if (remaining <= 0) {
+                        throw new IOException("Audit journal " + directory + " is full");
+                    }
+                    remaining = notFull.awaitNanos(remaining);
+                }
+                long id = writeSegment.id + 1;
+                writeSegment = new Segment(id, segmentFile(id), segmentSize);
+                segments.put(id, writeSegment);
+            }
+            
+            long timestamp = System.currentTimeMillis();
+            int offset = writeSegment.end;
+            MappedByteBuffer buffer = writeSegment.buffer;
+            ByteBuffer record = buffer.duplicate();
+            record.position(offset + HEADER_SIZE);
+            record.put(data);
+            buffer.putLong(offset + 8, timestamp);
+            buffer.putInt(offset + 4, checksum(buffer, offset + HEADER_SIZE, data.length));
+            // the length marks the record as complete, so it is written last
+            buffer.putInt(offset, data.length);
+            if (sync) {
+                buffer.force();
+            }
+            writeSegment.end = offset + HEADER_SIZE + data.length;
+            
+            if (pendingRecords == 0) {
+                oldestPendingTimestamp = timestamp;
+            }
+            pendingRecords++;
+            appendedRecords++;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Reads the next records which have not yet been read, waiting up to the timeout for a record to be appended if there are none
+     * 
+     * @param maxRecords
+     *            the maximum number of records to read
+     * @param timeout
+     *            the maximum time to wait for a record
+     * @param unit
+     *            the unit of the timeout
+     * @return the records, which is empty if none were appended before the timeout or the journal is closed
+     * @throws InterruptedException
+     *             if interrupted while waiting for a record
+     */
+    public List<Record> read(int maxRecords, long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            List<Record> records = new ArrayList<>();
+            while (records.isEmpty() && !closed) {
+                Record record;
+                while (records.size() < maxRecords && (record = readRecord(readPosition)) != null) {
+                    records.add(record);
+                    readPosition = record.next;
+                }
+                if (records.isEmpty()) {
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    remaining = notEmpty.awaitNanos(remaining);
+                }
+            }
+            return records;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * @return the record at the position, moving on to the next segment at the end of a segment, or null if there are no more records
+     */
+    private Record readRecord(Position position) {
+        Segment segment = segments.get(position.segment);
+        int offset = position.offset;
+        if (segment == null) {
+            Map.Entry<Long,Segment> next = segments.higherEntry(position.segment);
+            segment = (next == null ? null : next.getValue());
+            offset = 0;
+        }
+        while (segment != null && offset >= segment.end) {
+            if (segment == writeSegment) {
+                return null;
+            }
+            Map.Entry<Long,Segment> next = segments.higherEntry(segment.id);
+            segment = (next == null ? null : next.getValue());
+            offset = 0;
+        }
+        if (segment == null) {
+            return null;
+        }
+        int length = segment.buffer.getInt(offset);
+        long timestamp = segment.buffer.getLong(offset + 8);
+        byte[] data = new byte[length];
+        ByteBuffer record = segment.buffer.duplicate();
+        record.position(offset + HEADER_SIZE);
+        record.get(data);
+        return new Record(data, timestamp, new Position(segment.id, offset + HEADER_SIZE + length));
+    }
+    
+    /**
+     * Commits records which have been delivered, so that they will not be read again after a restart. Records must be committed in the order they were read.
+     * Once the journal is closed this does nothing, so the records are read again after a restart.
+     * 
+     * @param records
+     *            the delivered records
+     * @throws IOException
+     *             if the checkpoint could not be written
+     */
+    public void commit(List<Record> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                log.debug("Not committing {} audit records to the closed journal {}", records.size(), directory);
+                return;
+            }
+            Position position = records.get(records.size() - 1).next;
+            // a position at the end of a segment other than the last is moved to the start of the next segment, so that the segment can be deleted
+            Segment segment = segments.get(position.segment);
+            if (segment != null && segment != writeSegment && position.offset >= segment.end) {
+                position = new Position(segments.higherKey(segment.id), 0);
+            }
+            writeCheckpoint(position);
+            committedPosition = position;
+            pendingRecords -= records.size();
+            committedRecords += records.size();
+            
+            while (segments.firstKey() < position.segment) {
+                Segment consumed = segments.pollFirstEntry().getValue();
+                consumed.close();
+                Files.deleteIfExists(consumed.file.toPath());
+            }
+            
+            Record oldest = readRecord(committedPosition);
+            oldestPendingTimestamp = (oldest == null ? 0 : oldest.timestamp);
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Resets reading to the last committed record, so that records which were read but not committed are read again
+     */
+    public void rewind() {
+        lock.lock();
+        try {
+            readPosition = committedPosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Appends a record which can never be delivered to the dead letter file. The record must still be committed, in order, to move past it.
+     * 
+     * @param record
+     *            the undeliverable record
+     * @param reason
+     *            why the record can not be delivered
+     * @throws IOException
+     *             if the dead letter file could not be written
+     */
+    public void deadLetter(Record record, String reason) throws IOException {
+        lock.lock();
+        try {
+            byte[] reasonBytes = String.valueOf(reason).getBytes(StandardCharsets.UTF_8);
+            try (FileOutputStream fos = new FileOutputStream(new File(directory, DEAD_LETTER_FILE), true);
+                            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+                out.writeLong(System.currentTimeMillis());
+                out.writeInt(reasonBytes.length);
+                out.write(reasonBytes);
+                out.writeLong(record.timestamp);
+                out.writeInt(record.data.length);
+                out.write(record.data);
+                out.flush();
+                fos.getFD().sync();
+            }
+            deadLetteredRecords++;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Audit journal " + directory + " is closed");
+        }
+    }
+    
+    private Position readCheckpoint() throws IOException {
+        File checkpoint = new File(directory, CHECKPOINT_FILE);
+        if (!checkpoint.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(checkpoint.toPath()))) {
+            return new Position(in.readLong(), in.readInt());
+        }
+    }
+    
+    private void writeCheckpoint(Position position) throws IOException {
+        File tmp = new File(directory, CHECKPOINT_FILE + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp); DataOutputStream out = new DataOutputStream(fos)) {
+            out.writeLong(position.segment);
+            out.writeInt(position.offset);
+            out.flush();
+            fos.getFD().sync();
+        }
+        Files.move(tmp.toPath(), new File(directory, CHECKPOINT_FILE).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private File segmentFile(long id) {
+        return new File(directory, String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+    
+    /**
+     * @return the number of records which have been appended but not committed
+     */
+    public long getPendingRecords() {
+        lock.lock();
+        try {
+            return pendingRecords;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * @return the time in milliseconds since the oldest record which has not been committed was appended, or 0 if every record has been committed
+     */
+    public long getLagMillis() {
+        lock.lock();
+        try {
+            return pendingRecords == 0 ? 0 : Math.max(0, System.currentTimeMillis() - oldestPendingTimestamp);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * @return the number of records appended since the journal was opened
+     */
+    public long getAppendedRecords() {
+        lock.lock();
+        try {
+            return appendedRecords;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * @return the number of records committed since the journal was opened
+     */
+    public long getCommittedRecords() {
+        lock.lock();
+        try {
+            return committedRecords;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * @return the number of records dead lettered since the journal was opened
+     */
+    public long getDeadLetteredRecords() {
+        lock.lock();
+        try {
+            return deadLetteredRecords;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int getSegmentCount() {
+        lock.lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Closes the segments. Records which were not committed remain in the journal for the next time it is opened, and waiting readers and writers are woken.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+            segments.clear();
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
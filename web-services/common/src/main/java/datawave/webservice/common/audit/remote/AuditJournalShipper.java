@@ -0,0 +1,266 @@
+package datawave.webservice.common.audit.remote;
+
+import datawave.webservice.common.remote.RemoteHttpService.UnsuccessfulResponseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ships the audits in an {@link AuditJournal} to the audit service in order, committing them as they are delivered.
+ * <p>
+ * A failure which may succeed on a later attempt, such as the audit service being unavailable, is retried after a delay which doubles up to a maximum. A
+ * record which can never be delivered, because it can not be decoded or the audit service rejected it with a client error, is moved to the journal's dead
+ * letter file so that it does not block the records behind it.
+ * <p>
+ * Each record holds the name and proxied users of the caller rather than a credential. The sender creates the credential when the audit is shipped, so a
+ * journaled audit is not rejected because a credential created when it was journaled has expired.
+ */
+public class AuditJournalShipper implements Runnable {
+    
+    private static final Logger log = LoggerFactory.getLogger(AuditJournalShipper.class);
+    
+    // the length written in place of a null string
+    private static final int NULL_LENGTH = -1;
+    
+    /**
+     * An audit read from the journal
+     */
+    public static class JournaledAudit {
+        private final String callerName;
+        private final List<String> proxiedUsers;
+        private final Map<String,String> params;
+        
+        /**
+         * @param callerName
+         *            the name of the caller
+         * @param proxiedUsers
+         *            the caller's proxied users, each serialized by the auditor
+         * @param params
+         *            the audit parameters
+         */
+        public JournaledAudit(String callerName, List<String> proxiedUsers, Map<String,String> params) {
+            this.callerName = callerName;
+            this.proxiedUsers = proxiedUsers;
+            this.params = params;
+        }
+        
+        public String getCallerName() {
+            return callerName;
+        }
+        
+        public List<String> getProxiedUsers() {
+            return proxiedUsers;
+        }
+        
+        public Map<String,String> getParams() {
+            return params;
+        }
+    }
+    
+    /**
+     * Sends an audit to the audit service
+     */
+    public interface AuditSender {
+        /**
+         * @param audit
+         *            the audit
+         * @throws IOException
+         *             if the audit is invalid and can never be sent
+         * @throws RuntimeException
+         *             if the audit could not be sent, which is retried unless the audit service rejected it with a client error
+         */
+        void send(JournaledAudit audit) throws IOException;
+    }
+    
+    private final AuditJournal journal;
+    private final AuditSender sender;
+    private final int batchSize;
+    private final long minRetryDelay;
+    private final long maxRetryDelay;
+    private volatile boolean running = true;
+    
+    /**
+     * @param journal
+     *            the journal to ship
+     * @param sender
+     *            sends each audit to the audit service
+     * @param batchSize
+     *            the maximum number of records read and committed at once
+     * @param minRetryDelay
+     *            the delay in milliseconds before the first retry of a failed delivery
+     * @param maxRetryDelay
+     *            the maximum delay in milliseconds between retries
+     */
+    public AuditJournalShipper(AuditJournal journal, AuditSender sender, int batchSize, long minRetryDelay, long maxRetryDelay) {
+        this.journal = journal;
+        this.sender = sender;
+        this.batchSize = batchSize;
+        this.minRetryDelay = minRetryDelay;
+        this.maxRetryDelay = Math.max(minRetryDelay, maxRetryDelay);
+    }
+    
+    /**
+     * Ships the journaled audits until stopped. A batch of audits is committed once each audit in it has been delivered or dead lettered, and on a retryable
+     * failure the handled audits are committed and the remainder are retried after the delay.
+     */
+    @Override
+    public void run() {
+        long retryDelay = minRetryDelay;
+        while (running) {
+            List<AuditJournal.Record> handled = new ArrayList<>();
+            try {
+                List<AuditJournal.Record> records = journal.read(batchSize, 1, TimeUnit.SECONDS);
+                try {
+                    for (AuditJournal.Record record : records) {
+                        ship(record);
+                        handled.add(record);
+                    }
+                    journal.commit(handled);
+                    retryDelay = minRetryDelay;
+                } catch (RuntimeException e) {
+                    journal.commit(handled);
+                    journal.rewind();
+                    log.warn("Unable to ship journaled audits, retrying in " + retryDelay + "ms: " + e.getMessage(), e);
+                    Thread.sleep(retryDelay);
+                    retryDelay = Math.min(retryDelay * 2, maxRetryDelay);
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (IOException e) {
+                log.error("Unable to commit or dead letter journaled audits, retrying in " + retryDelay + "ms: " + e.getMessage(), e);
+                journal.rewind();
+                try {
+                    Thread.sleep(retryDelay);
+                } catch (InterruptedException ie) {
+                    break;
+                }
+                retryDelay = Math.min(retryDelay * 2, maxRetryDelay);
+            }
+        }
+    }
+    
+    public void stop() {
+        running = false;
+    }
+    
+    /**
+     * Delivers a record, or dead letters it if it can never be delivered
+     * 
+     * @throws IOException
+     *             if the record could not be dead lettered
+     * @throws RuntimeException
+     *             if the record could not be delivered but may be on a later attempt
+     */
+    private void ship(AuditJournal.Record record) throws IOException {
+        String reason;
+        try {
+            sender.send(decode(record.getData()));
+            return;
+        } catch (IOException e) {
+            reason = "Invalid audit record: " + e.getMessage();
+        } catch (RuntimeException e) {
+            if (!isPermanent(e)) {
+                throw e;
+            }
+            reason = "Audit rejected: " + e.getMessage();
+        }
+        log.error("Moving journaled audit to the dead letter file. " + reason);
+        journal.deadLetter(record, reason);
+    }
+    
+    /**
+     * @return whether the audit service rejected the audit with a client error other than a timeout or too many requests, so that retrying can not succeed
+     */
+    static boolean isPermanent(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UnsuccessfulResponseException) {
+                int statusCode = ((UnsuccessfulResponseException) cause).getStatusCode();
+                return statusCode >= 400 && statusCode < 500 && statusCode != 408 && statusCode != 429;
+            }
+        }
+        return false;
+    }
+    
+    public static byte[] encode(JournaledAudit audit) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeString(out, audit.getCallerName());
+            out.writeInt(audit.getProxiedUsers().size());
+            for (String user : audit.getProxiedUsers()) {
+                writeString(out, user);
+            }
+            out.writeInt(audit.getParams().size());
+            for (Map.Entry<String,String> param : audit.getParams().entrySet()) {
+                writeString(out, param.getKey());
+                writeString(out, param.getValue());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+    
+    public static JournaledAudit decode(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        String callerName = readString(in);
+        int numUsers = readCount(in);
+        List<String> proxiedUsers = new ArrayList<>(numUsers);
+        for (int i = 0; i < numUsers; i++) {
+            proxiedUsers.add(readString(in));
+        }
+        int numParams = readCount(in);
+        Map<String,String> params = new LinkedHashMap<>();
+        for (int i = 0; i < numParams; i++) {
+            params.put(readString(in), readString(in));
+        }
+        if (in.available() > 0) {
+            throw new IOException(in.available() + " unexpected trailing bytes");
+        }
+        return new JournaledAudit(callerName, Collections.unmodifiableList(proxiedUsers), params);
+    }
+    
+    // DataOutputStream.writeUTF is limited to 64k
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[checkCount(length, in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    // a length or count can not exceed the remaining bytes, which guards against allocating a huge array for a corrupt record
+    private static int readCount(DataInputStream in) throws IOException {
+        return checkCount(in.readInt(), in);
+    }
+    
+    private static int checkCount(int count, DataInputStream in) throws IOException {
+        if (count < 0 || count > in.available()) {
+            throw new IOException("Invalid length " + count + " with " + in.available() + " bytes remaining");
+        }
+        return count;
+    }
+}
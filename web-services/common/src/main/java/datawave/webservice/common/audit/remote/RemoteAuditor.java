@@ -1,11 +1,15 @@
 package datawave.webservice.common.audit.remote;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.annotation.Metric;
 import com.codahale.metrics.annotation.Timed;
 import datawave.configuration.RefreshableScope;
 import datawave.security.authorization.DatawavePrincipal;
+import datawave.security.authorization.DatawaveUser;
 import datawave.webservice.common.audit.AuditService;
+import datawave.webservice.common.audit.remote.AuditJournalShipper.JournaledAudit;
 import datawave.webservice.common.remote.RemoteHttpService;
 import datawave.webservice.util.NotEqualPropertyExpressionInterpreter;
 import org.apache.deltaspike.core.api.config.ConfigProperty;
@@ -18,6 +22,8 @@ import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.util.EntityUtils;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Priority;
 import javax.annotation.Resource;
 import javax.ejb.Asynchronous;
@@ -25,16 +31,25 @@ import javax.ejb.EJBContext;
 import javax.enterprise.inject.Alternative;
 import javax.inject.Inject;
 import javax.interceptor.Interceptor;
+import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
  * This default auditor sends audits to a remote audit microservice.
+ * <p>
+ * If the journal is enabled, audits are instead appended to a local {@link AuditJournal} and acknowledged immediately. An {@link AuditJournalShipper} thread
+ * ships the journaled audits to the audit microservice in order, committing them as they are delivered and retrying with an increasing delay while the service
+ * is unavailable. Audits which were not delivered before a restart are shipped once the auditor starts again, so each audit is delivered at least once. The
+ * journal holds the caller's identity rather than a token, and the token is created when the audit is shipped.
  */
 @RefreshableScope
 @Alternative
@@ -87,6 +102,39 @@ public class RemoteAuditor extends RemoteHttpService implements AuditService {
     @ConfigProperty(name = "dw.remoteDatawaveAuditService.unavailableRetryDelayMS", defaultValue = "2000")
     private int unavailableRetryDelay;
     
+    @Inject
+    @ConfigProperty(name = "dw.remoteDatawaveAuditService.journal.enabled", defaultValue = "false")
+    private boolean journalEnabled;
+    
+    // defaults to an audit-journal directory in the server's data directory
+    @Inject
+    @ConfigProperty(name = "dw.remoteDatawaveAuditService.journal.dir", defaultValue = "")
+    private String journalDir;
+    
+    @Inject
+    @ConfigProperty(name = "dw.remoteDatawaveAuditService.journal.segmentSize", defaultValue = "16777216")
+    private int journalSegmentSize;
+    
+    @Inject
+    @ConfigProperty(name = "dw.remoteDatawaveAuditService.journal.maxSegments", defaultValue = "64")
+    private int journalMaxSegments;
+    
+    @Inject
+    @ConfigProperty(name = "dw.remoteDatawaveAuditService.journal.sync", defaultValue = "false")
+    private boolean journalSync;
+    
+    @Inject
+    @ConfigProperty(name = "dw.remoteDatawaveAuditService.journal.batchSize", defaultValue = "100")
+    private int journalBatchSize;
+    
+    @Inject
+    @ConfigProperty(name = "dw.remoteDatawaveAuditService.journal.appendTimeoutMS", defaultValue = "5000")
+    private long journalAppendTimeout;
+    
+    @Inject
+    @ConfigProperty(name = "dw.remoteDatawaveAuditService.journal.maxRetryDelayMS", defaultValue = "60000")
+    private long journalMaxRetryDelay;
+    
     @Inject
     @Metric(name = "dw.remoteDatawaveAuditService.retries", absolute = true)
     private Counter retryCounter;
@@ -95,9 +143,74 @@ public class RemoteAuditor extends RemoteHttpService implements AuditService {
     @Metric(name = "dw.remoteDatawaveAuditService.failures", absolute = true)
     private Counter failureCounter;
     
+    @Inject
+    private MetricRegistry metricRegistry;
+    
     @Resource
     private EJBContext ctx;
     
+    private AuditJournal journal;
+    private AuditJournalShipper shipper;
+    private Thread shipperThread;
+    
+    @Override
+    @PostConstruct
+    protected void init() {
+        super.init();
+        if (journalEnabled) {
+            File dir = journalDir.isEmpty() ? new File(System.getProperty("jboss.server.data.dir", "."), "audit-journal") : new File(journalDir);
+            try {
+                journal = new AuditJournal(dir, journalSegmentSize, journalMaxSegments, journalSync);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to open audit journal " + dir + ": " + e.getMessage(), e);
+            }
+            registerGauge("dw.remoteDatawaveAuditService.journal.pending", journal::getPendingRecords);
+            registerGauge("dw.remoteDatawaveAuditService.journal.lagMs", journal::getLagMillis);
+            registerGauge("dw.remoteDatawaveAuditService.journal.appended", journal::getAppendedRecords);
+            registerGauge("dw.remoteDatawaveAuditService.journal.committed", journal::getCommittedRecords);
+            registerGauge("dw.remoteDatawaveAuditService.journal.deadLettered", journal::getDeadLetteredRecords);
+            
+            shipper = new AuditJournalShipper(journal, this::sendJournaled, journalBatchSize, unavailableRetryDelay, journalMaxRetryDelay);
+            shipperThread = new Thread(shipper, "RemoteAuditor journal shipper");
+            shipperThread.setDaemon(true);
+            shipperThread.start();
+        }
+    }
+    
+    private void registerGauge(String name, Gauge<Long> gauge) {
+        // a refreshed auditor replaces the gauges of the previous instance
+        metricRegistry.remove(name);
+        metricRegistry.register(name, gauge);
+    }
+    
+    @Override
+    @PreDestroy
+    protected void shutdown() {
+        if (shipperThread != null) {
+            shipper.stop();
+            try {
+                // let an in-flight delivery finish, then wake a shipper waiting on the journal or a retry, and wait for it to exit before closing the journal
+                shipperThread.join(TimeUnit.SECONDS.toMillis(30));
+                shipperThread.interrupt();
+                shipperThread.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                shipperThread.interrupt();
+                Thread.currentThread().interrupt();
+            }
+            if (shipperThread.isAlive()) {
+                log.warn("Audit journal shipper did not exit, closing the journal anyway");
+            }
+            shipperThread = null;
+            shipper = null;
+        }
+        if (journal != null) {
+            // any audits which were not shipped remain in the journal for the next start
+            journal.close();
+            journal = null;
+        }
+        super.shutdown();
+    }
+    
     @Override
     @Timed(name = "dw.remoteAuditService.audit", absolute = true)
     public String audit(Map<String,String> params) {
@@ -106,7 +219,43 @@ public class RemoteAuditor extends RemoteHttpService implements AuditService {
         if (p instanceof DatawavePrincipal)
             dp = (DatawavePrincipal) p;
         
-        final String bearerHeader = "Bearer " + jwtTokenHandler.createTokenFromUsers(dp.getName(), dp.getProxiedUsers());
+        if (journal != null) {
+            try {
+                List<String> proxiedUsers = new ArrayList<>();
+                for (DatawaveUser user : dp.getProxiedUsers()) {
+                    proxiedUsers.add(objectMapper.writeValueAsString(user));
+                }
+                JournaledAudit audit = new JournaledAudit(dp.getName(), proxiedUsers, params);
+                journal.append(AuditJournalShipper.encode(audit), journalAppendTimeout, TimeUnit.MILLISECONDS);
+            } catch (IOException e) {
+                failureCounter.inc();
+                throw new RuntimeException("Unable to journal audit [" + params + "]: " + e.getMessage(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while journaling audit [" + params + "]", e);
+            }
+            // the response of the audit service is not available until the audit is shipped
+            return null;
+        }
+        return send(bearerHeader(dp.getName(), dp.getProxiedUsers()), params);
+    }
+    
+    private String bearerHeader(String callerName, Collection<? extends DatawaveUser> proxiedUsers) {
+        return "Bearer " + jwtTokenHandler.createTokenFromUsers(callerName, proxiedUsers);
+    }
+    
+    /**
+     * Sends a journaled audit, with a token created for the journaled identity
+     */
+    private void sendJournaled(JournaledAudit audit) throws IOException {
+        List<DatawaveUser> proxiedUsers = new ArrayList<>(audit.getProxiedUsers().size());
+        for (String user : audit.getProxiedUsers()) {
+            proxiedUsers.add(objectMapper.readValue(user, DatawaveUser.class));
+        }
+        send(bearerHeader(audit.getCallerName(), proxiedUsers), audit.getParams());
+    }
+    
+    private String send(String bearerHeader, Map<String,String> params) {
         UrlEncodedFormEntity postBody = new UrlEncodedFormEntity(params.entrySet().stream()
                         .map(e -> (NameValuePair) new BasicNameValuePair(e.getKey(), e.getValue()))::iterator, Consts.UTF_8);
         // @formatter:off
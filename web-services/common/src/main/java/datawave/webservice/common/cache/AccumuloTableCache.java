@@ -1,6 +1,9 @@
 package datawave.webservice.common.cache;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -30,6 +33,7 @@ import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 
 import datawave.annotation.Required;
 import datawave.configuration.DatawaveEmbeddedProjectStageHolder;
@@ -163,6 +167,14 @@ public class AccumuloTableCache {
             } catch (Exception e) {
                 throw new RuntimeException("table:" + tableName + " Unable to create shared counters: " + e.getMessage(), e);
             }
+            // rows invalidated by any server are reloaded by the next refresh on every server, which is submitted within a minute
+            cacheCoordinator.watchForEvictions(message -> {
+                String row = decodeRow(message);
+                if (row != null) {
+                    log.debug("table:" + tableName + " row invalidated: " + row);
+                    details.get(tableName).invalidateRows(Collections.singleton(row));
+                }
+            });
             detail.setWatcher(cacheCoordinator);
             details.put(entry.getKey(), entry.getValue());
             
@@ -204,7 +216,7 @@ public class AccumuloTableCache {
                 continue;
             }
             long last = entry.getValue().getLastRefresh().getTime();
-            if ((now - last) > entry.getValue().getReloadInterval()) {
+            if ((now - last) > entry.getValue().getReloadInterval() || entry.getValue().hasInvalidatedRows()) {
                 log.info("Reloading " + entry.getKey());
                 try {
                     Future<Boolean> result = executorService.submit(entry.getValue());
@@ -272,6 +284,69 @@ public class AccumuloTableCache {
         return response;
     }
     
+    /**
+     * <strong>JBossAdministrator or Administrator credentials required.</strong>
+     * <p>
+     * Reloads rows of the cached version of a table on every server. When incremental refresh is enabled, only the rows are removed and reloaded in full, which
+     * also removes entries deleted from them. Otherwise the whole table is reloaded. Whoever changes rows of a cached table calls this to have the changes
+     * cached before the next scheduled reload.
+     *
+     * @param tableName
+     *            the name of the table for which rows of the cached version are to be reloaded
+     * @param rows
+     *            the rows to reload
+     * @return datawave.webservice.result.VoidResponse
+     * @RequestHeader X-ProxiedEntitiesChain use when proxying request for user
+     * @RequestHeader X-ProxiedIssuersChain required when using X-ProxiedEntitiesChain, specify one issuer DN per subject DN listed in X-ProxiedEntitiesChain
+     * @RequestHeader query-session-id session id value used for load balancing purposes. query-session-id can be placed in the request in a Cookie header or as
+     *                a query parameter
+     * @ResponseHeader X-OperationTimeInMS time spent on the server performing the operation, does not account for network or result serialization
+     *
+     * @HTTP 200 success
+     * @HTTP 500 internal server error
+     */
+    @GET
+    @Path("/reload/{tableName}/rows")
+    @Produces({"application/xml", "text/xml", "application/json", "text/yaml", "text/x-yaml", "application/x-yaml", "application/x-protobuf",
+            "application/x-protostuff"})
+    @GZIP
+    @Interceptors(RequiredInterceptor.class)
+    public VoidResponse reloadRows(@Required("tableName") @PathParam("tableName") String tableName, @Required("row") @QueryParam("row") List<String> rows) {
+        VoidResponse response = new VoidResponse();
+        TableCache detail = details.get(tableName);
+        if (null == detail) {
+            return response;
+        }
+        if (!detail.isIncrementalRefresh()) {
+            return reloadCache(tableName);
+        }
+        // send an invalidation notice for each row to the cluster, including this server
+        try {
+            for (String row : rows) {
+                detail.getWatcher().sendEvictMessage(encodeRow(row));
+            }
+        } catch (Exception e) {
+            response.addException(new QueryException(e).getBottomQueryException());
+            throw new DatawaveWebApplicationException(e, response);
+        }
+        handleReloadTypeMetadata(tableName);
+        return response;
+    }
+    
+    private static String encodeRow(String row) {
+        // eviction messages are zookeeper node names, which can not contain every character a row can
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(row.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private String decodeRow(String message) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(message), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring invalid row invalidation message: " + message);
+            return null;
+        }
+    }
+    
     private void handleReloadTypeMetadata(String tableName) {
         String triStateName = tableName + ":needsUpdate";
         try {
@@ -316,6 +391,8 @@ public class AccumuloTableCache {
             t.setReloadInterval(entry.getValue().getReloadInterval());
             t.setMaxRows(entry.getValue().getMaxRows());
             t.setLastRefresh(entry.getValue().getLastRefresh());
+            t.setIncrementalRefresh(entry.getValue().isIncrementalRefresh());
+            t.setLastRowRefresh(entry.getValue().getLastRowRefresh());
             t.setCurrentlyRefreshing((entry.getValue().getReference() != null));
             response.getCaches().add(t);
         }
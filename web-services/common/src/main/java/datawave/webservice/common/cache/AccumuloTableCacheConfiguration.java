@@ -24,6 +24,9 @@ public class AccumuloTableCacheConfiguration {
     @Inject
     @ConfigProperty(name = "dw.cache.reloadInterval", defaultValue = "86400000")
     private long reloadInterval;
+    @Inject
+    @ConfigProperty(name = "dw.cache.incrementalRefresh", defaultValue = "false")
+    private boolean incrementalRefresh;
     
     private Map<String,TableCache> caches = new HashMap<>();
     
@@ -34,6 +37,7 @@ public class AccumuloTableCacheConfiguration {
             cache.setTableName(tableName);
             cache.setConnectionPoolName(poolName);
             cache.setReloadInterval(reloadInterval);
+            cache.setIncrementalRefresh(incrementalRefresh);
             caches.put(tableName, cache);
         }
     }
@@ -1,11 +1,18 @@
 package datawave.webservice.common.cache;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
@@ -33,6 +40,7 @@ import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.user.RegExFilter;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.hadoop.io.Text;
 import org.apache.log4j.Logger;
 
 import com.google.common.collect.Lists;
@@ -49,9 +57,12 @@ public class BaseTableCache implements Serializable, TableCache {
     private String auths = null;
     private long reloadInterval = 0;
     private long maxRows = Long.MAX_VALUE;
+    private boolean incrementalRefresh = false;
     
     /** set programatically **/
     private Date lastRefresh = new Date(0);
+    private Date lastRowRefresh = new Date(0);
+    private final Set<String> invalidatedRows = new TreeSet<>();
     private AccumuloConnectionFactory connectionFactory = null;
     private transient InMemoryInstance instance = null;
     private SharedCacheCoordinator watcher = null;
@@ -159,6 +170,35 @@ public class BaseTableCache implements Serializable, TableCache {
         this.maxRows = maxRows;
     }
     
+    @Override
+    public boolean isIncrementalRefresh() {
+        return incrementalRefresh;
+    }
+    
+    @Override
+    public void setIncrementalRefresh(boolean incrementalRefresh) {
+        this.incrementalRefresh = incrementalRefresh;
+    }
+    
+    @Override
+    public Date getLastRowRefresh() {
+        return lastRowRefresh;
+    }
+    
+    @Override
+    public void invalidateRows(Collection<String> rows) {
+        synchronized (invalidatedRows) {
+            invalidatedRows.addAll(rows);
+        }
+    }
+    
+    @Override
+    public boolean hasInvalidatedRows() {
+        synchronized (invalidatedRows) {
+            return !invalidatedRows.isEmpty();
+        }
+    }
+    
     @Override
     public Boolean call() throws Exception {
         if (!lock.tryLock(0, TimeUnit.SECONDS))
@@ -187,6 +227,13 @@ public class BaseTableCache implements Serializable, TableCache {
             instanceClient.securityOperations().changeLocalUserPassword(AccumuloTableCache.MOCK_USERNAME, AccumuloTableCache.MOCK_PASSWORD);
             instanceClient.securityOperations().changeUserAuthorizations(AccumuloTableCache.MOCK_USERNAME, authorizations);
             
+            // a refresh which is not a scheduled or requested reload was started for invalidated rows
+            if (incrementalRefresh && instanceClient.tableOperations().exists(tableName)
+                            && System.currentTimeMillis() - lastRefresh.getTime() <= reloadInterval) {
+                refreshIncrementally(accumuloClient, instanceClient, authorizations);
+                return true;
+            }
+            
             createNamespaceIfNecessary(instanceClient.namespaceOperations(), tempTableName);
             
             if (instanceClient.tableOperations().exists(tempTableName)) {
@@ -195,26 +242,12 @@ public class BaseTableCache implements Serializable, TableCache {
             
             instanceClient.tableOperations().create(tempTableName);
             
-            writer = instanceClient.createBatchWriter(tempTableName,
-                            new BatchWriterConfig().setMaxMemory(10L * (1024L * 1024L)).setMaxLatency(100L, TimeUnit.MILLISECONDS).setMaxWriteThreads(1));
+            writer = instanceClient.createBatchWriter(tempTableName, createWriterConfig());
             setupScanner(scanner);
             
-            Iterator<Entry<Key,Value>> iter = scanner.iterator();
-            long count = 0;
-            while (iter.hasNext()) {
-                
-                if (count > maxRows)
-                    break;
-                Entry<Key,Value> value = iter.next();
-                
-                Key valueKey = value.getKey();
-                
-                Mutation m = new Mutation(value.getKey().getRow());
-                m.put(valueKey.getColumnFamily(), valueKey.getColumnQualifier(), new ColumnVisibility(valueKey.getColumnVisibility()), valueKey.getTimestamp(),
-                                value.getValue());
-                writer.addMutation(m);
-                count++;
-            }
+            // the rows invalidated before this point are reloaded along with the rest of the table
+            drainInvalidatedRows();
+            long count = copy(scanner, writer);
             this.lastRefresh = new Date();
             try {
                 instanceClient.tableOperations().delete(tableName);
@@ -246,6 +279,126 @@ public class BaseTableCache implements Serializable, TableCache {
         return true;
     }
     
+    /**
+     * Replaces the invalidated rows of the cached table with fresh copies. The timestamps of the entries of a cached table are the dates of the data rather
+     * than the times they were written, so they can not tell which entries changed since the last refresh. Only the invalidated rows are known to have
+     * changed, and any other change is picked up by the next scheduled reload.
+     * <p>
+     * The rows are first copied into a scratch table, so that the cached rows are left as they were if the copy fails. Only then are the cached rows removed
+     * and the fresh rows moved in from the scratch table.
+     */
+    void refreshIncrementally(AccumuloClient accumuloClient, AccumuloClient instanceClient, Authorizations authorizations) throws Exception {
+        List<String> rows = drainInvalidatedRows();
+        if (rows.isEmpty()) {
+            return;
+        }
+        String rowsTableName = tableName + "Rows";
+        long count;
+        try {
+            if (instanceClient.tableOperations().exists(rowsTableName)) {
+                instanceClient.tableOperations().delete(rowsTableName);
+            }
+            instanceClient.tableOperations().create(rowsTableName);
+            
+            List<Range> ranges = new ArrayList<>(rows.size());
+            for (String row : rows) {
+                Text end = new Text(row);
+                ranges.add(new Range(before(end), false, end, true));
+            }
+            try (BatchWriter writer = instanceClient.createBatchWriter(rowsTableName, createWriterConfig())) {
+                count = copy(accumuloClient, authorizations, ranges, writer);
+            }
+            
+            // the in-memory table is never compacted, so rows are removed rather than deleted, which would hide the entries copied back into them
+            for (String row : rows) {
+                Text end = new Text(row);
+                instanceClient.tableOperations().deleteRows(tableName, before(end), end);
+            }
+            BatchScanner scanner = instanceClient.createBatchScanner(rowsTableName, authorizations, 1);
+            try (BatchWriter writer = instanceClient.createBatchWriter(tableName, createWriterConfig())) {
+                scanner.setRanges(Collections.singleton(new Range()));
+                copy(scanner, writer);
+            } finally {
+                scanner.close();
+            }
+        } catch (Exception e) {
+            // the invalidated rows must be reloaded by the next attempt
+            invalidateRows(rows);
+            throw e;
+        } finally {
+            try {
+                if (instanceClient.tableOperations().exists(rowsTableName)) {
+                    instanceClient.tableOperations().delete(rowsTableName);
+                }
+            } catch (Exception e) {
+                log.warn("Error deleting scratch table: " + rowsTableName, e);
+            }
+        }
+        this.lastRowRefresh = new Date();
+        log.info("Reloaded " + count + " k,v in " + rows.size() + " invalidated rows for table: " + tableName);
+    }
+    
+    private long copy(AccumuloClient accumuloClient, Authorizations authorizations, Collection<Range> ranges, BatchWriter writer) throws Exception {
+        BatchScanner scanner = accumuloClient.createBatchScanner(tableName, authorizations, 10);
+        try {
+            setupScanner(scanner);
+            scanner.setRanges(ranges);
+            return copy(scanner, writer);
+        } finally {
+            scanner.close();
+        }
+    }
+    
+    private long copy(BatchScanner scanner, BatchWriter writer) throws Exception {
+        Iterator<Entry<Key,Value>> iter = scanner.iterator();
+        long count = 0;
+        while (iter.hasNext()) {
+            
+            if (count > maxRows)
+                break;
+            Entry<Key,Value> value = iter.next();
+            
+            Key valueKey = value.getKey();
+            
+            Mutation m = new Mutation(value.getKey().getRow());
+            m.put(valueKey.getColumnFamily(), valueKey.getColumnQualifier(), new ColumnVisibility(valueKey.getColumnVisibility()), valueKey.getTimestamp(),
+                            value.getValue());
+            writer.addMutation(m);
+            count++;
+        }
+        return count;
+    }
+    
+    private List<String> drainInvalidatedRows() {
+        synchronized (invalidatedRows) {
+            List<String> rows = new ArrayList<>(invalidatedRows);
+            invalidatedRows.clear();
+            return rows;
+        }
+    }
+    
+    private BatchWriterConfig createWriterConfig() {
+        return new BatchWriterConfig().setMaxMemory(10L * (1024L * 1024L)).setMaxLatency(100L, TimeUnit.MILLISECONDS).setMaxWriteThreads(1);
+    }
+    
+    /**
+     * A row which sorts before {@code row}, with (almost certainly) no rows of the table between the two
+     */
+    static Text before(Text row) {
+        byte[] bytes = row.copyBytes();
+        if (bytes.length == 0) {
+            return null;
+        }
+        int last = bytes.length - 1;
+        if (bytes[last] == 0) {
+            return new Text(Arrays.copyOf(bytes, last));
+        }
+        byte[] before = Arrays.copyOf(bytes, bytes.length + 4);
+        before[last]--;
+        Arrays.fill(before, bytes.length, before.length, (byte) 0xff);
+        return new Text(before);
+    }
+    
     public void setupScanner(BatchScanner scanner) {
         scanner.setRanges(Lists.newArrayList(new Range()));
         Map<String,String> options = new HashMap<>();
@@ -22,7 +22,6 @@ import org.apache.deltaspike.core.api.config.ConfigProperty;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.ZKUtil;
-import org.apache.zookeeper.data.Stat;
 import org.jboss.logging.Logger;
 
 import javax.annotation.PostConstruct;
@@ -53,7 +52,9 @@ public class SharedCacheCoordinator implements Serializable {
     
     private static final long serialVersionUID = 1L;
     private static final String LIVE_SERVERS = "/liveServers";
-    private static final long EVICT_MESSAGE_TIMEOUT = 60 * 1000L;
+    // separates an eviction message from the sequence number zookeeper appends to its node name
+    private static final String EVICT_SEQUENCE_SEPARATOR = "~";
+    private static final int EVICT_SEQUENCE_LENGTH = 10;
     
     private Logger log = Logger.getLogger(getClass());
     private transient CuratorFramework curatorClient;
@@ -615,27 +616,26 @@ public class SharedCacheCoordinator implements Serializable {
     }
     
     /**
-     * Sends an eviction message for {@code messagePath} to all other shared cache coordinators that are listening.
+     * Sends an eviction message for {@code messagePath} to all other shared cache coordinators that are listening. Each message is written to a new sequential
+     * node, so a message which is sent again before the previous one has been cleaned up is still delivered.
      */
     public void sendEvictMessage(String messagePath) throws Exception {
         ArgumentChecker.notNull(messagePath);
         
         String rootPath = ZKPaths.makePath("/", "evictions");
-        String evictMessagePath = ZKPaths.makePath(rootPath, ZKPaths.makePath(messagePath, localName));
-        Stat nodeData = curatorClient.checkExists().forPath(evictMessagePath);
-        boolean shouldCreate = true;
-        if (nodeData != null) {
-            long delta = System.currentTimeMillis() - nodeData.getCtime();
-            if (delta > EVICT_MESSAGE_TIMEOUT) {
-                log.debug("Attempting to delete " + evictMessagePath + " since it was created " + delta + "ms ago and hasn't been cleaned up.");
-                ZKUtil.deleteRecursive(curatorClient.getZookeeperClient().getZooKeeper(), evictMessagePath);
-            } else {
-                shouldCreate = false;
-            }
+        String evictMessagePath = ZKPaths.makePath(rootPath, messagePath + EVICT_SEQUENCE_SEPARATOR);
+        curatorClient.create().creatingParentsIfNeeded().withMode(CreateMode.PERSISTENT_SEQUENTIAL).forPath(evictMessagePath);
+    }
+    
+    /**
+     * @return the message of an eviction node, without the sequence number of the node
+     */
+    static String getEvictMessage(String node) {
+        int separator = node.length() - EVICT_SEQUENCE_LENGTH - EVICT_SEQUENCE_SEPARATOR.length();
+        if (separator >= 0 && node.startsWith(EVICT_SEQUENCE_SEPARATOR, separator)) {
+            return node.substring(0, separator);
         }
-        
-        if (shouldCreate)
-            curatorClient.create().creatingParentsIfNeeded().forPath(evictMessagePath);
+        return node;
     }
     
     /**
@@ -651,7 +651,7 @@ public class SharedCacheCoordinator implements Serializable {
             if (event.getType().equals(PathChildrenCacheEvent.Type.CHILD_ADDED)) {
                 // Call our eviction handler to do local eviction
                         String path = event.getData().getPath();
-                        String dn = ZKPaths.getNodeFromPath(path);
+                        String dn = getEvictMessage(ZKPaths.getNodeFromPath(path));
                         callback.evict(dn);
                         
                         // Now register ourselves under the eviction node that that once
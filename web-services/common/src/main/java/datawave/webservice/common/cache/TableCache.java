@@ -1,6 +1,7 @@
 package datawave.webservice.common.cache;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.Date;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
@@ -31,6 +32,12 @@ public interface TableCache extends Callable<Boolean>, Serializable {
     
     long getMaxRows();
     
+    boolean isIncrementalRefresh();
+    
+    Date getLastRowRefresh();
+    
+    boolean hasInvalidatedRows();
+    
     void setTableName(String tableName);
     
     void setConnectionPoolName(String connectionPoolName);
@@ -51,6 +58,16 @@ public interface TableCache extends Callable<Boolean>, Serializable {
     
     void setMaxRows(long maxRows);
     
+    void setIncrementalRefresh(boolean incrementalRefresh);
+    
+    /**
+     * Marks rows to be reloaded completely by the next refresh. With incremental refresh, a refresh which is not a scheduled reload only reloads these rows.
+     *
+     * @param rows
+     *            the rows which changed
+     */
+    void invalidateRows(Collection<String> rows);
+    
     Boolean call() throws Exception;
     
 }
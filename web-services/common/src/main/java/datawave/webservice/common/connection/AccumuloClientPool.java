@@ -6,8 +6,17 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+import datawave.accumulo.inmemory.InMemoryAccumuloClient;
+import datawave.accumulo.inmemory.InMemoryInstance;
 import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
 import org.apache.commons.lang.mutable.MutableInt;
 import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.apache.log4j.Logger;
@@ -19,6 +28,20 @@ public class AccumuloClientPool extends GenericObjectPool<AccumuloClient> {
     private final Map<AccumuloClient,Map<String,String>> connectorToTrackingMapMap = Collections.synchronizedMap(new HashMap<>());
     private AccumuloClientPoolFactory factory;
     
+    // the in-memory instance on which this pool's user password has been set
+    private final Object mockClientLock = new Object();
+    private volatile InMemoryInstance mockInstance = null;
+    
+    // borrow latency metrics
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder borrowNanos = new LongAdder();
+    private final AtomicLong maxBorrowNanos = new AtomicLong();
+    private final LongAdder borrowTimeouts = new LongAdder();
+    
+    // the admission queue shared by all of the priorities of the named pool, if any
+    private PriorityAdmissionQueue admission = null;
+    private AccumuloConnectionFactory.Priority priority = null;
+    
     public AccumuloClientPool(AccumuloClientPoolFactory factory) {
         super(factory);
         this.factory = factory;
@@ -26,7 +49,9 @@ public class AccumuloClientPool extends GenericObjectPool<AccumuloClient> {
     
     @Override
     public String toString() {
-        return " NumIdle: " + getNumIdle() + " NumActive: " + getNumActive() + " MaxIdle: " + getMaxIdle() + " MaxTotal: " + getMaxTotal();
+        return " NumIdle: " + getNumIdle() + " NumActive: " + getNumActive() + " MaxIdle: " + getMaxIdle() + " MaxTotal: " + getMaxTotal() + " Borrowed: "
+                        + getBorrowCount() + " AvgBorrowMs: " + getAverageBorrowMillis() + " MaxBorrowMs: " + getMaxBorrowMillis() + " BorrowTimeouts: "
+                        + getBorrowTimeouts() + " AdmissionQueued: " + getAdmissionQueued() + " AdmissionWaiting: " + getAdmissionWaiting();
     }
     
     public AccumuloClient borrowObject(Map<String,String> trackingMap) throws Exception {
@@ -38,7 +63,24 @@ public class AccumuloClientPool extends GenericObjectPool<AccumuloClient> {
             trackingMap.put("state", AccumuloConnectionFactory.State.WAITING.toString());
             trackingMap.put("thread.name", Thread.currentThread().getName());
             threadToTrackingMapMap.put(threadId, trackingMap);
-            o = super.borrowObject();
+            long start = System.nanoTime();
+            if (admission != null && !admission.acquire(priority, getMaxWaitMillis())) {
+                borrowTimeouts.increment();
+                throw new NoSuchElementException("Timeout waiting for admission at " + priority + " priority");
+            }
+            try {
+                o = super.borrowObject();
+            } catch (Exception e) {
+                if (admission != null) {
+                    admission.release();
+                }
+                if (e instanceof NoSuchElementException) {
+                    // the pool was exhausted for longer than the max wait configured for this priority
+                    borrowTimeouts.increment();
+                }
+                throw e;
+            }
+            recordBorrow(System.nanoTime() - start);
             log.debug(System.currentTimeMillis() + " thread: " + threadId + " borrowed connector: " + o);
             if (log.isTraceEnabled()) {
                 log.trace(System.currentTimeMillis() + " " + Arrays.toString(Thread.currentThread().getStackTrace()));
@@ -74,7 +116,13 @@ public class AccumuloClientPool extends GenericObjectPool<AccumuloClient> {
                 }
             }
             
-            super.returnObject(client);
+            try {
+                super.returnObject(client);
+            } finally {
+                if (admission != null) {
+                    admission.release();
+                }
+            }
         }
     }
     
@@ -105,6 +153,75 @@ public class AccumuloClientPool extends GenericObjectPool<AccumuloClient> {
         return Collections.unmodifiableList(t);
     }
     
+    private void recordBorrow(long nanos) {
+        borrowCount.increment();
+        borrowNanos.add(nanos);
+        maxBorrowNanos.accumulateAndGet(nanos, Math::max);
+    }
+    
+    /**
+     * Gets a new in-memory client over the given instance for this pool's user. Each caller gets its own client, so closing one does not affect the clients of
+     * other borrowers. The user's password is only set on the first call for an instance.
+     *
+     * @param instance
+     *            the in-memory instance
+     * @return the in-memory client
+     */
+    public AccumuloClient getMockClient(InMemoryInstance instance) throws AccumuloSecurityException, AccumuloException {
+        AccumuloClient client = new InMemoryAccumuloClient(factory.getUsername(), instance);
+        if (mockInstance != instance) {
+            synchronized (mockClientLock) {
+                if (mockInstance != instance) {
+                    client.securityOperations().changeLocalUserPassword(factory.getUsername(), new PasswordToken(factory.getPassword()));
+                    mockInstance = instance;
+                }
+            }
+        }
+        return client;
+    }
+    
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+    
+    public long getAverageBorrowMillis() {
+        long count = borrowCount.sum();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(borrowNanos.sum() / count);
+    }
+    
+    public long getMaxBorrowMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxBorrowNanos.get());
+    }
+    
+    public long getBorrowTimeouts() {
+        return borrowTimeouts.sum();
+    }
+    
+    /**
+     * Orders this pool's borrowers against those of the named pool's other priorities
+     *
+     * @param admission
+     *            the admission queue shared by the named pool's priorities
+     * @param priority
+     *            the priority of this pool
+     */
+    public void setAdmission(PriorityAdmissionQueue admission, AccumuloConnectionFactory.Priority priority) {
+        this.admission = admission;
+        this.priority = priority;
+    }
+    
+    public PriorityAdmissionQueue getAdmission() {
+        return admission;
+    }
+    
+    public long getAdmissionQueued() {
+        return (admission != null) ? admission.getQueued(priority) : 0;
+    }
+    
+    public int getAdmissionWaiting() {
+        return (admission != null) ? admission.getWaiting(priority) : 0;
+    }
+    
     public boolean connectorCameFromHere(AccumuloClient client) {
         return this.connectorToTrackingMapMap.containsKey(client);
     }
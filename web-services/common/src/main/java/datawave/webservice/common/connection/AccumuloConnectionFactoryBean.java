@@ -1,6 +1,5 @@
 package datawave.webservice.common.connection;
 
-import datawave.accumulo.inmemory.InMemoryAccumuloClient;
 import datawave.configuration.DatawaveEmbeddedProjectStageHolder;
 import datawave.security.authorization.DatawavePrincipal;
 import datawave.webservice.common.cache.AccumuloTableCache;
@@ -55,6 +54,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -84,6 +84,8 @@ public class AccumuloConnectionFactoryBean implements AccumuloConnectionFactory
     public static final String TRACE_SERVICE_PROPERTY = "trace.service";
     public static final String TRACER_ZK_HOST = "tracer.zookeeper.host";
     public static final String TRACER_ZK_PATH = "tracer.zookeeper.path";
+    public static final String CLASS_LOADER_CONTEXT_PROPERTY = "dw.accumulo.classLoader.context";
+    public static final String SCAN_BATCH_TIMEOUT_PROPERTY = "dw.accumulo.scan.batch.timeout.seconds";
     
     private Logger log = Logger.getLogger(this.getClass());
     
@@ -100,6 +102,14 @@ public class AccumuloConnectionFactoryBean implements AccumuloConnectionFactory
     
     private String defaultPoolName = null;
     
+    // the pool each borrowed client came from, keyed by identity
+    private final Map<AccumuloClient,AccumuloClientPool> clientPools = Collections.synchronizedMap(new IdentityHashMap<>());
+    
+    // the system properties applied to each client, read on the first call to getClient
+    private volatile boolean clientPropertiesLoaded = false;
+    private String scannerClassLoaderContext = null;
+    private Long scanBatchTimeoutSeconds = null;
+    
     @PostConstruct
     public void init() {
         this.pools = new HashMap<>();
@@ -113,10 +123,16 @@ public class AccumuloConnectionFactoryBean implements AccumuloConnectionFactory
         for (Entry<String,ConnectionPoolConfiguration> entry : connectionPoolsConfiguration.getPools().entrySet()) {
             Map<Priority,AccumuloClientPool> p = new HashMap<>();
             ConnectionPoolConfiguration conf = entry.getValue();
-            p.put(Priority.ADMIN, createConnectionPool(conf, conf.getAdminPriorityPoolSize()));
-            p.put(Priority.HIGH, createConnectionPool(conf, conf.getHighPriorityPoolSize()));
-            p.put(Priority.NORMAL, createConnectionPool(conf, conf.getNormalPriorityPoolSize()));
-            p.put(Priority.LOW, createConnectionPool(conf, conf.getLowPriorityPoolSize()));
+            p.put(Priority.ADMIN, createConnectionPool(conf, conf.getAdminPriorityPoolSize(), conf.getAdminPriorityMaxWait()));
+            p.put(Priority.HIGH, createConnectionPool(conf, conf.getHighPriorityPoolSize(), conf.getHighPriorityMaxWait()));
+            p.put(Priority.NORMAL, createConnectionPool(conf, conf.getNormalPriorityPoolSize(), conf.getNormalPriorityMaxWait()));
+            p.put(Priority.LOW, createConnectionPool(conf, conf.getLowPriorityPoolSize(), conf.getLowPriorityMaxWait()));
+            if (conf.getAdmissionLimit() > 0) {
+                PriorityAdmissionQueue admission = new PriorityAdmissionQueue(conf.getAdmissionLimit());
+                for (Entry<Priority,AccumuloClientPool> poolEntry : p.entrySet()) {
+                    poolEntry.getValue().setAdmission(admission, poolEntry.getKey());
+                }
+            }
             this.pools.put(entry.getKey(), Collections.unmodifiableMap(p));
             try {
                 setupMockAccumuloUser(conf, p.get(Priority.NORMAL), instances);
@@ -149,13 +165,25 @@ public class AccumuloConnectionFactoryBean implements AccumuloConnectionFactory
         cache.setConnectionFactory(this);
     }
     
-    private AccumuloClientPool createConnectionPool(ConnectionPoolConfiguration conf, int limit) {
+    /**
+     * Reads the system properties applied to each client. These are read once rather than on each call to getClient.
+     */
+    private void loadClientProperties() {
+        scannerClassLoaderContext = System.getProperty(CLASS_LOADER_CONTEXT_PROPERTY);
+        String timeout = System.getProperty(SCAN_BATCH_TIMEOUT_PROPERTY);
+        scanBatchTimeoutSeconds = (timeout != null) ? Long.parseLong(timeout) : null;
+        clientPropertiesLoaded = true;
+    }
+    
+    private AccumuloClientPool createConnectionPool(ConnectionPoolConfiguration conf, int limit, long maxWait) {
         AccumuloClientPoolFactory factory = new AccumuloClientPoolFactory(conf.getUsername(), conf.getPassword(), conf.getZookeepers(), conf.getInstance());
         AccumuloClientPool pool = new AccumuloClientPool(factory);
         pool.setTestOnBorrow(true);
         pool.setTestOnReturn(true);
         pool.setMaxTotal(limit);
         pool.setMaxIdle(-1);
+        // callers queue for a client when the pool is exhausted, timing out after the max wait for the pool's priority
+        pool.setMaxWaitMillis(maxWait);
         
         try {
             pool.addObject();
@@ -261,18 +289,19 @@ public class AccumuloConnectionFactoryBean implements AccumuloConnectionFactory
             if (proxyServers != null)
                 trackingMap.put("proxyServers", proxyServers.toString());
         }
+        if (!clientPropertiesLoaded) {
+            loadClientProperties();
+        }
         AccumuloClientPool pool = pools.get(poolName).get(priority);
+        AccumuloClient mock = pool.getMockClient(cache.getInstance());
         AccumuloClient c = pool.borrowObject(trackingMap);
-        AccumuloClient mock = new InMemoryAccumuloClient(pool.getFactory().getUsername(), cache.getInstance());
-        mock.securityOperations().changeLocalUserPassword(pool.getFactory().getUsername(), new PasswordToken(pool.getFactory().getPassword()));
+        clientPools.put(c, pool);
         WrappedAccumuloClient wrappedAccumuloClient = new WrappedAccumuloClient(c, mock);
-        String classLoaderContext = System.getProperty("dw.accumulo.classLoader.context");
-        if (classLoaderContext != null) {
-            wrappedAccumuloClient.setScannerClassLoaderContext(classLoaderContext);
+        if (scannerClassLoaderContext != null) {
+            wrappedAccumuloClient.setScannerClassLoaderContext(scannerClassLoaderContext);
         }
-        String timeout = System.getProperty("dw.accumulo.scan.batch.timeout.seconds");
-        if (timeout != null) {
-            wrappedAccumuloClient.setScanBatchTimeoutSeconds(Long.parseLong(timeout));
+        if (scanBatchTimeoutSeconds != null) {
+            wrappedAccumuloClient.setScanBatchTimeoutSeconds(scanBatchTimeoutSeconds);
         }
         return wrappedAccumuloClient;
     }
@@ -291,6 +320,11 @@ public class AccumuloConnectionFactoryBean implements AccumuloConnectionFactory
             wrappedAccumuloClient.clearScannerClassLoaderContext();
             client = wrappedAccumuloClient.getReal();
         }
+        AccumuloClientPool pool = clientPools.remove(client);
+        if (pool != null) {
+            pool.returnObject(client);
+            return;
+        }
         for (Entry<String,Map<Priority,AccumuloClientPool>> entry : this.pools.entrySet()) {
             for (Entry<Priority,AccumuloClientPool> poolEntry : entry.getValue().entrySet()) {
                 if (poolEntry.getValue().connectorCameFromHere(client)) {
@@ -365,6 +399,12 @@ public class AccumuloConnectionFactoryBean implements AccumuloConnectionFactory
                 poolInfo.setMaxIdle(maxIdle.toInteger());
                 poolInfo.setNumIdle(numIdle.toInteger());
                 poolInfo.setPoolName(poolName);
+                poolInfo.setBorrowCount(p.getBorrowCount());
+                poolInfo.setAverageBorrowMillis(p.getAverageBorrowMillis());
+                poolInfo.setMaxBorrowMillis(p.getMaxBorrowMillis());
+                poolInfo.setBorrowTimeouts(p.getBorrowTimeouts());
+                poolInfo.setAdmissionQueued(p.getAdmissionQueued());
+                poolInfo.setAdmissionWaiting(p.getAdmissionWaiting());
                 
                 List<Connection> requestingConnections = new ArrayList<>();
                 for (Map<String,String> m : requestingConnectionsMap) {
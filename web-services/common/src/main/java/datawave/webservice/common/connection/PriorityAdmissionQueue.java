@@ -0,0 +1,149 @@
+package datawave.webservice.common.connection;
+
+import java.util.TreeSet;
+
+import datawave.webservice.common.connection.AccumuloConnectionFactory.Priority;
+
+/**
+ * Admits the borrowers of a named pool's clients in priority order. Up to the limit, clients may be borrowed across all of the pool's priorities at once. Once
+ * the limit is reached callers queue, and each returned client admits the waiting caller with the highest priority, in arrival order within a priority.
+ */
+public class PriorityAdmissionQueue {
+    
+    private final int limit;
+    private int active = 0;
+    private long sequence = 0;
+    private final TreeSet<Waiter> waiters = new TreeSet<>();
+    
+    // per priority, indexed by ordinal
+    private final long[] admitted = new long[Priority.values().length];
+    private final long[] queued = new long[Priority.values().length];
+    private final long[] timeouts = new long[Priority.values().length];
+    private final int[] waiting = new int[Priority.values().length];
+    
+    public PriorityAdmissionQueue(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("The admission limit must be positive: " + limit);
+        }
+        this.limit = limit;
+    }
+    
+    /**
+     * Waits to be admitted. Every successful call must be followed by a call to {@link #release()}.
+     *
+     * @param priority
+     *            the priority of the caller
+     * @param maxWaitMillis
+     *            the time to wait for admission, where a negative value waits indefinitely
+     * @return true if admitted, false if the wait timed out
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    public synchronized boolean acquire(Priority priority, long maxWaitMillis) throws InterruptedException {
+        int p = priority.ordinal();
+        if (waiters.isEmpty() && active < limit) {
+            active++;
+            admitted[p]++;
+            return true;
+        }
+        
+        Waiter waiter = new Waiter(priority, sequence++);
+        waiters.add(waiter);
+        queued[p]++;
+        waiting[p]++;
+        long deadline = System.currentTimeMillis() + maxWaitMillis;
+        try {
+            while (!waiter.admitted) {
+                if (maxWaitMillis < 0) {
+                    wait();
+                } else {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        waiters.remove(waiter);
+                        timeouts[p]++;
+                        return false;
+                    }
+                    wait(remaining);
+                }
+            }
+            admitted[p]++;
+            return true;
+        } catch (InterruptedException e) {
+            if (waiter.admitted) {
+                // the slot was handed over just as we were interrupted, so pass it on
+                release();
+            } else {
+                waiters.remove(waiter);
+            }
+            throw e;
+        } finally {
+            waiting[p]--;
+        }
+    }
+    
+    /**
+     * Hands the caller's slot to the highest priority waiter, if there is one
+     */
+    public synchronized void release() {
+        Waiter next = waiters.pollFirst();
+        if (next != null) {
+            next.admitted = true;
+            notifyAll();
+        } else if (active > 0) {
+            active--;
+        }
+    }
+    
+    public int getLimit() {
+        return limit;
+    }
+    
+    public synchronized int getActive() {
+        return active;
+    }
+    
+    public synchronized long getAdmitted(Priority priority) {
+        return admitted[priority.ordinal()];
+    }
+    
+    /**
+     * @return the number of callers at the priority that had to queue for admission
+     */
+    public synchronized long getQueued(Priority priority) {
+        return queued[priority.ordinal()];
+    }
+    
+    public synchronized long getTimeouts(Priority priority) {
+        return timeouts[priority.ordinal()];
+    }
+    
+    /**
+     * @return the number of callers at the priority currently waiting for admission
+     */
+    public synchronized int getWaiting(Priority priority) {
+        return waiting[priority.ordinal()];
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return "Limit: " + limit + " Active: " + active + " Waiting: " + waiters.size();
+    }
+    
+    private static class Waiter implements Comparable<Waiter> {
+        private final Priority priority;
+        private final long sequence;
+        private boolean admitted = false;
+        
+        private Waiter(Priority priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+        
+        @Override
+        public int compareTo(Waiter other) {
+            // the highest priority first, then in order of arrival
+            int result = Integer.compare(other.priority.ordinal(), priority.ordinal());
+            return (result != 0) ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -12,6 +12,11 @@ public class ConnectionPoolConfiguration {
     private int normalPriorityPoolSize;
     private int highPriorityPoolSize;
     private int adminPriorityPoolSize;
+    private long lowPriorityMaxWait;
+    private long normalPriorityMaxWait;
+    private long highPriorityMaxWait;
+    private long adminPriorityMaxWait;
+    private int admissionLimit;
     
     public ConnectionPoolConfiguration(String poolName) {
         username = ConfigResolver.getPropertyValue("dw." + poolName + ".accumulo.userName");
@@ -22,6 +27,13 @@ public class ConnectionPoolConfiguration {
         normalPriorityPoolSize = Integer.parseInt(ConfigResolver.getPropertyValue("dw." + poolName + ".pool.normal.size", "50"));
         highPriorityPoolSize = Integer.parseInt(ConfigResolver.getPropertyValue("dw." + poolName + ".pool.high.size", "100"));
         adminPriorityPoolSize = Integer.parseInt(ConfigResolver.getPropertyValue("dw." + poolName + ".pool.admin.size", "200"));
+        // the time in milliseconds to wait for a client when a pool is exhausted, where a negative value waits indefinitely
+        lowPriorityMaxWait = Long.parseLong(ConfigResolver.getPropertyValue("dw." + poolName + ".pool.low.maxWait", "-1"));
+        normalPriorityMaxWait = Long.parseLong(ConfigResolver.getPropertyValue("dw." + poolName + ".pool.normal.maxWait", "-1"));
+        highPriorityMaxWait = Long.parseLong(ConfigResolver.getPropertyValue("dw." + poolName + ".pool.high.maxWait", "-1"));
+        adminPriorityMaxWait = Long.parseLong(ConfigResolver.getPropertyValue("dw." + poolName + ".pool.admin.maxWait", "-1"));
+        // the number of clients that may be borrowed across all priorities at once, beyond which callers are admitted in priority order. Unlimited if <= 0
+        admissionLimit = Integer.parseInt(ConfigResolver.getPropertyValue("dw." + poolName + ".pool.admission.limit", "-1"));
     }
     
     public String getUsername() {
@@ -56,4 +68,24 @@ public class ConnectionPoolConfiguration {
         return adminPriorityPoolSize;
     }
     
+    public long getLowPriorityMaxWait() {
+        return lowPriorityMaxWait;
+    }
+    
+    public long getNormalPriorityMaxWait() {
+        return normalPriorityMaxWait;
+    }
+    
+    public long getHighPriorityMaxWait() {
+        return highPriorityMaxWait;
+    }
+    
+    public long getAdminPriorityMaxWait() {
+        return adminPriorityMaxWait;
+    }
+    
+    public int getAdmissionLimit() {
+        return admissionLimit;
+    }
+    
 }
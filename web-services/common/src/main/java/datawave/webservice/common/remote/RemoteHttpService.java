@@ -92,8 +92,8 @@ public abstract class RemoteHttpService {
                             request,
                             r -> {
                                 if (r.getStatusLine().getStatusCode() != 200) {
-                                    throw new ClientProtocolException("Unable to " + errorSupplier.get() + ": " + r.getStatusLine() + " "
-                                                    + EntityUtils.toString(r.getEntity()));
+                                    throw new UnsuccessfulResponseException(r.getStatusLine().getStatusCode(), "Unable to " + errorSupplier.get() + ": "
+                                                    + r.getStatusLine() + " " + EntityUtils.toString(r.getEntity()));
                                 } else {
                                     return resultConverter.apply(r.getEntity());
                                 }
@@ -259,6 +259,10 @@ public abstract class RemoteHttpService {
         return execute(putRequest, resultConverter, errorSupplier);
     }
     
+    protected ManagedExecutorService executorService() {
+        return executorService;
+    }
+    
     protected abstract String serviceHost();
     
     protected abstract int servicePort();
@@ -283,6 +287,23 @@ public abstract class RemoteHttpService {
     
     protected abstract Counter retryCounter();
     
+    /**
+     * Thrown when the remote service responds with a status other than 200, so that callers can tell a rejected request apart from an unavailable service.
+     */
+    public static class UnsuccessfulResponseException extends ClientProtocolException {
+        private static final long serialVersionUID = 1L;
+        private final int statusCode;
+        
+        public UnsuccessfulResponseException(int statusCode, String message) {
+            super(message);
+            this.statusCode = statusCode;
+        }
+        
+        public int getStatusCode() {
+            return statusCode;
+        }
+    }
+    
     private static class DatawaveRetryHandler extends DefaultHttpRequestRetryHandler {
         private final int unavailableRetryCount;
         private final int unavailableRetryDelay;
@@ -0,0 +1,116 @@
+package datawave.webservice.common.audit.remote;
+
+import datawave.webservice.common.audit.remote.AuditJournalShipper.JournaledAudit;
+import datawave.webservice.common.remote.RemoteHttpService.UnsuccessfulResponseException;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AuditJournalShipperTest {
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    @Test
+    public void testEncodeDecode() throws Exception {
+        JournaledAudit audit = audit("query1");
+        JournaledAudit decoded = AuditJournalShipper.decode(AuditJournalShipper.encode(audit));
+        Assert.assertEquals(audit.getCallerName(), decoded.getCallerName());
+        Assert.assertEquals(audit.getProxiedUsers(), decoded.getProxiedUsers());
+        Assert.assertEquals(audit.getParams(), decoded.getParams());
+        
+        byte[] truncated = Arrays.copyOf(AuditJournalShipper.encode(audit), 10);
+        try {
+            AuditJournalShipper.decode(truncated);
+            Assert.fail("Expected a truncated record to be invalid");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+    
+    @Test
+    public void testEncodeDecodeNulls() throws Exception {
+        Map<String,String> params = new LinkedHashMap<>();
+        params.put("queryId", "query1");
+        params.put("auditColumnVisibility", null);
+        JournaledAudit audit = new JournaledAudit(null, Collections.emptyList(), params);
+        JournaledAudit decoded = AuditJournalShipper.decode(AuditJournalShipper.encode(audit));
+        Assert.assertNull(decoded.getCallerName());
+        Assert.assertEquals(params, decoded.getParams());
+        Assert.assertTrue(decoded.getParams().containsKey("auditColumnVisibility"));
+    }
+    
+    @Test
+    public void testIsPermanent() {
+        Assert.assertTrue(AuditJournalShipper.isPermanent(new RuntimeException(new UnsuccessfulResponseException(401, "Unauthorized"))));
+        Assert.assertTrue(AuditJournalShipper.isPermanent(new RuntimeException(new UnsuccessfulResponseException(400, "Bad Request"))));
+        Assert.assertFalse(AuditJournalShipper.isPermanent(new RuntimeException(new UnsuccessfulResponseException(429, "Too Many Requests"))));
+        Assert.assertFalse(AuditJournalShipper.isPermanent(new RuntimeException(new UnsuccessfulResponseException(503, "Service Unavailable"))));
+        Assert.assertFalse(AuditJournalShipper.isPermanent(new RuntimeException(new IOException("Connection refused"))));
+    }
+    
+    @Test
+    public void testUndeliverableRecordsAreDeadLettered() throws Exception {
+        File dir = temporaryFolder.newFolder();
+        try (AuditJournal journal = new AuditJournal(dir, 4096, 4, false)) {
+            journal.append(AuditJournalShipper.encode(audit("query1")), 1, TimeUnit.SECONDS);
+            // a corrupt record
+            journal.append("not an audit".getBytes(StandardCharsets.UTF_8), 1, TimeUnit.SECONDS);
+            // rejected with a 401
+            journal.append(AuditJournalShipper.encode(audit("unauthorized")), 1, TimeUnit.SECONDS);
+            // fails with a 503 once
+            journal.append(AuditJournalShipper.encode(audit("unavailable")), 1, TimeUnit.SECONDS);
+            journal.append(AuditJournalShipper.encode(audit("query2")), 1, TimeUnit.SECONDS);
+            
+            List<String> delivered = new CopyOnWriteArrayList<>();
+            AtomicInteger unavailable = new AtomicInteger();
+            AuditJournalShipper shipper = new AuditJournalShipper(journal, audit -> {
+                String queryId = audit.getParams().get("queryId");
+                if (queryId.equals("unauthorized")) {
+                    throw new RuntimeException(new UnsuccessfulResponseException(401, "Unauthorized"));
+                } else if (queryId.equals("unavailable") && unavailable.getAndIncrement() == 0) {
+                    throw new RuntimeException(new UnsuccessfulResponseException(503, "Service Unavailable"));
+                }
+                delivered.add(queryId);
+            }, 10, 10, 20);
+            
+            Thread thread = new Thread(shipper);
+            thread.start();
+            try {
+                long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+                while (journal.getPendingRecords() > 0 && System.currentTimeMillis() < end) {
+                    Thread.sleep(10);
+                }
+            } finally {
+                shipper.stop();
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            }
+            
+            Assert.assertEquals(0, journal.getPendingRecords());
+            Assert.assertEquals(Arrays.asList("query1", "unavailable", "query2"), delivered);
+            Assert.assertEquals(2, unavailable.get());
+            Assert.assertEquals(2, journal.getDeadLetteredRecords());
+            Assert.assertTrue(new File(dir, "dead-letter").length() > 0);
+        }
+    }
+    
+    private static JournaledAudit audit(String queryId) {
+        Map<String,String> params = new LinkedHashMap<>();
+        params.put("queryId", queryId);
+        params.put("auditType", "ACTIVE");
+        return new JournaledAudit("user", Collections.singletonList("{\"name\":\"user\"}"), params);
+    }
+}
@@ -0,0 +1,165 @@
+package datawave.webservice.common.audit.remote;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class AuditJournalTest {
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    @Test
+    public void testAppendReadCommit() throws Exception {
+        File dir = temporaryFolder.newFolder();
+        try (AuditJournal journal = new AuditJournal(dir, 4096, 4, false)) {
+            for (int i = 0; i < 5; i++) {
+                journal.append(bytes("audit" + i), 1, TimeUnit.SECONDS);
+            }
+            Assert.assertEquals(5, journal.getPendingRecords());
+            Assert.assertTrue(journal.getLagMillis() >= 0);
+            
+            List<AuditJournal.Record> records = journal.read(3, 0, TimeUnit.MILLISECONDS);
+            Assert.assertEquals(Arrays.asList("audit0", "audit1", "audit2"), strings(records));
+            journal.commit(records);
+            Assert.assertEquals(2, journal.getPendingRecords());
+            
+            records = journal.read(10, 0, TimeUnit.MILLISECONDS);
+            Assert.assertEquals(Arrays.asList("audit3", "audit4"), strings(records));
+            
+            // records which are read but not committed are read again after a rewind
+            journal.rewind();
+            records = journal.read(10, 0, TimeUnit.MILLISECONDS);
+            Assert.assertEquals(Arrays.asList("audit3", "audit4"), strings(records));
+            journal.commit(records);
+            
+            Assert.assertEquals(0, journal.getPendingRecords());
+            Assert.assertEquals(0, journal.getLagMillis());
+            Assert.assertTrue(journal.read(10, 10, TimeUnit.MILLISECONDS).isEmpty());
+            Assert.assertEquals(5, journal.getAppendedRecords());
+            Assert.assertEquals(5, journal.getCommittedRecords());
+        }
+    }
+    
+    @Test
+    public void testRecoversUncommittedRecords() throws Exception {
+        File dir = temporaryFolder.newFolder();
+        try (AuditJournal journal = new AuditJournal(dir, 256, 16, true)) {
+            for (int i = 0; i < 20; i++) {
+                journal.append(bytes("audit" + i), 1, TimeUnit.SECONDS);
+            }
+            journal.commit(journal.read(12, 0, TimeUnit.MILLISECONDS));
+            // read but never committed
+            journal.read(5, 0, TimeUnit.MILLISECONDS);
+        }
+        
+        try (AuditJournal journal = new AuditJournal(dir, 256, 16, true)) {
+            Assert.assertEquals(8, journal.getPendingRecords());
+            journal.append(bytes("audit20"), 1, TimeUnit.SECONDS);
+            List<String> expected = new ArrayList<>();
+            for (int i = 12; i <= 20; i++) {
+                expected.add("audit" + i);
+            }
+            Assert.assertEquals(expected, strings(journal.read(100, 0, TimeUnit.MILLISECONDS)));
+        }
+    }
+    
+    @Test
+    public void testClosedJournal() throws Exception {
+        File dir = temporaryFolder.newFolder();
+        AuditJournal journal = new AuditJournal(dir, 256, 4, false);
+        journal.append(bytes("audit0"), 1, TimeUnit.SECONDS);
+        List<AuditJournal.Record> records = journal.read(10, 0, TimeUnit.MILLISECONDS);
+        journal.close();
+        
+        // a shipper still running when the journal is closed can neither commit nor read
+        journal.commit(records);
+        journal.rewind();
+        Assert.assertTrue(journal.read(10, 1, TimeUnit.SECONDS).isEmpty());
+        try {
+            journal.append(bytes("audit1"), 1, TimeUnit.SECONDS);
+            Assert.fail("Expected the closed journal to reject the append");
+        } catch (IOException e) {
+            // expected
+        }
+        journal.close();
+        
+        // the record was not committed, so it is read again once the journal is reopened
+        try (AuditJournal reopened = new AuditJournal(dir, 256, 4, false)) {
+            Assert.assertEquals(Arrays.asList("audit0"), strings(reopened.read(10, 0, TimeUnit.MILLISECONDS)));
+        }
+    }
+    
+    @Test
+    public void testSegmentsAreDeletedOnceCommitted() throws Exception {
+        File dir = temporaryFolder.newFolder();
+        try (AuditJournal journal = new AuditJournal(dir, 64, 8, false)) {
+            // a 16 byte header and 25 byte records, so each segment holds one record
+            for (int i = 0; i < 5; i++) {
+                journal.append(bytes(String.format("audit-record-%012d", i)), 1, TimeUnit.SECONDS);
+            }
+            Assert.assertEquals(5, journal.getSegmentCount());
+            
+            journal.commit(journal.read(3, 0, TimeUnit.MILLISECONDS));
+            Assert.assertEquals(2, journal.getSegmentCount());
+            Assert.assertEquals(2, dir.listFiles((d, name) -> name.endsWith(".journal")).length);
+        }
+    }
+    
+    @Test
+    public void testFullJournalBlocksAppends() throws Exception {
+        File dir = temporaryFolder.newFolder();
+        try (AuditJournal journal = new AuditJournal(dir, 64, 2, false)) {
+            journal.append(bytes(String.format("audit-record-%012d", 0)), 1, TimeUnit.SECONDS);
+            journal.append(bytes(String.format("audit-record-%012d", 1)), 1, TimeUnit.SECONDS);
+            try {
+                journal.append(bytes(String.format("audit-record-%012d", 2)), 50, TimeUnit.MILLISECONDS);
+                Assert.fail("Expected the append to time out");
+            } catch (IOException e) {
+                // expected
+            }
+            
+            // committing a record makes room for the append
+            Thread committer = new Thread(() -> {
+                try {
+                    Thread.sleep(50);
+                    journal.commit(journal.read(1, 0, TimeUnit.MILLISECONDS));
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            committer.start();
+            journal.append(bytes(String.format("audit-record-%012d", 2)), 10, TimeUnit.SECONDS);
+            committer.join();
+            Assert.assertEquals(2, journal.getPendingRecords());
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testRecordLargerThanSegment() throws Exception {
+        try (AuditJournal journal = new AuditJournal(temporaryFolder.newFolder(), 64, 2, false)) {
+            journal.append(new byte[64], 1, TimeUnit.SECONDS);
+        }
+    }
+    
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private static List<String> strings(List<AuditJournal.Record> records) {
+        List<String> strings = new ArrayList<>();
+        for (AuditJournal.Record record : records) {
+            strings.add(new String(record.getData(), StandardCharsets.UTF_8));
+        }
+        return strings;
+    }
+}
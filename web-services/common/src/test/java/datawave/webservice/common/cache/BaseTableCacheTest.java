@@ -0,0 +1,142 @@
+package datawave.webservice.common.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import datawave.accumulo.inmemory.InMemoryAccumuloClient;
+import datawave.accumulo.inmemory.InMemoryInstance;
+import datawave.webservice.common.connection.AccumuloConnectionFactory;
+import datawave.webservice.common.connection.AccumuloConnectionFactory.Priority;
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.hadoop.io.Text;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+public class BaseTableCacheTest {
+    
+    private static final String TABLE = "DatawaveMetadata";
+    private static final String POOL = "WAREHOUSE";
+    
+    @Test
+    public void testBefore() {
+        assertNull(BaseTableCache.before(new Text("")));
+        assertEquals(new Text("AB"), BaseTableCache.before(new Text(new byte[] {'A', 'B', 0})));
+        
+        Text row = new Text("FIELD");
+        Text before = BaseTableCache.before(row);
+        assertTrue(before.compareTo(row) < 0);
+        assertTrue(before.compareTo(new Text("FIELC")) > 0);
+        assertTrue(before.compareTo(new Text("FIELC_NAME")) > 0);
+        
+        Text low = new Text(new byte[] {'A', 1});
+        assertTrue(BaseTableCache.before(low).compareTo(low) < 0);
+        assertTrue(BaseTableCache.before(low).compareTo(new Text(new byte[] {'A', 0})) > 0);
+    }
+    
+    @Test
+    public void testRefreshIncrementally() throws Exception {
+        AccumuloClient source = new InMemoryAccumuloClient("root", new InMemoryInstance(BaseTableCacheTest.class.getName() + "Source"));
+        source.tableOperations().create(TABLE);
+        write(source, "FIELD_A", "e", false);
+        write(source, "FIELD_B", "e", false);
+        write(source, "FIELD_B", "i", false);
+        
+        AccumuloConnectionFactory connectionFactory = EasyMock.createMock(AccumuloConnectionFactory.class);
+        Map<String,String> trackingMap = new HashMap<>();
+        EasyMock.expect(connectionFactory.getTrackingMap(EasyMock.anyObject())).andReturn(trackingMap).anyTimes();
+        EasyMock.expect(connectionFactory.getClient(POOL, Priority.ADMIN, trackingMap)).andReturn(source).anyTimes();
+        connectionFactory.returnClient(source);
+        EasyMock.expectLastCall().anyTimes();
+        EasyMock.replay(connectionFactory);
+        
+        InMemoryInstance instance = new InMemoryInstance(BaseTableCacheTest.class.getName() + "Cache");
+        BaseTableCache cache = new BaseTableCache();
+        cache.setTableName(TABLE);
+        cache.setConnectionPoolName(POOL);
+        cache.setConnectionFactory(connectionFactory);
+        cache.setInstance(instance);
+        cache.setReloadInterval(3600000L);
+        cache.setIncrementalRefresh(true);
+        
+        // the first refresh loads the whole table
+        assertTrue(cache.call());
+        Date lastRefresh = cache.getLastRefresh();
+        assertEquals(new TreeSet<>(Arrays.asList("FIELD_A e", "FIELD_B e", "FIELD_B i")), read(instance));
+        
+        // the timestamps of the new entries are older than the last refresh, as they are for the dates of data in the metadata table
+        write(source, "FIELD_A", "i", false);
+        write(source, "FIELD_B", "i", true);
+        write(source, "FIELD_C", "e", false);
+        
+        // only the invalidated rows are reloaded, with the entries deleted from them removed
+        cache.invalidateRows(Collections.singleton("FIELD_B"));
+        assertTrue(cache.hasInvalidatedRows());
+        assertTrue(cache.call());
+        assertFalse(cache.hasInvalidatedRows());
+        assertEquals(lastRefresh, cache.getLastRefresh());
+        assertTrue(cache.getLastRowRefresh().getTime() > 0);
+        assertEquals(new TreeSet<>(Arrays.asList("FIELD_A e", "FIELD_B e")), read(instance));
+        
+        // a row which can not be read from the source is left as it was cached, and is reloaded by the next refresh
+        source.tableOperations().rename(TABLE, TABLE + "Moved");
+        cache.invalidateRows(Collections.singleton("FIELD_A"));
+        try {
+            cache.refreshIncrementally(source, new InMemoryAccumuloClient(AccumuloTableCache.MOCK_USERNAME, instance), new Authorizations());
+            fail("Expected the refresh to fail");
+        } catch (Exception e) {
+            // expected
+        }
+        assertTrue(cache.hasInvalidatedRows());
+        assertEquals(new TreeSet<>(Arrays.asList("FIELD_A e", "FIELD_B e")), read(instance));
+        source.tableOperations().rename(TABLE + "Moved", TABLE);
+        assertTrue(cache.call());
+        assertFalse(cache.hasInvalidatedRows());
+        assertEquals(new TreeSet<>(Arrays.asList("FIELD_A e", "FIELD_A i", "FIELD_B e")), read(instance));
+        
+        // a requested reload loads the whole table
+        cache.setLastRefresh(new Date(0));
+        assertTrue(cache.call());
+        assertEquals(new TreeSet<>(Arrays.asList("FIELD_A e", "FIELD_A i", "FIELD_B e", "FIELD_C e")), read(instance));
+    }
+    
+    private static void write(AccumuloClient client, String row, String cf, boolean delete) throws Exception {
+        try (BatchWriter writer = client.createBatchWriter(TABLE, new BatchWriterConfig())) {
+            Mutation m = new Mutation(row);
+            if (delete) {
+                m.putDelete(new Text(cf), new Text("datatype"), 20190314L);
+            } else {
+                m.put(new Text(cf), new Text("datatype"), 20190314L, new Value());
+            }
+            writer.addMutation(m);
+        }
+    }
+    
+    private static Set<String> read(InMemoryInstance instance) throws Exception {
+        AccumuloClient client = new InMemoryAccumuloClient(AccumuloTableCache.MOCK_USERNAME, instance);
+        Set<String> entries = new TreeSet<>();
+        try (Scanner scanner = client.createScanner(TABLE, new Authorizations())) {
+            for (Map.Entry<Key,Value> entry : scanner) {
+                entries.add(entry.getKey().getRow() + " " + entry.getKey().getColumnFamily());
+            }
+        }
+        return entries;
+    }
+}
@@ -3,6 +3,10 @@ package datawave.webservice.common.cache;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertEquals;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import datawave.common.test.integration.IntegrationTest;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
@@ -208,4 +212,23 @@ public class SharedCacheCoordinatorTest {
             counter.close();
         }
     }
+    
+    @Test
+    public void testRepeatedEvictMessageIsDelivered() throws Exception {
+        final List<String> evicted = new CopyOnWriteArrayList<>();
+        cacheCoordinator.watchForEvictions(evicted::add);
+        
+        // the second message is sent before the first has been cleaned up
+        cacheCoordinator.sendEvictMessage("row");
+        cacheCoordinator.sendEvictMessage("row");
+        for (int i = 0; i < 50; ++i) {
+            if (evicted.size() >= 2)
+                break;
+            Thread.sleep(200L);
+        }
+        assertEquals("Eviction messages never delivered.", Arrays.asList("row", "row"), evicted);
+        
+        assertEquals("row", SharedCacheCoordinator.getEvictMessage("row~0000000001"));
+        assertEquals("CN=a~b", SharedCacheCoordinator.getEvictMessage("CN=a~b"));
+    }
 }
@@ -2,8 +2,10 @@ package datawave.webservice.common.connection;
 
 import static org.easymock.MockType.STRICT;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 import java.util.Collections;
@@ -157,6 +159,32 @@ public class AccumuloConnectionFactoryTest extends EasyMockSupport {
         assertEquals(metricsClient, ((WrappedAccumuloClient) con).getReal());
     }
     
+    @Test
+    public void testReturnConnection() throws Exception {
+        resetAll();
+        EasyMock.expect(cache.getInstance()).andReturn(instance);
+        EasyMock.expect(bean.getCurrentUserDN()).andReturn(null);
+        EasyMock.expect(bean.getCurrentProxyServers()).andReturn(null);
+        replayAll();
+        AccumuloClient con = bean.getClient("METRICS", Priority.HIGH, new HashMap<>());
+        verifyAll();
+        
+        Map<AccumuloClient,AccumuloClientPool> clientPools = Whitebox.getInternalState(bean, "clientPools");
+        Map<String,Map<Priority,AccumuloClientPool>> pools = Whitebox.getInternalState(bean, "pools");
+        AccumuloClientPool metricsPool = pools.get("METRICS").get(Priority.HIGH);
+        assertSame(metricsPool, clientPools.get(metricsClient));
+        assertEquals(1, metricsPool.getBorrowCount());
+        // each borrower gets its own in-memory client
+        AccumuloClient mock = metricsPool.getMockClient(instance);
+        AccumuloClient otherMock = metricsPool.getMockClient(instance);
+        assertNotSame(mock, otherMock);
+        mock.close();
+        assertNotNull(otherMock.tableOperations().list());
+        
+        bean.returnClient(con);
+        assertNull(clientPools.get(metricsClient));
+    }
+    
     public static class MyAccumuloClientPoolFactory extends AccumuloClientPoolFactory {
         
         private AccumuloClient c = null;
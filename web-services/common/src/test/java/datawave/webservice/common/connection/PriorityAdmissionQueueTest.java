@@ -0,0 +1,74 @@
+package datawave.webservice.common.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import datawave.webservice.common.connection.AccumuloConnectionFactory.Priority;
+import org.junit.Test;
+
+public class PriorityAdmissionQueueTest {
+    
+    @Test
+    public void testAdmitsInPriorityOrder() throws Exception {
+        PriorityAdmissionQueue queue = new PriorityAdmissionQueue(1);
+        assertTrue(queue.acquire(Priority.LOW, -1));
+        
+        BlockingQueue<Priority> admitted = new LinkedBlockingQueue<>();
+        List<Thread> threads = new ArrayList<>();
+        // queue the callers in the reverse of the order in which they should be admitted, with a second LOW caller after the first
+        for (Priority priority : new Priority[] {Priority.LOW, Priority.NORMAL, Priority.LOW, Priority.HIGH, Priority.ADMIN}) {
+            long queued = queue.getQueued(priority);
+            Thread thread = new Thread(() -> {
+                try {
+                    if (queue.acquire(priority, -1)) {
+                        admitted.add(priority);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+            long deadline = System.currentTimeMillis() + 10000;
+            while (queue.getQueued(priority) == queued && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+        }
+        assertEquals(2, queue.getWaiting(Priority.LOW));
+        
+        for (Priority expected : new Priority[] {Priority.ADMIN, Priority.HIGH, Priority.NORMAL, Priority.LOW, Priority.LOW}) {
+            queue.release();
+            assertEquals(expected, admitted.poll(10, TimeUnit.SECONDS));
+        }
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+        
+        // the slot is handed from caller to caller, so one is still held
+        assertEquals(1, queue.getActive());
+        queue.release();
+        assertEquals(0, queue.getActive());
+        assertEquals(3, queue.getAdmitted(Priority.LOW));
+        assertEquals(0, queue.getWaiting(Priority.LOW));
+    }
+    
+    @Test
+    public void testTimeout() throws Exception {
+        PriorityAdmissionQueue queue = new PriorityAdmissionQueue(1);
+        assertTrue(queue.acquire(Priority.NORMAL, -1));
+        assertFalse(queue.acquire(Priority.HIGH, 10));
+        assertEquals(1, queue.getTimeouts(Priority.HIGH));
+        assertEquals(0, queue.getWaiting(Priority.HIGH));
+        
+        // the timed out caller no longer holds up anyone else
+        queue.release();
+        assertTrue(queue.acquire(Priority.LOW, 10));
+    }
+}
@@ -19,6 +19,7 @@ public class LookupUUIDConfiguration {
     protected int batchLookupUpperLimit = LookupUUIDConstants.DEFAULT_BATCH_LOOKUP_UPPER_LIMIT;
     protected String beginDate = null;
     protected String columnVisibility;
+    protected boolean indexedContentLookup = false;
     
     /**
      * Returns the maximum number of UUIDs allowed for batch lookup. A zero or negative value is interpreted as unlimited. The default value is 100.
@@ -37,6 +38,16 @@ public class LookupUUIDConfiguration {
         return this.columnVisibility;
     }
     
+    /**
+     * Returns whether content lookups by UUID resolve the UUIDs directly through the shard index with the ContentQuery logic, rather than running a UUID query
+     * and then looking up the content of each page of its results. The default value is false.
+     * 
+     * @return true if content lookups resolve UUIDs through the shard index
+     */
+    public boolean isIndexedContentLookup() {
+        return this.indexedContentLookup;
+    }
+    
     public List<UUIDType> getUuidTypes() {
         return this.uuidTypes;
     }
@@ -59,6 +70,10 @@ public class LookupUUIDConfiguration {
         this.columnVisibility = columnVisibility;
     }
     
+    public void setIndexedContentLookup(boolean indexedContentLookup) {
+        this.indexedContentLookup = indexedContentLookup;
+    }
+    
     public void setUuidTypes(List<UUIDType> uuidTypes) {
         this.uuidTypes = uuidTypes;
     }
@@ -10,8 +10,12 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.enterprise.inject.Typed;
 
@@ -31,9 +35,9 @@ import org.apache.commons.collections4.iterators.TransformIterator;
 import org.apache.log4j.Logger;
 
 /**
- * Query Logic implementation that is configured with more than one query logic delegate. The queries are run in parallel and results are retrieved as they come
- * back from the delegates. This class restricts the delegates such that they have to return the same type of response object and two query logics with the same
- * class name and tableName cannot be configured.
+ * Query Logic implementation that is configured with more than one query logic delegate. The queries are run in parallel on an executor shared by all composite
+ * queries and results are retrieved as they come back from the delegates. This class restricts the delegates such that they have to return the same type of
+ * response object and two query logics with the same class name and tableName cannot be configured.
  */
 public class CompositeQueryLogic extends BaseQueryLogic<Object> {
     
@@ -50,16 +54,23 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
         }
     }
     
-    private class QueryLogicHolder extends Thread {
+    private class QueryLogicHolder implements Runnable {
+        private final String logicName;
         private GenericQueryConfiguration config;
         private TransformIterator transformIterator;
         private Query settings;
-        private boolean started = false;
         private long maxResults;
+        private long resultCount = 0L;
+        private CompositeQueryLogicResults.DelegateBuffer buffer;
+        private boolean started = false;
+        private final CountDownLatch done = new CountDownLatch(1);
+        // the thread running this delegate, if any, so that it can be interrupted when the query is closed
+        private Thread runner = null;
+        // the number of times the delegate was submitted and not yet run, where only the submission which raises this from zero is handed to the executor
+        private final AtomicInteger submissions = new AtomicInteger();
         
         public QueryLogicHolder(String logicName) {
-            this.setDaemon(true);
-            this.setName(Thread.currentThread().getName() + "-CompositeQueryLogic-" + logicName + "-" + UUID.randomUUID());
+            this.logicName = logicName;
         }
         
         public GenericQueryConfiguration getConfig() {
@@ -90,47 +101,113 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
             this.settings = settings;
         }
         
+        public void setResults(CompositeQueryLogicResults results) {
+            this.buffer = results.addDelegate(this::submit);
+        }
+        
+        public void start() {
+            if (this.getMaxResults() < 0)
+                this.setMaxResults(Long.MAX_VALUE);
+            this.started = true;
+            submit();
+        }
+        
+        private void submit() {
+            if (submissions.getAndIncrement() == 0) {
+                getDelegateExecutor(delegateThreads).execute(this);
+            }
+        }
+        
+        /**
+         * Produces up to {@link #RESULTS_PER_TURN} results and then resubmits itself, so that the delegates of all composite queries take turns on the shared
+         * executor. The delegate is not resubmitted if its buffer fills up, and is instead resumed once its results have been consumed.
+         */
         public void run() {
-            long resultCount = 0L;
-            
-            log.trace("Starting thread: " + this.getName());
-            if (!started) {
-                startLatch.countDown();
-                started = true;
+            // a delegate resumed or resubmitted while this turn runs is not handed to the executor until the turn is over, so turns never overlap and no
+            // executor thread waits for another
+            int claimed = submissions.get();
+            if (done.getCount() > 0) {
+                runTurn();
+            }
+            if (submissions.addAndGet(-claimed) > 0) {
+                getDelegateExecutor(delegateThreads).execute(this);
+            }
+        }
+        
+        private void runTurn() {
+            synchronized (this) {
+                runner = Thread.currentThread();
             }
+            boolean complete = true;
             try {
-                Object last = new Object();
-                if (this.getMaxResults() < 0)
-                    this.setMaxResults(Long.MAX_VALUE);
-                while ((null != last) && !interrupted && transformIterator.hasNext() && (resultCount < this.getMaxResults())) {
-                    try {
-                        last = transformIterator.next();
-                        if (null != last) {
-                            log.debug(Thread.currentThread().getName() + ": Added object to results");
-                            results.add(last);
-                        }
-                    } catch (InterruptedException e) {
-                        log.warn("QueryLogic thread interrupted", e);
-                    }
+                int produced = 0;
+                while (!interrupted && transformIterator.hasNext() && (resultCount < this.getMaxResults())) {
+                    Object last = transformIterator.next();
                     resultCount++;
+                    if (null == last) {
+                        break;
+                    }
+                    log.debug(logicName + ": Added object to results");
+                    boolean accepted = buffer.add(last);
+                    if (!accepted) {
+                        // paused until the buffer drains
+                        complete = false;
+                        break;
+                    }
+                    if (++produced >= RESULTS_PER_TURN) {
+                        complete = false;
+                        submit();
+                        break;
+                    }
                 }
-                
+            } catch (RuntimeException e) {
+                log.error("Query logic " + logicName + " failed", e);
+                complete = true;
             } finally {
-                completionLatch.countDown();
-                log.trace("Finished thread: " + this.getName());
+                synchronized (this) {
+                    runner = null;
+                }
+                if (complete || interrupted) {
+                    finish();
+                }
+            }
+        }
+        
+        private synchronized void finish() {
+            if (done.getCount() > 0) {
+                buffer.complete();
+                done.countDown();
+                log.trace("Finished query logic: " + logicName);
             }
         }
         
+        public synchronized void interrupt() {
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+        
+        public void join() throws InterruptedException {
+            if (started) {
+                done.await();
+            }
+        }
     }
     
     protected static final Logger log = Logger.getLogger(CompositeQueryLogic.class);
     
+    public static final int DEFAULT_DELEGATE_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    
+    // the number of results a delegate produces before giving up its executor thread to the next waiting delegate
+    private static final int RESULTS_PER_TURN = 100;
+    
+    private static ThreadPoolExecutor delegateExecutor = null;
+    
     private List<BaseQueryLogic<?>> queryLogics = null;
     private QueryLogicTransformer transformer;
     private Priority p = Priority.NORMAL;
     private volatile boolean interrupted = false;
-    private CountDownLatch startLatch = null;
-    private CountDownLatch completionLatch = null;
+    private int delegateThreads = DEFAULT_DELEGATE_THREADS;
     private Map<BaseQueryLogic<?>,QueryLogicHolder> logicState = new TreeMap<>(new QueryLogicComparator());
     private CompositeQueryLogicResults results = null;
     
@@ -139,6 +216,33 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
     public CompositeQueryLogic(CompositeQueryLogic other) {
         super(other);
         this.queryLogics = new ArrayList<>(other.queryLogics);
+        this.delegateThreads = other.delegateThreads;
+    }
+    
+    /**
+     * Returns the executor shared by the delegates of all composite queries, growing it to the requested number of threads if it is smaller. The delegates are
+     * queued in the order that they become ready, and each gives up its thread after {@link #RESULTS_PER_TURN} results, so the number of threads is bounded
+     * regardless of the number of concurrent composite queries and each query gets a turn.
+     */
+    private static synchronized ThreadPoolExecutor getDelegateExecutor(int threads) {
+        if (delegateExecutor == null) {
+            ThreadFactory threadFactory = new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+                
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "CompositeQueryLogic-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            };
+            delegateExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+            delegateExecutor.allowCoreThreadTimeOut(true);
+        } else if (threads > delegateExecutor.getMaximumPoolSize()) {
+            delegateExecutor.setMaximumPoolSize(threads);
+            delegateExecutor.setCorePoolSize(threads);
+        }
+        return delegateExecutor;
     }
     
     @Override
@@ -190,9 +294,8 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
                 }
             }
         }
-        startLatch = new CountDownLatch(logicState.values().size());
-        completionLatch = new CountDownLatch(logicState.values().size());
-        this.results = new CompositeQueryLogicResults(Math.min(settings.getPagesize() * 2, 1000), completionLatch);
+        // the buffer previously shared by all of the delegates is divided between them
+        this.results = new CompositeQueryLogicResults(Math.min(settings.getPagesize() * 2, 1000) / Math.max(1, logicState.size()));
         if (log.isDebugEnabled()) {
             log.debug("CompositeQuery initialized with the following queryLogics: ");
             for (Entry<BaseQueryLogic<?>,QueryLogicHolder> entry : this.logicState.entrySet()) {
@@ -231,12 +334,14 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
             TransformIterator transformIterator = entry.getKey().getTransformIterator(entry.getValue().getSettings());
             entry.getValue().setTransformIterator(transformIterator);
         }
+        // register every delegate before any are started, so that the results are not complete until all of them are
+        for (Entry<BaseQueryLogic<?>,QueryLogicHolder> entry : logicState.entrySet()) {
+            entry.getValue().setResults(results);
+        }
         for (Entry<BaseQueryLogic<?>,QueryLogicHolder> entry : logicState.entrySet()) {
             entry.getValue().start();
         }
-        // Wait until all threads have started
-        startLatch.await();
-        log.trace("All threads have started.");
+        log.trace("All query logics have been submitted.");
     }
     
     @Override
@@ -298,6 +403,9 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
             entry.getKey().close();
             entry.getValue().interrupt();
         }
+        // resume any paused delegates so that they see the interrupt and finish
+        if (null != results)
+            results.clear();
         for (Entry<BaseQueryLogic<?>,QueryLogicHolder> entry : logicState.entrySet()) {
             try {
                 entry.getValue().join();
@@ -307,8 +415,6 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
             }
         }
         logicState.clear();
-        if (null != results)
-            results.clear();
     }
     
     public List<BaseQueryLogic<?>> getQueryLogics() {
@@ -319,6 +425,18 @@ public class CompositeQueryLogic extends BaseQueryLogic<Object> {
         this.queryLogics = queryLogics;
     }
     
+    public int getDelegateThreads() {
+        return delegateThreads;
+    }
+    
+    /**
+     * @param delegateThreads
+     *            the minimum number of threads of the executor shared by the delegates of all composite queries
+     */
+    public void setDelegateThreads(int delegateThreads) {
+        this.delegateThreads = delegateThreads;
+    }
+    
     @Override
     public boolean canRunQuery(Principal principal) {
         // user can run this composite query if they can run at least one of the configured query logics
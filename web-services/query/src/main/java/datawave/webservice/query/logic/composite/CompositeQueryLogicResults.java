@@ -1,38 +1,166 @@
 package datawave.webservice.query.logic.composite;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.CountDownLatch;
+import java.util.List;
 
+/**
+ * The results of the delegates of a {@link CompositeQueryLogic}. Each delegate adds its results to its own bounded buffer, and the buffers are merged in round
+ * robin order, skipping any delegate which has no results available, so that a slow delegate does not hold up the results of the others. A delegate whose
+ * buffer is full pauses rather than blocking, and is resumed once the buffer has been half drained.
+ */
 public class CompositeQueryLogicResults implements Iterable<Object> {
     
-    private ArrayBlockingQueue<Object> results = null;
-    private CountDownLatch completionLatch = null;
+    /**
+     * The buffer of one delegate
+     */
+    public class DelegateBuffer {
+        private final ArrayDeque<Object> results = new ArrayDeque<>();
+        private final Runnable resume;
+        private boolean paused = false;
+        private boolean complete = false;
+        
+        private DelegateBuffer(Runnable resume) {
+            this.resume = resume;
+        }
+        
+        /**
+         * Adds a result to the buffer
+         * 
+         * @param object
+         *            the result
+         * @return false if the buffer is now full, in which case the delegate must stop producing results until it is resumed
+         */
+        public boolean add(Object object) {
+            synchronized (CompositeQueryLogicResults.this) {
+                results.add(object);
+                CompositeQueryLogicResults.this.notifyAll();
+                if (results.size() >= capacity && !closed) {
+                    paused = true;
+                    return false;
+                }
+                return true;
+            }
+        }
+        
+        /**
+         * Marks the delegate as having produced all of its results
+         */
+        public void complete() {
+            synchronized (CompositeQueryLogicResults.this) {
+                complete = true;
+                CompositeQueryLogicResults.this.notifyAll();
+            }
+        }
+    }
+    
+    private final int capacity;
+    private final List<DelegateBuffer> buffers = new ArrayList<>();
+    private int nextBuffer = 0;
+    private boolean closed = false;
+    
+    /**
+     * @param capacity
+     *            the number of results buffered for each delegate
+     */
+    public CompositeQueryLogicResults(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
     
-    public CompositeQueryLogicResults(int pagesize, CountDownLatch completionLatch) {
-        this.results = new ArrayBlockingQueue<>(pagesize);
-        this.completionLatch = completionLatch;
+    /**
+     * Adds a buffer for a delegate
+     * 
+     * @param resume
+     *            called to resume the delegate once its buffer has drained after it was paused
+     * @return the buffer
+     */
+    public synchronized DelegateBuffer addDelegate(Runnable resume) {
+        DelegateBuffer buffer = new DelegateBuffer(resume);
+        buffers.add(buffer);
+        return buffer;
     }
     
-    public void add(Object object) throws InterruptedException {
-        this.results.put(object);
+    /**
+     * Takes the next result, waiting for one if no delegate has a result available
+     * 
+     * @return the next result, or null if every delegate is complete and all of the results have been taken
+     */
+    Object take() throws InterruptedException {
+        Runnable resume = null;
+        Object result = null;
+        synchronized (this) {
+            while (result == null) {
+                boolean complete = true;
+                for (int i = 0; i < buffers.size() && result == null; i++) {
+                    DelegateBuffer buffer = buffers.get(nextBuffer);
+                    nextBuffer = (nextBuffer + 1) % buffers.size();
+                    result = buffer.results.poll();
+                    if (result != null) {
+                        if (buffer.paused && buffer.results.size() <= capacity / 2) {
+                            buffer.paused = false;
+                            resume = buffer.resume;
+                        }
+                    } else {
+                        complete &= buffer.complete;
+                    }
+                }
+                if (result == null) {
+                    if (complete || closed) {
+                        return null;
+                    }
+                    wait();
+                }
+            }
+        }
+        // resume the delegate outside of the lock as it may be run directly
+        if (resume != null) {
+            resume.run();
+        }
+        return result;
     }
     
+    /**
+     * Discards the buffered results and resumes any paused delegates so that they can finish
+     */
     public void clear() {
-        this.results.clear();
+        List<Runnable> resumes = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            for (DelegateBuffer buffer : buffers) {
+                buffer.results.clear();
+                if (buffer.paused) {
+                    buffer.paused = false;
+                    resumes.add(buffer.resume);
+                }
+            }
+            notifyAll();
+        }
+        for (Runnable resume : resumes) {
+            resume.run();
+        }
     }
     
-    public int size() {
-        return results.size();
+    public synchronized int size() {
+        int size = 0;
+        for (DelegateBuffer buffer : buffers) {
+            size += buffer.results.size();
+        }
+        return size;
     }
     
-    public boolean contains(Object o) {
-        return results.contains(o);
+    public synchronized boolean contains(Object o) {
+        for (DelegateBuffer buffer : buffers) {
+            if (buffer.results.contains(o)) {
+                return true;
+            }
+        }
+        return false;
     }
     
     @Override
     public Iterator<Object> iterator() {
-        return new CompositeQueryLogicResultsIterator(this.results, this.completionLatch);
+        return new CompositeQueryLogicResultsIterator(this);
     }
     
 }
@@ -11,6 +11,7 @@ import datawave.webservice.query.Query;
 public abstract class AbstractUUIDLookupCriteria {
     private boolean allEventLookup;
     private boolean contentLookup;
+    private boolean indexedLookup;
     private HttpHeaders headersForStreamedResponse;
     private MultivaluedMap<String,String> queryParameters;
     
@@ -47,6 +48,15 @@ public abstract class AbstractUUIDLookupCriteria {
         return contentLookup;
     }
     
+    /**
+     * Returns true if the UUIDs are resolved directly through the shard index by the content lookup, rather than by a UUID query
+     * 
+     * @return true if the UUIDs are resolved by the content lookup
+     */
+    public boolean isIndexedLookup() {
+        return indexedLookup;
+    }
+    
     public void setAllEventLookup(boolean allEventLookup) {
         this.allEventLookup = allEventLookup;
     }
@@ -55,6 +65,10 @@ public abstract class AbstractUUIDLookupCriteria {
         this.contentLookup = contentLookup;
     }
     
+    public void setIndexedLookup(boolean indexedLookup) {
+        this.indexedLookup = indexedLookup;
+    }
+    
     /**
      * If a streamed response is required, sets the HTTP headers used to invoke the QueryExecutor.execute(..) endpoint.
      * 
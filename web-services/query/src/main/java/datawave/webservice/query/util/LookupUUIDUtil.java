@@ -89,6 +89,8 @@ public class LookupUUIDUtil {
     
     private int maxAllowedBatchLookupUUIDs = LookupUUIDConstants.DEFAULT_BATCH_LOOKUP_UPPER_LIMIT;
     
+    private boolean indexedContentLookup = false;
+    
     private final QueryExecutor queryExecutor;
     
     private Map<String,UUIDType> uuidTypes = Collections.synchronizedMap(new HashMap<>());
@@ -150,6 +152,9 @@ public class LookupUUIDUtil {
             this.maxAllowedBatchLookupUUIDs = -1;
         }
         
+        // Assign the flag for resolving UUIDs through the shard index during content lookups
+        this.indexedContentLookup = this.lookupUUIDConfiguration.isIndexedContentLookup();
+        
         this.defaultOptionalParams = this.lookupUUIDConfiguration.optionalParamsToMap();
     }
     
@@ -167,7 +172,13 @@ public class LookupUUIDUtil {
         final List<StringBuilder> batchedContentQueryStrings = new LinkedList<>();
         
         // Get the raw query string from the validated criteria
-        final String rawQueryString = validatedCriteria.getRawQueryString();
+        String rawQueryString = validatedCriteria.getRawQueryString();
+        
+        // Strip the LUCENE syntax from UUID terms which will be resolved by the content query
+        final boolean indexedLookup = validatedCriteria.isIndexedLookup();
+        if (indexedLookup) {
+            rawQueryString = rawQueryString.replaceAll(REGEX_GROUPING_CHARS, SPACE).replace(QUOTE, EMPTY_STRING).replaceAll(REGEX_OR_OPERATOR, SPACE).trim();
+        }
         
         // Initialize the string builder
         StringBuilder contentQuery = null;
@@ -188,7 +199,7 @@ public class LookupUUIDUtil {
                     uuid = null;
                 }
                 
-                if (EVENT_TYPE_NAME.equalsIgnoreCase(uuidType) && (null != uuid)) {
+                if ((EVENT_TYPE_NAME.equalsIgnoreCase(uuidType) || indexedLookup) && (null != uuid)) {
                     // Conditionally initialize a new query string and the event counter
                     if ((null == contentQuery) || (!multiTermExpressionsSupported)
                                     || ((this.maxAllowedBatchLookupUUIDs > 0) && (eventCounter > this.maxAllowedBatchLookupUUIDs))) {
@@ -201,8 +212,12 @@ public class LookupUUIDUtil {
                         contentQuery.append(SPACE);
                     }
                     
-                    // Append the content query criteria
-                    contentQuery.append(DOCUMENT_FIELD_NAME);
+                    // Append the content query criteria, which for an indexed lookup is the UUID field and value
+                    if (EVENT_TYPE_NAME.equalsIgnoreCase(uuidType)) {
+                        contentQuery.append(DOCUMENT_FIELD_NAME);
+                    } else {
+                        contentQuery.append(uuidType).append(UUID_TERM_DELIMITER);
+                    }
                     contentQuery.append(uuid);
                 }
             }
@@ -300,9 +315,10 @@ public class LookupUUIDUtil {
         final AbstractUUIDLookupCriteria validatedCriteria = this.validateLookupCriteria(unvalidatedCriteria, true);
         final HttpHeaders headers = validatedCriteria.getStreamingOutputHeaders();
         
-        // If the criteria is intended for content lookup and contains only UIDQuery "event" types, allow
-        // for optimized content lookup by skipping the UUID lookup query and assigning a "dummy" EventQueryResponseBase.
-        if (validatedCriteria.isContentLookup() && validatedCriteria.isAllEventLookup()) {
+        // If the criteria is intended for content lookup and contains only UIDQuery "event" types, or UUIDs which the
+        // content query resolves through the shard index, allow for optimized content lookup by skipping the UUID
+        // lookup query and assigning a "dummy" EventQueryResponseBase.
+        if (validatedCriteria.isContentLookup() && (validatedCriteria.isAllEventLookup() || validatedCriteria.isIndexedLookup())) {
             response = (T) new AllEventMockResponse(validatedCriteria);
         }
         // Otherwise, just execute the query as normally expected
@@ -832,6 +848,14 @@ public class LookupUUIDUtil {
                             && (uuidPairCount <= Integer.parseInt(criteria.getQueryParameters().getFirst(QueryParameters.QUERY_PAGESIZE)))) {
                 criteria.setAllEventLookup(true);
             }
+            // Otherwise, if configured, resolve the UUIDs of a content lookup through the shard index with a single content
+            // query. Wildcards still require the UUID query, and a paged lookup is limited to a single page of UUIDs.
+            else if (this.indexedContentLookup && criteria.isContentLookup() && (eventTypeCountForContentLookup == 0)
+                            && !unvalidatedQuery.contains("*") && !unvalidatedQuery.contains("?")
+                            && ((null != criteria.getStreamingOutputHeaders()) || (uuidPairCount <= Integer.parseInt(criteria.getQueryParameters().getFirst(
+                                            QueryParameters.QUERY_PAGESIZE))))) {
+                criteria.setIndexedLookup(true);
+            }
         }
         
         // Set the query logic
@@ -848,7 +872,7 @@ public class LookupUUIDUtil {
         }
         
         // Conditionally add content.lookup syntax to parameters to indicate content lookup during "next" calls
-        if (criteria.isContentLookup() && !criteria.isAllEventLookup()) {
+        if (criteria.isContentLookup() && !criteria.isAllEventLookup() && !criteria.isIndexedLookup()) {
             params = params + ';' + PARAM_CONTENT_LOOKUP + ':' + true;
         }
         criteria.getQueryParameters().putSingle(QueryParameters.QUERY_PARAMS, params);
@@ -0,0 +1,91 @@
+package datawave.webservice.query.logic.composite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompositeQueryLogicResultsTest {
+    
+    @Test
+    public void testRoundRobinMerge() throws Exception {
+        CompositeQueryLogicResults results = new CompositeQueryLogicResults(10);
+        CompositeQueryLogicResults.DelegateBuffer buffer1 = results.addDelegate(() -> {});
+        CompositeQueryLogicResults.DelegateBuffer buffer2 = results.addDelegate(() -> {});
+        
+        for (String result : new String[] {"a1", "a2", "a3"}) {
+            Assert.assertTrue(buffer1.add(result));
+        }
+        Assert.assertTrue(buffer2.add("b1"));
+        buffer1.complete();
+        buffer2.complete();
+        
+        List<Object> merged = new ArrayList<>();
+        Iterator<Object> iterator = results.iterator();
+        while (iterator.hasNext()) {
+            merged.add(iterator.next());
+        }
+        // a delegate with no results available is skipped
+        Assert.assertEquals(Arrays.asList("a1", "b1", "a2", "a3"), merged);
+        Assert.assertNull(iterator.next());
+    }
+    
+    @Test
+    public void testFullBufferPausesDelegate() throws Exception {
+        AtomicInteger resumed = new AtomicInteger();
+        CompositeQueryLogicResults results = new CompositeQueryLogicResults(4);
+        CompositeQueryLogicResults.DelegateBuffer buffer = results.addDelegate(resumed::incrementAndGet);
+        
+        Assert.assertTrue(buffer.add(1));
+        Assert.assertTrue(buffer.add(2));
+        Assert.assertTrue(buffer.add(3));
+        Assert.assertFalse(buffer.add(4));
+        
+        Iterator<Object> iterator = results.iterator();
+        Assert.assertEquals(1, iterator.next());
+        Assert.assertEquals(0, resumed.get());
+        // resumed once the buffer is half drained
+        Assert.assertEquals(2, iterator.next());
+        Assert.assertEquals(1, resumed.get());
+        Assert.assertEquals(2, results.size());
+    }
+    
+    @Test
+    public void testSlowDelegateDoesNotBlockOthers() throws Exception {
+        CompositeQueryLogicResults results = new CompositeQueryLogicResults(10);
+        CompositeQueryLogicResults.DelegateBuffer slow = results.addDelegate(() -> {});
+        CompositeQueryLogicResults.DelegateBuffer fast = results.addDelegate(() -> {});
+        
+        fast.add("fast");
+        fast.complete();
+        Iterator<Object> iterator = results.iterator();
+        Assert.assertEquals("fast", iterator.next());
+        
+        Thread producer = new Thread(() -> {
+            slow.add("slow");
+            slow.complete();
+        });
+        producer.start();
+        Assert.assertEquals("slow", iterator.next());
+        Assert.assertFalse(iterator.hasNext());
+        producer.join();
+    }
+    
+    @Test
+    public void testClearResumesPausedDelegates() throws Exception {
+        AtomicInteger resumed = new AtomicInteger();
+        CompositeQueryLogicResults results = new CompositeQueryLogicResults(1);
+        CompositeQueryLogicResults.DelegateBuffer buffer = results.addDelegate(resumed::incrementAndGet);
+        Assert.assertFalse(buffer.add("a"));
+        
+        results.clear();
+        Assert.assertEquals(1, resumed.get());
+        Assert.assertEquals(0, results.size());
+        // a delegate is not paused again once the results are cleared
+        Assert.assertTrue(buffer.add("b"));
+    }
+}
@@ -1,6 +1,7 @@
 package datawave.security.authorization.remote;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
 import com.codahale.metrics.annotation.Metric;
 import com.codahale.metrics.annotation.Timed;
 import com.fasterxml.jackson.databind.ObjectReader;
@@ -11,6 +12,7 @@ import datawave.security.authorization.DatawaveUser;
 import datawave.security.authorization.DatawaveUserInfo;
 import datawave.security.authorization.SubjectIssuerDNPair;
 import datawave.webservice.common.remote.RemoteHttpService;
+import datawave.webservice.common.remote.RemoteHttpService.UnsuccessfulResponseException;
 import datawave.webservice.util.NotEqualPropertyExpressionInterpreter;
 import org.apache.deltaspike.core.api.config.ConfigProperty;
 import org.apache.deltaspike.core.api.exclude.Exclude;
@@ -27,15 +29,21 @@ import javax.inject.Inject;
 import javax.interceptor.Interceptor;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
- * A {@link CachedDatawaveUserService} that delegates all methods to a remote authorization microservice.
+ * A {@link CachedDatawaveUserService} that delegates all methods to a remote authorization microservice. The users looked up for each proxied DN chain are
+ * kept in a local cache in front of the remote service's own cache, so that a burst of requests for the same user results in a single remote call.
  */
 @RefreshableScope
 @Alternative
@@ -99,9 +107,59 @@ public class RemoteDatawaveUserService extends RemoteHttpService implements Cach
     @Metric(name = "dw.remoteDatawaveUserService.failures", absolute = true)
     private Counter failureCounter;
     
+    @Inject
+    @ConfigProperty(name = "dw.remoteDatawaveUserService.cache.maxSize", defaultValue = "1000")
+    private int cacheMaxSize;
+    
+    @Inject
+    @ConfigProperty(name = "dw.remoteDatawaveUserService.cache.ttlSeconds", defaultValue = "300")
+    private int cacheTtlSeconds;
+    
+    @Inject
+    @ConfigProperty(name = "dw.remoteDatawaveUserService.cache.refreshAheadSeconds", defaultValue = "60")
+    private int cacheRefreshAheadSeconds;
+    
+    @Inject
+    @ConfigProperty(name = "dw.remoteDatawaveUserService.cache.negativeTtlSeconds", defaultValue = "30")
+    private int cacheNegativeTtlSeconds;
+    
+    @Inject
+    @Metric(name = "dw.remoteDatawaveUserService.remoteLookups", absolute = true)
+    private Timer remoteLookupTimer;
+    
+    @Inject
+    @Metric(name = "dw.remoteDatawaveUserService.cache.hits", absolute = true)
+    private Counter cacheHitCounter;
+    
+    @Inject
+    @Metric(name = "dw.remoteDatawaveUserService.cache.misses", absolute = true)
+    private Counter cacheMissCounter;
+    
+    @Inject
+    @Metric(name = "dw.remoteDatawaveUserService.cache.sharedLoads", absolute = true)
+    private Counter cacheSharedLoadCounter;
+    
+    @Inject
+    @Metric(name = "dw.remoteDatawaveUserService.cache.refreshes", absolute = true)
+    private Counter cacheRefreshCounter;
+    
+    private SingleFlightCache<List<SubjectIssuerDNPair>,Collection<DatawaveUser>> userCache;
+    
     @Override
     @Timed(name = "dw.remoteDatawaveUserService.lookup", absolute = true)
     public Collection<DatawaveUser> lookup(Collection<SubjectIssuerDNPair> dns) throws AuthorizationException {
+        if (userCache == null) {
+            return remoteLookup(dns);
+        }
+        try {
+            return userCache.get(new ArrayList<>(dns));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw new AuthorizationException(cause.getMessage(), cause);
+        }
+    }
+    
+    private Collection<DatawaveUser> remoteLookup(Collection<SubjectIssuerDNPair> dns) throws AuthorizationException {
         final String enttiesHeader = "<" + dns.stream().map(SubjectIssuerDNPair::subjectDN).collect(Collectors.joining("><")) + ">";
         final String issuersHeader = "<" + dns.stream().map(SubjectIssuerDNPair::issuerDN).collect(Collectors.joining("><")) + ">";
         // @formatter:off
@@ -118,9 +176,46 @@ public class RemoteDatawaveUserService extends RemoteHttpService implements Cach
         return jwtTokenHandler.createUsersFromToken(jwtString);
     }
     
+    private Collection<DatawaveUser> timedRemoteLookup(Collection<SubjectIssuerDNPair> dns) throws AuthorizationException {
+        try (Timer.Context ignored = remoteLookupTimer.time()) {
+            return remoteLookup(dns);
+        }
+    }
+    
+    /**
+     * Determines whether a failed lookup means that the proxied DN chain is not authorized (and therefore will fail again if repeated), rather than that the
+     * remote service is unavailable.
+     */
+    private static boolean isRejected(Exception e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof UnsuccessfulResponseException) {
+                int status = ((UnsuccessfulResponseException) t).getStatusCode();
+                return status >= 400 && status < 500 && status != 408 && status != 429;
+            }
+        }
+        return false;
+    }
+    
+    private static long getExpirationTime(Collection<DatawaveUser> users) {
+        long expirationTime = 0;
+        for (DatawaveUser user : users) {
+            if (user.getExpirationTime() > 0 && (expirationTime == 0 || user.getExpirationTime() < expirationTime)) {
+                expirationTime = user.getExpirationTime();
+            }
+        }
+        return expirationTime;
+    }
+    
+    private void evictLocal(Predicate<SubjectIssuerDNPair> predicate) {
+        if (userCache != null) {
+            userCache.invalidateMatching(dns -> dns.stream().anyMatch(predicate));
+        }
+    }
+    
     @Override
     @Timed(name = "dw.remoteDatawaveUserService.reload", absolute = true)
     public Collection<DatawaveUser> reload(Collection<SubjectIssuerDNPair> dns) throws AuthorizationException {
+        evictLocal(dns::contains);
         Base64.Encoder encoder = Base64.getEncoder();
         // @formatter:off
         return executeGetMethodWithAuthorizationException("admin/reloadUsers",
@@ -175,6 +270,7 @@ public class RemoteDatawaveUserService extends RemoteHttpService implements Cach
     @Override
     @Timed(name = "dw.remoteDatawaveUserService.evict", absolute = true)
     public String evict(String name) {
+        evictLocal(dn -> dn.toString().equals(name) || dn.subjectDN().equals(name));
         // @formatter:off
         return executeGetMethodWithRuntimeException("admin/evictUser",
                 uriBuilder -> uriBuilder.addParameter("username", name),
@@ -187,6 +283,7 @@ public class RemoteDatawaveUserService extends RemoteHttpService implements Cach
     @Override
     @Timed(name = "dw.remoteDatawaveUserService.evictMatching", absolute = true)
     public String evictMatching(String substring) {
+        evictLocal(dn -> dn.toString().contains(substring));
         // @formatter:off
         return executeGetMethodWithRuntimeException("admin/evictUsersMatching",
                 uriBuilder -> uriBuilder.addParameter("substring", substring),
@@ -199,6 +296,9 @@ public class RemoteDatawaveUserService extends RemoteHttpService implements Cach
     @Override
     @Timed(name = "dw.remoteDatawaveUserService.evictAll", absolute = true)
     public String evictAll() {
+        if (userCache != null) {
+            userCache.invalidateAll();
+        }
         // @formatter:off
         return executeGetMethodWithRuntimeException("admin/evictAll",
                 b -> {},
@@ -238,6 +338,14 @@ public class RemoteDatawaveUserService extends RemoteHttpService implements Cach
         datawaveUserReader = objectMapper.readerFor(DatawaveUser.class);
         datawaveUserListReader = objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(Collection.class, DatawaveUser.class));
         datawaveUserInfoListReader = objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(Collection.class, DatawaveUserInfo.class));
+        
+        if (cacheTtlSeconds > 0) {
+            Executor refreshExecutor = executorService() != null ? executorService() : Runnable::run;
+            userCache = new SingleFlightCache<>(this::timedRemoteLookup, refreshExecutor, cacheMaxSize, TimeUnit.SECONDS.toMillis(cacheTtlSeconds),
+                            TimeUnit.SECONDS.toMillis(cacheRefreshAheadSeconds), TimeUnit.SECONDS.toMillis(cacheNegativeTtlSeconds),
+                            RemoteDatawaveUserService::isRejected, RemoteDatawaveUserService::getExpirationTime, System::currentTimeMillis);
+            userCache.setCounters(cacheHitCounter, cacheMissCounter, cacheSharedLoadCounter, cacheRefreshCounter);
+        }
     }
     
     @Override
@@ -0,0 +1,293 @@
+package datawave.security.authorization.remote;
+
+import com.codahale.metrics.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * A local cache of the results of an expensive remote lookup. Concurrent misses for the same key share a single load, entries are reloaded in the background
+ * shortly before they expire so that a frequently used entry does not block its callers when it expires, and lookups which fail because the key is unknown
+ * are remembered for a (usually shorter) time so that they are not repeated on every request.
+ * 
+ * @param <K>
+ *            the type of the keys
+ * @param <V>
+ *            the type of the values
+ */
+public class SingleFlightCache<K,V> {
+    private static final Logger log = LoggerFactory.getLogger(SingleFlightCache.class);
+    
+    /**
+     * Loads the value for a key from the remote source
+     */
+    @FunctionalInterface
+    public interface Loader<K,V> {
+        V load(K key) throws Exception;
+    }
+    
+    private final Loader<K,V> loader;
+    private final Executor refreshExecutor;
+    private final long ttl;
+    private final long refreshAhead;
+    private final long negativeTtl;
+    private final Predicate<Exception> negative;
+    private final ToLongFunction<V> expiration;
+    private final LongSupplier clock;
+    
+    private final Map<K,CachedValue<V>> entries;
+    private final Map<K,CompletableFuture<CachedValue<V>>> loading = new ConcurrentHashMap<>();
+    
+    private Counter hits = new Counter();
+    private Counter misses = new Counter();
+    private Counter sharedLoads = new Counter();
+    private Counter refreshes = new Counter();
+    
+    /**
+     * @param loader
+     *            loads a value from the remote source
+     * @param refreshExecutor
+     *            the executor on which entries are refreshed ahead of their expiration
+     * @param maxSize
+     *            the maximum number of entries to keep, the least recently used entries are removed first
+     * @param ttl
+     *            the number of milliseconds for which a loaded value is used
+     * @param refreshAhead
+     *            the number of milliseconds before an entry expires at which it is reloaded in the background, or 0 to only reload an entry once it expired
+     * @param negativeTtl
+     *            the number of milliseconds for which a negative lookup is remembered, or 0 to not remember them
+     * @param negative
+     *            determines whether a failed lookup means that the key is unknown (as opposed to the remote source being unavailable)
+     * @param expiration
+     *            the time at which a value expires regardless of the ttl, or 0 if it does not
+     * @param clock
+     *            the source of the current time in milliseconds
+     */
+    public SingleFlightCache(Loader<K,V> loader, Executor refreshExecutor, final int maxSize, long ttl, long refreshAhead, long negativeTtl,
+                    Predicate<Exception> negative, ToLongFunction<V> expiration, LongSupplier clock) {
+        this.loader = loader;
+        this.refreshExecutor = refreshExecutor;
+        this.ttl = ttl;
+        this.refreshAhead = Math.min(refreshAhead, ttl);
+        this.negativeTtl = negativeTtl;
+        this.negative = negative;
+        this.expiration = expiration;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<K,CachedValue<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K,CachedValue<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+    
+    /**
+     * Gets the value for a key, loading it if it is not cached. If another thread is already loading the key, then this waits for that load instead of
+     * starting another one.
+     * 
+     * @param key
+     *            the key
+     * @return the value
+     * @throws ExecutionException
+     *             if the value could not be loaded, or the key is known to be unknown, with the failure of the lookup as the cause
+     */
+    public V get(K key) throws ExecutionException {
+        long now = clock.getAsLong();
+        CachedValue<V> entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null && now < entry.expiresAt) {
+            hits.inc();
+            if (entry.failure == null && now >= entry.refreshAt) {
+                refresh(key);
+            }
+            return entry.get();
+        }
+        
+        misses.inc();
+        CompletableFuture<CachedValue<V>> future = new CompletableFuture<>();
+        CompletableFuture<CachedValue<V>> existing = loading.putIfAbsent(key, future);
+        if (existing != null) {
+            sharedLoads.inc();
+            return await(existing).get();
+        }
+        return load(key, future).get();
+    }
+    
+    /**
+     * Removes a key from the cache, and causes any load of the key which is in progress to not be cached
+     * 
+     * @param key
+     *            the key
+     */
+    public void invalidate(K key) {
+        loading.remove(key);
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+    
+    /**
+     * Removes the keys which match a predicate from the cache
+     * 
+     * @param predicate
+     *            the keys to remove
+     */
+    public void invalidateMatching(Predicate<K> predicate) {
+        loading.keySet().removeIf(predicate);
+        synchronized (entries) {
+            entries.keySet().removeIf(predicate);
+        }
+    }
+    
+    /**
+     * Removes all of the keys from the cache
+     */
+    public void invalidateAll() {
+        loading.clear();
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+    
+    /**
+     * Sets the counters to which the use of the cache is reported
+     * 
+     * @param hits
+     *            counts the lookups answered from the cache
+     * @param misses
+     *            counts the lookups which had to wait for a load
+     * @param sharedLoads
+     *            counts the misses which waited for a load started by another lookup
+     * @param refreshes
+     *            counts the entries reloaded in the background before they expired
+     */
+    public void setCounters(Counter hits, Counter misses, Counter sharedLoads, Counter refreshes) {
+        this.hits = hits;
+        this.misses = misses;
+        this.sharedLoads = sharedLoads;
+        this.refreshes = refreshes;
+    }
+    
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+    
+    public long getHits() {
+        return hits.getCount();
+    }
+    
+    public long getMisses() {
+        return misses.getCount();
+    }
+    
+    public long getSharedLoads() {
+        return sharedLoads.getCount();
+    }
+    
+    public long getRefreshes() {
+        return refreshes.getCount();
+    }
+    
+    private void refresh(K key) {
+        CompletableFuture<CachedValue<V>> future = new CompletableFuture<>();
+        if (loading.putIfAbsent(key, future) == null) {
+            refreshes.inc();
+            try {
+                refreshExecutor.execute(() -> {
+                    try {
+                        load(key, future);
+                    } catch (ExecutionException e) {
+                        // the current value is used until it expires
+                        log.warn("Unable to refresh " + key + ": " + e.getCause().getMessage(), e.getCause());
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                loading.remove(key, future);
+                future.cancel(false);
+            }
+        }
+    }
+    
+    private CachedValue<V> load(K key, CompletableFuture<CachedValue<V>> future) throws ExecutionException {
+        try {
+            CachedValue<V> entry;
+            try {
+                V value = loader.load(key);
+                long now = clock.getAsLong();
+                long expiresAt = now + ttl;
+                long expiresWithValue = expiration.applyAsLong(value);
+                if (expiresWithValue > 0) {
+                    expiresAt = Math.min(expiresAt, expiresWithValue);
+                }
+                entry = new CachedValue<>(value, null, expiresAt - refreshAhead, expiresAt);
+            } catch (Exception e) {
+                if (negativeTtl <= 0 || !negative.test(e)) {
+                    throw e;
+                }
+                long expiresAt = clock.getAsLong() + negativeTtl;
+                entry = new CachedValue<>(null, e, expiresAt, expiresAt);
+            }
+            // a load which was invalidated while it was in progress is returned to its callers, but not cached
+            if (loading.get(key) == future) {
+                synchronized (entries) {
+                    entries.put(key, entry);
+                }
+            }
+            future.complete(entry);
+            return entry;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            throw new ExecutionException(e.getMessage(), e);
+        } catch (Throwable t) {
+            // the callers sharing this load would otherwise wait on it forever
+            future.completeExceptionally(t);
+            throw t;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+    
+    private CachedValue<V> await(CompletableFuture<CachedValue<V>> future) throws ExecutionException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionException(e.getMessage(), e);
+        }
+    }
+    
+    private static class CachedValue<V> {
+        private final V value;
+        private final Exception failure;
+        private final long refreshAt;
+        private final long expiresAt;
+        
+        CachedValue(V value, Exception failure, long refreshAt, long expiresAt) {
+            this.value = value;
+            this.failure = failure;
+            this.refreshAt = refreshAt;
+            this.expiresAt = expiresAt;
+        }
+        
+        V get() throws ExecutionException {
+            if (failure != null) {
+                throw new ExecutionException(failure.getMessage(), failure);
+            }
+            return value;
+        }
+    }
+}
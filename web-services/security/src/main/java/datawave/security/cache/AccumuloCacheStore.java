@@ -3,13 +3,22 @@ package datawave.security.cache;
 import java.io.IOException;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.accumulo.core.client.Accumulo;
 import org.apache.accumulo.core.client.AccumuloClient;
@@ -53,8 +62,19 @@ public class AccumuloCacheStore<K extends Serializable,V> implements AdvancedLoa
     private Authorizations authorizations = new Authorizations();
     
     private AccumuloClient accumuloClient;
+    private BatchWriterConfig bwConfig;
     private BatchWriter batchWriter;
     
+    // the number of entries decoded and processed per task submitted to the executor in process
+    private static final int PROCESS_BATCH_SIZE = 100;
+    
+    // writes and deletes which have not yet been flushed when in write-behind mode, keyed by row
+    private final Map<ByteBuffer,PendingWrite> pendingWrites = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+    private volatile MutationsRejectedException lastFlushFailure;
+    private ScheduledExecutorService flushExecutor;
+    
     @Override
     public void init(InitializationContext ctx) {
         this.ctx = ctx;
@@ -67,12 +87,7 @@ public class AccumuloCacheStore<K extends Serializable,V> implements AdvancedLoa
     
     @Override
     public void start() {
-        // @formatter:off
-        accumuloClient = Accumulo.newClient()
-                .to(configuration.instanceName(), configuration.zookeepers())
-                .as(configuration.username(), configuration.password())
-                .build();
-        // @formatter:on
+        accumuloClient = createClient();
         
         IteratorSetting ageoffConfig = new IteratorSetting(configuration.ageoffPriority(), AgeOffFilter.class.getSimpleName(), AgeOffFilter.class);
         AgeOffFilter.setTTL(ageoffConfig, configuration.ageoffTTLhours() * 60L * 60L * 1000L);
@@ -114,7 +129,7 @@ public class AccumuloCacheStore<K extends Serializable,V> implements AdvancedLoa
             }
         }
         
-        BatchWriterConfig bwConfig = new BatchWriterConfig().setMaxWriteThreads(configuration.writeThreads())
+        bwConfig = new BatchWriterConfig().setMaxWriteThreads(configuration.writeThreads())
                         .setMaxLatency(configuration.maxLatency(), TimeUnit.SECONDS).setMaxMemory(configuration.maxMemory());
         try {
             batchWriter = accumuloClient.createBatchWriter(tableName, bwConfig);
@@ -122,17 +137,45 @@ public class AccumuloCacheStore<K extends Serializable,V> implements AdvancedLoa
             // should never happen - we create the table right here
             throw new RuntimeException("Unable to create BatchWriter.", e);
         }
+        
+        if (configuration.writeBehind()) {
+            flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "AccumuloCacheStore-" + tableName + "-flush");
+                t.setDaemon(true);
+                return t;
+            });
+            long interval = configuration.writeBehindFlushInterval();
+            flushExecutor.scheduleWithFixedDelay(this::flushInBackground, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    protected AccumuloClient createClient() {
+        // @formatter:off
+        return Accumulo.newClient()
+                .to(configuration.instanceName(), configuration.zookeepers())
+                .as(configuration.username(), configuration.password())
+                .build();
+        // @formatter:on
     }
     
     @Override
     public void stop() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+            flushExecutor = null;
+        }
+        // the writer and client are closed even if the final flush fails
         try {
-            batchWriter.close();
-        } catch (MutationsRejectedException e) {
-            throw new RuntimeException("Unable to write cache value(s) to Accumulo", e);
+            flushPendingWrites();
+        } finally {
+            try {
+                batchWriter.close();
+            } catch (MutationsRejectedException e) {
+                throw new RuntimeException("Unable to write cache value(s) to Accumulo", e);
+            } finally {
+                accumuloClient.close();
+            }
         }
-        
-        accumuloClient.close();
     }
     
     @Override
@@ -154,7 +197,13 @@ public class AccumuloCacheStore<K extends Serializable,V> implements AdvancedLoa
         buffer.flip();
         
         Mutation m = new Mutation(keyBytes.getBuf(), keyBytes.getOffset(), keyBytes.getLength());
-        m.put("", "", entry.getMetadata().created(), new Value(buffer));
+        Value value = new Value(buffer);
+        m.put("", "", entry.getMetadata().created(), value);
+        if (configuration.writeBehind()) {
+            byte[] row = Arrays.copyOfRange(keyBytes.getBuf(), keyBytes.getOffset(), keyBytes.getOffset() + keyBytes.getLength());
+            addPendingWrite(row, new PendingWrite(m, value));
+            return;
+        }
         try {
             batchWriter.addMutation(m);
             batchWriter.flush();
@@ -163,17 +212,106 @@ public class AccumuloCacheStore<K extends Serializable,V> implements AdvancedLoa
         }
     }
     
+    /**
+     * Queues a write or delete, replacing any pending write for the same row, and requests a background flush if the batch size has been reached. Flush
+     * failures are reported by the flush, not by the writes queued behind it. A new row is rejected once
+     * {@link AccumuloCacheStoreConfiguration#writeBehindMaxPending()} writes are waiting to be flushed, so that the queue does not grow without bound while
+     * Accumulo is unavailable.
+     */
+    private void addPendingWrite(byte[] row, PendingWrite write) {
+        ByteBuffer key = ByteBuffer.wrap(row);
+        if (pendingWrites.size() >= configuration.writeBehindMaxPending() && !pendingWrites.containsKey(key)) {
+            throw new PersistenceException("Unable to queue cache value for Accumulo table " + tableName + ", " + pendingWrites.size()
+                            + " writes are waiting to be flushed", lastFlushFailure);
+        }
+        pendingWrites.put(key, write);
+        if (pendingWrites.size() >= configuration.writeBehindBatchSize()) {
+            requestFlush();
+        }
+    }
+    
+    private void requestFlush() {
+        ScheduledExecutorService executor = flushExecutor;
+        if (executor != null && flushRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::flushInBackground);
+            } catch (RejectedExecutionException e) {
+                // the store is stopping, which flushes the pending writes
+                flushRequested.set(false);
+            }
+        }
+    }
+    
+    private void flushInBackground() {
+        flushRequested.set(false);
+        try {
+            flushPendingWrites();
+        } catch (RuntimeException e) {
+            log.error("Unable to flush " + pendingWrites.size() + " pending writes to the Accumulo cache for table " + tableName, e);
+        }
+    }
+    
+    /**
+     * Writes all of the pending writes to Accumulo. A pending write is only removed once it has been flushed, and only if it has not been replaced by a newer
+     * write in the meantime, so that {@link #load(Object)} can read through the pending writes. A batch writer which rejected mutations keeps rejecting them,
+     * so it is replaced after a failure and the pending writes are retried by the next flush.
+     */
+    void flushPendingWrites() {
+        if (pendingWrites.isEmpty()) {
+            return;
+        }
+        synchronized (flushLock) {
+            List<Map.Entry<ByteBuffer,PendingWrite>> flushed = new ArrayList<>(pendingWrites.entrySet());
+            try {
+                for (Map.Entry<ByteBuffer,PendingWrite> entry : flushed) {
+                    batchWriter.addMutation(entry.getValue().mutation);
+                }
+                batchWriter.flush();
+            } catch (MutationsRejectedException e) {
+                lastFlushFailure = e;
+                resetBatchWriter();
+                throw new PersistenceException("Unable to write cache values to Accumulo", e);
+            }
+            lastFlushFailure = null;
+            for (Map.Entry<ByteBuffer,PendingWrite> entry : flushed) {
+                pendingWrites.remove(entry.getKey(), entry.getValue());
+            }
+            log.trace("Flushed {} pending writes to the Accumulo cache for table {}.", flushed.size(), tableName);
+        }
+    }
+    
+    private void resetBatchWriter() {
+        try {
+            batchWriter.close();
+        } catch (MutationsRejectedException e) {
+            log.trace("Closed the failed batch writer for table {}.", tableName, e);
+        }
+        try {
+            batchWriter = accumuloClient.createBatchWriter(tableName, bwConfig);
+        } catch (TableNotFoundException e) {
+            throw new PersistenceException("Unable to create BatchWriter.", e);
+        }
+    }
+    
+    int getPendingWriteCount() {
+        return pendingWrites.size();
+    }
+    
     @Override
     public void clear() {
         log.trace("Clearing Accumulo cache for table {}.", tableName);
-        try {
-            BatchWriterConfig bwCfg = new BatchWriterConfig();
-            try (BatchDeleter deleter = accumuloClient.createBatchDeleter(tableName, authorizations, 10, bwCfg)) {
-                deleter.setRanges(Collections.singletonList(new Range()));
-                deleter.delete();
+        // hold the flush lock so that a flush already in progress cannot write its entries back after the table is cleared
+        synchronized (flushLock) {
+            pendingWrites.clear();
+            try {
+                BatchWriterConfig bwCfg = new BatchWriterConfig();
+                try (BatchDeleter deleter = accumuloClient.createBatchDeleter(tableName, authorizations, 10, bwCfg)) {
+                    deleter.setRanges(Collections.singletonList(new Range()));
+                    deleter.delete();
+                }
+            } catch (MutationsRejectedException | TableNotFoundException e) {
+                throw new PersistenceException("Unable to clear Accumulo cache for " + tableName, e);
             }
-        } catch (MutationsRejectedException | TableNotFoundException e) {
-            throw new PersistenceException("Unable to clear Accumulo cache for " + tableName, e);
         }
     }
     
@@ -184,6 +322,10 @@ public class AccumuloCacheStore<K extends Serializable,V> implements AdvancedLoa
             byte[] keyBytes = ctx.getMarshaller().objectToByteBuffer(key);
             Mutation m = new Mutation(keyBytes);
             m.putDelete("", "");
+            if (configuration.writeBehind()) {
+                addPendingWrite(keyBytes, new PendingWrite(m, null));
+                return true;
+            }
             try {
                 batchWriter.addMutation(m);
                 batchWriter.flush();
@@ -204,8 +346,15 @@ public class AccumuloCacheStore<K extends Serializable,V> implements AdvancedLoa
     public MarshalledEntry<K,V> _load(Object key, boolean loadValue, boolean loadMetadata) {
         Scanner scanner;
         try {
-            scanner = accumuloClient.createScanner(tableName, authorizations);
             byte[] keyBytes = ctx.getMarshaller().objectToByteBuffer(key);
+            if (!pendingWrites.isEmpty()) {
+                // read through any write or delete that has not yet been flushed
+                PendingWrite pending = pendingWrites.get(ByteBuffer.wrap(keyBytes));
+                if (pending != null) {
+                    return pending.value == null ? null : decodeValue(pending.value, key, loadValue, loadMetadata);
+                }
+            }
+            scanner = accumuloClient.createScanner(tableName, authorizations);
             scanner.setRange(new Range(new Text(keyBytes)));
         } catch (TableNotFoundException e) {
             throw new PersistenceException(e);
@@ -220,30 +369,44 @@ public class AccumuloCacheStore<K extends Serializable,V> implements AdvancedLoa
     
     private MarshalledEntry<K,V> decodeEntry(Map.Entry<Key,Value> entry, Object key, boolean loadValue, boolean loadMetadata) {
         if (entry != null) {
-            ByteBufferFactory bbFactory = ctx.getByteBufferFactory();
-            ByteBuffer buffer = ByteBuffer.wrap(entry.getValue().get(), 0, entry.getValue().getSize());
-            int valueSize = buffer.getInt();
-            int metadataSize = buffer.getInt();
-            org.infinispan.commons.io.ByteBuffer valueBytes = null;
-            if (loadValue) {
-                valueBytes = bbFactory.newByteBuffer(entry.getValue().get(), buffer.position(), valueSize);
-            }
-            org.infinispan.commons.io.ByteBuffer metadataBytes = null;
-            if (metadataSize > 0 && loadMetadata) {
-                // Skip over value if we didn't read it in.
-                if (!loadValue)
-                    buffer.position(buffer.position() + valueSize);
-                metadataBytes = bbFactory.newByteBuffer(entry.getValue().get(), buffer.position() + valueSize, metadataSize);
-            }
-            // noinspection unchecked
-            return ctx.getMarshalledEntryFactory().newMarshalledEntry(key, valueBytes, metadataBytes);
+            return decodeValue(entry.getValue(), key, loadValue, loadMetadata);
         } else {
             return null;
         }
     }
     
+    private MarshalledEntry<K,V> decodeValue(Value value, Object key, boolean loadValue, boolean loadMetadata) {
+        ByteBufferFactory bbFactory = ctx.getByteBufferFactory();
+        ByteBuffer buffer = ByteBuffer.wrap(value.get(), 0, value.getSize());
+        int valueSize = buffer.getInt();
+        int metadataSize = buffer.getInt();
+        org.infinispan.commons.io.ByteBuffer valueBytes = null;
+        if (loadValue) {
+            valueBytes = bbFactory.newByteBuffer(value.get(), buffer.position(), valueSize);
+        }
+        org.infinispan.commons.io.ByteBuffer metadataBytes = null;
+        if (metadataSize > 0 && loadMetadata) {
+            // Skip over value if we didn't read it in.
+            if (!loadValue)
+                buffer.position(buffer.position() + valueSize);
+            metadataBytes = bbFactory.newByteBuffer(value.get(), buffer.position() + valueSize, metadataSize);
+        }
+        // noinspection unchecked
+        return ctx.getMarshalledEntryFactory().newMarshalledEntry(key, valueBytes, metadataBytes);
+    }
+    
     @Override
     public boolean contains(Object key) {
+        if (!pendingWrites.isEmpty()) {
+            try {
+                PendingWrite pending = pendingWrites.get(ByteBuffer.wrap(ctx.getMarshaller().objectToByteBuffer(key)));
+                if (pending != null) {
+                    return pending.value != null;
+                }
+            } catch (IOException | InterruptedException e) {
+                throw new PersistenceException("Unable to serialize key " + key, e);
+            }
+        }
         try (Scanner scanner = accumuloClient.createScanner(tableName, authorizations)) {
             scanner.setRange(new Range(String.valueOf(key)));
             Iterator<Map.Entry<Key,Value>> iterator = scanner.iterator();
@@ -255,7 +418,8 @@ public class AccumuloCacheStore<K extends Serializable,V> implements AdvancedLoa
     
     @Override
     public int size() {
-        try (BatchScanner batchScanner = accumuloClient.createBatchScanner(tableName, authorizations, 5)) {
+        flushPendingWrites();
+        try (BatchScanner batchScanner = accumuloClient.createBatchScanner(tableName, authorizations, configuration.readThreads())) {
             batchScanner.setRanges(Collections.singleton(new Range()));
             try {
                 int rows = 0;
@@ -278,27 +442,36 @@ public class AccumuloCacheStore<K extends Serializable,V> implements AdvancedLoa
     
     @Override
     public void process(KeyFilter<? super K> filter, CacheLoaderTask<K,V> task, Executor executor, boolean fetchValue, boolean fetchMetadata) {
-        try (BatchScanner batchScanner = accumuloClient.createBatchScanner(tableName, authorizations, 5)) {
+        flushPendingWrites();
+        try (BatchScanner batchScanner = accumuloClient.createBatchScanner(tableName, authorizations, configuration.readThreads())) {
             
             batchScanner.setRanges(Collections.singleton(new Range()));
             try {
+                // decode and process the entries in batches on the executor while the batch scanner continues to read
                 TaskContext taskContext = new TaskContextImpl();
+                List<CompletableFuture<Void>> futures = new ArrayList<>();
+                List<Map.Entry<Key,Value>> batch = new ArrayList<>(PROCESS_BATCH_SIZE);
                 for (Map.Entry<Key,Value> entry : batchScanner) {
                     if (taskContext.isStopped())
                         break;
                     
-                    try {
-                        ByteSequence rowData = entry.getKey().getRowData();
-                        @SuppressWarnings("unchecked")
-                        K key = (K) ctx.getMarshaller().objectFromByteBuffer(rowData.getBackingArray(), rowData.offset(), rowData.length());
-                        if (filter.accept(key)) {
-                            MarshalledEntry<K,V> marshalledEntry = decodeEntry(entry, key, fetchValue, fetchMetadata);
-                            task.processEntry(marshalledEntry, taskContext);
-                        }
-                    } catch (Exception e) {
-                        throw new PersistenceException(e);
+                    batch.add(entry);
+                    if (batch.size() == PROCESS_BATCH_SIZE) {
+                        futures.add(submitBatch(batch, filter, task, taskContext, executor, fetchValue, fetchMetadata));
+                        batch = new ArrayList<>(PROCESS_BATCH_SIZE);
                     }
                 }
+                if (!batch.isEmpty() && !taskContext.isStopped()) {
+                    futures.add(submitBatch(batch, filter, task, taskContext, executor, fetchValue, fetchMetadata));
+                }
+                try {
+                    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof PersistenceException) {
+                        throw (PersistenceException) e.getCause();
+                    }
+                    throw new PersistenceException(e.getCause());
+                }
             } finally {
                 batchScanner.close();
             }
@@ -306,4 +479,37 @@ public class AccumuloCacheStore<K extends Serializable,V> implements AdvancedLoa
             throw new PersistenceException("Unable to calculate size of Accumulo cache table " + tableName, e);
         }
     }
+    
+    private CompletableFuture<Void> submitBatch(List<Map.Entry<Key,Value>> batch, KeyFilter<? super K> filter, CacheLoaderTask<K,V> task,
+                    TaskContext taskContext, Executor executor, boolean fetchValue, boolean fetchMetadata) {
+        return CompletableFuture.runAsync(() -> {
+            for (Map.Entry<Key,Value> entry : batch) {
+                if (taskContext.isStopped())
+                    break;
+                
+                try {
+                    ByteSequence rowData = entry.getKey().getRowData();
+                    @SuppressWarnings("unchecked")
+                    K key = (K) ctx.getMarshaller().objectFromByteBuffer(rowData.getBackingArray(), rowData.offset(), rowData.length());
+                    if (filter.accept(key)) {
+                        MarshalledEntry<K,V> marshalledEntry = decodeEntry(entry, key, fetchValue, fetchMetadata);
+                        task.processEntry(marshalledEntry, taskContext);
+                    }
+                } catch (Exception e) {
+                    throw new PersistenceException(e);
+                }
+            }
+        }, executor);
+    }
+    
+    private static class PendingWrite {
+        private final Mutation mutation;
+        // the encoded cache value, or null for a delete
+        private final Value value;
+        
+        private PendingWrite(Mutation mutation, Value value) {
+            this.mutation = mutation;
+            this.value = value;
+        }
+    }
 }
@@ -27,10 +27,17 @@ public class AccumuloCacheStoreConfiguration extends AbstractStoreConfiguration
     public static final AttributeDefinition<Long> MAX_MEMORY = AttributeDefinition.builder("maxMemoryBytes", 262144L).immutable().build();
     public static final AttributeDefinition<Integer> AGEOFF_TTL = AttributeDefinition.builder("ageoffTTLhours", 24).immutable().build();
     public static final AttributeDefinition<Integer> AGEOFF_PRIORITY = AttributeDefinition.builder("ageoffPriority", 19).immutable().build();
+    public static final AttributeDefinition<Boolean> WRITE_BEHIND = AttributeDefinition.builder("writeBehind", false).immutable().build();
+    public static final AttributeDefinition<Integer> WRITE_BEHIND_BATCH_SIZE = AttributeDefinition.builder("writeBehindBatchSize", 100).immutable().build();
+    public static final AttributeDefinition<Long> WRITE_BEHIND_FLUSH_INTERVAL = AttributeDefinition.builder("writeBehindFlushIntervalMillis", 1000L).immutable()
+                    .build();
+    public static final AttributeDefinition<Integer> WRITE_BEHIND_MAX_PENDING = AttributeDefinition.builder("writeBehindMaxPending", 10000).immutable().build();
+    public static final AttributeDefinition<Integer> READ_THREADS = AttributeDefinition.builder("readThreads", 5).immutable().build();
     
     public static AttributeSet attributeDefinitionSet() {
         return new AttributeSet(AccumuloCacheStoreConfiguration.class, AbstractStoreConfiguration.attributeDefinitionSet(), INSTANCE_NAME, ZOOKEEPERS,
-                        USERNAME, PASSWORD, TABLE_NAME, AUTHORIZATIONS, WRITE_THREADS, MAX_LATENCY, MAX_MEMORY, AGEOFF_TTL, AGEOFF_PRIORITY);
+                        USERNAME, PASSWORD, TABLE_NAME, AUTHORIZATIONS, WRITE_THREADS, MAX_LATENCY, MAX_MEMORY, AGEOFF_TTL, AGEOFF_PRIORITY, WRITE_BEHIND,
+                        WRITE_BEHIND_BATCH_SIZE, WRITE_BEHIND_FLUSH_INTERVAL, WRITE_BEHIND_MAX_PENDING, READ_THREADS);
     }
     
     private Attribute<String> instanceName;
@@ -44,6 +51,11 @@ public class AccumuloCacheStoreConfiguration extends AbstractStoreConfiguration
     private Attribute<Long> maxMemory;
     private Attribute<Integer> ageoffTTLhours;
     private Attribute<Integer> ageoffPriority;
+    private Attribute<Boolean> writeBehind;
+    private Attribute<Integer> writeBehindBatchSize;
+    private Attribute<Long> writeBehindFlushInterval;
+    private Attribute<Integer> writeBehindMaxPending;
+    private Attribute<Integer> readThreads;
     
     public AccumuloCacheStoreConfiguration(AttributeSet attributes, AsyncStoreConfiguration async, SingletonStoreConfiguration singletonStore) {
         super(attributes, async, singletonStore);
@@ -58,6 +70,11 @@ public class AccumuloCacheStoreConfiguration extends AbstractStoreConfiguration
         maxMemory = attributes.attribute(MAX_MEMORY);
         ageoffTTLhours = attributes.attribute(AGEOFF_TTL);
         ageoffPriority = attributes.attribute(AGEOFF_PRIORITY);
+        writeBehind = attributes.attribute(WRITE_BEHIND);
+        writeBehindBatchSize = attributes.attribute(WRITE_BEHIND_BATCH_SIZE);
+        writeBehindFlushInterval = attributes.attribute(WRITE_BEHIND_FLUSH_INTERVAL);
+        writeBehindMaxPending = attributes.attribute(WRITE_BEHIND_MAX_PENDING);
+        readThreads = attributes.attribute(READ_THREADS);
     }
     
     public String instanceName() {
@@ -104,6 +121,26 @@ public class AccumuloCacheStoreConfiguration extends AbstractStoreConfiguration
         return ageoffPriority.get();
     }
     
+    public boolean writeBehind() {
+        return writeBehind.get();
+    }
+    
+    public int writeBehindBatchSize() {
+        return writeBehindBatchSize.get();
+    }
+    
+    public long writeBehindFlushInterval() {
+        return writeBehindFlushInterval.get();
+    }
+    
+    public int writeBehindMaxPending() {
+        return writeBehindMaxPending.get();
+    }
+    
+    public int readThreads() {
+        return readThreads.get();
+    }
+    
     @Override
     @SuppressWarnings("RedundantIfStatement")
     public boolean equals(Object o) {
@@ -138,6 +175,16 @@ public class AccumuloCacheStoreConfiguration extends AbstractStoreConfiguration
             return false;
         if (ageoffPriority != null ? !ageoffPriority.equals(that.ageoffPriority) : that.ageoffPriority != null)
             return false;
+        if (writeBehind != null ? !writeBehind.equals(that.writeBehind) : that.writeBehind != null)
+            return false;
+        if (writeBehindBatchSize != null ? !writeBehindBatchSize.equals(that.writeBehindBatchSize) : that.writeBehindBatchSize != null)
+            return false;
+        if (writeBehindFlushInterval != null ? !writeBehindFlushInterval.equals(that.writeBehindFlushInterval) : that.writeBehindFlushInterval != null)
+            return false;
+        if (writeBehindMaxPending != null ? !writeBehindMaxPending.equals(that.writeBehindMaxPending) : that.writeBehindMaxPending != null)
+            return false;
+        if (readThreads != null ? !readThreads.equals(that.readThreads) : that.readThreads != null)
+            return false;
         
         return true;
     }
@@ -156,6 +203,11 @@ public class AccumuloCacheStoreConfiguration extends AbstractStoreConfiguration
         result = 31 * result + (maxMemory != null ? maxMemory.hashCode() : 0);
         result = 31 * result + (ageoffTTLhours != null ? ageoffTTLhours.hashCode() : 0);
         result = 31 * result + (ageoffPriority != null ? ageoffPriority.hashCode() : 0);
+        result = 31 * result + (writeBehind != null ? writeBehind.hashCode() : 0);
+        result = 31 * result + (writeBehindBatchSize != null ? writeBehindBatchSize.hashCode() : 0);
+        result = 31 * result + (writeBehindFlushInterval != null ? writeBehindFlushInterval.hashCode() : 0);
+        result = 31 * result + (writeBehindMaxPending != null ? writeBehindMaxPending.hashCode() : 0);
+        result = 31 * result + (readThreads != null ? readThreads.hashCode() : 0);
         return result;
     }
     
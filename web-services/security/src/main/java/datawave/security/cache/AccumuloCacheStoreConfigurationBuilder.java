@@ -11,6 +11,11 @@ import static datawave.security.cache.AccumuloCacheStoreConfiguration.MAX_LATENC
 import static datawave.security.cache.AccumuloCacheStoreConfiguration.MAX_MEMORY;
 import static datawave.security.cache.AccumuloCacheStoreConfiguration.AGEOFF_TTL;
 import static datawave.security.cache.AccumuloCacheStoreConfiguration.AGEOFF_PRIORITY;
+import static datawave.security.cache.AccumuloCacheStoreConfiguration.WRITE_BEHIND;
+import static datawave.security.cache.AccumuloCacheStoreConfiguration.WRITE_BEHIND_BATCH_SIZE;
+import static datawave.security.cache.AccumuloCacheStoreConfiguration.WRITE_BEHIND_FLUSH_INTERVAL;
+import static datawave.security.cache.AccumuloCacheStoreConfiguration.WRITE_BEHIND_MAX_PENDING;
+import static datawave.security.cache.AccumuloCacheStoreConfiguration.READ_THREADS;
 
 import java.util.List;
 
@@ -85,6 +90,31 @@ public class AccumuloCacheStoreConfigurationBuilder extends
         return this;
     }
     
+    public AccumuloCacheStoreConfigurationBuilder writeBehind(boolean writeBehind) {
+        attributes.attribute(WRITE_BEHIND).set(writeBehind);
+        return this;
+    }
+    
+    public AccumuloCacheStoreConfigurationBuilder writeBehindBatchSize(int writeBehindBatchSize) {
+        attributes.attribute(WRITE_BEHIND_BATCH_SIZE).set(writeBehindBatchSize);
+        return this;
+    }
+    
+    public AccumuloCacheStoreConfigurationBuilder writeBehindFlushInterval(long writeBehindFlushInterval) {
+        attributes.attribute(WRITE_BEHIND_FLUSH_INTERVAL).set(writeBehindFlushInterval);
+        return this;
+    }
+    
+    public AccumuloCacheStoreConfigurationBuilder writeBehindMaxPending(int writeBehindMaxPending) {
+        attributes.attribute(WRITE_BEHIND_MAX_PENDING).set(writeBehindMaxPending);
+        return this;
+    }
+    
+    public AccumuloCacheStoreConfigurationBuilder readThreads(int readThreads) {
+        attributes.attribute(READ_THREADS).set(readThreads);
+        return this;
+    }
+    
     @Override
     public AccumuloCacheStoreConfiguration create() {
         return new AccumuloCacheStoreConfiguration(attributes.protect(), async.create(), singletonStore.create());
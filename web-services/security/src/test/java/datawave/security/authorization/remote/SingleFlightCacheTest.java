@@ -0,0 +1,258 @@
+package datawave.security.authorization.remote;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SingleFlightCacheTest {
+    
+    private static class UnknownKeyException extends Exception {
+        private static final long serialVersionUID = 1L;
+        
+        UnknownKeyException(String key) {
+            super("Unknown " + key);
+        }
+    }
+    
+    private final AtomicLong clock = new AtomicLong(1000L);
+    private final AtomicInteger loads = new AtomicInteger();
+    private final List<Runnable> refreshes = new ArrayList<>();
+    private volatile long expiration = 0;
+    private volatile boolean available = true;
+    private ExecutorService executor;
+    
+    @Before
+    public void setup() {
+        executor = Executors.newCachedThreadPool();
+    }
+    
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    private SingleFlightCache<String,String> createCache(SingleFlightCache.Loader<String,String> loader) {
+        return new SingleFlightCache<>(loader, refreshes::add, 2, 100L, 20L, 50L, e -> e instanceof UnknownKeyException, v -> expiration, clock::get);
+    }
+    
+    private String load(String key) throws Exception {
+        if (!available) {
+            throw new IllegalStateException("Unavailable");
+        }
+        if (key.startsWith("unknown")) {
+            loads.incrementAndGet();
+            throw new UnknownKeyException(key);
+        }
+        return key + "-" + loads.incrementAndGet();
+    }
+    
+    @Test
+    public void testHitsAndExpiration() throws Exception {
+        SingleFlightCache<String,String> cache = createCache(this::load);
+        assertEquals("a-1", cache.get("a"));
+        clock.addAndGet(79L);
+        assertEquals("a-1", cache.get("a"));
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        
+        clock.addAndGet(21L);
+        assertEquals("a-2", cache.get("a"));
+        assertEquals(2, cache.getMisses());
+    }
+    
+    @Test
+    public void testConcurrentMissesShareOneLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SingleFlightCache<String,String> cache = createCache(key -> {
+            loading.countDown();
+            release.await();
+            return load(key);
+        });
+        
+        List<Future<String>> results = new ArrayList<>();
+        results.add(executor.submit(() -> cache.get("a")));
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 9; i++) {
+            results.add(executor.submit(() -> cache.get("a")));
+        }
+        // wait for the other lookups to join the load in progress
+        long deadline = System.currentTimeMillis() + 10000L;
+        while (cache.getSharedLoads() < 9 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        release.countDown();
+        
+        for (Future<String> result : results) {
+            assertEquals("a-1", result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(9, cache.getSharedLoads());
+    }
+    
+    @Test
+    public void testErrorFailsSharedLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SingleFlightCache<String,String> cache = createCache(key -> {
+            loading.countDown();
+            release.await();
+            throw new StackOverflowError();
+        });
+        
+        Future<String> leader = executor.submit(() -> cache.get("a"));
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+        Future<String> follower = executor.submit(() -> cache.get("a"));
+        long deadline = System.currentTimeMillis() + 10000L;
+        while (cache.getSharedLoads() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        release.countDown();
+        
+        // the error is rethrown to the loading caller, and the caller sharing the load fails rather than waiting forever
+        for (Future<String> result : new Future[] {leader, follower}) {
+            try {
+                result.get(10, TimeUnit.SECONDS);
+                fail("Expected the lookup to fail");
+            } catch (ExecutionException e) {
+                Throwable cause = (e.getCause() instanceof ExecutionException) ? e.getCause().getCause() : e.getCause();
+                assertTrue(cause instanceof StackOverflowError);
+            }
+        }
+    }
+    
+    @Test
+    public void testRefreshAhead() throws Exception {
+        SingleFlightCache<String,String> cache = createCache(this::load);
+        assertEquals("a-1", cache.get("a"));
+        
+        // within the refresh window the current value is returned while a single refresh is scheduled
+        clock.addAndGet(85L);
+        assertEquals("a-1", cache.get("a"));
+        assertEquals("a-1", cache.get("a"));
+        assertEquals(1, refreshes.size());
+        assertEquals(1, cache.getRefreshes());
+        
+        refreshes.get(0).run();
+        assertEquals("a-2", cache.get("a"));
+        clock.addAndGet(50L);
+        assertEquals("a-2", cache.get("a"));
+        assertEquals(1, cache.getMisses());
+    }
+    
+    @Test
+    public void testFailedRefreshKeepsValue() throws Exception {
+        SingleFlightCache<String,String> cache = createCache(this::load);
+        assertEquals("a-1", cache.get("a"));
+        clock.addAndGet(85L);
+        available = false;
+        assertEquals("a-1", cache.get("a"));
+        refreshes.get(0).run();
+        assertEquals("a-1", cache.get("a"));
+    }
+    
+    @Test
+    public void testNegativeCache() throws Exception {
+        SingleFlightCache<String,String> cache = createCache(this::load);
+        for (int i = 0; i < 3; i++) {
+            try {
+                cache.get("unknown");
+                fail("Expected the lookup to fail");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof UnknownKeyException);
+            }
+        }
+        assertEquals(1, loads.get());
+        
+        clock.addAndGet(50L);
+        try {
+            cache.get("unknown");
+            fail("Expected the lookup to fail");
+        } catch (ExecutionException e) {
+            assertEquals(2, loads.get());
+        }
+    }
+    
+    @Test
+    public void testUnavailableIsNotCached() throws Exception {
+        SingleFlightCache<String,String> cache = createCache(this::load);
+        available = false;
+        try {
+            cache.get("a");
+            fail("Expected the lookup to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        available = true;
+        assertEquals("a-1", cache.get("a"));
+        assertEquals(0, cache.getHits());
+    }
+    
+    @Test
+    public void testValueExpiration() throws Exception {
+        SingleFlightCache<String,String> cache = createCache(this::load);
+        expiration = clock.get() + 30L;
+        assertEquals("a-1", cache.get("a"));
+        clock.addAndGet(30L);
+        assertEquals("a-2", cache.get("a"));
+    }
+    
+    @Test
+    public void testInvalidation() throws Exception {
+        SingleFlightCache<String,String> cache = createCache(this::load);
+        assertEquals("a-1", cache.get("a"));
+        assertEquals("b-2", cache.get("b"));
+        cache.invalidate("a");
+        assertEquals("a-3", cache.get("a"));
+        assertEquals("b-2", cache.get("b"));
+        cache.invalidateMatching(key -> key.startsWith("b"));
+        assertEquals("b-4", cache.get("b"));
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+    
+    @Test
+    public void testInvalidatedLoadIsNotCached() throws Exception {
+        AtomicLong invalidations = new AtomicLong();
+        AtomicReference<SingleFlightCache<String,String>> cache = new AtomicReference<>();
+        cache.set(createCache(key -> {
+            if (invalidations.getAndIncrement() == 0) {
+                cache.get().invalidateAll();
+            }
+            return load(key);
+        }));
+        assertEquals("a-1", cache.get().get("a"));
+        assertEquals(0, cache.get().size());
+        assertEquals("a-2", cache.get().get("a"));
+        assertEquals(1, cache.get().size());
+    }
+    
+    @Test
+    public void testLeastRecentlyUsedIsRemoved() throws Exception {
+        SingleFlightCache<String,String> cache = createCache(this::load);
+        String a = cache.get("a");
+        cache.get("b");
+        assertSame(a, cache.get("a"));
+        cache.get("c");
+        assertEquals(2, cache.size());
+        assertSame(a, cache.get("a"));
+        assertEquals("b-4", cache.get("b"));
+    }
+}
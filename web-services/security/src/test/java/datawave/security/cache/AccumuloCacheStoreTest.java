@@ -0,0 +1,265 @@
+package datawave.security.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import org.apache.accumulo.core.client.AccumuloClient;
+import org.apache.accumulo.core.client.BatchDeleter;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.MutationsRejectedException;
+import org.apache.accumulo.core.client.admin.TableOperations;
+import org.apache.accumulo.core.data.Mutation;
+import org.easymock.EasyMock;
+import org.infinispan.commons.io.ByteBufferFactoryImpl;
+import org.infinispan.commons.io.ByteBufferImpl;
+import org.infinispan.commons.marshall.StreamingMarshaller;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.marshall.core.MarshalledEntry;
+import org.infinispan.marshall.core.MarshalledEntryFactoryImpl;
+import org.infinispan.metadata.InternalMetadata;
+import org.infinispan.persistence.spi.InitializationContext;
+import org.infinispan.persistence.spi.PersistenceException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AccumuloCacheStoreTest {
+    
+    private static final String TABLE_NAME = "cacheTable";
+    
+    private final List<TestBatchWriter> batchWriters = new CopyOnWriteArrayList<>();
+    private final Set<String> writtenRows = Collections.synchronizedSet(new HashSet<>());
+    private volatile boolean rejectMutations = false;
+    private volatile boolean clientClosed = false;
+    
+    private AccumuloCacheStore<String,String> store;
+    
+    @Before
+    public void setUp() throws Exception {
+        TableOperations tableOperations = EasyMock.createNiceMock(TableOperations.class);
+        EasyMock.expect(tableOperations.exists(TABLE_NAME)).andReturn(true).anyTimes();
+        
+        AccumuloClient client = EasyMock.createNiceMock(AccumuloClient.class);
+        EasyMock.expect(client.tableOperations()).andReturn(tableOperations).anyTimes();
+        EasyMock.expect(client.createBatchWriter(EasyMock.eq(TABLE_NAME), EasyMock.anyObject(BatchWriterConfig.class))).andAnswer(() -> {
+            TestBatchWriter batchWriter = new TestBatchWriter();
+            batchWriters.add(batchWriter);
+            return batchWriter;
+        }).anyTimes();
+        BatchDeleter deleter = EasyMock.createNiceMock(BatchDeleter.class);
+        EasyMock.expect(client.createBatchDeleter(EasyMock.eq(TABLE_NAME), EasyMock.anyObject(), EasyMock.anyInt(),
+                        EasyMock.anyObject(BatchWriterConfig.class))).andReturn(deleter).anyTimes();
+        client.close();
+        EasyMock.expectLastCall().andAnswer(() -> {
+            clientClosed = true;
+            return null;
+        }).anyTimes();
+        
+        StreamingMarshaller marshaller = EasyMock.createNiceMock(StreamingMarshaller.class);
+        EasyMock.expect(marshaller.objectToByteBuffer(EasyMock.anyObject()))
+                        .andAnswer(() -> ((String) EasyMock.getCurrentArguments()[0]).getBytes(StandardCharsets.UTF_8)).anyTimes();
+        
+        // @formatter:off
+        AccumuloCacheStoreConfiguration configuration = new ConfigurationBuilder().persistence()
+                .addStore(AccumuloCacheStoreConfigurationBuilder.class)
+                .tableName(TABLE_NAME)
+                .writeBehind(true)
+                .writeBehindBatchSize(3)
+                .writeBehindFlushInterval(3600000L)
+                .writeBehindMaxPending(5)
+                .create();
+        // @formatter:on
+        
+        InitializationContext ctx = EasyMock.createNiceMock(InitializationContext.class);
+        EasyMock.expect(ctx.getConfiguration()).andReturn(configuration).anyTimes();
+        EasyMock.expect(ctx.getMarshaller()).andReturn(marshaller).anyTimes();
+        EasyMock.expect(ctx.getByteBufferFactory()).andReturn(new ByteBufferFactoryImpl()).anyTimes();
+        EasyMock.expect(ctx.getMarshalledEntryFactory()).andReturn(new MarshalledEntryFactoryImpl(marshaller)).anyTimes();
+        
+        EasyMock.replay(tableOperations, deleter, client, marshaller, ctx);
+        
+        store = new AccumuloCacheStore<String,String>() {
+            @Override
+            protected AccumuloClient createClient() {
+                return client;
+            }
+        };
+        store.init(ctx);
+        store.start();
+    }
+    
+    @After
+    public void tearDown() {
+        rejectMutations = false;
+        if (store != null) {
+            store.stop();
+        }
+    }
+    
+    @Test
+    public void testWritesAreFlushedInBatches() throws Exception {
+        store.write(entry("k1", "v1"));
+        store.write(entry("k2", "v2"));
+        assertTrue(writtenRows.isEmpty());
+        assertEquals(2, store.getPendingWriteCount());
+        
+        store.write(entry("k3", "v3"));
+        waitFor(() -> store.getPendingWriteCount() == 0);
+        assertEquals(new HashSet<>(Arrays.asList("k1", "k2", "k3")), writtenRows);
+        assertEquals(1, batchWriters.size());
+    }
+    
+    @Test
+    public void testReadsThroughPendingWrites() throws Exception {
+        store.write(entry("k1", "v1"));
+        store.write(entry("k2", "v2"));
+        store.delete("k1");
+        
+        assertTrue(writtenRows.isEmpty());
+        assertNull(store.load("k1"));
+        assertFalse(store.contains("k1"));
+        assertTrue(store.contains("k2"));
+        assertEquals("v2", value(store.load("k2")));
+        
+        store.write(entry("k2", "v2.1"));
+        assertEquals("v2.1", value(store.load("k2")));
+    }
+    
+    @Test
+    public void testFlushFailure() throws Exception {
+        rejectMutations = true;
+        
+        // the failed flush is reported by the flush, not by the writes
+        store.write(entry("k1", "v1"));
+        store.write(entry("k2", "v2"));
+        store.write(entry("k3", "v3"));
+        waitFor(() -> batchWriters.size() > 1);
+        assertEquals(3, store.getPendingWriteCount());
+        assertEquals("v1", value(store.load("k1")));
+        
+        store.write(entry("k4", "v4"));
+        store.write(entry("k5", "v5"));
+        try {
+            store.write(entry("k6", "v6"));
+            fail("Expected the pending writes to be bounded");
+        } catch (PersistenceException e) {
+            // expected
+        }
+        
+        // a pending row can still be replaced
+        store.write(entry("k1", "v1.1"));
+        assertEquals(5, store.getPendingWriteCount());
+        assertEquals("v1.1", value(store.load("k1")));
+        
+        // the pending writes are flushed by a new batch writer once Accumulo accepts them again
+        rejectMutations = false;
+        store.flushPendingWrites();
+        assertEquals(0, store.getPendingWriteCount());
+        assertEquals(new HashSet<>(Arrays.asList("k1", "k2", "k3", "k4", "k5")), writtenRows);
+    }
+    
+    @Test
+    public void testStopClosesWhenTheFlushFails() throws Exception {
+        rejectMutations = true;
+        store.write(entry("k1", "v1"));
+        
+        AccumuloCacheStore<String,String> stopped = store;
+        store = null;
+        try {
+            stopped.stop();
+            fail("Expected the final flush to fail");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        assertTrue(batchWriters.get(batchWriters.size() - 1).closed);
+        assertTrue(clientClosed);
+    }
+    
+    @Test
+    public void testClearDropsPendingWrites() throws Exception {
+        store.write(entry("k1", "v1"));
+        store.write(entry("k2", "v2"));
+        store.clear();
+        assertEquals(0, store.getPendingWriteCount());
+        store.flushPendingWrites();
+        assertTrue(writtenRows.isEmpty());
+    }
+    
+    private static MarshalledEntry<String,String> entry(String key, String value) {
+        InternalMetadata metadata = EasyMock.createNiceMock(InternalMetadata.class);
+        EasyMock.expect(metadata.created()).andReturn(1L).anyTimes();
+        
+        @SuppressWarnings("unchecked")
+        MarshalledEntry<String,String> entry = EasyMock.createNiceMock(MarshalledEntry.class);
+        EasyMock.expect(entry.getKey()).andReturn(key).anyTimes();
+        EasyMock.expect(entry.getKeyBytes()).andReturn(new ByteBufferImpl(key.getBytes(StandardCharsets.UTF_8))).anyTimes();
+        EasyMock.expect(entry.getValueBytes()).andReturn(new ByteBufferImpl(value.getBytes(StandardCharsets.UTF_8))).anyTimes();
+        EasyMock.expect(entry.getMetadata()).andReturn(metadata).anyTimes();
+        EasyMock.replay(metadata, entry);
+        return entry;
+    }
+    
+    private static String value(MarshalledEntry<String,String> entry) {
+        org.infinispan.commons.io.ByteBuffer valueBytes = entry.getValueBytes();
+        return new String(valueBytes.getBuf(), valueBytes.getOffset(), valueBytes.getLength(), StandardCharsets.UTF_8);
+    }
+    
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > end) {
+                fail("Timed out waiting for the pending writes to be flushed");
+            }
+            Thread.sleep(10);
+        }
+    }
+    
+    /**
+     * A batch writer which records the rows it flushes, or rejects the mutations while {@link #rejectMutations} is set
+     */
+    private class TestBatchWriter implements BatchWriter {
+        private final List<Mutation> mutations = new ArrayList<>();
+        private volatile boolean closed = false;
+        
+        @Override
+        public synchronized void addMutation(Mutation m) {
+            mutations.add(m);
+        }
+        
+        @Override
+        public synchronized void addMutations(Iterable<Mutation> iterable) {
+            iterable.forEach(mutations::add);
+        }
+        
+        @Override
+        public synchronized void flush() throws MutationsRejectedException {
+            if (rejectMutations) {
+                throw new MutationsRejectedException((AccumuloClient) null, Collections.emptyList(), Collections.emptyMap(), Collections.emptyList(), 1, null);
+            }
+            for (Mutation m : mutations) {
+                writtenRows.add(new String(m.getRow(), StandardCharsets.UTF_8));
+            }
+            mutations.clear();
+        }
+        
+        @Override
+        public void close() throws MutationsRejectedException {
+            closed = true;
+            flush();
+        }
+    }
+}